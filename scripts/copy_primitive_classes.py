@@ -65,6 +65,9 @@ def get_re_subs_for_all():
     repls = [("int serialVersionUID", "long serialVersionUID"),
              ("short serialVersionUID", "long serialVersionUID"),
              ("byte serialVersionUID", "long serialVersionUID"),
+             ("int stamp", "long stamp"),
+             ("short stamp", "long stamp"),
+             ("byte stamp", "long stamp"),
              ("Long.POSITIVE_INFINITY", "Long.MAX_VALUE"),
              ("Long.NEGATIVE_INFINITY", "Long.MIN_VALUE"),
              ("Int.POSITIVE_INFINITY", "Integer.MAX_VALUE"),
@@ -73,10 +76,15 @@ def get_re_subs_for_all():
              ("Short.NEGATIVE_INFINITY", "Short.MIN_VALUE"),
              ("Byte.POSITIVE_INFINITY", "Byte.MAX_VALUE"),
              ("Byte.NEGATIVE_INFINITY", "Byte.MIN_VALUE"),
+             ("AtomicIntArray", "AtomicLongArray"),
+             ("AtomicShortArray", "AtomicLongArray"),
+             ("AtomicByteArray", "AtomicLongArray"),
              ]
     
     # Convert repls to regex replacements.
     re_subs = [(re.escape(k), v) for k, v in repls]
+    # Lock stamps and the bits of values (see Primitives.toBits) are always longs.
+    re_subs += [(r"\b(?:int|short|byte)(\s+\w*(?:[sS]tamp|Bits)\b)", r"long\1")]
     return re_subs
 
 def get_re_subs_for_single(src_prim, dest_prim):
@@ -220,8 +228,13 @@ if __name__ == "__main__":
     src_files = classes_to_files("main", [
                     "edu.jhu.prim.map.LongDoubleMap",
                     "edu.jhu.prim.map.LongDoubleEntry",
+                    "edu.jhu.prim.map.LongDoubleCursor",
                     "edu.jhu.prim.map.LongDoubleSortedMap",
+                    "edu.jhu.prim.map.LongDoubleBufferedSortedMap",
                     "edu.jhu.prim.map.LongDoubleHashMap",
+                    "edu.jhu.prim.map.LongDoubleLinearHashMap",
+                    "edu.jhu.prim.map.LongDoubleConcurrentHashMap",
+                    "edu.jhu.prim.map.LongDoubleOffHeapHashMap",
                     "edu.jhu.prim.sort.LongDoubleSort",
                     "edu.jhu.prim.vector.LongDoubleVector",
                     "edu.jhu.prim.vector.LongDoubleSortedVector",
@@ -230,10 +243,18 @@ if __name__ == "__main__":
                     "edu.jhu.prim.vector.LongDoubleDenseVector",
                     "edu.jhu.prim.vector.LongDoubleVectorSlice",
                     "edu.jhu.prim.vector.AbstractLongDoubleVector",
+                    "edu.jhu.prim.vector.LongDoubleRangeIterable",
+                    "edu.jhu.prim.vector.LongDoubleVectorKernels",
+                    "edu.jhu.prim.io.LongDoubleBinaryCodec",
                     ]) + \
                 classes_to_files("test", [
                     "edu.jhu.prim.map.LongDoubleSortedMapTest",
+                    "edu.jhu.prim.map.LongDoubleBufferedSortedMapTest",
                     "edu.jhu.prim.map.LongDoubleHashMapTest",
+                    "edu.jhu.prim.map.LongDoubleCursorTest",
+                    "edu.jhu.prim.map.LongDoubleLinearHashMapTest",
+                    "edu.jhu.prim.map.LongDoubleConcurrentHashMapTest",
+                    "edu.jhu.prim.map.LongDoubleOffHeapHashMapTest",
                     "edu.jhu.prim.sort.LongDoubleSortTest",
                     "edu.jhu.prim.vector.LongDoubleSortedVectorTest",
                     "edu.jhu.prim.vector.LongDoubleUnsortedVectorTest",
@@ -241,6 +262,8 @@ if __name__ == "__main__":
                     "edu.jhu.prim.vector.LongDoubleDenseVectorTest",
                     "edu.jhu.prim.vector.LongDoubleVectorSliceTest",
                     "edu.jhu.prim.vector.AbstractLongDoubleVectorTest",
+                    "edu.jhu.prim.vector.LongDoubleParallelTest",
+                    "edu.jhu.prim.io.LongDoubleBinaryCodecTest",
                     ])
     copy_pair(tds.get("int"), tds.get("double"), src_files)
     copy_pair(tds.get("int"), tds.get("float"), src_files)
@@ -287,8 +310,14 @@ if __name__ == "__main__":
     src_files = classes_to_files("main", [
                     "edu.jhu.prim.set.LongHashSet",
                     "edu.jhu.prim.set.LongSet",
+                    "edu.jhu.prim.map.LongHashStrategy",
                     "edu.jhu.prim.iter.LongIter",
+                    "edu.jhu.prim.iter.LongCursor",
                     "edu.jhu.prim.iter.LongArrayIter",
                     "edu.jhu.prim.iter.LongIncrIter",
-                    ]) 
+                    "edu.jhu.prim.arrays.LongSortedArrays",
+                    ]) + \
+                classes_to_files("test", [
+                    "edu.jhu.prim.arrays.LongSortedArraysTest",
+                    ])
     copy_single(tds.get("long"), tds.get("int"), src_files)
@@ -0,0 +1,143 @@
+package edu.jhu.prim.arrays;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhu.prim.list.LongArrayList;
+
+/**
+ * Benchmarks for the posting list kernels in LongSortedArrays. The ratio
+ * parameter is the size of the big list over the small one; comparing
+ * intersect() with linearIntersect() across ratios picks
+ * LongSortedArrays.GALLOP_RATIO. The k-way benchmarks merge k lists of size n
+ * with a loser tree, against repeated two-way merges as the baseline.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongSortedArraysBenchmark {
+
+    @Param({"100000"})
+    public int n;
+
+    @Param({"1", "4", "16", "64", "1000"})
+    public int ratio;
+
+    @Param({"16"})
+    public int k;
+
+    private long[] big;
+    private long[] small;
+    private long[][] lists;
+    private LongArrayList out = new LongArrayList();
+    private LongArrayList tmp = new LongArrayList();
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        big = getPostings(rand, n, 4);
+        small = getPostings(rand, Math.max(1, n / ratio), 4L * ratio);
+        lists = new long[k][];
+        for (int s = 0; s < k; s++) {
+            // Spread over k times the range, so the union grows with k.
+            lists[s] = getPostings(rand, n, 4L * k);
+        }
+    }
+
+    /** Gets a posting list with gaps drawn uniformly from [1, 2 * meanGap]. */
+    private static long[] getPostings(Random rand, int size, long meanGap) {
+        long[] p = new long[size];
+        long doc = 0;
+        for (int i = 0; i < size; i++) {
+            doc += 1 + (long) (rand.nextDouble() * (2 * meanGap - 1));
+            p[i] = doc;
+        }
+        return p;
+    }
+
+    @Benchmark
+    public LongArrayList intersect() {
+        out.clear();
+        LongSortedArrays.intersect(small, big, out);
+        return out;
+    }
+
+    @Benchmark
+    public LongArrayList linearIntersect() {
+        out.clear();
+        int i = 0;
+        int j = 0;
+        while (i < small.length && j < big.length) {
+            if (small[i] < big[j]) {
+                i++;
+            } else if (big[j] < small[i]) {
+                j++;
+            } else {
+                out.add(small[i]);
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    @Benchmark
+    public LongArrayList difference() {
+        out.clear();
+        LongSortedArrays.difference(big, small, out);
+        return out;
+    }
+
+    @Benchmark
+    public LongArrayList union() {
+        out.clear();
+        LongSortedArrays.union(small, big, out);
+        return out;
+    }
+
+    @Benchmark
+    public LongArrayList unionLoserTree() {
+        out.clear();
+        LongSortedArrays.union(lists, out);
+        return out;
+    }
+
+    @Benchmark
+    public LongArrayList unionPairwise() {
+        out.clear();
+        out.add(lists[0], 0, lists[0].length);
+        for (int s = 1; s < k; s++) {
+            LongArrayList swap = tmp;
+            tmp = out;
+            out = swap;
+            out.clear();
+            LongSortedArrays.union(tmp.toNativeArray(), lists[s], out);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public LongArrayList intersectMany() {
+        out.clear();
+        LongSortedArrays.intersect(lists, out);
+        return out;
+    }
+
+}
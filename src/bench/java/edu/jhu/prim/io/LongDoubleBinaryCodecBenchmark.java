@@ -0,0 +1,109 @@
+package edu.jhu.prim.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhu.prim.map.LongDoubleHashMap;
+import edu.jhu.prim.util.KeyDistribution;
+
+/**
+ * Write and read throughput of LongDoubleBinaryCodec against default Java
+ * serialization for a LongDoubleHashMap.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongDoubleBinaryCodecBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"SEQUENTIAL", "RANDOM"})
+    public KeyDistribution keyDist;
+
+    private LongDoubleHashMap map;
+    private byte[] codecBytes;
+    private byte[] sortedCodecBytes;
+    private byte[] javaBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        Random rand = new Random(9001);
+        long[] keys = keyDist.getLongKeys(size, rand);
+        map = new LongDoubleHashMap(0, 0);
+        for (int i=0; i<size; i++) {
+            map.put(keys[i], rand.nextDouble());
+        }
+        codecBytes = writeCodec().toByteArray();
+        sortedCodecBytes = writeCodecSorted().toByteArray();
+        javaBytes = writeObjectStream().toByteArray();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream writeCodec() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        LongDoubleBinaryCodec.write(map, out, false);
+        out.flush();
+        return bytes;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream writeCodecSorted() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        LongDoubleBinaryCodec.write(map, out, true);
+        out.flush();
+        return bytes;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream writeObjectStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(map);
+        out.flush();
+        return bytes;
+    }
+
+    @Benchmark
+    public LongDoubleHashMap readCodec() throws IOException {
+        return LongDoubleBinaryCodec.readHashMap(new DataInputStream(new ByteArrayInputStream(codecBytes)));
+    }
+
+    @Benchmark
+    public LongDoubleHashMap readCodecSorted() throws IOException {
+        return LongDoubleBinaryCodec.readHashMap(new DataInputStream(new ByteArrayInputStream(sortedCodecBytes)));
+    }
+
+    @Benchmark
+    public LongDoubleHashMap readObjectStream() throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(javaBytes));
+        return (LongDoubleHashMap) in.readObject();
+    }
+
+}
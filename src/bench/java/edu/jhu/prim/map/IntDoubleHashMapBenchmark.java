@@ -0,0 +1,108 @@
+package edu.jhu.prim.map;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhu.prim.util.KeyDistribution;
+
+/**
+ * Benchmarks for put/get/contains/add on IntDoubleHashMap. Each benchmark
+ * method makes one pass over all the keys.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntDoubleHashMapBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"SEQUENTIAL", "RANDOM", "PACKED"})
+    public KeyDistribution keyDist;
+
+    /** Keys which are present in the map. */
+    private int[] keys;
+    /** Keys which are (almost certainly) absent from the map. */
+    private int[] missingKeys;
+    private IntDoubleHashMap map;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        int[] all = keyDist.getIntKeys(2 * size, rand);
+        keys = new int[size];
+        missingKeys = new int[size];
+        System.arraycopy(all, 0, keys, 0, size);
+        System.arraycopy(all, size, missingKeys, 0, size);
+        map = new IntDoubleHashMap();
+        for (int i=0; i<size; i++) {
+            map.put(keys[i], i);
+        }
+    }
+
+    @Benchmark
+    public IntDoubleHashMap put() {
+        IntDoubleHashMap m = new IntDoubleHashMap();
+        for (int i=0; i<keys.length; i++) {
+            m.put(keys[i], i);
+        }
+        return m;
+    }
+
+    @Benchmark
+    public double get() {
+        double sum = 0;
+        for (int i=0; i<keys.length; i++) {
+            sum += map.get(keys[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int containsHit() {
+        int count = 0;
+        for (int i=0; i<keys.length; i++) {
+            if (map.contains(keys[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int containsMiss() {
+        int count = 0;
+        for (int i=0; i<missingKeys.length; i++) {
+            if (map.contains(missingKeys[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public IntDoubleHashMap add() {
+        for (int i=0; i<keys.length; i++) {
+            map.add(keys[i], 1);
+        }
+        return map;
+    }
+
+}
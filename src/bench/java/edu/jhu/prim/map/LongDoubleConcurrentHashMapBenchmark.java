@@ -0,0 +1,111 @@
+package edu.jhu.prim.map;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhu.prim.util.KeyDistribution;
+
+/**
+ * Multi-threaded add and get throughput on a skewed key distribution,
+ * comparing LongDoubleConcurrentHashMap against a LongDoubleHashMap behind one
+ * global lock. Run with e.g. "-t 1", "-t 8", "-t 32" to measure scaling.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class LongDoubleConcurrentHashMapBenchmark {
+
+    /** Number of pregenerated keys each thread cycles through. */
+    private static final int NUM_KEYS_PER_THREAD = 1 << 16;
+
+    @Param({"100000", "10000000"})
+    public int numFeatures;
+
+    /** The keys, of which the i'th most frequent is the i'th key of the distribution. */
+    @Param({"SEQUENTIAL", "PACKED"})
+    public KeyDistribution keyDist;
+
+    private long[] features;
+    private LongDoubleConcurrentHashMap striped;
+    private LongDoubleHashMap global;
+
+    @Setup
+    public void setup() {
+        features = keyDist.getLongKeys(numFeatures, new Random(9001));
+        striped = new LongDoubleConcurrentHashMap(0, 0);
+        global = new LongDoubleHashMap(0, 0);
+        // Prefill the head of the distribution so that the get benchmarks mostly hit.
+        for (int i=0; i<numFeatures / 100; i++) {
+            striped.add(features[i], 1.0);
+            global.add(features[i], 1.0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+        private long[] keys;
+        private int cur;
+
+        @Setup
+        public void setup(LongDoubleConcurrentHashMapBenchmark bench) {
+            Random rand = new Random(Thread.currentThread().getId());
+            keys = new long[NUM_KEYS_PER_THREAD];
+            for (int i=0; i<keys.length; i++) {
+                // A cubed uniform gives a heavy head of frequent features.
+                double u = rand.nextDouble();
+                keys[i] = bench.features[(int) (u * u * u * bench.numFeatures)];
+            }
+        }
+
+        long next() {
+            cur = (cur + 1) & (NUM_KEYS_PER_THREAD - 1);
+            return keys[cur];
+        }
+    }
+
+    @Benchmark
+    public void addStriped(ThreadKeys keys) {
+        striped.add(keys.next(), 1.0);
+    }
+
+    @Benchmark
+    public void addGlobalLock(ThreadKeys keys) {
+        long key = keys.next();
+        synchronized (global) {
+            global.add(key, 1.0);
+        }
+    }
+
+    @Benchmark
+    public double getStriped(ThreadKeys keys) {
+        return striped.get(keys.next());
+    }
+
+    @Benchmark
+    public double getGlobalLock(ThreadKeys keys) {
+        long key = keys.next();
+        synchronized (global) {
+            return global.get(key);
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package edu.jhu.prim.map;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sliding-window churn benchmark: each step adds a new key, removes the oldest
+ * key and looks up a live key, so the map size stays fixed while keys are
+ * continually replaced. The per-step latency should stay flat across
+ * measurement iterations rather than degrading as the run goes on.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LongDoubleHashMapChurnBenchmark {
+
+    /** Spreads the sequential step counter over the key space. */
+    private static final long KEY_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    public enum MapType {
+        HASH, LINEAR;
+
+        public LongDoubleMap getMap() {
+            switch (this) {
+            case HASH: return new LongDoubleHashMap(0, 0);
+            case LINEAR: return new LongDoubleLinearHashMap(0, 0);
+            default: throw new IllegalStateException("Unsupported map type: " + this);
+            }
+        }
+    }
+
+    @Param({"1000", "100000"})
+    public int window;
+
+    @Param({"HASH", "LINEAR"})
+    public MapType type;
+
+    private LongDoubleMap map;
+    private long step;
+
+    @Setup
+    public void setup() {
+        map = type.getMap();
+        for (step=0; step<window; step++) {
+            map.put(getKey(step), step);
+        }
+    }
+
+    private static long getKey(long i) {
+        return i * KEY_MULTIPLIER;
+    }
+
+    @Benchmark
+    public double slide() {
+        map.put(getKey(step), step);
+        map.remove(getKey(step - window));
+        step++;
+        return map.get(getKey(step - window / 2));
+    }
+
+}
@@ -0,0 +1,114 @@
+package edu.jhu.prim.map;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhu.prim.map.LongDoubleHashMapChurnBenchmark.MapType;
+import edu.jhu.prim.util.KeyDistribution;
+
+/**
+ * Benchmarks for the batch methods of LongDoubleMap (getAll, addAll,
+ * containsAll) against the equivalent loop over the scalar methods. Each
+ * invocation processes one batch of keys, half of which are in the map.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongDoubleMapBatchBenchmark {
+
+    private static final int BATCH_SIZE = 10000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"RANDOM", "PACKED"})
+    public KeyDistribution keyDist;
+
+    @Param({"HASH", "LINEAR"})
+    public MapType type;
+
+    private LongDoubleMap map;
+    private long[] batch;
+    private double[] deltas;
+    private double[] out;
+    private boolean[] contained;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        long[] allKeys = keyDist.getLongKeys(2 * size, rand);
+        map = type.getMap();
+        for (int i=0; i<size; i++) {
+            map.put(allKeys[i], i);
+        }
+        batch = new long[BATCH_SIZE];
+        deltas = new double[BATCH_SIZE];
+        for (int i=0; i<BATCH_SIZE; i++) {
+            // Hits come from the first half of the keys, misses from the second.
+            batch[i] = allKeys[(i % 2) * size + rand.nextInt(size)];
+            deltas[i] = rand.nextDouble();
+        }
+        out = new double[BATCH_SIZE];
+        contained = new boolean[BATCH_SIZE];
+    }
+
+    @Benchmark
+    public double[] getScalar() {
+        for (int i=0; i<batch.length; i++) {
+            out[i] = map.getWithDefault(batch[i], 0);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] getAll() {
+        map.getAll(batch, out);
+        return out;
+    }
+
+    @Benchmark
+    public boolean[] containsScalar() {
+        for (int i=0; i<batch.length; i++) {
+            contained[i] = map.contains(batch[i]);
+        }
+        return contained;
+    }
+
+    @Benchmark
+    public boolean[] containsAll() {
+        map.containsAll(batch, contained);
+        return contained;
+    }
+
+    @Benchmark
+    public LongDoubleMap addScalar() {
+        for (int i=0; i<batch.length; i++) {
+            map.add(batch[i], deltas[i]);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public LongDoubleMap addAll() {
+        map.addAll(batch, deltas);
+        return map;
+    }
+
+}
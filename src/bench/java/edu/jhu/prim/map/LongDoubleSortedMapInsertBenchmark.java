@@ -0,0 +1,81 @@
+package edu.jhu.prim.map;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds a sorted map from n keys in random order and then visits the
+ * entries in order. The time is per insert, so it stays roughly flat (O(log
+ * n) amortized) for the buffered map as n grows, and grows linearly with n
+ * for the plain sorted map.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongDoubleSortedMapInsertBenchmark {
+
+    private static final int MAX_N = 1000000;
+
+    public enum MapType {
+        SORTED, BUFFERED;
+
+        public LongDoubleSortedMap getMap() {
+            switch (this) {
+            case SORTED: return new LongDoubleSortedMap();
+            case BUFFERED: return new LongDoubleBufferedSortedMap();
+            default: throw new IllegalStateException("Unsupported map type: " + this);
+            }
+        }
+    }
+
+    @Param({"1000", "10000", "100000"})
+    public int n;
+
+    @Param({"SORTED", "BUFFERED"})
+    public MapType type;
+
+    private long[] keys;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = rand.nextLong();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MAX_N)
+    public double insertThenIterate() {
+        // Repeat so that each invocation does MAX_N inserts whatever n is.
+        double sum = 0;
+        for (int r = 0; r < MAX_N / n; r++) {
+            LongDoubleSortedMap map = type.getMap();
+            for (int i = 0; i < n; i++) {
+                map.add(keys[i], i);
+            }
+            sum += map.getSum();
+        }
+        return sum;
+    }
+
+}
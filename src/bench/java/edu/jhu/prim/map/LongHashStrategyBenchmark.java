@@ -0,0 +1,98 @@
+package edu.jhu.prim.map;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhu.prim.Primitives;
+import edu.jhu.prim.util.KeyDistribution;
+
+/**
+ * Compares hash functions for {@link LongDoubleHashMap} on structured keys.
+ * The timings are explained by {@link LongDoubleHashMap#getAverageProbeLength()}
+ * of each map: 1.0 means no key collides with another.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongHashStrategyBenchmark {
+
+    public enum HashType {
+        /** The previous default: the shift mix of each 32-bit half, XORed together. */
+        LEGACY,
+        /** The current default: the fmix64 finalizer. */
+        DEFAULT;
+
+        public LongHashStrategy getStrategy() {
+            switch (this) {
+            case LEGACY: return new LegacyHashStrategy();
+            case DEFAULT: return LongHashStrategy.Standard.DEFAULT;
+            default: throw new IllegalStateException("Unsupported hash type: " + this);
+            }
+        }
+    }
+
+    private static class LegacyHashStrategy implements LongHashStrategy {
+        private static final long serialVersionUID = 1L;
+        public int hashOf(long key) {
+            return Primitives.hashOfInt((int) key) ^ Primitives.hashOfInt((int) (key >>> 32));
+        }
+    }
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"SEQUENTIAL", "STRIDED", "PACKED", "RANDOM"})
+    public KeyDistribution keyDist;
+
+    @Param({"LEGACY", "DEFAULT"})
+    public HashType hash;
+
+    private long[] keys;
+    private LongDoubleHashMap map;
+
+    @Setup
+    public void setup() {
+        keys = keyDist.getLongKeys(size, new Random(42));
+        map = build();
+    }
+
+    private LongDoubleHashMap build() {
+        LongDoubleHashMap m = new LongDoubleHashMap(16, 0, hash.getStrategy());
+        for (int i=0; i<keys.length; i++) {
+            m.put(keys[i], i);
+        }
+        return m;
+    }
+
+    @Benchmark
+    public LongDoubleHashMap put() {
+        return build();
+    }
+
+    @Benchmark
+    public double get() {
+        double sum = 0;
+        for (int i=0; i<keys.length; i++) {
+            sum += map.get(keys[i]);
+        }
+        return sum;
+    }
+
+}
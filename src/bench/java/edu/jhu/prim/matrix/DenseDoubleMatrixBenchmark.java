@@ -0,0 +1,165 @@
+package edu.jhu.prim.matrix;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for DenseDoubleMatrix.mult() and SparseColDoubleMatrix.multT()
+ * on square and skinny shapes. The shape is MxKxN for an MxK matrix A times a
+ * KxN matrix B. Besides the calls per nanosecond, the "flops" counter gives the
+ * rate in GFLOP/s, counting a multiply-add as two flops (for the sparse
+ * products, only the multiply-adds by non-zeros count).
+ * <p>
+ * naive() is the row-column dot product loop which mult() used before it
+ * was tiled, sequential() runs the tiled kernel on a pool with a single
+ * thread, and parallel() runs it on the common pool.
+ * </p>
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DenseDoubleMatrixBenchmark {
+
+    @Param({"64x64x64", "512x512x512", "8192x64x64", "64x8192x64", "64x64x8192"})
+    public String shape;
+
+    /** Fraction of non-zeros in the sparse matrices. */
+    @Param({"0.1"})
+    public double density;
+
+    private DenseDoubleMatrix aMat;
+    private DenseDoubleMatrix bMat;
+    private DenseDoubleMatrix cMat;
+    private SparseColDoubleMatrix sparseBMat;
+    private SparseColDoubleMatrix sparseAtMat;
+    private ForkJoinPool sequentialPool;
+    private long denseFlops;
+    private long sparseFlops;
+
+    /** Counts the flops done, which JMH reports per nanosecond, i.e. in GFLOP/s. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class FlopCounter {
+        public long flops;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            flops = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        String[] dims = shape.split("x");
+        int m = Integer.parseInt(dims[0]);
+        int k = Integer.parseInt(dims[1]);
+        int n = Integer.parseInt(dims[2]);
+        Random rand = new Random(9001);
+        aMat = getRandomMatrix(m, k, rand);
+        bMat = getRandomMatrix(k, n, rand);
+        cMat = new DenseDoubleMatrix(m, n);
+        sparseBMat = new SparseColDoubleMatrix(getRandomSparseArray(k, n, density, rand));
+        sparseAtMat = new SparseColDoubleMatrix(getRandomSparseArray(k, m, density, rand));
+        sequentialPool = new ForkJoinPool(1);
+        denseFlops = 2L * m * k * n;
+        sparseFlops = 2L * (m * getNumNonZeros(sparseBMat) + n * getNumNonZeros(sparseAtMat));
+    }
+
+    @TearDown
+    public void tearDown() {
+        sequentialPool.shutdown();
+    }
+
+    static DenseDoubleMatrix getRandomMatrix(int numRows, int numCols, Random rand) {
+        DenseDoubleMatrix mat = new DenseDoubleMatrix(numRows, numCols);
+        for (int row=0; row<numRows; row++) {
+            for (int col=0; col<numCols; col++) {
+                mat.set(row, col, rand.nextDouble());
+            }
+        }
+        return mat;
+    }
+
+    static double[][] getRandomSparseArray(int numRows, int numCols, double density, Random rand) {
+        double[][] arr = new double[numRows][numCols];
+        for (int row=0; row<numRows; row++) {
+            for (int col=0; col<numCols; col++) {
+                if (rand.nextDouble() < density) {
+                    arr[row][col] = rand.nextDouble();
+                }
+            }
+        }
+        return arr;
+    }
+
+    private static long getNumNonZeros(SparseColDoubleMatrix mat) {
+        long nnz = 0;
+        for (int col=0; col<mat.getNumColumns(); col++) {
+            nnz += mat.cols[col].getUsed();
+        }
+        return nnz;
+    }
+
+    @Benchmark
+    public DenseDoubleMatrix naive(FlopCounter counter) {
+        double[][] a = aMat.matrix;
+        double[][] b = bMat.matrix;
+        double[][] c = cMat.matrix;
+        for (int row = 0; row < cMat.numRows; row++) {
+            for (int col = 0; col < cMat.numCols; col++) {
+                double value = 0.0;
+                for (int i=0; i<a[row].length; i++) {
+                    value += a[row][i] * b[i][col];
+                }
+                c[row][col] = value;
+            }
+        }
+        counter.flops += denseFlops;
+        return cMat;
+    }
+
+    @Benchmark
+    public DenseDoubleMatrix sequential(FlopCounter counter) {
+        aMat.mult(bMat, cMat, sequentialPool);
+        counter.flops += denseFlops;
+        return cMat;
+    }
+
+    @Benchmark
+    public DenseDoubleMatrix parallel(FlopCounter counter) {
+        aMat.mult(bMat, cMat);
+        counter.flops += denseFlops;
+        return cMat;
+    }
+
+    /** A x B for a sparse B and A^T x B for a sparse A, each with the same density. */
+    @Benchmark
+    public DenseDoubleMatrix sparse(FlopCounter counter) {
+        aMat.mult(sparseBMat, cMat);
+        sparseAtMat.multT(bMat, cMat, true, false);
+        counter.flops += sparseFlops;
+        return cMat;
+    }
+
+}
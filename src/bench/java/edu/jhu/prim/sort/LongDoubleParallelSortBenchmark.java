@@ -0,0 +1,90 @@
+package edu.jhu.prim.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scaling benchmark for LongDoubleSort.parallelSortIndexAsc on a pool of
+ * 1...N threads, with the sequential sortIndexAsc as the baseline. Pass e.g.
+ * -p threads=1,2,4,8,16 to match the machine.
+ *
+ * Since sorting mutates its input, each call sorts a fresh copy. The copy()
+ * benchmark gives the baseline cost to subtract.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LongDoubleParallelSortBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int n;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private long[] keys;
+    private double[] values;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        keys = new long[n];
+        values = new double[n];
+        for (int i=0; i<n; i++) {
+            // Feature indices: non-negative and sparse.
+            keys[i] = rand.nextInt(Integer.MAX_VALUE);
+            values[i] = rand.nextDouble();
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long[] copy() {
+        long[] k = Arrays.copyOf(keys, n);
+        double[] v = Arrays.copyOf(values, n);
+        return v.length == 0 ? null : k;
+    }
+
+    @Benchmark
+    public long[] sortIndexAsc() {
+        long[] k = Arrays.copyOf(keys, n);
+        double[] v = Arrays.copyOf(values, n);
+        LongDoubleSort.sortIndexAsc(k, v);
+        return k;
+    }
+
+    @Benchmark
+    public long[] parallelSortIndexAsc() {
+        long[] k = Arrays.copyOf(keys, n);
+        double[] v = Arrays.copyOf(values, n);
+        LongDoubleSort.parallelSortIndexAsc(k, v, n, pool);
+        return k;
+    }
+
+}
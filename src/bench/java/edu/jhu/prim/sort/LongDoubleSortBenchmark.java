@@ -0,0 +1,127 @@
+package edu.jhu.prim.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for LongDoubleSort.sortIndexAsc on the input orders which made the
+ * old rightmost-pivot quicksort quadratic. Arrays.sort on the keys alone (no
+ * mirrored values) is included as a reference.
+ *
+ * The introsort() and radixSort() benchmarks force one algorithm regardless of
+ * size, for choosing LongDoubleSort.RADIX_SORT_THRESHOLD.
+ *
+ * Since sorting mutates its input, each call sorts a fresh copy. The copy()
+ * benchmark gives the baseline cost to subtract.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongDoubleSortBenchmark {
+
+    public enum InputOrder {
+        SORTED, REVERSED, RANDOM, DUPLICATES;
+
+        public long[] getKeys(int n, Random rand) {
+            long[] keys = new long[n];
+            for (int i=0; i<n; i++) {
+                switch (this) {
+                case SORTED:
+                    keys[i] = i;
+                    break;
+                case REVERSED:
+                    keys[i] = n - i;
+                    break;
+                case RANDOM:
+                    keys[i] = rand.nextLong();
+                    break;
+                case DUPLICATES:
+                    keys[i] = rand.nextInt(8);
+                    break;
+                default:
+                    throw new IllegalStateException("Unhandled order: " + this);
+                }
+            }
+            return keys;
+        }
+    }
+
+    @Param({"1000", "1000000"})
+    public int n;
+
+    @Param({"SORTED", "REVERSED", "RANDOM", "DUPLICATES"})
+    public InputOrder order;
+
+    private long[] keys;
+    private double[] values;
+    private RadixSort.Scratch scratch = new RadixSort.Scratch();
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        keys = order.getKeys(n, rand);
+        values = new double[n];
+        for (int i=0; i<n; i++) {
+            values[i] = rand.nextDouble();
+        }
+    }
+
+    @Benchmark
+    public long[] copy() {
+        long[] k = Arrays.copyOf(keys, n);
+        double[] v = Arrays.copyOf(values, n);
+        return v.length == 0 ? null : k;
+    }
+
+    @Benchmark
+    public long[] sortIndexAsc() {
+        long[] k = Arrays.copyOf(keys, n);
+        double[] v = Arrays.copyOf(values, n);
+        LongDoubleSort.sortIndexAsc(k, v);
+        return k;
+    }
+
+    @Benchmark
+    public long[] introsort() {
+        long[] k = Arrays.copyOf(keys, n);
+        double[] v = Arrays.copyOf(values, n);
+        LongDoubleSort.introsortIndex(k, v, 0, n - 1, true, 2 * 31, null);
+        return k;
+    }
+
+    @Benchmark
+    public long[] radixSort() {
+        long[] k = Arrays.copyOf(keys, n);
+        double[] v = Arrays.copyOf(values, n);
+        int[] perm = RadixSort.sortAsc(k, 0, n, scratch);
+        RadixSort.permute(v, 0, n, perm, scratch);
+        return k;
+    }
+
+    @Benchmark
+    public long[] arraysSortKeysOnly() {
+        long[] k = Arrays.copyOf(keys, n);
+        double[] v = Arrays.copyOf(values, n);
+        Arrays.sort(k);
+        return v.length == 0 ? null : k;
+    }
+
+}
@@ -0,0 +1,99 @@
+package edu.jhu.prim.util;
+
+import java.util.Random;
+
+/**
+ * Key distributions for the JMH benchmarks.
+ *
+ * @author mgormley
+ */
+public enum KeyDistribution {
+
+    /** The keys 0, 1, 2, ..., n-1. */
+    SEQUENTIAL,
+    /** Uniformly random non-negative keys. */
+    RANDOM,
+    /**
+     * Feature keys packed as (templateId << 32) | featureId for a small number of
+     * templates, which is how our feature extractors build their keys.
+     */
+    PACKED,
+    /**
+     * The keys 0, s, 2s, ..., (n-1)s for a power of two stride s, as arise from
+     * indices which reserve low bits for other fields.
+     */
+    STRIDED;
+
+    /** The number of distinct templates used by PACKED. */
+    public static final int NUM_TEMPLATES = 16;
+
+    /** Log base 2 of the stride used by STRIDED. */
+    public static final int STRIDE_SHIFT = 10;
+
+    /** Gets n long keys from this distribution. */
+    public long[] getLongKeys(int n, Random rand) {
+        long[] keys = new long[n];
+        for (int i=0; i<n; i++) {
+            switch (this) {
+            case SEQUENTIAL:
+                keys[i] = i;
+                break;
+            case RANDOM:
+                keys[i] = rand.nextLong() & Long.MAX_VALUE;
+                break;
+            case PACKED:
+                keys[i] = ((long) (i % NUM_TEMPLATES) << 32) | (i / NUM_TEMPLATES);
+                break;
+            case STRIDED:
+                keys[i] = (long) i << STRIDE_SHIFT;
+                break;
+            default:
+                throw new IllegalStateException("Unhandled distribution: " + this);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Gets n int keys from this distribution. PACKED keys use the top 8 bits
+     * for the template.
+     */
+    public int[] getIntKeys(int n, Random rand) {
+        int[] keys = new int[n];
+        for (int i=0; i<n; i++) {
+            switch (this) {
+            case SEQUENTIAL:
+                keys[i] = i;
+                break;
+            case RANDOM:
+                keys[i] = rand.nextInt() & Integer.MAX_VALUE;
+                break;
+            case PACKED:
+                keys[i] = ((i % NUM_TEMPLATES) << 24) | (i / NUM_TEMPLATES);
+                break;
+            case STRIDED:
+                keys[i] = i << STRIDE_SHIFT;
+                break;
+            default:
+                throw new IllegalStateException("Unhandled distribution: " + this);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Gets n long indices from this distribution which are suitable for a
+     * sparse vector, i.e. they are non-negative and RANDOM indices are drawn
+     * from [0, maxIndex).
+     */
+    public long[] getVectorIndices(int n, long maxIndex, Random rand) {
+        long[] keys = getLongKeys(n, rand);
+        if (this == RANDOM) {
+            for (int i=0; i<n; i++) {
+                keys[i] = keys[i] % maxIndex;
+            }
+        }
+        return keys;
+    }
+
+}
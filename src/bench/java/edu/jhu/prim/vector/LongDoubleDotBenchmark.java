@@ -0,0 +1,110 @@
+package edu.jhu.prim.vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for sparse-sparse dot products between a small vector (e.g. a
+ * document) and a big one (e.g. a model row) across size ratios. The big
+ * vector is stored as a sorted, unsorted (compacted) or hash vector, and
+ * linearMerge() is the full two-sided walk that sorted vectors used before
+ * the size-adaptive dot.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongDoubleDotBenchmark {
+
+    @Param({"2000000"})
+    public int bigSize;
+
+    @Param({"20", "2000", "200000", "2000000"})
+    public int smallSize;
+
+    private LongDoubleSortedVector small;
+    private LongDoubleSortedVector bigSorted;
+    private LongDoubleUnsortedVector bigUnsorted;
+    private LongDoubleHashVector bigHash;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        long range = 4L * bigSize;
+        small = getSorted(rand, smallSize, range);
+        bigSorted = getSorted(rand, bigSize, range);
+        bigUnsorted = new LongDoubleUnsortedVector(bigSorted.getIndices(), bigSorted.getValues());
+        bigUnsorted.compact();
+        bigHash = new LongDoubleHashVector(bigSorted.getIndices(), bigSorted.getValues());
+    }
+
+    private static LongDoubleSortedVector getSorted(Random rand, int size, long range) {
+        long[] idx = new long[size];
+        double[] vals = new double[size];
+        long stride = range / size;
+        long cur = 0;
+        for (int i = 0; i < size; i++) {
+            cur += 1 + (long) (rand.nextDouble() * (2 * stride - 1));
+            idx[i] = cur;
+            vals[i] = rand.nextDouble();
+        }
+        return new LongDoubleSortedVector(idx, vals);
+    }
+
+    @Benchmark
+    public double sorted() {
+        return small.dot(bigSorted);
+    }
+
+    @Benchmark
+    public double unsorted() {
+        return small.dot(bigUnsorted);
+    }
+
+    @Benchmark
+    public double hash() {
+        return small.dot(bigHash);
+    }
+
+    @Benchmark
+    public double linearMerge() {
+        long[] aIdx = small.getIndices();
+        double[] aVals = small.getValues();
+        long[] bIdx = bigSorted.getIndices();
+        double[] bVals = bigSorted.getValues();
+        int aUsed = small.getUsed();
+        int bUsed = bigSorted.getUsed();
+        double dot = 0;
+        int oc = 0;
+        for (int c = 0; c < aUsed; c++) {
+            while (oc < bUsed) {
+                if (bIdx[oc] < aIdx[c]) {
+                    oc++;
+                } else if (aIdx[c] == bIdx[oc]) {
+                    dot += aVals[c] * bVals[oc];
+                    break;
+                } else {
+                    break;
+                }
+            }
+        }
+        return dot;
+    }
+
+}
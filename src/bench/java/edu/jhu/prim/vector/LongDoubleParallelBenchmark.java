@@ -0,0 +1,112 @@
+package edu.jhu.prim.vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhu.prim.util.Lambda.FnLongDoubleToDouble;
+
+/**
+ * Compares the sequential apply/getSum/getL2Norm against their fork-join
+ * counterparts on the AbstractLongDoubleVector implementations that support
+ * range splitting. Run with different common pool sizes via
+ * -Djava.util.concurrent.ForkJoinPool.common.parallelism=N.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongDoubleParallelBenchmark {
+
+    public enum VectorType {
+        DENSE, HASH, SORTED;
+
+        public AbstractLongDoubleVector getVector(long[] indices, double[] values) {
+            switch (this) {
+            case DENSE:
+                return new LongDoubleDenseVector(values);
+            case HASH:
+                return new LongDoubleHashVector(indices, values);
+            case SORTED:
+                return new LongDoubleSortedVector(indices, values);
+            default:
+                throw new IllegalStateException("Unhandled type: " + this);
+            }
+        }
+    }
+
+    @Param({"100000", "10000000"})
+    public int size;
+
+    @Param({"DENSE", "HASH", "SORTED"})
+    public VectorType type;
+
+    private AbstractLongDoubleVector x;
+    /** Negates each entry so that repeated calls don't drive the values to zero. */
+    private FnLongDoubleToDouble negate = new FnLongDoubleToDouble() {
+        @Override
+        public double call(long idx, double val) {
+            return -val;
+        }
+    };
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        long[] indices = new long[size];
+        double[] values = new double[size];
+        for (int i=0; i<size; i++) {
+            indices[i] = i;
+            values[i] = rand.nextDouble() - 0.5;
+        }
+        x = type.getVector(indices, values);
+    }
+
+    @Benchmark
+    public AbstractLongDoubleVector apply() {
+        x.apply(negate);
+        return x;
+    }
+
+    @Benchmark
+    public AbstractLongDoubleVector parallelApply() {
+        x.parallelApply(negate);
+        return x;
+    }
+
+    @Benchmark
+    public double getSum() {
+        return x.getSum();
+    }
+
+    @Benchmark
+    public double parallelGetSum() {
+        return x.parallelGetSum();
+    }
+
+    @Benchmark
+    public double getL2Norm() {
+        return x.getL2Norm();
+    }
+
+    @Benchmark
+    public double parallelGetL2Norm() {
+        return x.parallelGetL2Norm();
+    }
+
+}
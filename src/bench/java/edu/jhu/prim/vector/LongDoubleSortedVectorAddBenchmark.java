@@ -0,0 +1,143 @@
+package edu.jhu.prim.vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for adding sparse updates into a LongDoubleSortedVector used as
+ * an accumulator. With the "subset" support each update only touches indices
+ * already in the accumulator; with "new" about half of the indices in each
+ * update are new. mergeCopy() is the merge into freshly allocated arrays
+ * which add() used before merging in place, regardless of capacity.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongDoubleSortedVectorAddBenchmark {
+
+    @Param({"100000"})
+    public int accumSize;
+
+    @Param({"100", "10000"})
+    public int updateSize;
+
+    @Param({"subset", "new"})
+    public String support;
+
+    /** Whether the accumulator's arrays are exactly full, or have room to grow. */
+    @Param({"exact", "slack"})
+    public String capacity;
+
+    private long[] accumIdx;
+    private LongDoubleSortedVector update;
+    private LongDoubleSortedVector accum;
+    // The result of mergeCopy(), kept reachable like the arrays of accum.
+    private long[] mergedIdx;
+    private double[] mergedVals;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        // The accumulator has the even indices.
+        accumIdx = new long[accumSize];
+        for (int i = 0; i < accumSize; i++) {
+            accumIdx[i] = 2L * i;
+        }
+        long[] idx = new long[updateSize];
+        double[] vals = new double[updateSize];
+        long stride = 2L * accumSize / updateSize;
+        for (int k = 0; k < updateSize; k++) {
+            long i = k * stride + 2 * rand.nextInt((int) (stride / 2));
+            if (support.equals("new") && rand.nextBoolean()) {
+                i++;
+            }
+            idx[k] = i;
+            vals[k] = rand.nextDouble();
+        }
+        update = new LongDoubleSortedVector(idx, vals);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        // Start each call from the same accumulator, so that new indices do
+        // not pile up across calls.
+        if (capacity.equals("exact")) {
+            accum = new LongDoubleSortedVector(accumIdx.clone(), new double[accumSize]);
+        } else {
+            accum = new LongDoubleSortedVector(2 * accumSize);
+            for (int i = 0; i < accumSize; i++) {
+                accum.set(accumIdx[i], 0);
+            }
+        }
+    }
+
+    @Benchmark
+    public LongDoubleSortedVector add() {
+        accum.add(update);
+        return accum;
+    }
+
+    @Benchmark
+    public double[] mergeCopy() {
+        long[] aIdx = accum.getInternalIndices();
+        double[] aVals = accum.getInternalValues();
+        long[] xIdx = update.getInternalIndices();
+        double[] xVals = update.getInternalValues();
+        int aUsed = accum.getUsed();
+        int xUsed = update.getUsed();
+        long[] newIndices = new long[aUsed + xUsed];
+        double[] newValues = new double[aUsed + xUsed];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < aUsed && j < xUsed) {
+            long e1 = aIdx[i];
+            long e2 = xIdx[j];
+            if (e1 == e2) {
+                newIndices[k] = e1;
+                newValues[k] = aVals[i] + xVals[j];
+                i++;
+                j++;
+            } else if (e1 < e2) {
+                newIndices[k] = e1;
+                newValues[k] = aVals[i];
+                i++;
+            } else {
+                newIndices[k] = e2;
+                newValues[k] = xVals[j];
+                j++;
+            }
+            k++;
+        }
+        for (; i < aUsed; i++, k++) {
+            newIndices[k] = aIdx[i];
+            newValues[k] = aVals[i];
+        }
+        for (; j < xUsed; j++, k++) {
+            newIndices[k] = xIdx[j];
+            newValues[k] = xVals[j];
+        }
+        mergedIdx = newIndices;
+        mergedVals = newValues;
+        return newValues;
+    }
+
+}
@@ -0,0 +1,74 @@
+package edu.jhu.prim.vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for a workload which alternates a batch of adds to a
+ * LongDoubleUnsortedVector with a compaction and a read. The adds go to
+ * existing indices, so the size of the vector stays fixed. fullSort()
+ * forgets the sorted prefix before compacting, so that the whole vector is
+ * re-sorted as it was before compaction was incremental.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongDoubleUnsortedVectorBenchmark {
+
+    @Param({"100000"})
+    public int n;
+
+    @Param({"1", "16", "1000"})
+    public int batch;
+
+    private LongDoubleUnsortedVector v;
+    private Random rand;
+
+    @Setup
+    public void setup() {
+        rand = new Random(9001);
+        v = new LongDoubleUnsortedVector(n);
+        for (int i = 0; i < n; i++) {
+            v.add(2 * i, 1 + rand.nextDouble());
+        }
+    }
+
+    private double addBatchThenGet(boolean fullSort) {
+        for (int k = 0; k < batch; k++) {
+            v.add(2 * rand.nextInt(n), 1 + rand.nextDouble());
+        }
+        if (fullSort) {
+            v.sortedTop = 0;
+        }
+        v.compact();
+        return v.get(2 * rand.nextInt(n));
+    }
+
+    @Benchmark
+    public double incremental() {
+        return addBatchThenGet(false);
+    }
+
+    @Benchmark
+    public double fullSort() {
+        return addBatchThenGet(true);
+    }
+
+}
@@ -0,0 +1,119 @@
+package edu.jhu.prim.vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhu.prim.util.KeyDistribution;
+import edu.jhu.prim.util.Lambda.FnLongDoubleToDouble;
+
+/**
+ * Benchmarks for dot/add/apply on the sparse LongDoubleVector
+ * implementations. Both operands are of the same type and share half of their
+ * non-zero indices.
+ *
+ * Since add() mutates its receiver, it is measured on a fresh copy. The copy()
+ * benchmark gives the baseline cost to subtract.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongDoubleVectorBenchmark {
+
+    public enum VectorType {
+        SORTED, UNSORTED, HASH;
+
+        public LongDoubleVector getVector(long[] indices, double[] values) {
+            switch (this) {
+            case SORTED:
+                // Build through a hash vector to avoid quadratic inserts.
+                return new LongDoubleSortedVector(new LongDoubleHashVector(indices, values));
+            case UNSORTED:
+                LongDoubleUnsortedVector v = new LongDoubleUnsortedVector();
+                for (int i=0; i<indices.length; i++) {
+                    v.add(indices[i], values[i]);
+                }
+                return v;
+            case HASH:
+                return new LongDoubleHashVector(indices, values);
+            default:
+                throw new IllegalStateException("Unhandled type: " + this);
+            }
+        }
+    }
+
+    @Param({"100", "10000", "1000000"})
+    public int nnz;
+
+    @Param({"SORTED", "UNSORTED", "HASH"})
+    public VectorType type;
+
+    @Param({"SEQUENTIAL", "RANDOM", "PACKED"})
+    public KeyDistribution keyDist;
+
+    private LongDoubleVector x;
+    private LongDoubleVector y;
+    /** Negates each entry so that repeated calls don't drive the values to zero. */
+    private FnLongDoubleToDouble negate = new FnLongDoubleToDouble() {
+        @Override
+        public double call(long idx, double val) {
+            return -val;
+        }
+    };
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        long[] all = keyDist.getVectorIndices(nnz + nnz / 2, 10L * nnz, rand);
+        long[] xIdx = new long[nnz];
+        long[] yIdx = new long[nnz];
+        System.arraycopy(all, 0, xIdx, 0, nnz);
+        System.arraycopy(all, nnz / 2, yIdx, 0, nnz);
+        double[] vals = new double[nnz];
+        for (int i=0; i<nnz; i++) {
+            vals[i] = rand.nextDouble() + 1;
+        }
+        x = type.getVector(xIdx, vals);
+        y = type.getVector(yIdx, vals);
+    }
+
+    @Benchmark
+    public double dot() {
+        return x.dot(y);
+    }
+
+    @Benchmark
+    public LongDoubleVector copy() {
+        return x.copy();
+    }
+
+    @Benchmark
+    public LongDoubleVector add() {
+        LongDoubleVector z = x.copy();
+        z.add(y);
+        return z;
+    }
+
+    @Benchmark
+    public LongDoubleVector apply() {
+        x.apply(negate);
+        return x;
+    }
+
+}
@@ -0,0 +1,179 @@
+package edu.jhu.prim.vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhu.prim.Primitives.MutableDouble;
+import edu.jhu.prim.util.Lambda;
+import edu.jhu.prim.util.Lambda.FnLongDoubleToDouble;
+import edu.jhu.prim.util.Lambda.FnLongDoubleToVoid;
+import edu.jhu.prim.vector.LongDoubleHashVector.SparseBinaryOpApplier;
+
+/**
+ * Benchmark matrix for LongDoubleVectorKernels over every pair of vector
+ * representations. Each kernel benchmark has a *Generic twin which goes
+ * through iterate/apply callbacks and per-entry get/set, as the vectors did
+ * before the kernels.
+ *
+ * Since add and product mutate the vector, each call works on a fresh copy.
+ * The copy() benchmark gives the baseline cost to subtract.
+ *
+ * @author mgormley
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongDoubleVectorKernelsBenchmark {
+
+    public enum VectorType {
+        DENSE, SLICE, SORTED, UNSORTED, HASH;
+
+        public LongDoubleVector getVector(long[] idx, double[] vals, int dim) {
+            switch (this) {
+            case DENSE:
+            case SLICE: {
+                double[] dense = new double[dim];
+                for (int k=0; k<idx.length; k++) {
+                    dense[(int) idx[k]] = vals[k];
+                }
+                return (this == DENSE) ? new LongDoubleDenseVector(dense) : new LongDoubleVectorSlice(dense, 0, dim);
+            }
+            case SORTED:
+                return new LongDoubleSortedVector(idx.clone(), vals.clone());
+            case UNSORTED: {
+                LongDoubleUnsortedVector v = new LongDoubleUnsortedVector(idx.clone(), vals.clone());
+                v.compact();
+                return v;
+            }
+            case HASH:
+                return new LongDoubleHashVector(idx, vals);
+            default:
+                throw new IllegalStateException("Unhandled type: " + this);
+            }
+        }
+    }
+
+    @Param({"100000"})
+    public int dim;
+
+    @Param({"10000"})
+    public int nnz;
+
+    @Param({"DENSE", "SLICE", "SORTED", "UNSORTED", "HASH"})
+    public VectorType vecType;
+
+    @Param({"DENSE", "SLICE", "SORTED", "UNSORTED", "HASH"})
+    public VectorType otherType;
+
+    private LongDoubleVector vec;
+    private LongDoubleVector other;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(9001);
+        vec = getVector(rand, vecType);
+        other = getVector(rand, otherType);
+    }
+
+    private LongDoubleVector getVector(Random rand, VectorType type) {
+        // Sorted, distinct indices.
+        boolean[] used = new boolean[dim];
+        for (int k=0; k<nnz; k++) {
+            used[rand.nextInt(dim)] = true;
+        }
+        int n = 0;
+        for (boolean b : used) {
+            n += b ? 1 : 0;
+        }
+        long[] idx = new long[n];
+        double[] vals = new double[n];
+        for (int i=0, k=0; i<dim; i++) {
+            if (used[i]) {
+                idx[k] = i;
+                vals[k] = rand.nextDouble();
+                k++;
+            }
+        }
+        return type.getVector(idx, vals, dim);
+    }
+
+    private LongDoubleVector copy() {
+        if (vec instanceof LongDoubleVectorSlice) {
+            // A copy of a slice is dense, so rewrap it.
+            double[] elements = vec.toNativeArray();
+            return new LongDoubleVectorSlice(elements, 0, elements.length);
+        }
+        return vec.copy();
+    }
+
+    @Benchmark
+    public LongDoubleVector copyBaseline() {
+        return copy();
+    }
+
+    @Benchmark
+    public LongDoubleVector add() {
+        LongDoubleVector v = copy();
+        v.add(other);
+        return v;
+    }
+
+    @Benchmark
+    public LongDoubleVector addGeneric() {
+        LongDoubleVector v = copy();
+        other.iterate(new SparseBinaryOpApplier(v, new Lambda.DoubleAdd()));
+        return v;
+    }
+
+    @Benchmark
+    public LongDoubleVector product() {
+        LongDoubleVector v = copy();
+        v.product(other);
+        return v;
+    }
+
+    @Benchmark
+    public LongDoubleVector productGeneric() {
+        LongDoubleVector v = copy();
+        v.apply(new FnLongDoubleToDouble() {
+            @Override
+            public double call(long idx, double val) {
+                return val * other.get(idx);
+            }
+        });
+        return v;
+    }
+
+    @Benchmark
+    public double dot() {
+        return LongDoubleVectorKernels.dot(vec, other);
+    }
+
+    @Benchmark
+    public double dotGeneric() {
+        final MutableDouble sum = new MutableDouble(0);
+        vec.iterate(new FnLongDoubleToVoid() {
+            @Override
+            public void call(long idx, double val) {
+                sum.v += val * other.get(idx);
+            }
+        });
+        return sum.v;
+    }
+
+}
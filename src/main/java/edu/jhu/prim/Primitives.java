@@ -19,6 +19,10 @@ public class Primitives {
     
     public static int LONG_NUM_BITS = 64;
     public static int INT_NUM_BITS = 32;
+    public static final int LONG_NUM_BYTES = 8;
+    public static final int INT_NUM_BYTES = 4;
+    public static final int DOUBLE_NUM_BYTES = 8;
+    public static final int FLOAT_NUM_BYTES = 4;
     public static final double DEFAULT_DOUBLE_DELTA = 1e-13;
     public static final float DEFAULT_FLOAT_DELTA = 1e-13f;
     
@@ -45,14 +49,29 @@ public class Primitives {
     /* ------------------- Algorithms ---------------------- */
         
     /**
-     * Compute the hash value of a key
+     * Compute the hash value of a key. Every bit of the key affects the low
+     * bits of the hash, so keys which differ only in their high 32 bits (e.g.
+     * <code>(templateId << 32) | featureId</code>) do not collide.
      * @param key key to hash
      * @return hash value of the key
      */
     public static int hashOfLong(final long key) {
-        // Gets the exclusive-or of the hash values of the first and second 32
-        // bits of the long.
-        return (int) (hashOfInt((int)key) ^ hashOfInt((int) (key >>> 32)));
+        return (int) fmix64(key);
+    }
+
+    /**
+     * The 64-bit finalizer of MurmurHash3, which avalanches the bits of the
+     * key: each input bit flips each output bit with probability close to 1/2.
+     * @param key key to mix
+     * @return mixed key
+     */
+    public static long fmix64(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
     }
     
     /**
@@ -80,7 +99,46 @@ public class Primitives {
     public static int hashOfFloat(final float key) {
         return hashOfInt(Float.floatToIntBits(key));
     }
-    
+
+    /* ------------------- Bits ---------------------- */
+
+    /**
+     * Gets the bits of a value widened to a long, so that a value of any
+     * primitive type can be stored in a long slot (e.g. of an AtomicLongArray).
+     * The <code>*FromBits</code> methods are the inverses.
+     */
+    public static long toBits(double val) {
+        return Double.doubleToRawLongBits(val);
+    }
+
+    public static long toBits(float val) {
+        return Float.floatToRawIntBits(val);
+    }
+
+    public static long toBits(long val) {
+        return val;
+    }
+
+    public static long toBits(int val) {
+        return val;
+    }
+
+    public static double doubleFromBits(long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+
+    public static float floatFromBits(long bits) {
+        return Float.intBitsToFloat((int) bits);
+    }
+
+    public static long longFromBits(long bits) {
+        return bits;
+    }
+
+    public static int intFromBits(long bits) {
+        return (int) bits;
+    }
+
     /* ------------------- Tests ---------------------- */
     
     public static boolean isZero(int val) {
@@ -0,0 +1,27 @@
+package edu.jhu.prim.map;
+
+import edu.jhu.prim.iter.IntCursor;
+
+/**
+ * A cursor over the entries of a map from ints to objects, which allocates
+ * nothing per entry.
+ * 
+ * @author mgormley
+ * @see LongDoubleCursor
+ */
+public interface IntObjectCursor<T> extends IntCursor {
+
+    /**
+     * Gets the value of the current entry.
+     * @throws java.util.NoSuchElementException if the cursor is not at an entry
+     */
+    T value();
+
+    /**
+     * Sets the value of the current entry. This is not a structural
+     * modification, so the cursor remains valid.
+     * @throws java.util.NoSuchElementException if the cursor is not at an entry
+     */
+    void setValue(T value);
+
+}
@@ -87,6 +87,9 @@ public class IntObjectHashMap<T> implements Serializable {
     /** Current size of the map. */
     private int size;
 
+    /** Number of entries marked as removed in the states table. */
+    private int removed;
+
     /** Bit mask for hash values. */
     private int mask;
 
@@ -129,6 +132,7 @@ public class IntObjectHashMap<T> implements Serializable {
         states = new byte[capacity];
         this.missingEntries = missingEntries;
         size = 0;
+        removed = 0;
         mask   = capacity - 1;
         count = 0;
     }
@@ -147,6 +151,7 @@ public class IntObjectHashMap<T> implements Serializable {
         System.arraycopy(source.states, 0, states, 0, length);
         missingEntries = (T) source.missingEntries;
         size  = source.size;
+        removed = source.removed;
         mask  = source.mask;
         count = source.count;
     }
@@ -248,6 +253,17 @@ public class IntObjectHashMap<T> implements Serializable {
         return new Iterator();
     }
 
+    /**
+     * Get a cursor over map elements, which allocates nothing per element.
+     * <p>The cursor is fail-fast: it throws a
+     * <code>ConcurrentModificationException</code> when it detects the map
+     * has been structurally modified other than by {@link IntObjectCursor#setValue(Object)}.</p>
+     * @return cursor over the map elements
+     */
+    public IntObjectCursor<T> cursor() {
+        return new MapCursor();
+    }
+
     /**
      * Perturb the hash for starting probing.
      * @param hash initial hash
@@ -388,6 +404,7 @@ public class IntObjectHashMap<T> implements Serializable {
         Arrays.fill(values, 0);
         Arrays.fill(states, FREE);
         size = 0;
+        removed = 0;
         mask   = capacity - 1;
         count = 0;
     }
@@ -414,6 +431,7 @@ public class IntObjectHashMap<T> implements Serializable {
         final Object previous = values[index];
         values[index] = missingEntries;
         --size;
+        ++removed;
         ++count;
         return (T)previous;
     }
@@ -432,6 +450,8 @@ public class IntObjectHashMap<T> implements Serializable {
             index = changeIndexSign(index);
             previous = values[index];
             newMapping = false;
+        } else if (states[index] == REMOVED) {
+            --removed;
         }
         keys[index]   = key;
         states[index] = FULL;
@@ -448,7 +468,9 @@ public class IntObjectHashMap<T> implements Serializable {
     }
 
     /**
-     * Grow the tables.
+     * Grow the tables. If at most half of the used slots hold live entries,
+     * the rest being removed entries, the tables are instead rehashed in
+     * place at the same length, which discards the removed entries.
      */
     private void growTable() {
 
@@ -457,7 +479,8 @@ public class IntObjectHashMap<T> implements Serializable {
         final Object[] oldValues = values;
         final byte[] oldStates   = states;
 
-        final int newLength = RESIZE_MULTIPLIER * oldLength;
+        final int newLength = (size > oldLength * LOAD_FACTOR / 2) ?
+                RESIZE_MULTIPLIER * oldLength : oldLength;
         final int[] newKeys = new int[newLength];
         final Object[] newValues = new Object[newLength];
         final byte[] newStates = new byte[newLength];
@@ -476,15 +499,17 @@ public class IntObjectHashMap<T> implements Serializable {
         keys   = newKeys;
         values = newValues;
         states = newStates;
+        removed = 0;
 
     }
 
     /**
-     * Check if tables should grow due to increased size.
+     * Check if tables should grow due to increased size. Removed entries
+     * count towards the load, since probes must step over them.
      * @return true if  tables should grow
      */
     private boolean shouldGrowTable() {
-        return size > (mask + 1) * LOAD_FACTOR;
+        return size + removed > (mask + 1) * LOAD_FACTOR;
     }
 
     /**
@@ -601,6 +626,55 @@ public class IntObjectHashMap<T> implements Serializable {
 
     }
 
+    /** Cursor class for the map. */
+    private class MapCursor implements IntObjectCursor<T> {
+
+        /** Reference modification count. */
+        private final int referenceCount = count;
+
+        /** Index of current element, or -1 before the first and states.length after the last. */
+        private int current = -1;
+
+        public boolean advance() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            final byte[] states = IntObjectHashMap.this.states;
+            while (current < states.length) {
+                if (++current < states.length && states[current] == FULL) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int key() {
+            checkCurrent();
+            return keys[current];
+        }
+
+        @SuppressWarnings("unchecked")
+        public T value() {
+            checkCurrent();
+            return (T) values[current];
+        }
+
+        public void setValue(T value) {
+            checkCurrent();
+            values[current] = value;
+        }
+
+        private void checkCurrent() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (current < 0 || current >= states.length) {
+                throw new NoSuchElementException();
+            }
+        }
+
+    }
+
     /**
      * Read a serialized object.
      * @param stream input stream
@@ -617,10 +691,9 @@ public class IntObjectHashMap<T> implements Serializable {
     public int[] keys() {
         int[] ks = new int[size()];
         int i=0;
-        Iterator iter = this.iterator();
-        while (iter.hasNext()) {
-            iter.advance();
-            ks[i++] = iter.key();
+        IntObjectCursor<T> cur = this.cursor();
+        while (cur.advance()) {
+            ks[i++] = cur.key();
         }
         return ks;
     }
@@ -0,0 +1,23 @@
+package edu.jhu.prim.map;
+
+/**
+ * Argument checks shared by the batch methods of the maps.
+ * @author mgormley
+ */
+class InternalBatchUtils {
+
+    private InternalBatchUtils() {
+        // private constructor.
+    }
+
+    /**
+     * Checks that a batch has one value (or output position) per key.
+     * @throws IllegalStateException if the lengths differ
+     */
+    static void checkBatchLengths(final int numKeys, final int numVals) {
+        if (numKeys != numVals) {
+            throw new IllegalStateException("keys and vals must be of the same length");
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+package edu.jhu.prim.map;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import edu.jhu.prim.arrays.DoubleArrays;
+import edu.jhu.prim.arrays.LongArrays;
+import edu.jhu.prim.sort.LongDoubleSort;
+import edu.jhu.prim.util.Lambda.FnLongDoubleToDouble;
+import edu.jhu.prim.util.Lambda.FnLongDoubleToVoid;
+
+/**
+ * A primitives map from longs to doubles, stored as a sorted array of indices
+ * and an array of their values like {@link LongDoubleSortedMap}, but with
+ * buffered inserts.
+ * <p>
+ * Inserting a new key into a LongDoubleSortedMap shifts every entry after it,
+ * so building one by inserts in random order takes quadratic time. Here, a
+ * key which is not in the sorted arrays is put in a small hash map instead.
+ * Once the buffer holds more than 1/BUFFER_RATIO as many entries as the
+ * sorted arrays, its entries are sorted and merged in from the tail in a
+ * single pass. Each insert then takes O(log n) amortized time.
+ * </p>
+ * <p>
+ * Lookups search the sorted arrays and then the buffer. Everything which
+ * visits the entries in order of their indices (iterate, apply, iterator,
+ * cursor, getIndices, ...) merges the buffer first, so entries are always
+ * visited in index order. Entries put while a cursor or iterator is open are
+ * buffered, and are not visited by it.
+ * </p>
+ *
+ * @author mgormley
+ */
+public class LongDoubleBufferedSortedMap extends LongDoubleSortedMap {
+
+    private static final long serialVersionUID = 1L;
+    private static final double ZERO = (double) 0;
+
+    /**
+     * The buffer is merged once it holds more than 1/BUFFER_RATIO times the
+     * number of entries in the sorted arrays.
+     */
+    public static final int BUFFER_RATIO = 8;
+
+    /** The number of buffered entries which is always allowed before a merge. */
+    private static final int MIN_BUFFER_SIZE = 64;
+
+    /** The entries whose keys are not in the sorted arrays. */
+    private final LongDoubleLinearHashMap buffer;
+
+    public LongDoubleBufferedSortedMap() {
+        this(0);
+    }
+
+    public LongDoubleBufferedSortedMap(int initialSize) {
+        super(initialSize);
+        this.buffer = new LongDoubleLinearHashMap(MIN_BUFFER_SIZE, ZERO);
+    }
+
+    public LongDoubleBufferedSortedMap(long[] index, double[] data) {
+        super(index, data);
+        this.buffer = new LongDoubleLinearHashMap(MIN_BUFFER_SIZE, ZERO);
+    }
+
+    /** Copy constructor. */
+    public LongDoubleBufferedSortedMap(LongDoubleSortedMap other) {
+        super(other);
+        this.buffer = new LongDoubleLinearHashMap(MIN_BUFFER_SIZE, ZERO);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        buffer.clear();
+    }
+
+    @Override
+    public boolean contains(long idx) {
+        return Arrays.binarySearch(indices, 0, used, idx) >= 0 || buffer.contains(idx);
+    }
+
+    @Override
+    public double get(long idx) {
+        int i = Arrays.binarySearch(indices, 0, used, idx);
+        if (i >= 0) {
+            return values[i];
+        }
+        if (!buffer.contains(idx)) {
+            throw new IllegalArgumentException("This map does not contain the key: " + idx);
+        }
+        return buffer.get(idx);
+    }
+
+    @Override
+    public double getWithDefault(long idx, double defaultVal) {
+        int i = Arrays.binarySearch(indices, 0, used, idx);
+        if (i >= 0) {
+            return values[i];
+        }
+        return buffer.contains(idx) ? buffer.get(idx) : defaultVal;
+    }
+
+    @Override
+    public void remove(long idx) {
+        if (buffer.contains(idx)) {
+            buffer.remove(idx);
+        } else {
+            super.remove(idx);
+        }
+    }
+
+    @Override
+    public double put(long idx, double val) {
+        int i = Arrays.binarySearch(indices, 0, used, idx);
+        if (i >= 0) {
+            double old = values[i];
+            values[i] = val;
+            return old;
+        }
+        double old = buffer.put(idx, val);
+        flushIfFull();
+        return old;
+    }
+
+    @Override
+    public void add(long idx, double val) {
+        int i = Arrays.binarySearch(indices, 0, used, idx);
+        if (i >= 0) {
+            values[i] += val;
+            return;
+        }
+        buffer.add(idx, val);
+        flushIfFull();
+    }
+
+    private void flushIfFull() {
+        if (buffer.size() > Math.max(MIN_BUFFER_SIZE, used / BUFFER_RATIO)) {
+            flush();
+        }
+    }
+
+    /**
+     * Merges the buffered entries into the sorted arrays. This is done
+     * automatically as needed, but may be called ahead of a phase with many
+     * lookups so that they only search the sorted arrays.
+     */
+    public void flush() {
+        int n = buffer.size();
+        if (n == 0) {
+            return;
+        }
+        long[] bufIndices = buffer.getIndices();
+        double[] bufValues = buffer.getValues();
+        buffer.clear();
+        LongDoubleSort.sortIndexAsc(bufIndices, bufValues);
+
+        int newUsed = used + n;
+        if (newUsed > indices.length || newUsed > values.length) {
+            int capacity = Math.max(newUsed, used + used / 2);
+            indices = LongArrays.copyOf(indices, capacity);
+            values = DoubleArrays.copyOf(values, capacity);
+        }
+        // Merge from the tail. No buffered key is in the sorted arrays, so
+        // each buffered entry goes just after the sorted entries below it.
+        int i = used - 1;
+        int k = newUsed - 1;
+        for (int j = n - 1; j >= 0; j--, k--) {
+            long idx = bufIndices[j];
+            while (i >= 0 && indices[i] > idx) {
+                indices[k] = indices[i];
+                values[k] = values[i];
+                i--;
+                k--;
+            }
+            indices[k] = idx;
+            values[k] = bufValues[j];
+        }
+        used = newUsed;
+    }
+
+    /** Gets the number of buffered entries. */
+    public int getNumBuffered() {
+        return buffer.size();
+    }
+
+    @Override
+    public int size() {
+        return used + buffer.size();
+    }
+
+    /* Methods which visit the sorted arrays. */
+
+    @Override
+    public int getUsed() {
+        flush();
+        return super.getUsed();
+    }
+
+    @Override
+    public void apply(FnLongDoubleToDouble lambda) {
+        flush();
+        super.apply(lambda);
+    }
+
+    @Override
+    public void iterate(FnLongDoubleToVoid lambda) {
+        flush();
+        super.iterate(lambda);
+    }
+
+    @Override
+    public int getNumPositions() {
+        flush();
+        return super.getNumPositions();
+    }
+
+    @Override
+    public Iterator<LongDoubleEntry> iterator() {
+        flush();
+        return super.iterator();
+    }
+
+    @Override
+    public LongDoubleCursor cursor() {
+        flush();
+        return super.cursor();
+    }
+
+    @Override
+    public long[] getIndices() {
+        flush();
+        return super.getIndices();
+    }
+
+    @Override
+    public double[] getValues() {
+        flush();
+        return super.getValues();
+    }
+
+    @Override
+    public long[] getInternalIndices() {
+        flush();
+        return super.getInternalIndices();
+    }
+
+    @Override
+    public double[] getInternalValues() {
+        flush();
+        return super.getInternalValues();
+    }
+
+}
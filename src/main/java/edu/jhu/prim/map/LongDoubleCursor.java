@@ -0,0 +1,33 @@
+package edu.jhu.prim.map;
+
+import edu.jhu.prim.iter.LongCursor;
+
+/**
+ * A cursor over the entries of a map from longs to doubles, which allocates
+ * nothing per entry. The typical usage is:
+ * 
+ * <pre>
+ * LongDoubleCursor cur = map.cursor();
+ * while (cur.advance()) {
+ *     cur.setValue(cur.value() * 2);
+ * }
+ * </pre>
+ * 
+ * @author mgormley
+ */
+public interface LongDoubleCursor extends LongCursor {
+
+    /**
+     * Gets the value of the current entry.
+     * @throws java.util.NoSuchElementException if the cursor is not at an entry
+     */
+    double value();
+
+    /**
+     * Sets the value of the current entry. This is not a structural
+     * modification, so the cursor remains valid.
+     * @throws java.util.NoSuchElementException if the cursor is not at an entry
+     */
+    void setValue(double value);
+
+}
@@ -0,0 +1,736 @@
+package edu.jhu.prim.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import edu.jhu.prim.Primitives;
+import edu.jhu.prim.tuple.Pair;
+import edu.jhu.prim.util.Lambda.FnLongDoubleToDouble;
+import edu.jhu.prim.util.Lambda.FnLongDoubleToVoid;
+import edu.jhu.prim.vector.AbstractLongDoubleVector;
+
+/**
+ * Open addressed map from long to double with linear probing.
+ * <p>
+ * Unlike {@link LongDoubleHashMap}, this map keeps no table of slot states.
+ * A free slot is marked by the key 0 and the (single) entry whose key really
+ * is 0 is stored outside of the table. A lookup walks the keys table one slot
+ * at a time, so the probe sequence stays within a cache line of keys and only
+ * touches the values table on a hit. The keys and values are deliberately not
+ * interleaved in one table: that would halve the keys per cache line, and it
+ * made contains() slower (and get() no faster) in
+ * LongDoubleLinearHashMapBenchmark.
+ * </p>
+ * <p>
+ * Removals use backward-shift deletion: the entries following the removed
+ * one in its probe run are moved back to fill the hole. So there are no
+ * tombstones, and probe runs never get longer from remove/add churn.
+ * </p>
+ * <p>This class is not synchronized. The specialized iterators returned by
+ * {@link #iterator()} are fail-fast: they throw a
+ * <code>ConcurrentModificationException</code> when they detect the map has been
+ * modified during iteration.</p>
+ *
+ * @author mgormley
+ */
+public class LongDoubleLinearHashMap extends AbstractLongDoubleVector implements Serializable, LongDoubleMap {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Load factor for the map. */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /** Default starting size.
+     * <p>This must be a power of two for bit mask to work properly. </p>
+     */
+    protected static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    /** Multiplier for size growth when map fills up.
+     * <p>This must be a power of two for bit mask to work properly. </p>
+     */
+    private static final int RESIZE_MULTIPLIER = 2;
+
+    /** The key which marks a free slot in the keys table. */
+    private static final long FREE_KEY = 0;
+
+    /** Keys table. A slot is free iff its key is FREE_KEY. */
+    protected long[] keys;
+
+    /** Values table. */
+    protected double[] values;
+
+    /** Whether the map contains an entry for FREE_KEY. */
+    protected boolean hasFreeKey;
+
+    /** The value of the entry for FREE_KEY (if present). */
+    protected double freeKeyValue;
+
+    /** Return value for missing entries. */
+    private final double missingEntries;
+
+    /** Current size of the map (including the entry for FREE_KEY). */
+    private int size;
+
+    /** Bit mask for hash values. */
+    private int mask;
+
+    /** Hash function for the keys. */
+    private final LongHashStrategy hashStrategy;
+
+    /** Modifications count. */
+    private transient int count;
+
+    /**
+     * Build an empty map with default size and using NaN for missing entries.
+     */
+    public LongDoubleLinearHashMap() {
+        this(DEFAULT_EXPECTED_SIZE, Primitives.DEFAULT_MISSING_ENTRY_DOUBLE);
+    }
+
+    /* START EXCLUDE ILV 1 */
+
+    /**
+     * Build an empty map with specified size and using NaN for missing entries.
+     * @param expectedSize expected number of elements in the map
+     */
+    public LongDoubleLinearHashMap(final int expectedSize) {
+        this(expectedSize, Primitives.DEFAULT_MISSING_ENTRY_DOUBLE);
+    }
+
+    /* END EXCLUDE 1 */
+
+    /**
+     * Build an empty map with specified size.
+     * @param expectedSize expected number of elements in the map
+     * @param missingEntries value to return when a missing entry is fetched
+     */
+    public LongDoubleLinearHashMap(final int expectedSize, final double missingEntries) {
+        this(expectedSize, missingEntries, LongHashStrategy.Standard.DEFAULT);
+    }
+
+    /**
+     * Build an empty map with specified size and hash function.
+     * @param expectedSize expected number of elements in the map
+     * @param missingEntries value to return when a missing entry is fetched
+     * @param hashStrategy hash function for the keys
+     */
+    public LongDoubleLinearHashMap(final int expectedSize, final double missingEntries, final LongHashStrategy hashStrategy) {
+        final int capacity = computeCapacity(expectedSize);
+        keys   = new long[capacity];
+        values = new double[capacity];
+        this.missingEntries = missingEntries;
+        this.hashStrategy = hashStrategy;
+        hasFreeKey = false;
+        size = 0;
+        mask = capacity - 1;
+        count = 0;
+    }
+
+    /**
+     * Copy constructor.
+     * @param source map to copy
+     */
+    public LongDoubleLinearHashMap(final LongDoubleLinearHashMap source) {
+        keys = Arrays.copyOf(source.keys, source.keys.length);
+        values = Arrays.copyOf(source.values, source.values.length);
+        hasFreeKey = source.hasFreeKey;
+        freeKeyValue = source.freeKeyValue;
+        missingEntries = source.missingEntries;
+        hashStrategy = source.hashStrategy;
+        size  = source.size;
+        mask  = source.mask;
+        count = source.count;
+    }
+
+    /** Builds a map with the given keys and values. */
+    public LongDoubleLinearHashMap(long[] keys, double[] vals) {
+        this(keys.length, Primitives.DEFAULT_MISSING_ENTRY_DOUBLE);
+        if (keys.length != vals.length) {
+            throw new IllegalStateException("keys and vals must be of the same length");
+        }
+        for (int i=0; i<keys.length; i++) {
+            this.put(keys[i], vals[i]);
+        }
+    }
+
+    /**
+     * Compute the capacity needed for a given size.
+     * @param expectedSize expected size of the map
+     * @return capacity to use for the specified size
+     */
+    private static int computeCapacity(final int expectedSize) {
+        if (expectedSize == 0) {
+            // Keep at least one free slot so that probing always terminates.
+            return 2;
+        }
+        final int capacity   = (int) InternalFastMath.ceil(expectedSize / LOAD_FACTOR);
+        final int powerOfTwo = Integer.highestOneBit(capacity);
+        if (powerOfTwo == capacity) {
+            return Math.max(capacity, 2);
+        }
+        return Integer.highestOneBit(capacity) << 1;
+    }
+
+    /**
+     * Get the stored value associated with the given key
+     * @param key key associated with the data
+     * @return data associated with the key
+     */
+    public double get(final long key) {
+        return getWithDefault(key, missingEntries);
+    }
+
+    @Override
+    public double getWithDefault(final long key, final double missingEntries) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : missingEntries;
+        }
+        final int index = findIndex(key, hashOf(key));
+        return index < 0 ? missingEntries : values[index];
+    }
+
+    /**
+     * Check if a value is associated with a key.
+     * @param key key to check
+     * @return true if a value is associated with key
+     */
+    public boolean contains(final long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return findIndex(key, hashOf(key)) >= 0;
+    }
+
+    /**
+     * Finds the slot holding the given (non-free) key.
+     * @param key key to lookup
+     * @param hash hash value of the key
+     * @return index of the key, or -1 if it is not present
+     */
+    private int findIndex(final long key, final int hash) {
+        final long[] keys = this.keys;
+        final int mask = this.mask;
+        int index = hash & mask;
+        while (true) {
+            final long cur = keys[index];
+            if (cur == key) {
+                return index;
+            } else if (cur == FREE_KEY) {
+                return -1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Finds the slot at which a (non-free) key should be inserted.
+     * @param key key to lookup
+     * @param hash hash value of the key
+     * @return index at which key should be inserted, or (-index - 1) if the key is already present at index
+     */
+    private int findInsertionIndex(final long key, final int hash) {
+        final long[] keys = this.keys;
+        final int mask = this.mask;
+        int index = hash & mask;
+        while (true) {
+            final long cur = keys[index];
+            if (cur == FREE_KEY) {
+                return index;
+            } else if (cur == key) {
+                return -index - 1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Get the hash function for the keys.
+     * @return hash function for the keys
+     */
+    public LongHashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * Get the average number of slots examined by a successful lookup, which
+     * is 1 when no key collides with another. This walks the whole table and
+     * is intended for diagnosing poorly distributed keys.
+     * @return average probe length, or 0 if the map is empty
+     */
+    public double getAverageProbeLength() {
+        if (size == 0) {
+            return 0;
+        }
+        // The entry for FREE_KEY is found without probing.
+        long total = hasFreeKey ? 1 : 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                total += ((i - hashOf(keys[i])) & mask) + 1;
+            }
+        }
+        return (double) total / size;
+    }
+
+    /**
+     * Get the number of elements stored in the map.
+     * @return number of elements stored in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    public void remove(final long key) {
+        removeAndGet(key);
+    }
+
+    /**
+     * Remove the value associated with a key.
+     * @param key key to which the value is associated
+     * @return removed value
+     */
+    public double removeAndGet(final long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return missingEntries;
+            }
+            hasFreeKey = false;
+            --size;
+            ++count;
+            return freeKeyValue;
+        }
+        final int index = findIndex(key, hashOf(key));
+        if (index < 0) {
+            return missingEntries;
+        }
+        final double previous = values[index];
+        shiftKeys(index);
+        --size;
+        ++count;
+        return previous;
+    }
+
+    /**
+     * Backward-shift deletion: removes the entry at the given slot by moving
+     * back any following entries in the same probe run which would otherwise
+     * become unreachable.
+     * @param index index of the entry to remove
+     */
+    private void shiftKeys(int index) {
+        final long[] keys = this.keys;
+        final double[] values = this.values;
+        final int mask = this.mask;
+        int last;
+        while (true) {
+            last = index;
+            index = (index + 1) & mask;
+            long cur;
+            while (true) {
+                cur = keys[index];
+                if (cur == FREE_KEY) {
+                    keys[last] = FREE_KEY;
+                    values[last] = 0;
+                    return;
+                }
+                // The entry can fill the hole at last only if its home slot
+                // does not lie cyclically in (last, index].
+                final int home = hashOf(cur) & mask;
+                if (last <= index ? (last >= home || home > index) : (last >= home && home > index)) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[last] = cur;
+            values[last] = values[index];
+        }
+    }
+
+    /** Removes all entries from the hash map. */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        Arrays.fill(values, 0);
+        hasFreeKey = false;
+        size = 0;
+        ++count;
+    }
+
+    public double put(final long key, final double value) {
+        return putAndGet(key, value);
+    }
+
+    /**
+     * Put a value associated with a key in the map.
+     * @param key key to which value is associated
+     * @param value value to put in the map
+     * @return previous value associated with the key
+     */
+    public double putAndGet(final long key, final double value) {
+        if (key == FREE_KEY) {
+            final double previous = hasFreeKey ? freeKeyValue : missingEntries;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                ++size;
+                ++count;
+            }
+            freeKeyValue = value;
+            return previous;
+        }
+        int index = findInsertionIndex(key, hashOf(key));
+        if (index < 0) {
+            index = -index - 1;
+            final double previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        keys[index] = key;
+        values[index] = value;
+        afterInsert();
+        return missingEntries;
+    }
+
+    public void add(final long key, final double value) {
+        addAndGet(key, value);
+    }
+
+    /**
+     * Just like putAndGet, but adds to the previous value instead of replacing
+     * the previous value.
+     */
+    public double addAndGet(final long key, final double value) {
+        if (key == FREE_KEY) {
+            final double previous = hasFreeKey ? freeKeyValue : missingEntries;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                ++size;
+                ++count;
+            }
+            freeKeyValue = previous + value;
+            return previous;
+        }
+        int index = findInsertionIndex(key, hashOf(key));
+        if (index < 0) {
+            index = -index - 1;
+            final double previous = values[index];
+            values[index] = previous + value;
+            return previous;
+        }
+        keys[index] = key;
+        values[index] = missingEntries + value;
+        afterInsert();
+        return missingEntries;
+    }
+
+    /** Updates the size after a new key has been written to the table, growing if needed. */
+    private void afterInsert() {
+        ++size;
+        ++count;
+        if (shouldGrowTable()) {
+            growTable();
+        }
+    }
+
+    /**
+     * Grow the tables.
+     */
+    private void growTable() {
+        final long[] oldKeys = keys;
+        final double[] oldValues = values;
+        final int oldLength = oldKeys.length;
+
+        final int newLength = RESIZE_MULTIPLIER * oldLength;
+        final long[] newKeys = new long[newLength];
+        final double[] newValues = new double[newLength];
+        final int newMask = newLength - 1;
+        for (int i = 0; i < oldLength; ++i) {
+            final long key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int index = hashOf(key) & newMask;
+                while (newKeys[index] != FREE_KEY) {
+                    index = (index + 1) & newMask;
+                }
+                newKeys[index]   = key;
+                newValues[index] = oldValues[i];
+            }
+        }
+
+        mask   = newMask;
+        keys   = newKeys;
+        values = newValues;
+    }
+
+    /**
+     * Check if tables should grow due to increased size.
+     * @return true if  tables should grow
+     */
+    private boolean shouldGrowTable() {
+        return size > (mask + 1) * LOAD_FACTOR;
+    }
+
+    /**
+     * Compute the hash value of a key
+     * @param key key to hash
+     * @return hash value of the key
+     */
+    private int hashOf(final long key) {
+        return hashStrategy.hashOf(key);
+    }
+
+    /**
+     * Get an iterator over map elements.
+     * <p>The specialized iterators returned are fail-fast: they throw a
+     * <code>ConcurrentModificationException</code> when they detect the map
+     * has been modified during iteration.</p>
+     * @return iterator over the map elements
+     */
+    public Iterator<LongDoubleEntry> iterator() {
+        return new MapIterator();
+    }
+
+    /**
+     * Get a cursor over map elements, which allocates nothing per element.
+     * <p>The cursor is fail-fast: it throws a
+     * <code>ConcurrentModificationException</code> when it detects the map
+     * has been structurally modified other than by {@link LongDoubleCursor#setValue(double)}.</p>
+     * @return cursor over the map elements
+     */
+    @Override
+    public LongDoubleCursor cursor() {
+        return new MapCursor();
+    }
+
+    /**
+     * Iterator class for the map. The entry for FREE_KEY (if any) is visited
+     * first, at position -1, followed by the table slots in order.
+     */
+    public class MapIterator implements Iterator<LongDoubleEntry>, LongDoubleEntry {
+
+        /** Reference modification count. */
+        private final int referenceCount;
+
+        /** Position of current element. */
+        private int current;
+
+        /** Position of next element. */
+        private int next;
+
+        /**
+         * Simple constructor.
+         */
+        private MapIterator() {
+            // preserve the modification count of the map to detect concurrent modifications later
+            referenceCount = count;
+            current = -2;
+            next = hasFreeKey ? -1 : nextFull(-1);
+        }
+
+        /** Gets the position of the first full slot after the given one, or -2 if there is none. */
+        private int nextFull(int pos) {
+            while (++pos < keys.length) {
+                if (keys[pos] != FREE_KEY) {
+                    return pos;
+                }
+            }
+            return -2;
+        }
+
+        /**
+         * Check if there is a next element in the map.
+         * @return true if there is a next element
+         */
+        public boolean hasNext() {
+            return next != -2;
+        }
+
+        public LongDoubleEntry next() {
+            advance();
+            return this;
+        }
+
+        public void remove() {
+            throw new RuntimeException("not implemented");
+        }
+
+        /**
+         * Get the key of current entry.
+         * @return key of current entry
+         * @exception ConcurrentModificationException if the map is modified during iteration
+         * @exception NoSuchElementException if there is no element left in the map
+         */
+        public long index() throws ConcurrentModificationException, NoSuchElementException {
+            checkCurrent();
+            return current == -1 ? FREE_KEY : keys[current];
+        }
+
+        /**
+         * Get the value of current entry.
+         * @return value of current entry
+         * @exception ConcurrentModificationException if the map is modified during iteration
+         * @exception NoSuchElementException if there is no element left in the map
+         */
+        public double get() throws ConcurrentModificationException, NoSuchElementException {
+            checkCurrent();
+            return current == -1 ? freeKeyValue : values[current];
+        }
+
+        private void checkCurrent() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (current == -2) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        /**
+         * Advance iterator one step further.
+         * @exception ConcurrentModificationException if the map is modified during iteration
+         * @exception NoSuchElementException if there is no element left in the map
+         */
+        public void advance() throws ConcurrentModificationException, NoSuchElementException {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == -2) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = nextFull(next);
+        }
+
+    }
+
+    /**
+     * Cursor class for the map. Like the iterator, it visits the entry for
+     * FREE_KEY (if any) first, at position -1, followed by the table slots.
+     */
+    private class MapCursor implements LongDoubleCursor {
+
+        /** Reference modification count. */
+        private final int referenceCount = count;
+
+        /** Position of current element, or -2 before the first and keys.length after the last. */
+        private int current = -2;
+
+        public boolean advance() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (current == -2) {
+                current = -1;
+                if (hasFreeKey) {
+                    return true;
+                }
+            }
+            final long[] keys = LongDoubleLinearHashMap.this.keys;
+            while (current < keys.length) {
+                if (++current < keys.length && keys[current] != FREE_KEY) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public long key() {
+            checkCurrent();
+            return current == -1 ? FREE_KEY : keys[current];
+        }
+
+        public double value() {
+            checkCurrent();
+            return current == -1 ? freeKeyValue : values[current];
+        }
+
+        public void setValue(double value) {
+            checkCurrent();
+            if (current == -1) {
+                freeKeyValue = value;
+            } else {
+                values[current] = value;
+            }
+        }
+
+        private void checkCurrent() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (current == -2 || current >= keys.length) {
+                throw new NoSuchElementException();
+            }
+        }
+
+    }
+
+    /**
+     * Read a serialized object.
+     * @param stream input stream
+     * @throws IOException if object cannot be read
+     * @throws ClassNotFoundException if the class corresponding
+     * to the serialized object cannot be found
+     */
+    private void readObject(final ObjectInputStream stream)
+        throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        count = 0;
+    }
+
+    @Override
+    public long[] getIndices() {
+        int cur = 0;
+        long[] tmpKeys = new long[size()];
+        if (hasFreeKey) {
+            tmpKeys[cur++] = FREE_KEY;
+        }
+        for (int i=0; i<keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                tmpKeys[cur++] = keys[i];
+            }
+        }
+        return tmpKeys;
+    }
+
+    @Override
+    public double[] getValues() {
+        int cur = 0;
+        double[] tmpVals = new double[size()];
+        if (hasFreeKey) {
+            tmpVals[cur++] = freeKeyValue;
+        }
+        for (int i=0; i<keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                tmpVals[cur++] = values[i];
+            }
+        }
+        return tmpVals;
+    }
+
+    public Pair<long[], double[]> getIndicesAndValues() {
+        return new Pair<long[], double[]>(getIndices(), getValues());
+    }
+
+    public void apply(FnLongDoubleToDouble lambda) {
+        if (hasFreeKey) {
+            freeKeyValue = lambda.call(FREE_KEY, freeKeyValue);
+        }
+        for (int i=0; i<keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                values[i] = lambda.call(keys[i], values[i]);
+            }
+        }
+    }
+
+    public void iterate(FnLongDoubleToVoid lambda) {
+        if (hasFreeKey) {
+            lambda.call(FREE_KEY, freeKeyValue);
+        }
+        for (int i=0; i<keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                lambda.call(keys[i], values[i]);
+            }
+        }
+    }
+
+}
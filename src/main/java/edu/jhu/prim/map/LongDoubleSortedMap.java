@@ -1,7 +1,9 @@
 package edu.jhu.prim.map;
 
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import edu.jhu.prim.arrays.DoubleArrays;
 import edu.jhu.prim.arrays.LongArrays;
@@ -13,6 +15,7 @@ import edu.jhu.prim.tuple.Pair;
 import edu.jhu.prim.util.Lambda.FnLongDoubleToDouble;
 import edu.jhu.prim.util.Lambda.FnLongDoubleToVoid;
 import edu.jhu.prim.vector.AbstractLongDoubleVector;
+import edu.jhu.prim.vector.LongDoubleRangeIterable;
 
 /**
  * A primitives map from longs to doubles. The map is stored by keeping a sorted
@@ -21,7 +24,7 @@ import edu.jhu.prim.vector.AbstractLongDoubleVector;
  * 
  * @author mgormley
  */
-public class LongDoubleSortedMap extends AbstractLongDoubleVector implements LongDoubleMap {
+public class LongDoubleSortedMap extends AbstractLongDoubleVector implements LongDoubleMap, LongDoubleRangeIterable {
     
     private static final long serialVersionUID = 1L;
 	protected long[] indices;
@@ -49,9 +52,10 @@ public class LongDoubleSortedMap extends AbstractLongDoubleVector implements Lon
 	}
 
 	public LongDoubleSortedMap(LongDoubleSortedMap other) {
-		this.used = other.used;
-		this.indices = LongArrays.copyOf(other.indices);
-		this.values = DoubleArrays.copyOf(other.values);
+	    // Use the accessors, which merge the buffer of a LongDoubleBufferedSortedMap.
+		this.used = other.getUsed();
+		this.indices = LongArrays.copyOf(other.getInternalIndices());
+		this.values = DoubleArrays.copyOf(other.getInternalValues());
 	}
 
     public LongDoubleSortedMap(LongDoubleHashMap other) {
@@ -163,6 +167,7 @@ public class LongDoubleSortedMap extends AbstractLongDoubleVector implements Lon
         values = insert(values, insertionPoint, val);
         used++;
     }
+
     
     public void apply(FnLongDoubleToDouble lambda) {
         for (int i=0; i<used; i++) {
@@ -175,6 +180,25 @@ public class LongDoubleSortedMap extends AbstractLongDoubleVector implements Lon
             lambda.call(indices[i], values[i]);
         }
     }
+
+    @Override
+    public int getNumPositions() {
+        return used;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnLongDoubleToVoid lambda) {
+        for (int i=start; i<end; i++) {
+            lambda.call(indices[i], values[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnLongDoubleToDouble lambda) {
+        for (int i=start; i<end; i++) {
+            values[i] = lambda.call(indices[i], values[i]);
+        }
+    }
 	
 	private final long[] insert(long[] array, int i, long val) {
 		if (used >= array.length) {
@@ -258,6 +282,66 @@ public class LongDoubleSortedMap extends AbstractLongDoubleVector implements Lon
 		return new LongDoubleIterator();
 	}
 
+    /**
+     * Gets a cursor over the entries in order of their indices, which
+     * allocates nothing per entry. The cursor is fail-fast: it throws a
+     * <code>ConcurrentModificationException</code> if it detects that an
+     * entry was added or removed.
+     */
+    @Override
+    public LongDoubleCursor cursor() {
+        return new LongDoubleMapCursor();
+    }
+
+    /** Cursor over the entries of the map. */
+    private class LongDoubleMapCursor implements LongDoubleCursor {
+
+        // Any insertion or removal changes used or reallocates indices.
+        private final long[] expectedIndices = indices;
+        private final int expectedUsed = used;
+        private int i = -1;
+
+        @Override
+        public boolean advance() {
+            checkForComodification();
+            if (i < used) {
+                i++;
+            }
+            return i < used;
+        }
+
+        @Override
+        public long key() {
+            checkCurrent();
+            return indices[i];
+        }
+
+        @Override
+        public double value() {
+            checkCurrent();
+            return values[i];
+        }
+
+        @Override
+        public void setValue(double value) {
+            checkCurrent();
+            values[i] = value;
+        }
+
+        private void checkCurrent() {
+            checkForComodification();
+            if (i < 0 || i >= used) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        private void checkForComodification() {
+            if (indices != expectedIndices || used != expectedUsed) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+    }
 
 	/* (non-Javadoc)
      * @see edu.jhu.util.vector.LongDoubleMap#size()
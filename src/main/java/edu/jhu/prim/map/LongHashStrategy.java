@@ -0,0 +1,52 @@
+package edu.jhu.prim.map;
+
+import java.io.Serializable;
+
+import edu.jhu.prim.Primitives;
+
+/**
+ * Hash function for long keys, which may be given to the hash maps and sets in
+ * place of the default when the keys are known to have a particular structure.
+ * <p>
+ * The maps select a slot from the low bits of the hash, so a strategy should
+ * spread the entropy of the key into its low bits. Strategies are serialized
+ * with their maps and so must be serializable.
+ * </p>
+ * 
+ * @author mgormley
+ */
+public interface LongHashStrategy extends Serializable {
+
+    /**
+     * Compute the hash value of a key.
+     * @param key key to hash
+     * @return hash value of the key
+     */
+    int hashOf(long key);
+
+    /** The provided strategies. */
+    public enum Standard implements LongHashStrategy {
+
+        /** Mixes the key with {@link Primitives#hashOfLong(long)}. */
+        DEFAULT {
+            @Override
+            public int hashOf(long key) {
+                return Primitives.hashOfLong(key);
+            }
+        },
+
+        /**
+         * Uses the low bits of the key as is. This is only suitable for keys
+         * which are already well distributed (e.g. random or previously
+         * hashed), but is then the cheapest strategy.
+         */
+        IDENTITY {
+            @Override
+            public int hashOf(long key) {
+                return (int) key;
+            }
+        };
+
+    }
+
+}
@@ -0,0 +1,114 @@
+package edu.jhu.prim.matrix;
+
+import edu.jhu.prim.arrays.DoubleArrays;
+import edu.jhu.prim.arrays.IntArrays;
+import edu.jhu.prim.list.DoubleArrayList;
+import edu.jhu.prim.list.IntArrayList;
+import edu.jhu.prim.sort.LongDoubleSort;
+
+/**
+ * Builds a CSR or CSC matrix from entries in coordinate (COO) format, given as
+ * (row, col, value) triples in any order. Entries at the same position are
+ * summed, and positions whose values sum to zero are dropped.
+ * <p>
+ * To build a matrix, each (row, col) pair is packed into a long key, with the
+ * row in the high bits for CSR or the column for CSC, and the keys are sorted
+ * with their values by LongDoubleSort.
+ * </p>
+ *
+ * @author mgormley
+ */
+public class CooDoubleMatrixBuilder {
+
+    private final int numRows;
+    private final int numCols;
+    private final IntArrayList rows;
+    private final IntArrayList cols;
+    private final DoubleArrayList values;
+
+    public CooDoubleMatrixBuilder(int numRows, int numCols) {
+        this(numRows, numCols, 8);
+    }
+
+    public CooDoubleMatrixBuilder(int numRows, int numCols, int initialCapacity) {
+        if (numRows < 0 || numCols < 0) {
+            throw new IllegalArgumentException("Invalid matrix dimensions");
+        }
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.rows = new IntArrayList(initialCapacity);
+        this.cols = new IntArrayList(initialCapacity);
+        this.values = new DoubleArrayList(initialCapacity);
+    }
+
+    /** Adds the value to the entry at (row, col). */
+    public void add(int row, int col, double value) {
+        if (row < 0 || row >= numRows || col < 0 || col >= numCols) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "Invalid row or column. row=%d, col=%d, numRows=%d, numCols=%d",
+                            row, col, numRows, numCols));
+        }
+        rows.add(row);
+        cols.add(col);
+        values.add(value);
+    }
+
+    /** Gets the number of entries added, including any at the same position. */
+    public int getNumEntries() {
+        return values.size();
+    }
+
+    /** Builds the matrix in CSR format. */
+    public CsrDoubleMatrix toCsr() {
+        return compress(rows, cols, numRows, numCols);
+    }
+
+    /** Builds the matrix in CSC format. */
+    public CscDoubleMatrix toCsc() {
+        return new CscDoubleMatrix(compress(cols, rows, numCols, numRows));
+    }
+
+    /**
+     * Gets a CSR matrix with the given number of rows, whose entries are in
+     * the given rows ("major") and columns ("minor").
+     */
+    private CsrDoubleMatrix compress(IntArrayList major, IntArrayList minor, int numMajor, int numMinor) {
+        int n = values.size();
+        long[] keys = new long[n];
+        double[] vals = values.toNativeArray();
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((long) major.get(i) << 32) | minor.get(i);
+        }
+        LongDoubleSort.sortIndexAsc(keys, vals);
+
+        // Sum the values with the same key, and count the entries in each row.
+        int[] ptr = new int[numMajor + 1];
+        int[] idx = new int[n];
+        double[] nzVals = new double[n];
+        int nnz = 0;
+        int i = 0;
+        while (i < n) {
+            long key = keys[i];
+            double sum = 0;
+            for (; i < n && keys[i] == key; i++) {
+                sum += vals[i];
+            }
+            if (sum != 0) {
+                idx[nnz] = (int) key;
+                nzVals[nnz] = sum;
+                ptr[(int) (key >>> 32) + 1]++;
+                nnz++;
+            }
+        }
+        for (int r = 0; r < numMajor; r++) {
+            ptr[r + 1] += ptr[r];
+        }
+        if (nnz < n) {
+            idx = IntArrays.copyOf(idx, nnz);
+            nzVals = DoubleArrays.copyOf(nzVals, nnz);
+        }
+        return new CsrDoubleMatrix(numMajor, numMinor, ptr, idx, nzVals);
+    }
+
+}
@@ -0,0 +1,202 @@
+package edu.jhu.prim.matrix;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import edu.jhu.prim.map.IntDoubleEntry;
+import edu.jhu.prim.vector.IntDoubleSortedVector;
+
+/**
+ * An immutable sparse matrix in compressed sparse column (CSC) format. The
+ * non-zeros of column j are at positions [colPtr[j], colPtr[j+1]) of rowIdx
+ * and vals, in increasing order of row.
+ * <p>
+ * These are exactly the arrays of the transpose of this matrix in CSR format,
+ * so a CSC matrix is stored as the {@link CsrDoubleMatrix} of its transpose
+ * and its operations are those of the transpose: viewTranspose() returns it
+ * without copying, and A x is computed as (A^T)^T x. Products with dense and
+ * CSR matrices convert this matrix to CSR first, in O(nnz + numRows) time.
+ * </p>
+ *
+ * @author mgormley
+ */
+public class CscDoubleMatrix implements DoubleMatrix {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The transpose of this matrix, in CSR format. */
+    final CsrDoubleMatrix csrT;
+
+    /**
+     * Constructs a matrix from its arrays, which are used directly and must
+     * not be modified afterwards.
+     *
+     * @param numRows The number of rows.
+     * @param numCols The number of columns.
+     * @param colPtr The start of each column in rowIdx and vals, followed by
+     *            the number of non-zeros.
+     * @param rowIdx The row of each non-zero, ascending within each column.
+     * @param vals The value of each non-zero.
+     */
+    public CscDoubleMatrix(int numRows, int numCols, int[] colPtr, int[] rowIdx, double[] vals) {
+        this(new CsrDoubleMatrix(numCols, numRows, colPtr, rowIdx, vals));
+    }
+
+    /** Constructs the matrix whose transpose is the given CSR matrix. */
+    CscDoubleMatrix(CsrDoubleMatrix csrT) {
+        this.csrT = csrT;
+    }
+
+    /** Gets a copy of the non-zeros of the given matrix. */
+    public CscDoubleMatrix(double[][] matrix) {
+        this(new SparseColDoubleMatrix(matrix));
+    }
+
+    /** Gets a copy of the given matrix. */
+    public CscDoubleMatrix(SparseColDoubleMatrix other) {
+        this(new CsrDoubleMatrix(other.getNumColumns(), other.getNumRows(), other.cols));
+    }
+
+    /** Gets a copy of this matrix as a SparseColDoubleMatrix. */
+    public SparseColDoubleMatrix toSparseColDoubleMatrix() {
+        SparseColDoubleMatrix mat = new SparseColDoubleMatrix(getNumRows(), getNumColumns());
+        for (int col = 0; col < getNumColumns(); col++) {
+            mat.cols[col] = getColVector(col);
+        }
+        return mat;
+    }
+
+    /** Gets a NEW sorted vector containing the non-zeros of the given column. */
+    public IntDoubleSortedVector getColVector(int col) {
+        return csrT.getRowVector(col);
+    }
+
+    public int getNumRows() {
+        return csrT.numCols;
+    }
+
+    public int getNumColumns() {
+        return csrT.numRows;
+    }
+
+    /** Gets the number of non-zeros. */
+    public int getNumNonZeros() {
+        return csrT.getNumNonZeros();
+    }
+
+    /** Gets the INTERNAL column pointers. */
+    public int[] getColPtr() {
+        return csrT.rowPtr;
+    }
+
+    /** Gets the INTERNAL row indices. */
+    public int[] getRowIdx() {
+        return csrT.colIdx;
+    }
+
+    /** Gets the INTERNAL values. */
+    public double[] getValues() {
+        return csrT.vals;
+    }
+
+    public double get(int row, int col) {
+        return csrT.get(col, row);
+    }
+
+    public void set(int row, int col, double value) {
+        throw new UnsupportedOperationException("CscDoubleMatrix is immutable");
+    }
+
+    public void increment(int row, int col, double incr) {
+        throw new UnsupportedOperationException("CscDoubleMatrix is immutable");
+    }
+
+    public void decrement(int row, int col, double decr) {
+        throw new UnsupportedOperationException("CscDoubleMatrix is immutable");
+    }
+
+    public void set(DoubleMatrix other) {
+        throw new UnsupportedOperationException("CscDoubleMatrix is immutable");
+    }
+
+    /**
+     * Gets the non-zeros of the given row. This searches every column, so
+     * visiting many rows is faster with toCsr().
+     */
+    @Override
+    public Iterable<IntDoubleEntry> getRowEntries(int row) {
+        if (row < 0 || row >= getNumRows()) {
+            throw new IllegalArgumentException("Invalid row: " + row);
+        }
+        IntDoubleSortedVector vec = new IntDoubleSortedVector();
+        for (int col = 0; col < getNumColumns(); col++) {
+            int p = Arrays.binarySearch(csrT.colIdx, csrT.rowPtr[col], csrT.rowPtr[col + 1], row);
+            if (p >= 0) {
+                vec.set(col, csrT.vals[p]);
+            }
+        }
+        return vec;
+    }
+
+    public Iterable<IntDoubleEntry> getColEntries(int col) {
+        return csrT.getRowEntries(col);
+    }
+
+    /** Gets a view of the transpose of this matrix, which shares its arrays. */
+    public CsrDoubleMatrix viewTranspose() {
+        return csrT;
+    }
+
+    /** Gets the transpose of this matrix, in CSC format. */
+    public CscDoubleMatrix transpose() {
+        return new CscDoubleMatrix(toCsr());
+    }
+
+    /** Gets a copy of this matrix in CSR format. */
+    public CsrDoubleMatrix toCsr() {
+        return csrT.transpose();
+    }
+
+    public void multVector(double[] x, double[] y) {
+        csrT.multTransposeVector(x, y);
+    }
+
+    public void multTransposeVector(double[] x, double[] y) {
+        csrT.multVector(x, y);
+    }
+
+    /**
+     * Like {@link #multTransposeVector(double[], double[])}, but splits the
+     * columns into blocks with about the same number of non-zeros, which are
+     * multiplied in parallel on the common fork-join pool. Small matrices are
+     * multiplied sequentially.
+     */
+    public void parallelMultTransposeVector(double[] x, double[] y) {
+        csrT.parallelMultVector(x, y);
+    }
+
+    /** Like {@link #parallelMultTransposeVector(double[], double[])}, but runs on the given pool. */
+    public void parallelMultTransposeVector(double[] x, double[] y, ForkJoinPool pool) {
+        csrT.parallelMultVector(x, y, pool);
+    }
+
+    /** Multiplies A x B = C, where A is this matrix and B is dense. */
+    public DenseDoubleMatrix mult(DenseDoubleMatrix bMat) {
+        return toCsr().mult(bMat);
+    }
+
+    /**
+     * Multiplies A x B = C, where A is this matrix and B is sparse. The
+     * transpose of C is computed as B^T x A^T, whose arguments are the CSR
+     * matrices backing B and A.
+     */
+    public CscDoubleMatrix mult(CscDoubleMatrix bMat) {
+        return new CscDoubleMatrix(bMat.csrT.mult(this.csrT));
+    }
+
+    /** Multiplies A x B = C, where A is this matrix, by converting A to CSR. */
+    public CsrDoubleMatrix mult(CsrDoubleMatrix bMat) {
+        return toCsr().mult(bMat);
+    }
+
+}
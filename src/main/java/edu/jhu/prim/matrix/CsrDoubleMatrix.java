@@ -0,0 +1,380 @@
+package edu.jhu.prim.matrix;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+
+import edu.jhu.prim.arrays.IntArrays;
+import edu.jhu.prim.list.DoubleArrayList;
+import edu.jhu.prim.list.IntArrayList;
+import edu.jhu.prim.map.IntDoubleEntry;
+import edu.jhu.prim.sort.IntSort;
+import edu.jhu.prim.vector.IntDoubleSortedVector;
+
+/**
+ * An immutable sparse matrix in compressed sparse row (CSR) format. The
+ * non-zeros of row i are at positions [rowPtr[i], rowPtr[i+1]) of colIdx and
+ * vals, in increasing order of column. Unlike SparseRowDoubleMatrix, all the
+ * rows share these three arrays, so there is no per-row object.
+ * <p>
+ * Matrices are built with a {@link CooDoubleMatrixBuilder}, from their
+ * arrays, or from a SparseRowDoubleMatrix. The arrays of a CSR matrix are the
+ * arrays of its transpose in compressed sparse column format, so
+ * viewTranspose() returns a {@link CscDoubleMatrix} over the same arrays,
+ * while transpose() and toCsc() reorder the entries in O(nnz + numCols) time.
+ * </p>
+ *
+ * @author mgormley
+ */
+public class CsrDoubleMatrix implements DoubleMatrix {
+
+    private static final long serialVersionUID = 1L;
+
+    // Package private to give access to other matrix classes during multiplication.
+    final int numRows;
+    final int numCols;
+    final int[] rowPtr;
+    final int[] colIdx;
+    final double[] vals;
+
+    /**
+     * Constructs a matrix from its arrays, which are used directly and must
+     * not be modified afterwards.
+     *
+     * @param numRows The number of rows.
+     * @param numCols The number of columns.
+     * @param rowPtr The start of each row in colIdx and vals, followed by the
+     *            number of non-zeros.
+     * @param colIdx The column of each non-zero, ascending within each row.
+     * @param vals The value of each non-zero.
+     */
+    public CsrDoubleMatrix(int numRows, int numCols, int[] rowPtr, int[] colIdx, double[] vals) {
+        this(numRows, numCols, rowPtr, colIdx, vals, true);
+    }
+
+    private CsrDoubleMatrix(int numRows, int numCols, int[] rowPtr, int[] colIdx, double[] vals, boolean check) {
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.vals = vals;
+        if (check) {
+            checkArrays();
+        }
+    }
+
+    private void checkArrays() {
+        if (numRows < 0 || numCols < 0 || rowPtr.length != numRows + 1 || rowPtr[0] != 0) {
+            throw new IllegalStateException("Invalid row pointers");
+        }
+        int nnz = rowPtr[numRows];
+        if (colIdx.length < nnz || vals.length < nnz) {
+            throw new IllegalStateException("Arrays are shorter than the number of non-zeros: " + nnz);
+        }
+        for (int row = 0; row < numRows; row++) {
+            if (rowPtr[row] > rowPtr[row + 1]) {
+                throw new IllegalStateException("Invalid row pointers");
+            }
+            for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+                if (colIdx[p] < 0 || colIdx[p] >= numCols || (p > rowPtr[row] && colIdx[p] <= colIdx[p - 1])) {
+                    throw new IllegalStateException("Column indices are not sorted ascending in row: " + row);
+                }
+            }
+        }
+    }
+
+    /** Gets a copy of the non-zeros of the given matrix. */
+    public CsrDoubleMatrix(double[][] matrix) {
+        this(new SparseRowDoubleMatrix(matrix));
+    }
+
+    /** Gets a copy of the given matrix. */
+    public CsrDoubleMatrix(SparseRowDoubleMatrix other) {
+        this(other.getNumRows(), other.getNumColumns(), other.rows);
+    }
+
+    /** Gets a copy of the given rows, which are also the columns of a CSC matrix. */
+    CsrDoubleMatrix(int numRows, int numCols, IntDoubleSortedVector[] rows) {
+        this(numRows, numCols, DoubleMatrixKernels.getRowPtr(rows));
+        for (int row = 0; row < numRows; row++) {
+            IntDoubleSortedVector vec = rows[row];
+            System.arraycopy(vec.getInternalIndices(), 0, colIdx, rowPtr[row], vec.getUsed());
+            System.arraycopy(vec.getInternalValues(), 0, vals, rowPtr[row], vec.getUsed());
+        }
+    }
+
+    private CsrDoubleMatrix(int numRows, int numCols, int[] rowPtr) {
+        this(numRows, numCols, rowPtr, new int[rowPtr[numRows]], new double[rowPtr[numRows]], false);
+    }
+
+    /** Gets a copy of this matrix as a SparseRowDoubleMatrix. */
+    public SparseRowDoubleMatrix toSparseRowDoubleMatrix() {
+        SparseRowDoubleMatrix mat = new SparseRowDoubleMatrix(numRows, numCols);
+        for (int row = 0; row < numRows; row++) {
+            mat.rows[row] = getRowVector(row);
+        }
+        return mat;
+    }
+
+    /** Gets a NEW sorted vector containing the non-zeros of the given row. */
+    public IntDoubleSortedVector getRowVector(int row) {
+        int start = rowPtr[row];
+        int end = rowPtr[row + 1];
+        return new IntDoubleSortedVector(Arrays.copyOfRange(colIdx, start, end), Arrays.copyOfRange(vals, start, end));
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return numCols;
+    }
+
+    /** Gets the number of non-zeros. */
+    public int getNumNonZeros() {
+        return rowPtr[numRows];
+    }
+
+    /** Gets the INTERNAL row pointers. */
+    public int[] getRowPtr() {
+        return rowPtr;
+    }
+
+    /** Gets the INTERNAL column indices. */
+    public int[] getColIdx() {
+        return colIdx;
+    }
+
+    /** Gets the INTERNAL values. */
+    public double[] getValues() {
+        return vals;
+    }
+
+    public double get(int row, int col) {
+        checkDimensions(row, col);
+        int p = Arrays.binarySearch(colIdx, rowPtr[row], rowPtr[row + 1], col);
+        return p < 0 ? 0 : vals[p];
+    }
+
+    private void checkDimensions(int row, int col) {
+        if (row < 0 || row >= numRows || col < 0 || col >= numCols) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "Invalid row or column. row=%d, col=%d, numRows=%d, numCols=%d",
+                            row, col, numRows, numCols));
+        }
+    }
+
+    public void set(int row, int col, double value) {
+        throw new UnsupportedOperationException("CsrDoubleMatrix is immutable");
+    }
+
+    public void increment(int row, int col, double incr) {
+        throw new UnsupportedOperationException("CsrDoubleMatrix is immutable");
+    }
+
+    public void decrement(int row, int col, double decr) {
+        throw new UnsupportedOperationException("CsrDoubleMatrix is immutable");
+    }
+
+    public void set(DoubleMatrix other) {
+        throw new UnsupportedOperationException("CsrDoubleMatrix is immutable");
+    }
+
+    @Override
+    public Iterable<IntDoubleEntry> getRowEntries(int row) {
+        return new RangeIterator(colIdx, vals, rowPtr[row], rowPtr[row + 1]);
+    }
+
+    /** Gets a view of the transpose of this matrix, which shares its arrays. */
+    public CscDoubleMatrix viewTranspose() {
+        return new CscDoubleMatrix(this);
+    }
+
+    /** Gets the transpose of this matrix, in CSR format. */
+    public CsrDoubleMatrix transpose() {
+        int nnz = getNumNonZeros();
+        int[] tPtr = new int[numCols + 1];
+        for (int p = 0; p < nnz; p++) {
+            tPtr[colIdx[p] + 1]++;
+        }
+        for (int col = 0; col < numCols; col++) {
+            tPtr[col + 1] += tPtr[col];
+        }
+        int[] next = IntArrays.copyOf(tPtr, numCols);
+        int[] tIdx = new int[nnz];
+        double[] tVals = new double[nnz];
+        // Rows are visited in order, so each row of the transpose is sorted.
+        for (int row = 0; row < numRows; row++) {
+            for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+                int q = next[colIdx[p]]++;
+                tIdx[q] = row;
+                tVals[q] = vals[p];
+            }
+        }
+        return new CsrDoubleMatrix(numCols, numRows, tPtr, tIdx, tVals, false);
+    }
+
+    /** Gets a copy of this matrix in CSC format. */
+    public CscDoubleMatrix toCsc() {
+        return new CscDoubleMatrix(transpose());
+    }
+
+    public void multVector(double[] x, double[] y) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, false);
+        DoubleMatrixKernels.multVectorCsr(this, x, y, null);
+    }
+
+    /**
+     * Like {@link #multVector(double[], double[])}, but splits the rows into
+     * blocks with about the same number of non-zeros, which are multiplied in
+     * parallel on the common fork-join pool. Small matrices are multiplied
+     * sequentially.
+     */
+    public void parallelMultVector(double[] x, double[] y) {
+        parallelMultVector(x, y, ForkJoinPool.commonPool());
+    }
+
+    /** Like {@link #parallelMultVector(double[], double[])}, but runs on the given pool. */
+    public void parallelMultVector(double[] x, double[] y, ForkJoinPool pool) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, false);
+        DoubleMatrixKernels.multVectorCsr(this, x, y, pool);
+    }
+
+    public void multTransposeVector(double[] x, double[] y) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, true);
+        Arrays.fill(y, 0.0);
+        for (int row = 0; row < numRows; row++) {
+            double xi = x[row];
+            if (xi == 0) {
+                continue;
+            }
+            for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+                y[colIdx[p]] += vals[p] * xi;
+            }
+        }
+    }
+
+    /** Multiplies A x B = C, where A is this matrix and B is dense. */
+    public DenseDoubleMatrix mult(DenseDoubleMatrix bMat) {
+        DenseDoubleMatrix cMat = new DenseDoubleMatrix(numRows, bMat.getNumColumns());
+        this.mult(bMat, cMat);
+        return cMat;
+    }
+
+    /**
+     * Multiplies A x B = C, where A is this matrix and B is dense. Large
+     * products are split into blocks of rows of C which are computed in
+     * parallel on the common fork-join pool.
+     */
+    public void mult(DenseDoubleMatrix bMat, DenseDoubleMatrix cMat) {
+        mult(bMat, cMat, ForkJoinPool.commonPool());
+    }
+
+    /** Like {@link #mult(DenseDoubleMatrix, DenseDoubleMatrix)}, but runs on the given pool. */
+    public void mult(DenseDoubleMatrix bMat, DenseDoubleMatrix cMat, ForkJoinPool pool) {
+        SparseRowDoubleMatrix.checkMultDimensions(this, bMat, cMat);
+        DoubleMatrixKernels.multCsrDense(this, bMat.matrix, cMat.matrix, pool);
+    }
+
+    /**
+     * Multiplies A x B = C, where A is this matrix and B is sparse, by
+     * Gustavson's algorithm: row i of C is accumulated in a dense array from
+     * the rows of B selected by the non-zeros of row i of A. Entries which sum
+     * to zero are dropped.
+     */
+    public CsrDoubleMatrix mult(CsrDoubleMatrix bMat) {
+        if (numCols != bMat.numRows) {
+            throw new IllegalArgumentException("Invalid matrix dimensions for multiplication.");
+        }
+        int n = bMat.numCols;
+        double[] acc = new double[n];
+        // The last row of C in which each column was touched.
+        int[] mark = new int[n];
+        Arrays.fill(mark, -1);
+        int[] touched = new int[n];
+        int[] cPtr = new int[numRows + 1];
+        IntArrayList cIdx = new IntArrayList();
+        DoubleArrayList cVals = new DoubleArrayList();
+        for (int row = 0; row < numRows; row++) {
+            int numTouched = 0;
+            for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+                int k = colIdx[p];
+                double a = vals[p];
+                for (int q = bMat.rowPtr[k]; q < bMat.rowPtr[k + 1]; q++) {
+                    int col = bMat.colIdx[q];
+                    if (mark[col] != row) {
+                        mark[col] = row;
+                        touched[numTouched++] = col;
+                        acc[col] = a * bMat.vals[q];
+                    } else {
+                        acc[col] += a * bMat.vals[q];
+                    }
+                }
+            }
+            IntSort.sortAsc(touched, 0, numTouched);
+            for (int t = 0; t < numTouched; t++) {
+                int col = touched[t];
+                if (acc[col] != 0) {
+                    cIdx.add(col);
+                    cVals.add(acc[col]);
+                }
+            }
+            cPtr[row + 1] = cIdx.size();
+        }
+        return new CsrDoubleMatrix(numRows, n, cPtr, cIdx.toNativeArray(), cVals.toNativeArray(), false);
+    }
+
+    /** Multiplies A x B = C, where A is this matrix, by converting B to CSR. */
+    public CsrDoubleMatrix mult(CscDoubleMatrix bMat) {
+        return mult(bMat.toCsr());
+    }
+
+    /**
+     * Iterator over the entries at a range of positions in a compressed
+     * layout.
+     */
+    static class RangeIterator implements Iterator<IntDoubleEntry>, Iterable<IntDoubleEntry>, IntDoubleEntry {
+
+        private final int[] idx;
+        private final double[] vals;
+        private final int end;
+        private int cursor;
+
+        public RangeIterator(int[] idx, double[] vals, int start, int end) {
+            this.idx = idx;
+            this.vals = vals;
+            this.end = end;
+            this.cursor = start - 1;
+        }
+
+        public boolean hasNext() {
+            return cursor + 1 < end;
+        }
+
+        public IntDoubleEntry next() {
+            cursor++;
+            return this;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("CsrDoubleMatrix is immutable");
+        }
+
+        @Override
+        public Iterator<IntDoubleEntry> iterator() {
+            return this;
+        }
+
+        public int index() {
+            return idx[cursor];
+        }
+
+        public double get() {
+            return vals[cursor];
+        }
+
+    }
+
+}
@@ -1,6 +1,7 @@
 package edu.jhu.prim.matrix;
 
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 
 import edu.jhu.prim.arrays.DoubleArrays;
 import edu.jhu.prim.map.IntDoubleEntry;
@@ -121,34 +122,72 @@ public class DenseDoubleMatrix implements DoubleMatrix {
         return cMat;
     }
     
+    /**
+     * Multiplies A x B = C, where A is this matrix. Large products are split
+     * into blocks of rows of C which are computed in parallel on the common
+     * fork-join pool.
+     * 
+     * @param bMat The matrix B.
+     * @param cMat The matrix C.
+     */
     public void mult(DoubleMatrix bMat, DenseDoubleMatrix cMat) {
+        mult(bMat, cMat, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #mult(DoubleMatrix, DenseDoubleMatrix)}, but runs on the
+     * given pool.
+     */
+    public void mult(DoubleMatrix bMat, DenseDoubleMatrix cMat, ForkJoinPool pool) {
         SparseRowDoubleMatrix.checkMultDimensions(this, bMat, cMat);
 
         if (bMat instanceof DenseDoubleMatrix) {
-            // This is the standard slow implementation of dense matrix multiplication. Nothing fancy.            
             DenseDoubleMatrix denseBMat = (DenseDoubleMatrix) bMat;
-            for (int row = 0; row < cMat.numRows; row++) {
-                for (int col = 0; col < cMat.numCols; col++) {
-                    // Compute the dot product of the row in A with the column in B.
-                    double value = 0.0;
-                    for (int i=0; i<matrix[row].length; i++) {
-                        value += matrix[row][i] * denseBMat.matrix[i][col];
-                    }
-                    cMat.matrix[row][col] = value;
-                }
-            }
+            DoubleMatrixKernels.multDenseDense(this.matrix, denseBMat.matrix, cMat.matrix, pool);
         } else if (bMat instanceof SparseColDoubleMatrix) {
             SparseColDoubleMatrix sparseBMat = (SparseColDoubleMatrix) bMat;
-            for (int row = 0; row < cMat.numRows; row++) {
-                for (int col = 0; col < cMat.numCols; col++) {
-                    cMat.matrix[row][col] = sparseBMat.cols[col].dot(this.matrix[row]);
-                }
-            }
+            DoubleMatrixKernels.multDenseSparseCol(this.matrix, sparseBMat.cols, cMat.matrix, pool);
         } else {
             throw new IllegalArgumentException("unhandled type: " + bMat.getClass().getCanonicalName());
         }
     }
 
+    public void multVector(double[] x, double[] y) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, false);
+        DoubleMatrixKernels.multVectorDense(matrix, x, y, null);
+    }
+
+    /**
+     * Like {@link #multVector(double[], double[])}, but splits the rows into
+     * blocks which are multiplied in parallel on the common fork-join pool.
+     * Small matrices are multiplied sequentially.
+     */
+    public void parallelMultVector(double[] x, double[] y) {
+        parallelMultVector(x, y, ForkJoinPool.commonPool());
+    }
+
+    /** Like {@link #parallelMultVector(double[], double[])}, but runs on the given pool. */
+    public void parallelMultVector(double[] x, double[] y, ForkJoinPool pool) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, false);
+        DoubleMatrixKernels.multVectorDense(matrix, x, y, pool);
+    }
+
+    public void multTransposeVector(double[] x, double[] y) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, true);
+        DoubleArrays.fill(y, 0.0);
+        // Add in each row scaled by its entry of x, so that the rows are read in order.
+        for (int row = 0; row < numRows; row++) {
+            double xi = x[row];
+            if (xi == 0) {
+                continue;
+            }
+            double[] r = matrix[row];
+            for (int col = 0; col < numCols; col++) {
+                y[col] += r[col] * xi;
+            }
+        }
+    }
+
 	@Override
     public Iterable<IntDoubleEntry> getRowEntries(int row) {
         return new DenseDoubleVectorIterator(matrix[row]);
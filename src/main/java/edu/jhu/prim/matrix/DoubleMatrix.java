@@ -23,4 +23,10 @@ public interface DoubleMatrix extends Serializable {
     public Iterable<IntDoubleEntry> getRowEntries(int row);
     
     public DoubleMatrix viewTranspose();
+
+    /** Multiplies A x = y, where A is this matrix, overwriting y. */
+    public void multVector(double[] x, double[] y);
+
+    /** Multiplies A^T x = y, where A is this matrix, overwriting y. */
+    public void multTransposeVector(double[] x, double[] y);
 }
\ No newline at end of file
@@ -0,0 +1,583 @@
+package edu.jhu.prim.matrix;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import edu.jhu.prim.vector.IntDoubleSortedVector;
+
+/**
+ * Kernels for matrix multiplication which write the rows of a dense output
+ * matrix C, or the entries of an output vector y. Each kernel computes any
+ * range of the rows of C independently of the others, so a product is split
+ * into blocks of rows which are computed in parallel on a fork-join pool.
+ * Dense rows all take the same work, so they are split into blocks with the
+ * same number of rows; sparse rows are split into blocks with about the same
+ * number of non-zeros, so that a few very dense rows do not leave the other
+ * threads idle.
+ * <p>
+ * The dense kernel loops in i-k-j order, so that its innermost loop runs
+ * along rows of B and C. It is tiled over k and j so that a panel of B stays
+ * in cache while it is reused for every row of C in a block, and it is
+ * register blocked over k: each pass over a row of C adds in four rows of B,
+ * so the row is loaded and stored once for every four multiply-adds.
+ * </p>
+ *
+ * @author mgormley
+ */
+final class DoubleMatrixKernels {
+
+    /**
+     * Number of multiply-adds below which a product is computed sequentially
+     * by the calling thread.
+     */
+    public static final long PARALLEL_THRESHOLD = 1 << 18;
+
+    /** Minimum number of rows of C computed by one fork-join task. */
+    private static final int MIN_BLOCK_ROWS = 4;
+
+    /** Number of rows of B in a tile. */
+    static final int K_TILE = 128;
+
+    /** Number of columns of B and C in a tile. */
+    static final int J_TILE = 256;
+
+    private DoubleMatrixKernels() {
+        // Private constructor.
+    }
+
+    /** Computes C = A x B for dense A, B and C. */
+    static void multDenseDense(double[][] a, double[][] b, double[][] c, ForkJoinPool pool) {
+        int numInner = b.length;
+        int numColsC = c.length == 0 ? 0 : c[0].length;
+        run(new DenseDenseKernel(a, b, c), c.length, (long) c.length * numColsC * numInner, pool);
+    }
+
+    /** Computes C = A x B for dense A and C, and B stored as sparse columns. */
+    static void multDenseSparseCol(double[][] a, IntDoubleSortedVector[] bCols, double[][] c, ForkJoinPool pool) {
+        run(new DenseSparseColKernel(a, bCols, c), c.length, (long) c.length * getNumNonZeros(bCols), pool);
+    }
+
+    /**
+     * Computes C = A^T x B, or C = A^T x B^T if transposeB is true, for A stored
+     * as sparse columns and dense B and C.
+     */
+    static void multSparseColTDense(IntDoubleSortedVector[] aCols, double[][] b, boolean transposeB, double[][] c,
+            ForkJoinPool pool) {
+        int numColsC = c.length == 0 ? 0 : c[0].length;
+        run(new SparseColTDenseKernel(aCols, b, transposeB, c), c.length,
+                (long) numColsC * getNumNonZeros(aCols), pool);
+    }
+
+    /** Computes C = A x B for A in compressed sparse row format and dense B and C. */
+    static void multCsrDense(CsrDoubleMatrix a, double[][] b, double[][] c, ForkJoinPool pool) {
+        int numColsC = c.length == 0 ? 0 : c[0].length;
+        run(new CsrDenseKernel(a, b, c), c.length, (long) numColsC * a.getNumNonZeros(), pool);
+    }
+
+    /** Computes y = A x for dense A. A null pool runs on the calling thread. */
+    static void multVectorDense(double[][] a, double[] x, double[] y, ForkJoinPool pool) {
+        int numCols = a.length == 0 ? 0 : a[0].length;
+        run(new DenseVectorKernel(a, x, y), a.length, (long) a.length * numCols, pool);
+    }
+
+    /**
+     * Computes y = A x for A stored as sparse rows. A null pool runs on the
+     * calling thread.
+     */
+    static void multVectorSparseRow(IntDoubleSortedVector[] rows, double[] x, double[] y, ForkJoinPool pool) {
+        RowKernel kernel = new SparseRowVectorKernel(rows, x, y);
+        if (!isParallel(getNumNonZeros(rows), pool)) {
+            kernel.multRows(0, rows.length);
+            return;
+        }
+        runBalanced(kernel, getRowPtr(rows), pool);
+    }
+
+    /**
+     * Computes y = A x for A in compressed sparse row format. A null pool runs
+     * on the calling thread.
+     */
+    static void multVectorCsr(CsrDoubleMatrix a, double[] x, double[] y, ForkJoinPool pool) {
+        RowKernel kernel = new CsrVectorKernel(a, x, y);
+        if (!isParallel(a.getNumNonZeros(), pool)) {
+            kernel.multRows(0, a.numRows);
+            return;
+        }
+        runBalanced(kernel, a.rowPtr, pool);
+    }
+
+    private static long getNumNonZeros(IntDoubleSortedVector[] vecs) {
+        long nnz = 0;
+        for (IntDoubleSortedVector v : vecs) {
+            nnz += v.getUsed();
+        }
+        return nnz;
+    }
+
+    /**
+     * Gets the position of each vector in a compressed layout of the vectors,
+     * followed by their total number of non-zeros.
+     */
+    static int[] getRowPtr(IntDoubleSortedVector[] vecs) {
+        int[] ptr = new int[vecs.length + 1];
+        for (int i = 0; i < vecs.length; i++) {
+            ptr[i + 1] = ptr[i] + vecs[i].getUsed();
+        }
+        return ptr;
+    }
+
+    /** Whether a product with this many multiply-adds should fork. */
+    static boolean isParallel(long work, ForkJoinPool pool) {
+        return pool != null && work >= PARALLEL_THRESHOLD && pool.getParallelism() > 1;
+    }
+
+    private static void run(RowKernel kernel, int numRows, long work, ForkJoinPool pool) {
+        if (!isParallel(work, pool)) {
+            kernel.multRows(0, numRows);
+            return;
+        }
+        final int numTasks = 4 * pool.getParallelism();
+        int blockRows = Math.max(MIN_BLOCK_ROWS, numRows / numTasks + 1);
+        pool.invoke(new RowBlockAction(kernel, 0, numRows, blockRows));
+    }
+
+    /**
+     * Runs the kernel over blocks of rows with about the same number of
+     * non-zeros, given the position of each row in a compressed layout.
+     */
+    private static void runBalanced(RowKernel kernel, int[] rowPtr, ForkJoinPool pool) {
+        int[] bounds = getBalancedBounds(rowPtr, 4 * pool.getParallelism());
+        pool.invoke(new BlockListAction(kernel, bounds, 0, bounds.length - 1));
+    }
+
+    /**
+     * Splits the rows into at most numBlocks blocks of consecutive rows with
+     * about the same number of non-zeros. A row is never split, so a row with
+     * more than nnz / numBlocks non-zeros gets a block to itself.
+     *
+     * @param rowPtr The position of each row in a compressed layout, followed
+     *            by the number of non-zeros.
+     * @param numBlocks The number of blocks to aim for.
+     * @return The first row of each block, followed by the number of rows.
+     */
+    static int[] getBalancedBounds(int[] rowPtr, int numBlocks) {
+        int numRows = rowPtr.length - 1;
+        long nnz = rowPtr[numRows];
+        int[] bounds = new int[numBlocks + 1];
+        int n = 1;
+        for (int b = 1; b < numBlocks; b++) {
+            int target = (int) (nnz * b / numBlocks);
+            // The first row which starts at or after the target. Empty rows
+            // share their start with the next row, so take the first of them.
+            int row = lowerBound(rowPtr, 0, numRows, target);
+            if (row > bounds[n - 1] && row < numRows) {
+                bounds[n++] = row;
+            }
+        }
+        bounds[n++] = numRows;
+        return Arrays.copyOf(bounds, n);
+    }
+
+    /** Gets the first position in array[lo...hi-1] whose value is at least key. */
+    private static int lowerBound(int[] array, int lo, int hi, int key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (array[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Computes the rows of C in some range. */
+    private interface RowKernel {
+        void multRows(int start, int end);
+    }
+
+    /**
+     * Action which computes a range of rows of C, splitting it in two until it
+     * is small enough to compute directly.
+     */
+    private static class RowBlockAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final RowKernel kernel;
+        private final int start;
+        private final int end;
+        private final int blockRows;
+
+        public RowBlockAction(RowKernel kernel, int start, int end, int blockRows) {
+            this.kernel = kernel;
+            this.start = start;
+            this.end = end;
+            this.blockRows = blockRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= blockRows) {
+                kernel.multRows(start, end);
+                return;
+            }
+            final int mid = (start + end) >>> 1;
+            invokeAll(new RowBlockAction(kernel, start, mid, blockRows),
+                    new RowBlockAction(kernel, mid, end, blockRows));
+        }
+
+    }
+
+    /**
+     * Action which computes a range of blocks of rows, given by the first row
+     * of each block, splitting it in two until it is a single block.
+     */
+    private static class BlockListAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final RowKernel kernel;
+        private final int[] bounds;
+        private final int start;
+        private final int end;
+
+        public BlockListAction(RowKernel kernel, int[] bounds, int start, int end) {
+            this.kernel = kernel;
+            this.bounds = bounds;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= 1) {
+                kernel.multRows(bounds[start], bounds[end]);
+                return;
+            }
+            final int mid = (start + end) >>> 1;
+            invokeAll(new BlockListAction(kernel, bounds, start, mid),
+                    new BlockListAction(kernel, bounds, mid, end));
+        }
+
+    }
+
+    private static class DenseDenseKernel implements RowKernel {
+
+        private final double[][] a;
+        private final double[][] b;
+        private final double[][] c;
+
+        public DenseDenseKernel(double[][] a, double[][] b, double[][] c) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+        }
+
+        @Override
+        public void multRows(int start, int end) {
+            for (int i = start; i < end; i++) {
+                Arrays.fill(c[i], 0.0);
+            }
+            int numInner = b.length;
+            int numCols = end > start ? c[start].length : 0;
+            for (int k0 = 0; k0 < numInner; k0 += K_TILE) {
+                int k1 = Math.min(k0 + K_TILE, numInner);
+                for (int j0 = 0; j0 < numCols; j0 += J_TILE) {
+                    int j1 = Math.min(j0 + J_TILE, numCols);
+                    for (int i = start; i < end; i++) {
+                        multTile(a[i], c[i], k0, k1, j0, j1);
+                    }
+                }
+            }
+        }
+
+        /** Adds A[i][k0:k1] x B[k0:k1][j0:j1] to C[i][j0:j1]. */
+        private void multTile(double[] ai, double[] ci, int k0, int k1, int j0, int j1) {
+            int k = k0;
+            for (; k + 3 < k1; k += 4) {
+                double a0 = ai[k];
+                double a1 = ai[k + 1];
+                double a2 = ai[k + 2];
+                double a3 = ai[k + 3];
+                double[] b0 = b[k];
+                double[] b1 = b[k + 1];
+                double[] b2 = b[k + 2];
+                double[] b3 = b[k + 3];
+                for (int j = j0; j < j1; j++) {
+                    ci[j] += a0 * b0[j] + a1 * b1[j] + a2 * b2[j] + a3 * b3[j];
+                }
+            }
+            for (; k < k1; k++) {
+                double ak = ai[k];
+                double[] bk = b[k];
+                for (int j = j0; j < j1; j++) {
+                    ci[j] += ak * bk[j];
+                }
+            }
+        }
+
+    }
+
+    private static class DenseSparseColKernel implements RowKernel {
+
+        private final double[][] a;
+        private final IntDoubleSortedVector[] bCols;
+        private final double[][] c;
+
+        public DenseSparseColKernel(double[][] a, IntDoubleSortedVector[] bCols, double[][] c) {
+            this.a = a;
+            this.bCols = bCols;
+            this.c = c;
+        }
+
+        @Override
+        public void multRows(int start, int end) {
+            // Four rows of A at a time share each load of an entry of B.
+            int i = start;
+            for (; i + 3 < end; i += 4) {
+                double[] a0 = a[i];
+                double[] a1 = a[i + 1];
+                double[] a2 = a[i + 2];
+                double[] a3 = a[i + 3];
+                for (int j = 0; j < bCols.length; j++) {
+                    int[] idx = bCols[j].getInternalIndices();
+                    double[] vals = bCols[j].getInternalValues();
+                    int nnz = bCols[j].getUsed();
+                    double s0 = 0;
+                    double s1 = 0;
+                    double s2 = 0;
+                    double s3 = 0;
+                    for (int t = 0; t < nnz; t++) {
+                        int k = idx[t];
+                        double v = vals[t];
+                        s0 += a0[k] * v;
+                        s1 += a1[k] * v;
+                        s2 += a2[k] * v;
+                        s3 += a3[k] * v;
+                    }
+                    c[i][j] = s0;
+                    c[i + 1][j] = s1;
+                    c[i + 2][j] = s2;
+                    c[i + 3][j] = s3;
+                }
+            }
+            for (; i < end; i++) {
+                double[] ai = a[i];
+                for (int j = 0; j < bCols.length; j++) {
+                    int[] idx = bCols[j].getInternalIndices();
+                    double[] vals = bCols[j].getInternalValues();
+                    int nnz = bCols[j].getUsed();
+                    double s = 0;
+                    for (int t = 0; t < nnz; t++) {
+                        s += ai[idx[t]] * vals[t];
+                    }
+                    c[i][j] = s;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Sets ci = sum_t vals[t] * b[idx[t]] over t in [start, end), adding in
+     * the rows of B in groups of four as in the dense kernel.
+     */
+    private static void setToRowCombination(double[][] b, int[] idx, double[] vals, int start, int end, double[] ci) {
+        Arrays.fill(ci, 0.0);
+        int numCols = ci.length;
+        int t = start;
+        for (; t + 3 < end; t += 4) {
+            double a0 = vals[t];
+            double a1 = vals[t + 1];
+            double a2 = vals[t + 2];
+            double a3 = vals[t + 3];
+            double[] b0 = b[idx[t]];
+            double[] b1 = b[idx[t + 1]];
+            double[] b2 = b[idx[t + 2]];
+            double[] b3 = b[idx[t + 3]];
+            for (int j = 0; j < numCols; j++) {
+                ci[j] += a0 * b0[j] + a1 * b1[j] + a2 * b2[j] + a3 * b3[j];
+            }
+        }
+        for (; t < end; t++) {
+            double ak = vals[t];
+            double[] bk = b[idx[t]];
+            for (int j = 0; j < numCols; j++) {
+                ci[j] += ak * bk[j];
+            }
+        }
+    }
+
+    private static class CsrDenseKernel implements RowKernel {
+
+        private final CsrDoubleMatrix a;
+        private final double[][] b;
+        private final double[][] c;
+
+        public CsrDenseKernel(CsrDoubleMatrix a, double[][] b, double[][] c) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+        }
+
+        @Override
+        public void multRows(int start, int end) {
+            for (int i = start; i < end; i++) {
+                setToRowCombination(b, a.colIdx, a.vals, a.rowPtr[i], a.rowPtr[i + 1], c[i]);
+            }
+        }
+
+    }
+
+    private static class SparseColTDenseKernel implements RowKernel {
+
+        private final IntDoubleSortedVector[] aCols;
+        private final double[][] b;
+        private final boolean transposeB;
+        private final double[][] c;
+
+        public SparseColTDenseKernel(IntDoubleSortedVector[] aCols, double[][] b, boolean transposeB, double[][] c) {
+            this.aCols = aCols;
+            this.b = b;
+            this.transposeB = transposeB;
+            this.c = c;
+        }
+
+        @Override
+        public void multRows(int start, int end) {
+            for (int i = start; i < end; i++) {
+                int[] idx = aCols[i].getInternalIndices();
+                double[] vals = aCols[i].getInternalValues();
+                int nnz = aCols[i].getUsed();
+                if (transposeB) {
+                    multRowByRows(idx, vals, nnz, c[i]);
+                } else {
+                    setToRowCombination(b, idx, vals, 0, nnz, c[i]);
+                }
+            }
+        }
+
+        /**
+         * Sets C[i][j] = A^T[i] . B[j], for four rows of B at a time so that
+         * they share each load of an entry of A.
+         */
+        private void multRowByRows(int[] idx, double[] vals, int nnz, double[] ci) {
+            int numCols = ci.length;
+            int j = 0;
+            for (; j + 3 < numCols; j += 4) {
+                double[] b0 = b[j];
+                double[] b1 = b[j + 1];
+                double[] b2 = b[j + 2];
+                double[] b3 = b[j + 3];
+                double s0 = 0;
+                double s1 = 0;
+                double s2 = 0;
+                double s3 = 0;
+                for (int t = 0; t < nnz; t++) {
+                    int k = idx[t];
+                    double v = vals[t];
+                    s0 += b0[k] * v;
+                    s1 += b1[k] * v;
+                    s2 += b2[k] * v;
+                    s3 += b3[k] * v;
+                }
+                ci[j] = s0;
+                ci[j + 1] = s1;
+                ci[j + 2] = s2;
+                ci[j + 3] = s3;
+            }
+            for (; j < numCols; j++) {
+                double[] bj = b[j];
+                double s = 0;
+                for (int t = 0; t < nnz; t++) {
+                    s += bj[idx[t]] * vals[t];
+                }
+                ci[j] = s;
+            }
+        }
+
+    }
+
+    private static class DenseVectorKernel implements RowKernel {
+
+        private final double[][] a;
+        private final double[] x;
+        private final double[] y;
+
+        public DenseVectorKernel(double[][] a, double[] x, double[] y) {
+            this.a = a;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public void multRows(int start, int end) {
+            for (int i = start; i < end; i++) {
+                double[] ai = a[i];
+                double sum = 0;
+                for (int j = 0; j < ai.length; j++) {
+                    sum += ai[j] * x[j];
+                }
+                y[i] = sum;
+            }
+        }
+
+    }
+
+    private static class SparseRowVectorKernel implements RowKernel {
+
+        private final IntDoubleSortedVector[] rows;
+        private final double[] x;
+        private final double[] y;
+
+        public SparseRowVectorKernel(IntDoubleSortedVector[] rows, double[] x, double[] y) {
+            this.rows = rows;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public void multRows(int start, int end) {
+            for (int i = start; i < end; i++) {
+                int[] idx = rows[i].getInternalIndices();
+                double[] vals = rows[i].getInternalValues();
+                int nnz = rows[i].getUsed();
+                double sum = 0;
+                for (int t = 0; t < nnz; t++) {
+                    sum += vals[t] * x[idx[t]];
+                }
+                y[i] = sum;
+            }
+        }
+
+    }
+
+    private static class CsrVectorKernel implements RowKernel {
+
+        private final CsrDoubleMatrix a;
+        private final double[] x;
+        private final double[] y;
+
+        public CsrVectorKernel(CsrDoubleMatrix a, double[] x, double[] y) {
+            this.a = a;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public void multRows(int start, int end) {
+            int[] rowPtr = a.rowPtr;
+            int[] colIdx = a.colIdx;
+            double[] vals = a.vals;
+            for (int i = start; i < end; i++) {
+                double sum = 0;
+                for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+                    sum += vals[p] * x[colIdx[p]];
+                }
+                y[i] = sum;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,405 @@
+package edu.jhu.prim.matrix;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import edu.jhu.prim.map.IntDoubleEntry;
+import edu.jhu.prim.util.SafeCast;
+import edu.jhu.prim.vector.IntDoubleDenseVector;
+import edu.jhu.prim.vector.IntDoubleVectorSlice;
+
+/**
+ * A dense matrix stored in a single flat array. The entry at (row, col) is
+ * elements[offset + row * rowStride + col * colStride], so a new matrix is
+ * stored in row-major order (rowStride = numCols, colStride = 1).
+ * <p>
+ * Views of rows, columns, sub-blocks and the transpose are matrices over the
+ * same array with a different offset and strides, so they are created
+ * without copying and writes through them are visible in this matrix. A row
+ * of a matrix with unit column stride is also available as an
+ * IntDoubleVectorSlice. Bulk fills and copies between matrices with unit
+ * column stride work a row at a time with Arrays.fill() and
+ * System.arraycopy(), or in a single call when both are contiguous.
+ * </p>
+ *
+ * @author mgormley
+ */
+public class FlatDoubleMatrix implements DoubleMatrix {
+
+    private static final long serialVersionUID = 1L;
+
+    // Package private to give access to other matrix classes.
+    final double[] elements;
+    final int offset;
+    final int numRows;
+    final int numCols;
+    final int rowStride;
+    final int colStride;
+
+    public FlatDoubleMatrix(int numRows, int numCols) {
+        this(new double[SafeCast.safeLongToInt((long) numRows * numCols)], numRows, numCols);
+    }
+
+    /** Constructs a matrix backed by the given array, in row-major order. */
+    public FlatDoubleMatrix(double[] elements, int numRows, int numCols) {
+        this(elements, 0, numRows, numCols, numCols, 1);
+    }
+
+    /**
+     * Constructs a matrix backed by the given array, where the entry at (row,
+     * col) is elements[offset + row * rowStride + col * colStride].
+     */
+    public FlatDoubleMatrix(double[] elements, int offset, int numRows, int numCols, int rowStride, int colStride) {
+        if (numRows < 0 || numCols < 0 || offset < 0 || rowStride < 0 || colStride < 0) {
+            throw new IllegalStateException("Invalid matrix dimensions");
+        }
+        if (numRows > 0 && numCols > 0) {
+            long last = offset + (long) (numRows - 1) * rowStride + (long) (numCols - 1) * colStride;
+            if (last >= elements.length) {
+                throw new IllegalStateException("Matrix does not fit in the array");
+            }
+        }
+        this.elements = elements;
+        this.offset = offset;
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.rowStride = rowStride;
+        this.colStride = colStride;
+    }
+
+    /** Gets a copy of the given matrix, in row-major order. */
+    public FlatDoubleMatrix(double[][] matrix) {
+        this(matrix.length, matrix[0].length);
+        for (int row=0; row<numRows; row++) {
+            assert(numCols == matrix[row].length);
+            System.arraycopy(matrix[row], 0, elements, row * numCols, numCols);
+        }
+    }
+
+    /** Gets a copy of the given rows, in row-major order. */
+    public FlatDoubleMatrix(IntDoubleDenseVector[] vectors) {
+        this(vectors.length, vectors[0].getNumImplicitEntries());
+        for (int row=0; row<numRows; row++) {
+            setRow(row, vectors[row]);
+        }
+    }
+
+    /** Gets a copy of the given matrix, in row-major order. */
+    public FlatDoubleMatrix(DoubleMatrix other) {
+        this(other.getNumRows(), other.getNumColumns());
+        set(other);
+    }
+
+    /** Gets a deep copy of this matrix, in row-major order. */
+    public FlatDoubleMatrix copy() {
+        return new FlatDoubleMatrix(this);
+    }
+
+    final int getIndex(int row, int col) {
+        if (row < 0 || row >= numRows || col < 0 || col >= numCols) {
+            throw new IllegalStateException("Invalid index for matrix: " + row + ", " + col);
+        }
+        return offset + row * rowStride + col * colStride;
+    }
+
+    /** Gets the position in the array of the first entry of the given row. */
+    final int getRowStart(int row) {
+        if (row < 0 || row >= numRows) {
+            throw new IllegalStateException("Invalid row for matrix: " + row);
+        }
+        return offset + row * rowStride;
+    }
+
+    public double get(int row, int col) {
+        return elements[getIndex(row, col)];
+    }
+
+    public void set(int row, int col, double value) {
+        elements[getIndex(row, col)] = value;
+    }
+
+    public void increment(int row, int col, double incr) {
+        elements[getIndex(row, col)] += incr;
+    }
+
+    public void decrement(int row, int col, double decr) {
+        elements[getIndex(row, col)] -= decr;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return numCols;
+    }
+
+    /** Whether the entries of this matrix fill a range of the array in row-major order. */
+    public boolean isContiguous() {
+        return colStride == 1 && (rowStride == numCols || numRows <= 1);
+    }
+
+    /** Sets all the entries of this matrix to the given value. */
+    public void fill(double value) {
+        if (isContiguous()) {
+            Arrays.fill(elements, offset, offset + numRows * numCols, value);
+        } else if (colStride == 1) {
+            for (int row=0; row<numRows; row++) {
+                int start = offset + row * rowStride;
+                Arrays.fill(elements, start, start + numCols, value);
+            }
+        } else {
+            for (int row=0; row<numRows; row++) {
+                for (int col=0; col<numCols; col++) {
+                    elements[offset + row * rowStride + col * colStride] = value;
+                }
+            }
+        }
+    }
+
+    /** Sets the entries of this matrix to those of other, which must have the same dimensions. */
+    public void set(DoubleMatrix other) {
+        if (numRows != other.getNumRows() || numCols != other.getNumColumns()) {
+            throw new IllegalArgumentException("Matrix dimensions do not match");
+        }
+        if (other instanceof FlatDoubleMatrix) {
+            FlatDoubleMatrix fdm = (FlatDoubleMatrix) other;
+            if (isContiguous() && fdm.isContiguous()) {
+                System.arraycopy(fdm.elements, fdm.offset, elements, offset, numRows * numCols);
+            } else if (colStride == 1 && fdm.colStride == 1) {
+                for (int row=0; row<numRows; row++) {
+                    System.arraycopy(fdm.elements, fdm.offset + row * fdm.rowStride, elements, offset + row * rowStride, numCols);
+                }
+            } else {
+                for (int row=0; row<numRows; row++) {
+                    for (int col=0; col<numCols; col++) {
+                        elements[offset + row * rowStride + col * colStride] =
+                                fdm.elements[fdm.offset + row * fdm.rowStride + col * fdm.colStride];
+                    }
+                }
+            }
+        } else if (other instanceof DenseDoubleMatrix && colStride == 1) {
+            DenseDoubleMatrix ddm = (DenseDoubleMatrix) other;
+            for (int row=0; row<numRows; row++) {
+                System.arraycopy(ddm.matrix[row], 0, elements, offset + row * rowStride, numCols);
+            }
+        } else {
+            for (int row=0; row<numRows; row++) {
+                for (int col=0; col<numCols; col++) {
+                    elements[offset + row * rowStride + col * colStride] = other.get(row, col);
+                }
+            }
+        }
+    }
+
+    /** Gets a view of the given row as a 1 x numCols matrix. */
+    public FlatDoubleMatrix viewRow(int row) {
+        return viewBlock(row, 0, 1, numCols);
+    }
+
+    /** Gets a view of the given column as a numRows x 1 matrix. */
+    public FlatDoubleMatrix viewColumn(int col) {
+        return viewBlock(0, col, numRows, 1);
+    }
+
+    /**
+     * Gets a view of the sub-block with the given number of rows and columns
+     * whose top left entry is at (row, col).
+     */
+    public FlatDoubleMatrix viewBlock(int row, int col, int numBlockRows, int numBlockCols) {
+        if (row < 0 || col < 0 || numBlockRows < 0 || numBlockCols < 0
+                || row + numBlockRows > numRows || col + numBlockCols > numCols) {
+            throw new IllegalStateException("Invalid block indices");
+        }
+        return new FlatDoubleMatrix(elements, offset + row * rowStride + col * colStride, numBlockRows,
+                numBlockCols, rowStride, colStride);
+    }
+
+    /** Gets a view of the transpose of this matrix, which shares its array. */
+    public FlatDoubleMatrix viewTranspose() {
+        return new FlatDoubleMatrix(elements, offset, numCols, numRows, colStride, rowStride);
+    }
+
+    /**
+     * Gets a read/write view of the given row as a vector. This requires the
+     * entries of each row to be adjacent, as they are in any matrix which is
+     * not a view of a transpose.
+     */
+    public IntDoubleVectorSlice getRowSlice(int row) {
+        if (colStride != 1) {
+            throw new IllegalStateException("Row is not contiguous for column stride: " + colStride);
+        }
+        return new IntDoubleVectorSlice(elements, getRowStart(row), numCols);
+    }
+
+    /** Gets a NEW dense vector containing the entries of the given row. */
+    public IntDoubleDenseVector getRow(int row) {
+        double[] vals = new double[numCols];
+        int start = getRowStart(row);
+        if (colStride == 1) {
+            System.arraycopy(elements, start, vals, 0, numCols);
+        } else {
+            for (int col=0; col<numCols; col++) {
+                vals[col] = elements[start + col * colStride];
+            }
+        }
+        return new IntDoubleDenseVector(vals);
+    }
+
+    /**
+     * Sets the entries of the given row to those of the vector. Entries of
+     * the vector past the last column are ignored, and columns past its end
+     * are set to zero.
+     */
+    public void setRow(int row, IntDoubleDenseVector vec) {
+        int start = getRowStart(row);
+        double[] vals = vec.getInternalElements();
+        int n = Math.min(numCols, vec.getNumImplicitEntries());
+        if (colStride == 1) {
+            System.arraycopy(vals, 0, elements, start, n);
+            Arrays.fill(elements, start + n, start + numCols, 0);
+        } else {
+            for (int col=0; col<numCols; col++) {
+                elements[start + col * colStride] = col < n ? vals[col] : 0;
+            }
+        }
+    }
+
+    public void multVector(double[] x, double[] y) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, false);
+        for (int row=0; row<numRows; row++) {
+            int start = offset + row * rowStride;
+            double sum = 0;
+            for (int col=0; col<numCols; col++) {
+                sum += elements[start + col * colStride] * x[col];
+            }
+            y[row] = sum;
+        }
+    }
+
+    public void multTransposeVector(double[] x, double[] y) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, true);
+        Arrays.fill(y, 0.0);
+        // Add in each row scaled by its entry of x, so that the rows are read in order.
+        for (int row=0; row<numRows; row++) {
+            double xi = x[row];
+            if (xi == 0) {
+                continue;
+            }
+            int start = offset + row * rowStride;
+            for (int col=0; col<numCols; col++) {
+                y[col] += elements[start + col * colStride] * xi;
+            }
+        }
+    }
+
+    /** Gets the INTERNAL array backing this matrix. */
+    public double[] getInternalElements() {
+        return elements;
+    }
+
+    /** Gets the position in the internal array of the entry at (0, 0). */
+    public int getOffset() {
+        return offset;
+    }
+
+    /** Gets the distance in the internal array between adjacent rows. */
+    public int getRowStride() {
+        return rowStride;
+    }
+
+    /** Gets the distance in the internal array between adjacent columns. */
+    public int getColStride() {
+        return colStride;
+    }
+
+    /** Gets a NEW array containing the entries of this matrix. */
+    public double[][] toNativeArray() {
+        double[][] matrix = new double[numRows][];
+        for (int row=0; row<numRows; row++) {
+            matrix[row] = getRow(row).getInternalElements();
+        }
+        return matrix;
+    }
+
+    @Override
+    public Iterable<IntDoubleEntry> getRowEntries(int row) {
+        return new FlatDoubleRowIterator(elements, getRowStart(row), numCols, colStride);
+    }
+
+    /**
+     * Iterator over the non-zero entries of a row.
+     */
+    private static class FlatDoubleRowIterator implements Iterator<IntDoubleEntry>, Iterable<IntDoubleEntry> {
+
+        private final double[] elements;
+        private final int start;
+        private final int size;
+        private final int stride;
+        private int cursor;
+
+        public FlatDoubleRowIterator(double[] elements, int start, int size, int stride) {
+            this.elements = elements;
+            this.start = start;
+            this.size = size;
+            this.stride = stride;
+            this.cursor = -1;
+            advance();
+        }
+
+        private final FlatIntDoubleEntry entry = new FlatIntDoubleEntry();
+
+        private void advance() {
+            cursor++;
+            while (cursor < size && elements[start + cursor * stride] == 0) {
+                cursor++;
+            }
+        }
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        public IntDoubleEntry next() {
+            entry.update(cursor);
+            advance();
+            return entry;
+        }
+
+        public void remove() {
+            throw new RuntimeException("not implemented");
+        }
+
+        @Override
+        public Iterator<IntDoubleEntry> iterator() {
+            return this;
+        }
+
+        /**
+         * Entry of a row
+         */
+        private class FlatIntDoubleEntry implements IntDoubleEntry {
+
+            private int cursor = 0;
+
+            public void update(int cursor) {
+                this.cursor = cursor;
+            }
+
+            public int index() {
+                return cursor;
+            }
+
+            public double get() {
+                return elements[start + cursor * stride];
+            }
+
+            public void set(double value) {
+                elements[start + cursor * stride] = value;
+            }
+
+        }
+
+    }
+
+}
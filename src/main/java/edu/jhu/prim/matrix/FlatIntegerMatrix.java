@@ -0,0 +1,385 @@
+package edu.jhu.prim.matrix;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import edu.jhu.prim.map.IntIntEntry;
+import edu.jhu.prim.util.SafeCast;
+import edu.jhu.prim.vector.IntIntDenseVector;
+import edu.jhu.prim.vector.IntIntVectorSlice;
+
+/**
+ * A dense matrix stored in a single flat array. The entry at (row, col) is
+ * elements[offset + row * rowStride + col * colStride], so a new matrix is
+ * stored in row-major order (rowStride = numCols, colStride = 1).
+ * <p>
+ * Views of rows, columns, sub-blocks and the transpose are matrices over the
+ * same array with a different offset and strides, so they are created
+ * without copying and writes through them are visible in this matrix. A row
+ * of a matrix with unit column stride is also available as an
+ * IntIntVectorSlice. Bulk fills and copies between matrices with unit
+ * column stride work a row at a time with Arrays.fill() and
+ * System.arraycopy(), or in a single call when both are contiguous.
+ * </p>
+ *
+ * @author mgormley
+ */
+public class FlatIntegerMatrix implements IntegerMatrix {
+
+    private static final long serialVersionUID = 1L;
+
+    // Package private to give access to other matrix classes.
+    final int[] elements;
+    final int offset;
+    final int numRows;
+    final int numCols;
+    final int rowStride;
+    final int colStride;
+
+    public FlatIntegerMatrix(int numRows, int numCols) {
+        this(new int[SafeCast.safeLongToInt((long) numRows * numCols)], numRows, numCols);
+    }
+
+    /** Constructs a matrix backed by the given array, in row-major order. */
+    public FlatIntegerMatrix(int[] elements, int numRows, int numCols) {
+        this(elements, 0, numRows, numCols, numCols, 1);
+    }
+
+    /**
+     * Constructs a matrix backed by the given array, where the entry at (row,
+     * col) is elements[offset + row * rowStride + col * colStride].
+     */
+    public FlatIntegerMatrix(int[] elements, int offset, int numRows, int numCols, int rowStride, int colStride) {
+        if (numRows < 0 || numCols < 0 || offset < 0 || rowStride < 0 || colStride < 0) {
+            throw new IllegalStateException("Invalid matrix dimensions");
+        }
+        if (numRows > 0 && numCols > 0) {
+            long last = offset + (long) (numRows - 1) * rowStride + (long) (numCols - 1) * colStride;
+            if (last >= elements.length) {
+                throw new IllegalStateException("Matrix does not fit in the array");
+            }
+        }
+        this.elements = elements;
+        this.offset = offset;
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.rowStride = rowStride;
+        this.colStride = colStride;
+    }
+
+    /** Gets a copy of the given matrix, in row-major order. */
+    public FlatIntegerMatrix(int[][] matrix) {
+        this(matrix.length, matrix[0].length);
+        for (int row=0; row<numRows; row++) {
+            assert(numCols == matrix[row].length);
+            System.arraycopy(matrix[row], 0, elements, row * numCols, numCols);
+        }
+    }
+
+    /** Gets a copy of the given rows, in row-major order. */
+    public FlatIntegerMatrix(IntIntDenseVector[] vectors) {
+        this(vectors.length, vectors[0].getNumImplicitEntries());
+        for (int row=0; row<numRows; row++) {
+            setRow(row, vectors[row]);
+        }
+    }
+
+    /** Gets a copy of the given matrix, in row-major order. */
+    public FlatIntegerMatrix(IntegerMatrix other) {
+        this(other.getNumRows(), other.getNumColumns());
+        set(other);
+    }
+
+    /** Gets a deep copy of this matrix, in row-major order. */
+    public FlatIntegerMatrix copy() {
+        return new FlatIntegerMatrix(this);
+    }
+
+    final int getIndex(int row, int col) {
+        if (row < 0 || row >= numRows || col < 0 || col >= numCols) {
+            throw new IllegalStateException("Invalid index for matrix: " + row + ", " + col);
+        }
+        return offset + row * rowStride + col * colStride;
+    }
+
+    /** Gets the position in the array of the first entry of the given row. */
+    final int getRowStart(int row) {
+        if (row < 0 || row >= numRows) {
+            throw new IllegalStateException("Invalid row for matrix: " + row);
+        }
+        return offset + row * rowStride;
+    }
+
+    public int get(int row, int col) {
+        return elements[getIndex(row, col)];
+    }
+
+    public void set(int row, int col, int value) {
+        elements[getIndex(row, col)] = value;
+    }
+
+    public void increment(int row, int col, int incr) {
+        elements[getIndex(row, col)] += incr;
+    }
+
+    public void decrement(int row, int col, int decr) {
+        elements[getIndex(row, col)] -= decr;
+    }
+
+    public void increment(int row, int col) {
+        elements[getIndex(row, col)]++;
+    }
+
+    public void decrement(int row, int col) {
+        elements[getIndex(row, col)]--;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return numCols;
+    }
+
+    /** Whether the entries of this matrix fill a range of the array in row-major order. */
+    public boolean isContiguous() {
+        return colStride == 1 && (rowStride == numCols || numRows <= 1);
+    }
+
+    /** Sets all the entries of this matrix to the given value. */
+    public void fill(int value) {
+        if (isContiguous()) {
+            Arrays.fill(elements, offset, offset + numRows * numCols, value);
+        } else if (colStride == 1) {
+            for (int row=0; row<numRows; row++) {
+                int start = offset + row * rowStride;
+                Arrays.fill(elements, start, start + numCols, value);
+            }
+        } else {
+            for (int row=0; row<numRows; row++) {
+                for (int col=0; col<numCols; col++) {
+                    elements[offset + row * rowStride + col * colStride] = value;
+                }
+            }
+        }
+    }
+
+    /** Sets the entries of this matrix to those of other, which must have the same dimensions. */
+    public void set(IntegerMatrix other) {
+        if (numRows != other.getNumRows() || numCols != other.getNumColumns()) {
+            throw new IllegalArgumentException("Matrix dimensions do not match");
+        }
+        if (other instanceof FlatIntegerMatrix) {
+            FlatIntegerMatrix fim = (FlatIntegerMatrix) other;
+            if (isContiguous() && fim.isContiguous()) {
+                System.arraycopy(fim.elements, fim.offset, elements, offset, numRows * numCols);
+            } else if (colStride == 1 && fim.colStride == 1) {
+                for (int row=0; row<numRows; row++) {
+                    System.arraycopy(fim.elements, fim.offset + row * fim.rowStride, elements, offset + row * rowStride, numCols);
+                }
+            } else {
+                for (int row=0; row<numRows; row++) {
+                    for (int col=0; col<numCols; col++) {
+                        elements[offset + row * rowStride + col * colStride] =
+                                fim.elements[fim.offset + row * fim.rowStride + col * fim.colStride];
+                    }
+                }
+            }
+        } else if (other instanceof DenseIntegerMatrix && colStride == 1) {
+            DenseIntegerMatrix dim = (DenseIntegerMatrix) other;
+            for (int row=0; row<numRows; row++) {
+                System.arraycopy(dim.getMatrix()[row], 0, elements, offset + row * rowStride, numCols);
+            }
+        } else {
+            for (int row=0; row<numRows; row++) {
+                for (int col=0; col<numCols; col++) {
+                    elements[offset + row * rowStride + col * colStride] = other.get(row, col);
+                }
+            }
+        }
+    }
+
+    /** Gets a view of the given row as a 1 x numCols matrix. */
+    public FlatIntegerMatrix viewRow(int row) {
+        return viewBlock(row, 0, 1, numCols);
+    }
+
+    /** Gets a view of the given column as a numRows x 1 matrix. */
+    public FlatIntegerMatrix viewColumn(int col) {
+        return viewBlock(0, col, numRows, 1);
+    }
+
+    /**
+     * Gets a view of the sub-block with the given number of rows and columns
+     * whose top left entry is at (row, col).
+     */
+    public FlatIntegerMatrix viewBlock(int row, int col, int numBlockRows, int numBlockCols) {
+        if (row < 0 || col < 0 || numBlockRows < 0 || numBlockCols < 0
+                || row + numBlockRows > numRows || col + numBlockCols > numCols) {
+            throw new IllegalStateException("Invalid block indices");
+        }
+        return new FlatIntegerMatrix(elements, offset + row * rowStride + col * colStride, numBlockRows,
+                numBlockCols, rowStride, colStride);
+    }
+
+    /** Gets a view of the transpose of this matrix, which shares its array. */
+    public FlatIntegerMatrix viewTranspose() {
+        return new FlatIntegerMatrix(elements, offset, numCols, numRows, colStride, rowStride);
+    }
+
+    /**
+     * Gets a read/write view of the given row as a vector. This requires the
+     * entries of each row to be adjacent, as they are in any matrix which is
+     * not a view of a transpose.
+     */
+    public IntIntVectorSlice getRowSlice(int row) {
+        if (colStride != 1) {
+            throw new IllegalStateException("Row is not contiguous for column stride: " + colStride);
+        }
+        return new IntIntVectorSlice(elements, getRowStart(row), numCols);
+    }
+
+    /** Gets a NEW dense vector containing the entries of the given row. */
+    public IntIntDenseVector getRow(int row) {
+        int[] vals = new int[numCols];
+        int start = getRowStart(row);
+        if (colStride == 1) {
+            System.arraycopy(elements, start, vals, 0, numCols);
+        } else {
+            for (int col=0; col<numCols; col++) {
+                vals[col] = elements[start + col * colStride];
+            }
+        }
+        return new IntIntDenseVector(vals);
+    }
+
+    /**
+     * Sets the entries of the given row to those of the vector. Entries of
+     * the vector past the last column are ignored, and columns past its end
+     * are set to zero.
+     */
+    public void setRow(int row, IntIntDenseVector vec) {
+        int start = getRowStart(row);
+        int[] vals = vec.getInternalElements();
+        int n = Math.min(numCols, vec.getNumImplicitEntries());
+        if (colStride == 1) {
+            System.arraycopy(vals, 0, elements, start, n);
+            Arrays.fill(elements, start + n, start + numCols, 0);
+        } else {
+            for (int col=0; col<numCols; col++) {
+                elements[start + col * colStride] = col < n ? vals[col] : 0;
+            }
+        }
+    }
+
+    /** Gets the INTERNAL array backing this matrix. */
+    public int[] getInternalElements() {
+        return elements;
+    }
+
+    /** Gets the position in the internal array of the entry at (0, 0). */
+    public int getOffset() {
+        return offset;
+    }
+
+    /** Gets the distance in the internal array between adjacent rows. */
+    public int getRowStride() {
+        return rowStride;
+    }
+
+    /** Gets the distance in the internal array between adjacent columns. */
+    public int getColStride() {
+        return colStride;
+    }
+
+    /** Gets a NEW array containing the entries of this matrix. */
+    public int[][] toNativeArray() {
+        int[][] matrix = new int[numRows][];
+        for (int row=0; row<numRows; row++) {
+            matrix[row] = getRow(row).getInternalElements();
+        }
+        return matrix;
+    }
+
+    @Override
+    public Iterable<IntIntEntry> getRowEntries(int row) {
+        return new FlatIntRowIterator(elements, getRowStart(row), numCols, colStride);
+    }
+
+    /**
+     * Iterator over the non-zero entries of a row.
+     */
+    private static class FlatIntRowIterator implements Iterator<IntIntEntry>, Iterable<IntIntEntry> {
+
+        private final int[] elements;
+        private final int start;
+        private final int size;
+        private final int stride;
+        private int cursor;
+
+        public FlatIntRowIterator(int[] elements, int start, int size, int stride) {
+            this.elements = elements;
+            this.start = start;
+            this.size = size;
+            this.stride = stride;
+            this.cursor = -1;
+            advance();
+        }
+
+        private final FlatIntIntEntry entry = new FlatIntIntEntry();
+
+        private void advance() {
+            cursor++;
+            while (cursor < size && elements[start + cursor * stride] == 0) {
+                cursor++;
+            }
+        }
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        public IntIntEntry next() {
+            entry.update(cursor);
+            advance();
+            return entry;
+        }
+
+        public void remove() {
+            throw new RuntimeException("not implemented");
+        }
+
+        @Override
+        public Iterator<IntIntEntry> iterator() {
+            return this;
+        }
+
+        /**
+         * Entry of a row
+         */
+        private class FlatIntIntEntry implements IntIntEntry {
+
+            private int cursor = 0;
+
+            public void update(int cursor) {
+                this.cursor = cursor;
+            }
+
+            public int index() {
+                return cursor;
+            }
+
+            public int get() {
+                return elements[start + cursor * stride];
+            }
+
+            public void set(int value) {
+                elements[start + cursor * stride] = value;
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,587 @@
+package edu.jhu.prim.matrix;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import edu.jhu.prim.Primitives;
+import edu.jhu.prim.map.IntDoubleEntry;
+import edu.jhu.prim.util.InternalDirectBuffers;
+
+/**
+ * A dense matrix stored in a memory mapped file, for tables too large to hold
+ * on the Java heap (e.g. word embeddings).
+ * <p>
+ * The file consists of a fixed-size header followed by the entries in
+ * row-major order, as either 8-byte doubles or 4-byte floats (see
+ * {@link ElementType}). The header holds the magic number, the format version,
+ * the number of bytes per entry, the number of rows and the number of columns.
+ * Since a single buffer is limited to 2 GB, the rows are split across several
+ * mapped buffers, each holding a whole number of rows, so that every row is
+ * contiguous in one buffer.
+ * </p>
+ * <p>
+ * A file is created with {@link #create(File, int, int, ElementType)} and
+ * opened with {@link #openReadOnly(File)} or {@link #openReadWrite(File)}.
+ * Nothing is copied onto the heap: reads and writes go directly to the mapped
+ * pages. Rows can be viewed without copying as a DoubleBuffer or FloatBuffer,
+ * and {@link #gatherRows(int[], double[], int)} copies a batch of rows into a
+ * caller's array. A matrix opened read-only throws an
+ * <code>IllegalStateException</code> from all of its mutators.
+ * </p>
+ * <p>
+ * {@link #close()} unmaps the file at once, rather than waiting for the
+ * garbage collector to do so, so that the file can then be deleted or
+ * replaced. Afterwards, all methods which access the entries throw an
+ * <code>IllegalStateException</code>, and the views of rows must not be used.
+ * </p>
+ * <p>
+ * Reads use only absolute gets or private duplicates of the buffers, so any
+ * number of threads may read concurrently. Writes are not synchronized, and
+ * neither is close().
+ * </p>
+ *
+ * @author mgormley
+ */
+public class MappedDoubleMatrix implements DoubleMatrix, Closeable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Magic number at the start of the file format. */
+    private static final int MAGIC = 0x5052494d;
+
+    /** Version of the file format. */
+    private static final int VERSION = 1;
+
+    /** Number of bytes reserved for the file header. */
+    private static final int HEADER_BYTES = 64;
+
+    /** Byte order of the buffers and the file format. */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /** Default maximum number of bytes in one mapped buffer. */
+    static final int MAX_SEGMENT_BYTES = 1 << 30;
+
+    /** Types of the entries stored in the file. */
+    public enum ElementType {
+        /** 8-byte doubles. */
+        FLOAT64(Primitives.DOUBLE_NUM_BYTES),
+        /** 4-byte floats, which halve the file size at the cost of precision. */
+        FLOAT32(Primitives.FLOAT_NUM_BYTES);
+
+        private final int numBytes;
+
+        private ElementType(int numBytes) {
+            this.numBytes = numBytes;
+        }
+
+        /** Gets the number of bytes in one entry. */
+        public int getNumBytes() {
+            return numBytes;
+        }
+
+        private static ElementType forNumBytes(int numBytes) {
+            for (ElementType type : values()) {
+                if (type.numBytes == numBytes) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final int numRows;
+    private final int numCols;
+    private final ElementType type;
+    private final boolean readOnly;
+    /** Number of rows in each buffer (the last may hold fewer). */
+    private final int rowsPerSegment;
+    /** Buffers holding the rows, or null once closed. */
+    private transient MappedByteBuffer[] segments;
+    /** Views of the buffers as doubles, or null for FLOAT32 (or once closed). */
+    private transient DoubleBuffer[] doubles;
+    /** Views of the buffers as floats, or null for FLOAT64 (or once closed). */
+    private transient FloatBuffer[] floats;
+
+    private MappedDoubleMatrix(int numRows, int numCols, ElementType type, boolean readOnly, int rowsPerSegment,
+            MappedByteBuffer[] segments) {
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.type = type;
+        this.readOnly = readOnly;
+        this.rowsPerSegment = rowsPerSegment;
+        this.segments = segments;
+        if (type == ElementType.FLOAT64) {
+            this.doubles = new DoubleBuffer[segments.length];
+            this.floats = null;
+            for (int s=0; s<segments.length; s++) {
+                doubles[s] = segments[s].asDoubleBuffer();
+            }
+        } else {
+            this.doubles = null;
+            this.floats = new FloatBuffer[segments.length];
+            for (int s=0; s<segments.length; s++) {
+                floats[s] = segments[s].asFloatBuffer();
+            }
+        }
+    }
+
+    /**
+     * Creates a file holding a matrix of zeros, replacing any existing file,
+     * and opens it read-write.
+     * @param file the file to create
+     * @param numRows the number of rows
+     * @param numCols the number of columns
+     * @param type the type of the entries in the file
+     * @return a read-write matrix over the file
+     * @throws IOException if the file cannot be written
+     */
+    public static MappedDoubleMatrix create(File file, int numRows, int numCols, ElementType type) throws IOException {
+        return create(file, numRows, numCols, type, MAX_SEGMENT_BYTES);
+    }
+
+    /**
+     * Creates a file holding a copy of the given matrix, replacing any
+     * existing file, and opens it read-write.
+     * @param file the file to create
+     * @param other the matrix to copy
+     * @param type the type of the entries in the file
+     * @return a read-write matrix over the file
+     * @throws IOException if the file cannot be written
+     */
+    public static MappedDoubleMatrix create(File file, DoubleMatrix other, ElementType type) throws IOException {
+        MappedDoubleMatrix mat = create(file, other.getNumRows(), other.getNumColumns(), type);
+        mat.set(other);
+        return mat;
+    }
+
+    static MappedDoubleMatrix create(File file, int numRows, int numCols, ElementType type, int maxSegmentBytes)
+            throws IOException {
+        if (numRows < 0 || numCols < 0) {
+            throw new IllegalArgumentException("Invalid matrix dimensions");
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            // Extending the file fills it with zeros, without writing the rows.
+            raf.setLength(0);
+            raf.setLength(HEADER_BYTES + (long) numRows * numCols * type.numBytes);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(type.numBytes);
+            header.putInt(numRows);
+            header.putInt(numCols);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            return map(channel, numRows, numCols, type, false, maxSegmentBytes);
+        } finally {
+            // The mappings remain valid after the channel is closed.
+            raf.close();
+        }
+    }
+
+    /**
+     * Opens a file written by {@link #create(File, int, int, ElementType)} by
+     * memory mapping it read-only.
+     * @param file the file to open
+     * @return a read-only matrix over the file
+     * @throws IOException if the file cannot be read or is not in the expected format
+     */
+    public static MappedDoubleMatrix openReadOnly(File file) throws IOException {
+        return open(file, true, MAX_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens a file written by {@link #create(File, int, int, ElementType)} by
+     * memory mapping it read-write. Changes are written back to the file by
+     * the operating system, or immediately by {@link #flush()}.
+     * @param file the file to open
+     * @return a read-write matrix over the file
+     * @throws IOException if the file cannot be read or written, or is not in
+     *             the expected format
+     */
+    public static MappedDoubleMatrix openReadWrite(File file) throws IOException {
+        return open(file, false, MAX_SEGMENT_BYTES);
+    }
+
+    static MappedDoubleMatrix open(File file, boolean readOnly, int maxSegmentBytes) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, readOnly ? "r" : "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a matrix file: " + file);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Not a matrix file: " + file);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a matrix file of a supported version: " + file);
+            }
+            ElementType type = ElementType.forNumBytes(header.getInt());
+            int numRows = header.getInt();
+            int numCols = header.getInt();
+            if (type == null || numRows < 0 || numCols < 0) {
+                throw new IOException("Matrix file has an invalid header: " + file);
+            }
+            if (channel.size() != HEADER_BYTES + (long) numRows * numCols * type.numBytes) {
+                throw new IOException("Matrix file has the wrong length: " + file);
+            }
+            return map(channel, numRows, numCols, type, readOnly, maxSegmentBytes);
+        } finally {
+            // The mappings remain valid after the channel is closed.
+            raf.close();
+        }
+    }
+
+    /** Maps the rows of a file whose header has been written or checked. */
+    private static MappedDoubleMatrix map(FileChannel channel, int numRows, int numCols, ElementType type,
+            boolean readOnly, int maxSegmentBytes) throws IOException {
+        long rowBytes = (long) numCols * type.numBytes;
+        if (rowBytes > maxSegmentBytes) {
+            throw new IllegalArgumentException("Too many columns to map: " + numCols);
+        }
+        int rowsPerSegment = rowBytes == 0 ? Math.max(1, numRows) : (int) (maxSegmentBytes / rowBytes);
+        int numSegments = numRows == 0 ? 0 : (numRows - 1) / rowsPerSegment + 1;
+        MappedByteBuffer[] segments = new MappedByteBuffer[numSegments];
+        FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+        for (int s=0; s<numSegments; s++) {
+            int segRows = Math.min(rowsPerSegment, numRows - s * rowsPerSegment);
+            long position = HEADER_BYTES + (long) s * rowsPerSegment * rowBytes;
+            segments[s] = channel.map(mode, position, segRows * rowBytes);
+            segments[s].order(ORDER);
+        }
+        return new MappedDoubleMatrix(numRows, numCols, type, readOnly, rowsPerSegment, segments);
+    }
+
+    /** Writes any changes to the file. This does nothing for a read-only matrix. */
+    public void flush() {
+        checkOpen();
+        if (!readOnly) {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * Writes any changes to the file, if it was opened read-write, and unmaps
+     * it. Closing a closed matrix has no effect.
+     */
+    public void close() {
+        final MappedByteBuffer[] oldSegments = segments;
+        if (oldSegments != null) {
+            flush();
+            // Clear the references first, so that the unmapped memory cannot be reached.
+            segments = null;
+            doubles = null;
+            floats = null;
+            for (MappedByteBuffer segment : oldSegments) {
+                InternalDirectBuffers.free(segment);
+            }
+        }
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return numCols;
+    }
+
+    /** Gets the type of the entries in the file. */
+    public ElementType getElementType() {
+        return type;
+    }
+
+    /** Returns true iff this matrix is backed by a file opened read-only. */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    private void checkOpen() {
+        if (segments == null) {
+            throw new IllegalStateException("This matrix is closed");
+        }
+    }
+
+    private void checkWritable() {
+        checkOpen();
+        if (readOnly) {
+            throw new IllegalStateException("This matrix was opened read-only");
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= numRows) {
+            throw new IllegalStateException("Invalid row for matrix: " + row);
+        }
+    }
+
+    /** Gets the position of the first entry of the given row in its buffer. */
+    private int getRowStart(int row) {
+        return (row % rowsPerSegment) * numCols;
+    }
+
+    private int getIndex(int row, int col) {
+        checkOpen();
+        if (row < 0 || row >= numRows || col < 0 || col >= numCols) {
+            throw new IllegalStateException("Invalid index for matrix: " + row + ", " + col);
+        }
+        return getRowStart(row) + col;
+    }
+
+    public double get(int row, int col) {
+        int i = getIndex(row, col);
+        int s = row / rowsPerSegment;
+        return doubles != null ? doubles[s].get(i) : floats[s].get(i);
+    }
+
+    public void set(int row, int col, double value) {
+        checkWritable();
+        int i = getIndex(row, col);
+        int s = row / rowsPerSegment;
+        if (doubles != null) {
+            doubles[s].put(i, value);
+        } else {
+            floats[s].put(i, (float) value);
+        }
+    }
+
+    public void increment(int row, int col, double incr) {
+        set(row, col, get(row, col) + incr);
+    }
+
+    public void decrement(int row, int col, double decr) {
+        set(row, col, get(row, col) - decr);
+    }
+
+    /** Sets the entries of this matrix to those of other, which must have the same dimensions. */
+    public void set(DoubleMatrix other) {
+        checkWritable();
+        if (numRows != other.getNumRows() || numCols != other.getNumColumns()) {
+            throw new IllegalArgumentException("Matrix dimensions do not match");
+        }
+        if (other instanceof DenseDoubleMatrix) {
+            DenseDoubleMatrix ddm = (DenseDoubleMatrix) other;
+            for (int row=0; row<numRows; row++) {
+                setRow(row, ddm.matrix[row], 0);
+            }
+        } else {
+            double[] vals = new double[numCols];
+            for (int row=0; row<numRows; row++) {
+                for (int col=0; col<numCols; col++) {
+                    vals[col] = other.get(row, col);
+                }
+                setRow(row, vals, 0);
+            }
+        }
+    }
+
+    /**
+     * Gets a view of the given row as a buffer of numCols doubles, which is
+     * read-only if this matrix is. The view is not copied: writes through it
+     * change the file. This requires FLOAT64 entries.
+     */
+    public DoubleBuffer viewRowDoubles(int row) {
+        checkOpen();
+        if (doubles == null) {
+            throw new IllegalStateException("Matrix entries are not doubles: " + type);
+        }
+        checkRow(row);
+        DoubleBuffer buf = doubles[row / rowsPerSegment].duplicate();
+        int start = getRowStart(row);
+        buf.limit(start + numCols).position(start);
+        return buf.slice();
+    }
+
+    /**
+     * Gets a view of the given row as a buffer of numCols floats, which is
+     * read-only if this matrix is. The view is not copied: writes through it
+     * change the file. This requires FLOAT32 entries.
+     */
+    public FloatBuffer viewRowFloats(int row) {
+        checkOpen();
+        if (floats == null) {
+            throw new IllegalStateException("Matrix entries are not floats: " + type);
+        }
+        checkRow(row);
+        FloatBuffer buf = floats[row / rowsPerSegment].duplicate();
+        int start = getRowStart(row);
+        buf.limit(start + numCols).position(start);
+        return buf.slice();
+    }
+
+    /** Copies the given row into dest, starting at destOffset. */
+    public void getRow(int row, double[] dest, int destOffset) {
+        gatherRows(new int[]{ row }, dest, destOffset);
+    }
+
+    /** Sets the given row to the numCols values in src starting at srcOffset. */
+    public void setRow(int row, double[] src, int srcOffset) {
+        checkWritable();
+        checkRow(row);
+        int s = row / rowsPerSegment;
+        int start = getRowStart(row);
+        if (doubles != null) {
+            DoubleBuffer buf = doubles[s].duplicate();
+            buf.position(start);
+            buf.put(src, srcOffset, numCols);
+        } else {
+            FloatBuffer buf = floats[s];
+            for (int col=0; col<numCols; col++) {
+                buf.put(start + col, (float) src[srcOffset + col]);
+            }
+        }
+    }
+
+    /**
+     * Copies the given rows into dest, one after another in row-major order
+     * starting at destOffset, e.g. to build a mini-batch. The array must have
+     * room for rows.length * numCols entries.
+     */
+    public void gatherRows(int[] rows, double[] dest, int destOffset) {
+        checkGather(rows, dest.length, destOffset);
+        DoubleBuffer[] dups = doubles != null ? new DoubleBuffer[doubles.length] : null;
+        int d = destOffset;
+        for (int row : rows) {
+            checkRow(row);
+            int s = row / rowsPerSegment;
+            int start = getRowStart(row);
+            if (dups != null) {
+                if (dups[s] == null) {
+                    dups[s] = doubles[s].duplicate();
+                }
+                dups[s].position(start);
+                dups[s].get(dest, d, numCols);
+            } else {
+                FloatBuffer buf = floats[s];
+                for (int col=0; col<numCols; col++) {
+                    dest[d + col] = buf.get(start + col);
+                }
+            }
+            d += numCols;
+        }
+    }
+
+    /**
+     * Like {@link #gatherRows(int[], double[], int)}, but copies into an array
+     * of floats. Doubles are rounded to the nearest float.
+     */
+    public void gatherRows(int[] rows, float[] dest, int destOffset) {
+        checkGather(rows, dest.length, destOffset);
+        FloatBuffer[] dups = floats != null ? new FloatBuffer[floats.length] : null;
+        int d = destOffset;
+        for (int row : rows) {
+            checkRow(row);
+            int s = row / rowsPerSegment;
+            int start = getRowStart(row);
+            if (dups != null) {
+                if (dups[s] == null) {
+                    dups[s] = floats[s].duplicate();
+                }
+                dups[s].position(start);
+                dups[s].get(dest, d, numCols);
+            } else {
+                DoubleBuffer buf = doubles[s];
+                for (int col=0; col<numCols; col++) {
+                    dest[d + col] = (float) buf.get(start + col);
+                }
+            }
+            d += numCols;
+        }
+    }
+
+    private void checkGather(int[] rows, int destLength, int destOffset) {
+        checkOpen();
+        if (destOffset < 0 || destOffset + (long) rows.length * numCols > destLength) {
+            throw new IllegalArgumentException("Destination array is too small for " + rows.length + " rows");
+        }
+    }
+
+    /** Gets the non-zeros of a copy of the given row. */
+    @Override
+    public Iterable<IntDoubleEntry> getRowEntries(int row) {
+        double[] vals = new double[numCols];
+        getRow(row, vals, 0);
+        return new FlatDoubleMatrix(vals, 1, numCols).getRowEntries(0);
+    }
+
+    public DoubleMatrix viewTranspose() {
+        return new TransposeView(this);
+    }
+
+    public void multVector(double[] x, double[] y) {
+        checkOpen();
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, false);
+        for (int row=0; row<numRows; row++) {
+            int s = row / rowsPerSegment;
+            int start = getRowStart(row);
+            double sum = 0;
+            if (doubles != null) {
+                DoubleBuffer buf = doubles[s];
+                for (int col=0; col<numCols; col++) {
+                    sum += buf.get(start + col) * x[col];
+                }
+            } else {
+                FloatBuffer buf = floats[s];
+                for (int col=0; col<numCols; col++) {
+                    sum += buf.get(start + col) * x[col];
+                }
+            }
+            y[row] = sum;
+        }
+    }
+
+    public void multTransposeVector(double[] x, double[] y) {
+        checkOpen();
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, true);
+        Arrays.fill(y, 0.0);
+        // Add in each row scaled by its entry of x, so that the file is read in order.
+        for (int row=0; row<numRows; row++) {
+            double xi = x[row];
+            if (xi == 0) {
+                continue;
+            }
+            int s = row / rowsPerSegment;
+            int start = getRowStart(row);
+            if (doubles != null) {
+                DoubleBuffer buf = doubles[s];
+                for (int col=0; col<numCols; col++) {
+                    y[col] += buf.get(start + col) * xi;
+                }
+            } else {
+                FloatBuffer buf = floats[s];
+                for (int col=0; col<numCols; col++) {
+                    y[col] += buf.get(start + col) * xi;
+                }
+            }
+        }
+    }
+
+    /**
+     * A mapped matrix is not serializable, since it is only a view of its
+     * file. Copy it to a heap matrix (e.g. a FlatDoubleMatrix) first.
+     */
+    private void writeObject(final ObjectOutputStream stream) throws IOException {
+        throw new NotSerializableException("MappedDoubleMatrix is backed by a file");
+    }
+
+}
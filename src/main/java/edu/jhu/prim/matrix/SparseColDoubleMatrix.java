@@ -1,5 +1,8 @@
 package edu.jhu.prim.matrix;
 
+import java.util.concurrent.ForkJoinPool;
+
+import edu.jhu.prim.arrays.DoubleArrays;
 import edu.jhu.prim.map.IntDoubleEntry;
 import edu.jhu.prim.vector.IntDoubleSortedVector;
 
@@ -110,6 +113,44 @@ public class SparseColDoubleMatrix implements DoubleMatrix {
         return new TransposeView(this);
     }
     
+    public void multVector(double[] x, double[] y) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, false);
+        DoubleArrays.fill(y, 0.0);
+        for (int col = 0; col < numCols; col++) {
+            double xj = x[col];
+            if (xj == 0) {
+                continue;
+            }
+            int[] idx = cols[col].getInternalIndices();
+            double[] vals = cols[col].getInternalValues();
+            int nnz = cols[col].getUsed();
+            for (int t = 0; t < nnz; t++) {
+                y[idx[t]] += vals[t] * xj;
+            }
+        }
+    }
+
+    public void multTransposeVector(double[] x, double[] y) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, true);
+        DoubleMatrixKernels.multVectorSparseRow(cols, x, y, null);
+    }
+
+    /**
+     * Like {@link #multTransposeVector(double[], double[])}, but splits the
+     * columns into blocks with about the same number of non-zeros, which are
+     * multiplied in parallel on the common fork-join pool. Small matrices are
+     * multiplied sequentially.
+     */
+    public void parallelMultTransposeVector(double[] x, double[] y) {
+        parallelMultTransposeVector(x, y, ForkJoinPool.commonPool());
+    }
+
+    /** Like {@link #parallelMultTransposeVector(double[], double[])}, but runs on the given pool. */
+    public void parallelMultTransposeVector(double[] x, double[] y, ForkJoinPool pool) {
+        SparseRowDoubleMatrix.checkMultVectorDimensions(this, x, y, true);
+        DoubleMatrixKernels.multVectorSparseRow(cols, x, y, pool);
+    }
+
     /**
      * Multiplies A x B = C, where A is this matrix. 
      * 
@@ -135,6 +176,15 @@ public class SparseColDoubleMatrix implements DoubleMatrix {
      * @param transposeB Whether to transpose B prior to multiplication.
      */
     public void multT(DoubleMatrix bMat, DoubleMatrix cMat, boolean transposeA, boolean transposeB) {
+        multT(bMat, cMat, transposeA, transposeB, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #multT(DoubleMatrix, DoubleMatrix, boolean, boolean)}, but
+     * runs on the given pool. A dense B and C are multiplied in blocks of
+     * rows of C, which are computed in parallel for large products.
+     */
+    public void multT(DoubleMatrix bMat, DoubleMatrix cMat, boolean transposeA, boolean transposeB, ForkJoinPool pool) {
         if (!transposeA) {            
             throw new IllegalArgumentException("Multiplication where this matrix NOT transposed is not implemented.");
         }
@@ -144,7 +194,10 @@ public class SparseColDoubleMatrix implements DoubleMatrix {
         int numRowsC = cMat.getNumRows();
         int numColsC = cMat.getNumColumns();
         
-        if (bMat instanceof DenseDoubleMatrix) {
+        if (bMat instanceof DenseDoubleMatrix && cMat instanceof DenseDoubleMatrix) {
+            DenseDoubleMatrix denseBMat = (DenseDoubleMatrix) bMat;
+            DoubleMatrixKernels.multSparseColTDense(this.cols, denseBMat.matrix, transposeB, ((DenseDoubleMatrix) cMat).matrix, pool);
+        } else if (bMat instanceof DenseDoubleMatrix) {
             DenseDoubleMatrix denseBMat = (DenseDoubleMatrix) bMat;
             for (int row = 0; row < numRowsC; row++) {
                 for (int col = 0; col < numColsC; col++) {
@@ -1,5 +1,8 @@
 package edu.jhu.prim.matrix;
 
+import java.util.concurrent.ForkJoinPool;
+
+import edu.jhu.prim.arrays.DoubleArrays;
 import edu.jhu.prim.map.IntDoubleEntry;
 import edu.jhu.prim.vector.IntDoubleSortedVector;
 
@@ -135,6 +138,44 @@ public class SparseRowDoubleMatrix implements DoubleMatrix {
         }
     }
 
+    public void multVector(double[] x, double[] y) {
+        checkMultVectorDimensions(this, x, y, false);
+        DoubleMatrixKernels.multVectorSparseRow(rows, x, y, null);
+    }
+
+    /**
+     * Like {@link #multVector(double[], double[])}, but splits the rows into
+     * blocks with about the same number of non-zeros, which are multiplied in
+     * parallel on the common fork-join pool. Small matrices are multiplied
+     * sequentially.
+     */
+    public void parallelMultVector(double[] x, double[] y) {
+        parallelMultVector(x, y, ForkJoinPool.commonPool());
+    }
+
+    /** Like {@link #parallelMultVector(double[], double[])}, but runs on the given pool. */
+    public void parallelMultVector(double[] x, double[] y, ForkJoinPool pool) {
+        checkMultVectorDimensions(this, x, y, false);
+        DoubleMatrixKernels.multVectorSparseRow(rows, x, y, pool);
+    }
+
+    public void multTransposeVector(double[] x, double[] y) {
+        checkMultVectorDimensions(this, x, y, true);
+        DoubleArrays.fill(y, 0.0);
+        for (int row = 0; row < numRows; row++) {
+            double xi = x[row];
+            if (xi == 0) {
+                continue;
+            }
+            int[] idx = rows[row].getInternalIndices();
+            double[] vals = rows[row].getInternalValues();
+            int nnz = rows[row].getUsed();
+            for (int t = 0; t < nnz; t++) {
+                y[idx[t]] += vals[t] * xi;
+            }
+        }
+    }
+
     public static void checkMultDimensions(
             DoubleMatrix aMat,
             DoubleMatrix bMat, DoubleMatrix cMat) {
@@ -143,5 +184,13 @@ public class SparseRowDoubleMatrix implements DoubleMatrix {
         }
     }
 
+    public static void checkMultVectorDimensions(DoubleMatrix aMat, double[] x, double[] y, boolean transposeA) {
+        int numRows = transposeA ? aMat.getNumColumns() : aMat.getNumRows();
+        int numCols = transposeA ? aMat.getNumRows() : aMat.getNumColumns();
+        if (x.length != numCols || y.length != numRows) {
+            throw new IllegalArgumentException("Invalid vector dimensions for multiplication.");
+        }
+    }
+
     
 }
@@ -68,5 +68,15 @@ public class TransposeView implements DoubleMatrix {
     public DoubleMatrix viewTranspose() {
         return mat;
     }
+
+    @Override
+    public void multVector(double[] x, double[] y) {
+        mat.multTransposeVector(x, y);
+    }
+
+    @Override
+    public void multTransposeVector(double[] x, double[] y) {
+        mat.multVector(x, y);
+    }
     
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package edu.jhu.prim.set;
 
+import edu.jhu.prim.Primitives;
 import edu.jhu.prim.iter.LongArrayIter;
+import edu.jhu.prim.iter.LongCursor;
 import edu.jhu.prim.iter.LongIter;
 import edu.jhu.prim.list.LongArrayList;
 import edu.jhu.prim.map.LongDoubleHashMap;
+import edu.jhu.prim.map.LongHashStrategy;
 
 /**
  * Hash set for long primitives.
@@ -22,6 +25,10 @@ public class LongHashSet implements LongSet {
         this.map = new LongDoubleHashMap(expectedSize);
     }
     
+    public LongHashSet(int expectedSize, LongHashStrategy hashStrategy) {
+        this.map = new LongDoubleHashMap(expectedSize, Primitives.DEFAULT_MISSING_ENTRY_DOUBLE, hashStrategy);
+    }
+    
     public LongHashSet(LongHashSet other) {
         this.map = new LongDoubleHashMap(other.map);
     }
@@ -62,6 +69,15 @@ public class LongHashSet implements LongSet {
         return new LongArrayIter(map.getIndices());
     }
 
+    /**
+     * Gets a cursor over the keys, which allocates nothing per key (unlike
+     * iterator(), which copies the keys). The cursor is fail-fast.
+     */
+    @Override
+    public LongCursor cursor() {
+        return map.cursor();
+    }
+
     public int size() {
         return map.size();
     }
@@ -1,7 +1,9 @@
 package edu.jhu.prim.set;
 
 import java.io.Serializable;
+import java.util.NoSuchElementException;
 
+import edu.jhu.prim.iter.LongCursor;
 import edu.jhu.prim.iter.LongIter;
 import edu.jhu.prim.list.LongArrayList;
 
@@ -16,6 +18,34 @@ public interface LongSet extends Serializable {
     void add(LongArrayList keys);
     boolean contains(long key);
     LongIter iterator();
+    /**
+     * Gets a cursor over the keys, which allocates nothing per key. The
+     * default implementation adapts iterator().
+     */
+    default LongCursor cursor() {
+        final LongIter iter = iterator();
+        return new LongCursor() {
+            private boolean atKey = false;
+            private long key;
+
+            @Override
+            public boolean advance() {
+                atKey = iter.hasNext();
+                if (atKey) {
+                    key = iter.next();
+                }
+                return atKey;
+            }
+
+            @Override
+            public long key() {
+                if (!atKey) {
+                    throw new NoSuchElementException();
+                }
+                return key;
+            }
+        };
+    }
     int size();
     
 }
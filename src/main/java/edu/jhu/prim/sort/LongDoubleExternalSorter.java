@@ -0,0 +1,467 @@
+package edu.jhu.prim.sort;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.jhu.prim.Primitives;
+import edu.jhu.prim.list.DoubleArrayList;
+import edu.jhu.prim.list.LongArrayList;
+import edu.jhu.prim.util.Lambda.FnLongDoubleToVoid;
+import edu.jhu.prim.util.Lambda.LambdaBinOpDouble;
+import edu.jhu.prim.vector.LongDoubleSortedVector;
+
+/**
+ * Sorts more (long, double) pairs than fit in memory. Pairs are buffered as
+ * they are added; each time the buffer fills it is sorted and spilled to a
+ * temporary file as a sorted run. The runs are then k-way merged, using a
+ * binary heap of run numbers keyed by each run's current key.
+ *
+ * Pairs with equal keys are all kept unless a combiner is given, in which case
+ * the values for each key are folded into one (e.g. {@link edu.jhu.prim.util.Lambda.DoubleAdd}
+ * sums them) both before spilling and while merging. The combiner should be
+ * associative and commutative, since values are not combined in the order
+ * they were added.
+ *
+ * Usage:
+ * <pre>
+ * LongDoubleExternalSorter sorter = new LongDoubleExternalSorter(1 &lt;&lt; 24, tmpDir, new Lambda.DoubleAdd());
+ * try {
+ *     for (...) {
+ *         sorter.add(idx, val);
+ *     }
+ *     LongDoubleSortedVector vec = sorter.toSortedVector();
+ * } finally {
+ *     sorter.close();
+ * }
+ * </pre>
+ *
+ * A sorter can only be sorted once. It is not thread safe.
+ *
+ * @author mgormley
+ */
+public class LongDoubleExternalSorter implements Closeable {
+
+    /** Number of bytes per pair in a run file. */
+    private static final int RECORD_SIZE = Primitives.LONG_NUM_BYTES + Primitives.DOUBLE_NUM_BYTES;
+    /** Number of pairs in the write buffer and in each run's read buffer (128KB). */
+    public static final int IO_BUFFER_ENTRIES = 1 << 13;
+    /** Default maximum number of runs merged at once. */
+    public static final int DEFAULT_MAX_FAN_IN = 256;
+
+    /** A sorted run on disk. */
+    private static class Run {
+        private final File file;
+        private final long numEntries;
+
+        public Run(File file, long numEntries) {
+            this.file = file;
+            this.numEntries = numEntries;
+        }
+    }
+
+    private final File tmpDir;
+    private final LambdaBinOpDouble combiner;
+    private final long[] keys;
+    private final double[] values;
+    private int size;
+    private final RadixSort.Scratch scratch = new RadixSort.Scratch();
+    private final List<Run> runs = new ArrayList<Run>();
+    private final List<File> tmpFiles = new ArrayList<File>();
+    private int maxFanIn = DEFAULT_MAX_FAN_IN;
+    private long numAdded = 0;
+    private boolean sorted = false;
+
+    /**
+     * Constructs a sorter which keeps duplicate keys and spills to the default
+     * temporary directory.
+     *
+     * @param maxEntriesInMemory The number of pairs buffered before a run is spilled.
+     */
+    public LongDoubleExternalSorter(int maxEntriesInMemory) {
+        this(maxEntriesInMemory, null, null);
+    }
+
+    /**
+     * Constructs a sorter.
+     *
+     * @param maxEntriesInMemory The number of pairs buffered before a run is spilled.
+     * @param tmpDir The directory for the run files, or null for the default temporary directory.
+     * @param combiner The operator for combining the values of duplicate keys, or null to keep them all.
+     */
+    public LongDoubleExternalSorter(int maxEntriesInMemory, File tmpDir, LambdaBinOpDouble combiner) {
+        if (maxEntriesInMemory < 1) {
+            throw new IllegalArgumentException("maxEntriesInMemory must be positive: " + maxEntriesInMemory);
+        }
+        this.tmpDir = tmpDir;
+        this.combiner = combiner;
+        this.keys = new long[maxEntriesInMemory];
+        this.values = new double[maxEntriesInMemory];
+    }
+
+    /** Adds a pair, spilling the buffer to disk if it is full. */
+    public void add(long key, double value) throws IOException {
+        checkNotSorted();
+        if (size == keys.length) {
+            spill();
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        numAdded++;
+    }
+
+    /**
+     * Streams the pairs in ascending order of key to the given function. If a
+     * combiner was given, each key is passed exactly once.
+     */
+    public void sort(FnLongDoubleToVoid fn) throws IOException {
+        checkNotSorted();
+        sorted = true;
+        if (runs.isEmpty()) {
+            // Everything fit in memory.
+            sortBuffer();
+            for (int i=0; i<size; i++) {
+                fn.call(keys[i], values[i]);
+            }
+            return;
+        }
+        if (size > 0) {
+            spill();
+        }
+        try {
+            while (runs.size() > maxFanIn) {
+                mergeRuns(maxFanIn);
+            }
+            RunMerger merger = new RunMerger(runs);
+            try {
+                while (merger.advance()) {
+                    fn.call(merger.key, merger.value);
+                }
+            } finally {
+                merger.close();
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Sorts the pairs into a new sorted vector.
+     *
+     * @throws IllegalStateException If there was no combiner and a key was added more than once.
+     */
+    public LongDoubleSortedVector toSortedVector() throws IOException {
+        final LongArrayList idx = new LongArrayList();
+        final DoubleArrayList vals = new DoubleArrayList();
+        sort(new FnLongDoubleToVoid() {
+            @Override
+            public void call(long key, double val) {
+                idx.add(key);
+                vals.add(val);
+            }
+        });
+        return new LongDoubleSortedVector(idx.toNativeArray(), vals.toNativeArray());
+    }
+
+    /** Gets the number of pairs added so far. */
+    public long getNumAdded() {
+        return numAdded;
+    }
+
+    /** Gets the number of runs spilled to disk so far. */
+    public int getNumRuns() {
+        return runs.size();
+    }
+
+    /** Sets the maximum number of runs merged at once. More runs are first merged in batches. */
+    public void setMaxFanIn(int maxFanIn) {
+        if (maxFanIn < 2) {
+            throw new IllegalArgumentException("maxFanIn must be at least 2: " + maxFanIn);
+        }
+        this.maxFanIn = maxFanIn;
+    }
+
+    /** Deletes any remaining run files. */
+    @Override
+    public void close() {
+        for (File file : tmpFiles) {
+            file.delete();
+        }
+        tmpFiles.clear();
+        runs.clear();
+    }
+
+    private void checkNotSorted() {
+        if (sorted) {
+            throw new IllegalStateException("Sorter has already been sorted");
+        }
+    }
+
+    /** Sorts the buffer and combines any duplicate keys. */
+    private void sortBuffer() {
+        LongDoubleSort.sortIndexAsc(keys, values, size, scratch);
+        if (combiner != null && size > 0) {
+            int last = 0;
+            for (int i=1; i<size; i++) {
+                if (keys[i] == keys[last]) {
+                    values[last] = combiner.call(values[last], values[i]);
+                } else {
+                    last++;
+                    keys[last] = keys[i];
+                    values[last] = values[i];
+                }
+            }
+            size = last + 1;
+        }
+    }
+
+    /** Sorts the buffer and writes it out as a new run. */
+    private void spill() throws IOException {
+        sortBuffer();
+        RunWriter writer = new RunWriter();
+        try {
+            for (int i=0; i<size; i++) {
+                writer.add(keys[i], values[i]);
+            }
+        } finally {
+            writer.close();
+        }
+        runs.add(writer.getRun());
+        size = 0;
+    }
+
+    /** Replaces the oldest numRuns runs with a single run. */
+    private void mergeRuns(int numRuns) throws IOException {
+        List<Run> toMerge = new ArrayList<Run>(runs.subList(0, numRuns));
+        runs.subList(0, numRuns).clear();
+        // The merger is opened first, since it closes its own readers if it
+        // fails, and each is closed even if the other's close fails.
+        RunMerger merger = new RunMerger(toMerge);
+        try {
+            RunWriter writer = new RunWriter();
+            try {
+                while (merger.advance()) {
+                    writer.add(merger.key, merger.value);
+                }
+            } finally {
+                writer.close();
+            }
+            runs.add(writer.getRun());
+        } finally {
+            merger.close();
+        }
+        for (Run run : toMerge) {
+            run.file.delete();
+            tmpFiles.remove(run.file);
+        }
+    }
+
+    /** Writes pairs to a new temporary file. */
+    private class RunWriter implements Closeable {
+
+        private final File file;
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(IO_BUFFER_ENTRIES * RECORD_SIZE);
+        private long numEntries = 0;
+
+        public RunWriter() throws IOException {
+            file = File.createTempFile("prim-sort", ".run", tmpDir);
+            tmpFiles.add(file);
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+        }
+
+        public void add(long key, double value) throws IOException {
+            if (buf.remaining() < RECORD_SIZE) {
+                flush();
+            }
+            buf.putLong(key);
+            buf.putDouble(value);
+            numEntries++;
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            buf.clear();
+        }
+
+        public Run getRun() {
+            return new Run(file, numEntries);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+
+    }
+
+    /** Reads back the pairs of a run. */
+    private static class RunReader implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(IO_BUFFER_ENTRIES * RECORD_SIZE);
+        private long remaining;
+        private long key;
+        private double value;
+
+        public RunReader(Run run) throws IOException {
+            channel = FileChannel.open(run.file.toPath(), StandardOpenOption.READ);
+            remaining = run.numEntries;
+            buf.flip();
+        }
+
+        /** Reads the next pair into key and value, returning false if the run is exhausted. */
+        public boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            if (buf.remaining() < RECORD_SIZE) {
+                buf.compact();
+                while (buf.position() < RECORD_SIZE) {
+                    if (channel.read(buf) < 0) {
+                        throw new EOFException("Truncated run file");
+                    }
+                }
+                buf.flip();
+            }
+            key = buf.getLong();
+            value = buf.getDouble();
+            remaining--;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+    }
+
+    /**
+     * Merges runs. The heap holds the numbers of the runs which are not yet
+     * exhausted, ordered by their current key and then by run number.
+     */
+    private class RunMerger implements Closeable {
+
+        private final RunReader[] readers;
+        private final int[] heap;
+        private int heapSize = 0;
+        private long key;
+        private double value;
+
+        public RunMerger(List<Run> runs) throws IOException {
+            readers = new RunReader[runs.size()];
+            heap = new int[runs.size()];
+            try {
+                for (int r=0; r<readers.length; r++) {
+                    readers[r] = new RunReader(runs.get(r));
+                    if (readers[r].advance()) {
+                        heap[heapSize] = r;
+                        siftUp(heapSize++);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /** Moves to the next pair, returning false if all runs are exhausted. */
+        public boolean advance() throws IOException {
+            if (heapSize == 0) {
+                return false;
+            }
+            RunReader top = readers[heap[0]];
+            key = top.key;
+            value = top.value;
+            advanceTop();
+            if (combiner != null) {
+                while (heapSize > 0 && readers[heap[0]].key == key) {
+                    value = combiner.call(value, readers[heap[0]].value);
+                    advanceTop();
+                }
+            }
+            return true;
+        }
+
+        private void advanceTop() throws IOException {
+            if (!readers[heap[0]].advance()) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(0);
+        }
+
+        private boolean less(int r1, int r2) {
+            long k1 = readers[r1].key;
+            long k2 = readers[r2].key;
+            return k1 < k2 || (k1 == k2 && r1 < r2);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(heap[i], heap[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int child = 2*i + 1;
+                if (child >= heapSize) {
+                    return;
+                }
+                if (child + 1 < heapSize && less(heap[child+1], heap[child])) {
+                    child++;
+                }
+                if (!less(heap[child], heap[i])) {
+                    return;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int tmp = heap[i];
+            heap[i] = heap[j];
+            heap[j] = tmp;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (RunReader reader : readers) {
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        error = e;
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+
+    }
+
+}
@@ -1,94 +1,237 @@
 package edu.jhu.prim.sort;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import edu.jhu.prim.arrays.DoubleArrays;
 import edu.jhu.prim.arrays.LongArrays;
-import edu.jhu.prim.list.IntStack;
 
+/**
+ * In-place sorts of parallel arrays. The sorts are introsorts: quicksort with a
+ * median-of-three (or ninther) pivot, insertion sort for small subranges, and
+ * a heapsort fallback once the recursion depth exceeds 2 log2(n). Inputs which
+ * are already sorted or reverse sorted are handled in a single linear pass.
+ *
+ * Ranges of at least {@link #RADIX_SORT_THRESHOLD} elements are instead sorted
+ * with {@link RadixSort}, which is stable and linear in the number of elements.
+ */
 public class LongDoubleSort {
 
-    public static int numSwaps = 0;
+    /** Subranges with fewer than this many elements are insertion sorted. */
+    static final int INSERTION_SORT_THRESHOLD = 16;
+    /** Subranges with at least this many elements use Tukey's ninther as the pivot. */
+    static final int NINTHER_THRESHOLD = 128;
+    /** Ranges with at least this many elements are radix sorted. */
+    public static final int RADIX_SORT_THRESHOLD = 1 << 12;
+    /** Arrays with fewer than this many elements are sorted sequentially by the parallel sorts. */
+    public static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+    /** Minimum number of elements in a subrange sorted or merged by a single task. */
+    private static final int MIN_TASK_SIZE = 1 << 13;
 
     public LongDoubleSort() {
         // private constructor
     }
 
     /* ------------------- Longs and Doubles --------------- */
-    
+
     /**
      * Performs an in-place quick sort on values. All the sorting operations on values
      * are mirrored in index. Sorts in descending order.
      */
     public static void sortValuesDesc(double[] values, long[] index) {
-        quicksortValues(values, index, 0, index.length - 1, false);
+        quicksortValues(values, index, 0, index.length - 1, false, null, null);
+    }
+
+    /**
+     * Performs an in-place quick sort on values. All the sorting operations on values
+     * are mirrored in index. Sorts in descending order.
+     * @param stats Counters to update, or null.
+     */
+    public static void sortValuesDesc(double[] values, long[] index, SortStats stats) {
+        quicksortValues(values, index, 0, index.length - 1, false, stats, null);
     }
-    
+
     /**
      * Performs an in-place quick sort on values. All the sorting operations on values
      * are mirrored in index. Sorts in ascending order.
      */
     public static void sortValuesAsc(double[] values, long[] index) {
-        quicksortValues(values, index, 0, index.length - 1, true);
-    }
-
-    private static void quicksortValues(double[] array, long[] index, int left, int right, boolean asc) {
-        IntStack leftStack = new IntStack();
-        IntStack rightStack = new IntStack();
-        leftStack.add(left);
-        rightStack.add(right);
-        while (leftStack.size() > 0) {
-            left = leftStack.pop();
-            right = rightStack.pop();
-            if (left < right) {
-                // Choose a pivot index.
-                // --> Here we choose the rightmost element which does the least
-                // amount of work if the array is already sorted.
-                int pivotIndex = right;
-                // Partition the array so that everything less than
-                // values[pivotIndex] is on the left of pivotNewIndex and everything
-                // greater than or equal is on the right.
-                int pivotNewIndex = partitionValues(array, index, left, right, pivotIndex, asc);
-                // "Recurse" on the left side.
-                leftStack.push(left);
-                rightStack.push(pivotNewIndex - 1);
-                // "Recurse" on the right side.
-                leftStack.push(pivotNewIndex + 1);
-                rightStack.push(right);
+        quicksortValues(values, index, 0, index.length - 1, true, null, null);
+    }
+
+    /**
+     * Performs an in-place quick sort on values. All the sorting operations on values
+     * are mirrored in index. Sorts in ascending order.
+     * @param stats Counters to update, or null.
+     */
+    public static void sortValuesAsc(double[] values, long[] index, SortStats stats) {
+        quicksortValues(values, index, 0, index.length - 1, true, stats, null);
+    }
+
+    /**
+     * Performs an in-place sort on values, reusing the given buffers if the
+     * values are radix sorted. All the sorting operations on values are
+     * mirrored in index. Sorts in descending order.
+     * @param scratch Buffers for the radix sort, or null.
+     */
+    public static void sortValuesDesc(double[] values, long[] index, RadixSort.Scratch scratch) {
+        quicksortValues(values, index, 0, index.length - 1, false, null, scratch);
+    }
+
+    /**
+     * Performs an in-place sort on values, reusing the given buffers if the
+     * values are radix sorted. All the sorting operations on values are
+     * mirrored in index. Sorts in ascending order.
+     * @param scratch Buffers for the radix sort, or null.
+     */
+    public static void sortValuesAsc(double[] values, long[] index, RadixSort.Scratch scratch) {
+        quicksortValues(values, index, 0, index.length - 1, true, null, scratch);
+    }
+
+    /**
+     * Entry point of the sorts on values. Input which is already sorted, or
+     * sorted in reverse, is detected here with one linear scan, and only here:
+     * the sorts below never repeat the scan on their subranges.
+     */
+    private static void quicksortValues(double[] array, long[] index, int left, int right, boolean asc, SortStats stats, RadixSort.Scratch scratch) {
+        if (right <= left || isSorted(array, left, right, asc)) {
+            return;
+        }
+        if (isSorted(array, left, right, !asc)) {
+            reverse(array, index, left, right, stats);
+            return;
+        }
+        sortValuesRange(array, index, left, right, asc, stats, scratch);
+    }
+
+    /** Radix sorts large ranges and introsorts the others. */
+    private static void sortValuesRange(double[] array, long[] index, int left, int right, boolean asc, SortStats stats, RadixSort.Scratch scratch) {
+        if (right - left + 1 >= RADIX_SORT_THRESHOLD) {
+            if (stats != null) {
+                stats.numRadixSorts++;
+            }
+            if (scratch == null) {
+                scratch = new RadixSort.Scratch();
+            }
+            int[] perm = RadixSort.sortAsc(array, left, right + 1, scratch);
+            RadixSort.permute(index, left, right + 1, perm, scratch);
+            if (!asc) {
+                reverse(array, index, left, right, null);
+            }
+            return;
+        }
+        introsortValues(array, index, left, right, asc, getDepthLimit(left, right), stats);
+    }
+
+    static void introsortValues(double[] array, long[] index, int left, int right, boolean asc, int depthLimit, SortStats stats) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                if (stats != null) {
+                    stats.numHeapsorts++;
+                }
+                heapsortValues(array, index, left, right, asc, stats);
+                return;
+            }
+            int pivotNewIndex = partitionValues(array, index, left, right, choosePivot(array, left, right), asc, stats);
+            // Recurse on the smaller side and loop on the other, so that the
+            // stack depth is at most log2(n).
+            if (pivotNewIndex - left < right - pivotNewIndex) {
+                introsortValues(array, index, left, pivotNewIndex - 1, asc, depthLimit, stats);
+                left = pivotNewIndex + 1;
+            } else {
+                introsortValues(array, index, pivotNewIndex + 1, right, asc, depthLimit, stats);
+                right = pivotNewIndex - 1;
             }
         }
+        insertionSortValues(array, index, left, right, asc, stats);
     }
 
+    /**
+     * Sorts array[left...right] by the former recursive quicksort, which is
+     * now an introsort so that its recursion depth is bounded.
+     */
     static void quicksortValuesRecursive(double[] array, long[] index, int left, int right, boolean asc) {
         if (left < right) {
-            // Choose a pivot index.
-            // --> Here we choose the rightmost element which does the least
-            // amount of work if the array is already sorted.
-            int pivotIndex = right;
-            // Partition the array so that everything less than
-            // values[pivotIndex] is on the left of pivotNewIndex and everything
-            // greater than or equal is on the right.
-            int pivotNewIndex = partitionValues(array, index, left, right, pivotIndex, asc);
-            // Recurse on the left and right sides.
-            quicksortValuesRecursive(array, index, left, pivotNewIndex - 1, asc);
-            quicksortValuesRecursive(array, index, pivotNewIndex + 1, right, asc);
-        }
-    }
-    
-    private static int partitionValues(double[] array, long[] index, int left, int right, int pivotIndex, boolean asc) {
-        double pivotValue = array[pivotIndex];
-        // Move the pivot value to the rightmost position.
-        swap(array, index, pivotIndex, right);
-        // For each position between left and right, swap all the values less
-        // than or equal to the pivot value to the left side.
-        int storeIndex = left;
-        for (int i=left; i<right; i++) {
-            if (lte(array[i], pivotValue, asc)) {
-                swap(array, index, i, storeIndex);
-                storeIndex++;
+            introsortValues(array, index, left, right, asc, getDepthLimit(left, right), null);
+        }
+    }
+
+    /**
+     * Partitions array[left...right] around array[pivotIndex] so that everything left of
+     * the returned position is less than or equal to the pivot and everything to the
+     * right is greater than or equal to it.
+     */
+    private static int partitionValues(double[] array, long[] index, int left, int right, int pivotIndex, boolean asc, SortStats stats) {
+        // Move the pivot to the leftmost position, where it stops the right-to-left scan.
+        swap(array, index, pivotIndex, left, stats);
+        double pivotValue = array[left];
+        int i = left;
+        int j = right + 1;
+        while (true) {
+            // Both scans stop on elements equal to the pivot, so runs of
+            // duplicates are split evenly rather than all going to one side.
+            while (lt(array[++i], pivotValue, asc)) {
+                if (i == right) {
+                    break;
+                }
             }
+            while (lt(pivotValue, array[--j], asc)) {
+                // Keep scanning.
+            }
+            if (i >= j) {
+                break;
+            }
+            swap(array, index, i, j, stats);
         }
         // Move the pivot value back to the split point.
-        swap(array, index, storeIndex, right);
-        return storeIndex;
+        swap(array, index, left, j, stats);
+        return j;
+    }
+
+    private static void insertionSortValues(double[] array, long[] index, int left, int right, boolean asc, SortStats stats) {
+        for (int i=left+1; i<=right; i++) {
+            double key = array[i];
+            long idx = index[i];
+            int j = i - 1;
+            while (j >= left && lt(key, array[j], asc)) {
+                array[j+1] = array[j];
+                index[j+1] = index[j];
+                j--;
+            }
+            array[j+1] = key;
+            index[j+1] = idx;
+            if (stats != null) {
+                stats.numSwaps += i - 1 - j;
+            }
+        }
+    }
+
+    private static void heapsortValues(double[] array, long[] index, int left, int right, boolean asc, SortStats stats) {
+        int n = right - left + 1;
+        for (int i = n/2 - 1; i >= 0; i--) {
+            siftDownValues(array, index, left, i, n, asc, stats);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(array, index, left, left + end, stats);
+            siftDownValues(array, index, left, 0, end, asc, stats);
+        }
+    }
+
+    private static void siftDownValues(double[] array, long[] index, int offset, int i, int n, boolean asc, SortStats stats) {
+        while (true) {
+            int child = 2*i + 1;
+            if (child >= n) {
+                return;
+            }
+            if (child + 1 < n && lt(array[offset+child], array[offset+child+1], asc)) {
+                child++;
+            }
+            if (!lt(array[offset+i], array[offset+child], asc)) {
+                return;
+            }
+            swap(array, index, offset+i, offset+child, stats);
+            i = child;
+        }
     }
 
     /**
@@ -97,9 +240,19 @@ public class LongDoubleSort {
      * Sorts in descending order.
      */
     public static void sortIndexDesc(long[] index, double[] values) {
-        quicksortIndex(index, values, 0, index.length - 1, false);
+        quicksortIndex(index, values, 0, index.length - 1, false, null, null);
+    }
+
+    /**
+     * Performs an in-place quick sort on {@code index}. All the sorting operations on {@code index}
+     * are mirrored in {@code values}.
+     * Sorts in descending order.
+     * @param stats Counters to update, or null.
+     */
+    public static void sortIndexDesc(long[] index, double[] values, SortStats stats) {
+        quicksortIndex(index, values, 0, index.length - 1, false, stats, null);
     }
-    
+
     /**
      * Performs an in-place quick sort on {@code index} on the positions up to but not
      * including {@code top}. All the sorting operations on {@code index}
@@ -107,16 +260,26 @@ public class LongDoubleSort {
      * Sorts in descending order.
      */
     public static void sortIndexDesc(long[] index, double[] values, int top) {
-        quicksortIndex(index, values, 0, top - 1, false);
+        quicksortIndex(index, values, 0, top - 1, false, null, null);
     }
-    
+
     /**
      * Performs an in-place quick sort on {@code index}. All the sorting operations on {@code index}
      * are mirrored in {@code values}.
      * Sorts in ascending order.
      */
     public static void sortIndexAsc(long[] index, double[] values) {
-        quicksortIndex(index, values, 0, index.length - 1, true);
+        quicksortIndex(index, values, 0, index.length - 1, true, null, null);
+    }
+
+    /**
+     * Performs an in-place quick sort on {@code index}. All the sorting operations on {@code index}
+     * are mirrored in {@code values}.
+     * Sorts in ascending order.
+     * @param stats Counters to update, or null.
+     */
+    public static void sortIndexAsc(long[] index, double[] values, SortStats stats) {
+        quicksortIndex(index, values, 0, index.length - 1, true, stats, null);
     }
 
     /**
@@ -127,84 +290,411 @@ public class LongDoubleSort {
      */
     public static void sortIndexAsc(long[] index, double[] values, int top) {
         assert top <= index.length;
-        quicksortIndex(index, values, 0, top - 1, true);
-    }
-    
-    private static void quicksortIndex(long[] array, double[] values, int left, int right, boolean asc) {
-        IntStack leftStack = new IntStack();
-        IntStack rightStack = new IntStack();
-        leftStack.add(left);
-        rightStack.add(right);
-        while (leftStack.size() > 0) {
-            left = leftStack.pop();
-            right = rightStack.pop();
-            if (left < right) {
-                // Choose a pivot index.
-                // --> Here we choose the rightmost element which does the least
-                // amount of work if the array is already sorted.
-                int pivotIndex = right;
-                // Partition the array  so that everything less than
-                // values[pivotIndex] is on the left of pivotNewIndex and everything
-                // greater than or equal is on the right.
-                int pivotNewIndex = partitionIndex(array, values, left, right, pivotIndex, asc);
-                // "Recurse" on the left side.
-                leftStack.push(left);
-                rightStack.push(pivotNewIndex - 1);
-                // "Recurse" on the right side.
-                leftStack.push(pivotNewIndex + 1);
-                rightStack.push(right);
-            }
-        }
-    }
-    
+        quicksortIndex(index, values, 0, top - 1, true, null, null);
+    }
+
+    /**
+     * Performs an in-place sort on {@code index} on the positions up to but not
+     * including {@code top}, reusing the given buffers if the indices are radix
+     * sorted. All the sorting operations on {@code index} are mirrored in
+     * {@code values}. Sorts in descending order.
+     * @param scratch Buffers for the radix sort, or null.
+     */
+    public static void sortIndexDesc(long[] index, double[] values, int top, RadixSort.Scratch scratch) {
+        quicksortIndex(index, values, 0, top - 1, false, null, scratch);
+    }
+
+    /**
+     * Performs an in-place sort on {@code index} on the positions up to but not
+     * including {@code top}, reusing the given buffers if the indices are radix
+     * sorted. All the sorting operations on {@code index} are mirrored in
+     * {@code values}. Sorts in ascending order.
+     * @param scratch Buffers for the radix sort, or null.
+     */
+    public static void sortIndexAsc(long[] index, double[] values, int top, RadixSort.Scratch scratch) {
+        assert top <= index.length;
+        quicksortIndex(index, values, 0, top - 1, true, null, scratch);
+    }
+
+    /**
+     * Entry point of the sorts on indices. Input which is already sorted, or
+     * sorted in reverse, is detected here with one linear scan, and only here:
+     * the sorts below never repeat the scan on their subranges.
+     */
+    private static void quicksortIndex(long[] array, double[] values, int left, int right, boolean asc, SortStats stats, RadixSort.Scratch scratch) {
+        if (right <= left || isSorted(array, left, right, asc)) {
+            return;
+        }
+        if (isSorted(array, left, right, !asc)) {
+            reverse(values, array, left, right, stats);
+            return;
+        }
+        sortIndexRange(array, values, left, right, asc, stats, scratch);
+    }
+
+    /** Radix sorts large ranges and introsorts the others. */
+    private static void sortIndexRange(long[] array, double[] values, int left, int right, boolean asc, SortStats stats, RadixSort.Scratch scratch) {
+        if (right - left + 1 >= RADIX_SORT_THRESHOLD) {
+            if (stats != null) {
+                stats.numRadixSorts++;
+            }
+            if (scratch == null) {
+                scratch = new RadixSort.Scratch();
+            }
+            int[] perm = RadixSort.sortAsc(array, left, right + 1, scratch);
+            RadixSort.permute(values, left, right + 1, perm, scratch);
+            if (!asc) {
+                reverse(values, array, left, right, null);
+            }
+            return;
+        }
+        introsortIndex(array, values, left, right, asc, getDepthLimit(left, right), stats);
+    }
+
+    static void introsortIndex(long[] array, double[] values, int left, int right, boolean asc, int depthLimit, SortStats stats) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                if (stats != null) {
+                    stats.numHeapsorts++;
+                }
+                heapsortIndex(array, values, left, right, asc, stats);
+                return;
+            }
+            int pivotNewIndex = partitionIndex(array, values, left, right, choosePivot(array, left, right), asc, stats);
+            // Recurse on the smaller side and loop on the other, so that the
+            // stack depth is at most log2(n).
+            if (pivotNewIndex - left < right - pivotNewIndex) {
+                introsortIndex(array, values, left, pivotNewIndex - 1, asc, depthLimit, stats);
+                left = pivotNewIndex + 1;
+            } else {
+                introsortIndex(array, values, pivotNewIndex + 1, right, asc, depthLimit, stats);
+                right = pivotNewIndex - 1;
+            }
+        }
+        insertionSortIndex(array, values, left, right, asc, stats);
+    }
+
+    /**
+     * Sorts array[left...right] by the former recursive quicksort, which is
+     * now an introsort so that its recursion depth is bounded.
+     */
     static void quicksortIndexRecursive(long[] array, double[] values, int left, int right, boolean asc) {
         if (left < right) {
-            // Choose a pivot index.
-            // --> Here we choose the rightmost element which does the least
-            // amount of work if the array is already sorted.
-            int pivotIndex = right;
-            // Partition the array so that everything less than
-            // values[pivotIndex] is on the left of pivotNewIndex and everything
-            // greater than or equal is on the right.
-            int pivotNewIndex = partitionIndex(array, values, left, right, pivotIndex, asc);
-            // Recurse on the left and right sides.
-            quicksortIndexRecursive(array, values, left, pivotNewIndex - 1, asc);
-            quicksortIndexRecursive(array, values, pivotNewIndex + 1, right, asc);
-        }
-    }
-    private static int partitionIndex(long[] array, double[] values, int left, int right, int pivotIndex, boolean asc) {
-        long pivotValue = array[pivotIndex];
-        // Move the pivot value to the rightmost position.
-        swap(values, array, pivotIndex, right);
-        // For each position between left and right, swap all the values less
-        // than or equal to the pivot value to the left side.
-        int storeIndex = left;
-        for (int i=left; i<right; i++) {
-            if (lte(array[i], pivotValue, asc)) {
-                swap(values, array, i, storeIndex);
-                storeIndex++;
+            introsortIndex(array, values, left, right, asc, getDepthLimit(left, right), null);
+        }
+    }
+
+    /**
+     * Partitions array[left...right] around array[pivotIndex] so that everything left of
+     * the returned position is less than or equal to the pivot and everything to the
+     * right is greater than or equal to it.
+     */
+    private static int partitionIndex(long[] array, double[] values, int left, int right, int pivotIndex, boolean asc, SortStats stats) {
+        // Move the pivot to the leftmost position, where it stops the right-to-left scan.
+        swap(values, array, pivotIndex, left, stats);
+        long pivotValue = array[left];
+        int i = left;
+        int j = right + 1;
+        while (true) {
+            // Both scans stop on elements equal to the pivot, so runs of
+            // duplicates are split evenly rather than all going to one side.
+            while (lt(array[++i], pivotValue, asc)) {
+                if (i == right) {
+                    break;
+                }
             }
+            while (lt(pivotValue, array[--j], asc)) {
+                // Keep scanning.
+            }
+            if (i >= j) {
+                break;
+            }
+            swap(values, array, i, j, stats);
         }
         // Move the pivot value back to the split point.
-        swap(values, array, storeIndex, right);
-        return storeIndex;
+        swap(values, array, left, j, stats);
+        return j;
+    }
+
+    private static void insertionSortIndex(long[] array, double[] values, int left, int right, boolean asc, SortStats stats) {
+        for (int i=left+1; i<=right; i++) {
+            long key = array[i];
+            double val = values[i];
+            int j = i - 1;
+            while (j >= left && lt(key, array[j], asc)) {
+                array[j+1] = array[j];
+                values[j+1] = values[j];
+                j--;
+            }
+            array[j+1] = key;
+            values[j+1] = val;
+            if (stats != null) {
+                stats.numSwaps += i - 1 - j;
+            }
+        }
+    }
+
+    private static void heapsortIndex(long[] array, double[] values, int left, int right, boolean asc, SortStats stats) {
+        int n = right - left + 1;
+        for (int i = n/2 - 1; i >= 0; i--) {
+            siftDownIndex(array, values, left, i, n, asc, stats);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(values, array, left, left + end, stats);
+            siftDownIndex(array, values, left, 0, end, asc, stats);
+        }
+    }
+
+    private static void siftDownIndex(long[] array, double[] values, int offset, int i, int n, boolean asc, SortStats stats) {
+        while (true) {
+            int child = 2*i + 1;
+            if (child >= n) {
+                return;
+            }
+            if (child + 1 < n && lt(array[offset+child], array[offset+child+1], asc)) {
+                child++;
+            }
+            if (!lt(array[offset+i], array[offset+child], asc)) {
+                return;
+            }
+            swap(values, array, offset+i, offset+child, stats);
+            i = child;
+        }
+    }
+
+    /**
+     * Sorts {@code index} in parallel on the common ForkJoinPool. All the sorting operations on
+     * {@code index} are mirrored in {@code values}. Sorts in ascending order.
+     */
+    public static void parallelSortIndexAsc(long[] index, double[] values) {
+        parallelSortIndexAsc(index, values, index.length, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sorts {@code index} on the positions up to but not including {@code top}, in parallel on
+     * the given pool. All the sorting operations on {@code index} are mirrored in {@code values}.
+     * Sorts in ascending order.
+     *
+     * The indices match those of {@link #sortIndexAsc(long[], double[], int)}. As there, the
+     * order of the values for equal indices is unspecified.
+     */
+    public static void parallelSortIndexAsc(long[] index, double[] values, int top, ForkJoinPool pool) {
+        parallelSortIndex(index, values, top, true, pool);
+    }
+
+    /**
+     * Sorts {@code index} in parallel on the common ForkJoinPool. All the sorting operations on
+     * {@code index} are mirrored in {@code values}. Sorts in descending order.
+     */
+    public static void parallelSortIndexDesc(long[] index, double[] values) {
+        parallelSortIndexDesc(index, values, index.length, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sorts {@code index} on the positions up to but not including {@code top}, in parallel on
+     * the given pool. All the sorting operations on {@code index} are mirrored in {@code values}.
+     * Sorts in descending order.
+     * @see #parallelSortIndexAsc(long[], double[], int, ForkJoinPool)
+     */
+    public static void parallelSortIndexDesc(long[] index, double[] values, int top, ForkJoinPool pool) {
+        parallelSortIndex(index, values, top, false, pool);
+    }
+
+    private static void parallelSortIndex(long[] index, double[] values, int top, boolean asc, ForkJoinPool pool) {
+        assert top <= index.length;
+        int parallelism = pool.getParallelism();
+        if (top < PARALLEL_SORT_THRESHOLD || parallelism <= 1) {
+            quicksortIndex(index, values, 0, top - 1, asc, null, null);
+            return;
+        }
+        if (isSorted(index, 0, top - 1, asc)) {
+            return;
+        }
+        if (isSorted(index, 0, top - 1, !asc)) {
+            reverse(values, index, 0, top - 1, null);
+            return;
+        }
+        int leafSize = Math.max(MIN_TASK_SIZE, top / (4 * parallelism) + 1);
+        long[] indexBuf = new long[top];
+        double[] valuesBuf = new double[top];
+        pool.invoke(new IndexSortTask(index, values, indexBuf, valuesBuf, 0, top, false, asc, leafSize));
+    }
+
+    /**
+     * Merge sorts the positions lo...hi-1 of the src arrays. The sorted result is left in the
+     * dst arrays if toDst is true, and in the src arrays otherwise.
+     */
+    private static class IndexSortTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final long[] srcIndex;
+        private final double[] srcValues;
+        private final long[] dstIndex;
+        private final double[] dstValues;
+        private final int lo;
+        private final int hi;
+        private final boolean toDst;
+        private final boolean asc;
+        private final int leafSize;
+
+        public IndexSortTask(long[] srcIndex, double[] srcValues, long[] dstIndex, double[] dstValues,
+                int lo, int hi, boolean toDst, boolean asc, int leafSize) {
+            this.srcIndex = srcIndex;
+            this.srcValues = srcValues;
+            this.dstIndex = dstIndex;
+            this.dstValues = dstValues;
+            this.lo = lo;
+            this.hi = hi;
+            this.toDst = toDst;
+            this.asc = asc;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= leafSize) {
+                // The whole input was checked for presorted order before forking.
+                sortIndexRange(srcIndex, srcValues, lo, hi - 1, asc, null, null);
+                if (toDst) {
+                    System.arraycopy(srcIndex, lo, dstIndex, lo, hi - lo);
+                    System.arraycopy(srcValues, lo, dstValues, lo, hi - lo);
+                }
+                return;
+            }
+            // Sort each half into the other array, then merge them back.
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new IndexSortTask(srcIndex, srcValues, dstIndex, dstValues, lo, mid, !toDst, asc, leafSize),
+                    new IndexSortTask(srcIndex, srcValues, dstIndex, dstValues, mid, hi, !toDst, asc, leafSize));
+            if (toDst) {
+                new IndexMergeTask(srcIndex, srcValues, dstIndex, dstValues, lo, mid, mid, hi, lo, asc).compute();
+            } else {
+                new IndexMergeTask(dstIndex, dstValues, srcIndex, srcValues, lo, mid, mid, hi, lo, asc).compute();
+            }
+        }
+
+    }
+
+    /**
+     * Merges the sorted runs lo1...hi1-1 and lo2...hi2-1 of the src arrays into the dst arrays
+     * starting at position dstPos. Large merges are split in two around the median of the
+     * longer run, found in the shorter run by binary search.
+     */
+    private static class IndexMergeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final long[] srcIndex;
+        private final double[] srcValues;
+        private final long[] dstIndex;
+        private final double[] dstValues;
+        private final int lo1;
+        private final int hi1;
+        private final int lo2;
+        private final int hi2;
+        private final int dstPos;
+        private final boolean asc;
+
+        public IndexMergeTask(long[] srcIndex, double[] srcValues, long[] dstIndex, double[] dstValues,
+                int lo1, int hi1, int lo2, int hi2, int dstPos, boolean asc) {
+            this.srcIndex = srcIndex;
+            this.srcValues = srcValues;
+            this.dstIndex = dstIndex;
+            this.dstValues = dstValues;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dstPos = dstPos;
+            this.asc = asc;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = hi1 - lo1;
+            int n2 = hi2 - lo2;
+            if (n1 + n2 <= MIN_TASK_SIZE) {
+                mergeIndex(srcIndex, srcValues, dstIndex, dstValues, lo1, hi1, lo2, hi2, dstPos, asc);
+                return;
+            }
+            if (n1 < n2) {
+                new IndexMergeTask(srcIndex, srcValues, dstIndex, dstValues, lo2, hi2, lo1, hi1, dstPos, asc).compute();
+                return;
+            }
+            int mid1 = (lo1 + hi1) >>> 1;
+            long pivot = srcIndex[mid1];
+            int mid2 = lowerBound(srcIndex, lo2, hi2, pivot, asc);
+            int pivotPos = dstPos + (mid1 - lo1) + (mid2 - lo2);
+            dstIndex[pivotPos] = pivot;
+            dstValues[pivotPos] = srcValues[mid1];
+            invokeAll(new IndexMergeTask(srcIndex, srcValues, dstIndex, dstValues, lo1, mid1, lo2, mid2, dstPos, asc),
+                    new IndexMergeTask(srcIndex, srcValues, dstIndex, dstValues, mid1 + 1, hi1, mid2, hi2, pivotPos + 1, asc));
+        }
+
     }
-        
+
+    private static void mergeIndex(long[] srcIndex, double[] srcValues, long[] dstIndex, double[] dstValues,
+            int lo1, int hi1, int lo2, int hi2, int dstPos, boolean asc) {
+        int i = lo1;
+        int j = lo2;
+        int k = dstPos;
+        while (i < hi1 && j < hi2) {
+            if (lt(srcIndex[j], srcIndex[i], asc)) {
+                dstIndex[k] = srcIndex[j];
+                dstValues[k++] = srcValues[j++];
+            } else {
+                dstIndex[k] = srcIndex[i];
+                dstValues[k++] = srcValues[i++];
+            }
+        }
+        System.arraycopy(srcIndex, i, dstIndex, k, hi1 - i);
+        System.arraycopy(srcValues, i, dstValues, k, hi1 - i);
+        k += hi1 - i;
+        System.arraycopy(srcIndex, j, dstIndex, k, hi2 - j);
+        System.arraycopy(srcValues, j, dstValues, k, hi2 - j);
+    }
+
+    /** Gets the first position in array[lo...hi-1] which is not before key in the sort order. */
+    private static int lowerBound(long[] array, int lo, int hi, long key, boolean asc) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (lt(array[mid], key, asc)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
     /**
      * Swaps the elements at positions i and j in both the values and index array, which must be the same length.
      * @param values An array of values.
      * @param index An array of indices.
      * @param i The position of the first element to swap.
      * @param j The position of the second element to swap.
+     * @param stats Counters to update, or null.
      */
-    private static void swap(double[] values, long[] index, int i, int j) {
+    private static void swap(double[] values, long[] index, int i, int j, SortStats stats) {
         if (i != j) {
             swap(values, i, j);
             swap(index, i, j);
-            numSwaps ++;
+            if (stats != null) {
+                stats.numSwaps++;
+            }
         }
     }
-    
+
+    /** Reverses the positions left...right (inclusive) of both the values and index array. */
+    private static void reverse(double[] values, long[] index, int left, int right, SortStats stats) {
+        while (left < right) {
+            swap(values, index, left++, right--, stats);
+        }
+    }
+
+    /** Gets the recursion depth after which introsort switches to heapsort. */
+    private static int getDepthLimit(int left, int right) {
+        return 2 * (31 - Integer.numberOfLeadingZeros(right - left + 1));
+    }
+
     /* ----------------------------------------------------- */
 
     /**
@@ -216,17 +706,51 @@ public class LongDoubleSort {
         array[j] = valAtI;
     }
 
-    /** Abstract "less than or equal" for either ascending or descending orders. */
-    private static boolean lte(double v1, double v2, boolean asc) {
+    /** Abstract "less than" for either ascending or descending orders. */
+    private static boolean lt(double v1, double v2, boolean asc) {
         if (asc) {
-            return v1 <= v2;
+            return v1 < v2;
         } else {
-            return v2 <= v1;
+            return v2 < v1;
+        }
+    }
+
+    /** Whether array[left...right] (inclusive) is in ascending or descending order. */
+    private static boolean isSorted(double[] array, int left, int right, boolean asc) {
+        for (int i=left; i<right; i++) {
+            if (lt(array[i+1], array[i], asc)) {
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * Chooses the median of the first, middle and last elements as the pivot, or
+     * Tukey's ninther (the median of three such medians) for large subranges.
+     */
+    private static int choosePivot(double[] array, int left, int right) {
+        int n = right - left + 1;
+        int mid = left + (n >>> 1);
+        if (n >= NINTHER_THRESHOLD) {
+            int s = n >>> 3;
+            int lo = median3(array, left, left + s, left + 2*s);
+            int md = median3(array, mid - s, mid, mid + s);
+            int hi = median3(array, right - 2*s, right - s, right);
+            return median3(array, lo, md, hi);
+        }
+        return median3(array, left, mid, right);
+    }
+
+    /** Gets the position of the median of array[i], array[j], array[k]. */
+    private static int median3(double[] array, int i, int j, int k) {
+        return array[i] < array[j] ?
+                (array[j] < array[k] ? j : array[i] < array[k] ? k : i) :
+                (array[k] < array[j] ? j : array[k] < array[i] ? k : i);
     }
 
     /* START EXCLUDE IK IV 1 */
-    
+
     /**
      * Swaps the elements at positions i and j.
      */
@@ -235,16 +759,49 @@ public class LongDoubleSort {
         array[i] = array[j];
         array[j] = valAtI;
     }
-    
-    /** Abstract "less than or equal" for either ascending or descending orders. */
-    private static boolean lte(long v1, long v2, boolean asc) {
+
+    /** Abstract "less than" for either ascending or descending orders. */
+    private static boolean lt(long v1, long v2, boolean asc) {
         if (asc) {
-            return v1 <= v2;
+            return v1 < v2;
         } else {
-            return v2 <= v1;
+            return v2 < v1;
+        }
+    }
+
+    /** Whether array[left...right] (inclusive) is in ascending or descending order. */
+    private static boolean isSorted(long[] array, int left, int right, boolean asc) {
+        for (int i=left; i<right; i++) {
+            if (lt(array[i+1], array[i], asc)) {
+                return false;
+            }
         }
+        return true;
     }
 
+    /**
+     * Chooses the median of the first, middle and last elements as the pivot, or
+     * Tukey's ninther (the median of three such medians) for large subranges.
+     */
+    private static int choosePivot(long[] array, int left, int right) {
+        int n = right - left + 1;
+        int mid = left + (n >>> 1);
+        if (n >= NINTHER_THRESHOLD) {
+            int s = n >>> 3;
+            int lo = median3(array, left, left + s, left + 2*s);
+            int md = median3(array, mid - s, mid, mid + s);
+            int hi = median3(array, right - 2*s, right - s, right);
+            return median3(array, lo, md, hi);
+        }
+        return median3(array, left, mid, right);
+    }
+
+    /** Gets the position of the median of array[i], array[j], array[k]. */
+    private static int median3(long[] array, int i, int j, int k) {
+        return array[i] < array[j] ?
+                (array[j] < array[k] ? j : array[i] < array[k] ? k : i) :
+                (array[k] < array[j] ? j : array[k] < array[i] ? k : i);
+    }
 
     /* END EXCLUDE 1 */
 
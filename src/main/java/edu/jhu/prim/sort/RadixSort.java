@@ -0,0 +1,425 @@
+package edu.jhu.prim.sort;
+
+import java.util.Arrays;
+
+/**
+ * Least-significant-digit radix sorts for primitive keys, which carry any
+ * number of payload arrays along with them.
+ *
+ * Sorting is done in two steps: one of the sortAsc() methods sorts a range of
+ * the keys and returns the permutation it applied, then permute() applies the
+ * same permutation to each payload array. For example:
+ *
+ * <pre>
+ * RadixSort.Scratch scratch = new RadixSort.Scratch();
+ * int[] perm = RadixSort.sortAsc(keys, 0, n, scratch);
+ * RadixSort.permute(values, 0, n, perm, scratch);
+ * RadixSort.permute(counts, 0, n, perm, scratch);
+ * </pre>
+ *
+ * The sorts use one pass per byte of the key, and skip passes in which every
+ * key has the same byte (e.g. the high bytes of small non-negative indices).
+ * Floating point keys are ordered by their IEEE bits with the usual sign
+ * fixup, so -0.0 sorts before 0.0 and NaNs (canonicalized) sort after positive
+ * infinity. The sorts are stable.
+ *
+ * @author mgormley
+ */
+public class RadixSort {
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int RADIX_MASK = RADIX - 1;
+
+    private RadixSort() {
+        // private constructor
+    }
+
+    /**
+     * Reusable buffers for the radix sorts. The buffers grow to fit the largest
+     * range sorted and are never shrunk. A sort of n 64-bit keys uses 24n bytes
+     * and a sort of n 32-bit (or narrower) keys uses 16n bytes.
+     *
+     * Not thread safe: use one instance per thread.
+     */
+    public static class Scratch {
+
+        private final int[] counts = new int[RADIX * 8];
+        private long[] longs1;
+        private long[] longs2;
+        private int[] ints1;
+        private int[] ints2;
+        private int[] perm1;
+        private int[] perm2;
+
+        public Scratch() { }
+
+        private void ensurePerms(int n) {
+            if (perm1 == null || perm1.length < n) {
+                perm1 = new int[n];
+            }
+            if (perm2 == null || perm2.length < n) {
+                perm2 = new int[n];
+            }
+        }
+
+        private void ensureLongs(int n) {
+            ensurePerms(n);
+            getLongBuffer(n);
+            if (longs2 == null || longs2.length < n) {
+                longs2 = new long[n];
+            }
+        }
+
+        private void ensureInts(int n) {
+            ensurePerms(n);
+            getIntBuffer(n);
+            if (ints2 == null || ints2.length < n) {
+                ints2 = new int[n];
+            }
+        }
+
+        /** Gets a buffer of at least n longs, which is free once a sort has returned. */
+        private long[] getLongBuffer(int n) {
+            if (longs1 == null || longs1.length < n) {
+                longs1 = new long[n];
+            }
+            return longs1;
+        }
+
+        /** Gets a buffer of at least n ints, which is free once a sort has returned. */
+        private int[] getIntBuffer(int n) {
+            if (ints1 == null || ints1.length < n) {
+                ints1 = new int[n];
+            }
+            return ints1;
+        }
+
+    }
+
+    /* --------------------- Keys --------------------- */
+
+    /**
+     * Sorts keys[from...to-1] in ascending order.
+     *
+     * @param keys The keys to sort.
+     * @param from The starting index (inclusive).
+     * @param to The ending index (exclusive).
+     * @param scratch The scratch buffers to use, or null to allocate temporary ones.
+     * @return The permutation applied: position from+i of the sorted range holds
+     *         the key from position from+perm[i]. The array belongs to the scratch
+     *         buffers and is only valid until they are next used.
+     */
+    public static int[] sortAsc(long[] keys, int from, int to, Scratch scratch) {
+        int n = checkRange(keys.length, from, to);
+        scratch = getScratch(scratch);
+        scratch.ensureLongs(n);
+        long[] bits = scratch.longs1;
+        for (int i=0; i<n; i++) {
+            bits[i] = keys[from + i] ^ Long.MIN_VALUE;
+        }
+        long[] sorted = sortBits(bits, scratch.longs2, n, 8, scratch);
+        for (int i=0; i<n; i++) {
+            keys[from + i] = sorted[i] ^ Long.MIN_VALUE;
+        }
+        return scratch.perm1;
+    }
+
+    /**
+     * Sorts keys[from...to-1] in ascending order.
+     * @see #sortAsc(long[], int, int, Scratch)
+     */
+    public static int[] sortAsc(double[] keys, int from, int to, Scratch scratch) {
+        int n = checkRange(keys.length, from, to);
+        scratch = getScratch(scratch);
+        scratch.ensureLongs(n);
+        long[] bits = scratch.longs1;
+        for (int i=0; i<n; i++) {
+            long b = Double.doubleToLongBits(keys[from + i]);
+            bits[i] = b ^ ((b >> 63) | Long.MIN_VALUE);
+        }
+        long[] sorted = sortBits(bits, scratch.longs2, n, 8, scratch);
+        for (int i=0; i<n; i++) {
+            long b = sorted[i];
+            keys[from + i] = Double.longBitsToDouble(b ^ ((~b >> 63) | Long.MIN_VALUE));
+        }
+        return scratch.perm1;
+    }
+
+    /**
+     * Sorts keys[from...to-1] in ascending order.
+     * @see #sortAsc(long[], int, int, Scratch)
+     */
+    public static int[] sortAsc(int[] keys, int from, int to, Scratch scratch) {
+        int n = checkRange(keys.length, from, to);
+        scratch = getScratch(scratch);
+        scratch.ensureInts(n);
+        int[] bits = scratch.ints1;
+        for (int i=0; i<n; i++) {
+            bits[i] = keys[from + i] ^ Integer.MIN_VALUE;
+        }
+        int[] sorted = sortBits(bits, scratch.ints2, n, 4, scratch);
+        for (int i=0; i<n; i++) {
+            keys[from + i] = sorted[i] ^ Integer.MIN_VALUE;
+        }
+        return scratch.perm1;
+    }
+
+    /**
+     * Sorts keys[from...to-1] in ascending order.
+     * @see #sortAsc(long[], int, int, Scratch)
+     */
+    public static int[] sortAsc(float[] keys, int from, int to, Scratch scratch) {
+        int n = checkRange(keys.length, from, to);
+        scratch = getScratch(scratch);
+        scratch.ensureInts(n);
+        int[] bits = scratch.ints1;
+        for (int i=0; i<n; i++) {
+            int b = Float.floatToIntBits(keys[from + i]);
+            bits[i] = b ^ ((b >> 31) | Integer.MIN_VALUE);
+        }
+        int[] sorted = sortBits(bits, scratch.ints2, n, 4, scratch);
+        for (int i=0; i<n; i++) {
+            int b = sorted[i];
+            keys[from + i] = Float.intBitsToFloat(b ^ ((~b >> 31) | Integer.MIN_VALUE));
+        }
+        return scratch.perm1;
+    }
+
+    /**
+     * Sorts keys[from...to-1] in ascending order.
+     * @see #sortAsc(long[], int, int, Scratch)
+     */
+    public static int[] sortAsc(short[] keys, int from, int to, Scratch scratch) {
+        int n = checkRange(keys.length, from, to);
+        scratch = getScratch(scratch);
+        scratch.ensureInts(n);
+        int[] bits = scratch.ints1;
+        for (int i=0; i<n; i++) {
+            bits[i] = (keys[from + i] ^ Short.MIN_VALUE) & 0xffff;
+        }
+        int[] sorted = sortBits(bits, scratch.ints2, n, 2, scratch);
+        for (int i=0; i<n; i++) {
+            keys[from + i] = (short) (sorted[i] ^ Short.MIN_VALUE);
+        }
+        return scratch.perm1;
+    }
+
+    /* --------------------- Payloads --------------------- */
+
+    /**
+     * Applies a permutation returned by one of the sortAsc() methods to
+     * payload[from...to-1].
+     *
+     * @param payload The payload to permute.
+     * @param from The starting index (inclusive), which must match the sort's.
+     * @param to The ending index (exclusive), which must match the sort's.
+     * @param perm The permutation returned by the sort.
+     * @param scratch The scratch buffers passed to the sort, or null to allocate temporary ones.
+     */
+    public static void permute(double[] payload, int from, int to, int[] perm, Scratch scratch) {
+        int n = checkRange(payload.length, from, to);
+        long[] tmp = getScratch(scratch).getLongBuffer(n);
+        for (int i=0; i<n; i++) {
+            tmp[i] = Double.doubleToRawLongBits(payload[from + perm[i]]);
+        }
+        for (int i=0; i<n; i++) {
+            payload[from + i] = Double.longBitsToDouble(tmp[i]);
+        }
+    }
+
+    /**
+     * Applies a permutation returned by one of the sortAsc() methods to payload[from...to-1].
+     * @see #permute(double[], int, int, int[], Scratch)
+     */
+    public static void permute(long[] payload, int from, int to, int[] perm, Scratch scratch) {
+        int n = checkRange(payload.length, from, to);
+        long[] tmp = getScratch(scratch).getLongBuffer(n);
+        for (int i=0; i<n; i++) {
+            tmp[i] = payload[from + perm[i]];
+        }
+        System.arraycopy(tmp, 0, payload, from, n);
+    }
+
+    /**
+     * Applies a permutation returned by one of the sortAsc() methods to payload[from...to-1].
+     * @see #permute(double[], int, int, int[], Scratch)
+     */
+    public static void permute(float[] payload, int from, int to, int[] perm, Scratch scratch) {
+        int n = checkRange(payload.length, from, to);
+        int[] tmp = getScratch(scratch).getIntBuffer(n);
+        for (int i=0; i<n; i++) {
+            tmp[i] = Float.floatToRawIntBits(payload[from + perm[i]]);
+        }
+        for (int i=0; i<n; i++) {
+            payload[from + i] = Float.intBitsToFloat(tmp[i]);
+        }
+    }
+
+    /**
+     * Applies a permutation returned by one of the sortAsc() methods to payload[from...to-1].
+     * @see #permute(double[], int, int, int[], Scratch)
+     */
+    public static void permute(int[] payload, int from, int to, int[] perm, Scratch scratch) {
+        int n = checkRange(payload.length, from, to);
+        int[] tmp = getScratch(scratch).getIntBuffer(n);
+        for (int i=0; i<n; i++) {
+            tmp[i] = payload[from + perm[i]];
+        }
+        System.arraycopy(tmp, 0, payload, from, n);
+    }
+
+    /**
+     * Applies a permutation returned by one of the sortAsc() methods to payload[from...to-1].
+     * @see #permute(double[], int, int, int[], Scratch)
+     */
+    public static void permute(short[] payload, int from, int to, int[] perm, Scratch scratch) {
+        int n = checkRange(payload.length, from, to);
+        int[] tmp = getScratch(scratch).getIntBuffer(n);
+        for (int i=0; i<n; i++) {
+            tmp[i] = payload[from + perm[i]];
+        }
+        for (int i=0; i<n; i++) {
+            payload[from + i] = (short) tmp[i];
+        }
+    }
+
+    /* --------------------- Internals --------------------- */
+
+    /**
+     * Sorts the unsigned bits[0...n-1] using dst as the other buffer, and
+     * leaves the permutation applied in scratch.perm1.
+     *
+     * @return Whichever of bits or dst holds the sorted keys.
+     */
+    private static long[] sortBits(long[] bits, long[] dst, int n, int numBytes, Scratch scratch) {
+        int[] counts = scratch.counts;
+        Arrays.fill(counts, 0, RADIX * numBytes, 0);
+        // Histogram every digit in a single pass.
+        for (int i=0; i<n; i++) {
+            long b = bits[i];
+            for (int d=0; d<numBytes; d++) {
+                counts[(d << RADIX_BITS) + (int) ((b >>> (d * RADIX_BITS)) & RADIX_MASK)]++;
+            }
+        }
+        long[] src = bits;
+        int[] perm = scratch.perm1;
+        int[] permDst = scratch.perm2;
+        boolean first = true;
+        for (int d=0; d<numBytes; d++) {
+            int offset = d << RADIX_BITS;
+            int shift = d * RADIX_BITS;
+            if (n == 0 || counts[offset + (int) ((src[0] >>> shift) & RADIX_MASK)] == n) {
+                // Every key has the same digit.
+                continue;
+            }
+            toOffsets(counts, offset);
+            if (first) {
+                for (int i=0; i<n; i++) {
+                    long b = src[i];
+                    int pos = counts[offset + (int) ((b >>> shift) & RADIX_MASK)]++;
+                    dst[pos] = b;
+                    permDst[pos] = i;
+                }
+                first = false;
+            } else {
+                for (int i=0; i<n; i++) {
+                    long b = src[i];
+                    int pos = counts[offset + (int) ((b >>> shift) & RADIX_MASK)]++;
+                    dst[pos] = b;
+                    permDst[pos] = perm[i];
+                }
+            }
+            long[] tmpKeys = src; src = dst; dst = tmpKeys;
+            int[] tmpPerm = perm; perm = permDst; permDst = tmpPerm;
+        }
+        finishPerm(scratch, perm, n, first);
+        return src;
+    }
+
+    /**
+     * Sorts the unsigned bits[0...n-1] using dst as the other buffer, and
+     * leaves the permutation applied in scratch.perm1.
+     *
+     * @return Whichever of bits or dst holds the sorted keys.
+     */
+    private static int[] sortBits(int[] bits, int[] dst, int n, int numBytes, Scratch scratch) {
+        int[] counts = scratch.counts;
+        Arrays.fill(counts, 0, RADIX * numBytes, 0);
+        // Histogram every digit in a single pass.
+        for (int i=0; i<n; i++) {
+            int b = bits[i];
+            for (int d=0; d<numBytes; d++) {
+                counts[(d << RADIX_BITS) + ((b >>> (d * RADIX_BITS)) & RADIX_MASK)]++;
+            }
+        }
+        int[] src = bits;
+        int[] perm = scratch.perm1;
+        int[] permDst = scratch.perm2;
+        boolean first = true;
+        for (int d=0; d<numBytes; d++) {
+            int offset = d << RADIX_BITS;
+            int shift = d * RADIX_BITS;
+            if (n == 0 || counts[offset + ((src[0] >>> shift) & RADIX_MASK)] == n) {
+                // Every key has the same digit.
+                continue;
+            }
+            toOffsets(counts, offset);
+            if (first) {
+                for (int i=0; i<n; i++) {
+                    int b = src[i];
+                    int pos = counts[offset + ((b >>> shift) & RADIX_MASK)]++;
+                    dst[pos] = b;
+                    permDst[pos] = i;
+                }
+                first = false;
+            } else {
+                for (int i=0; i<n; i++) {
+                    int b = src[i];
+                    int pos = counts[offset + ((b >>> shift) & RADIX_MASK)]++;
+                    dst[pos] = b;
+                    permDst[pos] = perm[i];
+                }
+            }
+            int[] tmpKeys = src; src = dst; dst = tmpKeys;
+            int[] tmpPerm = perm; perm = permDst; permDst = tmpPerm;
+        }
+        finishPerm(scratch, perm, n, first);
+        return src;
+    }
+
+    /** Converts the counts for one digit into the starting offset of each bucket. */
+    private static void toOffsets(int[] counts, int offset) {
+        int sum = 0;
+        for (int k=offset; k<offset + RADIX; k++) {
+            int c = counts[k];
+            counts[k] = sum;
+            sum += c;
+        }
+    }
+
+    /** Makes scratch.perm1 hold the final permutation. */
+    private static void finishPerm(Scratch scratch, int[] perm, int n, boolean identity) {
+        if (identity) {
+            // No pass was needed: the keys were all equal.
+            for (int i=0; i<n; i++) {
+                scratch.perm1[i] = i;
+            }
+        } else if (perm != scratch.perm1) {
+            scratch.perm2 = scratch.perm1;
+            scratch.perm1 = perm;
+        }
+    }
+
+    private static Scratch getScratch(Scratch scratch) {
+        return scratch != null ? scratch : new Scratch();
+    }
+
+    private static int checkRange(int length, int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ") for length " + length);
+        }
+        return to - from;
+    }
+
+}
@@ -0,0 +1,50 @@
+package edu.jhu.prim.sort;
+
+/**
+ * Per-call counters for the in-place sorts in this package. The counters are
+ * only updated when an instance is passed to one of the sort methods which
+ * accept it, so the default sorts write no shared state.
+ *
+ * @author mgormley
+ */
+public class SortStats {
+
+    long numSwaps;
+    long numHeapsorts;
+    long numRadixSorts;
+
+    public SortStats() { }
+
+    /**
+     * Gets the number of swaps. A single shift during insertion sort counts as
+     * one swap.
+     */
+    public long getNumSwaps() {
+        return numSwaps;
+    }
+
+    /**
+     * Gets the number of subranges for which the recursion depth limit was
+     * reached and heapsort was used instead of quicksort.
+     */
+    public long getNumHeapsorts() {
+        return numHeapsorts;
+    }
+
+    /** Gets the number of ranges which were radix sorted rather than introsorted. */
+    public long getNumRadixSorts() {
+        return numRadixSorts;
+    }
+
+    public void reset() {
+        numSwaps = 0;
+        numHeapsorts = 0;
+        numRadixSorts = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SortStats [numSwaps=" + numSwaps + ", numHeapsorts=" + numHeapsorts + ", numRadixSorts=" + numRadixSorts + "]";
+    }
+
+}
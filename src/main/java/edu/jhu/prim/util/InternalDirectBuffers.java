@@ -0,0 +1,77 @@
+package edu.jhu.prim.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees the memory of direct (or mapped) buffers immediately, rather than
+ * whenever the garbage collector happens to collect them. There is no public
+ * API for this, so the JDK internals are found by reflection: Unsafe.invokeCleaner
+ * on Java 9 and later, and the buffer's own cleaner on Java 8. If neither is
+ * available, freeing is left to the garbage collector.
+ * <p>
+ * This class is public only so that the off-heap maps and the mapped matrices
+ * can share it. It is not part of the API of this library.
+ * </p>
+ * @author mgormley
+ */
+public class InternalDirectBuffers {
+
+    /** The instance of sun.misc.Unsafe (Java 9+), or null. */
+    private static final Object UNSAFE;
+
+    /** Unsafe.invokeCleaner(ByteBuffer) (Java 9+), or null. */
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Exception e) {
+            // Java 8, or the method is unavailable.
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private InternalDirectBuffers() {
+        // private constructor.
+    }
+
+    /**
+     * Frees the memory of a direct buffer, which must not be a slice or
+     * duplicate of another buffer. The buffer, and any slice or duplicate of
+     * it, must never be accessed again: doing so may crash the JVM.
+     * @param buf the buffer to free
+     */
+    public static void free(final ByteBuffer buf) {
+        if (!buf.isDirect()) {
+            return;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buf);
+            } else {
+                Method cleanerMethod = buf.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buf);
+                if (cleaner != null) {
+                    Method clean = cleaner.getClass().getMethod("clean");
+                    clean.setAccessible(true);
+                    clean.invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            // Leave the buffer to the garbage collector.
+        }
+    }
+
+}
@@ -4,14 +4,12 @@ import java.util.Arrays;
 
 import edu.jhu.prim.Primitives;
 import edu.jhu.prim.arrays.DoubleArrays;
-import edu.jhu.prim.util.Lambda;
 import edu.jhu.prim.util.Lambda.FnLongDoubleToDouble;
 import edu.jhu.prim.util.Lambda.FnLongDoubleToVoid;
 import edu.jhu.prim.util.SafeCast;
-import edu.jhu.prim.vector.LongDoubleHashVector.SparseBinaryOpApplier;
 
 //TODO: Implement Iterable<LongDoubleEntry>.
-public class LongDoubleDenseVector extends AbstractLongDoubleVector implements LongDoubleVector {
+public class LongDoubleDenseVector extends AbstractLongDoubleVector implements LongDoubleVector, LongDoubleRangeIterable {
 
     private static final long serialVersionUID = 1L;
 
@@ -112,17 +110,7 @@ public class LongDoubleDenseVector extends AbstractLongDoubleVector implements L
 
     @Override
     public double dot(LongDoubleVector y) {
-        if (y instanceof LongDoubleDenseVector){
-            LongDoubleDenseVector other = (LongDoubleDenseVector) y;
-            int max = Math.min(idxAfterLast, other.idxAfterLast);
-            double dot = 0;
-            for (int i=0; i<max; i++) {
-                dot += elements[i] * y.get(i);
-            }
-            return dot;
-        } else {
-            return y.dot(this);
-        }
+        return LongDoubleVectorKernels.dot(this, y);
     }
 
     @Override
@@ -139,38 +127,38 @@ public class LongDoubleDenseVector extends AbstractLongDoubleVector implements L
         }
     }
 
+    @Override
+    public int getNumPositions() {
+        return idxAfterLast;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnLongDoubleToVoid function) {
+        for (int i=start; i<end; i++) {
+            function.call(i, elements[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnLongDoubleToDouble function) {
+        for (int i=start; i<end; i++) {
+            elements[i] = function.call(i, elements[i]);
+        }
+    }
+
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(LongDoubleVector other) {
-        if (other instanceof LongDoubleUnsortedVector) {
-            LongDoubleUnsortedVector vec = (LongDoubleUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], vec.vals[i]);
-            }
-        } else {
-            //  TODO: Add special case for LongDoubleDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleAdd()));
-        }
+        LongDoubleVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(LongDoubleVector other) {
-        if (other instanceof LongDoubleUnsortedVector) {
-            LongDoubleUnsortedVector vec = (LongDoubleUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], -vec.vals[i]);
-            }
-        } else {
-            // TODO: Add special case for LongDoubleDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleSubtract()));
-        }
+        LongDoubleVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(LongDoubleVector other) {
-        // TODO: Add special case for LongDoubleDenseVector.
-        for (int i=0; i<idxAfterLast; i++) {
-            elements[i] *= other.get(i);
-        }
+        LongDoubleVectorKernels.product(this, other);
     }
     
     /**
@@ -244,6 +232,12 @@ public class LongDoubleDenseVector extends AbstractLongDoubleVector implements L
         }
     }
 
+    /** Grows this vector, if needed, so that it has at least the given number of explicit entries. */
+    void growTo(int size) {
+        idxAfterLast = Math.max(idxAfterLast, size);
+        ensureCapacity(idxAfterLast);
+    }
+
     /**
      * Ensure that the internal array has space to contain the specified number of elements.
      * @param size The number of elements. 
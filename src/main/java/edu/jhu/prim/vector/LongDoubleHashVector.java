@@ -1,8 +1,6 @@
 package edu.jhu.prim.vector;
 
 import edu.jhu.prim.map.LongDoubleHashMap;
-import edu.jhu.prim.util.Lambda;
-import edu.jhu.prim.util.Lambda.FnLongDoubleToDouble;
 import edu.jhu.prim.util.Lambda.FnLongDoubleToVoid;
 import edu.jhu.prim.util.Lambda.LambdaBinOpDouble;
 import edu.jhu.prim.util.SafeCast;
@@ -40,6 +38,32 @@ public class LongDoubleHashVector extends LongDoubleHashMap implements LongDoubl
     public LongDoubleHashVector(long[] keys, double[] vals) {
         super(keys, vals);
     }
+
+
+    /** Whether a slot in the given state holds an entry, for the kernels which read the tables directly. */
+    static boolean isFull(byte state) {
+        return state == FULL;
+    }
+
+    /** Gets the slot of the entry for an index, or -1 if there is none. */
+    int getSlot(long idx) {
+        return indexOf(idx);
+    }
+
+    /** Gets the internal table of slot states. */
+    byte[] getInternalStates() {
+        return states;
+    }
+
+    /** Gets the internal table of keys, which are only valid for the full slots. */
+    long[] getInternalKeys() {
+        return keys;
+    }
+
+    /** Gets the internal table of values, which are only valid for the full slots. */
+    double[] getInternalValues() {
+        return values;
+    }
     
     /** Gets a deep copy of this vector. */
     @Override
@@ -80,17 +104,16 @@ public class LongDoubleHashVector extends LongDoubleHashMap implements LongDoubl
                 return other.dot(this);
             }
             return dotWithoutCaveats(other);
-        } else if (y instanceof LongDoubleSortedVector) {
-            // TODO: If the size of the HashVector is much smaller than the size
-            // of the SortedVector and neither is very large, we might want to
-            // instead loop over the HashVector.
+        } else if (y instanceof LongDoubleSortedVector || y instanceof LongDoubleUnsortedVector) {
+            // These choose whether to loop over this vector or themselves.
             return y.dot(this);
         } else {
             return dotWithoutCaveats(y);
         }
     }
 
-    private double dotWithoutCaveats(LongDoubleVector other) {
+    /** Loops over the entries of this vector, looking each one up in the other. */
+    double dotWithoutCaveats(LongDoubleVector other) {
         double dot = 0;
         for (int i=0; i<this.keys.length; i++) {
             if (this.states[i] == FULL) {
@@ -102,20 +125,17 @@ public class LongDoubleHashVector extends LongDoubleHashMap implements LongDoubl
 
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(LongDoubleVector other) {
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleAdd()));
+        LongDoubleVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(LongDoubleVector other) {
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleSubtract()));
+        LongDoubleVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(LongDoubleVector other) { 
-        // TODO: This is correct, but will create lots of zero entries and not remove any.
-        // Also this will be very slow if other is a LongDoubleSortedVector since it will have to
-        // call get() each time.
-        this.apply(new SparseBinaryOpApplier2(this, other, new Lambda.DoubleProd()));
+        LongDoubleVectorKernels.product(this, other);
     }
 
     public long getNumImplicitEntries() {
@@ -156,22 +176,4 @@ public class LongDoubleHashVector extends LongDoubleHashMap implements LongDoubl
         
     }
     
-    private static class SparseBinaryOpApplier2 implements FnLongDoubleToDouble {
-        
-        private LongDoubleVector vec1;
-        private LongDoubleVector vec2;
-        private LambdaBinOpDouble lambda;
-        
-        public SparseBinaryOpApplier2(LongDoubleVector vec1, LongDoubleVector vec2, LambdaBinOpDouble lambda) {
-            this.vec1 = vec1;
-            this.vec2 = vec2;
-            this.lambda = lambda;
-        }
-        
-        public double call(long idx, double val) {
-            return lambda.call(vec1.get(idx), vec2.get(idx));
-        }
-        
-    }
-
 }
@@ -3,11 +3,9 @@ package edu.jhu.prim.vector;
 import java.util.Arrays;
 
 import edu.jhu.prim.Primitives;
-import edu.jhu.prim.util.Lambda;
 import edu.jhu.prim.util.Lambda.FnLongDoubleToDouble;
 import edu.jhu.prim.util.Lambda.FnLongDoubleToVoid;
 import edu.jhu.prim.util.SafeCast;
-import edu.jhu.prim.vector.LongDoubleHashVector.SparseBinaryOpApplier;
 
 
 /**
@@ -76,7 +74,7 @@ public class LongDoubleVectorSlice extends AbstractLongDoubleVector implements L
         return elements[SafeCast.safeLongToInt(idx + start)];
     }
 
-    private final void checkIndex(long idx) {
+    final void checkIndex(long idx) {
         if (idx < 0 || idx >= size) {
             throw new IllegalStateException("Invalid index for slice: " + idx);
         }
@@ -118,11 +116,7 @@ public class LongDoubleVectorSlice extends AbstractLongDoubleVector implements L
 
     @Override
     public double dot(LongDoubleVector y) {
-        double dot = 0;
-        for (int i=0; i<size; i++) {
-            dot += elements[i + start] * y.get(i);
-        }
-        return dot;
+        return LongDoubleVectorKernels.dot(this, y);
     }
     
     @Override
@@ -141,22 +135,17 @@ public class LongDoubleVectorSlice extends AbstractLongDoubleVector implements L
 
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(LongDoubleVector other) {
-        // TODO: Add special case for LongDoubleDenseVector.
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleAdd()));
+        LongDoubleVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(LongDoubleVector other) {
-        // TODO: Add special case for LongDoubleDenseVector.
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleSubtract()));
+        LongDoubleVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(LongDoubleVector other) {
-        // TODO: Add special case for LongDoubleDenseVector.
-        for (int i=0; i<size; i++) {
-            elements[i + start] *= other.get(i);
-        }
+        LongDoubleVectorKernels.product(this, other);
     }
     
     /**
@@ -179,6 +168,21 @@ public class LongDoubleVectorSlice extends AbstractLongDoubleVector implements L
     public long getNumImplicitEntries() {        
         return size;
     }
+
+    /** Gets the INTERNAL array backing this slice. */
+    double[] getInternalElements() {
+        return elements;
+    }
+
+    /** Gets the position in the internal array of the 0'th element of this slice. */
+    int getStart() {
+        return start;
+    }
+
+    /** Gets the size of this slice. */
+    int getSize() {
+        return size;
+    }
     
     /**
      * Gets a NEW array containing all the elements in this array list.
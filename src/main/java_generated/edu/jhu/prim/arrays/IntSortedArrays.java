@@ -0,0 +1,404 @@
+package edu.jhu.prim.arrays;
+
+import java.util.Arrays;
+
+import edu.jhu.prim.list.IntArrayList;
+
+/**
+ * Union, intersection and difference of sorted int arrays, such as posting
+ * lists.
+ *
+ * Each input array is treated as a set: it must be sorted in ascending order
+ * and contain no duplicates. Results are appended to a caller-provided list in
+ * ascending order without duplicates, so that one output buffer can be cleared
+ * and reused across calls. When one array is more than GALLOP_RATIO times the
+ * size of the other, the smaller array is galloped through the bigger one with
+ * exponential search, which takes O(m log(n/m)) comparisons instead of O(m +
+ * n).
+ *
+ * @author mgormley
+ */
+public class IntSortedArrays {
+
+    /**
+     * The size ratio above which the smaller of two arrays is galloped through
+     * the bigger one, instead of walking both arrays in a linear merge.
+     */
+    public static final int GALLOP_RATIO = 8;
+
+    private IntSortedArrays() {
+        // private constructor
+    }
+
+    /**
+     * Gets the index of the first element in a[fromIndex], ..., a[toIndex-1]
+     * which is greater than or equal to the key, by exponential search
+     * followed by binary search. This is O(log d) where d is the distance from
+     * fromIndex to the returned index.
+     *
+     * @param a The sorted array.
+     * @param fromIndex The first index to search (inclusive).
+     * @param toIndex The last index to search (exclusive).
+     * @param key The key.
+     * @return The index of the first element >= key, or toIndex if there is
+     *         no such element.
+     */
+    public static int gallop(int[] a, int fromIndex, int toIndex, int key) {
+        if (fromIndex >= toIndex || a[fromIndex] >= key) {
+            return fromIndex;
+        }
+        // Invariant: a[lo] < key, and either hi == toIndex or a[hi] >= key on exit.
+        int lo = fromIndex;
+        int hi = fromIndex + 1;
+        int step = 1;
+        while (hi < toIndex && a[hi] < key) {
+            lo = hi;
+            if (step < (1 << 30)) {
+                step <<= 1;
+            }
+            hi = (toIndex - lo > step) ? lo + step : toIndex;
+        }
+        lo++;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Appends the union of two sorted arrays to the output list.
+     *
+     * @param a The first sorted array.
+     * @param b The second sorted array.
+     * @param out The list to which the union is appended.
+     */
+    public static void union(int[] a, int[] b, IntArrayList out) {
+        if (a.length < b.length) {
+            int[] tmp = a;
+            a = b;
+            b = tmp;
+        }
+        // Now a is at least as big as b.
+        int i = 0;
+        if (a.length / GALLOP_RATIO > b.length) {
+            // Copy the runs of a between consecutive elements of b in bulk.
+            for (int j = 0; j < b.length; j++) {
+                int y = b[j];
+                int p = gallop(a, i, a.length, y);
+                out.add(a, i, p);
+                out.add(y);
+                i = (p < a.length && a[p] == y) ? p + 1 : p;
+            }
+            out.add(a, i, a.length);
+            return;
+        }
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            int x = a[i];
+            int y = b[j];
+            if (x < y) {
+                out.add(x);
+                i++;
+            } else if (y < x) {
+                out.add(y);
+                j++;
+            } else {
+                out.add(x);
+                i++;
+                j++;
+            }
+        }
+        out.add(a, i, a.length);
+        out.add(b, j, b.length);
+    }
+
+    /**
+     * Appends the union of any number of sorted arrays to the output list. Two
+     * arrays are merged directly, and more than two are merged in a single
+     * pass with a loser tree, which takes log2(k) comparisons per element
+     * regardless of how many of the k arrays are exhausted.
+     *
+     * @param arrays The sorted arrays.
+     * @param out The list to which the union is appended.
+     */
+    public static void union(int[][] arrays, IntArrayList out) {
+        int k = arrays.length;
+        if (k == 0) {
+            return;
+        } else if (k == 1) {
+            out.add(arrays[0], 0, arrays[0].length);
+            return;
+        } else if (k == 2) {
+            union(arrays[0], arrays[1], out);
+            return;
+        }
+
+        // The current position in, and the head of, each array. The head of an
+        // exhausted array is MAX_VALUE, so that the positions only need to be
+        // checked on ties.
+        int[] pos = new int[k];
+        int[] heads = new int[k];
+        for (int s = 0; s < k; s++) {
+            heads[s] = (arrays[s].length > 0) ? arrays[s][0] : Integer.MAX_VALUE;
+        }
+
+        // The loser tree: tree[1], ..., tree[k-1] hold the loser of the match
+        // at each internal node and tree[0] holds the overall winner. Leaf
+        // s is at node s + k. Each internal node has exactly two children, so
+        // the first arrival waits at the node and the second plays it.
+        int[] tree = new int[k];
+        Arrays.fill(tree, -1);
+        for (int s = 0; s < k; s++) {
+            int winner = s;
+            int node = (s + k) >>> 1;
+            for (; node > 0; node >>>= 1) {
+                int other = tree[node];
+                if (other < 0) {
+                    tree[node] = winner;
+                    break;
+                }
+                if (beats(arrays, pos, heads, other, winner)) {
+                    tree[node] = winner;
+                    winner = other;
+                }
+            }
+            if (node == 0) {
+                tree[0] = winner;
+            }
+        }
+
+        boolean first = true;
+        int last = 0;
+        while (true) {
+            int winner = tree[0];
+            if (pos[winner] == arrays[winner].length) {
+                // The winner is only exhausted once all arrays are.
+                break;
+            }
+            int x = heads[winner];
+            if (first || x != last) {
+                out.add(x);
+                last = x;
+                first = false;
+            }
+            int[] array = arrays[winner];
+            int p = ++pos[winner];
+            int head = (p < array.length) ? array[p] : Integer.MAX_VALUE;
+            heads[winner] = head;
+            // Replay the matches on the path from the winner's leaf to the root.
+            for (int node = (winner + k) >>> 1; node > 0; node >>>= 1) {
+                int other = tree[node];
+                int otherHead = heads[other];
+                // Ties only matter when an exhausted array is involved.
+                if (otherHead < head
+                        || (otherHead == Integer.MAX_VALUE && head == Integer.MAX_VALUE && beats(arrays, pos, heads, other, winner))) {
+                    tree[node] = winner;
+                    winner = other;
+                    head = otherHead;
+                }
+            }
+            tree[0] = winner;
+        }
+    }
+
+    /** Whether the head of array s precedes the head of array t. An exhausted array never wins. */
+    private static boolean beats(int[][] arrays, int[] pos, int[] heads, int s, int t) {
+        if (heads[s] != heads[t]) {
+            return heads[s] < heads[t];
+        }
+        // Ties between MAX_VALUE and an exhausted array go to the former.
+        return pos[s] < arrays[s].length && pos[t] == arrays[t].length;
+    }
+
+    /**
+     * Appends the intersection of two sorted arrays to the output list.
+     *
+     * @param a The first sorted array.
+     * @param b The second sorted array.
+     * @param out The list to which the intersection is appended.
+     */
+    public static void intersect(int[] a, int[] b, IntArrayList out) {
+        if (a.length > b.length) {
+            int[] tmp = a;
+            a = b;
+            b = tmp;
+        }
+        // Now a is no bigger than b.
+        if (b.length / GALLOP_RATIO > a.length) {
+            int j = 0;
+            for (int i = 0; i < a.length; i++) {
+                int x = a[i];
+                j = gallop(b, j, b.length, x);
+                if (j == b.length) {
+                    return;
+                }
+                if (b[j] == x) {
+                    out.add(x);
+                    j++;
+                }
+            }
+            return;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            int x = a[i];
+            int y = b[j];
+            if (x < y) {
+                i++;
+            } else if (y < x) {
+                j++;
+            } else {
+                out.add(x);
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Appends the intersection of any number of sorted arrays to the output
+     * list. Candidates are taken from the smallest array and galloped through
+     * the others in increasing order of size. On a mismatch the smallest array
+     * skips ahead to the element that caused it, so the cost is bounded by
+     * the size of the smallest array rather than the biggest.
+     *
+     * @param arrays The sorted arrays.
+     * @param out The list to which the intersection is appended.
+     */
+    public static void intersect(int[][] arrays, IntArrayList out) {
+        int k = arrays.length;
+        if (k == 0) {
+            return;
+        } else if (k == 1) {
+            out.add(arrays[0], 0, arrays[0].length);
+            return;
+        } else if (k == 2) {
+            intersect(arrays[0], arrays[1], out);
+            return;
+        }
+
+        // Order the arrays by size with an insertion sort, since k is small.
+        int[][] sorted = Arrays.copyOf(arrays, k);
+        for (int r = 1; r < k; r++) {
+            int[] cur = sorted[r];
+            int q = r - 1;
+            for (; q >= 0 && sorted[q].length > cur.length; q--) {
+                sorted[q + 1] = sorted[q];
+            }
+            sorted[q + 1] = cur;
+        }
+
+        int[] smallest = sorted[0];
+        int[] pos = new int[k];
+        int i = 0;
+        candidates:
+        while (i < smallest.length) {
+            int x = smallest[i];
+            for (int r = 1; r < k; r++) {
+                int[] other = sorted[r];
+                int p = gallop(other, pos[r], other.length, x);
+                pos[r] = p;
+                if (p == other.length) {
+                    return;
+                }
+                if (other[p] != x) {
+                    i = gallop(smallest, i + 1, smallest.length, other[p]);
+                    continue candidates;
+                }
+            }
+            out.add(x);
+            i++;
+        }
+    }
+
+    /**
+     * Appends the elements of the first sorted array which are not in the
+     * second to the output list.
+     *
+     * @param a The sorted array from which to subtract.
+     * @param b The sorted array to subtract.
+     * @param out The list to which the difference a \ b is appended.
+     */
+    public static void difference(int[] a, int[] b, IntArrayList out) {
+        int i = 0;
+        if (b.length / GALLOP_RATIO > a.length) {
+            // Look up each element of a in b.
+            int j = 0;
+            for (; i < a.length; i++) {
+                int x = a[i];
+                j = gallop(b, j, b.length, x);
+                if (j == b.length) {
+                    break;
+                }
+                if (b[j] != x) {
+                    out.add(x);
+                }
+            }
+        } else if (a.length / GALLOP_RATIO > b.length) {
+            // Copy the runs of a between consecutive elements of b in bulk.
+            for (int j = 0; j < b.length && i < a.length; j++) {
+                int y = b[j];
+                int p = gallop(a, i, a.length, y);
+                out.add(a, i, p);
+                i = (p < a.length && a[p] == y) ? p + 1 : p;
+            }
+        } else {
+            int j = 0;
+            while (i < a.length && j < b.length) {
+                int x = a[i];
+                int y = b[j];
+                if (x < y) {
+                    out.add(x);
+                    i++;
+                } else if (y < x) {
+                    j++;
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+        }
+        out.add(a, i, a.length);
+    }
+
+    /**
+     * Appends the elements of the first sorted array which are in none of the
+     * others to the output list. Each element of a is galloped through each of
+     * the other arrays, so that no intermediate union is built.
+     *
+     * @param a The sorted array from which to subtract.
+     * @param others The sorted arrays to subtract.
+     * @param out The list to which the difference is appended.
+     */
+    public static void difference(int[] a, int[][] others, IntArrayList out) {
+        int k = others.length;
+        if (k == 0) {
+            out.add(a, 0, a.length);
+            return;
+        } else if (k == 1) {
+            difference(a, others[0], out);
+            return;
+        }
+        int[] pos = new int[k];
+        elements:
+        for (int i = 0; i < a.length; i++) {
+            int x = a[i];
+            for (int r = 0; r < k; r++) {
+                int[] other = others[r];
+                int p = gallop(other, pos[r], other.length, x);
+                pos[r] = p;
+                if (p < other.length && other[p] == x) {
+                    continue elements;
+                }
+            }
+            out.add(x);
+        }
+    }
+
+}
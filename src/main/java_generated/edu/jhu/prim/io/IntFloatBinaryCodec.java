@@ -0,0 +1,464 @@
+package edu.jhu.prim.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import edu.jhu.prim.Primitives;
+import edu.jhu.prim.map.IntFloatHashMap;
+import edu.jhu.prim.map.IntFloatSortedMap;
+import edu.jhu.prim.sort.IntFloatSort;
+import edu.jhu.prim.tuple.Pair;
+import edu.jhu.prim.vector.IntFloatDenseVector;
+import edu.jhu.prim.vector.IntFloatHashVector;
+import edu.jhu.prim.vector.IntFloatSortedVector;
+import edu.jhu.prim.vector.IntFloatUnsortedVector;
+
+/**
+ * Compact, versioned binary format for maps and vectors from ints to floats.
+ * <p>
+ * Unlike default Java serialization, which writes the full internal arrays of
+ * a hash map (including its empty slots), only the live entries are written.
+ * When the entries are sorted, the indices are delta encoded as variable-length
+ * integers, which usually takes one or two bytes per index. Otherwise a hash
+ * map's entries are written in the order of its table. A hash map is always
+ * rebuilt on load, in a table presized to the number of entries so that it is
+ * never grown, and since nothing about the table is written, a record stays
+ * readable if the hash function changes. When it has not, entries read in
+ * table order are put into the new table in (nearly) the same order, which
+ * walks its memory sequentially.
+ * </p>
+ * <p>
+ * Each record starts with a header: the magic number, the format version, the
+ * kind of object written, the width in bytes of the key and value types, the
+ * encoding flags, the value for missing entries and the number of entries.
+ * The entries follow in length-prefixed blocks of up to {@link #BLOCK_SIZE}
+ * entries, each holding the indices of its entries and then their values, so
+ * that they are encoded and decoded a whole block at a time. Sparse records
+ * (any kind except dense vectors) can be read back as any sparse type, e.g. a
+ * hash map can be read as a sorted vector.
+ * </p>
+ * <p>
+ * To read or write a {@link FileChannel}, wrap it with
+ * {@link #newDataOutput(FileChannel)} or {@link #newDataInput(FileChannel)}.
+ * </p>
+ *
+ * @author mgormley
+ */
+public class IntFloatBinaryCodec {
+
+    /** Magic number at the start of each record. */
+    public static final int MAGIC = 0x5052494d;
+
+    /** The current version of the format. */
+    public static final int VERSION = 1;
+
+    /** Kinds of objects. */
+    public static final byte KIND_HASH_MAP = 1;
+    public static final byte KIND_SORTED_MAP = 2;
+    public static final byte KIND_HASH_VECTOR = 3;
+    public static final byte KIND_SORTED_VECTOR = 4;
+    public static final byte KIND_UNSORTED_VECTOR = 5;
+    public static final byte KIND_DENSE_VECTOR = 6;
+
+    /** Flag indicating that the entries are sorted by index and the indices are delta encoded. */
+    private static final byte FLAG_SORTED_DELTA = 1;
+
+    /** Maximum number of entries per block. */
+    public static final int BLOCK_SIZE = 4096;
+
+    /** Maximum number of bytes in an encoded variable-length integer. */
+    private static final int MAX_VAR_BYTES = 10;
+
+    /** Size of the buffers used for file channels. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private IntFloatBinaryCodec() {
+        // private constructor.
+    }
+
+    /* ------------------------------ Writing ------------------------------ */
+
+    /**
+     * Writes the live entries of a hash map (or hash vector), in the order of
+     * its table unless sorted.
+     * @param map the map to write
+     * @param out the output
+     * @param sorted whether to sort the entries and delta encode the indices, which is more compact but slower to write and to read back as a hash map
+     */
+    public static void write(IntFloatHashMap map, DataOutput out, boolean sorted) throws IOException {
+        Pair<int[], float[]> pair = map.getIndicesAndValues();
+        int[] indices = pair.get1();
+        float[] values = pair.get2();
+        if (sorted) {
+            IntFloatSort.sortIndexAsc(indices, values);
+        }
+        byte kind = (map instanceof IntFloatHashVector) ? KIND_HASH_VECTOR : KIND_HASH_MAP;
+        writeEntries(out, kind, map.getMissingEntries(), indices, values, indices.length, sorted);
+    }
+
+    /**
+     * Writes a sorted map (or sorted vector), whose indices are always delta encoded.
+     * @param map the map to write
+     * @param out the output
+     */
+    public static void write(IntFloatSortedMap map, DataOutput out) throws IOException {
+        byte kind = (map instanceof IntFloatSortedVector) ? KIND_SORTED_VECTOR : KIND_SORTED_MAP;
+        writeEntries(out, kind, 0, map.getInternalIndices(), map.getInternalValues(), map.getUsed(), true);
+    }
+
+    /**
+     * Writes an unsorted vector. The vector is compacted first so that only
+     * one entry per index is written, and since compacting sorts the entries,
+     * the indices are always delta encoded.
+     * @param vec the vector to write
+     * @param out the output
+     */
+    public static void write(IntFloatUnsortedVector vec, DataOutput out) throws IOException {
+        vec.compact();
+        writeEntries(out, KIND_UNSORTED_VECTOR, 0, vec.getInternalIndices(), vec.getInternalValues(), vec.getUsed(), true);
+    }
+
+    /**
+     * Writes a dense vector. Only the values are written, since the indices
+     * are implicit.
+     * @param vec the vector to write
+     * @param out the output
+     */
+    public static void write(IntFloatDenseVector vec, DataOutput out) throws IOException {
+        final int size = (int) vec.getNumImplicitEntries();
+        final float[] values = vec.getInternalElements();
+        writeHeader(out, KIND_DENSE_VECTOR, (byte) 0, 0, size);
+        ByteBuffer buf = newBlockBuffer();
+        for (int start=0; start<size; start+=BLOCK_SIZE) {
+            final int end = Math.min(start + BLOCK_SIZE, size);
+            buf.clear();
+            for (int i=start; i<end; i++) {
+                buf.putFloat(values[i]);
+            }
+            writeBlock(out, buf);
+        }
+    }
+
+    private static void writeHeader(DataOutput out, byte kind, byte flags, float missingEntries, int size) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+        out.writeByte(Primitives.INT_NUM_BYTES);
+        out.writeByte(Primitives.FLOAT_NUM_BYTES);
+        out.writeByte(flags);
+        out.writeFloat(missingEntries);
+        out.writeInt(size);
+    }
+
+    private static void writeEntries(DataOutput out, byte kind, float missingEntries, int[] indices,
+            float[] values, int size, boolean sorted) throws IOException {
+        writeHeader(out, kind, sorted ? FLAG_SORTED_DELTA : 0, missingEntries, size);
+        ByteBuffer buf = newBlockBuffer();
+        int prev = 0;
+        for (int start=0; start<size; start+=BLOCK_SIZE) {
+            final int end = Math.min(start + BLOCK_SIZE, size);
+            buf.clear();
+            if (sorted) {
+                for (int i=start; i<end; i++) {
+                    putVarInt(buf, indices[i] - prev);
+                    prev = indices[i];
+                }
+            } else {
+                for (int i=start; i<end; i++) {
+                    buf.putInt(indices[i]);
+                }
+            }
+            for (int i=start; i<end; i++) {
+                buf.putFloat(values[i]);
+            }
+            writeBlock(out, buf);
+        }
+    }
+
+    /** Creates a buffer large enough for any one block. */
+    private static ByteBuffer newBlockBuffer() {
+        return ByteBuffer.allocate(BLOCK_SIZE * (MAX_VAR_BYTES + Primitives.FLOAT_NUM_BYTES));
+    }
+
+    /** Writes the bytes put in the buffer, prefixed by their length. */
+    private static void writeBlock(DataOutput out, ByteBuffer buf) throws IOException {
+        out.writeInt(buf.position());
+        out.write(buf.array(), 0, buf.position());
+    }
+
+    /**
+     * Puts a variable-length integer: the value is zig-zag encoded, so that
+     * small negative values are also short, and written 7 bits per byte, low
+     * bits first, with the high bit set on all but the last byte.
+     */
+    private static void putVarInt(ByteBuffer buf, int v) {
+        v = (v << 1) ^ (v >> (Primitives.INT_NUM_BITS - 1));
+        while ((v & ~0x7F) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    /* ------------------------------ Reading ------------------------------ */
+
+    /**
+     * Reads a sparse record as a hash map. The entries are put straight into a
+     * map presized for them.
+     */
+    public static IntFloatHashMap readHashMap(DataInput in) throws IOException {
+        Header h = readSparseHeader(in);
+        IntFloatHashMap map = new IntFloatHashMap(h.size, h.missingEntries);
+        putEntries(in, h, map);
+        return map;
+    }
+
+    /** Reads a sparse record as a hash vector, in the same way as {@link #readHashMap(DataInput)}. */
+    public static IntFloatHashVector readHashVector(DataInput in) throws IOException {
+        Header h = readSparseHeader(in);
+        IntFloatHashVector vec = new IntFloatHashVector(h.size);
+        putEntries(in, h, vec);
+        return vec;
+    }
+
+    /** Reads a sparse record as a sorted map. */
+    public static IntFloatSortedMap readSortedMap(DataInput in) throws IOException {
+        Entries e = readSparse(in);
+        e.sort();
+        return new IntFloatSortedMap(e.indices, e.values);
+    }
+
+    /** Reads a sparse record as a sorted vector. */
+    public static IntFloatSortedVector readSortedVector(DataInput in) throws IOException {
+        Entries e = readSparse(in);
+        e.sort();
+        return new IntFloatSortedVector(e.indices, e.values);
+    }
+
+    /** Reads a sparse record as an unsorted vector. */
+    public static IntFloatUnsortedVector readUnsortedVector(DataInput in) throws IOException {
+        Entries e = readSparse(in);
+        return new IntFloatUnsortedVector(e.indices, e.values);
+    }
+
+    /** Reads a dense vector record. */
+    public static IntFloatDenseVector readDenseVector(DataInput in) throws IOException {
+        Header h = readHeader(in);
+        if (h.kind != KIND_DENSE_VECTOR) {
+            throw new IOException("Expected a dense vector but found kind " + h.kind);
+        }
+        float[] values = new float[h.size];
+        ByteBuffer buf = newBlockBuffer();
+        try {
+            for (int start=0; start<h.size; start+=BLOCK_SIZE) {
+                final int end = Math.min(start + BLOCK_SIZE, h.size);
+                readBlock(in, buf);
+                for (int i=start; i<end; i++) {
+                    values[i] = buf.getFloat();
+                }
+                checkBlockConsumed(buf);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated block", e);
+        }
+        return new IntFloatDenseVector(values);
+    }
+
+    private static class Header {
+        byte kind;
+        byte flags;
+        float missingEntries;
+        int size;
+    }
+
+    private static class Entries {
+        boolean sorted;
+        int[] indices;
+        float[] values;
+
+        void sort() {
+            if (!sorted) {
+                IntFloatSort.sortIndexAsc(indices, values);
+                sorted = true;
+            }
+        }
+    }
+
+    private static Header readHeader(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Invalid magic number");
+        }
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported version: " + version);
+        }
+        Header h = new Header();
+        h.kind = in.readByte();
+        int keyBytes = in.readUnsignedByte();
+        int valueBytes = in.readUnsignedByte();
+        if (keyBytes != Primitives.INT_NUM_BYTES || valueBytes != Primitives.FLOAT_NUM_BYTES) {
+            throw new IOException(String.format("Record has %d-byte keys and %d-byte values, expected %d and %d",
+                    keyBytes, valueBytes, Primitives.INT_NUM_BYTES, Primitives.FLOAT_NUM_BYTES));
+        }
+        h.flags = in.readByte();
+        if ((h.flags & ~FLAG_SORTED_DELTA) != 0) {
+            throw new IOException("Unsupported flags: " + h.flags);
+        }
+        h.missingEntries = in.readFloat();
+        h.size = in.readInt();
+        if (h.size < 0) {
+            throw new IOException("Invalid number of entries: " + h.size);
+        }
+        return h;
+    }
+
+    private static Header readSparseHeader(DataInput in) throws IOException {
+        Header h = readHeader(in);
+        if (h.kind == KIND_DENSE_VECTOR) {
+            throw new IOException("Expected a sparse record but found a dense vector");
+        }
+        return h;
+    }
+
+    private static Entries readSparse(DataInput in) throws IOException {
+        Header h = readSparseHeader(in);
+        Entries e = new Entries();
+        e.sorted = (h.flags & FLAG_SORTED_DELTA) != 0;
+        e.indices = new int[h.size];
+        e.values = new float[h.size];
+        BlockReader r = new BlockReader(in, h);
+        for (int start=0, n; (n = r.next()) > 0; start += n) {
+            System.arraycopy(r.indices, 0, e.indices, start, n);
+            System.arraycopy(r.values, 0, e.values, start, n);
+        }
+        return e;
+    }
+
+    /** Reads the entries and puts each of them into the map. */
+    private static void putEntries(DataInput in, Header h, IntFloatHashMap map) throws IOException {
+        BlockReader r = new BlockReader(in, h);
+        for (int n; (n = r.next()) > 0; ) {
+            for (int i=0; i<n; i++) {
+                map.put(r.indices[i], r.values[i]);
+            }
+        }
+    }
+
+    /** Decodes the blocks of entries of a record one at a time. */
+    private static class BlockReader {
+
+        private final DataInput in;
+        private final boolean sorted;
+        private final ByteBuffer buf = newBlockBuffer();
+        /** Number of entries in the blocks not yet read. */
+        private int remaining;
+        /** The last index decoded, from which the next one is delta encoded. */
+        private int prev = 0;
+        /** The indices and values of the current block. */
+        final int[] indices;
+        final float[] values;
+
+        BlockReader(DataInput in, Header h) {
+            this.in = in;
+            this.sorted = (h.flags & FLAG_SORTED_DELTA) != 0;
+            this.remaining = h.size;
+            this.indices = new int[Math.min(h.size, BLOCK_SIZE)];
+            this.values = new float[indices.length];
+        }
+
+        /**
+         * Decodes the next block into the indices and values.
+         * @return the number of entries in the block, or 0 if there are no more
+         */
+        int next() throws IOException {
+            final int n = Math.min(BLOCK_SIZE, remaining);
+            if (n == 0) {
+                return 0;
+            }
+            readBlock(in, buf);
+            try {
+                if (sorted) {
+                    for (int i=0; i<n; i++) {
+                        prev += getVarInt(buf);
+                        indices[i] = prev;
+                    }
+                } else {
+                    for (int i=0; i<n; i++) {
+                        indices[i] = buf.getInt();
+                    }
+                }
+                for (int i=0; i<n; i++) {
+                    values[i] = buf.getFloat();
+                }
+            } catch (BufferUnderflowException ex) {
+                throw new IOException("Truncated block", ex);
+            }
+            checkBlockConsumed(buf);
+            remaining -= n;
+            return n;
+        }
+
+    }
+
+    /** Reads the next length-prefixed block into the buffer. */
+    private static void readBlock(DataInput in, ByteBuffer buf) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > buf.capacity()) {
+            throw new IOException("Invalid block length: " + length);
+        }
+        buf.clear();
+        in.readFully(buf.array(), 0, length);
+        buf.limit(length);
+    }
+
+    private static void checkBlockConsumed(ByteBuffer buf) throws IOException {
+        if (buf.hasRemaining()) {
+            throw new IOException("Block has " + buf.remaining() + " unexpected trailing bytes");
+        }
+    }
+
+    /** Gets a variable-length integer put by putVarInteger. */
+    private static int getVarInt(ByteBuffer buf) throws IOException {
+        int v = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift >= Primitives.INT_NUM_BITS) {
+                throw new IOException("Malformed variable-length integer");
+            }
+            b = buf.get() & 0xFF;
+            v |= (int) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /* --------------------------- File channels --------------------------- */
+
+    /**
+     * Creates a buffered output which writes to the channel at its current
+     * position. The caller must flush (or close) the returned stream.
+     */
+    public static DataOutputStream newDataOutput(FileChannel channel) {
+        return new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+    }
+
+    /**
+     * Creates a buffered input which reads from the channel at its current
+     * position. Since the input is buffered, the position of the channel
+     * afterwards may be past the end of the records read.
+     */
+    public static DataInputStream newDataInput(FileChannel channel) {
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+    }
+
+}
@@ -0,0 +1,35 @@
+package edu.jhu.prim.iter;
+
+/**
+ * A cursor over a collection of int primitives. Unlike an iterator, a cursor
+ * allocates nothing per element: advance() moves to the next element, which is
+ * then read with key(). The typical usage is:
+ * 
+ * <pre>
+ * IntCursor cur = set.cursor();
+ * while (cur.advance()) {
+ *     int key = cur.key();
+ * }
+ * </pre>
+ * 
+ * Cursors over modifiable collections are fail-fast: they throw a
+ * <code>ConcurrentModificationException</code> when they detect that the
+ * collection was structurally modified other than through the cursor.
+ * 
+ * @author mgormley
+ */
+public interface IntCursor {
+
+    /**
+     * Moves to the next element.
+     * @return true if there is a next element, false if the cursor is exhausted
+     */
+    boolean advance();
+
+    /**
+     * Gets the key of the current element.
+     * @throws java.util.NoSuchElementException if the cursor is not at an element
+     */
+    int key();
+
+}
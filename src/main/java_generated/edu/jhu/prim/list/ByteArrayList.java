@@ -84,6 +84,22 @@ public class ByteArrayList implements Serializable {
         }
     }
     
+    /**
+     * Adds the elements values[fromIndex], ..., values[toIndex-1] to the array list.
+     * @param values The values to add to the array list.
+     * @param fromIndex The first index to add (inclusive).
+     * @param toIndex The last index to add (exclusive).
+     */
+    public void add(byte[] values, int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > values.length || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("Invalid range: [" + fromIndex + ", " + toIndex + ")");
+        }
+        int len = toIndex - fromIndex;
+        ensureCapacity(size + len);
+        System.arraycopy(values, fromIndex, elements, size, len);
+        size += len;
+    }
+
     /**
      * Adds all the elements in the given array list to the array list.
      * @param values The values to add to the array list.
@@ -30,6 +30,7 @@ import edu.jhu.prim.tuple.Pair;
 import edu.jhu.prim.util.Lambda.FnIntDoubleToDouble;
 import edu.jhu.prim.util.Lambda.FnIntDoubleToVoid;
 import edu.jhu.prim.vector.AbstractIntDoubleVector;
+import edu.jhu.prim.vector.IntDoubleRangeIterable;
 
 /**
  * NOTICE: Changes made to this class:
@@ -37,6 +38,7 @@ import edu.jhu.prim.vector.AbstractIntDoubleVector;
  * <li>This class was renamed from OpenIntToDoubleHashMap to its current name.</li>
  * <li>The keys were converted from int to int and a new hash function was written.</li>
  * <li>A clear() method was added to this class.</li>
+ * <li>The hash function was made pluggable via {@link IntHashStrategy}.</li>
  * </ul> 
  * 
  * Open addressed map from int to double.
@@ -49,7 +51,7 @@ import edu.jhu.prim.vector.AbstractIntDoubleVector;
  * @version $Id: OpenIntToDoubleHashMap.java 1421448 2012-12-13 19:45:57Z tn $
  * @since 2.0
  */
-public class IntDoubleHashMap extends AbstractIntDoubleVector implements Serializable, IntDoubleMap {
+public class IntDoubleHashMap extends AbstractIntDoubleVector implements Serializable, IntDoubleMap, IntDoubleRangeIterable {
 
     /** Status indicator for free table entries. */
     protected static final byte FREE    = 0;
@@ -94,9 +96,15 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
     /** Current size of the map. */
     private int size;
 
+    /** Number of entries marked as removed in the states table. */
+    private int removed;
+
     /** Bit mask for hash values. */
     private int mask;
 
+    /** Hash function for the keys. */
+    private IntHashStrategy hashStrategy;
+
     /** Modifications count. */
     private transient int count;
 
@@ -126,12 +134,26 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
      */
     public IntDoubleHashMap(final int expectedSize,
                                   final double missingEntries) {
+        this(expectedSize, missingEntries, IntHashStrategy.Standard.DEFAULT);
+    }
+
+    /**
+     * Build an empty map with specified size and hash function.
+     * @param expectedSize expected number of elements in the map
+     * @param missingEntries value to return when a missing entry is fetched
+     * @param hashStrategy hash function for the keys
+     */
+    public IntDoubleHashMap(final int expectedSize,
+                                  final double missingEntries,
+                                  final IntHashStrategy hashStrategy) {
         final int capacity = computeCapacity(expectedSize);
         keys   = new int[capacity];
         values = new double[capacity];
         states = new byte[capacity];
         this.missingEntries = missingEntries;
+        this.hashStrategy = hashStrategy;
         size = 0;
+        removed = 0;
         mask   = capacity - 1;
         count = 0;
     }
@@ -149,7 +171,9 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
         states = new byte[length];
         System.arraycopy(source.states, 0, states, 0, length);
         missingEntries = source.missingEntries;
+        hashStrategy = source.hashStrategy;
         size  = source.size;
+        removed = source.removed;
         mask  = source.mask;
         count = source.count;
     }
@@ -202,26 +226,8 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
     
     @Override
     public double getWithDefault(int key, double missingEntries) {
-        final int hash  = hashOf(key);
-        int index = hash & mask;
-        if (contains(key, index)) {
-            return values[index];
-        }
-
-        if (states[index] == FREE) {
-            return missingEntries;
-        }
-
-        int j = index;
-        for (int perturb = perturb(hash); states[index] != FREE; perturb >>= PERTURB_SHIFT) {
-            j = probe(perturb, j);
-            index = j & mask;
-            if (contains(key, index)) {
-                return values[index];
-            }
-        }
-
-        return missingEntries;
+        final int index = findIndex(key, hashOf(key));
+        return index < 0 ? missingEntries : values[index];
     }
 
     /**
@@ -230,15 +236,33 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
      * @return true if a value is associated with key
      */
     public boolean contains(final int key) {
+        return findIndex(key, hashOf(key)) >= 0;
+    }
 
-        final int hash  = hashOf(key);
+    /**
+     * Gets the index in the tables of the entry for a key, for subclasses
+     * which read the tables directly.
+     * @param key key to lookup
+     * @return index of the entry, or -1 if there is no entry for the key
+     */
+    protected int indexOf(final int key) {
+        return findIndex(key, hashOf(key));
+    }
+
+    /**
+     * Find the index of the element associated with a key.
+     * @param key key to lookup
+     * @param hash hash value of the key
+     * @return index of the element, or -1 if no element is associated with key
+     */
+    private int findIndex(final int key, final int hash) {
         int index = hash & mask;
         if (contains(key, index)) {
-            return true;
+            return index;
         }
 
         if (states[index] == FREE) {
-            return false;
+            return -1;
         }
 
         int j = index;
@@ -246,12 +270,11 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
             j = probe(perturb, j);
             index = j & mask;
             if (contains(key, index)) {
-                return true;
+                return index;
             }
         }
 
-        return false;
-
+        return -1;
     }
 
     /**
@@ -265,6 +288,18 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
         return new MapIterator();
     }
 
+    /**
+     * Get a cursor over map elements, which allocates nothing per element.
+     * <p>The cursor is fail-fast: it throws a
+     * <code>ConcurrentModificationException</code> when it detects the map
+     * has been structurally modified other than by {@link IntDoubleCursor#setValue(double)}.</p>
+     * @return cursor over the map elements
+     */
+    @Override
+    public IntDoubleCursor cursor() {
+        return new MapCursor();
+    }
+
     /**
      * Perturb the hash for starting probing.
      * @param hash initial hash
@@ -277,10 +312,11 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
     /**
      * Find the index at which a key should be inserted
      * @param key key to lookup
+     * @param hash hash value of the key
      * @return index at which key should be inserted
      */
-    private int findInsertionIndex(final int key) {
-        return findInsertionIndex(keys, states, key, mask);
+    private int findInsertionIndex(final int key, final int hash) {
+        return findInsertionIndex(keys, states, key, hash, mask);
     }
 
     /**
@@ -288,12 +324,12 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
      * @param keys keys table
      * @param states states table
      * @param key key to lookup
+     * @param hash hash value of the key
      * @param mask bit mask for hash values
      * @return index at which key should be inserted
      */
     private static int findInsertionIndex(final int[] keys, final byte[] states,
-                                          final int key, final int mask) {
-        final int hash = hashOf(key);
+                                          final int key, final int hash, final int mask) {
         int index = hash & mask;
         if (states[index] == FREE) {
             return index;
@@ -359,6 +395,59 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
         return -index - 1;
     }
 
+    /**
+     * Get the value returned for missing entries.
+     * @return value returned when a missing entry is fetched
+     */
+    public double getMissingEntries() {
+        return missingEntries;
+    }
+
+    /**
+     * Get the hash function for the keys.
+     * @return hash function for the keys
+     */
+    public IntHashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * Get the average number of slots examined by a successful lookup, which
+     * is 1 when no key collides with another. This walks the whole table and
+     * is intended for diagnosing poorly distributed keys.
+     * @return average probe length, or 0 if the map is empty
+     */
+    public double getAverageProbeLength() {
+        if (size == 0) {
+            return 0;
+        }
+        int total = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (states[i] == FULL) {
+                total += probeLength(keys[i]);
+            }
+        }
+        return (double) total / size;
+    }
+
+    /**
+     * Count the slots examined by findIndex for a key in the map.
+     * @param key key in the map
+     * @return number of slots examined
+     */
+    private int probeLength(final int key) {
+        final int hash = hashOf(key);
+        int index = hash & mask;
+        int length = 1;
+        int j = index;
+        for (int perturb = perturb(hash); !contains(key, index); perturb >>= PERTURB_SHIFT) {
+            j = probe(perturb, j);
+            index = j & mask;
+            length++;
+        }
+        return length;
+    }
+
     /**
      * Get the number of elements stored in the map.
      * @return number of elements stored in the map
@@ -407,6 +496,7 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
         Arrays.fill(values, 0);
         Arrays.fill(states, FREE);
         size = 0;
+        removed = 0;
         mask   = capacity - 1;
         count = 0;
     }
@@ -433,6 +523,7 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
         final double previous = values[index];
         values[index] = missingEntries;
         --size;
+        ++removed;
         ++count;
         return previous;
     }
@@ -448,13 +539,15 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
      * @return previous value associated with the key
      */
     public double putAndGet(final int key, final double value) {
-        int index = findInsertionIndex(key);
+        int index = findInsertionIndex(key, hashOf(key));
         double previous = missingEntries;
         boolean newMapping = true;
         if (index < 0) {
             index = changeIndexSign(index);
             previous = values[index];
             newMapping = false;
+        } else if (states[index] == REMOVED) {
+            --removed;
         }
         keys[index]   = key;
         states[index] = FULL;
@@ -478,13 +571,15 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
      * the previous value.
      */
     public double addAndGet(final int key, final double value) {
-        int index = findInsertionIndex(key);
+        int index = findInsertionIndex(key, hashOf(key));
         double previous = missingEntries;
         boolean newMapping = true;
         if (index < 0) {
             index = changeIndexSign(index);
             previous = values[index];
             newMapping = false;
+        } else if (states[index] == REMOVED) {
+            --removed;
         }
         keys[index]   = key;
         states[index] = FULL;
@@ -500,16 +595,26 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
     }
 
     /**
-     * Grow the tables.
+     * Grow the tables. If at most half of the used slots hold live entries,
+     * the rest being removed entries, the tables are instead rehashed in
+     * place at the same length, which discards the removed entries.
      */
     private void growTable() {
+        final int oldLength = states.length;
+        rehash((size > oldLength * LOAD_FACTOR / 2) ? RESIZE_MULTIPLIER * oldLength : oldLength);
+    }
+
+    /**
+     * Rehash the entries into new tables.
+     * @param newLength length of the new tables, a power of two
+     */
+    private void rehash(final int newLength) {
 
         final int oldLength      = states.length;
         final int[] oldKeys      = keys;
         final double[] oldValues = values;
         final byte[] oldStates   = states;
 
-        final int newLength = RESIZE_MULTIPLIER * oldLength;
         final int[] newKeys = new int[newLength];
         final double[] newValues = new double[newLength];
         final byte[] newStates = new byte[newLength];
@@ -517,7 +622,7 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
         for (int i = 0; i < oldLength; ++i) {
             if (oldStates[i] == FULL) {
                 final int key = oldKeys[i];
-                final int index = findInsertionIndex(newKeys, newStates, key, newMask);
+                final int index = findInsertionIndex(newKeys, newStates, key, hashOf(key), newMask);
                 newKeys[index]   = key;
                 newValues[index] = oldValues[i];
                 newStates[index] = FULL;
@@ -528,15 +633,17 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
         keys   = newKeys;
         values = newValues;
         states = newStates;
+        removed = 0;
 
     }
 
     /**
-     * Check if tables should grow due to increased size.
+     * Check if tables should grow due to increased size. Removed entries
+     * count towards the load, since probes must step over them.
      * @return true if  tables should grow
      */
     private boolean shouldGrowTable() {
-        return size > (mask + 1) * LOAD_FACTOR;
+        return size + removed > (mask + 1) * LOAD_FACTOR;
     }
 
     /**
@@ -544,8 +651,8 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
      * @param key key to hash
      * @return hash value of the key
      */
-    private static int hashOf(final int key) {
-        return Primitives.hashOfInt(key);
+    private int hashOf(final int key) {
+        return hashStrategy.hashOf(key);
     }
 
     /** Iterator class for the map. */
@@ -660,6 +767,54 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
 
     }
 
+    /** Cursor class for the map. */
+    private class MapCursor implements IntDoubleCursor {
+
+        /** Reference modification count. */
+        private final int referenceCount = count;
+
+        /** Index of current element, or -1 before the first and states.length after the last. */
+        private int current = -1;
+
+        public boolean advance() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            final byte[] states = IntDoubleHashMap.this.states;
+            while (current < states.length) {
+                if (++current < states.length && states[current] == FULL) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int key() {
+            checkCurrent();
+            return keys[current];
+        }
+
+        public double value() {
+            checkCurrent();
+            return values[current];
+        }
+
+        public void setValue(double value) {
+            checkCurrent();
+            values[current] = value;
+        }
+
+        private void checkCurrent() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (current < 0 || current >= states.length) {
+                throw new NoSuchElementException();
+            }
+        }
+
+    }
+
     /**
      * Read a serialized object.
      * @param stream input stream
@@ -670,6 +825,12 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
     private void readObject(final ObjectInputStream stream)
         throws IOException, ClassNotFoundException {
         stream.defaultReadObject();
+        if (hashStrategy == null) {
+            // Written before the hash function was pluggable, so the table
+            // may have been laid out by a different hash function.
+            hashStrategy = IntHashStrategy.Standard.DEFAULT;
+            rehash(states.length);
+        }
         count = 0;
     }
     
@@ -726,5 +887,28 @@ public class IntDoubleHashMap extends AbstractIntDoubleVector implements Seriali
             }
         }
     }
+
+    @Override
+    public int getNumPositions() {
+        return keys.length;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnIntDoubleToVoid lambda) {
+        for (int i=start; i<end; i++) {
+            if (states[i] == FULL) {
+                lambda.call(keys[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnIntDoubleToDouble lambda) {
+        for (int i=start; i<end; i++) {
+            if (states[i] == FULL) {
+                values[i] = lambda.call(keys[i], values[i]);
+            }
+        }
+    }
     
 }
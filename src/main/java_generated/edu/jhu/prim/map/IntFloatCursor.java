@@ -0,0 +1,33 @@
+package edu.jhu.prim.map;
+
+import edu.jhu.prim.iter.IntCursor;
+
+/**
+ * A cursor over the entries of a map from ints to floats, which allocates
+ * nothing per entry. The typical usage is:
+ * 
+ * <pre>
+ * IntFloatCursor cur = map.cursor();
+ * while (cur.advance()) {
+ *     cur.setValue(cur.value() * 2);
+ * }
+ * </pre>
+ * 
+ * @author mgormley
+ */
+public interface IntFloatCursor extends IntCursor {
+
+    /**
+     * Gets the value of the current entry.
+     * @throws java.util.NoSuchElementException if the cursor is not at an entry
+     */
+    float value();
+
+    /**
+     * Sets the value of the current entry. This is not a structural
+     * modification, so the cursor remains valid.
+     * @throws java.util.NoSuchElementException if the cursor is not at an entry
+     */
+    void setValue(float value);
+
+}
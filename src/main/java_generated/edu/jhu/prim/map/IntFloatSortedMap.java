@@ -1,7 +1,9 @@
 package edu.jhu.prim.map;
 
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import edu.jhu.prim.arrays.FloatArrays;
 import edu.jhu.prim.arrays.IntArrays;
@@ -13,6 +15,7 @@ import edu.jhu.prim.tuple.Pair;
 import edu.jhu.prim.util.Lambda.FnIntFloatToFloat;
 import edu.jhu.prim.util.Lambda.FnIntFloatToVoid;
 import edu.jhu.prim.vector.AbstractIntFloatVector;
+import edu.jhu.prim.vector.IntFloatRangeIterable;
 
 /**
  * A primitives map from ints to floats. The map is stored by keeping a sorted
@@ -21,7 +24,7 @@ import edu.jhu.prim.vector.AbstractIntFloatVector;
  * 
  * @author mgormley
  */
-public class IntFloatSortedMap extends AbstractIntFloatVector implements IntFloatMap {
+public class IntFloatSortedMap extends AbstractIntFloatVector implements IntFloatMap, IntFloatRangeIterable {
     
     private static final long serialVersionUID = 1L;
 	protected int[] indices;
@@ -49,9 +52,10 @@ public class IntFloatSortedMap extends AbstractIntFloatVector implements IntFloa
 	}
 
 	public IntFloatSortedMap(IntFloatSortedMap other) {
-		this.used = other.used;
-		this.indices = IntArrays.copyOf(other.indices);
-		this.values = FloatArrays.copyOf(other.values);
+	    // Use the accessors, which merge the buffer of a IntFloatBufferedSortedMap.
+		this.used = other.getUsed();
+		this.indices = IntArrays.copyOf(other.getInternalIndices());
+		this.values = FloatArrays.copyOf(other.getInternalValues());
 	}
 
     public IntFloatSortedMap(IntFloatHashMap other) {
@@ -163,6 +167,7 @@ public class IntFloatSortedMap extends AbstractIntFloatVector implements IntFloa
         values = insert(values, insertionPoint, val);
         used++;
     }
+
     
     public void apply(FnIntFloatToFloat lambda) {
         for (int i=0; i<used; i++) {
@@ -175,6 +180,25 @@ public class IntFloatSortedMap extends AbstractIntFloatVector implements IntFloa
             lambda.call(indices[i], values[i]);
         }
     }
+
+    @Override
+    public int getNumPositions() {
+        return used;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnIntFloatToVoid lambda) {
+        for (int i=start; i<end; i++) {
+            lambda.call(indices[i], values[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnIntFloatToFloat lambda) {
+        for (int i=start; i<end; i++) {
+            values[i] = lambda.call(indices[i], values[i]);
+        }
+    }
 	
 	private final int[] insert(int[] array, int i, int val) {
 		if (used >= array.length) {
@@ -258,6 +282,66 @@ public class IntFloatSortedMap extends AbstractIntFloatVector implements IntFloa
 		return new IntFloatIterator();
 	}
 
+    /**
+     * Gets a cursor over the entries in order of their indices, which
+     * allocates nothing per entry. The cursor is fail-fast: it throws a
+     * <code>ConcurrentModificationException</code> if it detects that an
+     * entry was added or removed.
+     */
+    @Override
+    public IntFloatCursor cursor() {
+        return new IntFloatMapCursor();
+    }
+
+    /** Cursor over the entries of the map. */
+    private class IntFloatMapCursor implements IntFloatCursor {
+
+        // Any insertion or removal changes used or reallocates indices.
+        private final int[] expectedIndices = indices;
+        private final int expectedUsed = used;
+        private int i = -1;
+
+        @Override
+        public boolean advance() {
+            checkForComodification();
+            if (i < used) {
+                i++;
+            }
+            return i < used;
+        }
+
+        @Override
+        public int key() {
+            checkCurrent();
+            return indices[i];
+        }
+
+        @Override
+        public float value() {
+            checkCurrent();
+            return values[i];
+        }
+
+        @Override
+        public void setValue(float value) {
+            checkCurrent();
+            values[i] = value;
+        }
+
+        private void checkCurrent() {
+            checkForComodification();
+            if (i < 0 || i >= used) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        private void checkForComodification() {
+            if (indices != expectedIndices || used != expectedUsed) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+    }
 
 	/* (non-Javadoc)
      * @see edu.jhu.util.vector.IntFloatMap#size()
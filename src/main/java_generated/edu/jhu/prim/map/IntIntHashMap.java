@@ -30,6 +30,7 @@ import edu.jhu.prim.tuple.Pair;
 import edu.jhu.prim.util.Lambda.FnIntIntToInt;
 import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
 import edu.jhu.prim.vector.AbstractIntIntVector;
+import edu.jhu.prim.vector.IntIntRangeIterable;
 
 /**
  * NOTICE: Changes made to this class:
@@ -37,6 +38,7 @@ import edu.jhu.prim.vector.AbstractIntIntVector;
  * <li>This class was renamed from OpenIntToIntHashMap to its current name.</li>
  * <li>The keys were converted from int to int and a new hash function was written.</li>
  * <li>A clear() method was added to this class.</li>
+ * <li>The hash function was made pluggable via {@link IntHashStrategy}.</li>
  * </ul> 
  * 
  * Open addressed map from int to int.
@@ -49,7 +51,7 @@ import edu.jhu.prim.vector.AbstractIntIntVector;
  * @version $Id: OpenIntToIntHashMap.java 1421448 2012-12-13 19:45:57Z tn $
  * @since 2.0
  */
-public class IntIntHashMap extends AbstractIntIntVector implements Serializable, IntIntMap {
+public class IntIntHashMap extends AbstractIntIntVector implements Serializable, IntIntMap, IntIntRangeIterable {
 
     /** Status indicator for free table entries. */
     protected static final byte FREE    = 0;
@@ -94,9 +96,15 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
     /** Current size of the map. */
     private int size;
 
+    /** Number of entries marked as removed in the states table. */
+    private int removed;
+
     /** Bit mask for hash values. */
     private int mask;
 
+    /** Hash function for the keys. */
+    private IntHashStrategy hashStrategy;
+
     /** Modifications count. */
     private transient int count;
 
@@ -116,12 +124,26 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
      */
     public IntIntHashMap(final int expectedSize,
                                   final int missingEntries) {
+        this(expectedSize, missingEntries, IntHashStrategy.Standard.DEFAULT);
+    }
+
+    /**
+     * Build an empty map with specified size and hash function.
+     * @param expectedSize expected number of elements in the map
+     * @param missingEntries value to return when a missing entry is fetched
+     * @param hashStrategy hash function for the keys
+     */
+    public IntIntHashMap(final int expectedSize,
+                                  final int missingEntries,
+                                  final IntHashStrategy hashStrategy) {
         final int capacity = computeCapacity(expectedSize);
         keys   = new int[capacity];
         values = new int[capacity];
         states = new byte[capacity];
         this.missingEntries = missingEntries;
+        this.hashStrategy = hashStrategy;
         size = 0;
+        removed = 0;
         mask   = capacity - 1;
         count = 0;
     }
@@ -139,7 +161,9 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
         states = new byte[length];
         System.arraycopy(source.states, 0, states, 0, length);
         missingEntries = source.missingEntries;
+        hashStrategy = source.hashStrategy;
         size  = source.size;
+        removed = source.removed;
         mask  = source.mask;
         count = source.count;
     }
@@ -192,26 +216,8 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
     
     @Override
     public int getWithDefault(int key, int missingEntries) {
-        final int hash  = hashOf(key);
-        int index = hash & mask;
-        if (contains(key, index)) {
-            return values[index];
-        }
-
-        if (states[index] == FREE) {
-            return missingEntries;
-        }
-
-        int j = index;
-        for (int perturb = perturb(hash); states[index] != FREE; perturb >>= PERTURB_SHIFT) {
-            j = probe(perturb, j);
-            index = j & mask;
-            if (contains(key, index)) {
-                return values[index];
-            }
-        }
-
-        return missingEntries;
+        final int index = findIndex(key, hashOf(key));
+        return index < 0 ? missingEntries : values[index];
     }
 
     /**
@@ -220,15 +226,33 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
      * @return true if a value is associated with key
      */
     public boolean contains(final int key) {
+        return findIndex(key, hashOf(key)) >= 0;
+    }
 
-        final int hash  = hashOf(key);
+    /**
+     * Gets the index in the tables of the entry for a key, for subclasses
+     * which read the tables directly.
+     * @param key key to lookup
+     * @return index of the entry, or -1 if there is no entry for the key
+     */
+    protected int indexOf(final int key) {
+        return findIndex(key, hashOf(key));
+    }
+
+    /**
+     * Find the index of the element associated with a key.
+     * @param key key to lookup
+     * @param hash hash value of the key
+     * @return index of the element, or -1 if no element is associated with key
+     */
+    private int findIndex(final int key, final int hash) {
         int index = hash & mask;
         if (contains(key, index)) {
-            return true;
+            return index;
         }
 
         if (states[index] == FREE) {
-            return false;
+            return -1;
         }
 
         int j = index;
@@ -236,12 +260,11 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
             j = probe(perturb, j);
             index = j & mask;
             if (contains(key, index)) {
-                return true;
+                return index;
             }
         }
 
-        return false;
-
+        return -1;
     }
 
     /**
@@ -255,6 +278,18 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
         return new MapIterator();
     }
 
+    /**
+     * Get a cursor over map elements, which allocates nothing per element.
+     * <p>The cursor is fail-fast: it throws a
+     * <code>ConcurrentModificationException</code> when it detects the map
+     * has been structurally modified other than by {@link IntIntCursor#setValue(int)}.</p>
+     * @return cursor over the map elements
+     */
+    @Override
+    public IntIntCursor cursor() {
+        return new MapCursor();
+    }
+
     /**
      * Perturb the hash for starting probing.
      * @param hash initial hash
@@ -267,10 +302,11 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
     /**
      * Find the index at which a key should be inserted
      * @param key key to lookup
+     * @param hash hash value of the key
      * @return index at which key should be inserted
      */
-    private int findInsertionIndex(final int key) {
-        return findInsertionIndex(keys, states, key, mask);
+    private int findInsertionIndex(final int key, final int hash) {
+        return findInsertionIndex(keys, states, key, hash, mask);
     }
 
     /**
@@ -278,12 +314,12 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
      * @param keys keys table
      * @param states states table
      * @param key key to lookup
+     * @param hash hash value of the key
      * @param mask bit mask for hash values
      * @return index at which key should be inserted
      */
     private static int findInsertionIndex(final int[] keys, final byte[] states,
-                                          final int key, final int mask) {
-        final int hash = hashOf(key);
+                                          final int key, final int hash, final int mask) {
         int index = hash & mask;
         if (states[index] == FREE) {
             return index;
@@ -349,6 +385,59 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
         return -index - 1;
     }
 
+    /**
+     * Get the value returned for missing entries.
+     * @return value returned when a missing entry is fetched
+     */
+    public int getMissingEntries() {
+        return missingEntries;
+    }
+
+    /**
+     * Get the hash function for the keys.
+     * @return hash function for the keys
+     */
+    public IntHashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * Get the average number of slots examined by a successful lookup, which
+     * is 1 when no key collides with another. This walks the whole table and
+     * is intended for diagnosing poorly distributed keys.
+     * @return average probe length, or 0 if the map is empty
+     */
+    public int getAverageProbeLength() {
+        if (size == 0) {
+            return 0;
+        }
+        int total = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (states[i] == FULL) {
+                total += probeLength(keys[i]);
+            }
+        }
+        return (int) total / size;
+    }
+
+    /**
+     * Count the slots examined by findIndex for a key in the map.
+     * @param key key in the map
+     * @return number of slots examined
+     */
+    private int probeLength(final int key) {
+        final int hash = hashOf(key);
+        int index = hash & mask;
+        int length = 1;
+        int j = index;
+        for (int perturb = perturb(hash); !contains(key, index); perturb >>= PERTURB_SHIFT) {
+            j = probe(perturb, j);
+            index = j & mask;
+            length++;
+        }
+        return length;
+    }
+
     /**
      * Get the number of elements stored in the map.
      * @return number of elements stored in the map
@@ -397,6 +486,7 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
         Arrays.fill(values, 0);
         Arrays.fill(states, FREE);
         size = 0;
+        removed = 0;
         mask   = capacity - 1;
         count = 0;
     }
@@ -423,6 +513,7 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
         final int previous = values[index];
         values[index] = missingEntries;
         --size;
+        ++removed;
         ++count;
         return previous;
     }
@@ -438,13 +529,15 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
      * @return previous value associated with the key
      */
     public int putAndGet(final int key, final int value) {
-        int index = findInsertionIndex(key);
+        int index = findInsertionIndex(key, hashOf(key));
         int previous = missingEntries;
         boolean newMapping = true;
         if (index < 0) {
             index = changeIndexSign(index);
             previous = values[index];
             newMapping = false;
+        } else if (states[index] == REMOVED) {
+            --removed;
         }
         keys[index]   = key;
         states[index] = FULL;
@@ -468,13 +561,15 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
      * the previous value.
      */
     public int addAndGet(final int key, final int value) {
-        int index = findInsertionIndex(key);
+        int index = findInsertionIndex(key, hashOf(key));
         int previous = missingEntries;
         boolean newMapping = true;
         if (index < 0) {
             index = changeIndexSign(index);
             previous = values[index];
             newMapping = false;
+        } else if (states[index] == REMOVED) {
+            --removed;
         }
         keys[index]   = key;
         states[index] = FULL;
@@ -490,16 +585,26 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
     }
 
     /**
-     * Grow the tables.
+     * Grow the tables. If at most half of the used slots hold live entries,
+     * the rest being removed entries, the tables are instead rehashed in
+     * place at the same length, which discards the removed entries.
      */
     private void growTable() {
+        final int oldLength = states.length;
+        rehash((size > oldLength * LOAD_FACTOR / 2) ? RESIZE_MULTIPLIER * oldLength : oldLength);
+    }
+
+    /**
+     * Rehash the entries into new tables.
+     * @param newLength length of the new tables, a power of two
+     */
+    private void rehash(final int newLength) {
 
         final int oldLength      = states.length;
         final int[] oldKeys      = keys;
         final int[] oldValues = values;
         final byte[] oldStates   = states;
 
-        final int newLength = RESIZE_MULTIPLIER * oldLength;
         final int[] newKeys = new int[newLength];
         final int[] newValues = new int[newLength];
         final byte[] newStates = new byte[newLength];
@@ -507,7 +612,7 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
         for (int i = 0; i < oldLength; ++i) {
             if (oldStates[i] == FULL) {
                 final int key = oldKeys[i];
-                final int index = findInsertionIndex(newKeys, newStates, key, newMask);
+                final int index = findInsertionIndex(newKeys, newStates, key, hashOf(key), newMask);
                 newKeys[index]   = key;
                 newValues[index] = oldValues[i];
                 newStates[index] = FULL;
@@ -518,15 +623,17 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
         keys   = newKeys;
         values = newValues;
         states = newStates;
+        removed = 0;
 
     }
 
     /**
-     * Check if tables should grow due to increased size.
+     * Check if tables should grow due to increased size. Removed entries
+     * count towards the load, since probes must step over them.
      * @return true if  tables should grow
      */
     private boolean shouldGrowTable() {
-        return size > (mask + 1) * LOAD_FACTOR;
+        return size + removed > (mask + 1) * LOAD_FACTOR;
     }
 
     /**
@@ -534,8 +641,8 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
      * @param key key to hash
      * @return hash value of the key
      */
-    private static int hashOf(final int key) {
-        return Primitives.hashOfInt(key);
+    private int hashOf(final int key) {
+        return hashStrategy.hashOf(key);
     }
 
     /** Iterator class for the map. */
@@ -650,6 +757,54 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
 
     }
 
+    /** Cursor class for the map. */
+    private class MapCursor implements IntIntCursor {
+
+        /** Reference modification count. */
+        private final int referenceCount = count;
+
+        /** Index of current element, or -1 before the first and states.length after the last. */
+        private int current = -1;
+
+        public boolean advance() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            final byte[] states = IntIntHashMap.this.states;
+            while (current < states.length) {
+                if (++current < states.length && states[current] == FULL) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int key() {
+            checkCurrent();
+            return keys[current];
+        }
+
+        public int value() {
+            checkCurrent();
+            return values[current];
+        }
+
+        public void setValue(int value) {
+            checkCurrent();
+            values[current] = value;
+        }
+
+        private void checkCurrent() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (current < 0 || current >= states.length) {
+                throw new NoSuchElementException();
+            }
+        }
+
+    }
+
     /**
      * Read a serialized object.
      * @param stream input stream
@@ -660,6 +815,12 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
     private void readObject(final ObjectInputStream stream)
         throws IOException, ClassNotFoundException {
         stream.defaultReadObject();
+        if (hashStrategy == null) {
+            // Written before the hash function was pluggable, so the table
+            // may have been laid out by a different hash function.
+            hashStrategy = IntHashStrategy.Standard.DEFAULT;
+            rehash(states.length);
+        }
         count = 0;
     }
     
@@ -716,5 +877,28 @@ public class IntIntHashMap extends AbstractIntIntVector implements Serializable,
             }
         }
     }
+
+    @Override
+    public int getNumPositions() {
+        return keys.length;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnIntIntToVoid lambda) {
+        for (int i=start; i<end; i++) {
+            if (states[i] == FULL) {
+                lambda.call(keys[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnIntIntToInt lambda) {
+        for (int i=start; i<end; i++) {
+            if (states[i] == FULL) {
+                values[i] = lambda.call(keys[i], values[i]);
+            }
+        }
+    }
     
 }
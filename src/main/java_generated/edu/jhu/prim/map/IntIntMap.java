@@ -2,6 +2,7 @@ package edu.jhu.prim.map;
 
 import java.io.Serializable;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import edu.jhu.prim.util.Lambda.FnIntIntToInt;
 import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
@@ -35,6 +36,50 @@ public interface IntIntMap extends Iterable<IntIntEntry>, Serializable {
     // TODO: maybe rename to increment?
     void add(int idx, int incr);
 
+    /**
+     * Gets the value at each of the given indices, writing it to the corresponding position of out.
+     * The default implementation calls get() for each index.
+     */
+    default void getAll(int[] idx, int[] out) {
+        InternalBatchUtils.checkBatchLengths(idx.length, out.length);
+        for (int i=0; i<idx.length; i++) {
+            out[i] = get(idx[i]);
+        }
+    }
+
+    /**
+     * Sets each position of out to true iff the map contains the corresponding index.
+     * The default implementation calls contains() for each index.
+     */
+    default void containsAll(int[] idx, boolean[] out) {
+        InternalBatchUtils.checkBatchLengths(idx.length, out.length);
+        for (int i=0; i<idx.length; i++) {
+            out[i] = contains(idx[i]);
+        }
+    }
+
+    /**
+     * Puts each value with its corresponding index in the map, replacing the current values if they exist.
+     * The default implementation calls put() for each index.
+     */
+    default void putAll(int[] idx, int[] vals) {
+        InternalBatchUtils.checkBatchLengths(idx.length, vals.length);
+        for (int i=0; i<idx.length; i++) {
+            put(idx[i], vals[i]);
+        }
+    }
+
+    /**
+     * Increments the entry at each index by the corresponding increment.
+     * The default implementation calls add() for each index.
+     */
+    default void addAll(int[] idx, int[] incrs) {
+        InternalBatchUtils.checkBatchLengths(idx.length, incrs.length);
+        for (int i=0; i<idx.length; i++) {
+            add(idx[i], incrs[i]);
+        }
+    }
+
     /** Applies the function to each entry in the map. */
     void apply(FnIntIntToInt lambda);
 
@@ -47,6 +92,56 @@ public interface IntIntMap extends Iterable<IntIntEntry>, Serializable {
      */
     Iterator<IntIntEntry> iterator();
 
+    /**
+     * Returns a cursor over the entries in the map, which allocates nothing per entry.
+     * The default implementation adapts iterator(), so it allocates as much as the
+     * iterator does, and sets a value with put().
+     */
+    default IntIntCursor cursor() {
+        final Iterator<IntIntEntry> iter = iterator();
+        return new IntIntCursor() {
+            private boolean atEntry = false;
+            private int key;
+            private int value;
+
+            @Override
+            public boolean advance() {
+                atEntry = iter.hasNext();
+                if (atEntry) {
+                    IntIntEntry e = iter.next();
+                    key = e.index();
+                    value = e.get();
+                }
+                return atEntry;
+            }
+
+            @Override
+            public int key() {
+                checkEntry();
+                return key;
+            }
+
+            @Override
+            public int value() {
+                checkEntry();
+                return value;
+            }
+
+            @Override
+            public void setValue(int value) {
+                checkEntry();
+                put(key, value);
+                this.value = value;
+            }
+
+            private void checkEntry() {
+                if (!atEntry) {
+                    throw new NoSuchElementException();
+                }
+            }
+        };
+    }
+
     /** Returns the number of entries in the map. */
     int size();
 
@@ -1,7 +1,9 @@
 package edu.jhu.prim.map;
 
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import edu.jhu.prim.arrays.IntArrays;
 import edu.jhu.prim.arrays.IntArrays;
@@ -13,6 +15,7 @@ import edu.jhu.prim.tuple.Pair;
 import edu.jhu.prim.util.Lambda.FnIntIntToInt;
 import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
 import edu.jhu.prim.vector.AbstractIntIntVector;
+import edu.jhu.prim.vector.IntIntRangeIterable;
 
 /**
  * A primitives map from ints to ints. The map is stored by keeping a sorted
@@ -21,7 +24,7 @@ import edu.jhu.prim.vector.AbstractIntIntVector;
  * 
  * @author mgormley
  */
-public class IntIntSortedMap extends AbstractIntIntVector implements IntIntMap {
+public class IntIntSortedMap extends AbstractIntIntVector implements IntIntMap, IntIntRangeIterable {
     
     private static final long serialVersionUID = 1L;
 	protected int[] indices;
@@ -49,9 +52,10 @@ public class IntIntSortedMap extends AbstractIntIntVector implements IntIntMap {
 	}
 
 	public IntIntSortedMap(IntIntSortedMap other) {
-		this.used = other.used;
-		this.indices = IntArrays.copyOf(other.indices);
-		this.values = IntArrays.copyOf(other.values);
+	    // Use the accessors, which merge the buffer of a IntIntBufferedSortedMap.
+		this.used = other.getUsed();
+		this.indices = IntArrays.copyOf(other.getInternalIndices());
+		this.values = IntArrays.copyOf(other.getInternalValues());
 	}
 
     public IntIntSortedMap(IntIntHashMap other) {
@@ -163,6 +167,7 @@ public class IntIntSortedMap extends AbstractIntIntVector implements IntIntMap {
         values = insert(values, insertionPoint, val);
         used++;
     }
+
     
     public void apply(FnIntIntToInt lambda) {
         for (int i=0; i<used; i++) {
@@ -175,6 +180,25 @@ public class IntIntSortedMap extends AbstractIntIntVector implements IntIntMap {
             lambda.call(indices[i], values[i]);
         }
     }
+
+    @Override
+    public int getNumPositions() {
+        return used;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnIntIntToVoid lambda) {
+        for (int i=start; i<end; i++) {
+            lambda.call(indices[i], values[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnIntIntToInt lambda) {
+        for (int i=start; i<end; i++) {
+            values[i] = lambda.call(indices[i], values[i]);
+        }
+    }
 	
 	private final int[] insert(int[] array, int i, int val) {
 		if (used >= array.length) {
@@ -242,6 +266,66 @@ public class IntIntSortedMap extends AbstractIntIntVector implements IntIntMap {
 		return new IntIntIterator();
 	}
 
+    /**
+     * Gets a cursor over the entries in order of their indices, which
+     * allocates nothing per entry. The cursor is fail-fast: it throws a
+     * <code>ConcurrentModificationException</code> if it detects that an
+     * entry was added or removed.
+     */
+    @Override
+    public IntIntCursor cursor() {
+        return new IntIntMapCursor();
+    }
+
+    /** Cursor over the entries of the map. */
+    private class IntIntMapCursor implements IntIntCursor {
+
+        // Any insertion or removal changes used or reallocates indices.
+        private final int[] expectedIndices = indices;
+        private final int expectedUsed = used;
+        private int i = -1;
+
+        @Override
+        public boolean advance() {
+            checkForComodification();
+            if (i < used) {
+                i++;
+            }
+            return i < used;
+        }
+
+        @Override
+        public int key() {
+            checkCurrent();
+            return indices[i];
+        }
+
+        @Override
+        public int value() {
+            checkCurrent();
+            return values[i];
+        }
+
+        @Override
+        public void setValue(int value) {
+            checkCurrent();
+            values[i] = value;
+        }
+
+        private void checkCurrent() {
+            checkForComodification();
+            if (i < 0 || i >= used) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        private void checkForComodification() {
+            if (indices != expectedIndices || used != expectedUsed) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+    }
 
 	/* (non-Javadoc)
      * @see edu.jhu.util.vector.IntIntMap#size()
@@ -0,0 +1,772 @@
+package edu.jhu.prim.map;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+import edu.jhu.prim.Primitives;
+import edu.jhu.prim.tuple.Pair;
+import edu.jhu.prim.util.Lambda.FnIntLongToLong;
+import edu.jhu.prim.util.Lambda.FnIntLongToVoid;
+import edu.jhu.prim.vector.AbstractIntLongVector;
+
+/**
+ * Thread-safe map from ints to longs using lock striping.
+ * <p>
+ * The keys are partitioned across a fixed number of segments, each of which is
+ * an open addressed table with linear probing guarded by its own
+ * {@link StampedLock}. The segment is chosen from the configured
+ * {@link IntHashStrategy}, so keys which the strategy spreads well are spread
+ * over the segments as well. Each segment grows independently of the others,
+ * so a resize blocks only the threads using that segment.
+ * </p>
+ * <p>
+ * Reads ({@link #get(int)}, {@link #getWithDefault(int, long)} and
+ * {@link #contains(int)}) are optimistic: they take no lock and write no
+ * shared state, and only fall back to a read lock when a write to the same
+ * segment overlaps them. The values are held as bits in an
+ * {@link AtomicLongArray}, so puts and adds to a key which is already present
+ * take only the read lock and update the value with compare-and-set. Threads
+ * adding to the same hot key then retry a failed compare-and-set instead of
+ * queueing for a lock. Only inserting a new key, removing a key and resizing
+ * take the write lock.
+ * </p>
+ * <p>
+ * Single-key operations (including {@link #addAndGet(int, long)}) are
+ * atomic. Operations over the whole map ({@link #size()}, {@link #clear()},
+ * {@link #iterate(FnIntLongToVoid)}, {@link #iterator()}, etc.) visit the
+ * segments one at a time and so are only weakly consistent: they reflect each
+ * segment as of the moment it was visited.
+ * </p>
+ *
+ * @author mgormley
+ */
+public class IntLongConcurrentHashMap extends AbstractIntLongVector implements Serializable, IntLongMap {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Default number of segments. */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+
+    /** Load factor for each segment. */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /** The key which marks a free slot in the keys table of a segment. */
+    private static final int FREE_KEY = 0;
+
+    /** The segments. */
+    private final Segment[] segments;
+
+    /** The lock guarding each segment. */
+    private final StampedLock[] locks;
+
+    /** Bit mask for selecting a segment. */
+    private final int segmentMask;
+
+    /** Return value for missing entries. */
+    private final long missingEntries;
+
+    /** Hash function for the keys, used to select both segments and slots. */
+    private final IntHashStrategy hashStrategy;
+
+    /**
+     * Build an empty map with default size and using NaN for missing entries.
+     */
+    public IntLongConcurrentHashMap() {
+        this(IntLongHashMap.DEFAULT_EXPECTED_SIZE, Primitives.DEFAULT_MISSING_ENTRY_LONG);
+    }
+
+    /*  */
+
+    /**
+     * Build an empty map with specified size.
+     * @param expectedSize expected number of elements in the map
+     * @param missingEntries value to return when a missing entry is fetched
+     */
+    public IntLongConcurrentHashMap(final int expectedSize, final long missingEntries) {
+        this(expectedSize, missingEntries, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Build an empty map with specified size and number of segments.
+     * @param expectedSize expected number of elements in the map
+     * @param missingEntries value to return when a missing entry is fetched
+     * @param concurrencyLevel the minimum number of segments, which bounds the number of writers that can proceed without contention
+     */
+    public IntLongConcurrentHashMap(final int expectedSize, final long missingEntries, final int concurrencyLevel) {
+        this(expectedSize, missingEntries, concurrencyLevel, IntHashStrategy.Standard.DEFAULT);
+    }
+
+    /**
+     * Build an empty map with specified size, number of segments and hash function.
+     * @param expectedSize expected number of elements in the map
+     * @param missingEntries value to return when a missing entry is fetched
+     * @param concurrencyLevel the minimum number of segments, which bounds the number of writers that can proceed without contention
+     * @param hashStrategy hash function for the keys, used to select both the segment and the slot within it
+     */
+    public IntLongConcurrentHashMap(final int expectedSize, final long missingEntries, final int concurrencyLevel,
+            final IntHashStrategy hashStrategy) {
+        if (concurrencyLevel <= 0 || concurrencyLevel > (1 << 16)) {
+            throw new IllegalArgumentException("Invalid concurrency level: " + concurrencyLevel);
+        }
+        int numSegments = Integer.highestOneBit(concurrencyLevel);
+        if (numSegments < concurrencyLevel) {
+            numSegments <<= 1;
+        }
+        final int segmentSize = (expectedSize + numSegments - 1) / numSegments;
+        this.segments = new Segment[numSegments];
+        this.locks = new StampedLock[numSegments];
+        this.missingEntries = missingEntries;
+        this.hashStrategy = hashStrategy;
+        for (int s=0; s<numSegments; s++) {
+            segments[s] = new Segment(segmentSize);
+            locks[s] = new StampedLock();
+        }
+        this.segmentMask = numSegments - 1;
+    }
+
+    /** Builds a map with the given keys and values. */
+    public IntLongConcurrentHashMap(int[] keys, long[] vals) {
+        this(keys.length, Primitives.DEFAULT_MISSING_ENTRY_LONG);
+        if (keys.length != vals.length) {
+            throw new IllegalStateException("keys and vals must be of the same length");
+        }
+        for (int i=0; i<keys.length; i++) {
+            this.put(keys[i], vals[i]);
+        }
+    }
+
+    /**
+     * Gets the index of the segment for a key. The segments pick their slots
+     * from the low bits of the strategy's hash, so the segment is chosen from
+     * the high bits of the hash after a multiplicative (golden ratio) mix.
+     * Otherwise all the keys in a segment would share their low bits and
+     * collide within it.
+     */
+    private int segmentFor(final int key) {
+        return ((hashStrategy.hashOf(key) * 0x9E3779B9) >>> 16) & segmentMask;
+    }
+
+    /** Gets the number of segments. */
+    public int getNumSegments() {
+        return segments.length;
+    }
+
+    public long get(final int key) {
+        return getWithDefault(key, missingEntries);
+    }
+
+    @Override
+    public long getWithDefault(final int key, final long missingEntries) {
+        final int s = segmentFor(key);
+        final Segment seg = segments[s];
+        final StampedLock lock = locks[s];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                final int slot = seg.find(key);
+                final long value = (slot < 0) ? missingEntries : seg.get(slot);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            } catch (RuntimeException e) {
+                // A concurrent resize was observed half done. Retry under the lock.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            final int slot = seg.find(key);
+            return (slot < 0) ? missingEntries : seg.get(slot);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean contains(final int key) {
+        final int s = segmentFor(key);
+        final Segment seg = segments[s];
+        final StampedLock lock = locks[s];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                final boolean contains = seg.find(key) >= 0;
+                if (lock.validate(stamp)) {
+                    return contains;
+                }
+            } catch (RuntimeException e) {
+                // A concurrent resize was observed half done. Retry under the lock.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return seg.find(key) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long put(final int key, final long value) {
+        return putAndGet(key, value);
+    }
+
+    /**
+     * Atomically put a value associated with a key in the map.
+     * @param key key to which value is associated
+     * @param value value to put in the map
+     * @return previous value associated with the key
+     */
+    public long putAndGet(final int key, final long value) {
+        final int s = segmentFor(key);
+        final Segment seg = segments[s];
+        final StampedLock lock = locks[s];
+        long stamp = lock.readLock();
+        try {
+            int slot = seg.find(key);
+            if (slot < 0) {
+                stamp = toWriteStamp(lock, stamp);
+                // Another thread may have inserted the key before the write lock was taken.
+                slot = seg.find(key);
+                if (slot < 0) {
+                    seg.insert(key, value);
+                    return missingEntries;
+                }
+            }
+            return seg.putAt(slot, value);
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    public void add(final int key, final long value) {
+        addAndGet(key, value);
+    }
+
+    /**
+     * Just like putAndGet, but atomically adds to the previous value instead
+     * of replacing the previous value.
+     */
+    public long addAndGet(final int key, final long value) {
+        final int s = segmentFor(key);
+        final Segment seg = segments[s];
+        final StampedLock lock = locks[s];
+        long stamp = lock.readLock();
+        try {
+            int slot = seg.find(key);
+            if (slot < 0) {
+                stamp = toWriteStamp(lock, stamp);
+                // Another thread may have inserted the key before the write lock was taken.
+                slot = seg.find(key);
+                if (slot < 0) {
+                    seg.insert(key, missingEntries + value);
+                    return missingEntries;
+                }
+            }
+            return seg.addAt(slot, value);
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    /**
+     * Converts a read lock to a write lock, releasing it and waiting for the
+     * write lock if other threads hold the read lock too.
+     * @return the stamp of the write lock
+     */
+    private static long toWriteStamp(final StampedLock lock, final long stamp) {
+        final long writeStamp = lock.tryConvertToWriteLock(stamp);
+        if (writeStamp != 0) {
+            return writeStamp;
+        }
+        lock.unlockRead(stamp);
+        return lock.writeLock();
+    }
+
+    public void remove(final int key) {
+        removeAndGet(key);
+    }
+
+    /**
+     * Atomically remove the value associated with a key.
+     * @param key key to which the value is associated
+     * @return removed value
+     */
+    public long removeAndGet(final int key) {
+        final int s = segmentFor(key);
+        final Segment seg = segments[s];
+        final long stamp = locks[s].writeLock();
+        try {
+            final int slot = seg.find(key);
+            return (slot < 0) ? missingEntries : seg.removeAt(slot);
+        } finally {
+            locks[s].unlockWrite(stamp);
+        }
+    }
+
+    /** Removes all entries, one segment at a time. */
+    public void clear() {
+        for (int s=0; s<segments.length; s++) {
+            final long stamp = locks[s].writeLock();
+            try {
+                segments[s].clear();
+            } finally {
+                locks[s].unlockWrite(stamp);
+            }
+        }
+    }
+
+    /** Gets the number of entries, summed over the segments one at a time. */
+    public int size() {
+        int size = 0;
+        for (int s=0; s<segments.length; s++) {
+            final long stamp = locks[s].readLock();
+            try {
+                size += segments[s].size;
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Applies the function to each entry, holding the lock on each segment
+     * while its entries are updated. The function must not access this map,
+     * since the locks are not reentrant.
+     */
+    public void apply(FnIntLongToLong lambda) {
+        for (int s=0; s<segments.length; s++) {
+            final long stamp = locks[s].writeLock();
+            try {
+                segments[s].apply(lambda);
+            } finally {
+                locks[s].unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Calls the function on each entry. Each segment is copied under its lock
+     * and the function is called on the copy, so the function may safely
+     * access this map.
+     */
+    public void iterate(FnIntLongToVoid lambda) {
+        for (int s=0; s<segments.length; s++) {
+            Pair<int[], long[]> pair = getIndicesAndValues(s);
+            int[] keys = pair.get1();
+            long[] vals = pair.get2();
+            for (int i=0; i<keys.length; i++) {
+                lambda.call(keys[i], vals[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets a weakly consistent iterator over a copy of the entries. Unlike the
+     * iterators of the other maps, this one never throws a
+     * <code>ConcurrentModificationException</code>.
+     */
+    public Iterator<IntLongEntry> iterator() {
+        Pair<int[], long[]> pair = getIndicesAndValues();
+        return new SnapshotIterator(pair.get1(), pair.get2());
+    }
+
+    /**
+     * Gets a weakly consistent cursor over the entries. The cursor copies one
+     * segment at a time under its lock into buffers which it reuses, so it
+     * allocates nothing per entry once the buffers have grown to the size of
+     * the largest segment. It never throws a
+     * <code>ConcurrentModificationException</code>, and setValue() puts the
+     * value into the map.
+     */
+    @Override
+    public IntLongCursor cursor() {
+        return new SegmentCursor();
+    }
+
+    public Pair<int[], long[]> getIndicesAndValues() {
+        final int numSegments = segments.length;
+        int[][] segKeys = new int[numSegments][];
+        long[][] segVals = new long[numSegments][];
+        int size = 0;
+        for (int s=0; s<numSegments; s++) {
+            Pair<int[], long[]> pair = getIndicesAndValues(s);
+            segKeys[s] = pair.get1();
+            segVals[s] = pair.get2();
+            size += segKeys[s].length;
+        }
+        int[] keys = new int[size];
+        long[] vals = new long[size];
+        int cur = 0;
+        for (int s=0; s<numSegments; s++) {
+            System.arraycopy(segKeys[s], 0, keys, cur, segKeys[s].length);
+            System.arraycopy(segVals[s], 0, vals, cur, segVals[s].length);
+            cur += segKeys[s].length;
+        }
+        return new Pair<int[], long[]>(keys, vals);
+    }
+
+    /** Copies the entries of one segment under its read lock. */
+    private Pair<int[], long[]> getIndicesAndValues(final int s) {
+        final Segment seg = segments[s];
+        final long stamp = locks[s].readLock();
+        try {
+            int[] keys = new int[seg.size];
+            long[] vals = new long[seg.size];
+            seg.copyEntries(keys, vals);
+            return new Pair<int[], long[]>(keys, vals);
+        } finally {
+            locks[s].unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int[] getIndices() {
+        return getIndicesAndValues().get1();
+    }
+
+    @Override
+    public long[] getValues() {
+        return getIndicesAndValues().get2();
+    }
+
+    /** Cursor over a snapshot of each segment in turn. */
+    private class SegmentCursor implements IntLongCursor {
+
+        private int[] keys = new int[IntLongHashMap.DEFAULT_EXPECTED_SIZE];
+        private long[] vals = new long[IntLongHashMap.DEFAULT_EXPECTED_SIZE];
+        /** Number of entries copied from the current segment. */
+        private int n = 0;
+        /** Position of the current entry in the copy. */
+        private int cur = -1;
+        /** Index of the current segment. */
+        private int segment = -1;
+
+        public boolean advance() {
+            while (cur + 1 >= n) {
+                if (segment + 1 >= segments.length) {
+                    cur = n;
+                    return false;
+                }
+                copySegment(++segment);
+            }
+            cur++;
+            return true;
+        }
+
+        private void copySegment(final int s) {
+            final Segment seg = segments[s];
+            final long stamp = locks[s].readLock();
+            try {
+                final int size = seg.size;
+                if (size > keys.length) {
+                    keys = new int[size];
+                    vals = new long[size];
+                }
+                n = seg.copyEntries(keys, vals);
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+            cur = -1;
+        }
+
+        public int key() {
+            checkCurrent();
+            return keys[cur];
+        }
+
+        public long value() {
+            checkCurrent();
+            return vals[cur];
+        }
+
+        public void setValue(long value) {
+            checkCurrent();
+            vals[cur] = value;
+            put(keys[cur], value);
+        }
+
+        private void checkCurrent() {
+            if (cur < 0 || cur >= n) {
+                throw new NoSuchElementException();
+            }
+        }
+
+    }
+
+    /** Iterator over a snapshot of the entries. */
+    private static class SnapshotIterator implements Iterator<IntLongEntry>, IntLongEntry {
+
+        private final int[] keys;
+        private final long[] vals;
+        private int cur = -1;
+
+        public SnapshotIterator(int[] keys, long[] vals) {
+            this.keys = keys;
+            this.vals = vals;
+        }
+
+        public boolean hasNext() {
+            return cur + 1 < keys.length;
+        }
+
+        public IntLongEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            cur++;
+            return this;
+        }
+
+        public void remove() {
+            throw new RuntimeException("not implemented");
+        }
+
+        public int index() {
+            return keys[cur];
+        }
+
+        public long get() {
+            return vals[cur];
+        }
+
+    }
+
+    /**
+     * One segment: an open addressed table with linear probing, like
+     * {@link IntLongLinearHashMap}. A free slot is marked by the key 0,
+     * and the value of the (single) entry whose key really is 0 is stored
+     * after the values of the slots. The keys, the size and the table only
+     * change under the write lock. The values are stored as bits in an
+     * AtomicLongArray, so the value of a key which is present can be updated
+     * under the read lock.
+     */
+    private class Segment implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Keys table. A slot is free iff its key is FREE_KEY. */
+        private int[] keys;
+
+        /** The bits of the value in each slot, followed by those of the entry for FREE_KEY. */
+        private AtomicLongArray vals;
+
+        /** Whether the segment contains an entry for FREE_KEY. */
+        private boolean hasFreeKey;
+
+        /** Number of entries (including the entry for FREE_KEY). */
+        private int size;
+
+        Segment(final int expectedSize) {
+            final int capacity = computeCapacity(expectedSize);
+            keys = new int[capacity];
+            vals = new AtomicLongArray(capacity + 1);
+        }
+
+        /**
+         * Gets the slot of the value for a key. The table is read once, so
+         * that an optimistic reader never sees the keys of one table with the
+         * length of another, and probing is bounded by the number of slots.
+         * @return the slot, or -1 if the key is not present
+         */
+        int find(final int key) {
+            final int[] keys = this.keys;
+            if (key == FREE_KEY) {
+                return hasFreeKey ? keys.length : -1;
+            }
+            final int mask = keys.length - 1;
+            int index = hashStrategy.hashOf(key) & mask;
+            for (int i = 0; i <= mask; i++) {
+                final int cur = keys[index];
+                if (cur == key) {
+                    return index;
+                } else if (cur == FREE_KEY) {
+                    return -1;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        /** Gets the value in a slot. */
+        long get(final int slot) {
+            return Primitives.longFromBits(vals.get(slot));
+        }
+
+        /** Atomically replaces the value in a slot, returning the previous value. */
+        long putAt(final int slot, final long value) {
+            return Primitives.longFromBits(vals.getAndSet(slot, Primitives.toBits(value)));
+        }
+
+        /** Atomically adds to the value in a slot, returning the previous value. */
+        long addAt(final int slot, final long value) {
+            final AtomicLongArray vals = this.vals;
+            while (true) {
+                final long prevBits = vals.get(slot);
+                final long previous = Primitives.longFromBits(prevBits);
+                if (vals.compareAndSet(slot, prevBits, Primitives.toBits(previous + value))) {
+                    return previous;
+                }
+            }
+        }
+
+        /** Inserts a key which is not present. The write lock must be held. */
+        void insert(final int key, final long value) {
+            if (key == FREE_KEY) {
+                vals.set(keys.length, Primitives.toBits(value));
+                hasFreeKey = true;
+            } else {
+                final int mask = keys.length - 1;
+                int index = hashStrategy.hashOf(key) & mask;
+                while (keys[index] != FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                vals.set(index, Primitives.toBits(value));
+                keys[index] = key;
+            }
+            ++size;
+            if (size > keys.length * LOAD_FACTOR) {
+                growTable();
+            }
+        }
+
+        /** Removes the entry in a slot, returning its value. The write lock must be held. */
+        long removeAt(final int slot) {
+            final long previous = get(slot);
+            if (slot == keys.length) {
+                hasFreeKey = false;
+            } else {
+                shiftKeys(slot);
+            }
+            --size;
+            return previous;
+        }
+
+        /**
+         * Backward-shift deletion, as in {@link IntLongLinearHashMap}:
+         * removes the entry in a slot by moving back any following entries in
+         * the same probe run which would otherwise become unreachable.
+         */
+        private void shiftKeys(int index) {
+            final int[] keys = this.keys;
+            final AtomicLongArray vals = this.vals;
+            final int mask = keys.length - 1;
+            int last;
+            while (true) {
+                last = index;
+                index = (index + 1) & mask;
+                int cur;
+                while (true) {
+                    cur = keys[index];
+                    if (cur == FREE_KEY) {
+                        keys[last] = FREE_KEY;
+                        vals.set(last, 0);
+                        return;
+                    }
+                    // The entry can fill the hole at last only if its home slot
+                    // does not lie cyclically in (last, index].
+                    final int home = hashStrategy.hashOf(cur) & mask;
+                    if (last <= index ? (last >= home || home > index) : (last >= home && home > index)) {
+                        break;
+                    }
+                    index = (index + 1) & mask;
+                }
+                keys[last] = cur;
+                vals.set(last, vals.get(index));
+            }
+        }
+
+        /**
+         * Longs the table. The new table is filled before it is published,
+         * so an optimistic reader sees either the old table or the new one.
+         */
+        private void growTable() {
+            final int[] oldKeys = keys;
+            final AtomicLongArray oldVals = vals;
+            final int oldLength = oldKeys.length;
+            final int newLength = 2 * oldLength;
+            final int[] newKeys = new int[newLength];
+            final AtomicLongArray newVals = new AtomicLongArray(newLength + 1);
+            final int newMask = newLength - 1;
+            for (int i = 0; i < oldLength; ++i) {
+                final int key = oldKeys[i];
+                if (key != FREE_KEY) {
+                    int index = hashStrategy.hashOf(key) & newMask;
+                    while (newKeys[index] != FREE_KEY) {
+                        index = (index + 1) & newMask;
+                    }
+                    newKeys[index] = key;
+                    newVals.lazySet(index, oldVals.get(i));
+                }
+            }
+            newVals.lazySet(newLength, oldVals.get(oldLength));
+            vals = newVals;
+            keys = newKeys;
+        }
+
+        /** Removes all entries. The write lock must be held. */
+        void clear() {
+            keys = new int[keys.length];
+            vals = new AtomicLongArray(keys.length + 1);
+            hasFreeKey = false;
+            size = 0;
+        }
+
+        /** Applies the function to each entry. The write lock must be held. */
+        void apply(final FnIntLongToLong lambda) {
+            final int n = keys.length;
+            if (hasFreeKey) {
+                vals.set(n, Primitives.toBits(lambda.call(FREE_KEY, get(n))));
+            }
+            for (int i = 0; i < n; i++) {
+                if (keys[i] != FREE_KEY) {
+                    vals.set(i, Primitives.toBits(lambda.call(keys[i], get(i))));
+                }
+            }
+        }
+
+        /**
+         * Copies the entries into the given arrays, which must hold at least
+         * size entries. The read lock must be held.
+         * @return the number of entries copied
+         */
+        int copyEntries(final int[] outKeys, final long[] outVals) {
+            final int n = keys.length;
+            int k = 0;
+            if (hasFreeKey) {
+                outKeys[k] = FREE_KEY;
+                outVals[k] = get(n);
+                k++;
+            }
+            for (int i = 0; i < n; i++) {
+                if (keys[i] != FREE_KEY) {
+                    outKeys[k] = keys[i];
+                    outVals[k] = get(i);
+                    k++;
+                }
+            }
+            return k;
+        }
+
+    }
+
+    /**
+     * Compute the capacity of a segment for a given size, which leaves at
+     * least one free slot so that probing always terminates.
+     * @param expectedSize expected size of the segment
+     * @return capacity to use for the specified size
+     */
+    private static int computeCapacity(final int expectedSize) {
+        if (expectedSize == 0) {
+            return 2;
+        }
+        final int capacity   = (int) InternalFastMath.ceil(expectedSize / LOAD_FACTOR);
+        final int powerOfTwo = Integer.highestOneBit(capacity);
+        if (powerOfTwo == capacity) {
+            return Math.max(capacity, 2);
+        }
+        return powerOfTwo << 1;
+    }
+
+}
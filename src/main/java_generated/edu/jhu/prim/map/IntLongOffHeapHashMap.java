@@ -0,0 +1,973 @@
+package edu.jhu.prim.map;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import edu.jhu.prim.Primitives;
+import edu.jhu.prim.tuple.Pair;
+import edu.jhu.prim.util.InternalDirectBuffers;
+import edu.jhu.prim.util.Lambda.FnIntLongToLong;
+import edu.jhu.prim.util.Lambda.FnIntLongToVoid;
+import edu.jhu.prim.vector.AbstractIntLongVector;
+
+/**
+ * Open addressed map from int to long whose table is stored outside of the
+ * Java heap.
+ * <p>
+ * The table is laid out exactly as in {@link IntLongLinearHashMap} (linear
+ * probing with key 0 stored out of band), except that each slot is a (key,
+ * value) pair in a direct {@link ByteBuffer}. Large tables are split across
+ * several buffers since a single buffer is limited to 2 GB. Because the table
+ * is not on the heap, it adds nothing to garbage collection pauses.
+ * </p>
+ * <p>
+ * Direct buffers count against the JVM's limit on direct memory,
+ * <code>-XX:MaxDirectMemorySize</code>, which defaults to the maximum heap size
+ * (<code>-Xmx</code>). To hold a table larger than the heap, raise that limit,
+ * or {@link #save(File)} the table and {@link #openReadOnly(File)} it: mapped
+ * files do not count against the limit. The buffers of a table which has grown
+ * are freed at once, and {@link #close()} frees (or unmaps) the current ones,
+ * rather than waiting for the garbage collector to do so. A closed map throws
+ * an <code>IllegalStateException</code> from all of its methods which access
+ * the table.
+ * </p>
+ * <p>
+ * The table can be written to a file with {@link #save(File)}. The file can
+ * then be opened with {@link #openReadOnly(File)}, which memory maps it
+ * directly with no deserialization step, so several processes on one machine
+ * share a single copy through the page cache. A map opened this way throws an
+ * <code>IllegalStateException</code> from all of its mutators.
+ * </p>
+ * <p>This class is not synchronized. The specialized iterators returned by
+ * {@link #iterator()} are fail-fast: they throw a
+ * <code>ConcurrentModificationException</code> when they detect the map has been
+ * modified during iteration.</p>
+ *
+ * @author mgormley
+ */
+public class IntLongOffHeapHashMap extends AbstractIntLongVector implements Serializable, IntLongMap, Closeable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Magic number at the start of the file format. */
+    private static final int MAGIC = 0x5052494d;
+
+    /**
+     * Version of the file format. Version 2 records the hash function, whose
+     * default changed from the one used by version 1.
+     */
+    private static final int VERSION = 2;
+
+    /** Number of bytes reserved for the file header. */
+    private static final int HEADER_BYTES = 64;
+
+    /** Number of bytes in a key. */
+    private static final int KEY_BYTES = Primitives.INT_NUM_BYTES;
+
+    /** Number of bytes in a value. */
+    private static final int VALUE_BYTES = Primitives.LONG_NUM_BYTES;
+
+    /** Number of bytes in a slot, which holds the key followed by the value. */
+    private static final int SLOT_BYTES = KEY_BYTES + VALUE_BYTES;
+
+    /** Log base 2 of the maximum number of slots in one buffer. */
+    private static final int SEGMENT_SHIFT = 26;
+
+    /** Bit mask giving the position of a slot within its buffer. */
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    /** Byte order of the buffers and the file format. */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /** Load factor for the map. */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /** Default starting size. */
+    protected static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    /** Multiplier for size growth when map fills up. */
+    private static final int RESIZE_MULTIPLIER = 2;
+
+    /** The key which marks a free slot in the table. */
+    private static final int FREE_KEY = 0;
+
+    /** Buffers holding the slots of the table, or null once the map is closed. */
+    private transient ByteBuffer[] segments;
+
+    /** Number of slots in the table. */
+    private transient int capacity;
+
+    /** Whether the map contains an entry for FREE_KEY. */
+    private transient boolean hasFreeKey;
+
+    /** The value of the entry for FREE_KEY (if present). */
+    private transient long freeKeyValue;
+
+    /** Return value for missing entries. */
+    private final long missingEntries;
+
+    /** Hash function for the keys. */
+    private final IntHashStrategy hashStrategy;
+
+    /** Whether the map is backed by a file opened read-only. */
+    private transient boolean readOnly;
+
+    /** Current size of the map (including the entry for FREE_KEY). */
+    private transient int size;
+
+    /** Bit mask for hash values. */
+    private transient int mask;
+
+    /** Modifications count. */
+    private transient int count;
+
+    /**
+     * Build an empty map with default size and using NaN for missing entries.
+     */
+    public IntLongOffHeapHashMap() {
+        this(DEFAULT_EXPECTED_SIZE, Primitives.DEFAULT_MISSING_ENTRY_LONG);
+    }
+
+    /*  */
+
+    /**
+     * Build an empty map with specified size.
+     * @param expectedSize expected number of elements in the map
+     * @param missingEntries value to return when a missing entry is fetched
+     */
+    public IntLongOffHeapHashMap(final int expectedSize, final long missingEntries) {
+        this(expectedSize, missingEntries, IntHashStrategy.Standard.DEFAULT);
+    }
+
+    /**
+     * Build an empty map with specified size and hash function.
+     * @param expectedSize expected number of elements in the map
+     * @param missingEntries value to return when a missing entry is fetched
+     * @param hashStrategy hash function for the keys. It is only serialized
+     *            if the map itself is serialized with Java serialization, and
+     *            only needs to be serializable in that case. {@link #save(File)}
+     *            records just which standard strategy was used.
+     */
+    public IntLongOffHeapHashMap(final int expectedSize, final long missingEntries, final IntHashStrategy hashStrategy) {
+        this.missingEntries = missingEntries;
+        this.hashStrategy = hashStrategy;
+        this.readOnly = false;
+        allocate(computeCapacity(expectedSize));
+        hasFreeKey = false;
+        size = 0;
+        count = 0;
+    }
+
+    /** Builds a map with the given keys and values. */
+    public IntLongOffHeapHashMap(int[] keys, long[] vals) {
+        this(keys.length, Primitives.DEFAULT_MISSING_ENTRY_LONG);
+        if (keys.length != vals.length) {
+            throw new IllegalStateException("keys and vals must be of the same length");
+        }
+        for (int i=0; i<keys.length; i++) {
+            this.put(keys[i], vals[i]);
+        }
+    }
+
+    /** Constructor for a map over buffers mapped from a file. */
+    private IntLongOffHeapHashMap(final ByteBuffer[] segments, final int capacity, final int size,
+            final boolean hasFreeKey, final long freeKeyValue, final long missingEntries,
+            final IntHashStrategy hashStrategy) {
+        this.segments = segments;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.size = size;
+        this.hasFreeKey = hasFreeKey;
+        this.freeKeyValue = freeKeyValue;
+        this.missingEntries = missingEntries;
+        this.hashStrategy = hashStrategy;
+        this.readOnly = true;
+        this.count = 0;
+    }
+
+    /**
+     * Compute the capacity needed for a given size.
+     * @param expectedSize expected size of the map
+     * @return capacity to use for the specified size
+     */
+    private static int computeCapacity(final int expectedSize) {
+        if (expectedSize == 0) {
+            // Keep at least one free slot so that probing always terminates.
+            return 2;
+        }
+        final int capacity   = (int) InternalFastMath.ceil(expectedSize / LOAD_FACTOR);
+        final int powerOfTwo = Integer.highestOneBit(capacity);
+        if (powerOfTwo == capacity) {
+            return Math.max(capacity, 2);
+        }
+        return Integer.highestOneBit(capacity) << 1;
+    }
+
+    /** Allocates zeroed (i.e. free) direct buffers for a table with the given number of slots. */
+    private void allocate(final int capacity) {
+        final int numSegments = numSegments(capacity);
+        final ByteBuffer[] segments = new ByteBuffer[numSegments];
+        for (int s=0; s<numSegments; s++) {
+            segments[s] = ByteBuffer.allocateDirect(segmentBytes(capacity, s)).order(ORDER);
+        }
+        this.segments = segments;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    private static int numSegments(final int capacity) {
+        return ((capacity - 1) >>> SEGMENT_SHIFT) + 1;
+    }
+
+    private static int segmentBytes(final int capacity, final int segment) {
+        return Math.min(capacity - (segment << SEGMENT_SHIFT), SEGMENT_MASK + 1) * SLOT_BYTES;
+    }
+
+    private int keyAt(final int slot) {
+        return segments[slot >>> SEGMENT_SHIFT].getInt((slot & SEGMENT_MASK) * SLOT_BYTES);
+    }
+
+    private long valueAt(final int slot) {
+        return segments[slot >>> SEGMENT_SHIFT].getLong((slot & SEGMENT_MASK) * SLOT_BYTES + KEY_BYTES);
+    }
+
+    private void setKey(final int slot, final int key) {
+        segments[slot >>> SEGMENT_SHIFT].putInt((slot & SEGMENT_MASK) * SLOT_BYTES, key);
+    }
+
+    private void setValue(final int slot, final long value) {
+        segments[slot >>> SEGMENT_SHIFT].putLong((slot & SEGMENT_MASK) * SLOT_BYTES + KEY_BYTES, value);
+    }
+
+    private void checkOpen() {
+        if (segments == null) {
+            throw new IllegalStateException("This map has been closed");
+        }
+    }
+
+    private void checkWritable() {
+        checkOpen();
+        if (readOnly) {
+            throw new IllegalStateException("This map was opened read-only");
+        }
+    }
+
+    /** Gets the hash function for the keys. */
+    public IntHashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /** Returns true iff this map is backed by a file opened read-only. */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Get the stored value associated with the given key
+     * @param key key associated with the data
+     * @return data associated with the key
+     */
+    public long get(final int key) {
+        return getWithDefault(key, missingEntries);
+    }
+
+    @Override
+    public long getWithDefault(final int key, final long missingEntries) {
+        checkOpen();
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : missingEntries;
+        }
+        final int index = findIndex(key);
+        return index < 0 ? missingEntries : valueAt(index);
+    }
+
+    /**
+     * Check if a value is associated with a key.
+     * @param key key to check
+     * @return true if a value is associated with key
+     */
+    public boolean contains(final int key) {
+        checkOpen();
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return findIndex(key) >= 0;
+    }
+
+    /**
+     * Finds the slot holding the given (non-free) key.
+     * @param key key to lookup
+     * @return index of the key, or -1 if it is not present
+     */
+    private int findIndex(final int key) {
+        int index = hashOf(key) & mask;
+        while (true) {
+            final int cur = keyAt(index);
+            if (cur == key) {
+                return index;
+            } else if (cur == FREE_KEY) {
+                return -1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Finds the slot at which a (non-free) key should be inserted.
+     * @param key key to lookup
+     * @return index at which key should be inserted, or (-index - 1) if the key is already present at index
+     */
+    private int findInsertionIndex(final int key) {
+        int index = hashOf(key) & mask;
+        while (true) {
+            final int cur = keyAt(index);
+            if (cur == FREE_KEY) {
+                return index;
+            } else if (cur == key) {
+                return -index - 1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Get the number of elements stored in the map.
+     * @return number of elements stored in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    public void remove(final int key) {
+        removeAndGet(key);
+    }
+
+    /**
+     * Remove the value associated with a key.
+     * @param key key to which the value is associated
+     * @return removed value
+     */
+    public long removeAndGet(final int key) {
+        checkWritable();
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return missingEntries;
+            }
+            hasFreeKey = false;
+            --size;
+            ++count;
+            return freeKeyValue;
+        }
+        final int index = findIndex(key);
+        if (index < 0) {
+            return missingEntries;
+        }
+        final long previous = valueAt(index);
+        shiftKeys(index);
+        --size;
+        ++count;
+        return previous;
+    }
+
+    /**
+     * Backward-shift deletion: removes the entry at the given slot by moving
+     * back any following entries in the same probe run which would otherwise
+     * become unreachable.
+     * @param index index of the entry to remove
+     */
+    private void shiftKeys(int index) {
+        int last;
+        while (true) {
+            last = index;
+            index = (index + 1) & mask;
+            int cur;
+            while (true) {
+                cur = keyAt(index);
+                if (cur == FREE_KEY) {
+                    setKey(last, FREE_KEY);
+                    setValue(last, 0);
+                    return;
+                }
+                // The entry can fill the hole at last only if its home slot
+                // does not lie cyclically in (last, index].
+                final int home = hashOf(cur) & mask;
+                if (last <= index ? (last >= home || home > index) : (last >= home && home > index)) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            setKey(last, cur);
+            setValue(last, valueAt(index));
+        }
+    }
+
+    /** Removes all entries from the hash map. */
+    public void clear() {
+        checkWritable();
+        for (ByteBuffer segment : segments) {
+            for (int i=0; i<segment.capacity(); i+=SLOT_BYTES) {
+                segment.putInt(i, FREE_KEY);
+                segment.putLong(i + KEY_BYTES, 0);
+            }
+        }
+        hasFreeKey = false;
+        size = 0;
+        ++count;
+    }
+
+    public long put(final int key, final long value) {
+        return putAndGet(key, value);
+    }
+
+    /**
+     * Put a value associated with a key in the map.
+     * @param key key to which value is associated
+     * @param value value to put in the map
+     * @return previous value associated with the key
+     */
+    public long putAndGet(final int key, final long value) {
+        checkWritable();
+        if (key == FREE_KEY) {
+            final long previous = hasFreeKey ? freeKeyValue : missingEntries;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                ++size;
+                ++count;
+            }
+            freeKeyValue = value;
+            return previous;
+        }
+        int index = findInsertionIndex(key);
+        if (index < 0) {
+            index = -index - 1;
+            final long previous = valueAt(index);
+            setValue(index, value);
+            return previous;
+        }
+        setKey(index, key);
+        setValue(index, value);
+        afterInsert();
+        return missingEntries;
+    }
+
+    public void add(final int key, final long value) {
+        addAndGet(key, value);
+    }
+
+    /**
+     * Just like putAndGet, but adds to the previous value instead of replacing
+     * the previous value.
+     */
+    public long addAndGet(final int key, final long value) {
+        checkWritable();
+        if (key == FREE_KEY) {
+            final long previous = hasFreeKey ? freeKeyValue : missingEntries;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                ++size;
+                ++count;
+            }
+            freeKeyValue = previous + value;
+            return previous;
+        }
+        int index = findInsertionIndex(key);
+        if (index < 0) {
+            index = -index - 1;
+            final long previous = valueAt(index);
+            setValue(index, previous + value);
+            return previous;
+        }
+        setKey(index, key);
+        setValue(index, missingEntries + value);
+        afterInsert();
+        return missingEntries;
+    }
+
+    /** Updates the size after a new key has been written to the table, growing if needed. */
+    private void afterInsert() {
+        ++size;
+        ++count;
+        if (size - (hasFreeKey ? 1 : 0) > capacity * LOAD_FACTOR) {
+            growTable();
+        }
+    }
+
+    /**
+     * Grow the tables. The old buffers are freed once their entries have
+     * been copied.
+     */
+    private void growTable() {
+        final ByteBuffer[] oldSegments = segments;
+        allocate(RESIZE_MULTIPLIER * capacity);
+        for (ByteBuffer segment : oldSegments) {
+            for (int i=0; i<segment.capacity(); i+=SLOT_BYTES) {
+                final int key = segment.getInt(i);
+                if (key != FREE_KEY) {
+                    int index = hashOf(key) & mask;
+                    while (keyAt(index) != FREE_KEY) {
+                        index = (index + 1) & mask;
+                    }
+                    setKey(index, key);
+                    setValue(index, segment.getLong(i + KEY_BYTES));
+                }
+            }
+        }
+        free(oldSegments);
+    }
+
+    /** Frees the memory of the given buffers, which must not be used again. */
+    private static void free(final ByteBuffer[] segments) {
+        for (ByteBuffer segment : segments) {
+            InternalDirectBuffers.free(segment);
+        }
+    }
+
+    /**
+     * Frees the off-heap table, or unmaps it if the map was opened from a
+     * file. Afterwards, all methods which access the table throw an
+     * <code>IllegalStateException</code>. Closing a closed map has no effect.
+     */
+    public void close() {
+        final ByteBuffer[] oldSegments = segments;
+        if (oldSegments != null) {
+            // Clear the reference first, so that the freed memory cannot be reached.
+            segments = null;
+            free(oldSegments);
+        }
+    }
+
+    /**
+     * Compute the hash value of a key
+     * @param key key to hash
+     * @return hash value of the key
+     */
+    private int hashOf(final int key) {
+        return hashStrategy.hashOf(key);
+    }
+
+    /**
+     * Gets the identifier of a hash function recorded in the file header:
+     * 1 + the ordinal of a standard strategy, or 0 for any other strategy.
+     */
+    private static int hashStrategyId(final IntHashStrategy hashStrategy) {
+        if (hashStrategy instanceof IntHashStrategy.Standard) {
+            return ((IntHashStrategy.Standard) hashStrategy).ordinal() + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the map to a file which can later be opened with
+     * {@link #openReadOnly(File)}. The file consists of a fixed-size header
+     * followed by the table slots exactly as they are laid out in memory. A
+     * map with a hash function other than the standard ones must be opened
+     * with {@link #openReadOnly(File, IntHashStrategy)} and the same function.
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File file) throws IOException {
+        checkOpen();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(KEY_BYTES);
+            header.putInt(VALUE_BYTES);
+            header.putInt(capacity);
+            header.putInt(size);
+            header.put((byte) (hasFreeKey ? 1 : 0));
+            header.putLong(freeKeyValue);
+            header.putLong(missingEntries);
+            header.putInt(hashStrategyId(hashStrategy));
+            header.clear();
+            writeFully(channel, header);
+            for (ByteBuffer segment : segments) {
+                writeFully(channel, segment.duplicate());
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.clear();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    /**
+     * Opens a file written by {@link #save(File)} by memory mapping it
+     * read-only. Nothing is copied onto the heap: lookups read directly from
+     * the mapped pages.
+     * @param file the file to open
+     * @return a read-only map over the file
+     * @throws IOException if the file cannot be read or is not in the expected format
+     */
+    public static IntLongOffHeapHashMap openReadOnly(File file) throws IOException {
+        return openReadOnly(file, null);
+    }
+
+    /**
+     * Opens a file written by {@link #save(File)} by memory mapping it
+     * read-only, using the given hash function for lookups.
+     * @param file the file to open
+     * @param hashStrategy the hash function of the saved map, or null to use
+     *            the standard hash function recorded in the file
+     * @return a read-only map over the file
+     * @throws IOException if the file cannot be read, is not in the expected
+     *             format, or was saved with a different hash function
+     */
+    public static IntLongOffHeapHashMap openReadOnly(File file, IntHashStrategy hashStrategy) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ORDER);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a map file of a supported version: " + file);
+            }
+            if (header.getInt() != KEY_BYTES || header.getInt() != VALUE_BYTES) {
+                throw new IOException("Map file has a different key or value type: " + file);
+            }
+            final int capacity = header.getInt();
+            final int size = header.getInt();
+            final boolean hasFreeKey = header.get() != 0;
+            final long freeKeyValue = header.getLong();
+            final long missingEntries = header.getLong();
+            final int strategyId = header.getInt();
+            if (hashStrategy == null) {
+                if (strategyId <= 0 || strategyId > IntHashStrategy.Standard.values().length) {
+                    throw new IOException("Map file was saved with a custom hash function: " + file);
+                }
+                hashStrategy = IntHashStrategy.Standard.values()[strategyId - 1];
+            } else if (strategyId != hashStrategyId(hashStrategy)) {
+                throw new IOException("Map file was saved with a different hash function: " + file);
+            }
+            if (channel.size() != HEADER_BYTES + (int) capacity * SLOT_BYTES) {
+                throw new IOException("Map file has the wrong length: " + file);
+            }
+            final int numSegments = numSegments(capacity);
+            final ByteBuffer[] segments = new ByteBuffer[numSegments];
+            int position = HEADER_BYTES;
+            for (int s=0; s<numSegments; s++) {
+                final int bytes = segmentBytes(capacity, s);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(ORDER);
+                position += bytes;
+            }
+            return new IntLongOffHeapHashMap(segments, capacity, size, hasFreeKey, freeKeyValue, missingEntries, hashStrategy);
+        } finally {
+            // The mappings remain valid after the channel is closed.
+            raf.close();
+        }
+    }
+
+    /**
+     * Get an iterator over map elements.
+     * <p>The specialized iterators returned are fail-fast: they throw a
+     * <code>ConcurrentModificationException</code> when they detect the map
+     * has been modified during iteration.</p>
+     * @return iterator over the map elements
+     */
+    public Iterator<IntLongEntry> iterator() {
+        checkOpen();
+        return new MapIterator();
+    }
+
+    /**
+     * Get a cursor over map elements, which allocates nothing per element.
+     * <p>The cursor is fail-fast: it throws a
+     * <code>ConcurrentModificationException</code> when it detects the map
+     * has been structurally modified other than by {@link IntLongCursor#setValue(long)}.</p>
+     * @return cursor over the map elements
+     */
+    @Override
+    public IntLongCursor cursor() {
+        checkOpen();
+        return new MapCursor();
+    }
+
+    /** Iterator class for the map. */
+    public class MapIterator implements Iterator<IntLongEntry>, IntLongEntry {
+
+        /** Reference modification count. */
+        private final int referenceCount;
+
+        /** Position of current element. */
+        private int current;
+
+        /** Position of next element. */
+        private int next;
+
+        /**
+         * Simple constructor.
+         */
+        private MapIterator() {
+            // preserve the modification count of the map to detect concurrent modifications later
+            referenceCount = count;
+            current = -2;
+            next = hasFreeKey ? -1 : nextFull(-1);
+        }
+
+        /** Gets the position of the first full slot after the given one, or -2 if there is none. */
+        private int nextFull(int pos) {
+            while (++pos < capacity) {
+                if (keyAt(pos) != FREE_KEY) {
+                    return pos;
+                }
+            }
+            return -2;
+        }
+
+        /**
+         * Check if there is a next element in the map.
+         * @return true if there is a next element
+         */
+        public boolean hasNext() {
+            return next != -2;
+        }
+
+        public IntLongEntry next() {
+            advance();
+            return this;
+        }
+
+        public void remove() {
+            throw new RuntimeException("not implemented");
+        }
+
+        /**
+         * Get the key of current entry.
+         * @return key of current entry
+         * @exception ConcurrentModificationException if the map is modified during iteration
+         * @exception NoSuchElementException if there is no element left in the map
+         */
+        public int index() throws ConcurrentModificationException, NoSuchElementException {
+            checkCurrent();
+            return current == -1 ? FREE_KEY : keyAt(current);
+        }
+
+        /**
+         * Get the value of current entry.
+         * @return value of current entry
+         * @exception ConcurrentModificationException if the map is modified during iteration
+         * @exception NoSuchElementException if there is no element left in the map
+         */
+        public long get() throws ConcurrentModificationException, NoSuchElementException {
+            checkCurrent();
+            return current == -1 ? freeKeyValue : valueAt(current);
+        }
+
+        private void checkCurrent() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (current == -2) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        /**
+         * Advance iterator one step further.
+         * @exception ConcurrentModificationException if the map is modified during iteration
+         * @exception NoSuchElementException if there is no element left in the map
+         */
+        public void advance() throws ConcurrentModificationException, NoSuchElementException {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == -2) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = nextFull(next);
+        }
+
+    }
+
+    /**
+     * Write the map to a stream: the live entries are written in place of the
+     * off-heap table.
+     * @param stream output stream
+     * @throws IOException if object cannot be written
+     */
+    private void writeObject(final ObjectOutputStream stream) throws IOException {
+        checkOpen();
+        stream.defaultWriteObject();
+        stream.writeInt(size);
+        if (hasFreeKey) {
+            stream.writeInt(FREE_KEY);
+            stream.writeLong(freeKeyValue);
+        }
+        for (int i=0; i<capacity; i++) {
+            final int key = keyAt(i);
+            if (key != FREE_KEY) {
+                stream.writeInt(key);
+                stream.writeLong(valueAt(i));
+            }
+        }
+    }
+
+    /**
+     * Cursor class for the map. Like the iterator, it visits the entry for
+     * FREE_KEY (if any) first, at position -1, followed by the table slots.
+     */
+    private class MapCursor implements IntLongCursor {
+
+        /** Reference modification count. */
+        private final int referenceCount = count;
+
+        /** Position of current element, or -2 before the first and capacity after the last. */
+        private int current = -2;
+
+        public boolean advance() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (current == -2) {
+                current = -1;
+                if (hasFreeKey) {
+                    return true;
+                }
+            }
+            while (current < capacity) {
+                if (++current < capacity && keyAt(current) != FREE_KEY) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int key() {
+            checkCurrent();
+            return current == -1 ? FREE_KEY : keyAt(current);
+        }
+
+        public long value() {
+            checkCurrent();
+            return current == -1 ? freeKeyValue : valueAt(current);
+        }
+
+        public void setValue(long value) {
+            checkCurrent();
+            checkWritable();
+            if (current == -1) {
+                freeKeyValue = value;
+            } else {
+                IntLongOffHeapHashMap.this.setValue(current, value);
+            }
+        }
+
+        private void checkCurrent() {
+            if (referenceCount != count) {
+                throw new ConcurrentModificationException();
+            }
+            if (current == -2 || current >= capacity) {
+                throw new NoSuchElementException();
+            }
+        }
+
+    }
+
+    /**
+     * Read a serialized object. The result is always a writable map, even if
+     * the serialized map was opened read-only.
+     * @param stream input stream
+     * @throws IOException if object cannot be read
+     * @throws ClassNotFoundException if the class corresponding
+     * to the serialized object cannot be found
+     */
+    private void readObject(final ObjectInputStream stream)
+        throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        final int numEntries = stream.readInt();
+        allocate(computeCapacity(numEntries));
+        size = 0;
+        count = 0;
+        for (int i=0; i<numEntries; i++) {
+            final int key = stream.readInt();
+            final long value = stream.readLong();
+            if (key == FREE_KEY) {
+                hasFreeKey = true;
+                freeKeyValue = value;
+                ++size;
+            } else {
+                int index = findInsertionIndex(key);
+                setKey(index, key);
+                setValue(index, value);
+                ++size;
+            }
+        }
+    }
+
+    @Override
+    public int[] getIndices() {
+        return getIndicesAndValues().get1();
+    }
+
+    @Override
+    public long[] getValues() {
+        return getIndicesAndValues().get2();
+    }
+
+    public Pair<int[], long[]> getIndicesAndValues() {
+        checkOpen();
+        int cur = 0;
+        int[] tmpKeys = new int[size()];
+        long[] tmpVals = new long[size()];
+        if (hasFreeKey) {
+            tmpKeys[cur] = FREE_KEY;
+            tmpVals[cur] = freeKeyValue;
+            cur++;
+        }
+        for (int i=0; i<capacity; i++) {
+            final int key = keyAt(i);
+            if (key != FREE_KEY) {
+                tmpKeys[cur] = key;
+                tmpVals[cur] = valueAt(i);
+                cur++;
+            }
+        }
+        return new Pair<int[], long[]>(tmpKeys, tmpVals);
+    }
+
+    public void apply(FnIntLongToLong lambda) {
+        checkWritable();
+        if (hasFreeKey) {
+            freeKeyValue = lambda.call(FREE_KEY, freeKeyValue);
+        }
+        for (int i=0; i<capacity; i++) {
+            final int key = keyAt(i);
+            if (key != FREE_KEY) {
+                setValue(i, lambda.call(key, valueAt(i)));
+            }
+        }
+    }
+
+    public void iterate(FnIntLongToVoid lambda) {
+        checkOpen();
+        if (hasFreeKey) {
+            lambda.call(FREE_KEY, freeKeyValue);
+        }
+        for (int i=0; i<capacity; i++) {
+            final int key = keyAt(i);
+            if (key != FREE_KEY) {
+                lambda.call(key, valueAt(i));
+            }
+        }
+    }
+
+}
@@ -1,7 +1,9 @@
 package edu.jhu.prim.map;
 
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import edu.jhu.prim.arrays.LongArrays;
 import edu.jhu.prim.arrays.IntArrays;
@@ -13,6 +15,7 @@ import edu.jhu.prim.tuple.Pair;
 import edu.jhu.prim.util.Lambda.FnIntLongToLong;
 import edu.jhu.prim.util.Lambda.FnIntLongToVoid;
 import edu.jhu.prim.vector.AbstractIntLongVector;
+import edu.jhu.prim.vector.IntLongRangeIterable;
 
 /**
  * A primitives map from ints to longs. The map is stored by keeping a sorted
@@ -21,7 +24,7 @@ import edu.jhu.prim.vector.AbstractIntLongVector;
  * 
  * @author mgormley
  */
-public class IntLongSortedMap extends AbstractIntLongVector implements IntLongMap {
+public class IntLongSortedMap extends AbstractIntLongVector implements IntLongMap, IntLongRangeIterable {
     
     private static final long serialVersionUID = 1L;
 	protected int[] indices;
@@ -49,9 +52,10 @@ public class IntLongSortedMap extends AbstractIntLongVector implements IntLongMa
 	}
 
 	public IntLongSortedMap(IntLongSortedMap other) {
-		this.used = other.used;
-		this.indices = IntArrays.copyOf(other.indices);
-		this.values = LongArrays.copyOf(other.values);
+	    // Use the accessors, which merge the buffer of a IntLongBufferedSortedMap.
+		this.used = other.getUsed();
+		this.indices = IntArrays.copyOf(other.getInternalIndices());
+		this.values = LongArrays.copyOf(other.getInternalValues());
 	}
 
     public IntLongSortedMap(IntLongHashMap other) {
@@ -163,6 +167,7 @@ public class IntLongSortedMap extends AbstractIntLongVector implements IntLongMa
         values = insert(values, insertionPoint, val);
         used++;
     }
+
     
     public void apply(FnIntLongToLong lambda) {
         for (int i=0; i<used; i++) {
@@ -175,6 +180,25 @@ public class IntLongSortedMap extends AbstractIntLongVector implements IntLongMa
             lambda.call(indices[i], values[i]);
         }
     }
+
+    @Override
+    public int getNumPositions() {
+        return used;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnIntLongToVoid lambda) {
+        for (int i=start; i<end; i++) {
+            lambda.call(indices[i], values[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnIntLongToLong lambda) {
+        for (int i=start; i<end; i++) {
+            values[i] = lambda.call(indices[i], values[i]);
+        }
+    }
 	
 	private final int[] insert(int[] array, int i, int val) {
 		if (used >= array.length) {
@@ -258,6 +282,66 @@ public class IntLongSortedMap extends AbstractIntLongVector implements IntLongMa
 		return new IntLongIterator();
 	}
 
+    /**
+     * Gets a cursor over the entries in order of their indices, which
+     * allocates nothing per entry. The cursor is fail-fast: it throws a
+     * <code>ConcurrentModificationException</code> if it detects that an
+     * entry was added or removed.
+     */
+    @Override
+    public IntLongCursor cursor() {
+        return new IntLongMapCursor();
+    }
+
+    /** Cursor over the entries of the map. */
+    private class IntLongMapCursor implements IntLongCursor {
+
+        // Any insertion or removal changes used or reallocates indices.
+        private final int[] expectedIndices = indices;
+        private final int expectedUsed = used;
+        private int i = -1;
+
+        @Override
+        public boolean advance() {
+            checkForComodification();
+            if (i < used) {
+                i++;
+            }
+            return i < used;
+        }
+
+        @Override
+        public int key() {
+            checkCurrent();
+            return indices[i];
+        }
+
+        @Override
+        public long value() {
+            checkCurrent();
+            return values[i];
+        }
+
+        @Override
+        public void setValue(long value) {
+            checkCurrent();
+            values[i] = value;
+        }
+
+        private void checkCurrent() {
+            checkForComodification();
+            if (i < 0 || i >= used) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        private void checkForComodification() {
+            if (indices != expectedIndices || used != expectedUsed) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+    }
 
 	/* (non-Javadoc)
      * @see edu.jhu.util.vector.IntLongMap#size()
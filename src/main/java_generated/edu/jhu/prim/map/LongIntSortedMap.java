@@ -1,7 +1,9 @@
 package edu.jhu.prim.map;
 
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import edu.jhu.prim.arrays.IntArrays;
 import edu.jhu.prim.arrays.LongArrays;
@@ -13,6 +15,7 @@ import edu.jhu.prim.tuple.Pair;
 import edu.jhu.prim.util.Lambda.FnLongIntToInt;
 import edu.jhu.prim.util.Lambda.FnLongIntToVoid;
 import edu.jhu.prim.vector.AbstractLongIntVector;
+import edu.jhu.prim.vector.LongIntRangeIterable;
 
 /**
  * A primitives map from longs to ints. The map is stored by keeping a sorted
@@ -21,7 +24,7 @@ import edu.jhu.prim.vector.AbstractLongIntVector;
  * 
  * @author mgormley
  */
-public class LongIntSortedMap extends AbstractLongIntVector implements LongIntMap {
+public class LongIntSortedMap extends AbstractLongIntVector implements LongIntMap, LongIntRangeIterable {
     
     private static final long serialVersionUID = 1L;
 	protected long[] indices;
@@ -49,9 +52,10 @@ public class LongIntSortedMap extends AbstractLongIntVector implements LongIntMa
 	}
 
 	public LongIntSortedMap(LongIntSortedMap other) {
-		this.used = other.used;
-		this.indices = LongArrays.copyOf(other.indices);
-		this.values = IntArrays.copyOf(other.values);
+	    // Use the accessors, which merge the buffer of a LongIntBufferedSortedMap.
+		this.used = other.getUsed();
+		this.indices = LongArrays.copyOf(other.getInternalIndices());
+		this.values = IntArrays.copyOf(other.getInternalValues());
 	}
 
     public LongIntSortedMap(LongIntHashMap other) {
@@ -163,6 +167,7 @@ public class LongIntSortedMap extends AbstractLongIntVector implements LongIntMa
         values = insert(values, insertionPoint, val);
         used++;
     }
+
     
     public void apply(FnLongIntToInt lambda) {
         for (int i=0; i<used; i++) {
@@ -175,6 +180,25 @@ public class LongIntSortedMap extends AbstractLongIntVector implements LongIntMa
             lambda.call(indices[i], values[i]);
         }
     }
+
+    @Override
+    public int getNumPositions() {
+        return used;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnLongIntToVoid lambda) {
+        for (int i=start; i<end; i++) {
+            lambda.call(indices[i], values[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnLongIntToInt lambda) {
+        for (int i=start; i<end; i++) {
+            values[i] = lambda.call(indices[i], values[i]);
+        }
+    }
 	
 	private final long[] insert(long[] array, int i, long val) {
 		if (used >= array.length) {
@@ -258,6 +282,66 @@ public class LongIntSortedMap extends AbstractLongIntVector implements LongIntMa
 		return new LongIntIterator();
 	}
 
+    /**
+     * Gets a cursor over the entries in order of their indices, which
+     * allocates nothing per entry. The cursor is fail-fast: it throws a
+     * <code>ConcurrentModificationException</code> if it detects that an
+     * entry was added or removed.
+     */
+    @Override
+    public LongIntCursor cursor() {
+        return new LongIntMapCursor();
+    }
+
+    /** Cursor over the entries of the map. */
+    private class LongIntMapCursor implements LongIntCursor {
+
+        // Any insertion or removal changes used or reallocates indices.
+        private final long[] expectedIndices = indices;
+        private final int expectedUsed = used;
+        private int i = -1;
+
+        @Override
+        public boolean advance() {
+            checkForComodification();
+            if (i < used) {
+                i++;
+            }
+            return i < used;
+        }
+
+        @Override
+        public long key() {
+            checkCurrent();
+            return indices[i];
+        }
+
+        @Override
+        public int value() {
+            checkCurrent();
+            return values[i];
+        }
+
+        @Override
+        public void setValue(int value) {
+            checkCurrent();
+            values[i] = value;
+        }
+
+        private void checkCurrent() {
+            checkForComodification();
+            if (i < 0 || i >= used) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        private void checkForComodification() {
+            if (indices != expectedIndices || used != expectedUsed) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+    }
 
 	/* (non-Javadoc)
      * @see edu.jhu.util.vector.LongIntMap#size()
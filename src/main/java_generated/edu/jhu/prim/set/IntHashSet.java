@@ -1,9 +1,12 @@
 package edu.jhu.prim.set;
 
+import edu.jhu.prim.Primitives;
 import edu.jhu.prim.iter.IntArrayIter;
+import edu.jhu.prim.iter.IntCursor;
 import edu.jhu.prim.iter.IntIter;
 import edu.jhu.prim.list.IntArrayList;
 import edu.jhu.prim.map.IntDoubleHashMap;
+import edu.jhu.prim.map.IntHashStrategy;
 
 /**
  * Hash set for int primitives.
@@ -22,6 +25,10 @@ public class IntHashSet implements IntSet {
         this.map = new IntDoubleHashMap(expectedSize);
     }
     
+    public IntHashSet(int expectedSize, IntHashStrategy hashStrategy) {
+        this.map = new IntDoubleHashMap(expectedSize, Primitives.DEFAULT_MISSING_ENTRY_DOUBLE, hashStrategy);
+    }
+    
     public IntHashSet(IntHashSet other) {
         this.map = new IntDoubleHashMap(other.map);
     }
@@ -62,6 +69,15 @@ public class IntHashSet implements IntSet {
         return new IntArrayIter(map.getIndices());
     }
 
+    /**
+     * Gets a cursor over the keys, which allocates nothing per key (unlike
+     * iterator(), which copies the keys). The cursor is fail-fast.
+     */
+    @Override
+    public IntCursor cursor() {
+        return map.cursor();
+    }
+
     public int size() {
         return map.size();
     }
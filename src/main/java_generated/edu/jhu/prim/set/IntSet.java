@@ -1,7 +1,9 @@
 package edu.jhu.prim.set;
 
 import java.io.Serializable;
+import java.util.NoSuchElementException;
 
+import edu.jhu.prim.iter.IntCursor;
 import edu.jhu.prim.iter.IntIter;
 import edu.jhu.prim.list.IntArrayList;
 
@@ -16,6 +18,34 @@ public interface IntSet extends Serializable {
     void add(IntArrayList keys);
     boolean contains(int key);
     IntIter iterator();
+    /**
+     * Gets a cursor over the keys, which allocates nothing per key. The
+     * default implementation adapts iterator().
+     */
+    default IntCursor cursor() {
+        final IntIter iter = iterator();
+        return new IntCursor() {
+            private boolean atKey = false;
+            private int key;
+
+            @Override
+            public boolean advance() {
+                atKey = iter.hasNext();
+                if (atKey) {
+                    key = iter.next();
+                }
+                return atKey;
+            }
+
+            @Override
+            public int key() {
+                if (!atKey) {
+                    throw new NoSuchElementException();
+                }
+                return key;
+            }
+        };
+    }
     int size();
     
 }
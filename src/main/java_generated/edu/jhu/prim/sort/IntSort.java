@@ -1,11 +1,19 @@
 package edu.jhu.prim.sort;
 
 import edu.jhu.prim.arrays.IntArrays;
-import edu.jhu.prim.list.IntStack;
 
+/**
+ * In-place introsort: quicksort with a median-of-three (or ninther) pivot,
+ * insertion sort for small subranges, and a heapsort fallback once the
+ * recursion depth exceeds 2 log2(n). Inputs which are already sorted or reverse
+ * sorted are handled in a single linear pass.
+ */
 public class IntSort {
 
-    public static int numSwaps = 0;
+    /** Subranges with fewer than this many elements are insertion sorted. */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    /** Subranges with at least this many elements use Tukey's ninther as the pivot. */
+    private static final int NINTHER_THRESHOLD = 128;
 
     public IntSort() {
         // private constructor
@@ -15,14 +23,30 @@ public class IntSort {
      * Performs an in-place quick sort on array. Sorts in descending order.
      */
     public static void sortDesc(int[] array) {
-        quicksort(array, 0, array.length-1, false);
+        quicksort(array, 0, array.length-1, false, null);
+    }
+
+    /**
+     * Performs an in-place quick sort on array. Sorts in descending order.
+     * @param stats Counters to update, or null.
+     */
+    public static void sortDesc(int[] array, SortStats stats) {
+        quicksort(array, 0, array.length-1, false, stats);
     }
     
     /**
      * Performs an in-place quick sort on array. Sorts in acscending order.
      */
     public static void sortAsc(int[] array) {
-        quicksort(array, 0, array.length-1, true);
+        quicksort(array, 0, array.length-1, true, null);
+    }
+
+    /**
+     * Performs an in-place quick sort on array. Sorts in acscending order.
+     * @param stats Counters to update, or null.
+     */
+    public static void sortAsc(int[] array, SortStats stats) {
+        quicksort(array, 0, array.length-1, true, stats);
     }
     
     /**
@@ -33,7 +57,7 @@ public class IntSort {
      * @param toIndex The ending index (exclusive).
      */
     public static void sortAsc(int[] array, int fromIndex, int toIndex) {
-        quicksort(array, fromIndex, toIndex-1, true);
+        quicksort(array, fromIndex, toIndex-1, true, null);
     }
 
     /**
@@ -44,54 +68,159 @@ public class IntSort {
      * @param toIndex The ending index (exclusive).
      */
     public static void sortDesc(int[] array, int fromIndex, int toIndex) {
-        quicksort(array, fromIndex, toIndex-1, false);
+        quicksort(array, fromIndex, toIndex-1, false, null);
     }
         
-    private static void quicksort(int[] array, int left, int right, boolean asc) {
-        IntStack leftStack = new IntStack();
-        IntStack rightStack = new IntStack();
-        leftStack.add(left);
-        rightStack.add(right);
-        while (leftStack.size() > 0) {
-            left = leftStack.pop();
-            right = rightStack.pop();
-            if (left < right) {
-                // Choose a pivot index.
-                // --> Here we choose the rightmost element which does the least
-                // amount of work if the array is already sorted.
-                int pivotIndex = right;
-                // Partition the array so that everything less than
-                // values[pivotIndex] is on the left of pivotNewIndex and everything
-                // greater than or equal is on the right.
-                int pivotNewIndex = partition(array, left, right, pivotIndex, asc);
-                // "Recurse" on the left side.
-                leftStack.push(left);
-                rightStack.push(pivotNewIndex - 1);
-                // "Recurse" on the right side.
-                leftStack.push(pivotNewIndex + 1);
-                rightStack.push(right);
+    private static void quicksort(int[] array, int left, int right, boolean asc, SortStats stats) {
+        if (right <= left || isSorted(array, left, right, asc)) {
+            return;
+        }
+        if (isSorted(array, left, right, !asc)) {
+            reverse(array, left, right, stats);
+            return;
+        }
+        introsort(array, left, right, asc, 2 * (31 - Integer.numberOfLeadingZeros(right - left + 1)), stats);
+    }
+
+    static void introsort(int[] array, int left, int right, boolean asc, int depthLimit, SortStats stats) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                if (stats != null) {
+                    stats.numHeapsorts++;
+                }
+                heapsort(array, left, right, asc, stats);
+                return;
+            }
+            int pivotNewIndex = partition(array, left, right, choosePivot(array, left, right), asc, stats);
+            // Recurse on the smaller side and loop on the other, so that the
+            // stack depth is at most log2(n).
+            if (pivotNewIndex - left < right - pivotNewIndex) {
+                introsort(array, left, pivotNewIndex - 1, asc, depthLimit, stats);
+                left = pivotNewIndex + 1;
+            } else {
+                introsort(array, pivotNewIndex + 1, right, asc, depthLimit, stats);
+                right = pivotNewIndex - 1;
             }
         }
+        insertionSort(array, left, right, asc, stats);
     }
-    
-    private static int partition(int[] array, int left, int right, int pivotIndex, boolean asc) {
-        int pivotValue = array[pivotIndex];
-        // Move the pivot value to the rightmost position.
-        swap(array, pivotIndex, right);
-        // For each position between left and right, swap all the values less
-        // than or equal to the pivot value to the left side.
-        int storeIndex = left;
-        for (int i=left; i<right; i++) {
-            if (lte(array[i], pivotValue, asc)) {
-                swap(array, i, storeIndex);
-                storeIndex++;
+
+    /**
+     * Partitions array[left...right] around array[pivotIndex] so that everything left of
+     * the returned position is less than or equal to the pivot and everything to the
+     * right is greater than or equal to it.
+     */
+    private static int partition(int[] array, int left, int right, int pivotIndex, boolean asc, SortStats stats) {
+        // Move the pivot to the leftmost position, where it stops the right-to-left scan.
+        swap(array, pivotIndex, left, stats);
+        int pivotValue = array[left];
+        int i = left;
+        int j = right + 1;
+        while (true) {
+            // Both scans stop on elements equal to the pivot, so runs of
+            // duplicates are split evenly rather than all going to one side.
+            while (lt(array[++i], pivotValue, asc)) {
+                if (i == right) {
+                    break;
+                }
+            }
+            while (lt(pivotValue, array[--j], asc)) {
+                // Keep scanning.
+            }
+            if (i >= j) {
+                break;
             }
+            swap(array, i, j, stats);
         }
         // Move the pivot value back to the split point.
-        swap(array, storeIndex, right);
-        return storeIndex;
+        swap(array, left, j, stats);
+        return j;
     }
-    
+
+    private static void insertionSort(int[] array, int left, int right, boolean asc, SortStats stats) {
+        for (int i=left+1; i<=right; i++) {
+            int key = array[i];
+            int j = i - 1;
+            while (j >= left && lt(key, array[j], asc)) {
+                array[j+1] = array[j];
+                j--;
+            }
+            array[j+1] = key;
+            if (stats != null) {
+                stats.numSwaps += i - 1 - j;
+            }
+        }
+    }
+
+    private static void heapsort(int[] array, int left, int right, boolean asc, SortStats stats) {
+        int n = right - left + 1;
+        for (int i = n/2 - 1; i >= 0; i--) {
+            siftDown(array, left, i, n, asc, stats);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(array, left, left + end, stats);
+            siftDown(array, left, 0, end, asc, stats);
+        }
+    }
+
+    private static void siftDown(int[] array, int offset, int i, int n, boolean asc, SortStats stats) {
+        while (true) {
+            int child = 2*i + 1;
+            if (child >= n) {
+                return;
+            }
+            if (child + 1 < n && lt(array[offset+child], array[offset+child+1], asc)) {
+                child++;
+            }
+            if (!lt(array[offset+i], array[offset+child], asc)) {
+                return;
+            }
+            swap(array, offset+i, offset+child, stats);
+            i = child;
+        }
+    }
+
+    /**
+     * Chooses the median of the first, middle and last elements as the pivot, or
+     * Tukey's ninther (the median of three such medians) for large subranges.
+     */
+    private static int choosePivot(int[] array, int left, int right) {
+        int n = right - left + 1;
+        int mid = left + (n >>> 1);
+        if (n >= NINTHER_THRESHOLD) {
+            int s = n >>> 3;
+            int lo = median3(array, left, left + s, left + 2*s);
+            int md = median3(array, mid - s, mid, mid + s);
+            int hi = median3(array, right - 2*s, right - s, right);
+            return median3(array, lo, md, hi);
+        }
+        return median3(array, left, mid, right);
+    }
+
+    /** Gets the position of the median of array[i], array[j], array[k]. */
+    private static int median3(int[] array, int i, int j, int k) {
+        return array[i] < array[j] ?
+                (array[j] < array[k] ? j : array[i] < array[k] ? k : i) :
+                (array[k] < array[j] ? j : array[k] < array[i] ? k : i);
+    }
+
+    /** Whether array[left...right] (inclusive) is in ascending or descending order. */
+    private static boolean isSorted(int[] array, int left, int right, boolean asc) {
+        for (int i=left; i<right; i++) {
+            if (lt(array[i+1], array[i], asc)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Reverses the positions left...right (inclusive). */
+    private static void reverse(int[] array, int left, int right, SortStats stats) {
+        while (left < right) {
+            swap(array, left++, right--, stats);
+        }
+    }
+
     public static int[] getIndexArray(int[] values) {
         return getIndexArray(values.length);
     }
@@ -112,12 +241,14 @@ public class IntSort {
     /**
      * Swaps the elements at positions i and j.
      */
-    private static void swap(int[] array, int i, int j) {
-        if (i != j) { 
+    private static void swap(int[] array, int i, int j, SortStats stats) {
+        if (i != j) {
             int valAtI = array[i];
             array[i] = array[j];
             array[j] = valAtI;
-            numSwaps++;
+                        if (stats != null) {
+                stats.numSwaps++;
+            }
         }
     }
         
@@ -148,12 +279,12 @@ public class IntSort {
         return true;
     }
     
-    /** Abstract "less than or equal" for either ascending or descending orders. */
-    private static boolean lte(int v1, int v2, boolean asc) {
+    /** Abstract "less than" for either ascending or descending orders. */
+    private static boolean lt(int v1, int v2, boolean asc) {
         if (asc) {
-            return v1 <= v2;
+            return v1 < v2;
         } else {
-            return v2 <= v1;
+            return v2 < v1;
         }
     }
 
@@ -1,12 +1,280 @@
 package edu.jhu.prim.vector;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
 import edu.jhu.prim.Primitives.MutableFloat;
 import edu.jhu.prim.Primitives.MutableInt;
+import edu.jhu.prim.util.Lambda.FnIntFloatToFloat;
 import edu.jhu.prim.util.Lambda.FnIntFloatToVoid;
 
 public abstract class AbstractIntFloatVector {
 
+    /**
+     * Number of positions in the backing arrays below which the parallel
+     * methods run sequentially, since forking would cost more than it saves.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    /** Minimum number of positions handled by one fork-join task. */
+    private static final int MIN_RANGE_SIZE = 1 << 12;
+
     public abstract void iterate(FnIntFloatToVoid function);
+
+    public abstract void apply(FnIntFloatToFloat function);
+
+    /**
+     * Whether the parallel methods should fork for this vector: only vectors
+     * which implement {@link IntFloatRangeIterable} can be split into ranges.
+     */
+    private boolean isParallel(ForkJoinPool pool) {
+        return this instanceof IntFloatRangeIterable && pool.getParallelism() > 1
+                && getNumPositions() >= PARALLEL_THRESHOLD;
+    }
+
+    /** Gets the number of positions, for a vector which implements {@link IntFloatRangeIterable}. */
+    private int getNumPositions() {
+        return ((IntFloatRangeIterable) this).getNumPositions();
+    }
+
+    /** Gets the number of positions handled by one fork-join task. */
+    private int getRangeSize(ForkJoinPool pool) {
+        final int numTasks = 4 * pool.getParallelism();
+        return Math.max(MIN_RANGE_SIZE, getNumPositions() / numTasks + 1);
+    }
+
+    /**
+     * Like {@link #apply(FnIntFloatToFloat)}, but splits the entries into
+     * ranges which are processed in parallel on the common fork-join pool.
+     * The function must be safe to call concurrently and the entries are
+     * visited in no particular order. Small vectors are processed
+     * sequentially.
+     */
+    public void parallelApply(FnIntFloatToFloat function) {
+        parallelApply(function, ForkJoinPool.commonPool());
+    }
+
+    /** Like {@link #parallelApply(FnIntFloatToFloat)}, but runs on the given pool. */
+    public void parallelApply(FnIntFloatToFloat function, ForkJoinPool pool) {
+        if (!isParallel(pool)) {
+            apply(function);
+            return;
+        }
+        pool.invoke(new RangeAction((IntFloatRangeIterable) this, function, null, 0, getNumPositions(),
+                getRangeSize(pool)));
+    }
+
+    /**
+     * Like {@link #iterate(FnIntFloatToVoid)}, but splits the entries into
+     * ranges which are processed in parallel on the common fork-join pool.
+     * The function must be safe to call concurrently and the entries are
+     * visited in no particular order. Small vectors are processed
+     * sequentially.
+     */
+    public void parallelIterate(FnIntFloatToVoid function) {
+        parallelIterate(function, ForkJoinPool.commonPool());
+    }
+
+    /** Like {@link #parallelIterate(FnIntFloatToVoid)}, but runs on the given pool. */
+    public void parallelIterate(FnIntFloatToVoid function, ForkJoinPool pool) {
+        if (!isParallel(pool)) {
+            iterate(function);
+            return;
+        }
+        pool.invoke(new RangeAction((IntFloatRangeIterable) this, null, function, 0, getNumPositions(),
+                getRangeSize(pool)));
+    }
+
+    /** Computes {@link #getSum()} in parallel for large vectors. */
+    public float parallelGetSum() {
+        return parallelGetSum(ForkJoinPool.commonPool());
+    }
+
+    /** Computes {@link #getSum()} in parallel on the given pool for large vectors. */
+    public float parallelGetSum(ForkJoinPool pool) {
+        if (!isParallel(pool)) {
+            return getSum();
+        }
+        return reduce(new SumReducer(), pool).sum;
+    }
+
+    /** Computes {@link #getL2Norm()} in parallel for large vectors. */
+    public float parallelGetL2Norm() {
+        return parallelGetL2Norm(ForkJoinPool.commonPool());
+    }
+
+    /** Computes {@link #getL2Norm()} in parallel on the given pool for large vectors. */
+    public float parallelGetL2Norm(ForkJoinPool pool) {
+        if (!isParallel(pool)) {
+            return getL2Norm();
+        }
+        return new MutableFloat(reduce(new SumOfSquaresReducer(), pool).sum).sqrt();
+    }
+
+    /** Computes {@link #getMax()} in parallel for large vectors. */
+    public float parallelGetMax() {
+        return parallelGetMax(ForkJoinPool.commonPool());
+    }
+
+    /** Computes {@link #getMax()} in parallel on the given pool for large vectors. */
+    public float parallelGetMax(ForkJoinPool pool) {
+        if (!isParallel(pool)) {
+            return getMax();
+        }
+        return reduce(new MaxReducer(), pool).max;
+    }
+
+    /**
+     * Computes {@link #getArgmax()} in parallel for large vectors. Ties are
+     * broken in favor of the entry which {@link #iterate(FnIntFloatToVoid)}
+     * visits first, as in the sequential version.
+     */
+    public int parallelGetArgmax() {
+        return parallelGetArgmax(ForkJoinPool.commonPool());
+    }
+
+    /** Computes {@link #getArgmax()} in parallel on the given pool for large vectors. */
+    public int parallelGetArgmax(ForkJoinPool pool) {
+        if (!isParallel(pool)) {
+            return getArgmax();
+        }
+        return reduce(new MaxReducer(), pool).argmax;
+    }
+
+    private <R extends Reducer<R>> R reduce(R reducer, ForkJoinPool pool) {
+        return pool.invoke(new ReduceTask<R>((IntFloatRangeIterable) this, reducer, 0, getNumPositions(),
+                getRangeSize(pool)));
+    }
+
+    /**
+     * Action which applies or calls a function on a range of positions,
+     * splitting it in two until it is small enough to process directly.
+     */
+    private static class RangeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final IntFloatRangeIterable vector;
+        private final FnIntFloatToFloat applyFn;
+        private final FnIntFloatToVoid iterateFn;
+        private final int start;
+        private final int end;
+        private final int rangeSize;
+
+        public RangeAction(IntFloatRangeIterable vector, FnIntFloatToFloat applyFn, FnIntFloatToVoid iterateFn,
+                int start, int end, int rangeSize) {
+            this.vector = vector;
+            this.applyFn = applyFn;
+            this.iterateFn = iterateFn;
+            this.start = start;
+            this.end = end;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= rangeSize) {
+                if (applyFn != null) {
+                    vector.applyRange(start, end, applyFn);
+                } else {
+                    vector.iterateRange(start, end, iterateFn);
+                }
+                return;
+            }
+            final int mid = (start + end) >>> 1;
+            invokeAll(new RangeAction(vector, applyFn, iterateFn, start, mid, rangeSize),
+                    new RangeAction(vector, applyFn, iterateFn, mid, end, rangeSize));
+        }
+
+    }
+
+    /** Accumulates a reduction over the entries of one range. */
+    private static abstract class Reducer<R extends Reducer<R>> implements FnIntFloatToVoid {
+        /** Creates an empty accumulator of the same kind. */
+        public abstract R newInstance();
+        /** Merges in the result for the range following this one. */
+        public abstract void merge(R other);
+    }
+
+    private static class SumReducer extends Reducer<SumReducer> {
+        float sum = 0;
+        public void call(int idx, float val) {
+            sum += val;
+        }
+        public SumReducer newInstance() {
+            return new SumReducer();
+        }
+        public void merge(SumReducer other) {
+            sum += other.sum;
+        }
+    }
+
+    private static class SumOfSquaresReducer extends Reducer<SumOfSquaresReducer> {
+        float sum = 0;
+        public void call(int idx, float val) {
+            sum += val*val;
+        }
+        public SumOfSquaresReducer newInstance() {
+            return new SumOfSquaresReducer();
+        }
+        public void merge(SumOfSquaresReducer other) {
+            sum += other.sum;
+        }
+    }
+
+    private static class MaxReducer extends Reducer<MaxReducer> {
+        float max = Float.NEGATIVE_INFINITY;
+        int argmax = -1;
+        public void call(int idx, float val) {
+            if (val > max) {
+                argmax = idx;
+                max = val;
+            }
+        }
+        public MaxReducer newInstance() {
+            return new MaxReducer();
+        }
+        public void merge(MaxReducer other) {
+            if (other.max > max) {
+                argmax = other.argmax;
+                max = other.max;
+            }
+        }
+    }
+
+    /** Task which reduces a range of positions by splitting it in two. */
+    private static class ReduceTask<R extends Reducer<R>> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+        private final IntFloatRangeIterable vector;
+        private final R reducer;
+        private final int start;
+        private final int end;
+        private final int rangeSize;
+
+        public ReduceTask(IntFloatRangeIterable vector, R reducer, int start, int end, int rangeSize) {
+            this.vector = vector;
+            this.reducer = reducer;
+            this.start = start;
+            this.end = end;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected R compute() {
+            if (end - start <= rangeSize) {
+                vector.iterateRange(start, end, reducer);
+                return reducer;
+            }
+            final int mid = (start + end) >>> 1;
+            ReduceTask<R> right = new ReduceTask<R>(vector, reducer.newInstance(), mid, end, rangeSize);
+            right.fork();
+            R result = new ReduceTask<R>(vector, reducer, start, mid, rangeSize).compute();
+            result.merge(right.join());
+            return result;
+        }
+
+    }
     
     public float getSum() {
         final MutableFloat sum = new MutableFloat(0);
@@ -4,14 +4,12 @@ import java.util.Arrays;
 
 import edu.jhu.prim.Primitives;
 import edu.jhu.prim.arrays.DoubleArrays;
-import edu.jhu.prim.util.Lambda;
 import edu.jhu.prim.util.Lambda.FnIntDoubleToDouble;
 import edu.jhu.prim.util.Lambda.FnIntDoubleToVoid;
 import edu.jhu.prim.util.SafeCast;
-import edu.jhu.prim.vector.IntDoubleHashVector.SparseBinaryOpApplier;
 
 //TODO: Implement Iterable<IntDoubleEntry>.
-public class IntDoubleDenseVector extends AbstractIntDoubleVector implements IntDoubleVector {
+public class IntDoubleDenseVector extends AbstractIntDoubleVector implements IntDoubleVector, IntDoubleRangeIterable {
 
     private static final long serialVersionUID = 1L;
 
@@ -112,17 +110,7 @@ public class IntDoubleDenseVector extends AbstractIntDoubleVector implements Int
 
     @Override
     public double dot(IntDoubleVector y) {
-        if (y instanceof IntDoubleDenseVector){
-            IntDoubleDenseVector other = (IntDoubleDenseVector) y;
-            int max = Math.min(idxAfterLast, other.idxAfterLast);
-            double dot = 0;
-            for (int i=0; i<max; i++) {
-                dot += elements[i] * y.get(i);
-            }
-            return dot;
-        } else {
-            return y.dot(this);
-        }
+        return IntDoubleVectorKernels.dot(this, y);
     }
 
     @Override
@@ -139,38 +127,38 @@ public class IntDoubleDenseVector extends AbstractIntDoubleVector implements Int
         }
     }
 
+    @Override
+    public int getNumPositions() {
+        return idxAfterLast;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnIntDoubleToVoid function) {
+        for (int i=start; i<end; i++) {
+            function.call(i, elements[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnIntDoubleToDouble function) {
+        for (int i=start; i<end; i++) {
+            elements[i] = function.call(i, elements[i]);
+        }
+    }
+
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(IntDoubleVector other) {
-        if (other instanceof IntDoubleUnsortedVector) {
-            IntDoubleUnsortedVector vec = (IntDoubleUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], vec.vals[i]);
-            }
-        } else {
-            //  TODO: Add special case for IntDoubleDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleAdd()));
-        }
+        IntDoubleVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(IntDoubleVector other) {
-        if (other instanceof IntDoubleUnsortedVector) {
-            IntDoubleUnsortedVector vec = (IntDoubleUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], -vec.vals[i]);
-            }
-        } else {
-            // TODO: Add special case for IntDoubleDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleSubtract()));
-        }
+        IntDoubleVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(IntDoubleVector other) {
-        // TODO: Add special case for IntDoubleDenseVector.
-        for (int i=0; i<idxAfterLast; i++) {
-            elements[i] *= other.get(i);
-        }
+        IntDoubleVectorKernels.product(this, other);
     }
     
     /**
@@ -244,6 +232,12 @@ public class IntDoubleDenseVector extends AbstractIntDoubleVector implements Int
         }
     }
 
+    /** Grows this vector, if needed, so that it has at least the given number of explicit entries. */
+    void growTo(int size) {
+        idxAfterLast = Math.max(idxAfterLast, size);
+        ensureCapacity(idxAfterLast);
+    }
+
     /**
      * Ensure that the internal array has space to contain the specified number of elements.
      * @param size The number of elements. 
@@ -1,8 +1,6 @@
 package edu.jhu.prim.vector;
 
 import edu.jhu.prim.map.IntDoubleHashMap;
-import edu.jhu.prim.util.Lambda;
-import edu.jhu.prim.util.Lambda.FnIntDoubleToDouble;
 import edu.jhu.prim.util.Lambda.FnIntDoubleToVoid;
 import edu.jhu.prim.util.Lambda.LambdaBinOpDouble;
 import edu.jhu.prim.util.SafeCast;
@@ -40,6 +38,32 @@ public class IntDoubleHashVector extends IntDoubleHashMap implements IntDoubleVe
     public IntDoubleHashVector(int[] keys, double[] vals) {
         super(keys, vals);
     }
+
+
+    /** Whether a slot in the given state holds an entry, for the kernels which read the tables directly. */
+    static boolean isFull(byte state) {
+        return state == FULL;
+    }
+
+    /** Gets the slot of the entry for an index, or -1 if there is none. */
+    int getSlot(int idx) {
+        return indexOf(idx);
+    }
+
+    /** Gets the internal table of slot states. */
+    byte[] getInternalStates() {
+        return states;
+    }
+
+    /** Gets the internal table of keys, which are only valid for the full slots. */
+    int[] getInternalKeys() {
+        return keys;
+    }
+
+    /** Gets the internal table of values, which are only valid for the full slots. */
+    double[] getInternalValues() {
+        return values;
+    }
     
     /** Gets a deep copy of this vector. */
     @Override
@@ -80,17 +104,16 @@ public class IntDoubleHashVector extends IntDoubleHashMap implements IntDoubleVe
                 return other.dot(this);
             }
             return dotWithoutCaveats(other);
-        } else if (y instanceof IntDoubleSortedVector) {
-            // TODO: If the size of the HashVector is much smaller than the size
-            // of the SortedVector and neither is very large, we might want to
-            // instead loop over the HashVector.
+        } else if (y instanceof IntDoubleSortedVector || y instanceof IntDoubleUnsortedVector) {
+            // These choose whether to loop over this vector or themselves.
             return y.dot(this);
         } else {
             return dotWithoutCaveats(y);
         }
     }
 
-    private double dotWithoutCaveats(IntDoubleVector other) {
+    /** Loops over the entries of this vector, looking each one up in the other. */
+    double dotWithoutCaveats(IntDoubleVector other) {
         double dot = 0;
         for (int i=0; i<this.keys.length; i++) {
             if (this.states[i] == FULL) {
@@ -102,20 +125,17 @@ public class IntDoubleHashVector extends IntDoubleHashMap implements IntDoubleVe
 
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(IntDoubleVector other) {
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleAdd()));
+        IntDoubleVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(IntDoubleVector other) {
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleSubtract()));
+        IntDoubleVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(IntDoubleVector other) { 
-        // TODO: This is correct, but will create lots of zero entries and not remove any.
-        // Also this will be very slow if other is a IntDoubleSortedVector since it will have to
-        // call get() each time.
-        this.apply(new SparseBinaryOpApplier2(this, other, new Lambda.DoubleProd()));
+        IntDoubleVectorKernels.product(this, other);
     }
 
     public int getNumImplicitEntries() {
@@ -156,22 +176,4 @@ public class IntDoubleHashVector extends IntDoubleHashMap implements IntDoubleVe
         
     }
     
-    private static class SparseBinaryOpApplier2 implements FnIntDoubleToDouble {
-        
-        private IntDoubleVector vec1;
-        private IntDoubleVector vec2;
-        private LambdaBinOpDouble lambda;
-        
-        public SparseBinaryOpApplier2(IntDoubleVector vec1, IntDoubleVector vec2, LambdaBinOpDouble lambda) {
-            this.vec1 = vec1;
-            this.vec2 = vec2;
-            this.lambda = lambda;
-        }
-        
-        public double call(int idx, double val) {
-            return lambda.call(vec1.get(idx), vec2.get(idx));
-        }
-        
-    }
-
 }
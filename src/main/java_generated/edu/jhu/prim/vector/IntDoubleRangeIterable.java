@@ -0,0 +1,29 @@
+package edu.jhu.prim.vector;
+
+import edu.jhu.prim.util.Lambda.FnIntDoubleToDouble;
+import edu.jhu.prim.util.Lambda.FnIntDoubleToVoid;
+
+/**
+ * Entries which are stored at positions in backing arrays and can be visited
+ * by range of positions. The parallel methods of
+ * {@link AbstractIntDoubleVector} split the positions of vectors which
+ * implement this interface into ranges, and process the others sequentially.
+ *
+ * @author mgormley
+ */
+public interface IntDoubleRangeIterable {
+
+    /**
+     * Gets the number of positions in the backing arrays. Any pending
+     * updates must be applied first, so that the positions stay fixed until
+     * the vector is next modified.
+     */
+    int getNumPositions();
+
+    /** Calls the function on each entry at a position in [start, end). */
+    void iterateRange(int start, int end, FnIntDoubleToVoid function);
+
+    /** Applies the function to each entry at a position in [start, end). */
+    void applyRange(int start, int end, FnIntDoubleToDouble function);
+
+}
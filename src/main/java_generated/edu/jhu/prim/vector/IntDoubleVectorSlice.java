@@ -3,11 +3,9 @@ package edu.jhu.prim.vector;
 import java.util.Arrays;
 
 import edu.jhu.prim.Primitives;
-import edu.jhu.prim.util.Lambda;
 import edu.jhu.prim.util.Lambda.FnIntDoubleToDouble;
 import edu.jhu.prim.util.Lambda.FnIntDoubleToVoid;
 import edu.jhu.prim.util.SafeCast;
-import edu.jhu.prim.vector.IntDoubleHashVector.SparseBinaryOpApplier;
 
 
 /**
@@ -76,7 +74,7 @@ public class IntDoubleVectorSlice extends AbstractIntDoubleVector implements Int
         return elements[idx + start];
     }
 
-    private final void checkIndex(int idx) {
+    final void checkIndex(int idx) {
         if (idx < 0 || idx >= size) {
             throw new IllegalStateException("Invalid index for slice: " + idx);
         }
@@ -118,11 +116,7 @@ public class IntDoubleVectorSlice extends AbstractIntDoubleVector implements Int
 
     @Override
     public double dot(IntDoubleVector y) {
-        double dot = 0;
-        for (int i=0; i<size; i++) {
-            dot += elements[i + start] * y.get(i);
-        }
-        return dot;
+        return IntDoubleVectorKernels.dot(this, y);
     }
     
     @Override
@@ -141,22 +135,17 @@ public class IntDoubleVectorSlice extends AbstractIntDoubleVector implements Int
 
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(IntDoubleVector other) {
-        // TODO: Add special case for IntDoubleDenseVector.
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleAdd()));
+        IntDoubleVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(IntDoubleVector other) {
-        // TODO: Add special case for IntDoubleDenseVector.
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.DoubleSubtract()));
+        IntDoubleVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(IntDoubleVector other) {
-        // TODO: Add special case for IntDoubleDenseVector.
-        for (int i=0; i<size; i++) {
-            elements[i + start] *= other.get(i);
-        }
+        IntDoubleVectorKernels.product(this, other);
     }
     
     /**
@@ -179,6 +168,21 @@ public class IntDoubleVectorSlice extends AbstractIntDoubleVector implements Int
     public int getNumImplicitEntries() {        
         return size;
     }
+
+    /** Gets the INTERNAL array backing this slice. */
+    double[] getInternalElements() {
+        return elements;
+    }
+
+    /** Gets the position in the internal array of the 0'th element of this slice. */
+    int getStart() {
+        return start;
+    }
+
+    /** Gets the size of this slice. */
+    int getSize() {
+        return size;
+    }
     
     /**
      * Gets a NEW array containing all the elements in this array list.
@@ -4,14 +4,12 @@ import java.util.Arrays;
 
 import edu.jhu.prim.Primitives;
 import edu.jhu.prim.arrays.FloatArrays;
-import edu.jhu.prim.util.Lambda;
 import edu.jhu.prim.util.Lambda.FnIntFloatToFloat;
 import edu.jhu.prim.util.Lambda.FnIntFloatToVoid;
 import edu.jhu.prim.util.SafeCast;
-import edu.jhu.prim.vector.IntFloatHashVector.SparseBinaryOpApplier;
 
 //TODO: Implement Iterable<IntFloatEntry>.
-public class IntFloatDenseVector extends AbstractIntFloatVector implements IntFloatVector {
+public class IntFloatDenseVector extends AbstractIntFloatVector implements IntFloatVector, IntFloatRangeIterable {
 
     private static final long serialVersionUID = 1L;
 
@@ -112,17 +110,7 @@ public class IntFloatDenseVector extends AbstractIntFloatVector implements IntFl
 
     @Override
     public float dot(IntFloatVector y) {
-        if (y instanceof IntFloatDenseVector){
-            IntFloatDenseVector other = (IntFloatDenseVector) y;
-            int max = Math.min(idxAfterLast, other.idxAfterLast);
-            float dot = 0;
-            for (int i=0; i<max; i++) {
-                dot += elements[i] * y.get(i);
-            }
-            return dot;
-        } else {
-            return y.dot(this);
-        }
+        return IntFloatVectorKernels.dot(this, y);
     }
 
     @Override
@@ -139,38 +127,38 @@ public class IntFloatDenseVector extends AbstractIntFloatVector implements IntFl
         }
     }
 
+    @Override
+    public int getNumPositions() {
+        return idxAfterLast;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnIntFloatToVoid function) {
+        for (int i=start; i<end; i++) {
+            function.call(i, elements[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnIntFloatToFloat function) {
+        for (int i=start; i<end; i++) {
+            elements[i] = function.call(i, elements[i]);
+        }
+    }
+
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(IntFloatVector other) {
-        if (other instanceof IntFloatUnsortedVector) {
-            IntFloatUnsortedVector vec = (IntFloatUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], vec.vals[i]);
-            }
-        } else {
-            //  TODO: Add special case for IntFloatDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.FloatAdd()));
-        }
+        IntFloatVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(IntFloatVector other) {
-        if (other instanceof IntFloatUnsortedVector) {
-            IntFloatUnsortedVector vec = (IntFloatUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], -vec.vals[i]);
-            }
-        } else {
-            // TODO: Add special case for IntFloatDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.FloatSubtract()));
-        }
+        IntFloatVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(IntFloatVector other) {
-        // TODO: Add special case for IntFloatDenseVector.
-        for (int i=0; i<idxAfterLast; i++) {
-            elements[i] *= other.get(i);
-        }
+        IntFloatVectorKernels.product(this, other);
     }
     
     /**
@@ -244,6 +232,12 @@ public class IntFloatDenseVector extends AbstractIntFloatVector implements IntFl
         }
     }
 
+    /** Grows this vector, if needed, so that it has at least the given number of explicit entries. */
+    void growTo(int size) {
+        idxAfterLast = Math.max(idxAfterLast, size);
+        ensureCapacity(idxAfterLast);
+    }
+
     /**
      * Ensure that the internal array has space to contain the specified number of elements.
      * @param size The number of elements. 
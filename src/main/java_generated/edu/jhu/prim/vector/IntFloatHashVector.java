@@ -1,8 +1,6 @@
 package edu.jhu.prim.vector;
 
 import edu.jhu.prim.map.IntFloatHashMap;
-import edu.jhu.prim.util.Lambda;
-import edu.jhu.prim.util.Lambda.FnIntFloatToFloat;
 import edu.jhu.prim.util.Lambda.FnIntFloatToVoid;
 import edu.jhu.prim.util.Lambda.LambdaBinOpFloat;
 import edu.jhu.prim.util.SafeCast;
@@ -40,6 +38,32 @@ public class IntFloatHashVector extends IntFloatHashMap implements IntFloatVecto
     public IntFloatHashVector(int[] keys, float[] vals) {
         super(keys, vals);
     }
+
+
+    /** Whether a slot in the given state holds an entry, for the kernels which read the tables directly. */
+    static boolean isFull(byte state) {
+        return state == FULL;
+    }
+
+    /** Gets the slot of the entry for an index, or -1 if there is none. */
+    int getSlot(int idx) {
+        return indexOf(idx);
+    }
+
+    /** Gets the internal table of slot states. */
+    byte[] getInternalStates() {
+        return states;
+    }
+
+    /** Gets the internal table of keys, which are only valid for the full slots. */
+    int[] getInternalKeys() {
+        return keys;
+    }
+
+    /** Gets the internal table of values, which are only valid for the full slots. */
+    float[] getInternalValues() {
+        return values;
+    }
     
     /** Gets a deep copy of this vector. */
     @Override
@@ -80,17 +104,16 @@ public class IntFloatHashVector extends IntFloatHashMap implements IntFloatVecto
                 return other.dot(this);
             }
             return dotWithoutCaveats(other);
-        } else if (y instanceof IntFloatSortedVector) {
-            // TODO: If the size of the HashVector is much smaller than the size
-            // of the SortedVector and neither is very large, we might want to
-            // instead loop over the HashVector.
+        } else if (y instanceof IntFloatSortedVector || y instanceof IntFloatUnsortedVector) {
+            // These choose whether to loop over this vector or themselves.
             return y.dot(this);
         } else {
             return dotWithoutCaveats(y);
         }
     }
 
-    private float dotWithoutCaveats(IntFloatVector other) {
+    /** Loops over the entries of this vector, looking each one up in the other. */
+    float dotWithoutCaveats(IntFloatVector other) {
         float dot = 0;
         for (int i=0; i<this.keys.length; i++) {
             if (this.states[i] == FULL) {
@@ -102,20 +125,17 @@ public class IntFloatHashVector extends IntFloatHashMap implements IntFloatVecto
 
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(IntFloatVector other) {
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.FloatAdd()));
+        IntFloatVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(IntFloatVector other) {
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.FloatSubtract()));
+        IntFloatVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(IntFloatVector other) { 
-        // TODO: This is correct, but will create lots of zero entries and not remove any.
-        // Also this will be very slow if other is a IntFloatSortedVector since it will have to
-        // call get() each time.
-        this.apply(new SparseBinaryOpApplier2(this, other, new Lambda.FloatProd()));
+        IntFloatVectorKernels.product(this, other);
     }
 
     public int getNumImplicitEntries() {
@@ -156,22 +176,4 @@ public class IntFloatHashVector extends IntFloatHashMap implements IntFloatVecto
         
     }
     
-    private static class SparseBinaryOpApplier2 implements FnIntFloatToFloat {
-        
-        private IntFloatVector vec1;
-        private IntFloatVector vec2;
-        private LambdaBinOpFloat lambda;
-        
-        public SparseBinaryOpApplier2(IntFloatVector vec1, IntFloatVector vec2, LambdaBinOpFloat lambda) {
-            this.vec1 = vec1;
-            this.vec2 = vec2;
-            this.lambda = lambda;
-        }
-        
-        public float call(int idx, float val) {
-            return lambda.call(vec1.get(idx), vec2.get(idx));
-        }
-        
-    }
-
 }
@@ -4,14 +4,12 @@ import java.util.Arrays;
 
 import edu.jhu.prim.Primitives;
 import edu.jhu.prim.arrays.IntArrays;
-import edu.jhu.prim.util.Lambda;
 import edu.jhu.prim.util.Lambda.FnIntIntToInt;
 import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
 import edu.jhu.prim.util.SafeCast;
-import edu.jhu.prim.vector.IntIntHashVector.SparseBinaryOpApplier;
 
 //TODO: Implement Iterable<IntIntEntry>.
-public class IntIntDenseVector extends AbstractIntIntVector implements IntIntVector {
+public class IntIntDenseVector extends AbstractIntIntVector implements IntIntVector, IntIntRangeIterable {
 
     private static final long serialVersionUID = 1L;
 
@@ -112,17 +110,7 @@ public class IntIntDenseVector extends AbstractIntIntVector implements IntIntVec
 
     @Override
     public int dot(IntIntVector y) {
-        if (y instanceof IntIntDenseVector){
-            IntIntDenseVector other = (IntIntDenseVector) y;
-            int max = Math.min(idxAfterLast, other.idxAfterLast);
-            int dot = 0;
-            for (int i=0; i<max; i++) {
-                dot += elements[i] * y.get(i);
-            }
-            return dot;
-        } else {
-            return y.dot(this);
-        }
+        return IntIntVectorKernels.dot(this, y);
     }
 
     @Override
@@ -139,38 +127,38 @@ public class IntIntDenseVector extends AbstractIntIntVector implements IntIntVec
         }
     }
 
+    @Override
+    public int getNumPositions() {
+        return idxAfterLast;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnIntIntToVoid function) {
+        for (int i=start; i<end; i++) {
+            function.call(i, elements[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnIntIntToInt function) {
+        for (int i=start; i<end; i++) {
+            elements[i] = function.call(i, elements[i]);
+        }
+    }
+
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(IntIntVector other) {
-        if (other instanceof IntIntUnsortedVector) {
-            IntIntUnsortedVector vec = (IntIntUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], vec.vals[i]);
-            }
-        } else {
-            //  TODO: Add special case for IntIntDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.IntAdd()));
-        }
+        IntIntVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(IntIntVector other) {
-        if (other instanceof IntIntUnsortedVector) {
-            IntIntUnsortedVector vec = (IntIntUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], -vec.vals[i]);
-            }
-        } else {
-            // TODO: Add special case for IntIntDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.IntSubtract()));
-        }
+        IntIntVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(IntIntVector other) {
-        // TODO: Add special case for IntIntDenseVector.
-        for (int i=0; i<idxAfterLast; i++) {
-            elements[i] *= other.get(i);
-        }
+        IntIntVectorKernels.product(this, other);
     }
     
     /**
@@ -244,6 +232,12 @@ public class IntIntDenseVector extends AbstractIntIntVector implements IntIntVec
         }
     }
 
+    /** Grows this vector, if needed, so that it has at least the given number of explicit entries. */
+    void growTo(int size) {
+        idxAfterLast = Math.max(idxAfterLast, size);
+        ensureCapacity(idxAfterLast);
+    }
+
     /**
      * Ensure that the internal array has space to contain the specified number of elements.
      * @param size The number of elements. 
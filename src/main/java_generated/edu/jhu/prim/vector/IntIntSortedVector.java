@@ -3,11 +3,10 @@ package edu.jhu.prim.vector;
 import edu.jhu.prim.Primitives;
 import edu.jhu.prim.arrays.IntArrays;
 import edu.jhu.prim.arrays.IntArrays;
-import edu.jhu.prim.list.IntArrayList;
-import edu.jhu.prim.list.IntArrayList;
+import edu.jhu.prim.arrays.IntSortedArrays;
 import edu.jhu.prim.map.IntIntEntry;
 import edu.jhu.prim.map.IntIntSortedMap;
-import edu.jhu.prim.util.Lambda;
+import edu.jhu.prim.sort.IntIntSort;
 import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
 import edu.jhu.prim.util.Lambda.LambdaBinOpInt;
 import edu.jhu.prim.util.SafeCast;
@@ -22,6 +21,13 @@ public class IntIntSortedVector extends IntIntSortedMap implements IntIntVector
     
     private static final long serialVersionUID = 1L;
     private static final int ZERO = (int) 0;
+    /**
+     * The size ratio above which dot products gallop through the bigger vector
+     * instead of merging. This is higher than IntSortedArrays.GALLOP_RATIO
+     * since for model-sized vectors each galloping search mostly pays in cache
+     * misses, and the linear merge only wins up to a ratio of about 100.
+     */
+    public static final int DOT_GALLOP_RATIO = 64;
     
     boolean norm2Cached = false;
     int norm2Value;
@@ -76,10 +82,9 @@ public class IntIntSortedVector extends IntIntSortedMap implements IntIntVector
         return new IntIntSortedVector(this);
     }
     
-    // TODO: This could be done with a single binary search instead of two.
     public void add(int idx, int val) {
-    	int curVal = getWithDefault(idx, ZERO);
-    	put(idx, curVal + val);
+        // A single binary search, which inserts val if the entry is missing.
+        super.add(idx, val);
     }
     
     public int set(int idx, int val) {
@@ -121,33 +126,78 @@ public class IntIntSortedVector extends IntIntSortedMap implements IntIntVector
         return ret;
     }
     
-    /** Computes the dot product of this vector with the other vector. */   
+    /**
+     * Computes the dot product of this vector with the other vector. For
+     * sparse vectors, this walks the smaller of the two and finds its entries
+     * in the bigger one by a linear merge, galloping search, or hash lookup,
+     * depending on their types and relative sizes.
+     */
     public int dot(IntIntVector y) {
         if (y instanceof IntIntSortedVector) {
             IntIntSortedVector other = ((IntIntSortedVector) y);
-            int dot = 0;
-            int oc = 0;
-            for (int c = 0; c < used; c++) {
-                while (oc < other.used) {
-                    if (other.indices[oc] < indices[c]) {
-                        oc++;
-                    } else if (indices[c] == other.indices[oc]) {
-                        dot += values[c] * other.values[oc];
-                        break;
-                    } else {
-                        break;
-                    }
+            return dotSorted(indices, values, used, other.indices, other.values, other.used);
+        } else if (y instanceof IntIntUnsortedVector) {
+            IntIntUnsortedVector other = ((IntIntUnsortedVector) y);
+            other.compact();
+            return dotSorted(indices, values, used, other.idx, other.vals, other.top);
+        } else if (y instanceof IntIntHashVector) {
+            IntIntHashVector other = ((IntIntHashVector) y);
+            if (other.size() < used) {
+                // Binary search this vector for each entry of the other.
+                return other.dotWithoutCaveats(this);
+            }
+        }
+        int dot = 0;
+        for (int c = 0; c < used; c++) {
+            dot += this.values[c] * y.get(indices[c]);
+        }
+        return dot;
+    }
+
+    /**
+     * Computes the dot product of two sparse vectors, each given by its
+     * sorted indices and the corresponding values. The entries of the smaller
+     * vector are found in the bigger one by a linear merge when the two are of
+     * similar size, and by galloping search when the bigger one has more than
+     * DOT_GALLOP_RATIO times as many entries.
+     */
+    static int dotSorted(int[] aIdx, int[] aVals, int aUsed, int[] bIdx, int[] bVals, int bUsed) {
+        if (aUsed > bUsed) {
+            return dotSorted(bIdx, bVals, bUsed, aIdx, aVals, aUsed);
+        }
+        int dot = 0;
+        if (bUsed / DOT_GALLOP_RATIO > aUsed) {
+            int j = 0;
+            for (int i = 0; i < aUsed; i++) {
+                j = IntSortedArrays.gallop(bIdx, j, bUsed, aIdx[i]);
+                if (j == bUsed) {
+                    break;
+                }
+                if (bIdx[j] == aIdx[i]) {
+                    dot += aVals[i] * bVals[j];
+                    j++;
                 }
             }
-            return dot;
         } else {
-            int dot = 0;
-            for (int c = 0; c < used; c++) {
-                dot += this.values[c] * y.get(indices[c]);
+            // Scanning the bigger vector in an inner loop keeps the branches
+            // predictable, unlike a symmetric three-way merge.
+            int j = 0;
+            for (int i = 0; i < aUsed; i++) {
+                int index = aIdx[i];
+                while (j < bUsed && bIdx[j] < index) {
+                    j++;
+                }
+                if (j == bUsed) {
+                    break;
+                }
+                if (bIdx[j] == index) {
+                    dot += aVals[i] * bVals[j];
+                    j++;
+                }
             }
-            return dot;
         }
-    }    
+        return dot;
+    }
 
     /**
      * @return A new vector without zeros OR the same vector if it has none.
@@ -210,17 +260,17 @@ public class IntIntSortedVector extends IntIntSortedMap implements IntIntVector
 
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(IntIntVector other) {
-        apply(other, new Lambda.IntAdd(), false);
+        IntIntVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(IntIntVector other) {
-        apply(other, new Lambda.IntSubtract(), false);
+        IntIntVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(IntIntVector other) {
-        apply(other, new Lambda.IntProd(), true);
+        IntIntVectorKernels.product(this, other);
     }
     
     /** Gets the entrywise sum of the two vectors. */
@@ -258,84 +308,349 @@ public class IntIntSortedVector extends IntIntSortedMap implements IntIntVector
      *            is useful for operations such as entrywise product.
      */
     public void apply(IntIntVector other, LambdaBinOpInt lambda, boolean skipZeros) {
-        if (other instanceof IntIntSortedVector) {
-            applyToSorted((IntIntSortedVector)other, lambda, false);
-        } else if (other instanceof IntIntHashVector) {
-            other = new IntIntSortedVector((IntIntHashVector) other);
-            applyToSorted((IntIntSortedVector) other, lambda, false);
-        } else if (other instanceof IntIntDenseVector) {
-            other = new IntIntSortedVector((IntIntDenseVector) other);
-            applyToSorted((IntIntSortedVector) other, lambda, false);
-        } else {
-            // TODO: we could just add a generic constructor. 
+        switch (IntIntVectorKernels.kindOf(other)) {
+        case IntIntVectorKernels.DENSE:
+        case IntIntVectorKernels.SLICE:
+            applyMerge(null, IntIntVectorKernels.elementsOf(other), IntIntVectorKernels.startOf(other),
+                    IntIntVectorKernels.sizeOf(other), lambda, skipZeros);
+            break;
+        case IntIntVectorKernels.SORTED: {
+            IntIntSortedVector s = (IntIntSortedVector) other;
+            applyMerge(s.indices, s.values, 0, s.used, lambda, skipZeros);
+            break;
+        }
+        case IntIntVectorKernels.UNSORTED: {
+            IntIntUnsortedVector u = (IntIntUnsortedVector) other;
+            u.compact();
+            applyMerge(u.idx, u.vals, 0, u.top, lambda, skipZeros);
+            break;
+        }
+        case IntIntVectorKernels.HASH:
+            applyHash((IntIntHashVector) other, lambda, skipZeros);
+            break;
+        default:
             throw new IllegalStateException("Unhandled vector type: " + other.getClass());
         }
     }
     
-    private void applyToSorted(final IntIntSortedVector other, final LambdaBinOpInt lambda, final boolean skipZeros) {
-        // It appears to be faster to just make a good (quick guess) for the
-        // final length of the new array, rather than to make an educated
-        // guess by counting.
-        int numNewIndices = Math.max(this.used, other.used);
-        IntArrayList newIndices = new IntArrayList(numNewIndices);
-        IntArrayList newValues = new IntArrayList(numNewIndices);
-        int i=0; 
-        int j=0;
-        while(i < this.used && j < other.used) {
-            int e1 = this.indices[i];
-            int v1 = this.values[i];
-            int e2 = other.indices[j];
-            int v2 = other.values[j];
-            
-            int diff = e1 - e2;
-            if (diff == 0) {
-                // Elements are equal. Add both of them.
-                newIndices.add(e1);
-                newValues.add(lambda.call(v1, v2));
+    /**
+     * Updates this vector to be this + a * x, where the entries of x are
+     * given by sorted indices, or by position (0, 1, ...) if the indices are
+     * null. The result has an explicit entry for each index which is explicit
+     * in either.
+     * 
+     * The entries of this vector which are also in x are updated in place. If
+     * x has no other entries, which is the common case for an accumulator
+     * whose support has stopped growing, nothing is allocated. Otherwise, the
+     * new entries are merged in from the tail when the arrays have room for
+     * them, and the arrays are grown once with some slack when they do not.
+     * 
+     * @param a The multiplier.
+     * @param xIdx The sorted indices of x, or null if x is dense.
+     * @param xVals The values of x.
+     * @param xStart The position in xIdx and xVals of the first entry of x.
+     * @param xUsed The number of entries in x.
+     */
+    void axpyMerge(int a, int[] xIdx, int[] xVals, int xStart, int xUsed) {
+        // As for dot products, galloping only pays off for very small x.
+        boolean gallop = this.used / DOT_GALLOP_RATIO > xUsed;
+        // Update the entries in both, up to the first entry which is only in x.
+        int i = 0;
+        int j = 0;
+        for (; j < xUsed; j++) {
+            int e2 = (xIdx == null) ? j : xIdx[xStart + j];
+            i = seek(i, e2, gallop);
+            if (i < this.used && this.indices[i] == e2) {
+                this.values[i] += a * xVals[xStart + j];
                 i++;
-                j++;
-            } else if (diff < 0) {
-                if (!skipZeros) {
-                    // e1 is less than e2, so only add e1 this round.
-                    newIndices.add(e1);
-                    newValues.add(lambda.call(v1, ZERO));
+            } else {
+                break;
+            }
+        }
+        if (j == xUsed) {
+            return;
+        }
+        
+        int maxUsed = this.used + (xUsed - j);
+        if (maxUsed > this.indices.length || maxUsed > this.values.length) {
+            // Merge forward into bigger arrays, in a single pass.
+            int capacity = Math.max(maxUsed, this.used + this.used / 2);
+            int[] newIndices = new int[capacity];
+            int[] newValues = new int[capacity];
+            System.arraycopy(this.indices, 0, newIndices, 0, i);
+            System.arraycopy(this.values, 0, newValues, 0, i);
+            int k = i;
+            while (i < this.used && j < xUsed) {
+                int e1 = this.indices[i];
+                int e2 = (xIdx == null) ? j : xIdx[xStart + j];
+                if (e1 == e2) {
+                    newIndices[k] = e1;
+                    newValues[k] = this.values[i] + a * xVals[xStart + j];
+                    i++;
+                    j++;
+                } else if (e1 < e2) {
+                    newIndices[k] = e1;
+                    newValues[k] = this.values[i];
+                    i++;
+                } else {
+                    newIndices[k] = e2;
+                    newValues[k] = a * xVals[xStart + j];
+                    j++;
                 }
+                k++;
+            }
+            System.arraycopy(this.indices, i, newIndices, k, this.used - i);
+            System.arraycopy(this.values, i, newValues, k, this.used - i);
+            k += this.used - i;
+            for (; j < xUsed; j++, k++) {
+                newIndices[k] = (xIdx == null) ? j : xIdx[xStart + j];
+                newValues[k] = a * xVals[xStart + j];
+            }
+            this.used = k;
+            this.indices = newIndices;
+            this.values = newValues;
+            return;
+        }
+        
+        // Count the remaining new entries, updating those in both as above.
+        int numNew = 0;
+        int jNew = j;
+        for (; j < xUsed; j++) {
+            int e2 = (xIdx == null) ? j : xIdx[xStart + j];
+            i = seek(i, e2, gallop);
+            if (i < this.used && this.indices[i] == e2) {
+                this.values[i] += a * xVals[xStart + j];
                 i++;
             } else {
-                if (!skipZeros) {
-                    // e2 is less than e1, so only add e2 this round.
-                    newIndices.add(e2);
-                    newValues.add(lambda.call(ZERO, v2));
+                numNew++;
+            }
+        }
+        // Merge from the tail, down to the first new entry. The entries in
+        // both have already been updated.
+        int newUsed = this.used + numNew;
+        i = this.used - 1;
+        int k = newUsed - 1;
+        for (j = xUsed - 1; j >= jNew; j--, k--) {
+            int e2 = (xIdx == null) ? j : xIdx[xStart + j];
+            while (i >= 0 && this.indices[i] > e2) {
+                this.indices[k] = this.indices[i];
+                this.values[k] = this.values[i];
+                i--;
+                k--;
+            }
+            if (i >= 0 && this.indices[i] == e2) {
+                this.values[k] = this.values[i];
+                i--;
+            } else {
+                this.values[k] = a * xVals[xStart + j];
+            }
+            this.indices[k] = e2;
+        }
+        this.used = newUsed;
+    }
+
+    /**
+     * Updates this vector to be this + a * x. Each entry of this vector is
+     * looked up in x and updated in place, for as int as x may be a subset
+     * of this vector. If it is, which is the common case for an accumulator
+     * whose support has stopped growing, nothing is allocated. Otherwise, the
+     * entries of x are sorted and the rest of them are merged in.
+     */
+    void axpyHash(int a, IntIntHashVector x) {
+        int[] hVals = x.getInternalValues();
+        int matched = 0;
+        int missing = this.used - x.size();
+        int i = 0;
+        for (; i < this.used && missing >= 0; i++) {
+            int s = x.getSlot(this.indices[i]);
+            if (s >= 0) {
+                this.values[i] += a * hVals[s];
+                matched++;
+            } else {
+                missing--;
+            }
+        }
+        if (matched == x.size()) {
+            return;
+        }
+        int[] xIdx = new int[x.size()];
+        int[] xVals = new int[x.size()];
+        int xUsed = copyEntries(x, xIdx, xVals);
+        IntIntSort.sortIndexAsc(xIdx, xVals, xUsed);
+        int n = xUsed;
+        if (matched > 0) {
+            // Drop the entries which were added to the first i entries above.
+            n = 0;
+            int k = 0;
+            for (int j = 0; j < xUsed; j++) {
+                while (k < i && this.indices[k] < xIdx[j]) {
+                    k++;
                 }
-                j++;
+                if (k < i && this.indices[k] == xIdx[j]) {
+                    continue;
+                }
+                xIdx[n] = xIdx[j];
+                xVals[n] = xVals[j];
+                n++;
             }
         }
+        axpyMerge(a, xIdx, xVals, 0, n);
+    }
 
-        assert (!(i < this.used && j < other.used));
+    /**
+     * Copies the entries of the hash vector to the arrays, in slot order.
+     * @return The number of entries copied.
+     */
+    static int copyEntries(IntIntHashVector x, int[] idx, int[] vals) {
+        byte[] states = x.getInternalStates();
+        int[] keys = x.getInternalKeys();
+        int[] xVals = x.getInternalValues();
+        int n = 0;
+        for (int s = 0; s < states.length; s++) {
+            if (IntIntHashVector.isFull(states[s])) {
+                idx[n] = keys[s];
+                vals[n] = xVals[s];
+                n++;
+            }
+        }
+        return n;
+    }
 
-        if (!skipZeros) {
-            // If there is a list that we didn't get all the way through, add all
-            // the remaining elements. There will never be more than one such list. 
-            for (; i < this.used; i++) {
+    /**
+     * Gets the position of the first index in this vector, at or after
+     * position i, which is greater than or equal to the key.
+     */
+    private int seek(int i, int key, boolean gallop) {
+        if (gallop) {
+            return IntSortedArrays.gallop(this.indices, i, this.used, key);
+        }
+        while (i < this.used && this.indices[i] < key) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Applies the function to the entries of this vector and of an other,
+     * whose entries are given by sorted indices, or by position (0, 1, ...)
+     * if the indices are null.
+     */
+    private void applyMerge(int[] oIdx, int[] oVals, int oStart, int oUsed, LambdaBinOpInt lambda, boolean skipZeros) {
+        if (skipZeros) {
+            // Keep only the entries which are explicit in both, compacting in place.
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < this.used && j < oUsed) {
                 int e1 = this.indices[i];
-                int v1 = this.values[i];
-                newIndices.add(e1);
-                newValues.add(lambda.call(v1, ZERO));
+                int e2 = (oIdx == null) ? j : oIdx[oStart + j];
+                if (e1 == e2) {
+                    this.indices[k] = e1;
+                    this.values[k] = lambda.call(this.values[i], oVals[oStart + j]);
+                    k++;
+                    i++;
+                    j++;
+                } else if (e1 < e2) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            this.used = k;
+            return;
+        }
+        
+        // Count the entries of the other vector which are not in this one.
+        int numNew = 0;
+        int i = 0;
+        for (int j = 0; j < oUsed; j++) {
+            int e2 = (oIdx == null) ? j : oIdx[oStart + j];
+            while (i < this.used && this.indices[i] < e2) {
+                i++;
             }
-            for (; j < other.used; j++) {
-                int e2 = other.indices[j];
-                int v2 = other.values[j];
-                newIndices.add(e2);
-                newValues.add(lambda.call(ZERO, v2));
+            if (i < this.used && this.indices[i] == e2) {
+                i++;
+            } else {
+                numNew++;
             }
         }
+        int newUsed = this.used + numNew;
+        if (newUsed > this.indices.length || newUsed > this.values.length) {
+            int capacity = Math.max(newUsed, this.used + this.used / 2);
+            this.indices = IntArrays.copyOf(this.indices, capacity);
+            this.values = IntArrays.copyOf(this.values, capacity);
+        }
         
-        this.used = newIndices.size();
-        this.indices = newIndices.getInternalElements();
-        this.values = newValues.getInternalElements();
-        if (indices.length != values.length) {
-            throw new IllegalStateException("The primitive ArrayLists grew at different lengths. This should never occur.");
+        // Merge from the tail, so that no entry is overwritten before it is read.
+        i = this.used - 1;
+        int j = oUsed - 1;
+        for (int k = newUsed - 1; k >= 0; k--) {
+            int e2 = (j < 0) ? -1 : (oIdx == null) ? j : oIdx[oStart + j];
+            if (j < 0 || (i >= 0 && this.indices[i] > e2)) {
+                this.indices[k] = this.indices[i];
+                this.values[k] = lambda.call(this.values[i], ZERO);
+                i--;
+            } else if (i < 0 || this.indices[i] < e2) {
+                this.indices[k] = e2;
+                this.values[k] = lambda.call(ZERO, oVals[oStart + j]);
+                j--;
+            } else {
+                this.indices[k] = this.indices[i];
+                this.values[k] = lambda.call(this.values[i], oVals[oStart + j]);
+                i--;
+                j--;
+            }
+        }
+        this.used = newUsed;
+    }
+    
+    /**
+     * Applies the function to the entries of this vector and a hash vector.
+     * If skipping zeros, or if the hash vector is a subset of this vector,
+     * each entry of this vector is looked up in the hash vector, without
+     * allocating. Otherwise, the entries of the hash vector are sorted and
+     * merged in.
+     */
+    private void applyHash(IntIntHashVector other, LambdaBinOpInt lambda, boolean skipZeros) {
+        int[] oVals = other.getInternalValues();
+        if (skipZeros) {
+            // Keep only the entries which are explicit in both, compacting in place.
+            int k = 0;
+            for (int i = 0; i < this.used; i++) {
+                int s = other.getSlot(this.indices[i]);
+                if (s >= 0) {
+                    this.indices[k] = this.indices[i];
+                    this.values[k] = lambda.call(this.values[i], oVals[s]);
+                    k++;
+                }
+            }
+            this.used = k;
+        } else if (isSuperset(other)) {
+            for (int i = 0; i < this.used; i++) {
+                int s = other.getSlot(this.indices[i]);
+                this.values[i] = lambda.call(this.values[i], (s >= 0) ? oVals[s] : ZERO);
+            }
+        } else {
+            int[] oIdx = new int[other.size()];
+            int[] oSorted = new int[other.size()];
+            int oUsed = copyEntries(other, oIdx, oSorted);
+            IntIntSort.sortIndexAsc(oIdx, oSorted, oUsed);
+            applyMerge(oIdx, oSorted, 0, oUsed, lambda, false);
+        }
+    }
+
+    /**
+     * Returns whether every entry of the hash vector is also in this vector,
+     * stopping as soon as enough entries of this vector are missing from it.
+     */
+    private boolean isSuperset(IntIntHashVector other) {
+        int missing = this.used - other.size();
+        for (int i = 0; i < this.used && missing >= 0; i++) {
+            if (other.getSlot(this.indices[i]) < 0) {
+                missing--;
+            }
         }
+        return missing >= 0;
     }
     
     @Override
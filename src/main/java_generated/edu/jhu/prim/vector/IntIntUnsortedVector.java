@@ -1,9 +1,12 @@
 package edu.jhu.prim.vector;
 
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import edu.jhu.prim.iter.IntIter;
+import edu.jhu.prim.map.IntIntCursor;
 import edu.jhu.prim.map.IntIntEntry;
 import edu.jhu.prim.sort.IntIntSort;
 import edu.jhu.prim.util.Lambda.FnIntIntToInt;
@@ -16,17 +19,22 @@ import edu.jhu.prim.util.math.FastMath;
  * 
  * @author Travis Wolfe <twolfe18@gmail.com>
  */
-public class IntIntUnsortedVector extends AbstractIntIntVector implements IntIntVector, Iterable<IntIntEntry> {
+public class IntIntUnsortedVector extends AbstractIntIntVector implements IntIntVector, Iterable<IntIntEntry>,
+        IntIntRangeIterable {
 
     private static final long serialVersionUID = 1L;
 
     public static final int defaultSparseInitCapacity = 16;
     
+    /** The most entries past the sorted prefix which get() scans instead of compacting. */
+    private static final int MAX_GET_SCAN = 16;
+    
     public boolean printWarnings = true;
     
     protected int[] idx;
     protected int[] vals;
     protected int top;          	// indices less than this are valid
+    protected int sortedTop;        // indices less than this are sorted and unique
     protected boolean compacted;    // are elements of idx sorted and unique?
 
     public IntIntUnsortedVector() {
@@ -37,6 +45,7 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
         idx = new int[initCapacity];
         vals = new int[initCapacity];
         top = 0;
+        sortedTop = 0;
         compacted = true;
     }
 
@@ -48,6 +57,7 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
             this.vals[i] = other.vals[i];
         }
         this.top = other.top;
+        this.sortedTop = other.sortedTop;
         this.compacted = other.compacted;
     }
     
@@ -57,6 +67,7 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
         this.idx = idx;
         this.vals = values;
         this.top = idx.length;
+        this.sortedTop = 0;
         this.compacted = false;
     }
 
@@ -70,6 +81,7 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
         v.idx = Arrays.copyOf(idx, idx.length);
         v.vals = Arrays.copyOf(vals, vals.length);
         v.top = top;
+        v.sortedTop = sortedTop;
         v.compacted = compacted;
         return v;
     }
@@ -81,6 +93,16 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
 
     @Override
     public int get(int index) {
+        if(top - sortedTop <= MAX_GET_SCAN) {
+            // search the sorted prefix and scan the few entries after it, rather than compacting
+            int i = Arrays.binarySearch(idx, 0, sortedTop, index);
+            int val = i >= 0 ? vals[i] : 0;
+            for(int k=sortedTop; k<top; k++) {
+                if(idx[k] == index)
+                    val += vals[k];
+            }
+            return val;
+        }
         // if we need to do an O(#non-zero) operation here anyway, might as well compact
         compact();
         int i = findIndexMatching(index);
@@ -118,6 +140,15 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
      * sort indices and consolidate duplicate entries (only for sparse vectors)
      * @param freeExtraMem will allocate new arrays as small as possible to store indices/values
      * 
+     * only the entries added since the last compaction are sorted. they are then merged into the
+     * sorted prefix in a single pass, which moves only the part of the prefix at or after the
+     * smallest new index.
+     * 
+     * as before compaction was incremental, when it re-added every entry with add(), a merged
+     * entry whose sum is zero is dropped. this includes a lone zero passed to the constructor,
+     * since add() never stores a zero. unlike before, a zero written by set() into the sorted
+     * prefix is kept until its index is added to again, since the untouched prefix is not scanned.
+     * 
      * this method is protected, not private, so that sub-classes that want to observe inefficient
      * operations can override, observe, and forward back this method.
      */
@@ -125,14 +156,53 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
 
         if(compacted) return;
         
-        // sort items by index (not including junk >=top)
-        IntIntSort.sortIndexAsc(idx, vals, top);
+        // sort the tail (items from sortedTop to top), and sum its duplicate entries
+        int[] tailIdx = Arrays.copyOfRange(idx, sortedTop, top);
+        int[] tailVals = Arrays.copyOfRange(vals, sortedTop, top);
+        IntIntSort.sortIndexAsc(tailIdx, tailVals);
+        int n = 0;
+        for(int t=0; t<tailIdx.length; t++) {
+            if(n > 0 && tailIdx[n-1] == tailIdx[t]) {
+                tailVals[n-1] += tailVals[t];
+            } else {
+                tailIdx[n] = tailIdx[t];
+                tailVals[n] = tailVals[t];
+                n++;
+            }
+        }
 
-        // let add() remove duplicate entries
-        int oldTop = top;
-        top = 0;
-        for(int i=0; i<oldTop; i++)
-            add(idx[i], vals[i]);
+        // merge the tail into the prefix from the back, dropping entries that sum to zero.
+        // the write position k never passes the read position i, since k - i >= the
+        // number of tail entries left.
+        int i = sortedTop - 1;
+        int k = top - 1;
+        for(int j=n-1; j>=0; j--) {
+            int index = tailIdx[j];
+            while(i >= 0 && idx[i] > index) {
+                idx[k] = idx[i];
+                vals[k] = vals[i];
+                i--;
+                k--;
+            }
+            int value = tailVals[j];
+            if(i >= 0 && idx[i] == index) {
+                value += vals[i];
+                i--;
+            }
+            if(value != 0) {
+                idx[k] = index;
+                vals[k] = value;
+                k--;
+            }
+        }
+        // idx[0..i] did not move, so close the gap between them and the merged entries
+        int gap = k - i;
+        if(gap > 0) {
+            System.arraycopy(idx, k+1, idx, i+1, top-k-1);
+            System.arraycopy(vals, k+1, vals, i+1, top-k-1);
+            top -= gap;
+        }
+        sortedTop = top;
 
         if(freeExtraMem) {
             idx = Arrays.copyOf(idx, top);
@@ -161,6 +231,7 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
      */
     public void clear() {
         top = 0;
+        sortedTop = 0;
         compacted = true;
     }
 
@@ -172,7 +243,6 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
         int i = findIndexMatching(index);
         if(i < 0) {
             add(index, value);
-            compacted = false;
             return 0;
         } else {
             int old = vals[i];
@@ -187,8 +257,10 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
         if(index == prevIdx) {
             //System.out.printf("[add] prevIndex=%d top=%d prevVal=%.2f index=%d value=%.2f\n", prevIdx, top, vals[top-1], index, value);
             vals[top-1] += value;
-            if(vals[top-1] == 0)
+            if(vals[top-1] == 0) {
                 top--;
+                sortedTop = Math.min(sortedTop, top);
+            }
         }
         else {
             //System.out.printf("[add] top=%d index=%d value=%.2f\n" , top, index, value);
@@ -197,6 +269,7 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
             vals[top] = value;
             top++;
             compacted &= (index > prevIdx);
+            if(compacted) sortedTop = top;
         }
     }
 
@@ -206,6 +279,31 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
         vals = Arrays.copyOf(vals, newSize);
     }
 
+    /**
+     * Ensures that idx and vals can hold the given number of entries, for the
+     * kernels which append to them directly.
+     */
+    void ensureCapacity(int capacity) {
+        if(capacity > capacity()) {
+            int newSize = Math.max(capacity, (int)(capacity() * 1.3d + 8d));
+            idx = Arrays.copyOf(idx, newSize);
+            vals = Arrays.copyOf(vals, newSize);
+        }
+    }
+
+    /**
+     * Takes in the entries which a kernel wrote directly to idx and vals at
+     * the positions from top up to newTop, none of which may be zero.
+     * @param sorted whether the new indices are strictly increasing
+     */
+    void appended(int newTop, boolean sorted) {
+        if(newTop > top) {
+            compacted &= sorted && (top == 0 || idx[top-1] < idx[top]);
+            top = newTop;
+            if(compacted) sortedTop = top;
+        }
+    }
+
     /*  */
 
     public void scale(int factor) {
@@ -216,13 +314,7 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
     
     @Override
     public void add(IntIntVector other) {
-        final IntIntUnsortedVector me = this;
-        other.iterate(new FnIntIntToVoid() {
-            @Override
-            public void call(int idx, int val) {
-                me.add(idx, val);
-            }
-        });
+        IntIntVectorKernels.add(this, other);
     }
 
     @Override
@@ -240,6 +332,27 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
             function.call(idx[i], vals[i]);
         }
     }
+
+    /** Compacts the vector and gets the number of entries. */
+    @Override
+    public int getNumPositions() {
+        compact();
+        return top;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnIntIntToVoid function) {
+        for(int i=start; i<end; i++) {
+            function.call(idx[i], vals[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnIntIntToInt function) {
+        for(int i=start; i<end; i++) {
+            vals[i] = function.call(idx[i], vals[i]);
+        }
+    }
     
     /*
      * (non-Javadoc)
@@ -268,20 +381,75 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
         return new IntIntIterator();
     }
 
+    /**
+     * Gets a cursor over the entries in order of their indices, which
+     * allocates nothing per entry. The vector is compacted first. The cursor
+     * is fail-fast: it throws a <code>ConcurrentModificationException</code>
+     * if it detects that an entry was added.
+     */
+    public IntIntCursor cursor() {
+        compact();
+        return new IntIntVectorCursor();
+    }
+
+    /** Cursor over the entries of the vector. */
+    private class IntIntVectorCursor implements IntIntCursor {
+
+        // Any addition changes top or reallocates idx.
+        private final int[] expectedIdx = idx;
+        private final int expectedTop = top;
+        private int i = -1;
+
+        @Override
+        public boolean advance() {
+            checkForComodification();
+            if (i < top) {
+                i++;
+            }
+            return i < top;
+        }
+
+        @Override
+        public int key() {
+            checkCurrent();
+            return idx[i];
+        }
+
+        @Override
+        public int value() {
+            checkCurrent();
+            return vals[i];
+        }
+
+        @Override
+        public void setValue(int value) {
+            checkCurrent();
+            vals[i] = value;
+        }
+
+        private void checkCurrent() {
+            checkForComodification();
+            if (i < 0 || i >= top) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        private void checkForComodification() {
+            if (idx != expectedIdx || top != expectedTop) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+    }
+
     @Override
     public void subtract(IntIntVector other) {
-        final IntIntUnsortedVector me = this;
-        other.iterate(new FnIntIntToVoid() {
-            @Override
-            public void call(int idx, int val) {
-                me.add(idx, - val);
-            }
-        });
+        IntIntVectorKernels.subtract(this, other);
     }
 
     @Override
     public void product(IntIntVector other) {
-        throw new RuntimeException("not supported");
+        IntIntVectorKernels.product(this, other);
     }
     
     @Override
@@ -296,26 +464,17 @@ public class IntIntUnsortedVector extends AbstractIntIntVector implements IntInt
     public int dot(IntIntVector other) {
         if(other instanceof IntIntUnsortedVector) {
             IntIntUnsortedVector oth = (IntIntUnsortedVector) other;
-            IntIntUnsortedVector smaller = this, bigger = oth;
-            if(this.top > oth.top) {
-                smaller = oth; bigger = this;
-            }
-            smaller.compact();
-            bigger.compact();
-            int dot = 0;
-            int j = 0;
-            int attempt = bigger.idx[j];
-            for(int i=0; i<smaller.top; i++) {
-                int needle = smaller.idx[i];
-                while(attempt < needle && j < bigger.top-1)
-                    attempt = bigger.idx[++j];
-                if(attempt == needle)
-                    dot += smaller.vals[i] * bigger.vals[j];
-                if(j == bigger.top)
-                    break;
-            }
-            return dot;
+            this.compact();
+            oth.compact();
+            return IntIntSortedVector.dotSorted(idx, vals, top, oth.idx, oth.vals, oth.top);
+        } else if(other instanceof IntIntSortedVector) {
+            return other.dot(this);
         } else {
+            if(other instanceof IntIntHashVector && ((IntIntHashVector) other).size() < top) {
+                // binary search this vector for each entry of the smaller hash vector
+                compact();
+                return ((IntIntHashVector) other).dotWithoutCaveats(this);
+            }
             int dot = 0;
             for(int i=0; i<top; i++) {
                 dot += vals[i] * other.get(idx[i]);
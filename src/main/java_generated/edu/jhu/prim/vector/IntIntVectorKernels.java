@@ -0,0 +1,629 @@
+package edu.jhu.prim.vector;
+
+import edu.jhu.prim.arrays.IntSortedArrays;
+import edu.jhu.prim.map.IntIntCursor;
+import edu.jhu.prim.sort.IntIntSort;
+import edu.jhu.prim.util.Lambda.FnIntIntToInt;
+import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
+import edu.jhu.prim.util.SafeCast;
+
+/**
+ * Binary operations between vectors, with direct kernels for the pairs of
+ * representations (dense, slice, sorted, unsorted and hash) where they pay
+ * off. Each operation dispatches on the representation of the vector it
+ * modifies and then on that of the other vector, reading and writing the
+ * backing arrays instead of calling get/set/add once per entry through a
+ * callback. A hash vector is updated one entry at a time, since it must look
+ * up each entry anyway. Vectors of any other type are handled through the
+ * IntIntVector interface.
+ *
+ * The vector classes implement add, subtract, product and dot with these
+ * kernels.
+ *
+ * @author mgormley
+ */
+public class IntIntVectorKernels {
+
+    private static final int ZERO = (int) 0;
+    private static final int ONE = (int) 1;
+
+    // The representations, in the order of the dispatch table.
+    static final int DENSE = 0;
+    static final int SLICE = 1;
+    static final int SORTED = 2;
+    static final int UNSORTED = 3;
+    static final int HASH = 4;
+    static final int OTHER = 5;
+
+    /**
+     * The ratio of the length of a dense range to the size of a hash vector
+     * above which it is cheaper to sort the entries of the hash vector, than
+     * to look up each index of the range in it.
+     */
+    private static final int HASH_SORT_RATIO = 2;
+
+    private IntIntVectorKernels() {
+        // private constructor
+    }
+
+    /** Gets the representation of the vector. */
+    static int kindOf(IntIntVector v) {
+        if (v instanceof IntIntDenseVector) {
+            return DENSE;
+        } else if (v instanceof IntIntVectorSlice) {
+            return SLICE;
+        } else if (v instanceof IntIntSortedVector) {
+            return SORTED;
+        } else if (v instanceof IntIntUnsortedVector) {
+            return UNSORTED;
+        } else if (v instanceof IntIntHashVector) {
+            return HASH;
+        } else {
+            return OTHER;
+        }
+    }
+
+    /** Updates the vector to be the entrywise sum of itself with the other. */
+    public static void add(IntIntVector vec, IntIntVector other) {
+        axpy(ONE, other, vec);
+    }
+
+    /** Updates the vector to be the entrywise difference of itself with the other. */
+    public static void subtract(IntIntVector vec, IntIntVector other) {
+        axpy(-ONE, other, vec);
+    }
+
+    /**
+     * Updates y to be a * x + y.
+     *
+     * @param a The multiplier.
+     * @param x The vector to scale and add. It is not modified, except that an
+     *            unsorted vector may be compacted.
+     * @param y The vector to update.
+     */
+    public static void axpy(int a, IntIntVector x, IntIntVector y) {
+        switch (kindOf(y)) {
+        case DENSE:
+            axpyToDense(a, x, (IntIntDenseVector) y);
+            break;
+        case SLICE:
+            axpyToSlice(a, x, (IntIntVectorSlice) y);
+            break;
+        case SORTED:
+            axpyToSorted(a, x, (IntIntSortedVector) y);
+            break;
+        case UNSORTED:
+            axpyToUnsorted(a, x, (IntIntUnsortedVector) y);
+            break;
+        default:
+            // A hash vector must look up each entry, so it gains nothing from
+            // a kernel per pair: it adds one entry at a time.
+            axpyByEntry(a, x, y);
+            break;
+        }
+    }
+
+    private static void axpyToDense(int a, IntIntVector x, IntIntDenseVector y) {
+        switch (kindOf(x)) {
+        case DENSE:
+        case SLICE: {
+            int[] xe = elementsOf(x);
+            int xStart = startOf(x);
+            int n = sizeOf(x);
+            y.growTo(n);
+            int[] ye = y.getInternalElements();
+            for (int i = 0; i < n; i++) {
+                ye[i] += a * xe[xStart + i];
+            }
+            break;
+        }
+        case SORTED: {
+            IntIntSortedVector s = (IntIntSortedVector) x;
+            int n = s.getUsed();
+            if (n > 0) {
+                scatter(a, s.getInternalIndices(), s.getInternalValues(), n, s.getInternalIndices()[n - 1], y);
+            }
+            break;
+        }
+        case UNSORTED: {
+            IntIntUnsortedVector u = (IntIntUnsortedVector) x;
+            // Duplicate entries simply add, so there is no need to compact.
+            if (u.top > 0) {
+                int max = u.idx[0];
+                for (int k = 1; k < u.top; k++) {
+                    max = Math.max(max, u.idx[k]);
+                }
+                scatter(a, u.idx, u.vals, u.top, max, y);
+            }
+            break;
+        }
+        case HASH:
+            scatterHash(a, (IntIntHashVector) x, y);
+            break;
+        default:
+            axpyByEntry(a, x, y);
+            break;
+        }
+    }
+
+    /**
+     * Adds a times the entries of the hash vector to the dense vector, in one
+     * pass over the slots. A first pass for the largest index would cost more
+     * than it saves, since the test of each slot's state mispredicts often,
+     * so the array grows as needed instead.
+     */
+    private static void scatterHash(int a, IntIntHashVector x, IntIntDenseVector y) {
+        if (x.size() == 0) {
+            return;
+        }
+        byte[] states = x.getInternalStates();
+        int[] keys = x.getInternalKeys();
+        int[] vals = x.getInternalValues();
+        int[] ye = y.getInternalElements();
+        int max = 0;
+        for (int i = 0; i < states.length; i++) {
+            if (IntIntHashVector.isFull(states[i])) {
+                int key = keys[i];
+                if (key >= ye.length) {
+                    y.growTo(key + 1);
+                    ye = y.getInternalElements();
+                }
+                ye[(int) key] += a * vals[i];
+                max = Math.max(max, key);
+            }
+        }
+        y.growTo((int) max + 1);
+    }
+
+    /** Adds a times the given entries to the dense vector, whose largest index is max. */
+    private static void scatter(int a, int[] xIdx, int[] xVals, int n, int max, IntIntDenseVector y) {
+        y.growTo(max + 1);
+        int[] ye = y.getInternalElements();
+        for (int k = 0; k < n; k++) {
+            ye[(int) xIdx[k]] += a * xVals[k];
+        }
+    }
+
+    private static void axpyToSlice(int a, IntIntVector x, IntIntVectorSlice y) {
+        int[] ye = y.getInternalElements();
+        int yStart = y.getStart();
+        switch (kindOf(x)) {
+        case DENSE:
+        case SLICE: {
+            int[] xe = elementsOf(x);
+            int xStart = startOf(x);
+            int n = sizeOf(x);
+            if (n > 0) {
+                y.checkIndex(n - 1);
+            }
+            for (int i = 0; i < n; i++) {
+                ye[yStart + i] += a * xe[xStart + i];
+            }
+            break;
+        }
+        case SORTED: {
+            IntIntSortedVector s = (IntIntSortedVector) x;
+            int[] xIdx = s.getInternalIndices();
+            int[] xVals = s.getInternalValues();
+            int n = s.getUsed();
+            if (n > 0) {
+                // The indices are sorted, so checking the ends checks them all.
+                y.checkIndex(xIdx[0]);
+                y.checkIndex(xIdx[n - 1]);
+            }
+            for (int k = 0; k < n; k++) {
+                ye[yStart + (int) xIdx[k]] += a * xVals[k];
+            }
+            break;
+        }
+        case UNSORTED: {
+            IntIntUnsortedVector u = (IntIntUnsortedVector) x;
+            int[] xIdx = u.idx;
+            int[] xVals = u.vals;
+            int n = u.top;
+            if (n > 0) {
+                // Check all the indices before writing, so that a bad index
+                // leaves the slice unchanged.
+                int min = xIdx[0];
+                int max = xIdx[0];
+                for (int k = 1; k < n; k++) {
+                    min = Math.min(min, xIdx[k]);
+                    max = Math.max(max, xIdx[k]);
+                }
+                y.checkIndex(min);
+                y.checkIndex(max);
+            }
+            for (int k = 0; k < n; k++) {
+                ye[yStart + (int) xIdx[k]] += a * xVals[k];
+            }
+            break;
+        }
+        default:
+            // For a hash vector, checking the indices first costs more than
+            // the direct kernel saves, so it adds one entry at a time.
+            axpyByEntry(a, x, y);
+            break;
+        }
+    }
+
+    private static void axpyToSorted(int a, IntIntVector x, IntIntSortedVector y) {
+        switch (kindOf(x)) {
+        case DENSE:
+        case SLICE:
+            y.axpyMerge(a, null, elementsOf(x), startOf(x), sizeOf(x));
+            break;
+        case SORTED: {
+            IntIntSortedVector s = (IntIntSortedVector) x;
+            y.axpyMerge(a, s.getInternalIndices(), s.getInternalValues(), 0, s.getUsed());
+            break;
+        }
+        case UNSORTED: {
+            IntIntUnsortedVector u = (IntIntUnsortedVector) x;
+            u.compact();
+            y.axpyMerge(a, u.idx, u.vals, 0, u.top);
+            break;
+        }
+        case HASH:
+            y.axpyHash(a, (IntIntHashVector) x);
+            break;
+        default:
+            axpyByEntry(a, x, y);
+            break;
+        }
+    }
+
+    /**
+     * Appends a times the entries of x to the unsorted vector, without
+     * compacting it. As in {@link IntIntUnsortedVector#add(int, int)},
+     * zeros are skipped. The skip is a conditional increment of the write
+     * position, rather than a branch.
+     */
+    private static void axpyToUnsorted(int a, IntIntVector x, IntIntUnsortedVector y) {
+        int k = y.top;
+        switch (kindOf(x)) {
+        case DENSE:
+        case SLICE: {
+            int[] xe = elementsOf(x);
+            int xStart = startOf(x);
+            int n = sizeOf(x);
+            y.ensureCapacity(k + n);
+            int[] yIdx = y.idx;
+            int[] yVals = y.vals;
+            for (int i = 0; i < n; i++) {
+                int v = a * xe[xStart + i];
+                yIdx[k] = i;
+                yVals[k] = v;
+                k += (v != ZERO) ? 1 : 0;
+            }
+            y.appended(k, true);
+            break;
+        }
+        case SORTED: {
+            IntIntSortedVector s = (IntIntSortedVector) x;
+            k = appendSparse(a, s.getInternalIndices(), s.getInternalValues(), s.getUsed(), y);
+            y.appended(k, true);
+            break;
+        }
+        case UNSORTED: {
+            IntIntUnsortedVector u = (IntIntUnsortedVector) x;
+            // Read the size first, and the arrays after growing them, in
+            // case x and y are the same vector.
+            int n = u.top;
+            boolean sorted = u.compacted;
+            y.ensureCapacity(k + n);
+            k = appendSparse(a, u.idx, u.vals, n, y);
+            y.appended(k, sorted);
+            break;
+        }
+        case HASH: {
+            IntIntHashVector h = (IntIntHashVector) x;
+            byte[] states = h.getInternalStates();
+            int[] keys = h.getInternalKeys();
+            int[] vals = h.getInternalValues();
+            y.ensureCapacity(k + h.size());
+            int[] yIdx = y.idx;
+            int[] yVals = y.vals;
+            for (int i = 0; i < states.length; i++) {
+                if (IntIntHashVector.isFull(states[i])) {
+                    int v = a * vals[i];
+                    yIdx[k] = keys[i];
+                    yVals[k] = v;
+                    k += (v != ZERO) ? 1 : 0;
+                }
+            }
+            y.appended(k, false);
+            break;
+        }
+        default:
+            axpyByEntry(a, x, y);
+            break;
+        }
+    }
+
+    /** Appends a times the n given entries to y, and returns the new number of entries in y. */
+    private static int appendSparse(int a, int[] xIdx, int[] xVals, int n, IntIntUnsortedVector y) {
+        int k = y.top;
+        y.ensureCapacity(k + n);
+        int[] yIdx = y.idx;
+        int[] yVals = y.vals;
+        for (int j = 0; j < n; j++) {
+            int v = a * xVals[j];
+            yIdx[k] = xIdx[j];
+            yVals[k] = v;
+            k += (v != ZERO) ? 1 : 0;
+        }
+        return k;
+    }
+
+    /** Updates y to be a * x + y, by calling y.add() for each entry of x. */
+    private static void axpyByEntry(final int a, IntIntVector x, final IntIntVector y) {
+        switch (kindOf(x)) {
+        case DENSE:
+        case SLICE: {
+            int[] xe = elementsOf(x);
+            int xStart = startOf(x);
+            int n = sizeOf(x);
+            for (int i = 0; i < n; i++) {
+                y.add(i, a * xe[xStart + i]);
+            }
+            break;
+        }
+        case SORTED: {
+            IntIntSortedVector s = (IntIntSortedVector) x;
+            int[] xIdx = s.getInternalIndices();
+            int[] xVals = s.getInternalValues();
+            int n = s.getUsed();
+            for (int k = 0; k < n; k++) {
+                y.add(xIdx[k], a * xVals[k]);
+            }
+            break;
+        }
+        case UNSORTED: {
+            IntIntUnsortedVector u = (IntIntUnsortedVector) x;
+            // Read the size first, in case x and y are the same vector.
+            int n = u.top;
+            int[] xIdx = u.idx;
+            int[] xVals = u.vals;
+            for (int k = 0; k < n; k++) {
+                y.add(xIdx[k], a * xVals[k]);
+            }
+            break;
+        }
+        case HASH: {
+            IntIntHashVector h = (IntIntHashVector) x;
+            // Adding to the existing keys of x never moves them, even if x
+            // and y are the same vector, so the slots can be read directly.
+            byte[] states = h.getInternalStates();
+            int[] keys = h.getInternalKeys();
+            int[] vals = h.getInternalValues();
+            for (int i = 0; i < states.length; i++) {
+                if (IntIntHashVector.isFull(states[i])) {
+                    y.add(keys[i], a * vals[i]);
+                }
+            }
+            break;
+        }
+        default:
+            x.iterate(new FnIntIntToVoid() {
+                @Override
+                public void call(int idx, int val) {
+                    y.add(idx, a * val);
+                }
+            });
+            break;
+        }
+    }
+
+    /**
+     * Updates the vector to be the entrywise product (i.e. Hadamard product)
+     * of itself with the other. The explicit entries of the vector stay
+     * explicit, even if they become zero.
+     */
+    public static void product(IntIntVector vec, final IntIntVector other) {
+        switch (kindOf(vec)) {
+        case DENSE:
+        case SLICE:
+            productArray(elementsOf(vec), startOf(vec), sizeOf(vec), other);
+            break;
+        case SORTED: {
+            IntIntSortedVector s = (IntIntSortedVector) vec;
+            productSparse(s.getInternalIndices(), s.getInternalValues(), s.getUsed(), other);
+            break;
+        }
+        case UNSORTED: {
+            IntIntUnsortedVector u = (IntIntUnsortedVector) vec;
+            u.compact();
+            productSparse(u.idx, u.vals, u.top, other);
+            break;
+        }
+        case HASH: {
+            IntIntCursor cur = ((IntIntHashVector) vec).cursor();
+            while (cur.advance()) {
+                cur.setValue(cur.value() * other.get(cur.key()));
+            }
+            break;
+        }
+        default:
+            vec.apply(new FnIntIntToInt() {
+                @Override
+                public int call(int idx, int val) {
+                    return val * other.get(idx);
+                }
+            });
+            break;
+        }
+    }
+
+    /** Multiplies the array entries ye[yStart], ..., ye[yStart+n-1] (indices 0, ..., n-1) by the other vector. */
+    private static void productArray(int[] ye, int yStart, int n, IntIntVector x) {
+        switch (kindOf(x)) {
+        case DENSE:
+        case SLICE: {
+            int[] xe = elementsOf(x);
+            int xStart = startOf(x);
+            int m = Math.min(n, sizeOf(x));
+            for (int i = 0; i < m; i++) {
+                ye[yStart + i] *= xe[xStart + i];
+            }
+            for (int i = m; i < n; i++) {
+                ye[yStart + i] *= ZERO;
+            }
+            break;
+        }
+        case SORTED:
+        case UNSORTED: {
+            int[] xIdx;
+            int[] xVals;
+            int xUsed;
+            if (x instanceof IntIntSortedVector) {
+                IntIntSortedVector s = (IntIntSortedVector) x;
+                xIdx = s.getInternalIndices();
+                xVals = s.getInternalValues();
+                xUsed = s.getUsed();
+            } else {
+                IntIntUnsortedVector u = (IntIntUnsortedVector) x;
+                u.compact();
+                xIdx = u.idx;
+                xVals = u.vals;
+                xUsed = u.top;
+            }
+            productMerge(ye, yStart, n, xIdx, xVals, xUsed);
+            break;
+        }
+        case HASH: {
+            IntIntHashVector h = (IntIntHashVector) x;
+            if (n > HASH_SORT_RATIO * h.size()) {
+                // Sorting the entries is cheaper than a hash lookup for each index.
+                int[] xIdx = new int[h.size()];
+                int[] xVals = new int[h.size()];
+                int xUsed = IntIntSortedVector.copyEntries(h, xIdx, xVals);
+                IntIntSort.sortIndexAsc(xIdx, xVals, xUsed);
+                productMerge(ye, yStart, n, xIdx, xVals, xUsed);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    ye[yStart + i] *= h.getWithDefault(i, ZERO);
+                }
+            }
+            break;
+        }
+        default:
+            for (int i = 0; i < n; i++) {
+                ye[yStart + i] *= x.get(i);
+            }
+            break;
+        }
+    }
+
+    /** Multiplies the array entries (indices 0, ..., n-1) by the entries given by sorted indices. */
+    private static void productMerge(int[] ye, int yStart, int n, int[] xIdx, int[] xVals, int xUsed) {
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            while (j < xUsed && xIdx[j] < i) {
+                j++;
+            }
+            ye[yStart + i] *= (j < xUsed && xIdx[j] == i) ? xVals[j] : ZERO;
+        }
+    }
+
+    /** Multiplies the sparse entries, given by sorted indices, by the other vector. */
+    private static void productSparse(int[] yIdx, int[] yVals, int n, IntIntVector x) {
+        switch (kindOf(x)) {
+        case DENSE:
+        case SLICE: {
+            int[] xe = elementsOf(x);
+            int xStart = startOf(x);
+            int xn = sizeOf(x);
+            for (int k = 0; k < n; k++) {
+                int i = yIdx[k];
+                yVals[k] *= (0 <= i && i < xn) ? xe[xStart + (int) i] : ZERO;
+            }
+            break;
+        }
+        case SORTED:
+        case UNSORTED: {
+            int[] xIdx;
+            int[] xVals;
+            int xUsed;
+            if (x instanceof IntIntSortedVector) {
+                IntIntSortedVector s = (IntIntSortedVector) x;
+                xIdx = s.getInternalIndices();
+                xVals = s.getInternalValues();
+                xUsed = s.getUsed();
+            } else {
+                IntIntUnsortedVector u = (IntIntUnsortedVector) x;
+                u.compact();
+                xIdx = u.idx;
+                xVals = u.vals;
+                xUsed = u.top;
+            }
+            // Galloping from the last match costs O(1) for dense overlaps and
+            // O(log gap) for sparse ones.
+            int j = 0;
+            for (int k = 0; k < n; k++) {
+                j = IntSortedArrays.gallop(xIdx, j, xUsed, yIdx[k]);
+                yVals[k] *= (j < xUsed && xIdx[j] == yIdx[k]) ? xVals[j] : ZERO;
+            }
+            break;
+        }
+        default:
+            for (int k = 0; k < n; k++) {
+                yVals[k] *= x.get(yIdx[k]);
+            }
+            break;
+        }
+    }
+
+    /**
+     * Computes the dot product of the two vectors. Dense vectors and slices
+     * are multiplied directly; otherwise the sparse vector chooses how to
+     * match up the entries.
+     */
+    public static int dot(IntIntVector x, IntIntVector y) {
+        int kx = kindOf(x);
+        int ky = kindOf(y);
+        if ((kx == DENSE || kx == SLICE) && (ky == DENSE || ky == SLICE)) {
+            int[] xe = elementsOf(x);
+            int[] ye = elementsOf(y);
+            int xStart = startOf(x);
+            int yStart = startOf(y);
+            int n = Math.min(sizeOf(x), sizeOf(y));
+            int dot = 0;
+            for (int i = 0; i < n; i++) {
+                dot += xe[xStart + i] * ye[yStart + i];
+            }
+            return dot;
+        } else if (kx == DENSE || kx == SLICE) {
+            // The sparse (or other) vector loops over its own entries.
+            return y.dot(x);
+        } else {
+            return x.dot(y);
+        }
+    }
+
+    /* Accessors for the array behind a dense vector or slice. */
+
+    static int[] elementsOf(IntIntVector v) {
+        if (v instanceof IntIntDenseVector) {
+            return ((IntIntDenseVector) v).getInternalElements();
+        } else {
+            return ((IntIntVectorSlice) v).getInternalElements();
+        }
+    }
+
+    static int startOf(IntIntVector v) {
+        if (v instanceof IntIntDenseVector) {
+            return 0;
+        } else {
+            return ((IntIntVectorSlice) v).getStart();
+        }
+    }
+
+    static int sizeOf(IntIntVector v) {
+        if (v instanceof IntIntDenseVector) {
+            return ((IntIntDenseVector) v).getNumExplicitEntries();
+        } else {
+            return ((IntIntVectorSlice) v).getSize();
+        }
+    }
+
+}
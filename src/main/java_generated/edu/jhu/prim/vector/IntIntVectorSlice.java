@@ -3,11 +3,9 @@ package edu.jhu.prim.vector;
 import java.util.Arrays;
 
 import edu.jhu.prim.Primitives;
-import edu.jhu.prim.util.Lambda;
 import edu.jhu.prim.util.Lambda.FnIntIntToInt;
 import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
 import edu.jhu.prim.util.SafeCast;
-import edu.jhu.prim.vector.IntIntHashVector.SparseBinaryOpApplier;
 
 
 /**
@@ -76,7 +74,7 @@ public class IntIntVectorSlice extends AbstractIntIntVector implements IntIntVec
         return elements[idx + start];
     }
 
-    private final void checkIndex(int idx) {
+    final void checkIndex(int idx) {
         if (idx < 0 || idx >= size) {
             throw new IllegalStateException("Invalid index for slice: " + idx);
         }
@@ -118,11 +116,7 @@ public class IntIntVectorSlice extends AbstractIntIntVector implements IntIntVec
 
     @Override
     public int dot(IntIntVector y) {
-        int dot = 0;
-        for (int i=0; i<size; i++) {
-            dot += elements[i + start] * y.get(i);
-        }
-        return dot;
+        return IntIntVectorKernels.dot(this, y);
     }
     
     @Override
@@ -141,22 +135,17 @@ public class IntIntVectorSlice extends AbstractIntIntVector implements IntIntVec
 
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(IntIntVector other) {
-        // TODO: Add special case for IntIntDenseVector.
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.IntAdd()));
+        IntIntVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(IntIntVector other) {
-        // TODO: Add special case for IntIntDenseVector.
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.IntSubtract()));
+        IntIntVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(IntIntVector other) {
-        // TODO: Add special case for IntIntDenseVector.
-        for (int i=0; i<size; i++) {
-            elements[i + start] *= other.get(i);
-        }
+        IntIntVectorKernels.product(this, other);
     }
     
     /**
@@ -179,6 +168,21 @@ public class IntIntVectorSlice extends AbstractIntIntVector implements IntIntVec
     public int getNumImplicitEntries() {        
         return size;
     }
+
+    /** Gets the INTERNAL array backing this slice. */
+    int[] getInternalElements() {
+        return elements;
+    }
+
+    /** Gets the position in the internal array of the 0'th element of this slice. */
+    int getStart() {
+        return start;
+    }
+
+    /** Gets the size of this slice. */
+    int getSize() {
+        return size;
+    }
     
     /**
      * Gets a NEW array containing all the elements in this array list.
@@ -4,14 +4,12 @@ import java.util.Arrays;
 
 import edu.jhu.prim.Primitives;
 import edu.jhu.prim.arrays.LongArrays;
-import edu.jhu.prim.util.Lambda;
 import edu.jhu.prim.util.Lambda.FnIntLongToLong;
 import edu.jhu.prim.util.Lambda.FnIntLongToVoid;
 import edu.jhu.prim.util.SafeCast;
-import edu.jhu.prim.vector.IntLongHashVector.SparseBinaryOpApplier;
 
 //TODO: Implement Iterable<IntLongEntry>.
-public class IntLongDenseVector extends AbstractIntLongVector implements IntLongVector {
+public class IntLongDenseVector extends AbstractIntLongVector implements IntLongVector, IntLongRangeIterable {
 
     private static final long serialVersionUID = 1L;
 
@@ -112,17 +110,7 @@ public class IntLongDenseVector extends AbstractIntLongVector implements IntLong
 
     @Override
     public long dot(IntLongVector y) {
-        if (y instanceof IntLongDenseVector){
-            IntLongDenseVector other = (IntLongDenseVector) y;
-            int max = Math.min(idxAfterLast, other.idxAfterLast);
-            long dot = 0;
-            for (int i=0; i<max; i++) {
-                dot += elements[i] * y.get(i);
-            }
-            return dot;
-        } else {
-            return y.dot(this);
-        }
+        return IntLongVectorKernels.dot(this, y);
     }
 
     @Override
@@ -139,38 +127,38 @@ public class IntLongDenseVector extends AbstractIntLongVector implements IntLong
         }
     }
 
+    @Override
+    public int getNumPositions() {
+        return idxAfterLast;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnIntLongToVoid function) {
+        for (int i=start; i<end; i++) {
+            function.call(i, elements[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnIntLongToLong function) {
+        for (int i=start; i<end; i++) {
+            elements[i] = function.call(i, elements[i]);
+        }
+    }
+
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(IntLongVector other) {
-        if (other instanceof IntLongUnsortedVector) {
-            IntLongUnsortedVector vec = (IntLongUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], vec.vals[i]);
-            }
-        } else {
-            //  TODO: Add special case for IntLongDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.LongAdd()));
-        }
+        IntLongVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(IntLongVector other) {
-        if (other instanceof IntLongUnsortedVector) {
-            IntLongUnsortedVector vec = (IntLongUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], -vec.vals[i]);
-            }
-        } else {
-            // TODO: Add special case for IntLongDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.LongSubtract()));
-        }
+        IntLongVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(IntLongVector other) {
-        // TODO: Add special case for IntLongDenseVector.
-        for (int i=0; i<idxAfterLast; i++) {
-            elements[i] *= other.get(i);
-        }
+        IntLongVectorKernels.product(this, other);
     }
     
     /**
@@ -244,6 +232,12 @@ public class IntLongDenseVector extends AbstractIntLongVector implements IntLong
         }
     }
 
+    /** Grows this vector, if needed, so that it has at least the given number of explicit entries. */
+    void growTo(int size) {
+        idxAfterLast = Math.max(idxAfterLast, size);
+        ensureCapacity(idxAfterLast);
+    }
+
     /**
      * Ensure that the internal array has space to contain the specified number of elements.
      * @param size The number of elements. 
@@ -1,8 +1,6 @@
 package edu.jhu.prim.vector;
 
 import edu.jhu.prim.map.IntLongHashMap;
-import edu.jhu.prim.util.Lambda;
-import edu.jhu.prim.util.Lambda.FnIntLongToLong;
 import edu.jhu.prim.util.Lambda.FnIntLongToVoid;
 import edu.jhu.prim.util.Lambda.LambdaBinOpLong;
 import edu.jhu.prim.util.SafeCast;
@@ -40,6 +38,32 @@ public class IntLongHashVector extends IntLongHashMap implements IntLongVector {
     public IntLongHashVector(int[] keys, long[] vals) {
         super(keys, vals);
     }
+
+
+    /** Whether a slot in the given state holds an entry, for the kernels which read the tables directly. */
+    static boolean isFull(byte state) {
+        return state == FULL;
+    }
+
+    /** Gets the slot of the entry for an index, or -1 if there is none. */
+    int getSlot(int idx) {
+        return indexOf(idx);
+    }
+
+    /** Gets the internal table of slot states. */
+    byte[] getInternalStates() {
+        return states;
+    }
+
+    /** Gets the internal table of keys, which are only valid for the full slots. */
+    int[] getInternalKeys() {
+        return keys;
+    }
+
+    /** Gets the internal table of values, which are only valid for the full slots. */
+    long[] getInternalValues() {
+        return values;
+    }
     
     /** Gets a deep copy of this vector. */
     @Override
@@ -80,17 +104,16 @@ public class IntLongHashVector extends IntLongHashMap implements IntLongVector {
                 return other.dot(this);
             }
             return dotWithoutCaveats(other);
-        } else if (y instanceof IntLongSortedVector) {
-            // TODO: If the size of the HashVector is much smaller than the size
-            // of the SortedVector and neither is very large, we might want to
-            // instead loop over the HashVector.
+        } else if (y instanceof IntLongSortedVector || y instanceof IntLongUnsortedVector) {
+            // These choose whether to loop over this vector or themselves.
             return y.dot(this);
         } else {
             return dotWithoutCaveats(y);
         }
     }
 
-    private long dotWithoutCaveats(IntLongVector other) {
+    /** Loops over the entries of this vector, looking each one up in the other. */
+    long dotWithoutCaveats(IntLongVector other) {
         long dot = 0;
         for (int i=0; i<this.keys.length; i++) {
             if (this.states[i] == FULL) {
@@ -102,20 +125,17 @@ public class IntLongHashVector extends IntLongHashMap implements IntLongVector {
 
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(IntLongVector other) {
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.LongAdd()));
+        IntLongVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(IntLongVector other) {
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.LongSubtract()));
+        IntLongVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(IntLongVector other) { 
-        // TODO: This is correct, but will create lots of zero entries and not remove any.
-        // Also this will be very slow if other is a IntLongSortedVector since it will have to
-        // call get() each time.
-        this.apply(new SparseBinaryOpApplier2(this, other, new Lambda.LongProd()));
+        IntLongVectorKernels.product(this, other);
     }
 
     public int getNumImplicitEntries() {
@@ -156,22 +176,4 @@ public class IntLongHashVector extends IntLongHashMap implements IntLongVector {
         
     }
     
-    private static class SparseBinaryOpApplier2 implements FnIntLongToLong {
-        
-        private IntLongVector vec1;
-        private IntLongVector vec2;
-        private LambdaBinOpLong lambda;
-        
-        public SparseBinaryOpApplier2(IntLongVector vec1, IntLongVector vec2, LambdaBinOpLong lambda) {
-            this.vec1 = vec1;
-            this.vec2 = vec2;
-            this.lambda = lambda;
-        }
-        
-        public long call(int idx, long val) {
-            return lambda.call(vec1.get(idx), vec2.get(idx));
-        }
-        
-    }
-
 }
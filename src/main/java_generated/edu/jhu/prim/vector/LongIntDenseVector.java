@@ -4,14 +4,12 @@ import java.util.Arrays;
 
 import edu.jhu.prim.Primitives;
 import edu.jhu.prim.arrays.IntArrays;
-import edu.jhu.prim.util.Lambda;
 import edu.jhu.prim.util.Lambda.FnLongIntToInt;
 import edu.jhu.prim.util.Lambda.FnLongIntToVoid;
 import edu.jhu.prim.util.SafeCast;
-import edu.jhu.prim.vector.LongIntHashVector.SparseBinaryOpApplier;
 
 //TODO: Implement Iterable<LongIntEntry>.
-public class LongIntDenseVector extends AbstractLongIntVector implements LongIntVector {
+public class LongIntDenseVector extends AbstractLongIntVector implements LongIntVector, LongIntRangeIterable {
 
     private static final long serialVersionUID = 1L;
 
@@ -112,17 +110,7 @@ public class LongIntDenseVector extends AbstractLongIntVector implements LongInt
 
     @Override
     public int dot(LongIntVector y) {
-        if (y instanceof LongIntDenseVector){
-            LongIntDenseVector other = (LongIntDenseVector) y;
-            int max = Math.min(idxAfterLast, other.idxAfterLast);
-            int dot = 0;
-            for (int i=0; i<max; i++) {
-                dot += elements[i] * y.get(i);
-            }
-            return dot;
-        } else {
-            return y.dot(this);
-        }
+        return LongIntVectorKernels.dot(this, y);
     }
 
     @Override
@@ -139,38 +127,38 @@ public class LongIntDenseVector extends AbstractLongIntVector implements LongInt
         }
     }
 
+    @Override
+    public int getNumPositions() {
+        return idxAfterLast;
+    }
+
+    @Override
+    public void iterateRange(int start, int end, FnLongIntToVoid function) {
+        for (int i=start; i<end; i++) {
+            function.call(i, elements[i]);
+        }
+    }
+
+    @Override
+    public void applyRange(int start, int end, FnLongIntToInt function) {
+        for (int i=start; i<end; i++) {
+            elements[i] = function.call(i, elements[i]);
+        }
+    }
+
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(LongIntVector other) {
-        if (other instanceof LongIntUnsortedVector) {
-            LongIntUnsortedVector vec = (LongIntUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], vec.vals[i]);
-            }
-        } else {
-            //  TODO: Add special case for LongIntDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.IntAdd()));
-        }
+        LongIntVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(LongIntVector other) {
-        if (other instanceof LongIntUnsortedVector) {
-            LongIntUnsortedVector vec = (LongIntUnsortedVector) other;
-            for (int i=0; i<vec.top; i++) {
-                this.add(vec.idx[i], -vec.vals[i]);
-            }
-        } else {
-            // TODO: Add special case for LongIntDenseVector.
-            other.iterate(new SparseBinaryOpApplier(this, new Lambda.IntSubtract()));
-        }
+        LongIntVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(LongIntVector other) {
-        // TODO: Add special case for LongIntDenseVector.
-        for (int i=0; i<idxAfterLast; i++) {
-            elements[i] *= other.get(i);
-        }
+        LongIntVectorKernels.product(this, other);
     }
     
     /**
@@ -244,6 +232,12 @@ public class LongIntDenseVector extends AbstractLongIntVector implements LongInt
         }
     }
 
+    /** Grows this vector, if needed, so that it has at least the given number of explicit entries. */
+    void growTo(int size) {
+        idxAfterLast = Math.max(idxAfterLast, size);
+        ensureCapacity(idxAfterLast);
+    }
+
     /**
      * Ensure that the internal array has space to contain the specified number of elements.
      * @param size The number of elements. 
@@ -1,8 +1,6 @@
 package edu.jhu.prim.vector;
 
 import edu.jhu.prim.map.LongIntHashMap;
-import edu.jhu.prim.util.Lambda;
-import edu.jhu.prim.util.Lambda.FnLongIntToInt;
 import edu.jhu.prim.util.Lambda.FnLongIntToVoid;
 import edu.jhu.prim.util.Lambda.LambdaBinOpInt;
 import edu.jhu.prim.util.SafeCast;
@@ -40,6 +38,32 @@ public class LongIntHashVector extends LongIntHashMap implements LongIntVector {
     public LongIntHashVector(long[] keys, int[] vals) {
         super(keys, vals);
     }
+
+
+    /** Whether a slot in the given state holds an entry, for the kernels which read the tables directly. */
+    static boolean isFull(byte state) {
+        return state == FULL;
+    }
+
+    /** Gets the slot of the entry for an index, or -1 if there is none. */
+    int getSlot(long idx) {
+        return indexOf(idx);
+    }
+
+    /** Gets the internal table of slot states. */
+    byte[] getInternalStates() {
+        return states;
+    }
+
+    /** Gets the internal table of keys, which are only valid for the full slots. */
+    long[] getInternalKeys() {
+        return keys;
+    }
+
+    /** Gets the internal table of values, which are only valid for the full slots. */
+    int[] getInternalValues() {
+        return values;
+    }
     
     /** Gets a deep copy of this vector. */
     @Override
@@ -80,17 +104,16 @@ public class LongIntHashVector extends LongIntHashMap implements LongIntVector {
                 return other.dot(this);
             }
             return dotWithoutCaveats(other);
-        } else if (y instanceof LongIntSortedVector) {
-            // TODO: If the size of the HashVector is much smaller than the size
-            // of the SortedVector and neither is very large, we might want to
-            // instead loop over the HashVector.
+        } else if (y instanceof LongIntSortedVector || y instanceof LongIntUnsortedVector) {
+            // These choose whether to loop over this vector or themselves.
             return y.dot(this);
         } else {
             return dotWithoutCaveats(y);
         }
     }
 
-    private int dotWithoutCaveats(LongIntVector other) {
+    /** Loops over the entries of this vector, looking each one up in the other. */
+    int dotWithoutCaveats(LongIntVector other) {
         int dot = 0;
         for (int i=0; i<this.keys.length; i++) {
             if (this.states[i] == FULL) {
@@ -102,20 +125,17 @@ public class LongIntHashVector extends LongIntHashMap implements LongIntVector {
 
     /** Updates this vector to be the entrywise sum of this vector with the other. */
     public void add(LongIntVector other) {
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.IntAdd()));
+        LongIntVectorKernels.add(this, other);
     }
     
     /** Updates this vector to be the entrywise difference of this vector with the other. */
     public void subtract(LongIntVector other) {
-        other.iterate(new SparseBinaryOpApplier(this, new Lambda.IntSubtract()));
+        LongIntVectorKernels.subtract(this, other);
     }
     
     /** Updates this vector to be the entrywise product (i.e. Hadamard product) of this vector with the other. */
     public void product(LongIntVector other) { 
-        // TODO: This is correct, but will create lots of zero entries and not remove any.
-        // Also this will be very slow if other is a LongIntSortedVector since it will have to
-        // call get() each time.
-        this.apply(new SparseBinaryOpApplier2(this, other, new Lambda.IntProd()));
+        LongIntVectorKernels.product(this, other);
     }
 
     public long getNumImplicitEntries() {
@@ -156,22 +176,4 @@ public class LongIntHashVector extends LongIntHashMap implements LongIntVector {
         
     }
     
-    private static class SparseBinaryOpApplier2 implements FnLongIntToInt {
-        
-        private LongIntVector vec1;
-        private LongIntVector vec2;
-        private LambdaBinOpInt lambda;
-        
-        public SparseBinaryOpApplier2(LongIntVector vec1, LongIntVector vec2, LambdaBinOpInt lambda) {
-            this.vec1 = vec1;
-            this.vec2 = vec2;
-            this.lambda = lambda;
-        }
-        
-        public int call(long idx, int val) {
-            return lambda.call(vec1.get(idx), vec2.get(idx));
-        }
-        
-    }
-
 }
@@ -0,0 +1,149 @@
+package edu.jhu.prim.arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.jhu.prim.list.LongArrayList;
+
+public class LongSortedArraysTest {
+
+    private static final long[] EMPTY = new long[0];
+
+    /** Gets a random sorted array of distinct values in [0, max). */
+    private static long[] getSet(Random rand, int n, int max) {
+        boolean[] in = new boolean[max];
+        for (int i = 0; i < n; i++) {
+            in[rand.nextInt(max)] = true;
+        }
+        LongArrayList list = new LongArrayList();
+        for (int v = 0; v < max; v++) {
+            if (in[v]) {
+                list.add(v - max / 2);
+            }
+        }
+        return list.toNativeArray();
+    }
+
+    /** Gets the values in [-max/2, max/2) whose count over the arrays satisfies the op. */
+    private static long[] brute(long[][] arrays, int max, String op) {
+        int[] counts = new int[max];
+        boolean[] inFirst = new boolean[max];
+        for (int s = 0; s < arrays.length; s++) {
+            for (long v : arrays[s]) {
+                counts[(int) v + max / 2]++;
+                if (s == 0) {
+                    inFirst[(int) v + max / 2] = true;
+                }
+            }
+        }
+        LongArrayList list = new LongArrayList();
+        for (int v = 0; v < max; v++) {
+            boolean keep;
+            if (op.equals("union")) {
+                keep = counts[v] > 0;
+            } else if (op.equals("intersect")) {
+                keep = counts[v] == arrays.length;
+            } else {
+                keep = inFirst[v] && counts[v] == 1;
+            }
+            if (keep) {
+                list.add(v - max / 2);
+            }
+        }
+        return list.toNativeArray();
+    }
+
+    @Test
+    public void testGallop() {
+        long[] a = new long[]{ -5, -2, 0, 3, 3, 8, 10, 11, 20, 40, 41 };
+        for (int from = 0; from <= a.length; from++) {
+            for (long key = -7; key <= 42; key++) {
+                int expected = from;
+                while (expected < a.length && a[expected] < key) {
+                    expected++;
+                }
+                assertEquals(expected, LongSortedArrays.gallop(a, from, a.length, key));
+            }
+        }
+        assertEquals(4, LongSortedArrays.gallop(a, 0, 4, 5));
+        assertEquals(2, LongSortedArrays.gallop(a, 2, 2, 5));
+    }
+
+    @Test
+    public void testTwoArraysAllSizeRatios() {
+        Random rand = new Random(9001);
+        LongArrayList out = new LongArrayList();
+        int max = 2000;
+        for (int trial = 0; trial < 200; trial++) {
+            // Covers the linear merge and galloping in either direction.
+            long[] a = getSet(rand, rand.nextBoolean() ? rand.nextInt(20) : rand.nextInt(max), max);
+            long[] b = getSet(rand, rand.nextBoolean() ? rand.nextInt(20) : rand.nextInt(max), max);
+            long[][] ab = new long[][]{ a, b };
+
+            out.clear();
+            LongSortedArrays.union(a, b, out);
+            assertArrayEquals(brute(ab, max, "union"), out.toNativeArray());
+
+            out.clear();
+            LongSortedArrays.intersect(a, b, out);
+            assertArrayEquals(brute(ab, max, "intersect"), out.toNativeArray());
+
+            out.clear();
+            LongSortedArrays.difference(a, b, out);
+            assertArrayEquals(brute(ab, max, "difference"), out.toNativeArray());
+        }
+    }
+
+    @Test
+    public void testManyArrays() {
+        Random rand = new Random(9001);
+        LongArrayList out = new LongArrayList();
+        int max = 500;
+        for (int k = 0; k <= 9; k++) {
+            for (int trial = 0; trial < 20; trial++) {
+                long[][] arrays = new long[k][];
+                for (int s = 0; s < k; s++) {
+                    int n = rand.nextInt(4) == 0 ? rand.nextInt(5) : 100 + rand.nextInt(max);
+                    arrays[s] = getSet(rand, n, max);
+                }
+                out.clear();
+                LongSortedArrays.union(arrays, out);
+                assertArrayEquals(brute(arrays, max, "union"), out.toNativeArray());
+
+                if (k > 0) {
+                    out.clear();
+                    LongSortedArrays.intersect(arrays, out);
+                    assertArrayEquals(brute(arrays, max, "intersect"), out.toNativeArray());
+
+                    out.clear();
+                    LongSortedArrays.difference(arrays[0], Arrays.copyOfRange(arrays, 1, k), out);
+                    assertArrayEquals(brute(arrays, max, "difference"), out.toNativeArray());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAppendsToOutput() {
+        LongArrayList out = new LongArrayList();
+        out.add(-1);
+        LongSortedArrays.union(new long[][]{ new long[]{ 1, 4 }, EMPTY, new long[]{ 2, 4 } }, out);
+        LongSortedArrays.intersect(new long[][]{ new long[]{ 1, 5 }, new long[]{ 5 }, new long[]{ 0, 5, 6 } }, out);
+        LongSortedArrays.difference(new long[]{ 3, 7 }, EMPTY, out);
+        assertArrayEquals(new long[]{ -1, 1, 2, 4, 5, 3, 7 }, out.toNativeArray());
+    }
+
+    @Test
+    public void testUnionOfEqualArrays() {
+        long[] a = new long[]{ 0, 1, 2 };
+        LongArrayList out = new LongArrayList();
+        LongSortedArrays.union(new long[][]{ a, a, a, a, a }, out);
+        assertArrayEquals(a, out.toNativeArray());
+    }
+
+}
@@ -1,6 +1,12 @@
 package edu.jhu.prim.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
 
 import org.junit.Test;
 
@@ -35,4 +41,49 @@ public class IntObjectHashMapTest {
         IntJUnitUtils.assertArrayEquals(new int[]{2, 5, 7}, map.keys());
     }
 
+    @Test
+    public void testSlidingWindowChurn() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<Integer>(0);
+        int window = 10;
+        for (int i=0; i<100000; i++) {
+            map.put(i, i);
+            if (i >= window) {
+                map.remove(i - window);
+            }
+        }
+        assertEquals(window, map.size());
+        for (int i=100000 - window; i<100000; i++) {
+            assertEquals(i, (int) map.get(i));
+        }
+        assertNull(map.get(100000 - window - 1));
+    }
+
+    @Test
+    public void testCursor() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<String>();
+        for (int i=0; i<50; i++) {
+            map.put(i, "v" + i);
+        }
+        int n = 0;
+        IntObjectCursor<String> cur = map.cursor();
+        while (cur.advance()) {
+            assertEquals("v" + cur.key(), cur.value());
+            cur.setValue("w" + cur.key());
+            n++;
+        }
+        assertEquals(50, n);
+        assertFalse(cur.advance());
+        assertEquals("w7", map.get(7));
+
+        cur = map.cursor();
+        assertTrue(cur.advance());
+        map.put(100, "v100");
+        try {
+            cur.advance();
+            fail("Expected ConcurrentModificationException");
+        } catch (ConcurrentModificationException e) {
+            // pass
+        }
+    }
+
 }
@@ -0,0 +1,58 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toDouble;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toLong;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Checks that cursors allocate nothing per entry. This is not copied to the
+ * other primitive types, since it measures allocation in longs.
+ */
+public class LongDoubleCursorAllocationTest {
+
+    @Test
+    public void testNoAllocationPerEntry() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        final long tid = Thread.currentThread().getId();
+
+        int n = 100000;
+        for (LongDoubleMap map : LongDoubleCursorTest.getMaps()) {
+            if (map instanceof LongDoubleConcurrentHashMap) {
+                // Copies each segment into its buffers.
+                continue;
+            }
+            for (int i=0; i<n; i++) {
+                map.put(toLong(i), toDouble(1));
+            }
+            // Warm up, so that the measurement does not include class loading.
+            sumValues(map);
+            long before = threads.getThreadAllocatedBytes(tid);
+            double sum = sumValues(map);
+            long allocated = threads.getThreadAllocatedBytes(tid) - before;
+            assertEquals(n, toInt(sum));
+            // A few bytes for the cursor itself, but none per entry.
+            assertTrue(map.getClass().getName() + " allocated " + allocated, allocated < 1024);
+        }
+    }
+
+    private static double sumValues(LongDoubleMap map) {
+        double sum = 0;
+        LongDoubleCursor cur = map.cursor();
+        while (cur.advance()) {
+            sum += cur.value();
+        }
+        return sum;
+    }
+
+}
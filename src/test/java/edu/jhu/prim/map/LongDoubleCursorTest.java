@@ -0,0 +1,159 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toDouble;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toLong;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnLongDoubleToDouble;
+import edu.jhu.prim.util.Lambda.FnLongDoubleToVoid;
+import edu.jhu.prim.vector.LongDoubleHashVector;
+import edu.jhu.prim.vector.LongDoubleSortedVector;
+import edu.jhu.prim.vector.LongDoubleUnsortedVector;
+
+public class LongDoubleCursorTest {
+
+    static LongDoubleMap[] getMaps() {
+        return new LongDoubleMap[]{ new LongDoubleSortedMap(), new LongDoubleHashMap(), 
+                new LongDoubleLinearHashMap(), new LongDoubleConcurrentHashMap(),
+                new LongDoubleOffHeapHashMap(), new LongDoubleSortedVector(), new LongDoubleHashVector() };
+    }
+
+    @Test
+    public void testVisitsEachEntryAndSetsValues() {
+        for (LongDoubleMap map : getMaps()) {
+            // Include the zero key, which some maps store outside of their table.
+            for (int i=0; i<100; i++) {
+                map.put(toLong(i * 3), toDouble(i));
+            }
+            int n = 0;
+            LongDoubleCursor cur = map.cursor();
+            while (cur.advance()) {
+                assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+                cur.setValue(toDouble(toInt(cur.value()) + 1));
+                n++;
+            }
+            assertEquals(map.getClass().getName(), 100, n);
+            assertFalse(cur.advance());
+            for (int i=0; i<100; i++) {
+                assertEquals(i + 1, toInt(map.get(toLong(i * 3))));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsortedVector() {
+        LongDoubleUnsortedVector vec = new LongDoubleUnsortedVector();
+        vec.add(5, toDouble(1));
+        vec.add(2, toDouble(2));
+        vec.add(5, toDouble(3));
+        LongDoubleCursor cur = vec.cursor();
+        assertTrue(cur.advance());
+        assertEquals(2, toInt(cur.key()));
+        assertEquals(2, toInt(cur.value()));
+        assertTrue(cur.advance());
+        assertEquals(5, toInt(cur.key()));
+        assertEquals(4, toInt(cur.value()));
+        cur.setValue(toDouble(7));
+        assertFalse(cur.advance());
+        assertEquals(7, toInt(vec.get(5)));
+    }
+
+    @Test
+    public void testEmptyAndExhausted() {
+        for (LongDoubleMap map : getMaps()) {
+            LongDoubleCursor cur = map.cursor();
+            try {
+                cur.key();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+            assertFalse(cur.advance());
+            assertFalse(cur.advance());
+            try {
+                cur.value();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultCursor() {
+        LongDoubleMap map = new IteratorOnlyMap();
+        for (int i=0; i<100; i++) {
+            map.put(toLong(i * 3), toDouble(i));
+        }
+        int n = 0;
+        LongDoubleCursor cur = map.cursor();
+        while (cur.advance()) {
+            assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+            cur.setValue(toDouble(toInt(cur.value()) + 1));
+            assertEquals(toInt(cur.key()) / 3 + 1, toInt(cur.value()));
+            n++;
+        }
+        assertEquals(100, n);
+        assertFalse(cur.advance());
+        try {
+            cur.key();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // pass
+        }
+        for (int i=0; i<100; i++) {
+            assertEquals(i + 1, toInt(map.get(toLong(i * 3))));
+        }
+    }
+
+    /** A map which only implements the abstract methods, as a map outside of this library would. */
+    private static class IteratorOnlyMap implements LongDoubleMap {
+        private static final long serialVersionUID = 1L;
+        private final LongDoubleHashMap map = new LongDoubleHashMap();
+        public double get(long idx) { return map.get(idx); }
+        public double getWithDefault(long idx, double defaultVal) { return map.getWithDefault(idx, defaultVal); }
+        public boolean contains(long idx) { return map.contains(idx); }
+        public double put(long idx, double val) { return map.put(idx, val); }
+        public void remove(long idx) { map.remove(idx); }
+        public void clear() { map.clear(); }
+        public void add(long idx, double incr) { map.add(idx, incr); }
+        public void apply(FnLongDoubleToDouble lambda) { map.apply(lambda); }
+        public void iterate(FnLongDoubleToVoid function) { map.iterate(function); }
+        public Iterator<LongDoubleEntry> iterator() { return map.iterator(); }
+        public int size() { return map.size(); }
+        public long[] getIndices() { return map.getIndices(); }
+        public double[] getValues() { return map.getValues(); }
+    }
+
+    @Test
+    public void testFailFast() {
+        for (LongDoubleMap map : getMaps()) {
+            if (map instanceof LongDoubleConcurrentHashMap) {
+                // Weakly consistent instead.
+                continue;
+            }
+            map.put(toLong(1), toDouble(1));
+            map.put(toLong(2), toDouble(2));
+            LongDoubleCursor cur = map.cursor();
+            assertTrue(cur.advance());
+            map.put(toLong(3), toDouble(3));
+            try {
+                cur.advance();
+                fail("Expected ConcurrentModificationException: " + map.getClass().getName());
+            } catch (ConcurrentModificationException e) {
+                // pass
+            }
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toDouble;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toLong;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongDoubleOffHeapHashMapTest {
+
+    @Test
+    public void testNormalUsage() {
+        LongDoubleMap map = new LongDoubleOffHeapHashMap(0, toDouble(-1));
+        map.put(2, toDouble(22));
+        map.put(1, toDouble(11));
+        map.put(3, toDouble(33));
+        map.put(-1, toDouble(-11));
+        map.put(0, toDouble(10));
+        map.add(3, toDouble(1));
+
+        assertEquals(34, toInt(map.get(3)));
+        assertEquals(11, toInt(map.get(1)));
+        assertEquals(-11, toInt(map.get(-1)));
+        assertEquals(22, toInt(map.get(2)));
+        assertEquals(10, toInt(map.get(0)));
+        assertEquals(-1, toInt(map.get(4)));
+        assertEquals(5, map.size());
+        assertEquals(5, map.getIndices().length);
+
+        map.remove(1);
+        map.remove(0);
+        assertFalse(map.contains(1));
+        assertFalse(map.contains(0));
+        assertEquals(3, map.size());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.contains(3));
+    }
+
+    @Test
+    public void testRandomChurnMatchesHashMap() {
+        Random rand = new Random(9001);
+        LongDoubleOffHeapHashMap map = new LongDoubleOffHeapHashMap(0, toDouble(0));
+        HashMap<Long, Double> expected = new HashMap<Long, Double>();
+        for (int t=0; t<20000; t++) {
+            long key = toLong(rand.nextInt(1000));
+            double val = toDouble(rand.nextInt(100));
+            if (rand.nextBoolean()) {
+                map.put(key, val);
+                expected.put(key, val);
+            } else {
+                map.remove(key);
+                expected.remove(key);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int i=0; i<1000; i++) {
+            long key = toLong(i);
+            assertEquals(expected.containsKey(key), map.contains(key));
+            if (expected.containsKey(key)) {
+                assertEquals(toInt(expected.get(key)), toInt(map.get(key)));
+            }
+        }
+    }
+
+    @Test
+    public void testSaveAndOpenReadOnly() throws IOException {
+        LongDoubleOffHeapHashMap map = new LongDoubleOffHeapHashMap(0, toDouble(-1));
+        for (int i=0; i<1000; i++) {
+            map.put(toLong(i * 7), toDouble(i));
+        }
+        File file = File.createTempFile("offheap", ".map");
+        file.deleteOnExit();
+        try {
+            map.save(file);
+            LongDoubleOffHeapHashMap mapped = LongDoubleOffHeapHashMap.openReadOnly(file);
+            assertTrue(mapped.isReadOnly());
+            assertEquals(1000, mapped.size());
+            for (int i=0; i<1000; i++) {
+                assertEquals(i, toInt(mapped.get(toLong(i * 7))));
+            }
+            assertFalse(mapped.contains(toLong(1)));
+            assertEquals(-1, toInt(mapped.get(toLong(1))));
+            assertEquals(toInt(map.getSum()), toInt(mapped.getSum()));
+            try {
+                mapped.put(toLong(1), toDouble(1));
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+            try {
+                LongDoubleOffHeapHashMap.openReadOnly(file, LongHashStrategy.Standard.IDENTITY);
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // pass
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        LongDoubleOffHeapHashMap map = new LongDoubleOffHeapHashMap(0, toDouble(-1));
+        // Grow the table several times, freeing the old buffers.
+        for (int i=0; i<1000; i++) {
+            map.put(toLong(i), toDouble(i));
+        }
+        for (int i=0; i<1000; i++) {
+            assertEquals(i, toInt(map.get(toLong(i))));
+        }
+        File file = File.createTempFile("offheap", ".map");
+        file.deleteOnExit();
+        try {
+            map.save(file);
+            map.close();
+            // Closing twice has no effect.
+            map.close();
+            try {
+                map.get(toLong(1));
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+            try {
+                map.put(toLong(1), toDouble(1));
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+            LongDoubleOffHeapHashMap mapped = LongDoubleOffHeapHashMap.openReadOnly(file);
+            assertEquals(999, toInt(mapped.get(toLong(999))));
+            mapped.close();
+            try {
+                mapped.contains(toLong(1));
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        LongDoubleOffHeapHashMap map = new LongDoubleOffHeapHashMap(0, toDouble(-1));
+        map.put(0, toDouble(10));
+        map.put(5, toDouble(55));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(map);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        LongDoubleOffHeapHashMap copy = (LongDoubleOffHeapHashMap) in.readObject();
+        assertEquals(2, copy.size());
+        assertEquals(10, toInt(copy.get(0)));
+        assertEquals(55, toInt(copy.get(5)));
+        assertEquals(-1, toInt(copy.get(6)));
+        copy.put(6, toDouble(66));
+        assertEquals(3, copy.size());
+    }
+
+}
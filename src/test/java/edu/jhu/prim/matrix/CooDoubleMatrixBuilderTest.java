@@ -0,0 +1,73 @@
+package edu.jhu.prim.matrix;
+
+import static edu.jhu.prim.matrix.CsrDoubleMatrixTest.toArray;
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.assertMatrixEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CooDoubleMatrixBuilderTest {
+
+    @Test
+    public void testSumsDuplicatesAndDropsZeros() {
+        CooDoubleMatrixBuilder builder = new CooDoubleMatrixBuilder(3, 4);
+        builder.add(2, 2, 7);
+        builder.add(0, 3, 1);
+        builder.add(2, 0, 5);
+        builder.add(0, 1, 2);
+        builder.add(0, 3, 2);
+        builder.add(1, 1, 4);
+        builder.add(1, 1, -4);
+        assertEquals(7, builder.getNumEntries());
+
+        double[][] expected = new double[][]{ {0, 2, 0, 3}, {0, 0, 0, 0}, {5, 0, 7, 0} };
+        CsrDoubleMatrix csr = builder.toCsr();
+        assertArrayEquals(new int[]{0, 2, 2, 4}, csr.getRowPtr());
+        assertArrayEquals(new int[]{1, 3, 0, 2}, csr.getColIdx());
+        assertArrayEquals(new double[]{2, 3, 5, 7}, csr.getValues(), 1e-13);
+        CscDoubleMatrix csc = builder.toCsc();
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, csc.getColPtr());
+        assertMatrixEquals(expected, toArray(csc));
+    }
+
+    @Test
+    public void testRandomEntries() {
+        Random rand = new Random(9001);
+        int numRows = 70;
+        int numCols = 50;
+        double[][] expected = new double[numRows][numCols];
+        CooDoubleMatrixBuilder builder = new CooDoubleMatrixBuilder(numRows, numCols);
+        // Enough entries to use the radix sort.
+        for (int i = 0; i < 10000; i++) {
+            int row = rand.nextInt(numRows);
+            int col = rand.nextInt(numCols);
+            double val = rand.nextInt(5);
+            builder.add(row, col, val);
+            expected[row][col] += val;
+        }
+        assertMatrixEquals(expected, toArray(builder.toCsr()));
+        assertMatrixEquals(expected, toArray(builder.toCsc()));
+    }
+
+    @Test
+    public void testEmpty() {
+        CsrDoubleMatrix csr = new CooDoubleMatrixBuilder(2, 3).toCsr();
+        assertEquals(0, csr.getNumNonZeros());
+        assertArrayEquals(new int[]{0, 0, 0}, csr.getRowPtr());
+    }
+
+    @Test
+    public void testInvalidPosition() {
+        try {
+            new CooDoubleMatrixBuilder(2, 3).add(2, 0, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+}
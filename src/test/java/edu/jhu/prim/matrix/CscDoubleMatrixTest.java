@@ -0,0 +1,93 @@
+package edu.jhu.prim.matrix;
+
+import static edu.jhu.prim.matrix.CsrDoubleMatrixTest.column;
+import static edu.jhu.prim.matrix.CsrDoubleMatrixTest.toArray;
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.assertMatrixEquals;
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.getRandomArray;
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.naiveMult;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.jhu.prim.map.IntDoubleEntry;
+
+public class CscDoubleMatrixTest {
+
+    // 3 x 4 matrix.
+    private static final double[][] matArr = new double[][]{ {0, 2, 0, 3}, {0, 0, 0, 0}, {5, 0, 7, 0} };
+
+    @Test
+    public void testArrays() {
+        CscDoubleMatrix mat = new CscDoubleMatrix(matArr);
+        assertEquals(3, mat.getNumRows());
+        assertEquals(4, mat.getNumColumns());
+        assertEquals(4, mat.getNumNonZeros());
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, mat.getColPtr());
+        assertArrayEquals(new int[]{2, 0, 2, 0}, mat.getRowIdx());
+        assertArrayEquals(new double[]{5, 2, 7, 3}, mat.getValues(), 1e-13);
+        assertMatrixEquals(matArr, toArray(mat));
+
+        CscDoubleMatrix fromArrays = new CscDoubleMatrix(3, 4, mat.getColPtr(), mat.getRowIdx(), mat.getValues());
+        assertMatrixEquals(matArr, toArray(fromArrays));
+    }
+
+    @Test
+    public void testRowAndColEntries() {
+        CscDoubleMatrix mat = new CscDoubleMatrix(matArr);
+        int i = 0;
+        for (IntDoubleEntry e : mat.getRowEntries(0)) {
+            assertEquals(i == 0 ? 1 : 3, e.index());
+            assertEquals(i == 0 ? 2 : 3, e.get(), 1e-13);
+            i++;
+        }
+        assertEquals(2, i);
+        i = 0;
+        for (IntDoubleEntry e : mat.getColEntries(2)) {
+            assertEquals(2, e.index());
+            assertEquals(7, e.get(), 1e-13);
+            i++;
+        }
+        assertEquals(1, i);
+    }
+
+    @Test
+    public void testConversions() {
+        SparseColDoubleMatrix sparse = new SparseColDoubleMatrix(matArr);
+        CscDoubleMatrix mat = new CscDoubleMatrix(sparse);
+        assertMatrixEquals(matArr, toArray(mat));
+        assertMatrixEquals(matArr, toArray(mat.toSparseColDoubleMatrix()));
+        assertMatrixEquals(matArr, toArray(mat.toCsr()));
+
+        double[][] expected = toArray(new DenseDoubleMatrix(matArr).viewTranspose());
+        assertMatrixEquals(expected, toArray(mat.transpose()));
+        assertMatrixEquals(expected, toArray(mat.viewTranspose()));
+        assertSame(mat.getValues(), mat.viewTranspose().getValues());
+    }
+
+    @Test
+    public void testMult() {
+        Random rand = new Random(9001);
+        double[][] aArr = getRandomArray(37, 23, 0.7, rand);
+        double[][] bArr = getRandomArray(23, 29, 0.7, rand);
+        double[][] expected = naiveMult(aArr, bArr);
+        CscDoubleMatrix aMat = new CscDoubleMatrix(aArr);
+
+        assertMatrixEquals(expected, aMat.mult(new DenseDoubleMatrix(bArr)).getMatrix());
+        assertMatrixEquals(expected, toArray(aMat.mult(new CscDoubleMatrix(bArr))));
+        assertMatrixEquals(expected, toArray(aMat.mult(new CsrDoubleMatrix(bArr))));
+
+        double[][] x = getRandomArray(23, 1, 0.0, rand);
+        double[] y = new double[37];
+        aMat.multVector(column(x), y);
+        assertArrayEquals(column(naiveMult(aArr, x)), y, 1e-10);
+        double[][] xt = getRandomArray(37, 1, 0.0, rand);
+        double[] yt = new double[23];
+        aMat.multTransposeVector(column(xt), yt);
+        assertArrayEquals(column(naiveMult(toArray(aMat.viewTranspose()), xt)), yt, 1e-10);
+    }
+
+}
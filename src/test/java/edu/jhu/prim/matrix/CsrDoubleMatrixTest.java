@@ -0,0 +1,237 @@
+package edu.jhu.prim.matrix;
+
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.assertMatrixEquals;
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.getRandomArray;
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.naiveMult;
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.naiveMultVector;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import edu.jhu.prim.map.IntDoubleEntry;
+
+public class CsrDoubleMatrixTest {
+
+    // 3 x 4 matrix.
+    private static final double[][] matArr = new double[][]{ {0, 2, 0, 3}, {0, 0, 0, 0}, {5, 0, 7, 0} };
+
+    @Test
+    public void testArrays() {
+        CsrDoubleMatrix mat = new CsrDoubleMatrix(matArr);
+        assertEquals(3, mat.getNumRows());
+        assertEquals(4, mat.getNumColumns());
+        assertEquals(4, mat.getNumNonZeros());
+        assertArrayEquals(new int[]{0, 2, 2, 4}, mat.getRowPtr());
+        assertArrayEquals(new int[]{1, 3, 0, 2}, mat.getColIdx());
+        assertArrayEquals(new double[]{2, 3, 5, 7}, mat.getValues(), 1e-13);
+        assertMatrixEquals(matArr, toArray(mat));
+
+        int i = 0;
+        for (IntDoubleEntry e : mat.getRowEntries(2)) {
+            assertEquals(i == 0 ? 0 : 2, e.index());
+            assertEquals(i == 0 ? 5 : 7, e.get(), 1e-13);
+            i++;
+        }
+        assertEquals(2, i);
+        assertEquals(false, mat.getRowEntries(1).iterator().hasNext());
+    }
+
+    @Test
+    public void testInvalidArrays() {
+        try {
+            // Columns out of order.
+            new CsrDoubleMatrix(1, 3, new int[]{0, 2}, new int[]{2, 1}, new double[]{1, 1});
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+        try {
+            // Column out of range.
+            new CsrDoubleMatrix(1, 3, new int[]{0, 1}, new int[]{3}, new double[]{1});
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testImmutable() {
+        CsrDoubleMatrix mat = new CsrDoubleMatrix(matArr);
+        try {
+            mat.set(0, 0, 1);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testTranspose() {
+        CsrDoubleMatrix mat = new CsrDoubleMatrix(matArr);
+        double[][] expected = toArray(new DenseDoubleMatrix(matArr).viewTranspose());
+
+        CsrDoubleMatrix trans = mat.transpose();
+        assertMatrixEquals(expected, toArray(trans));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, trans.getRowPtr());
+        assertArrayEquals(new int[]{2, 0, 2, 0}, trans.getColIdx());
+
+        CscDoubleMatrix view = mat.viewTranspose();
+        assertMatrixEquals(expected, toArray(view));
+        assertSame(mat.getValues(), view.getValues());
+        assertSame(mat, view.viewTranspose());
+
+        CscDoubleMatrix csc = mat.toCsc();
+        assertMatrixEquals(matArr, toArray(csc));
+        assertMatrixEquals(matArr, toArray(csc.toCsr()));
+    }
+
+    @Test
+    public void testSparseRowConversion() {
+        SparseRowDoubleMatrix sparse = new SparseRowDoubleMatrix(matArr);
+        CsrDoubleMatrix mat = new CsrDoubleMatrix(sparse);
+        assertMatrixEquals(matArr, toArray(mat));
+        assertMatrixEquals(matArr, toArray(mat.toSparseRowDoubleMatrix()));
+        assertEquals(2, mat.getRowVector(0).getUsed());
+    }
+
+    @Test
+    public void testMultVector() {
+        Random rand = new Random(9001);
+        double[][] aArr = getRandomArray(37, 23, 0.7, rand);
+        CsrDoubleMatrix mat = new CsrDoubleMatrix(aArr);
+        double[][] x = getRandomArray(23, 1, 0.0, rand);
+        double[][] xt = getRandomArray(37, 1, 0.0, rand);
+        double[][] expected = naiveMult(aArr, x);
+        double[][] expectedT = naiveMult(toArray(new DenseDoubleMatrix(aArr).viewTranspose()), xt);
+
+        double[] y = new double[37];
+        mat.multVector(column(x), y);
+        assertArrayEquals(column(expected), y, 1e-10);
+        double[] yt = new double[23];
+        mat.multTransposeVector(column(xt), yt);
+        assertArrayEquals(column(expectedT), yt, 1e-10);
+        try {
+            mat.multVector(column(xt), y);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testParallelMultVector() {
+        Random rand = new Random(9001);
+        double[][] aArr = DenseDoubleMatrixTest.getPowerLawArray(2000, 1000, 60000, rand);
+        double[] x = getRandomArray(1, 1000, 0.0, rand)[0];
+        double[] xt = getRandomArray(1, 2000, 0.0, rand)[0];
+        CsrDoubleMatrix aMat = new CsrDoubleMatrix(aArr);
+        CscDoubleMatrix atMat = aMat.viewTranspose();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            double[] y = new double[2000];
+            aMat.parallelMultVector(x, y, pool);
+            assertArrayEquals(naiveMultVector(aArr, x, false), y, 1e-10);
+            y = new double[2000];
+            atMat.parallelMultTransposeVector(x, y, pool);
+            assertArrayEquals(naiveMultVector(aArr, x, false), y, 1e-10);
+            double[] yt = new double[1000];
+            atMat.multVector(xt, yt);
+            assertArrayEquals(naiveMultVector(aArr, xt, true), yt, 1e-10);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetBalancedBounds() {
+        // Uniform rows are split evenly.
+        int[] rowPtr = new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8};
+        assertArrayEquals(new int[]{0, 2, 4, 6, 8}, DoubleMatrixKernels.getBalancedBounds(rowPtr, 4));
+        // A heavy first row gets a block to itself, and the light rows share one.
+        rowPtr = new int[]{0, 100, 101, 102, 103, 104, 200};
+        assertArrayEquals(new int[]{0, 1, 6}, DoubleMatrixKernels.getBalancedBounds(rowPtr, 4));
+        // Empty rows at the end are included in the last block.
+        rowPtr = new int[]{0, 4, 8, 8, 8};
+        assertArrayEquals(new int[]{0, 1, 4}, DoubleMatrixKernels.getBalancedBounds(rowPtr, 2));
+        // A block starts at the first of several rows with the same start.
+        rowPtr = new int[]{0, 4, 4, 4, 4, 4, 8};
+        assertArrayEquals(new int[]{0, 1, 6}, DoubleMatrixKernels.getBalancedBounds(rowPtr, 2));
+        assertArrayEquals(new int[]{0, 1, 6}, DoubleMatrixKernels.getBalancedBounds(rowPtr, 4));
+        rowPtr = new int[]{0, 0, 0, 2, 2, 2, 4};
+        assertArrayEquals(new int[]{0, 3, 6}, DoubleMatrixKernels.getBalancedBounds(rowPtr, 2));
+        // An empty matrix is a single empty block.
+        assertArrayEquals(new int[]{0, 0}, DoubleMatrixKernels.getBalancedBounds(new int[]{0}, 4));
+    }
+
+    @Test
+    public void testMultDense() {
+        Random rand = new Random(9001);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            int[][] shapes = new int[][]{ {1, 1, 1}, {5, 3, 7}, {301, 257, 130} };
+            for (int[] shape : shapes) {
+                double[][] aArr = getRandomArray(shape[0], shape[1], 0.8, rand);
+                double[][] bArr = getRandomArray(shape[1], shape[2], 0.0, rand);
+                double[][] expected = naiveMult(aArr, bArr);
+                CsrDoubleMatrix aMat = new CsrDoubleMatrix(aArr);
+                DenseDoubleMatrix bMat = new DenseDoubleMatrix(bArr);
+                assertMatrixEquals(expected, aMat.mult(bMat).getMatrix());
+                DenseDoubleMatrix cMat = new DenseDoubleMatrix(getRandomArray(shape[0], shape[2], 0.0, rand));
+                aMat.mult(bMat, cMat, pool);
+                assertMatrixEquals(expected, cMat.getMatrix());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMultSparse() {
+        Random rand = new Random(9001);
+        int[][] shapes = new int[][]{ {1, 1, 1}, {5, 3, 7}, {61, 47, 53} };
+        for (int[] shape : shapes) {
+            double[][] aArr = getRandomArray(shape[0], shape[1], 0.9, rand);
+            double[][] bArr = getRandomArray(shape[1], shape[2], 0.9, rand);
+            double[][] expected = naiveMult(aArr, bArr);
+            CsrDoubleMatrix aMat = new CsrDoubleMatrix(aArr);
+            CsrDoubleMatrix cMat = aMat.mult(new CsrDoubleMatrix(bArr));
+            assertMatrixEquals(expected, toArray(cMat));
+            assertMatrixEquals(expected, toArray(aMat.mult(new CscDoubleMatrix(bArr))));
+            // No explicit zeros.
+            for (int p = 0; p < cMat.getNumNonZeros(); p++) {
+                assertEquals(true, cMat.getValues()[p] != 0);
+            }
+        }
+        // Entries which cancel are dropped.
+        CsrDoubleMatrix aMat = new CsrDoubleMatrix(new double[][]{ {1, 1} });
+        CsrDoubleMatrix bMat = new CsrDoubleMatrix(new double[][]{ {1, 2}, {-1, 3} });
+        CsrDoubleMatrix cMat = aMat.mult(bMat);
+        assertArrayEquals(new int[]{1}, cMat.getColIdx());
+        assertArrayEquals(new double[]{5}, cMat.getValues(), 1e-13);
+    }
+
+    static double[][] toArray(DoubleMatrix mat) {
+        double[][] arr = new double[mat.getNumRows()][mat.getNumColumns()];
+        for (int row = 0; row < mat.getNumRows(); row++) {
+            for (int col = 0; col < mat.getNumColumns(); col++) {
+                arr[row][col] = mat.get(row, col);
+            }
+        }
+        return arr;
+    }
+
+    static double[] column(double[][] arr) {
+        double[] col = new double[arr.length];
+        for (int row = 0; row < arr.length; row++) {
+            col[row] = arr[row][0];
+        }
+        return col;
+    }
+
+}
@@ -1,6 +1,12 @@
 package edu.jhu.prim.matrix;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 
@@ -46,4 +52,145 @@ public class DenseDoubleMatrixTest {
         DoubleJUnitUtils.assertArrayEquals(cMatArr, cMat.getMatrix(), 1e-13);
     }
 
+    @Test
+    public void testMultMatchesNaiveAcrossTiles() {
+        Random rand = new Random(9001);
+        // Sizes which are not multiples of the tile or register block sizes.
+        int[][] shapes = new int[][]{ {1, 1, 1}, {5, 3, 7}, {37, 301, 261}, {130, 7, 3}, {3, 515, 2} };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int[] shape : shapes) {
+                double[][] aMatArr = getRandomArray(shape[0], shape[1], 0.0, rand);
+                double[][] bMatArr = getRandomArray(shape[1], shape[2], 0.0, rand);
+                double[][] expected = naiveMult(aMatArr, bMatArr);
+                DenseDoubleMatrix aMat = new DenseDoubleMatrix(aMatArr);
+                DenseDoubleMatrix bMat = new DenseDoubleMatrix(bMatArr);
+
+                assertMatrixEquals(expected, aMat.mult(bMat).getMatrix());
+                // C is overwritten, not added to.
+                DenseDoubleMatrix cMat = new DenseDoubleMatrix(getRandomArray(shape[0], shape[2], 0.0, rand));
+                aMat.mult(bMat, cMat, pool);
+                assertMatrixEquals(expected, cMat.getMatrix());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMultWithSparseColMatchesNaive() {
+        Random rand = new Random(9001);
+        int[][] shapes = new int[][]{ {1, 1, 1}, {5, 3, 7}, {301, 257, 130}, {2, 515, 3} };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int[] shape : shapes) {
+                double[][] aMatArr = getRandomArray(shape[0], shape[1], 0.0, rand);
+                double[][] bMatArr = getRandomArray(shape[1], shape[2], 0.8, rand);
+                double[][] expected = naiveMult(aMatArr, bMatArr);
+                DenseDoubleMatrix aMat = new DenseDoubleMatrix(aMatArr);
+                SparseColDoubleMatrix bMat = new SparseColDoubleMatrix(bMatArr);
+
+                assertMatrixEquals(expected, aMat.mult(bMat).getMatrix());
+                DenseDoubleMatrix cMat = new DenseDoubleMatrix(shape[0], shape[2]);
+                aMat.mult(bMat, cMat, pool);
+                assertMatrixEquals(expected, cMat.getMatrix());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMultVector() {
+        Random rand = new Random(9001);
+        // Large enough to be split across threads.
+        double[][] aArr = getRandomArray(600, 500, 0.0, rand);
+        double[] x = getRandomArray(1, 500, 0.0, rand)[0];
+        double[] xt = getRandomArray(1, 600, 0.0, rand)[0];
+        DenseDoubleMatrix aMat = new DenseDoubleMatrix(aArr);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            double[] y = new double[600];
+            aMat.multVector(x, y);
+            assertArrayEquals(naiveMultVector(aArr, x, false), y, 1e-10);
+            y = new double[600];
+            aMat.parallelMultVector(x, y, pool);
+            assertArrayEquals(naiveMultVector(aArr, x, false), y, 1e-10);
+            double[] yt = new double[500];
+            aMat.multTransposeVector(xt, yt);
+            assertArrayEquals(naiveMultVector(aArr, xt, true), yt, 1e-10);
+            yt = new double[500];
+            aMat.viewTranspose().multVector(xt, yt);
+            assertArrayEquals(naiveMultVector(aArr, xt, true), yt, 1e-10);
+        } finally {
+            pool.shutdown();
+        }
+        try {
+            aMat.multVector(xt, new double[600]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+    /** Gets a random matrix in which each entry is zero with the given probability. */
+    static double[][] getRandomArray(int numRows, int numCols, double probZero, Random rand) {
+        double[][] arr = new double[numRows][numCols];
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numCols; col++) {
+                arr[row][col] = rand.nextDouble() < probZero ? 0.0 : rand.nextDouble() - 0.5;
+            }
+        }
+        return arr;
+    }
+
+    /**
+     * Gets a random matrix whose row lengths follow a power law: row i has
+     * about scale / (i + 1) non-zeros, up to the number of columns.
+     */
+    static double[][] getPowerLawArray(int numRows, int numCols, double scale, Random rand) {
+        double[][] arr = new double[numRows][numCols];
+        for (int row = 0; row < numRows; row++) {
+            int nnz = (int) Math.min(numCols, scale / (row + 1) + 1);
+            for (int i = 0; i < nnz; i++) {
+                arr[row][rand.nextInt(numCols)] = rand.nextDouble() - 0.5;
+            }
+        }
+        return arr;
+    }
+
+    /** Checks each row with JUnit's assert, which only builds a message on failure. */
+    static void assertMatrixEquals(double[][] expected, double[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int row = 0; row < expected.length; row++) {
+            assertArrayEquals(expected[row], actual[row], 1e-10);
+        }
+    }
+
+    static double[][] naiveMult(double[][] a, double[][] b) {
+        double[][] c = new double[a.length][b[0].length];
+        for (int row = 0; row < a.length; row++) {
+            for (int col = 0; col < b[0].length; col++) {
+                for (int i = 0; i < b.length; i++) {
+                    c[row][col] += a[row][i] * b[i][col];
+                }
+            }
+        }
+        return c;
+    }
+
+    static double[] naiveMultVector(double[][] a, double[] x, boolean transposeA) {
+        double[] y = new double[transposeA ? a[0].length : a.length];
+        for (int row = 0; row < a.length; row++) {
+            for (int col = 0; col < a[0].length; col++) {
+                if (transposeA) {
+                    y[col] += a[row][col] * x[row];
+                } else {
+                    y[row] += a[row][col] * x[col];
+                }
+            }
+        }
+        return y;
+    }
+
 }
@@ -0,0 +1,205 @@
+package edu.jhu.prim.matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import edu.jhu.prim.map.IntDoubleEntry;
+import edu.jhu.prim.util.DoubleJUnitUtils;
+import edu.jhu.prim.vector.IntDoubleDenseVector;
+import edu.jhu.prim.vector.IntDoubleVectorSlice;
+
+public class FlatDoubleMatrixTest {
+
+    // 3 x 4 matrix.
+    private static final double[][] matArr = new double[][]{ {1, 2, 3, 4}, {5, 6, 7, 8}, {9, 10, 11, 12} };
+
+    @Test
+    public void testRowMajorLayout() {
+        FlatDoubleMatrix mat = new FlatDoubleMatrix(matArr);
+        assertEquals(3, mat.getNumRows());
+        assertEquals(4, mat.getNumColumns());
+        assertTrue(mat.isContiguous());
+        assertArrayEquals(new double[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, mat.getInternalElements(), 1e-13);
+        assertEquals(7, mat.get(1, 2), 1e-13);
+        mat.increment(1, 2, 3);
+        mat.decrement(0, 0, 1);
+        assertEquals(10, mat.getInternalElements()[6], 1e-13);
+        assertEquals(0, mat.get(0, 0), 1e-13);
+        DoubleJUnitUtils.assertArrayEquals(new FlatDoubleMatrix(mat).toNativeArray(), mat.toNativeArray(), 1e-13);
+    }
+
+    @Test
+    public void testInvalidIndex() {
+        FlatDoubleMatrix mat = new FlatDoubleMatrix(matArr).viewBlock(0, 0, 2, 2);
+        try {
+            // In range for the array, but not for the block.
+            mat.get(0, 2);
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+        try {
+            new FlatDoubleMatrix(new double[5], 2, 3);
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testViewsShareStorage() {
+        FlatDoubleMatrix mat = new FlatDoubleMatrix(matArr);
+
+        FlatDoubleMatrix row = mat.viewRow(1);
+        assertEquals(1, row.getNumRows());
+        assertEquals(6, row.get(0, 1), 1e-13);
+
+        FlatDoubleMatrix col = mat.viewColumn(2);
+        assertEquals(3, col.getNumRows());
+        assertEquals(1, col.getNumColumns());
+        assertEquals(11, col.get(2, 0), 1e-13);
+
+        FlatDoubleMatrix block = mat.viewBlock(1, 1, 2, 3);
+        assertFalse(block.isContiguous());
+        DoubleJUnitUtils.assertArrayEquals(new double[][]{ {6, 7, 8}, {10, 11, 12} }, block.toNativeArray(), 1e-13);
+
+        FlatDoubleMatrix trans = mat.viewTranspose();
+        assertEquals(4, trans.getNumRows());
+        assertEquals(3, trans.getNumColumns());
+        assertEquals(8, trans.get(3, 1), 1e-13);
+        // The transpose of a block of the transpose.
+        DoubleJUnitUtils.assertArrayEquals(block.toNativeArray(),
+                trans.viewBlock(1, 1, 3, 2).viewTranspose().toNativeArray(), 1e-13);
+
+        // Writes through a view show up in the matrix.
+        block.set(1, 0, -10);
+        trans.set(0, 2, -9);
+        col.set(0, 0, -3);
+        row.set(0, 0, -5);
+        DoubleJUnitUtils.assertArrayEquals(new double[][]{ {1, 2, -3, 4}, {-5, 6, 7, 8}, {-9, -10, 11, 12} },
+                mat.toNativeArray(), 1e-13);
+    }
+
+    @Test
+    public void testFill() {
+        FlatDoubleMatrix mat = new FlatDoubleMatrix(matArr);
+        mat.viewBlock(0, 1, 2, 2).fill(0);
+        mat.viewColumn(3).fill(-1);
+        mat.viewRow(2).viewBlock(0, 0, 1, 1).fill(2);
+        DoubleJUnitUtils.assertArrayEquals(new double[][]{ {1, 0, 0, -1}, {5, 0, 0, -1}, {2, 10, 11, -1} },
+                mat.toNativeArray(), 1e-13);
+        mat.fill(3);
+        for (double v : mat.getInternalElements()) {
+            assertEquals(3, v, 1e-13);
+        }
+    }
+
+    @Test
+    public void testSet() {
+        FlatDoubleMatrix mat = new FlatDoubleMatrix(3, 4);
+        // Contiguous to contiguous.
+        mat.set(new FlatDoubleMatrix(matArr));
+        DoubleJUnitUtils.assertArrayEquals(matArr, mat.toNativeArray(), 1e-13);
+        // Row by row.
+        FlatDoubleMatrix block = new FlatDoubleMatrix(3, 4).viewBlock(1, 1, 2, 3);
+        block.set(mat.viewBlock(0, 0, 2, 3));
+        DoubleJUnitUtils.assertArrayEquals(new double[][]{ {1, 2, 3}, {5, 6, 7} }, block.toNativeArray(), 1e-13);
+        // Entry by entry.
+        FlatDoubleMatrix trans = new FlatDoubleMatrix(4, 3);
+        trans.set(mat.viewTranspose());
+        DoubleJUnitUtils.assertArrayEquals(new double[][]{ {1, 5, 9}, {2, 6, 10}, {3, 7, 11}, {4, 8, 12} },
+                trans.toNativeArray(), 1e-13);
+        // Other types of matrix.
+        mat.fill(0);
+        mat.set(new DenseDoubleMatrix(matArr));
+        DoubleJUnitUtils.assertArrayEquals(matArr, mat.toNativeArray(), 1e-13);
+        DoubleJUnitUtils.assertArrayEquals(matArr, new FlatDoubleMatrix(new SparseColDoubleMatrix(matArr)).toNativeArray(), 1e-13);
+        try {
+            mat.set(trans);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testRowVectors() {
+        FlatDoubleMatrix mat = new FlatDoubleMatrix(matArr);
+
+        IntDoubleVectorSlice slice = mat.getRowSlice(1);
+        assertEquals(4, slice.getNumImplicitEntries());
+        assertEquals(7, slice.get(2), 1e-13);
+        slice.set(2, 70);
+        assertEquals(70, mat.get(1, 2), 1e-13);
+        assertEquals(8, mat.viewBlock(0, 1, 3, 3).getRowSlice(1).get(2), 1e-13);
+        try {
+            mat.viewTranspose().getRowSlice(0);
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+
+        IntDoubleDenseVector row = mat.getRow(2);
+        row.set(0, -9);
+        assertEquals(9, mat.get(2, 0), 1e-13);
+        assertArrayEquals(new double[]{3, 70, 11}, mat.viewTranspose().getRow(2).toNativeArray(), 1e-13);
+
+        mat.setRow(0, new IntDoubleDenseVector(new double[]{-1, -2}));
+        mat.viewTranspose().setRow(3, new IntDoubleDenseVector(new double[]{40, 80, 120, 160}));
+        DoubleJUnitUtils.assertArrayEquals(new double[][]{ {-1, -2, 0, 40}, {5, 6, 70, 80}, {9, 10, 11, 120} },
+                mat.toNativeArray(), 1e-13);
+
+        FlatDoubleMatrix fromRows = new FlatDoubleMatrix(new IntDoubleDenseVector[]{ mat.getRow(0), mat.getRow(1), mat.getRow(2) });
+        DoubleJUnitUtils.assertArrayEquals(mat.toNativeArray(), fromRows.toNativeArray(), 1e-13);
+    }
+
+    @Test
+    public void testGetRowEntries() {
+        FlatDoubleMatrix mat = new FlatDoubleMatrix(new double[][]{ {0, 2, 0, 4}, {0, 0, 0, 0}, {9, 0, 11, 0} });
+        assertRowEntries(new int[]{1, 3}, new double[]{2, 4}, mat.getRowEntries(0));
+        assertRowEntries(new int[]{}, new double[]{}, mat.getRowEntries(1));
+        assertRowEntries(new int[]{0, 2}, new double[]{9, 11}, mat.getRowEntries(2));
+        assertRowEntries(new int[]{2}, new double[]{9}, mat.viewTranspose().getRowEntries(0));
+    }
+
+    @Test
+    public void testMultVector() {
+        double[][] arr = new double[][]{ {1, 2, 3}, {4, 5, 6} };
+        FlatDoubleMatrix mat = new FlatDoubleMatrix(arr);
+        double[] y = new double[2];
+        mat.multVector(new double[]{1, 0, -1}, y);
+        assertArrayEquals(new double[]{-2, -2}, y, 1e-13);
+        double[] yt = new double[3];
+        mat.multTransposeVector(new double[]{1, 2}, yt);
+        assertArrayEquals(new double[]{9, 12, 15}, yt, 1e-13);
+        // The strided transpose view gives the same products, swapped.
+        yt = new double[3];
+        mat.viewTranspose().multVector(new double[]{1, 2}, yt);
+        assertArrayEquals(new double[]{9, 12, 15}, yt, 1e-13);
+        y = new double[2];
+        mat.viewBlock(0, 1, 2, 2).multVector(new double[]{1, -1}, y);
+        assertArrayEquals(new double[]{-1, -1}, y, 1e-13);
+        try {
+            mat.multVector(new double[2], y);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+    private static void assertRowEntries(int[] expectedIdx, double[] expectedVals, Iterable<IntDoubleEntry> entries) {
+        int i = 0;
+        for (IntDoubleEntry e : entries) {
+            assertEquals(expectedIdx[i], e.index());
+            assertEquals(expectedVals[i], e.get(), 1e-13);
+            i++;
+        }
+        assertEquals(expectedIdx.length, i);
+    }
+
+}
@@ -0,0 +1,182 @@
+package edu.jhu.prim.matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import edu.jhu.prim.map.IntIntEntry;
+import edu.jhu.prim.vector.IntIntDenseVector;
+import edu.jhu.prim.vector.IntIntVectorSlice;
+
+public class FlatIntegerMatrixTest {
+
+    // 3 x 4 matrix.
+    private static final int[][] matArr = new int[][]{ {1, 2, 3, 4}, {5, 6, 7, 8}, {9, 10, 11, 12} };
+
+    @Test
+    public void testRowMajorLayout() {
+        FlatIntegerMatrix mat = new FlatIntegerMatrix(matArr);
+        assertEquals(3, mat.getNumRows());
+        assertEquals(4, mat.getNumColumns());
+        assertTrue(mat.isContiguous());
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, mat.getInternalElements());
+        assertEquals(7, mat.get(1, 2));
+        mat.increment(1, 2, 3);
+        mat.decrement(0, 0, 1);
+        mat.increment(2, 3);
+        mat.increment(2, 3);
+        mat.decrement(2, 3);
+        assertEquals(13, mat.get(2, 3));
+        assertEquals(10, mat.getInternalElements()[6]);
+        assertEquals(0, mat.get(0, 0));
+        assertArrayEquals(new FlatIntegerMatrix(mat).toNativeArray(), mat.toNativeArray());
+    }
+
+    @Test
+    public void testInvalidIndex() {
+        FlatIntegerMatrix mat = new FlatIntegerMatrix(matArr).viewBlock(0, 0, 2, 2);
+        try {
+            // In range for the array, but not for the block.
+            mat.get(0, 2);
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+        try {
+            new FlatIntegerMatrix(new int[5], 2, 3);
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testViewsShareStorage() {
+        FlatIntegerMatrix mat = new FlatIntegerMatrix(matArr);
+
+        FlatIntegerMatrix row = mat.viewRow(1);
+        assertEquals(1, row.getNumRows());
+        assertEquals(6, row.get(0, 1));
+
+        FlatIntegerMatrix col = mat.viewColumn(2);
+        assertEquals(3, col.getNumRows());
+        assertEquals(1, col.getNumColumns());
+        assertEquals(11, col.get(2, 0));
+
+        FlatIntegerMatrix block = mat.viewBlock(1, 1, 2, 3);
+        assertFalse(block.isContiguous());
+        assertArrayEquals(new int[][]{ {6, 7, 8}, {10, 11, 12} }, block.toNativeArray());
+
+        FlatIntegerMatrix trans = mat.viewTranspose();
+        assertEquals(4, trans.getNumRows());
+        assertEquals(3, trans.getNumColumns());
+        assertEquals(8, trans.get(3, 1));
+        // The transpose of a block of the transpose.
+        assertArrayEquals(block.toNativeArray(),
+                trans.viewBlock(1, 1, 3, 2).viewTranspose().toNativeArray());
+
+        // Writes through a view show up in the matrix.
+        block.set(1, 0, -10);
+        trans.set(0, 2, -9);
+        col.set(0, 0, -3);
+        row.set(0, 0, -5);
+        assertArrayEquals(new int[][]{ {1, 2, -3, 4}, {-5, 6, 7, 8}, {-9, -10, 11, 12} },
+                mat.toNativeArray());
+    }
+
+    @Test
+    public void testFill() {
+        FlatIntegerMatrix mat = new FlatIntegerMatrix(matArr);
+        mat.viewBlock(0, 1, 2, 2).fill(0);
+        mat.viewColumn(3).fill(-1);
+        mat.viewRow(2).viewBlock(0, 0, 1, 1).fill(2);
+        assertArrayEquals(new int[][]{ {1, 0, 0, -1}, {5, 0, 0, -1}, {2, 10, 11, -1} },
+                mat.toNativeArray());
+        mat.fill(3);
+        for (int v : mat.getInternalElements()) {
+            assertEquals(3, v);
+        }
+    }
+
+    @Test
+    public void testSet() {
+        FlatIntegerMatrix mat = new FlatIntegerMatrix(3, 4);
+        // Contiguous to contiguous.
+        mat.set(new FlatIntegerMatrix(matArr));
+        assertArrayEquals(matArr, mat.toNativeArray());
+        // Row by row.
+        FlatIntegerMatrix block = new FlatIntegerMatrix(3, 4).viewBlock(1, 1, 2, 3);
+        block.set(mat.viewBlock(0, 0, 2, 3));
+        assertArrayEquals(new int[][]{ {1, 2, 3}, {5, 6, 7} }, block.toNativeArray());
+        // Entry by entry.
+        FlatIntegerMatrix trans = new FlatIntegerMatrix(4, 3);
+        trans.set(mat.viewTranspose());
+        assertArrayEquals(new int[][]{ {1, 5, 9}, {2, 6, 10}, {3, 7, 11}, {4, 8, 12} },
+                trans.toNativeArray());
+        // Other types of matrix.
+        mat.fill(0);
+        mat.set(new DenseIntegerMatrix(matArr));
+        assertArrayEquals(matArr, mat.toNativeArray());
+        try {
+            mat.set(trans);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testRowVectors() {
+        FlatIntegerMatrix mat = new FlatIntegerMatrix(matArr);
+
+        IntIntVectorSlice slice = mat.getRowSlice(1);
+        assertEquals(4, slice.getNumImplicitEntries());
+        assertEquals(7, slice.get(2));
+        slice.set(2, 70);
+        assertEquals(70, mat.get(1, 2));
+        assertEquals(8, mat.viewBlock(0, 1, 3, 3).getRowSlice(1).get(2));
+        try {
+            mat.viewTranspose().getRowSlice(0);
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+
+        IntIntDenseVector row = mat.getRow(2);
+        row.set(0, -9);
+        assertEquals(9, mat.get(2, 0));
+        assertArrayEquals(new int[]{3, 70, 11}, mat.viewTranspose().getRow(2).toNativeArray());
+
+        mat.setRow(0, new IntIntDenseVector(new int[]{-1, -2}));
+        mat.viewTranspose().setRow(3, new IntIntDenseVector(new int[]{40, 80, 120, 160}));
+        assertArrayEquals(new int[][]{ {-1, -2, 0, 40}, {5, 6, 70, 80}, {9, 10, 11, 120} },
+                mat.toNativeArray());
+
+        FlatIntegerMatrix fromRows = new FlatIntegerMatrix(new IntIntDenseVector[]{ mat.getRow(0), mat.getRow(1), mat.getRow(2) });
+        assertArrayEquals(mat.toNativeArray(), fromRows.toNativeArray());
+    }
+
+    @Test
+    public void testGetRowEntries() {
+        FlatIntegerMatrix mat = new FlatIntegerMatrix(new int[][]{ {0, 2, 0, 4}, {0, 0, 0, 0}, {9, 0, 11, 0} });
+        assertRowEntries(new int[]{1, 3}, new int[]{2, 4}, mat.getRowEntries(0));
+        assertRowEntries(new int[]{}, new int[]{}, mat.getRowEntries(1));
+        assertRowEntries(new int[]{0, 2}, new int[]{9, 11}, mat.getRowEntries(2));
+        assertRowEntries(new int[]{2}, new int[]{9}, mat.viewTranspose().getRowEntries(0));
+    }
+
+    private static void assertRowEntries(int[] expectedIdx, int[] expectedVals, Iterable<IntIntEntry> entries) {
+        int i = 0;
+        for (IntIntEntry e : entries) {
+            assertEquals(expectedIdx[i], e.index());
+            assertEquals(expectedVals[i], e.get());
+            i++;
+        }
+        assertEquals(expectedIdx.length, i);
+    }
+
+}
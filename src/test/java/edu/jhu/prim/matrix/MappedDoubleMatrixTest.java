@@ -0,0 +1,254 @@
+package edu.jhu.prim.matrix;
+
+import static edu.jhu.prim.matrix.CsrDoubleMatrixTest.toArray;
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.assertMatrixEquals;
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.getRandomArray;
+import static edu.jhu.prim.matrix.DenseDoubleMatrixTest.naiveMultVector;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.jhu.prim.map.IntDoubleEntry;
+import edu.jhu.prim.matrix.MappedDoubleMatrix.ElementType;
+
+public class MappedDoubleMatrixTest {
+
+    // Each row is 5 * 8 bytes, so 3 rows fit in each buffer.
+    private static final int SEGMENT_BYTES = 120;
+
+    @Test
+    public void testCreateAndOpen() throws IOException {
+        double[][] arr = getRandomArray(10, 5, 0.3, new Random(9001));
+        File file = File.createTempFile("mapped", ".mat");
+        file.deleteOnExit();
+        try {
+            MappedDoubleMatrix mat = MappedDoubleMatrix.create(file, 10, 5, ElementType.FLOAT64, SEGMENT_BYTES);
+            assertFalse(mat.isReadOnly());
+            assertEquals(0.0, mat.get(9, 4), 0.0);
+            mat.set(new DenseDoubleMatrix(arr));
+            mat.flush();
+            assertMatrixEquals(arr, toArray(mat));
+
+            MappedDoubleMatrix mapped = MappedDoubleMatrix.open(file, true, SEGMENT_BYTES);
+            assertTrue(mapped.isReadOnly());
+            assertEquals(10, mapped.getNumRows());
+            assertEquals(5, mapped.getNumColumns());
+            assertEquals(ElementType.FLOAT64, mapped.getElementType());
+            assertMatrixEquals(arr, toArray(mapped));
+            assertMatrixEquals(arr, toArray(MappedDoubleMatrix.openReadOnly(file)));
+            try {
+                mapped.set(0, 0, 1.0);
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+            try {
+                mapped.viewRowDoubles(4).put(0, 1.0);
+                fail("Expected ReadOnlyBufferException");
+            } catch (ReadOnlyBufferException e) {
+                // pass
+            }
+            try {
+                mapped.get(0, 5);
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+
+            // Writes through a read-write view reach the file.
+            MappedDoubleMatrix rw = MappedDoubleMatrix.open(file, false, SEGMENT_BYTES);
+            DoubleBuffer row = rw.viewRowDoubles(4);
+            assertEquals(5, row.remaining());
+            assertEquals(arr[4][2], row.get(2), 0.0);
+            row.put(2, 7.0);
+            rw.increment(9, 4, 1.0);
+            rw.flush();
+            MappedDoubleMatrix reopened = MappedDoubleMatrix.openReadOnly(file);
+            assertEquals(7.0, reopened.get(4, 2), 0.0);
+            assertEquals(arr[9][4] + 1.0, reopened.get(9, 4), 1e-13);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        double[][] arr = getRandomArray(10, 5, 0.3, new Random(9001));
+        File file = File.createTempFile("mapped", ".mat");
+        file.deleteOnExit();
+        try {
+            MappedDoubleMatrix mat = MappedDoubleMatrix.create(file, 10, 5, ElementType.FLOAT64, SEGMENT_BYTES);
+            mat.set(new DenseDoubleMatrix(arr));
+            // Closing flushes the changes, and closing twice has no effect.
+            mat.close();
+            mat.close();
+            try {
+                mat.get(0, 0);
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+            try {
+                mat.getRow(0, new double[5], 0);
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+
+            MappedDoubleMatrix mapped = MappedDoubleMatrix.openReadOnly(file);
+            assertMatrixEquals(arr, toArray(mapped));
+            mapped.close();
+            try {
+                mapped.viewRowDoubles(0);
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+
+            // Once unmapped, the file can be deleted and replaced.
+            assertTrue(file.delete());
+            MappedDoubleMatrix.create(file, 2, 3, ElementType.FLOAT32).close();
+            MappedDoubleMatrix replaced = MappedDoubleMatrix.openReadOnly(file);
+            assertEquals(2, replaced.getNumRows());
+            assertEquals(3, replaced.getNumColumns());
+            assertEquals(0.0, replaced.get(1, 2), 0.0);
+            replaced.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testFloat32() throws IOException {
+        double[][] arr = getRandomArray(10, 5, 0.3, new Random(9001));
+        File file = File.createTempFile("mapped", ".mat");
+        file.deleteOnExit();
+        try {
+            MappedDoubleMatrix.create(file, new DenseDoubleMatrix(arr), ElementType.FLOAT32).flush();
+            assertEquals(64 + 10 * 5 * 4, file.length());
+            MappedDoubleMatrix mat = MappedDoubleMatrix.open(file, true, SEGMENT_BYTES / 2);
+            assertEquals(ElementType.FLOAT32, mat.getElementType());
+            for (int row=0; row<10; row++) {
+                for (int col=0; col<5; col++) {
+                    assertEquals((float) arr[row][col], mat.get(row, col), 0.0);
+                }
+            }
+            FloatBuffer row = mat.viewRowFloats(7);
+            assertEquals(5, row.remaining());
+            assertEquals((float) arr[7][3], row.get(3), 0.0);
+            try {
+                mat.viewRowDoubles(7);
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testGatherRows() throws IOException {
+        double[][] arr = getRandomArray(10, 5, 0.3, new Random(9001));
+        int[] rows = new int[]{ 9, 0, 4, 4, 5 };
+        for (ElementType type : ElementType.values()) {
+            File file = File.createTempFile("mapped", ".mat");
+            file.deleteOnExit();
+            try {
+                MappedDoubleMatrix mat = MappedDoubleMatrix.create(file, 10, 5, type, SEGMENT_BYTES / 2);
+                mat.set(new DenseDoubleMatrix(arr));
+                double[] batch = new double[2 + rows.length * 5];
+                mat.gatherRows(rows, batch, 2);
+                float[] floatBatch = new float[rows.length * 5];
+                mat.gatherRows(rows, floatBatch, 0);
+                for (int i=0; i<rows.length; i++) {
+                    for (int col=0; col<5; col++) {
+                        assertEquals(mat.get(rows[i], col), batch[2 + i * 5 + col], 0.0);
+                        assertEquals((float) arr[rows[i]][col], floatBatch[i * 5 + col], 0.0);
+                    }
+                }
+                try {
+                    mat.gatherRows(rows, new double[rows.length * 5], 1);
+                    fail("Expected IllegalArgumentException");
+                } catch (IllegalArgumentException e) {
+                    // pass
+                }
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testRowEntriesAndMultVector() throws IOException {
+        Random rand = new Random(9001);
+        double[][] arr = getRandomArray(10, 5, 0.5, rand);
+        double[] x = getRandomArray(1, 5, 0.0, rand)[0];
+        double[] xt = getRandomArray(1, 10, 0.0, rand)[0];
+        File file = File.createTempFile("mapped", ".mat");
+        file.deleteOnExit();
+        try {
+            MappedDoubleMatrix.create(file, new DenseDoubleMatrix(arr), ElementType.FLOAT64).flush();
+            MappedDoubleMatrix mat = MappedDoubleMatrix.open(file, true, SEGMENT_BYTES);
+            for (int row=0; row<10; row++) {
+                double[] vals = new double[5];
+                for (IntDoubleEntry e : mat.getRowEntries(row)) {
+                    assertTrue(e.get() != 0);
+                    vals[e.index()] = e.get();
+                }
+                assertArrayEquals(arr[row], vals, 0.0);
+            }
+            double[] y = new double[10];
+            mat.multVector(x, y);
+            assertArrayEquals(naiveMultVector(arr, x, false), y, 1e-10);
+            double[] yt = new double[5];
+            mat.viewTranspose().multVector(xt, yt);
+            assertArrayEquals(naiveMultVector(arr, xt, true), yt, 1e-10);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testOpenInvalidFile() throws IOException {
+        File file = File.createTempFile("mapped", ".mat");
+        file.deleteOnExit();
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[100]);
+            out.close();
+            try {
+                MappedDoubleMatrix.openReadOnly(file);
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // pass
+            }
+            // A file whose length does not match its header.
+            MappedDoubleMatrix.create(file, 10, 5, ElementType.FLOAT64);
+            out = new FileOutputStream(file, true);
+            out.write(new byte[8]);
+            out.close();
+            try {
+                MappedDoubleMatrix.openReadWrite(file);
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // pass
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -1,7 +1,10 @@
 package edu.jhu.prim.matrix;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import edu.jhu.prim.util.DoubleJUnitUtils;
@@ -96,5 +99,69 @@ public class SparseColDoubleMatrixTest {
         DoubleJUnitUtils.assertArrayEquals(abMatArr, cMat.getMatrix(), 1e-13);
     }
 
+    @Test
+    public void testMultTWithDenseMatchesNaive() {
+        Random rand = new Random(9001);
+        // Each shape is {rows of A^T, cols of A^T, cols of B}.
+        int[][] shapes = new int[][]{ {1, 1, 1}, {5, 3, 7}, {301, 257, 130}, {2, 515, 3}, {130, 7, 301} };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int[] shape : shapes) {
+                double[][] atMatArr = DenseDoubleMatrixTest.getRandomArray(shape[0], shape[1], 0.8, rand);
+                double[][] bMatArr = DenseDoubleMatrixTest.getRandomArray(shape[1], shape[2], 0.0, rand);
+                double[][] expected = DenseDoubleMatrixTest.naiveMult(atMatArr, bMatArr);
+                SparseColDoubleMatrix aMat = new SparseColDoubleMatrix(transpose(atMatArr));
+                DenseDoubleMatrix bMat = new DenseDoubleMatrix(bMatArr);
+                DenseDoubleMatrix btMat = new DenseDoubleMatrix(transpose(bMatArr));
+
+                DenseDoubleMatrixTest.assertMatrixEquals(expected, aMat.multT(bMat, true, false).getMatrix());
+                DenseDoubleMatrixTest.assertMatrixEquals(expected, aMat.multT(btMat, true, true).getMatrix());
+                DenseDoubleMatrix cMat = new DenseDoubleMatrix(shape[0], shape[2]);
+                aMat.multT(bMat, cMat, true, false, pool);
+                DenseDoubleMatrixTest.assertMatrixEquals(expected, cMat.getMatrix());
+                cMat = new DenseDoubleMatrix(shape[0], shape[2]);
+                aMat.multT(btMat, cMat, true, true, pool);
+                DenseDoubleMatrixTest.assertMatrixEquals(expected, cMat.getMatrix());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMultVector() {
+        Random rand = new Random(9001);
+        // Power-law columns with enough non-zeros to be split across threads.
+        double[][] aArr = transpose(DenseDoubleMatrixTest.getPowerLawArray(2000, 1000, 60000, rand));
+        double[] x = DenseDoubleMatrixTest.getRandomArray(1, 2000, 0.0, rand)[0];
+        double[] xt = DenseDoubleMatrixTest.getRandomArray(1, 1000, 0.0, rand)[0];
+        double[] expected = DenseDoubleMatrixTest.naiveMultVector(aArr, x, false);
+        double[] expectedT = DenseDoubleMatrixTest.naiveMultVector(aArr, xt, true);
+        SparseColDoubleMatrix aMat = new SparseColDoubleMatrix(aArr);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            double[] y = new double[1000];
+            aMat.multVector(x, y);
+            Assert.assertArrayEquals(expected, y, 1e-10);
+            double[] yt = new double[2000];
+            aMat.multTransposeVector(xt, yt);
+            Assert.assertArrayEquals(expectedT, yt, 1e-10);
+            yt = new double[2000];
+            aMat.parallelMultTransposeVector(xt, yt, pool);
+            Assert.assertArrayEquals(expectedT, yt, 1e-10);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static double[][] transpose(double[][] arr) {
+        double[][] t = new double[arr[0].length][arr.length];
+        for (int row = 0; row < arr.length; row++) {
+            for (int col = 0; col < arr[0].length; col++) {
+                t[col][row] = arr[row][col];
+            }
+        }
+        return t;
+    }
 
 }
@@ -1,7 +1,10 @@
 package edu.jhu.prim.matrix;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import edu.jhu.prim.util.DoubleJUnitUtils;
@@ -27,6 +30,32 @@ public class SparseRowDoubleMatrixTest {
         DoubleJUnitUtils.assertArrayEquals(cMatArr, cMat.getMatrix(), 1e-13);
     }    
 
+    @Test
+    public void testMultVector() {
+        Random rand = new Random(9001);
+        // Power-law rows with enough non-zeros to be split across threads.
+        double[][] aArr = DenseDoubleMatrixTest.getPowerLawArray(2000, 1000, 60000, rand);
+        double[] x = DenseDoubleMatrixTest.getRandomArray(1, 1000, 0.0, rand)[0];
+        double[] xt = DenseDoubleMatrixTest.getRandomArray(1, 2000, 0.0, rand)[0];
+        double[] expected = DenseDoubleMatrixTest.naiveMultVector(aArr, x, false);
+        double[] expectedT = DenseDoubleMatrixTest.naiveMultVector(aArr, xt, true);
+        SparseRowDoubleMatrix aMat = new SparseRowDoubleMatrix(aArr);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            double[] y = new double[2000];
+            aMat.multVector(x, y);
+            Assert.assertArrayEquals(expected, y, 1e-10);
+            y = new double[2000];
+            aMat.parallelMultVector(x, y, pool);
+            Assert.assertArrayEquals(expected, y, 1e-10);
+            double[] yt = new double[1000];
+            aMat.multTransposeVector(xt, yt);
+            Assert.assertArrayEquals(expectedT, yt, 1e-10);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     @Test
     public void testMultWithSparseCol() {
         // 4 x 2 matrix.
@@ -126,8 +126,9 @@ public class DoubleSortTest {
         int size = 100;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                DoubleSort.numSwaps = 0;
+                stats.reset();
                 double[] index = new double[size];
                 for (int j=0; j<size; j++) {
                     index[j] = - (double) j;
@@ -138,18 +139,19 @@ public class DoubleSortTest {
                 }
                 assertTrue(DoubleSort.isSortedDesc(index));
                 timer.start();
-                DoubleSort.sortDesc(index);
+                DoubleSort.sortDesc(index, stats);
                 timer.stop();
                 assertTrue(DoubleSort.isSortedDesc(index));
             }
-            System.out.println("Num swaps: " + DoubleSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, DoubleSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                DoubleSort.numSwaps = 0;
+                stats.reset();
                 double[] index = new double[size];
                 for (int j=0; j<size; j++) {
                     index[j] = (double) j;
@@ -160,13 +162,13 @@ public class DoubleSortTest {
                 }
                 assertTrue(DoubleSort.isSortedAsc(index));                
                 timer.start();
-                DoubleSort.sortAsc(index);
+                DoubleSort.sortAsc(index, stats);
                 timer.stop();
                 assertTrue(DoubleSort.isSortedAsc(index));                
             }
-            System.out.println("Num swaps: " + DoubleSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, DoubleSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
     
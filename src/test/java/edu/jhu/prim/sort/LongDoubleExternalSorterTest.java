@@ -0,0 +1,142 @@
+package edu.jhu.prim.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.jhu.prim.list.DoubleArrayList;
+import edu.jhu.prim.list.LongArrayList;
+import edu.jhu.prim.util.Lambda;
+import edu.jhu.prim.util.Lambda.FnLongDoubleToVoid;
+import edu.jhu.prim.vector.LongDoubleSortedVector;
+
+public class LongDoubleExternalSorterTest {
+
+    private File tmpDir;
+
+    @Before
+    public void setUp() throws IOException {
+        tmpDir = Files.createTempDirectory("sorter").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : tmpDir.listFiles()) {
+            file.delete();
+        }
+        tmpDir.delete();
+    }
+
+    /** Collects the sorted stream. */
+    private static class Collector implements FnLongDoubleToVoid {
+        LongArrayList keys = new LongArrayList();
+        DoubleArrayList values = new DoubleArrayList();
+
+        @Override
+        public void call(long key, double val) {
+            keys.add(key);
+            values.add(val);
+        }
+    }
+
+    @Test
+    public void testSpilledRunsWithCombiner() throws IOException {
+        Random rand = new Random(9001);
+        LongDoubleExternalSorter sorter = new LongDoubleExternalSorter(1000, tmpDir, new Lambda.DoubleAdd());
+        HashMap<Long, Double> expected = new HashMap<Long, Double>();
+        for (int i=0; i<50000; i++) {
+            long key = rand.nextInt(5000) - 2500L;
+            double val = rand.nextInt(10);
+            sorter.add(key, val);
+            Double prev = expected.get(key);
+            expected.put(key, prev == null ? val : prev + val);
+        }
+        assertEquals(50000, sorter.getNumAdded());
+        assertTrue(sorter.getNumRuns() > 1);
+        assertTrue(tmpDir.listFiles().length > 1);
+
+        LongDoubleSortedVector vec = sorter.toSortedVector();
+        assertEquals(expected.size(), vec.getUsed());
+        for (Long key : expected.keySet()) {
+            assertEquals(expected.get(key), vec.get(key), 0);
+        }
+        // The run files are deleted once merged.
+        assertEquals(0, tmpDir.listFiles().length);
+    }
+
+    @Test
+    public void testCascadedMergeKeepsDuplicates() throws IOException {
+        Random rand = new Random(9001);
+        LongDoubleExternalSorter sorter = new LongDoubleExternalSorter(100, tmpDir, null);
+        sorter.setMaxFanIn(3);
+        double sum = 0;
+        for (int i=0; i<5000; i++) {
+            long key = rand.nextLong() % 100;
+            sorter.add(key, key);
+            sum += key;
+        }
+        // The last full buffer is only spilled when sorting.
+        assertEquals(49, sorter.getNumRuns());
+        Collector c = new Collector();
+        sorter.sort(c);
+        assertEquals(5000, c.keys.size());
+        double actual = 0;
+        for (int i=0; i<c.keys.size(); i++) {
+            if (i > 0) {
+                assertTrue(c.keys.get(i-1) <= c.keys.get(i));
+            }
+            assertEquals(c.keys.get(i), c.values.get(i), 0);
+            actual += c.values.get(i);
+        }
+        assertEquals(sum, actual, 1e-9);
+        assertEquals(0, tmpDir.listFiles().length);
+    }
+
+    @Test
+    public void testInMemory() throws IOException {
+        LongDoubleExternalSorter sorter = new LongDoubleExternalSorter(10);
+        sorter.add(5, 1);
+        sorter.add(-2, 2);
+        sorter.add(5, 3);
+        Collector c = new Collector();
+        sorter.sort(c);
+        assertEquals(0, sorter.getNumRuns());
+        assertEquals(3, c.keys.size());
+        assertEquals(-2, c.keys.get(0));
+        assertEquals(5, c.keys.get(1));
+        assertEquals(5, c.keys.get(2));
+        assertEquals(4, c.values.get(1) + c.values.get(2), 0);
+        try {
+            sorter.add(1, 1);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testDuplicatesWithoutCombinerRejectedBySortedVector() throws IOException {
+        LongDoubleExternalSorter sorter = new LongDoubleExternalSorter(2, tmpDir, null);
+        sorter.add(1, 1);
+        sorter.add(2, 2);
+        sorter.add(1, 3);
+        try {
+            sorter.toSortedVector();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // pass
+        }
+        assertEquals(0, tmpDir.listFiles().length);
+    }
+
+}
@@ -4,7 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -15,6 +18,14 @@ import edu.jhu.prim.util.DoubleJUnitUtils;
 import edu.jhu.prim.util.Timer;
 
 public class LongDoubleSortTest {
+
+    /** An explicit pool, so the parallel paths run even on a single-core machine. */
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
         
     /* ---------- Longs and Doubles --------------*/
     
@@ -205,8 +216,9 @@ public class LongDoubleSortTest {
         int size = Byte.MAX_VALUE;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                LongDoubleSort.numSwaps = 0;
+                stats.reset();
                 double[] values = new double[size];
                 long[] index = new long[size];
                 for (int j=0; j<size; j++) {
@@ -219,26 +231,27 @@ public class LongDoubleSortTest {
                 }
                 assertTrue(LongSort.isSortedDesc(index));
                 timer.start();
-                LongDoubleSort.sortIndexDesc(index, values);
+                LongDoubleSort.sortIndexDesc(index, values, stats);
                 timer.stop();     
                 assertTrue(LongSort.isSortedDesc(index));
-                assertEquals(0, LongDoubleSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(DoubleSort.isSortedDesc(values));
                 timer.start();
-                LongDoubleSort.sortValuesDesc(values, index);
+                LongDoubleSort.sortValuesDesc(values, index, stats);
                 timer.stop();
                 assertTrue(DoubleSort.isSortedDesc(values));
-                assertEquals(0, LongDoubleSort.numSwaps);   
+                assertEquals(0, stats.getNumSwaps());   
             }
-            System.out.println("Num swaps: " + LongDoubleSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, LongDoubleSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                LongDoubleSort.numSwaps = 0;
+                stats.reset();
                 double[] values = new double[size];
                 long[] index = new long[size];
                 for (int j=0; j<size; j++) {
@@ -251,22 +264,212 @@ public class LongDoubleSortTest {
                 }
                 assertTrue(LongSort.isSortedAsc(index));
                 timer.start();
-                LongDoubleSort.sortIndexAsc(index, values);
+                LongDoubleSort.sortIndexAsc(index, values, stats);
                 timer.stop();     
                 assertTrue(LongSort.isSortedAsc(index));
-                assertEquals(0, LongDoubleSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(DoubleSort.isSortedAsc(values));
                 timer.start();
-                LongDoubleSort.sortValuesAsc(values, index);
+                LongDoubleSort.sortValuesAsc(values, index, stats);
                 timer.stop();
                 assertTrue(DoubleSort.isSortedAsc(values));
-                assertEquals(0, LongDoubleSort.numSwaps);                
+                assertEquals(0, stats.getNumSwaps());                
             }
-            System.out.println("Num swaps: " + LongDoubleSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, LongDoubleSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
-    
+
+    /** Gets inputs which made the old rightmost-pivot quicksort quadratic, plus a random one. */
+    static long[][] getPatterns(int n) {
+        Random rand = new Random(9001);
+        long[][] patterns = new long[5][n];
+        for (int i=0; i<n; i++) {
+            patterns[0][i] = (long) (i / 10);
+            patterns[1][i] = (long) ((n - i) / 10);
+            patterns[2][i] = (long) (Math.min(i, n - i) / 10);
+            patterns[3][i] = (long) rand.nextInt(4);
+            patterns[4][i] = (long) rand.nextInt(100);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testSortIndexPatterns() {
+        for (long[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                long[] index = Arrays.copyOf(pattern, pattern.length);
+                double[] values = new double[index.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (double) i;
+                }
+                SortStats stats = new SortStats();
+                if (asc) {
+                    LongDoubleSort.sortIndexAsc(index, values, stats);
+                    assertTrue(LongSort.isSortedAsc(index));
+                } else {
+                    LongDoubleSort.sortIndexDesc(index, values, stats);
+                    assertTrue(LongSort.isSortedDesc(index));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) values[i]], index[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSortValuesPatterns() {
+        for (long[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                double[] values = new double[pattern.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (double) pattern[i];
+                }
+                long[] index = LongArrays.range(values.length);
+                SortStats stats = new SortStats();
+                if (asc) {
+                    LongDoubleSort.sortValuesAsc(values, index, stats);
+                    assertTrue(DoubleSort.isSortedAsc(values));
+                } else {
+                    LongDoubleSort.sortValuesDesc(values, index, stats);
+                    assertTrue(DoubleSort.isSortedDesc(values));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) index[i]], (long) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHeapsortFallback() {
+        for (long[] pattern : getPatterns(1000)) {
+            long[] index = Arrays.copyOf(pattern, pattern.length);
+            double[] values = new double[index.length];
+            for (int i=0; i<values.length; i++) {
+                values[i] = (double) i;
+            }
+            SortStats stats = new SortStats();
+            // A depth limit of zero sends the whole range straight to heapsort.
+            LongDoubleSort.introsortIndex(index, values, 0, index.length - 1, true, 0, stats);
+            assertEquals(1, stats.getNumHeapsorts());
+            assertTrue(LongSort.isSortedAsc(index));
+            for (int i=0; i<index.length; i++) {
+                assertEquals(pattern[(int) values[i]], index[i]);
+            }
+
+            double[] copy = new double[pattern.length];
+            for (int i=0; i<copy.length; i++) {
+                copy[i] = (double) pattern[i];
+            }
+            long[] idx = LongArrays.range(copy.length);
+            LongDoubleSort.introsortValues(copy, idx, 0, copy.length - 1, false, 0, null);
+            assertTrue(DoubleSort.isSortedDesc(copy));
+        }
+    }
+
+    @Test
+    public void testRadixSortAboveThreshold() {
+        Random rand = new Random(9001);
+        int n = 2 * LongDoubleSort.RADIX_SORT_THRESHOLD;
+        RadixSort.Scratch scratch = new RadixSort.Scratch();
+        for (boolean asc : new boolean[]{ true, false }) {
+            long[] index = new long[n];
+            double[] values = new double[n];
+            for (int i=0; i<n; i++) {
+                index[i] = (long) (rand.nextInt(1000000) - 500000);
+                values[i] = (double) (index[i] % 100);
+            }
+            SortStats stats = new SortStats();
+            if (asc) {
+                LongDoubleSort.sortIndexAsc(index, values, stats);
+                assertTrue(LongSort.isSortedAsc(index));
+            } else {
+                LongDoubleSort.sortIndexDesc(index, values, n, scratch);
+                assertTrue(LongSort.isSortedDesc(index));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals(index[i] % 100, (long) values[i]);
+            }
+            if (asc) {
+                assertEquals(1, stats.getNumRadixSorts());
+            }
+
+            double[] vals = new double[n];
+            for (int i=0; i<n; i++) {
+                vals[i] = (double) (rand.nextInt(100) - 50);
+            }
+            double[] orig = Arrays.copyOf(vals, n);
+            long[] idx = LongArrays.range(n);
+            if (asc) {
+                LongDoubleSort.sortValuesAsc(vals, idx, scratch);
+                assertTrue(DoubleSort.isSortedAsc(vals));
+            } else {
+                LongDoubleSort.sortValuesDesc(vals, idx);
+                assertTrue(DoubleSort.isSortedDesc(vals));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals((long) orig[(int) idx[i]], (long) vals[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexMatchesSequential() {
+        Random rand = new Random(9001);
+        int n = 3 * LongDoubleSort.PARALLEL_SORT_THRESHOLD + 7;
+        for (boolean asc : new boolean[]{ true, false }) {
+            for (int maxKey : new int[]{ 10, 1000000 }) {
+                long[] index = new long[n];
+                double[] values = new double[n];
+                for (int i=0; i<n; i++) {
+                    index[i] = (long) (rand.nextInt(maxKey) - maxKey / 2);
+                    values[i] = (double) (index[i] % 100);
+                }
+                long[] expected = Arrays.copyOf(index, n);
+                double[] expectedValues = Arrays.copyOf(values, n);
+                if (asc) {
+                    LongDoubleSort.sortIndexAsc(expected, expectedValues);
+                    LongDoubleSort.parallelSortIndexAsc(index, values, n, pool);
+                } else {
+                    LongDoubleSort.sortIndexDesc(expected, expectedValues);
+                    LongDoubleSort.parallelSortIndexDesc(index, values, n, pool);
+                }
+                Assert.assertArrayEquals(expected, index);
+                for (int i=0; i<n; i++) {
+                    assertEquals(index[i] % 100, (long) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexTopAndPresorted() {
+        int n = 2 * LongDoubleSort.PARALLEL_SORT_THRESHOLD;
+        long[] index = new long[n + 5];
+        double[] values = new double[n + 5];
+        for (int i=0; i<index.length; i++) {
+            index[i] = index.length - i;
+            values[i] = (double) (i % 100);
+        }
+        // Reverse-sorted prefix, with a tail which must be left alone.
+        LongDoubleSort.parallelSortIndexAsc(index, values, n, pool);
+        for (int i=0; i<n; i++) {
+            assertEquals((long) (i + 6), index[i]);
+            assertEquals((long) ((n - 1 - i) % 100), (long) values[i]);
+        }
+        assertEquals(5, (long) index[n]);
+        // Already sorted.
+        LongDoubleSort.parallelSortIndexAsc(index, values, n, pool);
+        assertTrue(LongSort.isSortedAsc(Arrays.copyOf(index, n)));
+        // Common pool.
+        LongDoubleSort.parallelSortIndexDesc(index, values);
+        assertTrue(LongSort.isSortedDesc(index));
+    }
+
 }
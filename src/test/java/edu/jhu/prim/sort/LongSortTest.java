@@ -125,8 +125,9 @@ public class LongSortTest {
         int size = Byte.MAX_VALUE;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                LongSort.numSwaps = 0;
+                stats.reset();
                 long[] index = new long[size];
                 for (int j=0; j<size; j++) {
                     index[j] = (long) -j;
@@ -137,18 +138,19 @@ public class LongSortTest {
                 }
                 assertTrue(LongSort.isSortedDesc(index));
                 timer.start();
-                LongSort.sortDesc(index);
+                LongSort.sortDesc(index, stats);
                 timer.stop();
                 assertTrue(LongSort.isSortedDesc(index));
             }
-            System.out.println("Num swaps: " + LongSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, LongSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                LongSort.numSwaps = 0;
+                stats.reset();
                 long[] index = new long[size];
                 for (int j=0; j<size; j++) {
                     index[j] = (long) j;
@@ -159,13 +161,13 @@ public class LongSortTest {
                 }
                 assertTrue(LongSort.isSortedAsc(index));                
                 timer.start();
-                LongSort.sortAsc(index);
+                LongSort.sortAsc(index, stats);
                 timer.stop();
                 assertTrue(LongSort.isSortedAsc(index));                
             }
-            System.out.println("Num swaps: " + LongSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, LongSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
 
@@ -184,4 +186,38 @@ public class LongSortTest {
         System.out.println(Arrays.toString(values));
         LongJUnitUtils.assertArrayEquals(new long[]{ 1, 3, 2, -1, 5}, values);
     }
+
+    /** Gets sorted, reversed, organ pipe, many duplicates and random inputs. */
+    private static long[][] getPatterns(int n) {
+        Random rand = new Random(9001);
+        long[][] patterns = new long[5][n];
+        for (int i=0; i<n; i++) {
+            patterns[0][i] = (long) (i / 10);
+            patterns[1][i] = (long) ((n - i) / 10);
+            patterns[2][i] = (long) (Math.min(i, n - i) / 10);
+            patterns[3][i] = (long) rand.nextInt(4);
+            patterns[4][i] = (long) rand.nextInt(100);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testQuicksortPatterns() {
+        for (long[] pattern : getPatterns(1000)) {
+            long[] asc = Arrays.copyOf(pattern, pattern.length);
+            SortStats stats = new SortStats();
+            LongSort.sortAsc(asc, stats);
+            assertTrue(LongSort.isSortedAsc(asc));
+            assertEquals(0, stats.getNumHeapsorts());
+
+            long[] desc = Arrays.copyOf(pattern, pattern.length);
+            LongSort.sortDesc(desc, stats);
+            assertTrue(LongSort.isSortedDesc(desc));
+
+            long[] heap = Arrays.copyOf(pattern, pattern.length);
+            LongSort.introsort(heap, 0, heap.length - 1, true, 0, stats);
+            assertTrue(LongSort.isSortedAsc(heap));
+            assertEquals(1, stats.getNumHeapsorts());
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package edu.jhu.prim.sort;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RadixSortTest {
+
+    @Test
+    public void testLongKeysWithPayloads() {
+        Random rand = new Random(9001);
+        RadixSort.Scratch scratch = new RadixSort.Scratch();
+        for (int n : new int[]{ 0, 1, 10, 1000, 10000 }) {
+            long[] keys = new long[n];
+            double[] values = new double[n];
+            int[] ids = new int[n];
+            for (int i=0; i<n; i++) {
+                keys[i] = rand.nextBoolean() ? rand.nextLong() : rand.nextInt(100) - 50;
+                values[i] = keys[i] * 0.5;
+                ids[i] = i;
+            }
+            long[] orig = keys.clone();
+            long[] expected = keys.clone();
+            Arrays.sort(expected);
+
+            int[] perm = RadixSort.sortAsc(keys, 0, n, scratch);
+            RadixSort.permute(values, 0, n, perm, scratch);
+            RadixSort.permute(ids, 0, n, perm, scratch);
+            assertArrayEquals(expected, keys);
+            for (int i=0; i<n; i++) {
+                assertEquals(keys[i] * 0.5, values[i], 0);
+                assertEquals(orig[ids[i]], keys[i]);
+                if (i > 0 && keys[i-1] == keys[i]) {
+                    // Stable.
+                    assertEquals(true, ids[i-1] < ids[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIntKeysSubrange() {
+        int[] keys = new int[]{ 9, 5, Integer.MAX_VALUE, -1, Integer.MIN_VALUE, 0, 3, -7 };
+        long[] payload = new long[]{ 0, 1, 2, 3, 4, 5, 6, 7 };
+        int[] perm = RadixSort.sortAsc(keys, 1, 7, null);
+        RadixSort.permute(payload, 1, 7, perm, null);
+        assertArrayEquals(new int[]{ 9, Integer.MIN_VALUE, -1, 0, 3, 5, Integer.MAX_VALUE, -7 }, keys);
+        assertArrayEquals(new long[]{ 0, 4, 3, 5, 6, 1, 2, 7 }, payload);
+    }
+
+    @Test
+    public void testDoubleKeys() {
+        double[] keys = new double[]{ 1.5, -0.0, Double.NEGATIVE_INFINITY, 0.0, -2.25, Double.MAX_VALUE,
+                Double.MIN_VALUE, -Double.MIN_VALUE, Double.POSITIVE_INFINITY, -1e300 };
+        float[] payload = new float[keys.length];
+        for (int i=0; i<keys.length; i++) {
+            payload[i] = (float) keys[i];
+        }
+        double[] expected = keys.clone();
+        Arrays.sort(expected);
+        int[] perm = RadixSort.sortAsc(keys, 0, keys.length, null);
+        RadixSort.permute(payload, 0, keys.length, perm, null);
+        assertArrayEquals(expected, keys, 0);
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(keys[4]));
+        for (int i=0; i<keys.length; i++) {
+            assertEquals((float) keys[i], payload[i], 0);
+        }
+    }
+
+    @Test
+    public void testFloatKeys() {
+        Random rand = new Random(9001);
+        float[] keys = new float[5000];
+        for (int i=0; i<keys.length; i++) {
+            keys[i] = (float) rand.nextGaussian() * 1000;
+        }
+        keys[0] = Float.NaN;
+        keys[1] = Float.NEGATIVE_INFINITY;
+        float[] expected = keys.clone();
+        Arrays.sort(expected);
+        RadixSort.sortAsc(keys, 0, keys.length, null);
+        assertArrayEquals(expected, keys, 0);
+    }
+
+    @Test
+    public void testShortKeys() {
+        short[] keys = new short[]{ 3, Short.MIN_VALUE, -1, Short.MAX_VALUE, 0, -300 };
+        short[] payload = keys.clone();
+        short[] expected = keys.clone();
+        Arrays.sort(expected);
+        int[] perm = RadixSort.sortAsc(keys, 0, keys.length, null);
+        RadixSort.permute(payload, 0, keys.length, perm, null);
+        assertArrayEquals(expected, keys);
+        assertArrayEquals(expected, payload);
+    }
+
+    @Test
+    public void testAllEqualKeys() {
+        long[] keys = new long[]{ 7, 7, 7, 7 };
+        int[] payload = new int[]{ 0, 1, 2, 3 };
+        int[] perm = RadixSort.sortAsc(keys, 0, keys.length, null);
+        RadixSort.permute(payload, 0, keys.length, perm, null);
+        assertArrayEquals(new int[]{ 0, 1, 2, 3 }, payload);
+    }
+
+    @Test
+    public void testInvalidRange() {
+        try {
+            RadixSort.sortAsc(new long[3], 2, 4, null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+}
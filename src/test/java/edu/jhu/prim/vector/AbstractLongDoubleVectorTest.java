@@ -7,6 +7,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Iterator;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -43,6 +44,108 @@ public abstract class AbstractLongDoubleVectorTest {
         assertEquals(11*5308 + 10*24 + 23*7, toInt(v1.dot(v2)));
     }
 
+    @Test
+    public void testDotProductAcrossTypesAndSizes() {
+        Random rand = new Random(9001);
+        int max = 4000;
+        // Covers the linear merge, galloping in either direction, and hash probing.
+        int[][] sizes = new int[][]{ {5, 5}, {5, 2000}, {2000, 5}, {300, 2000}, {2000, 2000}, {0, 100} };
+        for (int[] size : sizes) {
+            for (int t = 0; t < 4; t++) {
+                int[] x = new int[max];
+                int[] y = new int[max];
+                LongDoubleVector v1 = getLongDoubleVector();
+                LongDoubleVector v2;
+                if (t == 0) {
+                    v2 = new LongDoubleSortedVector();
+                } else if (t == 1) {
+                    v2 = new LongDoubleUnsortedVector();
+                } else if (t == 2) {
+                    v2 = new LongDoubleHashVector();
+                } else {
+                    v2 = new LongDoubleDenseVector();
+                }
+                addRandom(v1, x, size[0], rand);
+                addRandom(v2, y, size[1], rand);
+                int expected = 0;
+                for (int i = 0; i < max; i++) {
+                    expected += x[i] * y[i];
+                }
+                assertEquals(expected, toInt(v1.dot(v2)));
+                assertEquals(expected, toInt(v2.dot(v1)));
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryOpsAcrossTypes() {
+        Random rand = new Random(9001);
+        int max = 300;
+        for (int t = 0; t < 5; t++) {
+            for (int op = 0; op < 5; op++) {
+                int[] x = new int[max];
+                int[] y = new int[max];
+                LongDoubleVector v1 = getLongDoubleVector();
+                LongDoubleVector v2;
+                if (t == 0) {
+                    v2 = new LongDoubleSortedVector();
+                } else if (t == 1) {
+                    v2 = new LongDoubleUnsortedVector();
+                } else if (t == 2) {
+                    v2 = new LongDoubleHashVector();
+                } else if (t == 3) {
+                    v2 = new LongDoubleDenseVector();
+                } else {
+                    v2 = new LongDoubleVectorSlice(new double[max + 3], 3, max);
+                }
+                addRandom(v1, x, 100, rand);
+                addRandom(v2, y, 100, rand);
+                int[] expected = new int[max];
+                int dot = 0;
+                for (int i = 0; i < max; i++) {
+                    if (op == 0) {
+                        expected[i] = x[i] + y[i];
+                    } else if (op == 1) {
+                        expected[i] = x[i] - y[i];
+                    } else if (op == 2) {
+                        expected[i] = x[i] * y[i];
+                    } else if (op == 3) {
+                        expected[i] = x[i] + 3 * y[i];
+                    } else {
+                        expected[i] = x[i];
+                    }
+                    dot += x[i] * y[i];
+                }
+                if (op == 0) {
+                    v1.add(v2);
+                } else if (op == 1) {
+                    v1.subtract(v2);
+                } else if (op == 2) {
+                    v1.product(v2);
+                } else if (op == 3) {
+                    LongDoubleVectorKernels.axpy(toDouble(3), v2, v1);
+                } else {
+                    assertEquals(dot, toInt(LongDoubleVectorKernels.dot(v1, v2)));
+                    assertEquals(dot, toInt(LongDoubleVectorKernels.dot(v2, v1)));
+                }
+                for (int i = 0; i < max; i++) {
+                    assertEquals(expected[i], toInt(v1.get(i)));
+                    assertEquals(y[i], toInt(v2.get(i)));
+                }
+            }
+        }
+    }
+
+    /** Adds n random small values at random indices to both the vector and the array. */
+    private static void addRandom(LongDoubleVector v, int[] arr, int n, Random rand) {
+        for (int i = 0; i < n; i++) {
+            int idx = rand.nextInt(arr.length);
+            int val = 1 + rand.nextInt(9);
+            v.add(idx, toDouble(val));
+            arr[idx] += val;
+        }
+    }
+
     @Test
     public void testAdd() {
         LongDoubleVector v1 = getLongDoubleVector();
@@ -253,13 +356,17 @@ public abstract class AbstractLongDoubleVectorTest {
         idxs.add(3); vals.add(0);
         
         final MutableInt i = new MutableInt(0);
+        final boolean[] seen = new boolean[idxs.size()];
         
         v2.iterate(new FnLongDoubleToVoid() {           
             @Override
             public void call(long idx, double val) {
                 assertTrue(i.v < idxs.size()); // Failing here means we are iterating over too many entries.
-                assertEquals(idxs.get(i.v), idx, 1e-13);
-                assertEquals(vals.get(i.v), val, 1e-13);
+                int j = isIterationOrdered() ? i.v : idxs.lookupIndex(idx);
+                assertTrue(j >= 0 && !seen[j]);
+                seen[j] = true;
+                assertEquals(idxs.get(j), idx, 1e-13);
+                assertEquals(vals.get(j), val, 1e-13);
                 i.v++;
             }
         });
@@ -283,13 +390,17 @@ public abstract class AbstractLongDoubleVectorTest {
         idxs.add(3); vals.add(0);
 
         final MutableInt i = new MutableInt(0);
+        final boolean[] seen = new boolean[idxs.size()];
         
         v2.apply(new FnLongDoubleToDouble() {           
             @Override
             public double call(long idx, double val) {
                 assertTrue(i.v < idxs.size()); // Failing here means we are iterating over too many entries.
-                assertEquals(idxs.get(i.v), idx, 1e-13);
-                assertEquals(vals.get(i.v), val, 1e-13);
+                int j = isIterationOrdered() ? i.v : idxs.lookupIndex(idx);
+                assertTrue(j >= 0 && !seen[j]);
+                seen[j] = true;
+                assertEquals(idxs.get(j), idx, 1e-13);
+                assertEquals(vals.get(j), val, 1e-13);
                 i.v++;
                 return val;
             }
@@ -337,4 +448,9 @@ public abstract class AbstractLongDoubleVectorTest {
     
     protected abstract LongDoubleVector getLongDoubleVector();
 
+    /** Whether the vector iterates over its entries in order of their indices. */
+    protected boolean isIterationOrdered() {
+        return true;
+    }
+
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package edu.jhu.prim.vector;
 
 import static edu.jhu.prim.Primitives.toDouble;
+import static edu.jhu.prim.Primitives.toInt;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -81,5 +82,21 @@ public class LongDoubleDenseVectorTest extends AbstractLongDoubleVectorTest {
         // Did we iterate over the full expected set.
         assertEquals(i.v, idxs.size());
     }
-    
+
+    @Test
+    public void testAddHashGrows() {
+        // The largest index is within the capacity, but past the explicit entries.
+        LongDoubleDenseVector v = new LongDoubleDenseVector(10);
+        v.add(0, toDouble(1));
+        v.add(1, toDouble(2));
+        v.add(new LongDoubleHashVector(new long[]{ 5, 1, 3 }, new double[]{ toDouble(5), toDouble(1), toDouble(3) }));
+        assertEquals(6, v.getNumExplicitEntries());
+        assertEquals(3, toInt(v.get(1)));
+        assertEquals(3, toInt(v.get(3)));
+        assertEquals(5, toInt(v.get(5)));
+        v.add(new LongDoubleHashVector(new long[]{ 40 }, new double[]{ toDouble(4) }));
+        assertEquals(41, v.getNumExplicitEntries());
+        assertEquals(4, toInt(v.get(40)));
+    }
+
 }    
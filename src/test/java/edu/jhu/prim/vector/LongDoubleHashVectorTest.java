@@ -7,5 +7,10 @@ public class LongDoubleHashVectorTest extends AbstractLongDoubleVectorTest {
     protected LongDoubleVector getLongDoubleVector() {
         return new LongDoubleHashVector();
     }
+
+    @Override
+    protected boolean isIterationOrdered() {
+        return false;
+    }
     
 }    
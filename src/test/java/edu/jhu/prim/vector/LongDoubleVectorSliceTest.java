@@ -136,6 +136,54 @@ public class LongDoubleVectorSliceTest {
         assertEquals(3, toInt(v1.get(4)));
     }
 
+    @Test
+    public void testAddOutOfBoundsLeavesSliceUnchanged() {
+        LongDoubleVectorSlice v = new LongDoubleVectorSlice(new double[5], 1, 3);
+        try {
+            v.add(new LongDoubleUnsortedVector(new long[]{ 0, 3, 1 },
+                    new double[]{ toDouble(1), toDouble(1), toDouble(1) }));
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+        for (int i=0; i<3; i++) {
+            assertEquals(0, toInt(v.get(i)));
+        }
+    }
+
+    @Test
+    public void testVectorOps() {
+        double[] elements = new double[]{ 1, 2, 3, 4, 5, 6 };
+        LongDoubleVectorSlice v1 = new LongDoubleVectorSlice(elements, 1, 4);
+        LongDoubleSortedVector v2 = new LongDoubleSortedVector();
+        v2.set(0, toDouble(10));
+        v2.set(3, toDouble(30));
+        LongDoubleUnsortedVector v3 = new LongDoubleUnsortedVector();
+        v3.add(3, toDouble(2));
+        v3.add(1, toDouble(3));
+
+        v1.add(v2);
+        assertEquals(12, toInt(v1.get(0)));
+        assertEquals(35, toInt(v1.get(3)));
+        v1.subtract(new LongDoubleDenseVector(new double[]{ 2, 3, 4 }));
+        v1.product(v3);
+        assertEquals(1, toInt(elements[0]));
+        assertEquals(0, toInt(v1.get(0)));
+        assertEquals(0, toInt(v1.get(1)));
+        assertEquals(0, toInt(v1.get(2)));
+        assertEquals(70, toInt(v1.get(3)));
+        assertEquals(6, toInt(elements[5]));
+
+        // Entries beyond the end of the slice can't be added.
+        v2.set(4, toDouble(1));
+        try {
+            v1.add(v2);
+            fail();
+        } catch(IllegalStateException e) {
+            // pass
+        }
+    }
+
     @Test
     public void testScale() {
         LongDoubleVector v1 = new LongDoubleDenseVector();
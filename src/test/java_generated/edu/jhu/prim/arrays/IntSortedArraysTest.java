@@ -0,0 +1,149 @@
+package edu.jhu.prim.arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.jhu.prim.list.IntArrayList;
+
+public class IntSortedArraysTest {
+
+    private static final int[] EMPTY = new int[0];
+
+    /** Gets a random sorted array of distinct values in [0, max). */
+    private static int[] getSet(Random rand, int n, int max) {
+        boolean[] in = new boolean[max];
+        for (int i = 0; i < n; i++) {
+            in[rand.nextInt(max)] = true;
+        }
+        IntArrayList list = new IntArrayList();
+        for (int v = 0; v < max; v++) {
+            if (in[v]) {
+                list.add(v - max / 2);
+            }
+        }
+        return list.toNativeArray();
+    }
+
+    /** Gets the values in [-max/2, max/2) whose count over the arrays satisfies the op. */
+    private static int[] brute(int[][] arrays, int max, String op) {
+        int[] counts = new int[max];
+        boolean[] inFirst = new boolean[max];
+        for (int s = 0; s < arrays.length; s++) {
+            for (int v : arrays[s]) {
+                counts[(int) v + max / 2]++;
+                if (s == 0) {
+                    inFirst[(int) v + max / 2] = true;
+                }
+            }
+        }
+        IntArrayList list = new IntArrayList();
+        for (int v = 0; v < max; v++) {
+            boolean keep;
+            if (op.equals("union")) {
+                keep = counts[v] > 0;
+            } else if (op.equals("intersect")) {
+                keep = counts[v] == arrays.length;
+            } else {
+                keep = inFirst[v] && counts[v] == 1;
+            }
+            if (keep) {
+                list.add(v - max / 2);
+            }
+        }
+        return list.toNativeArray();
+    }
+
+    @Test
+    public void testGallop() {
+        int[] a = new int[]{ -5, -2, 0, 3, 3, 8, 10, 11, 20, 40, 41 };
+        for (int from = 0; from <= a.length; from++) {
+            for (int key = -7; key <= 42; key++) {
+                int expected = from;
+                while (expected < a.length && a[expected] < key) {
+                    expected++;
+                }
+                assertEquals(expected, IntSortedArrays.gallop(a, from, a.length, key));
+            }
+        }
+        assertEquals(4, IntSortedArrays.gallop(a, 0, 4, 5));
+        assertEquals(2, IntSortedArrays.gallop(a, 2, 2, 5));
+    }
+
+    @Test
+    public void testTwoArraysAllSizeRatios() {
+        Random rand = new Random(9001);
+        IntArrayList out = new IntArrayList();
+        int max = 2000;
+        for (int trial = 0; trial < 200; trial++) {
+            // Covers the linear merge and galloping in either direction.
+            int[] a = getSet(rand, rand.nextBoolean() ? rand.nextInt(20) : rand.nextInt(max), max);
+            int[] b = getSet(rand, rand.nextBoolean() ? rand.nextInt(20) : rand.nextInt(max), max);
+            int[][] ab = new int[][]{ a, b };
+
+            out.clear();
+            IntSortedArrays.union(a, b, out);
+            assertArrayEquals(brute(ab, max, "union"), out.toNativeArray());
+
+            out.clear();
+            IntSortedArrays.intersect(a, b, out);
+            assertArrayEquals(brute(ab, max, "intersect"), out.toNativeArray());
+
+            out.clear();
+            IntSortedArrays.difference(a, b, out);
+            assertArrayEquals(brute(ab, max, "difference"), out.toNativeArray());
+        }
+    }
+
+    @Test
+    public void testManyArrays() {
+        Random rand = new Random(9001);
+        IntArrayList out = new IntArrayList();
+        int max = 500;
+        for (int k = 0; k <= 9; k++) {
+            for (int trial = 0; trial < 20; trial++) {
+                int[][] arrays = new int[k][];
+                for (int s = 0; s < k; s++) {
+                    int n = rand.nextInt(4) == 0 ? rand.nextInt(5) : 100 + rand.nextInt(max);
+                    arrays[s] = getSet(rand, n, max);
+                }
+                out.clear();
+                IntSortedArrays.union(arrays, out);
+                assertArrayEquals(brute(arrays, max, "union"), out.toNativeArray());
+
+                if (k > 0) {
+                    out.clear();
+                    IntSortedArrays.intersect(arrays, out);
+                    assertArrayEquals(brute(arrays, max, "intersect"), out.toNativeArray());
+
+                    out.clear();
+                    IntSortedArrays.difference(arrays[0], Arrays.copyOfRange(arrays, 1, k), out);
+                    assertArrayEquals(brute(arrays, max, "difference"), out.toNativeArray());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAppendsToOutput() {
+        IntArrayList out = new IntArrayList();
+        out.add(-1);
+        IntSortedArrays.union(new int[][]{ new int[]{ 1, 4 }, EMPTY, new int[]{ 2, 4 } }, out);
+        IntSortedArrays.intersect(new int[][]{ new int[]{ 1, 5 }, new int[]{ 5 }, new int[]{ 0, 5, 6 } }, out);
+        IntSortedArrays.difference(new int[]{ 3, 7 }, EMPTY, out);
+        assertArrayEquals(new int[]{ -1, 1, 2, 4, 5, 3, 7 }, out.toNativeArray());
+    }
+
+    @Test
+    public void testUnionOfEqualArrays() {
+        int[] a = new int[]{ 0, 1, 2 };
+        IntArrayList out = new IntArrayList();
+        IntSortedArrays.union(new int[][]{ a, a, a, a, a }, out);
+        assertArrayEquals(a, out.toNativeArray());
+    }
+
+}
@@ -0,0 +1,228 @@
+package edu.jhu.prim.io;
+
+import static edu.jhu.prim.Primitives.toDouble;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.junit.Test;
+
+import edu.jhu.prim.map.IntDoubleHashMap;
+import edu.jhu.prim.map.IntDoubleSortedMap;
+import edu.jhu.prim.map.IntHashStrategy;
+import edu.jhu.prim.vector.IntDoubleDenseVector;
+import edu.jhu.prim.vector.IntDoubleHashVector;
+import edu.jhu.prim.vector.IntDoubleSortedVector;
+import edu.jhu.prim.vector.IntDoubleUnsortedVector;
+
+public class IntDoubleBinaryCodecTest {
+
+    private static IntDoubleHashMap getMap() {
+        IntDoubleHashMap map = new IntDoubleHashMap(0, toDouble(-1));
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 1000 - 50000), toDouble(i));
+        }
+        map.remove(toInt(0));
+        return map;
+    }
+
+    private static void assertMapEquals(IntDoubleHashMap expected, IntDoubleHashMap actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(toInt(expected.getMissingEntries()), toInt(actual.getMissingEntries()));
+        for (int idx : expected.getIndices()) {
+            assertEquals(toInt(expected.get(idx)), toInt(actual.get(idx)));
+        }
+    }
+
+    private static DataInputStream toInput(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testHashMapRoundTrip() throws IOException {
+        for (boolean sorted : new boolean[]{ false, true }) {
+            IntDoubleHashMap map = getMap();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            IntDoubleBinaryCodec.write(map, new DataOutputStream(bytes), sorted);
+            assertMapEquals(map, IntDoubleBinaryCodec.readHashMap(toInput(bytes)));
+        }
+    }
+
+    @Test
+    public void testRoundTripWithRemovedEntries() throws IOException {
+        // Only the live entries are written, and the table is rebuilt without the removed ones.
+        IntDoubleHashMap map = new IntDoubleHashMap(0, toDouble(-1));
+        for (int i=0; i<1000; i++) {
+            map.put(toInt(i), toDouble(i));
+        }
+        for (int i=0; i<1000; i+=3) {
+            map.remove(toInt(i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntDoubleBinaryCodec.write(map, new DataOutputStream(bytes), false);
+        IntDoubleHashMap copy = IntDoubleBinaryCodec.readHashMap(toInput(bytes));
+        assertMapEquals(map, copy);
+        for (int i=0; i<1000; i+=3) {
+            assertEquals(false, copy.contains(toInt(i)));
+        }
+        // The record is the same size as one for a map which never held the removed entries.
+        ByteArrayOutputStream liveBytes = new ByteArrayOutputStream();
+        IntDoubleBinaryCodec.write(copy, new DataOutputStream(liveBytes), false);
+        assertEquals(liveBytes.size(), bytes.size());
+        copy.put(toInt(0), toDouble(7));
+        assertEquals(7, toInt(copy.get(toInt(0))));
+        assertEquals(map.size() + 1, copy.size());
+    }
+
+    @Test
+    public void testNonDefaultHashStrategy() throws IOException {
+        IntDoubleHashMap map = new IntDoubleHashMap(0, toDouble(-1), IntHashStrategy.Standard.IDENTITY);
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 1024), toDouble(i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntDoubleBinaryCodec.write(map, new DataOutputStream(bytes), false);
+        assertMapEquals(map, IntDoubleBinaryCodec.readHashMap(toInput(bytes)));
+    }
+
+    @Test
+    public void testSortedIsSmallerThanUnsortedAndObjectStream() throws IOException {
+        IntDoubleHashMap map = getMap();
+        ByteArrayOutputStream unsorted = new ByteArrayOutputStream();
+        IntDoubleBinaryCodec.write(map, new DataOutputStream(unsorted), false);
+        ByteArrayOutputStream sorted = new ByteArrayOutputStream();
+        IntDoubleBinaryCodec.write(map, new DataOutputStream(sorted), true);
+        ByteArrayOutputStream java = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(java);
+        oos.writeObject(map);
+        oos.close();
+        assertTrue(sorted.size() < unsorted.size());
+        assertTrue(unsorted.size() < java.size());
+    }
+
+    @Test
+    public void testSortedVectorRoundTrip() throws IOException {
+        IntDoubleSortedVector vec = new IntDoubleSortedVector(new int[]{ -5, 0, 3, 1000000 },
+                new double[]{ toDouble(1), toDouble(2), toDouble(3), toDouble(4) });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntDoubleBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntDoubleSortedVector copy = IntDoubleBinaryCodec.readSortedVector(toInput(bytes));
+        assertEquals(4, copy.getUsed());
+        assertEquals(1, toInt(copy.get(-5)));
+        assertEquals(4, toInt(copy.get(1000000)));
+    }
+
+    @Test
+    public void testSparseKindsAreInterchangeable() throws IOException {
+        IntDoubleHashMap map = getMap();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntDoubleBinaryCodec.write(map, new DataOutputStream(bytes), false);
+
+        IntDoubleSortedMap sortedMap = IntDoubleBinaryCodec.readSortedMap(toInput(bytes));
+        IntDoubleHashVector hashVec = IntDoubleBinaryCodec.readHashVector(toInput(bytes));
+        IntDoubleUnsortedVector unsortedVec = IntDoubleBinaryCodec.readUnsortedVector(toInput(bytes));
+        assertEquals(map.size(), sortedMap.size());
+        assertEquals(map.size(), hashVec.size());
+        for (int idx : map.getIndices()) {
+            assertEquals(toInt(map.get(idx)), toInt(sortedMap.get(idx)));
+            assertEquals(toInt(map.get(idx)), toInt(hashVec.get(idx)));
+            assertEquals(toInt(map.get(idx)), toInt(unsortedVec.get(idx)));
+        }
+    }
+
+    @Test
+    public void testUnsortedVectorRoundTrip() throws IOException {
+        IntDoubleUnsortedVector vec = new IntDoubleUnsortedVector();
+        vec.add(9, toDouble(1));
+        vec.add(2, toDouble(2));
+        vec.add(9, toDouble(3));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntDoubleBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntDoubleUnsortedVector copy = IntDoubleBinaryCodec.readUnsortedVector(toInput(bytes));
+        assertEquals(2, copy.getUsed());
+        assertEquals(4, toInt(copy.get(9)));
+        assertEquals(2, toInt(copy.get(2)));
+    }
+
+    @Test
+    public void testDenseVectorRoundTrip() throws IOException {
+        IntDoubleDenseVector vec = new IntDoubleDenseVector(new double[]{ toDouble(1), toDouble(0), toDouble(3) });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntDoubleBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntDoubleDenseVector copy = IntDoubleBinaryCodec.readDenseVector(toInput(bytes));
+        assertEquals(3, copy.getNumImplicitEntries());
+        assertEquals(1, toInt(copy.get(0)));
+        assertEquals(3, toInt(copy.get(2)));
+        try {
+            IntDoubleBinaryCodec.readHashMap(toInput(bytes));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testFileChannelRoundTrip() throws IOException {
+        File file = File.createTempFile("codec", ".bin");
+        file.deleteOnExit();
+        try {
+            IntDoubleHashMap map = getMap();
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                DataOutputStream out = IntDoubleBinaryCodec.newDataOutput(channel);
+                IntDoubleBinaryCodec.write(map, out, true);
+                IntDoubleBinaryCodec.write(map, out, false);
+                out.flush();
+                channel.position(0);
+                DataInputStream in = IntDoubleBinaryCodec.newDataInput(channel);
+                assertMapEquals(map, IntDoubleBinaryCodec.readHashMap(in));
+                assertMapEquals(map, IntDoubleBinaryCodec.readHashMap(in));
+            } finally {
+                raf.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testBadVersion() throws IOException {
+        for (int version : new int[]{ 0, IntDoubleBinaryCodec.VERSION + 1 }) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            IntDoubleBinaryCodec.write(getMap(), new DataOutputStream(bytes), true);
+            byte[] record = bytes.toByteArray();
+            // The version follows the 4-byte magic number.
+            record[4] = (byte) version;
+            try {
+                IntDoubleBinaryCodec.readHashMap(new DataInputStream(new ByteArrayInputStream(record)));
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void testBadMagic() {
+        try {
+            IntDoubleBinaryCodec.readHashMap(new DataInputStream(new ByteArrayInputStream(new byte[32])));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // pass
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package edu.jhu.prim.io;
+
+import static edu.jhu.prim.Primitives.toFloat;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.junit.Test;
+
+import edu.jhu.prim.map.IntFloatHashMap;
+import edu.jhu.prim.map.IntFloatSortedMap;
+import edu.jhu.prim.map.IntHashStrategy;
+import edu.jhu.prim.vector.IntFloatDenseVector;
+import edu.jhu.prim.vector.IntFloatHashVector;
+import edu.jhu.prim.vector.IntFloatSortedVector;
+import edu.jhu.prim.vector.IntFloatUnsortedVector;
+
+public class IntFloatBinaryCodecTest {
+
+    private static IntFloatHashMap getMap() {
+        IntFloatHashMap map = new IntFloatHashMap(0, toFloat(-1));
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 1000 - 50000), toFloat(i));
+        }
+        map.remove(toInt(0));
+        return map;
+    }
+
+    private static void assertMapEquals(IntFloatHashMap expected, IntFloatHashMap actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(toInt(expected.getMissingEntries()), toInt(actual.getMissingEntries()));
+        for (int idx : expected.getIndices()) {
+            assertEquals(toInt(expected.get(idx)), toInt(actual.get(idx)));
+        }
+    }
+
+    private static DataInputStream toInput(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testHashMapRoundTrip() throws IOException {
+        for (boolean sorted : new boolean[]{ false, true }) {
+            IntFloatHashMap map = getMap();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            IntFloatBinaryCodec.write(map, new DataOutputStream(bytes), sorted);
+            assertMapEquals(map, IntFloatBinaryCodec.readHashMap(toInput(bytes)));
+        }
+    }
+
+    @Test
+    public void testRoundTripWithRemovedEntries() throws IOException {
+        // Only the live entries are written, and the table is rebuilt without the removed ones.
+        IntFloatHashMap map = new IntFloatHashMap(0, toFloat(-1));
+        for (int i=0; i<1000; i++) {
+            map.put(toInt(i), toFloat(i));
+        }
+        for (int i=0; i<1000; i+=3) {
+            map.remove(toInt(i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntFloatBinaryCodec.write(map, new DataOutputStream(bytes), false);
+        IntFloatHashMap copy = IntFloatBinaryCodec.readHashMap(toInput(bytes));
+        assertMapEquals(map, copy);
+        for (int i=0; i<1000; i+=3) {
+            assertEquals(false, copy.contains(toInt(i)));
+        }
+        // The record is the same size as one for a map which never held the removed entries.
+        ByteArrayOutputStream liveBytes = new ByteArrayOutputStream();
+        IntFloatBinaryCodec.write(copy, new DataOutputStream(liveBytes), false);
+        assertEquals(liveBytes.size(), bytes.size());
+        copy.put(toInt(0), toFloat(7));
+        assertEquals(7, toInt(copy.get(toInt(0))));
+        assertEquals(map.size() + 1, copy.size());
+    }
+
+    @Test
+    public void testNonDefaultHashStrategy() throws IOException {
+        IntFloatHashMap map = new IntFloatHashMap(0, toFloat(-1), IntHashStrategy.Standard.IDENTITY);
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 1024), toFloat(i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntFloatBinaryCodec.write(map, new DataOutputStream(bytes), false);
+        assertMapEquals(map, IntFloatBinaryCodec.readHashMap(toInput(bytes)));
+    }
+
+    @Test
+    public void testSortedIsSmallerThanUnsortedAndObjectStream() throws IOException {
+        IntFloatHashMap map = getMap();
+        ByteArrayOutputStream unsorted = new ByteArrayOutputStream();
+        IntFloatBinaryCodec.write(map, new DataOutputStream(unsorted), false);
+        ByteArrayOutputStream sorted = new ByteArrayOutputStream();
+        IntFloatBinaryCodec.write(map, new DataOutputStream(sorted), true);
+        ByteArrayOutputStream java = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(java);
+        oos.writeObject(map);
+        oos.close();
+        assertTrue(sorted.size() < unsorted.size());
+        assertTrue(unsorted.size() < java.size());
+    }
+
+    @Test
+    public void testSortedVectorRoundTrip() throws IOException {
+        IntFloatSortedVector vec = new IntFloatSortedVector(new int[]{ -5, 0, 3, 1000000 },
+                new float[]{ toFloat(1), toFloat(2), toFloat(3), toFloat(4) });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntFloatBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntFloatSortedVector copy = IntFloatBinaryCodec.readSortedVector(toInput(bytes));
+        assertEquals(4, copy.getUsed());
+        assertEquals(1, toInt(copy.get(-5)));
+        assertEquals(4, toInt(copy.get(1000000)));
+    }
+
+    @Test
+    public void testSparseKindsAreInterchangeable() throws IOException {
+        IntFloatHashMap map = getMap();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntFloatBinaryCodec.write(map, new DataOutputStream(bytes), false);
+
+        IntFloatSortedMap sortedMap = IntFloatBinaryCodec.readSortedMap(toInput(bytes));
+        IntFloatHashVector hashVec = IntFloatBinaryCodec.readHashVector(toInput(bytes));
+        IntFloatUnsortedVector unsortedVec = IntFloatBinaryCodec.readUnsortedVector(toInput(bytes));
+        assertEquals(map.size(), sortedMap.size());
+        assertEquals(map.size(), hashVec.size());
+        for (int idx : map.getIndices()) {
+            assertEquals(toInt(map.get(idx)), toInt(sortedMap.get(idx)));
+            assertEquals(toInt(map.get(idx)), toInt(hashVec.get(idx)));
+            assertEquals(toInt(map.get(idx)), toInt(unsortedVec.get(idx)));
+        }
+    }
+
+    @Test
+    public void testUnsortedVectorRoundTrip() throws IOException {
+        IntFloatUnsortedVector vec = new IntFloatUnsortedVector();
+        vec.add(9, toFloat(1));
+        vec.add(2, toFloat(2));
+        vec.add(9, toFloat(3));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntFloatBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntFloatUnsortedVector copy = IntFloatBinaryCodec.readUnsortedVector(toInput(bytes));
+        assertEquals(2, copy.getUsed());
+        assertEquals(4, toInt(copy.get(9)));
+        assertEquals(2, toInt(copy.get(2)));
+    }
+
+    @Test
+    public void testDenseVectorRoundTrip() throws IOException {
+        IntFloatDenseVector vec = new IntFloatDenseVector(new float[]{ toFloat(1), toFloat(0), toFloat(3) });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntFloatBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntFloatDenseVector copy = IntFloatBinaryCodec.readDenseVector(toInput(bytes));
+        assertEquals(3, copy.getNumImplicitEntries());
+        assertEquals(1, toInt(copy.get(0)));
+        assertEquals(3, toInt(copy.get(2)));
+        try {
+            IntFloatBinaryCodec.readHashMap(toInput(bytes));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testFileChannelRoundTrip() throws IOException {
+        File file = File.createTempFile("codec", ".bin");
+        file.deleteOnExit();
+        try {
+            IntFloatHashMap map = getMap();
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                DataOutputStream out = IntFloatBinaryCodec.newDataOutput(channel);
+                IntFloatBinaryCodec.write(map, out, true);
+                IntFloatBinaryCodec.write(map, out, false);
+                out.flush();
+                channel.position(0);
+                DataInputStream in = IntFloatBinaryCodec.newDataInput(channel);
+                assertMapEquals(map, IntFloatBinaryCodec.readHashMap(in));
+                assertMapEquals(map, IntFloatBinaryCodec.readHashMap(in));
+            } finally {
+                raf.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testBadVersion() throws IOException {
+        for (int version : new int[]{ 0, IntFloatBinaryCodec.VERSION + 1 }) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            IntFloatBinaryCodec.write(getMap(), new DataOutputStream(bytes), true);
+            byte[] record = bytes.toByteArray();
+            // The version follows the 4-byte magic number.
+            record[4] = (byte) version;
+            try {
+                IntFloatBinaryCodec.readHashMap(new DataInputStream(new ByteArrayInputStream(record)));
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void testBadMagic() {
+        try {
+            IntFloatBinaryCodec.readHashMap(new DataInputStream(new ByteArrayInputStream(new byte[32])));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // pass
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package edu.jhu.prim.io;
+
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.junit.Test;
+
+import edu.jhu.prim.map.IntIntHashMap;
+import edu.jhu.prim.map.IntIntSortedMap;
+import edu.jhu.prim.map.IntHashStrategy;
+import edu.jhu.prim.vector.IntIntDenseVector;
+import edu.jhu.prim.vector.IntIntHashVector;
+import edu.jhu.prim.vector.IntIntSortedVector;
+import edu.jhu.prim.vector.IntIntUnsortedVector;
+
+public class IntIntBinaryCodecTest {
+
+    private static IntIntHashMap getMap() {
+        IntIntHashMap map = new IntIntHashMap(0, toInt(-1));
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 1000 - 50000), toInt(i));
+        }
+        map.remove(toInt(0));
+        return map;
+    }
+
+    private static void assertMapEquals(IntIntHashMap expected, IntIntHashMap actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(toInt(expected.getMissingEntries()), toInt(actual.getMissingEntries()));
+        for (int idx : expected.getIndices()) {
+            assertEquals(toInt(expected.get(idx)), toInt(actual.get(idx)));
+        }
+    }
+
+    private static DataInputStream toInput(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testHashMapRoundTrip() throws IOException {
+        for (boolean sorted : new boolean[]{ false, true }) {
+            IntIntHashMap map = getMap();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            IntIntBinaryCodec.write(map, new DataOutputStream(bytes), sorted);
+            assertMapEquals(map, IntIntBinaryCodec.readHashMap(toInput(bytes)));
+        }
+    }
+
+    @Test
+    public void testRoundTripWithRemovedEntries() throws IOException {
+        // Only the live entries are written, and the table is rebuilt without the removed ones.
+        IntIntHashMap map = new IntIntHashMap(0, toInt(-1));
+        for (int i=0; i<1000; i++) {
+            map.put(toInt(i), toInt(i));
+        }
+        for (int i=0; i<1000; i+=3) {
+            map.remove(toInt(i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntIntBinaryCodec.write(map, new DataOutputStream(bytes), false);
+        IntIntHashMap copy = IntIntBinaryCodec.readHashMap(toInput(bytes));
+        assertMapEquals(map, copy);
+        for (int i=0; i<1000; i+=3) {
+            assertEquals(false, copy.contains(toInt(i)));
+        }
+        // The record is the same size as one for a map which never held the removed entries.
+        ByteArrayOutputStream liveBytes = new ByteArrayOutputStream();
+        IntIntBinaryCodec.write(copy, new DataOutputStream(liveBytes), false);
+        assertEquals(liveBytes.size(), bytes.size());
+        copy.put(toInt(0), toInt(7));
+        assertEquals(7, toInt(copy.get(toInt(0))));
+        assertEquals(map.size() + 1, copy.size());
+    }
+
+    @Test
+    public void testNonDefaultHashStrategy() throws IOException {
+        IntIntHashMap map = new IntIntHashMap(0, toInt(-1), IntHashStrategy.Standard.IDENTITY);
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 1024), toInt(i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntIntBinaryCodec.write(map, new DataOutputStream(bytes), false);
+        assertMapEquals(map, IntIntBinaryCodec.readHashMap(toInput(bytes)));
+    }
+
+    @Test
+    public void testSortedIsSmallerThanUnsortedAndObjectStream() throws IOException {
+        IntIntHashMap map = getMap();
+        ByteArrayOutputStream unsorted = new ByteArrayOutputStream();
+        IntIntBinaryCodec.write(map, new DataOutputStream(unsorted), false);
+        ByteArrayOutputStream sorted = new ByteArrayOutputStream();
+        IntIntBinaryCodec.write(map, new DataOutputStream(sorted), true);
+        ByteArrayOutputStream java = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(java);
+        oos.writeObject(map);
+        oos.close();
+        assertTrue(sorted.size() < unsorted.size());
+        assertTrue(unsorted.size() < java.size());
+    }
+
+    @Test
+    public void testSortedVectorRoundTrip() throws IOException {
+        IntIntSortedVector vec = new IntIntSortedVector(new int[]{ -5, 0, 3, 1000000 },
+                new int[]{ toInt(1), toInt(2), toInt(3), toInt(4) });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntIntBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntIntSortedVector copy = IntIntBinaryCodec.readSortedVector(toInput(bytes));
+        assertEquals(4, copy.getUsed());
+        assertEquals(1, toInt(copy.get(-5)));
+        assertEquals(4, toInt(copy.get(1000000)));
+    }
+
+    @Test
+    public void testSparseKindsAreInterchangeable() throws IOException {
+        IntIntHashMap map = getMap();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntIntBinaryCodec.write(map, new DataOutputStream(bytes), false);
+
+        IntIntSortedMap sortedMap = IntIntBinaryCodec.readSortedMap(toInput(bytes));
+        IntIntHashVector hashVec = IntIntBinaryCodec.readHashVector(toInput(bytes));
+        IntIntUnsortedVector unsortedVec = IntIntBinaryCodec.readUnsortedVector(toInput(bytes));
+        assertEquals(map.size(), sortedMap.size());
+        assertEquals(map.size(), hashVec.size());
+        for (int idx : map.getIndices()) {
+            assertEquals(toInt(map.get(idx)), toInt(sortedMap.get(idx)));
+            assertEquals(toInt(map.get(idx)), toInt(hashVec.get(idx)));
+            assertEquals(toInt(map.get(idx)), toInt(unsortedVec.get(idx)));
+        }
+    }
+
+    @Test
+    public void testUnsortedVectorRoundTrip() throws IOException {
+        IntIntUnsortedVector vec = new IntIntUnsortedVector();
+        vec.add(9, toInt(1));
+        vec.add(2, toInt(2));
+        vec.add(9, toInt(3));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntIntBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntIntUnsortedVector copy = IntIntBinaryCodec.readUnsortedVector(toInput(bytes));
+        assertEquals(2, copy.getUsed());
+        assertEquals(4, toInt(copy.get(9)));
+        assertEquals(2, toInt(copy.get(2)));
+    }
+
+    @Test
+    public void testDenseVectorRoundTrip() throws IOException {
+        IntIntDenseVector vec = new IntIntDenseVector(new int[]{ toInt(1), toInt(0), toInt(3) });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntIntBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntIntDenseVector copy = IntIntBinaryCodec.readDenseVector(toInput(bytes));
+        assertEquals(3, copy.getNumImplicitEntries());
+        assertEquals(1, toInt(copy.get(0)));
+        assertEquals(3, toInt(copy.get(2)));
+        try {
+            IntIntBinaryCodec.readHashMap(toInput(bytes));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testFileChannelRoundTrip() throws IOException {
+        File file = File.createTempFile("codec", ".bin");
+        file.deleteOnExit();
+        try {
+            IntIntHashMap map = getMap();
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                DataOutputStream out = IntIntBinaryCodec.newDataOutput(channel);
+                IntIntBinaryCodec.write(map, out, true);
+                IntIntBinaryCodec.write(map, out, false);
+                out.flush();
+                channel.position(0);
+                DataInputStream in = IntIntBinaryCodec.newDataInput(channel);
+                assertMapEquals(map, IntIntBinaryCodec.readHashMap(in));
+                assertMapEquals(map, IntIntBinaryCodec.readHashMap(in));
+            } finally {
+                raf.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testBadVersion() throws IOException {
+        for (int version : new int[]{ 0, IntIntBinaryCodec.VERSION + 1 }) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            IntIntBinaryCodec.write(getMap(), new DataOutputStream(bytes), true);
+            byte[] record = bytes.toByteArray();
+            // The version follows the 4-byte magic number.
+            record[4] = (byte) version;
+            try {
+                IntIntBinaryCodec.readHashMap(new DataInputStream(new ByteArrayInputStream(record)));
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void testBadMagic() {
+        try {
+            IntIntBinaryCodec.readHashMap(new DataInputStream(new ByteArrayInputStream(new byte[32])));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // pass
+        }
+    }
+
+}
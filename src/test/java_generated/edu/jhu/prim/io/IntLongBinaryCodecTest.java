@@ -0,0 +1,228 @@
+package edu.jhu.prim.io;
+
+import static edu.jhu.prim.Primitives.toLong;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.junit.Test;
+
+import edu.jhu.prim.map.IntLongHashMap;
+import edu.jhu.prim.map.IntLongSortedMap;
+import edu.jhu.prim.map.IntHashStrategy;
+import edu.jhu.prim.vector.IntLongDenseVector;
+import edu.jhu.prim.vector.IntLongHashVector;
+import edu.jhu.prim.vector.IntLongSortedVector;
+import edu.jhu.prim.vector.IntLongUnsortedVector;
+
+public class IntLongBinaryCodecTest {
+
+    private static IntLongHashMap getMap() {
+        IntLongHashMap map = new IntLongHashMap(0, toLong(-1));
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 1000 - 50000), toLong(i));
+        }
+        map.remove(toInt(0));
+        return map;
+    }
+
+    private static void assertMapEquals(IntLongHashMap expected, IntLongHashMap actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(toInt(expected.getMissingEntries()), toInt(actual.getMissingEntries()));
+        for (int idx : expected.getIndices()) {
+            assertEquals(toInt(expected.get(idx)), toInt(actual.get(idx)));
+        }
+    }
+
+    private static DataInputStream toInput(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testHashMapRoundTrip() throws IOException {
+        for (boolean sorted : new boolean[]{ false, true }) {
+            IntLongHashMap map = getMap();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            IntLongBinaryCodec.write(map, new DataOutputStream(bytes), sorted);
+            assertMapEquals(map, IntLongBinaryCodec.readHashMap(toInput(bytes)));
+        }
+    }
+
+    @Test
+    public void testRoundTripWithRemovedEntries() throws IOException {
+        // Only the live entries are written, and the table is rebuilt without the removed ones.
+        IntLongHashMap map = new IntLongHashMap(0, toLong(-1));
+        for (int i=0; i<1000; i++) {
+            map.put(toInt(i), toLong(i));
+        }
+        for (int i=0; i<1000; i+=3) {
+            map.remove(toInt(i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntLongBinaryCodec.write(map, new DataOutputStream(bytes), false);
+        IntLongHashMap copy = IntLongBinaryCodec.readHashMap(toInput(bytes));
+        assertMapEquals(map, copy);
+        for (int i=0; i<1000; i+=3) {
+            assertEquals(false, copy.contains(toInt(i)));
+        }
+        // The record is the same size as one for a map which never held the removed entries.
+        ByteArrayOutputStream liveBytes = new ByteArrayOutputStream();
+        IntLongBinaryCodec.write(copy, new DataOutputStream(liveBytes), false);
+        assertEquals(liveBytes.size(), bytes.size());
+        copy.put(toInt(0), toLong(7));
+        assertEquals(7, toInt(copy.get(toInt(0))));
+        assertEquals(map.size() + 1, copy.size());
+    }
+
+    @Test
+    public void testNonDefaultHashStrategy() throws IOException {
+        IntLongHashMap map = new IntLongHashMap(0, toLong(-1), IntHashStrategy.Standard.IDENTITY);
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 1024), toLong(i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntLongBinaryCodec.write(map, new DataOutputStream(bytes), false);
+        assertMapEquals(map, IntLongBinaryCodec.readHashMap(toInput(bytes)));
+    }
+
+    @Test
+    public void testSortedIsSmallerThanUnsortedAndObjectStream() throws IOException {
+        IntLongHashMap map = getMap();
+        ByteArrayOutputStream unsorted = new ByteArrayOutputStream();
+        IntLongBinaryCodec.write(map, new DataOutputStream(unsorted), false);
+        ByteArrayOutputStream sorted = new ByteArrayOutputStream();
+        IntLongBinaryCodec.write(map, new DataOutputStream(sorted), true);
+        ByteArrayOutputStream java = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(java);
+        oos.writeObject(map);
+        oos.close();
+        assertTrue(sorted.size() < unsorted.size());
+        assertTrue(unsorted.size() < java.size());
+    }
+
+    @Test
+    public void testSortedVectorRoundTrip() throws IOException {
+        IntLongSortedVector vec = new IntLongSortedVector(new int[]{ -5, 0, 3, 1000000 },
+                new long[]{ toLong(1), toLong(2), toLong(3), toLong(4) });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntLongBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntLongSortedVector copy = IntLongBinaryCodec.readSortedVector(toInput(bytes));
+        assertEquals(4, copy.getUsed());
+        assertEquals(1, toInt(copy.get(-5)));
+        assertEquals(4, toInt(copy.get(1000000)));
+    }
+
+    @Test
+    public void testSparseKindsAreInterchangeable() throws IOException {
+        IntLongHashMap map = getMap();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntLongBinaryCodec.write(map, new DataOutputStream(bytes), false);
+
+        IntLongSortedMap sortedMap = IntLongBinaryCodec.readSortedMap(toInput(bytes));
+        IntLongHashVector hashVec = IntLongBinaryCodec.readHashVector(toInput(bytes));
+        IntLongUnsortedVector unsortedVec = IntLongBinaryCodec.readUnsortedVector(toInput(bytes));
+        assertEquals(map.size(), sortedMap.size());
+        assertEquals(map.size(), hashVec.size());
+        for (int idx : map.getIndices()) {
+            assertEquals(toInt(map.get(idx)), toInt(sortedMap.get(idx)));
+            assertEquals(toInt(map.get(idx)), toInt(hashVec.get(idx)));
+            assertEquals(toInt(map.get(idx)), toInt(unsortedVec.get(idx)));
+        }
+    }
+
+    @Test
+    public void testUnsortedVectorRoundTrip() throws IOException {
+        IntLongUnsortedVector vec = new IntLongUnsortedVector();
+        vec.add(9, toLong(1));
+        vec.add(2, toLong(2));
+        vec.add(9, toLong(3));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntLongBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntLongUnsortedVector copy = IntLongBinaryCodec.readUnsortedVector(toInput(bytes));
+        assertEquals(2, copy.getUsed());
+        assertEquals(4, toInt(copy.get(9)));
+        assertEquals(2, toInt(copy.get(2)));
+    }
+
+    @Test
+    public void testDenseVectorRoundTrip() throws IOException {
+        IntLongDenseVector vec = new IntLongDenseVector(new long[]{ toLong(1), toLong(0), toLong(3) });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IntLongBinaryCodec.write(vec, new DataOutputStream(bytes));
+        IntLongDenseVector copy = IntLongBinaryCodec.readDenseVector(toInput(bytes));
+        assertEquals(3, copy.getNumImplicitEntries());
+        assertEquals(1, toInt(copy.get(0)));
+        assertEquals(3, toInt(copy.get(2)));
+        try {
+            IntLongBinaryCodec.readHashMap(toInput(bytes));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testFileChannelRoundTrip() throws IOException {
+        File file = File.createTempFile("codec", ".bin");
+        file.deleteOnExit();
+        try {
+            IntLongHashMap map = getMap();
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                DataOutputStream out = IntLongBinaryCodec.newDataOutput(channel);
+                IntLongBinaryCodec.write(map, out, true);
+                IntLongBinaryCodec.write(map, out, false);
+                out.flush();
+                channel.position(0);
+                DataInputStream in = IntLongBinaryCodec.newDataInput(channel);
+                assertMapEquals(map, IntLongBinaryCodec.readHashMap(in));
+                assertMapEquals(map, IntLongBinaryCodec.readHashMap(in));
+            } finally {
+                raf.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testBadVersion() throws IOException {
+        for (int version : new int[]{ 0, IntLongBinaryCodec.VERSION + 1 }) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            IntLongBinaryCodec.write(getMap(), new DataOutputStream(bytes), true);
+            byte[] record = bytes.toByteArray();
+            // The version follows the 4-byte magic number.
+            record[4] = (byte) version;
+            try {
+                IntLongBinaryCodec.readHashMap(new DataInputStream(new ByteArrayInputStream(record)));
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void testBadMagic() {
+        try {
+            IntLongBinaryCodec.readHashMap(new DataInputStream(new ByteArrayInputStream(new byte[32])));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // pass
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toDouble;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntDoubleToDouble;
+import edu.jhu.prim.util.Lambda.FnIntDoubleToVoid;
+import edu.jhu.prim.vector.IntDoubleHashVector;
+import edu.jhu.prim.vector.IntDoubleSortedVector;
+import edu.jhu.prim.vector.IntDoubleUnsortedVector;
+
+public class IntDoubleCursorTest {
+
+    static IntDoubleMap[] getMaps() {
+        return new IntDoubleMap[]{ new IntDoubleSortedMap(), new IntDoubleHashMap(), 
+                new IntDoubleLinearHashMap(), new IntDoubleConcurrentHashMap(),
+                new IntDoubleOffHeapHashMap(), new IntDoubleSortedVector(), new IntDoubleHashVector() };
+    }
+
+    @Test
+    public void testVisitsEachEntryAndSetsValues() {
+        for (IntDoubleMap map : getMaps()) {
+            // Include the zero key, which some maps store outside of their table.
+            for (int i=0; i<100; i++) {
+                map.put(toInt(i * 3), toDouble(i));
+            }
+            int n = 0;
+            IntDoubleCursor cur = map.cursor();
+            while (cur.advance()) {
+                assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+                cur.setValue(toDouble(toInt(cur.value()) + 1));
+                n++;
+            }
+            assertEquals(map.getClass().getName(), 100, n);
+            assertFalse(cur.advance());
+            for (int i=0; i<100; i++) {
+                assertEquals(i + 1, toInt(map.get(toInt(i * 3))));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsortedVector() {
+        IntDoubleUnsortedVector vec = new IntDoubleUnsortedVector();
+        vec.add(5, toDouble(1));
+        vec.add(2, toDouble(2));
+        vec.add(5, toDouble(3));
+        IntDoubleCursor cur = vec.cursor();
+        assertTrue(cur.advance());
+        assertEquals(2, toInt(cur.key()));
+        assertEquals(2, toInt(cur.value()));
+        assertTrue(cur.advance());
+        assertEquals(5, toInt(cur.key()));
+        assertEquals(4, toInt(cur.value()));
+        cur.setValue(toDouble(7));
+        assertFalse(cur.advance());
+        assertEquals(7, toInt(vec.get(5)));
+    }
+
+    @Test
+    public void testEmptyAndExhausted() {
+        for (IntDoubleMap map : getMaps()) {
+            IntDoubleCursor cur = map.cursor();
+            try {
+                cur.key();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+            assertFalse(cur.advance());
+            assertFalse(cur.advance());
+            try {
+                cur.value();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultCursor() {
+        IntDoubleMap map = new IteratorOnlyMap();
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 3), toDouble(i));
+        }
+        int n = 0;
+        IntDoubleCursor cur = map.cursor();
+        while (cur.advance()) {
+            assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+            cur.setValue(toDouble(toInt(cur.value()) + 1));
+            assertEquals(toInt(cur.key()) / 3 + 1, toInt(cur.value()));
+            n++;
+        }
+        assertEquals(100, n);
+        assertFalse(cur.advance());
+        try {
+            cur.key();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // pass
+        }
+        for (int i=0; i<100; i++) {
+            assertEquals(i + 1, toInt(map.get(toInt(i * 3))));
+        }
+    }
+
+    /** A map which only implements the abstract methods, as a map outside of this library would. */
+    private static class IteratorOnlyMap implements IntDoubleMap {
+        private static final long serialVersionUID = 1L;
+        private final IntDoubleHashMap map = new IntDoubleHashMap();
+        public double get(int idx) { return map.get(idx); }
+        public double getWithDefault(int idx, double defaultVal) { return map.getWithDefault(idx, defaultVal); }
+        public boolean contains(int idx) { return map.contains(idx); }
+        public double put(int idx, double val) { return map.put(idx, val); }
+        public void remove(int idx) { map.remove(idx); }
+        public void clear() { map.clear(); }
+        public void add(int idx, double incr) { map.add(idx, incr); }
+        public void apply(FnIntDoubleToDouble lambda) { map.apply(lambda); }
+        public void iterate(FnIntDoubleToVoid function) { map.iterate(function); }
+        public Iterator<IntDoubleEntry> iterator() { return map.iterator(); }
+        public int size() { return map.size(); }
+        public int[] getIndices() { return map.getIndices(); }
+        public double[] getValues() { return map.getValues(); }
+    }
+
+    @Test
+    public void testFailFast() {
+        for (IntDoubleMap map : getMaps()) {
+            if (map instanceof IntDoubleConcurrentHashMap) {
+                // Weakly consistent instead.
+                continue;
+            }
+            map.put(toInt(1), toDouble(1));
+            map.put(toInt(2), toDouble(2));
+            IntDoubleCursor cur = map.cursor();
+            assertTrue(cur.advance());
+            map.put(toInt(3), toDouble(3));
+            try {
+                cur.advance();
+                fail("Expected ConcurrentModificationException: " + map.getClass().getName());
+            } catch (ConcurrentModificationException e) {
+                // pass
+            }
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toFloat;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntFloatToVoid;
+
+public class IntFloatBufferedSortedMapTest {
+
+    @Test
+    public void testNormalUsage() {
+        IntFloatBufferedSortedMap map = new IntFloatBufferedSortedMap();
+        map.put(2, toFloat(22));
+        map.put(1, toFloat(11));
+        map.put(3, toFloat(33));
+        map.put(-1, toFloat(-11));
+        map.add(8, toFloat(88));
+        map.add(3, toFloat(1));
+
+        assertEquals(5, map.size());
+        assertEquals(34, toInt(map.get(3)));
+        assertEquals(11, toInt(map.get(1)));
+        assertEquals(-11, toInt(map.get(-1)));
+        assertEquals(22, toInt(map.get(2)));
+        assertEquals(88, toInt(map.get(8)));
+        assertEquals(7, toInt(map.getWithDefault(6, toFloat(7))));
+        assertFalse(map.contains(6));
+
+        map.remove(2);
+        assertFalse(map.contains(2));
+        assertEquals(4, map.size());
+        assertArrayEquals(new int[]{-1, 1, 3, 8}, map.getIndices());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.contains(3));
+    }
+
+    @Test
+    public void testGetMissing() {
+        IntFloatBufferedSortedMap map = new IntFloatBufferedSortedMap();
+        map.put(3, toFloat(33));
+        try {
+            map.get(2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testBufferIsMerged() {
+        IntFloatBufferedSortedMap map = new IntFloatBufferedSortedMap();
+        int n = 1000;
+        for (int i = n - 1; i >= 0; i--) {
+            map.put(i, toFloat(i));
+            assertTrue(map.getNumBuffered() <= Math.max(64, (map.size() - map.getNumBuffered()) / 8) + 1);
+        }
+        assertEquals(n, map.size());
+        assertTrue(map.getNumBuffered() > 0);
+
+        // Visiting the entries in order merges the buffer.
+        final int[] prev = new int[]{ -1 };
+        map.iterate(new FnIntFloatToVoid() {
+            @Override
+            public void call(int idx, float val) {
+                assertEquals(prev[0] + 1, idx);
+                assertEquals(idx, toInt(val));
+                prev[0] = idx;
+            }
+        });
+        assertEquals(0, map.getNumBuffered());
+        assertEquals(n - 1, prev[0]);
+    }
+
+    @Test
+    public void testRandomUsageMatchesSortedMap() {
+        Random rand = new Random(9001);
+        IntFloatBufferedSortedMap map = new IntFloatBufferedSortedMap();
+        IntFloatSortedMap expected = new IntFloatSortedMap();
+        for (int t = 0; t < 20000; t++) {
+            int idx = rand.nextInt(5000) - 100;
+            int op = rand.nextInt(10);
+            if (op < 5) {
+                assertEquals(toInt(expected.put(idx, toFloat(t % 100))), toInt(map.put(idx, toFloat(t % 100))));
+            } else if (op < 8) {
+                expected.add(idx, toFloat(1));
+                map.add(idx, toFloat(1));
+            } else if (op < 9) {
+                if (expected.contains(idx)) {
+                    expected.remove(idx);
+                    map.remove(idx);
+                }
+            } else {
+                assertEquals(expected.contains(idx), map.contains(idx));
+                assertEquals(toInt(expected.getWithDefault(idx, toFloat(-1))), toInt(map.getWithDefault(idx, toFloat(-1))));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertArrayEquals(expected.getIndices(), map.getIndices());
+        float[] expectedVals = expected.getValues();
+        float[] vals = map.getValues();
+        assertEquals(expectedVals.length, vals.length);
+        for (int i = 0; i < vals.length; i++) {
+            assertEquals(toInt(expectedVals[i]), toInt(vals[i]));
+        }
+    }
+
+    @Test
+    public void testIteratorAndCursorInOrder() {
+        IntFloatBufferedSortedMap map = new IntFloatBufferedSortedMap();
+        map.put(5, toFloat(55));
+        map.put(2, toFloat(22));
+        map.put(9, toFloat(99));
+
+        Iterator<IntFloatEntry> iter = map.iterator();
+        assertTrue(iter.hasNext());
+        assertEquals(2, iter.next().index());
+        assertEquals(5, iter.next().index());
+        assertEquals(9, iter.next().index());
+        assertFalse(iter.hasNext());
+
+        IntFloatCursor cur = map.cursor();
+        assertTrue(cur.advance());
+        assertEquals(2, cur.key());
+        cur.setValue(toFloat(20));
+        assertTrue(cur.advance());
+        assertEquals(5, cur.key());
+        assertTrue(cur.advance());
+        assertEquals(9, cur.key());
+        assertFalse(cur.advance());
+        assertEquals(20, toInt(map.get(2)));
+    }
+
+    @Test
+    public void testCopyIncludesBuffer() {
+        IntFloatBufferedSortedMap map = new IntFloatBufferedSortedMap();
+        map.put(3, toFloat(33));
+        map.put(1, toFloat(11));
+        IntFloatSortedMap copy = new IntFloatSortedMap(map);
+        assertEquals(2, copy.size());
+        assertEquals(11, toInt(copy.get(1)));
+        assertEquals(33, toInt(copy.get(3)));
+    }
+
+}
@@ -0,0 +1,159 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toFloat;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntFloatToFloat;
+import edu.jhu.prim.util.Lambda.FnIntFloatToVoid;
+import edu.jhu.prim.vector.IntFloatHashVector;
+import edu.jhu.prim.vector.IntFloatSortedVector;
+import edu.jhu.prim.vector.IntFloatUnsortedVector;
+
+public class IntFloatCursorTest {
+
+    static IntFloatMap[] getMaps() {
+        return new IntFloatMap[]{ new IntFloatSortedMap(), new IntFloatHashMap(), 
+                new IntFloatLinearHashMap(), new IntFloatConcurrentHashMap(),
+                new IntFloatOffHeapHashMap(), new IntFloatSortedVector(), new IntFloatHashVector() };
+    }
+
+    @Test
+    public void testVisitsEachEntryAndSetsValues() {
+        for (IntFloatMap map : getMaps()) {
+            // Include the zero key, which some maps store outside of their table.
+            for (int i=0; i<100; i++) {
+                map.put(toInt(i * 3), toFloat(i));
+            }
+            int n = 0;
+            IntFloatCursor cur = map.cursor();
+            while (cur.advance()) {
+                assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+                cur.setValue(toFloat(toInt(cur.value()) + 1));
+                n++;
+            }
+            assertEquals(map.getClass().getName(), 100, n);
+            assertFalse(cur.advance());
+            for (int i=0; i<100; i++) {
+                assertEquals(i + 1, toInt(map.get(toInt(i * 3))));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsortedVector() {
+        IntFloatUnsortedVector vec = new IntFloatUnsortedVector();
+        vec.add(5, toFloat(1));
+        vec.add(2, toFloat(2));
+        vec.add(5, toFloat(3));
+        IntFloatCursor cur = vec.cursor();
+        assertTrue(cur.advance());
+        assertEquals(2, toInt(cur.key()));
+        assertEquals(2, toInt(cur.value()));
+        assertTrue(cur.advance());
+        assertEquals(5, toInt(cur.key()));
+        assertEquals(4, toInt(cur.value()));
+        cur.setValue(toFloat(7));
+        assertFalse(cur.advance());
+        assertEquals(7, toInt(vec.get(5)));
+    }
+
+    @Test
+    public void testEmptyAndExhausted() {
+        for (IntFloatMap map : getMaps()) {
+            IntFloatCursor cur = map.cursor();
+            try {
+                cur.key();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+            assertFalse(cur.advance());
+            assertFalse(cur.advance());
+            try {
+                cur.value();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultCursor() {
+        IntFloatMap map = new IteratorOnlyMap();
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 3), toFloat(i));
+        }
+        int n = 0;
+        IntFloatCursor cur = map.cursor();
+        while (cur.advance()) {
+            assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+            cur.setValue(toFloat(toInt(cur.value()) + 1));
+            assertEquals(toInt(cur.key()) / 3 + 1, toInt(cur.value()));
+            n++;
+        }
+        assertEquals(100, n);
+        assertFalse(cur.advance());
+        try {
+            cur.key();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // pass
+        }
+        for (int i=0; i<100; i++) {
+            assertEquals(i + 1, toInt(map.get(toInt(i * 3))));
+        }
+    }
+
+    /** A map which only implements the abstract methods, as a map outside of this library would. */
+    private static class IteratorOnlyMap implements IntFloatMap {
+        private static final long serialVersionUID = 1L;
+        private final IntFloatHashMap map = new IntFloatHashMap();
+        public float get(int idx) { return map.get(idx); }
+        public float getWithDefault(int idx, float defaultVal) { return map.getWithDefault(idx, defaultVal); }
+        public boolean contains(int idx) { return map.contains(idx); }
+        public float put(int idx, float val) { return map.put(idx, val); }
+        public void remove(int idx) { map.remove(idx); }
+        public void clear() { map.clear(); }
+        public void add(int idx, float incr) { map.add(idx, incr); }
+        public void apply(FnIntFloatToFloat lambda) { map.apply(lambda); }
+        public void iterate(FnIntFloatToVoid function) { map.iterate(function); }
+        public Iterator<IntFloatEntry> iterator() { return map.iterator(); }
+        public int size() { return map.size(); }
+        public int[] getIndices() { return map.getIndices(); }
+        public float[] getValues() { return map.getValues(); }
+    }
+
+    @Test
+    public void testFailFast() {
+        for (IntFloatMap map : getMaps()) {
+            if (map instanceof IntFloatConcurrentHashMap) {
+                // Weakly consistent instead.
+                continue;
+            }
+            map.put(toInt(1), toFloat(1));
+            map.put(toInt(2), toFloat(2));
+            IntFloatCursor cur = map.cursor();
+            assertTrue(cur.advance());
+            map.put(toInt(3), toFloat(3));
+            try {
+                cur.advance();
+                fail("Expected ConcurrentModificationException: " + map.getClass().getName());
+            } catch (ConcurrentModificationException e) {
+                // pass
+            }
+        }
+    }
+
+}
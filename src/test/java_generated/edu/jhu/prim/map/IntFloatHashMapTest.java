@@ -4,7 +4,12 @@ import static edu.jhu.prim.Primitives.toFloat;
 import static edu.jhu.prim.Primitives.toInt;
 import static edu.jhu.prim.Primitives.toInt;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Iterator;
 
 import org.junit.Test;
@@ -141,18 +146,131 @@ public class IntFloatHashMapTest {
         map.put(2, toFloat(22));
         map.put(1, toFloat(11));
         
+        // The entries are visited in the order of their slots in the table.
         IntFloatEntry cur;
         Iterator<IntFloatEntry> iter = map.iterator();
         assertEquals(true, iter.hasNext()); 
         assertEquals(true, iter.hasNext()); 
         cur = iter.next();
-        assertEquals(1, cur.index()); 
-        assertEquals(11, toInt(cur.get())); 
+        int first = cur.index();
+        assertTrue(first == 1 || first == 2);
+        assertEquals(11 * first, toInt(cur.get())); 
         assertEquals(true, iter.hasNext()); 
         cur = iter.next();
-        assertEquals(2, cur.index()); 
-        assertEquals(22, toInt(cur.get())); 
+        assertEquals(3 - first, cur.index()); 
+        assertEquals(11 * (3 - first), toInt(cur.get())); 
         assertEquals(false, iter.hasNext());
     }
     
+    @Test
+    public void testSlidingWindowChurn() {
+        // Each step adds a new key and removes the oldest one, so removed
+        // entries would pile up without ever growing the map.
+        IntFloatHashMap map = new IntFloatHashMap(0, toFloat(0));
+        int window = 10;
+        for (int i=0; i<100000; i++) {
+            map.put(i, toFloat(i % 100));
+            if (i >= window) {
+                map.remove(i - window);
+            }
+        }
+        assertEquals(window, map.size());
+        for (int i=100000 - window; i<100000; i++) {
+            assertEquals(i % 100, toInt(map.get(i)));
+        }
+        assertEquals(false, map.contains(100000 - window - 1));
+        assertTrue(map.states.length <= 64);
+        int removed = 0;
+        for (int i=0; i<map.states.length; i++) {
+            if (map.states[i] == IntFloatHashMap.REMOVED) {
+                removed++;
+            }
+        }
+        assertTrue(map.size() + removed <= map.states.length * 0.75);
+    }
+
+    @Test
+    public void testBatchMethods() {
+        // Spans more than one batch block and includes the zero key.
+        int n = 150;
+        int[] keys = new int[n];
+        float[] vals = new float[n];
+        for (int i=0; i<n; i++) {
+            keys[i] = toInt(i * 3);
+            vals[i] = toFloat(i);
+        }
+        IntFloatHashMap map = new IntFloatHashMap(0, toFloat(-1));
+        map.putAll(keys, vals);
+        map.addAll(keys, vals);
+        assertEquals(n, map.size());
+
+        int[] queries = new int[2 * n];
+        for (int i=0; i<queries.length; i++) {
+            queries[i] = toInt(i * 3 / 2);
+        }
+        float[] out = new float[queries.length];
+        boolean[] contained = new boolean[queries.length];
+        map.getAll(queries, out);
+        map.containsAll(queries, contained);
+        for (int i=0; i<queries.length; i++) {
+            assertEquals(map.contains(queries[i]), contained[i]);
+            assertEquals(toInt(map.get(queries[i])), toInt(out[i]));
+            if (contained[i]) {
+                assertEquals(2 * queries[i] / 3, toInt(out[i]));
+            } else {
+                assertEquals(-1, toInt(out[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testPackedKeysProbeLength() {
+        // Keys packed as (high << half) | low, which collided under the old
+        // hash function since it only mixed within each half.
+        IntFloatHashMap map = new IntFloatHashMap();
+        int half = Primitives.INT_NUM_BITS / 2;
+        for (int t=0; t<64; t++) {
+            for (int f=0; f<64; f++) {
+                map.put((toInt(t) << half) | toInt(f), toFloat(1));
+            }
+        }
+        assertEquals(64 * 64, map.size());
+        assertTrue(map.getAverageProbeLength() < 2);
+    }
+
+    @Test
+    public void testHashStrategy() throws Exception {
+        // Every key collides, so lookups must walk the whole probe sequence.
+        IntFloatHashMap map = new IntFloatHashMap(0, toFloat(-1), new IntHashStrategy() {
+            private static final long serialVersionUID = 1L;
+            public int hashOf(int key) {
+                return 0;
+            }
+        });
+        for (int i=0; i<200; i++) {
+            map.put(toInt(i), toFloat(i));
+        }
+        for (int i=0; i<200; i+=2) {
+            map.remove(toInt(i));
+        }
+        assertEquals(100, map.size());
+        for (int i=0; i<200; i++) {
+            assertEquals(i % 2 == 0 ? -1 : i, toInt(map.get(toInt(i))));
+        }
+        assertTrue(map.getAverageProbeLength() > 10);
+
+        // The strategy is kept by copies and serialization.
+        map = new IntFloatHashMap(0, toFloat(-1), IntHashStrategy.Standard.IDENTITY);
+        map.put(toInt(7), toFloat(77));
+        assertEquals(IntHashStrategy.Standard.IDENTITY, new IntFloatHashMap(map).getHashStrategy());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(map);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        IntFloatHashMap copy = (IntFloatHashMap) in.readObject();
+        assertEquals(IntHashStrategy.Standard.IDENTITY, copy.getHashStrategy());
+        assertEquals(77, toInt(copy.get(toInt(7))));
+    }
+
 }
@@ -0,0 +1,156 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
+
+public class IntIntBufferedSortedMapTest {
+
+    @Test
+    public void testNormalUsage() {
+        IntIntBufferedSortedMap map = new IntIntBufferedSortedMap();
+        map.put(2, toInt(22));
+        map.put(1, toInt(11));
+        map.put(3, toInt(33));
+        map.put(-1, toInt(-11));
+        map.add(8, toInt(88));
+        map.add(3, toInt(1));
+
+        assertEquals(5, map.size());
+        assertEquals(34, toInt(map.get(3)));
+        assertEquals(11, toInt(map.get(1)));
+        assertEquals(-11, toInt(map.get(-1)));
+        assertEquals(22, toInt(map.get(2)));
+        assertEquals(88, toInt(map.get(8)));
+        assertEquals(7, toInt(map.getWithDefault(6, toInt(7))));
+        assertFalse(map.contains(6));
+
+        map.remove(2);
+        assertFalse(map.contains(2));
+        assertEquals(4, map.size());
+        assertArrayEquals(new int[]{-1, 1, 3, 8}, map.getIndices());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.contains(3));
+    }
+
+    @Test
+    public void testGetMissing() {
+        IntIntBufferedSortedMap map = new IntIntBufferedSortedMap();
+        map.put(3, toInt(33));
+        try {
+            map.get(2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testBufferIsMerged() {
+        IntIntBufferedSortedMap map = new IntIntBufferedSortedMap();
+        int n = 1000;
+        for (int i = n - 1; i >= 0; i--) {
+            map.put(i, toInt(i));
+            assertTrue(map.getNumBuffered() <= Math.max(64, (map.size() - map.getNumBuffered()) / 8) + 1);
+        }
+        assertEquals(n, map.size());
+        assertTrue(map.getNumBuffered() > 0);
+
+        // Visiting the entries in order merges the buffer.
+        final int[] prev = new int[]{ -1 };
+        map.iterate(new FnIntIntToVoid() {
+            @Override
+            public void call(int idx, int val) {
+                assertEquals(prev[0] + 1, idx);
+                assertEquals(idx, toInt(val));
+                prev[0] = idx;
+            }
+        });
+        assertEquals(0, map.getNumBuffered());
+        assertEquals(n - 1, prev[0]);
+    }
+
+    @Test
+    public void testRandomUsageMatchesSortedMap() {
+        Random rand = new Random(9001);
+        IntIntBufferedSortedMap map = new IntIntBufferedSortedMap();
+        IntIntSortedMap expected = new IntIntSortedMap();
+        for (int t = 0; t < 20000; t++) {
+            int idx = rand.nextInt(5000) - 100;
+            int op = rand.nextInt(10);
+            if (op < 5) {
+                assertEquals(toInt(expected.put(idx, toInt(t % 100))), toInt(map.put(idx, toInt(t % 100))));
+            } else if (op < 8) {
+                expected.add(idx, toInt(1));
+                map.add(idx, toInt(1));
+            } else if (op < 9) {
+                if (expected.contains(idx)) {
+                    expected.remove(idx);
+                    map.remove(idx);
+                }
+            } else {
+                assertEquals(expected.contains(idx), map.contains(idx));
+                assertEquals(toInt(expected.getWithDefault(idx, toInt(-1))), toInt(map.getWithDefault(idx, toInt(-1))));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertArrayEquals(expected.getIndices(), map.getIndices());
+        int[] expectedVals = expected.getValues();
+        int[] vals = map.getValues();
+        assertEquals(expectedVals.length, vals.length);
+        for (int i = 0; i < vals.length; i++) {
+            assertEquals(toInt(expectedVals[i]), toInt(vals[i]));
+        }
+    }
+
+    @Test
+    public void testIteratorAndCursorInOrder() {
+        IntIntBufferedSortedMap map = new IntIntBufferedSortedMap();
+        map.put(5, toInt(55));
+        map.put(2, toInt(22));
+        map.put(9, toInt(99));
+
+        Iterator<IntIntEntry> iter = map.iterator();
+        assertTrue(iter.hasNext());
+        assertEquals(2, iter.next().index());
+        assertEquals(5, iter.next().index());
+        assertEquals(9, iter.next().index());
+        assertFalse(iter.hasNext());
+
+        IntIntCursor cur = map.cursor();
+        assertTrue(cur.advance());
+        assertEquals(2, cur.key());
+        cur.setValue(toInt(20));
+        assertTrue(cur.advance());
+        assertEquals(5, cur.key());
+        assertTrue(cur.advance());
+        assertEquals(9, cur.key());
+        assertFalse(cur.advance());
+        assertEquals(20, toInt(map.get(2)));
+    }
+
+    @Test
+    public void testCopyIncludesBuffer() {
+        IntIntBufferedSortedMap map = new IntIntBufferedSortedMap();
+        map.put(3, toInt(33));
+        map.put(1, toInt(11));
+        IntIntSortedMap copy = new IntIntSortedMap(map);
+        assertEquals(2, copy.size());
+        assertEquals(11, toInt(copy.get(1)));
+        assertEquals(33, toInt(copy.get(3)));
+    }
+
+}
@@ -0,0 +1,204 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
+
+public class IntIntConcurrentHashMapTest {
+
+    @Test
+    public void testNormalUsage() {
+        IntIntMap map = new IntIntConcurrentHashMap(0, toInt(-1), 4);
+        map.put(2, toInt(22));
+        map.put(1, toInt(11));
+        map.put(3, toInt(33));
+        map.put(-1, toInt(-11));
+        map.add(3, toInt(1));
+
+        assertEquals(34, toInt(map.get(3)));
+        assertEquals(11, toInt(map.get(1)));
+        assertEquals(-11, toInt(map.get(-1)));
+        assertEquals(22, toInt(map.get(2)));
+        assertEquals(-1, toInt(map.get(4)));
+        assertEquals(4, map.size());
+
+        map.remove(1);
+        assertFalse(map.contains(1));
+        assertEquals(3, map.size());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.contains(3));
+    }
+
+    @Test
+    public void testNumSegments() {
+        assertEquals(1, new IntIntConcurrentHashMap(0, toInt(0), 1).getNumSegments());
+        assertEquals(8, new IntIntConcurrentHashMap(0, toInt(0), 5).getNumSegments());
+        assertEquals(IntIntConcurrentHashMap.DEFAULT_CONCURRENCY_LEVEL,
+                new IntIntConcurrentHashMap().getNumSegments());
+    }
+
+    @Test
+    public void testAddAndGet() {
+        IntIntConcurrentHashMap map = new IntIntConcurrentHashMap(0, toInt(0), 4);
+        assertEquals(0, toInt(map.addAndGet(7, toInt(3))));
+        assertEquals(3, toInt(map.addAndGet(7, toInt(4))));
+        assertEquals(7, toInt(map.get(7)));
+    }
+
+    @Test
+    public void testRemoveFromProbeRun() {
+        // With one segment and the identity hash, all of these keys share a home slot.
+        IntIntConcurrentHashMap map = new IntIntConcurrentHashMap(0, toInt(-1), 1,
+                IntHashStrategy.Standard.IDENTITY);
+        for (int i=0; i<20; i++) {
+            map.put(toInt(i * 1024), toInt(i));
+        }
+        for (int i=0; i<20; i+=3) {
+            assertEquals(i, toInt(map.removeAndGet(toInt(i * 1024))));
+        }
+        for (int i=0; i<20; i++) {
+            assertEquals(i % 3 != 0, map.contains(toInt(i * 1024)));
+            assertEquals(i % 3 != 0 ? i : -1, toInt(map.get(toInt(i * 1024))));
+        }
+        assertEquals(13, map.size());
+        map.add(0, toInt(5));
+        assertEquals(4, toInt(map.get(0)));
+        assertEquals(14, map.size());
+    }
+
+    @Test
+    public void testConcurrentAdds() throws InterruptedException {
+        final IntIntConcurrentHashMap map = new IntIntConcurrentHashMap(0, toInt(0), 16);
+        final int numThreads = 8;
+        final int numAdds = 20000;
+        final int numKeys = 1000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t=0; t<numThreads; t++) {
+            threads.add(new Thread() {
+                public void run() {
+                    for (int i=0; i<numAdds; i++) {
+                        // Skewed keys: half of all the adds go to key 0.
+                        int key = (i % 2 == 0) ? 0 : toInt(i % numKeys);
+                        map.add(key, toInt(1));
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(numKeys / 2 + 1, map.size());
+        assertEquals(numThreads * numAdds / 2, toInt(map.get(0)));
+        for (int k=1; k<numKeys; k+=2) {
+            assertEquals(numThreads * numAdds / numKeys, toInt(map.get(k)));
+        }
+        assertEquals(numThreads * numAdds, toInt(map.getSum()));
+    }
+
+    @Test
+    public void testReadWhileResizing() throws InterruptedException {
+        final IntIntConcurrentHashMap map = new IntIntConcurrentHashMap(0, toInt(0), 2,
+                IntHashStrategy.Standard.IDENTITY);
+        for (int k=0; k<100; k++) {
+            map.put(k, toInt(1));
+        }
+        final Throwable[] error = new Throwable[1];
+        Thread reader = new Thread() {
+            public void run() {
+                try {
+                    for (int i=0; i<200000; i++) {
+                        // The original keys are never modified, so every read must see them.
+                        int key = toInt(i % 100);
+                        assertTrue(map.contains(key));
+                        assertEquals(1, toInt(map.get(key)));
+                    }
+                } catch (Throwable t) {
+                    error[0] = t;
+                }
+            }
+        };
+        reader.start();
+        // Each segment resizes many times while the reader runs.
+        for (int i=0; i<20000; i++) {
+            map.put(100 + i, toInt(2));
+        }
+        reader.join();
+        if (error[0] != null) {
+            throw new AssertionError(error[0]);
+        }
+        assertEquals(20100, map.size());
+    }
+
+    @Test
+    public void testIterateWhileWriting() throws InterruptedException {
+        final IntIntConcurrentHashMap map = new IntIntConcurrentHashMap(0, toInt(0), 4);
+        for (int k=0; k<100; k++) {
+            map.put(k, toInt(1));
+        }
+        Thread writer = new Thread() {
+            public void run() {
+                for (int i=0; i<100000; i++) {
+                    map.put(100 + i % 1000, toInt(1));
+                    map.remove(100 + (i + 500) % 1000);
+                }
+            }
+        };
+        writer.start();
+        for (int r=0; r<100; r++) {
+            // The original keys are never modified, so every pass must see all of them.
+            final int[] count = new int[1];
+            map.iterate(new FnIntIntToVoid() {
+                public void call(int idx, int val) {
+                    if (idx < 100) {
+                        count[0]++;
+                    }
+                    // Writing from inside the function must not deadlock.
+                    map.add(idx, toInt(0));
+                }
+            });
+            assertEquals(100, count[0]);
+        }
+        writer.join();
+    }
+
+    @Test
+    public void testIterator() {
+        IntIntConcurrentHashMap map = new IntIntConcurrentHashMap(0, toInt(0), 4);
+        map.put(2, toInt(22));
+        map.put(1, toInt(11));
+
+        int indexSum = 0;
+        int valueSum = 0;
+        int n = 0;
+        Iterator<IntIntEntry> iter = map.iterator();
+        // Modifications after the iterator is created are not visible to it.
+        map.put(3, toInt(33));
+        while (iter.hasNext()) {
+            IntIntEntry cur = iter.next();
+            indexSum += cur.index();
+            valueSum += toInt(cur.get());
+            n++;
+        }
+        assertEquals(2, n);
+        assertEquals(3, indexSum);
+        assertEquals(33, valueSum);
+        assertTrue(map.contains(3));
+    }
+
+}
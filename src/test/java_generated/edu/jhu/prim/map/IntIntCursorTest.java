@@ -0,0 +1,159 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntIntToInt;
+import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
+import edu.jhu.prim.vector.IntIntHashVector;
+import edu.jhu.prim.vector.IntIntSortedVector;
+import edu.jhu.prim.vector.IntIntUnsortedVector;
+
+public class IntIntCursorTest {
+
+    static IntIntMap[] getMaps() {
+        return new IntIntMap[]{ new IntIntSortedMap(), new IntIntHashMap(), 
+                new IntIntLinearHashMap(), new IntIntConcurrentHashMap(),
+                new IntIntOffHeapHashMap(), new IntIntSortedVector(), new IntIntHashVector() };
+    }
+
+    @Test
+    public void testVisitsEachEntryAndSetsValues() {
+        for (IntIntMap map : getMaps()) {
+            // Include the zero key, which some maps store outside of their table.
+            for (int i=0; i<100; i++) {
+                map.put(toInt(i * 3), toInt(i));
+            }
+            int n = 0;
+            IntIntCursor cur = map.cursor();
+            while (cur.advance()) {
+                assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+                cur.setValue(toInt(toInt(cur.value()) + 1));
+                n++;
+            }
+            assertEquals(map.getClass().getName(), 100, n);
+            assertFalse(cur.advance());
+            for (int i=0; i<100; i++) {
+                assertEquals(i + 1, toInt(map.get(toInt(i * 3))));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsortedVector() {
+        IntIntUnsortedVector vec = new IntIntUnsortedVector();
+        vec.add(5, toInt(1));
+        vec.add(2, toInt(2));
+        vec.add(5, toInt(3));
+        IntIntCursor cur = vec.cursor();
+        assertTrue(cur.advance());
+        assertEquals(2, toInt(cur.key()));
+        assertEquals(2, toInt(cur.value()));
+        assertTrue(cur.advance());
+        assertEquals(5, toInt(cur.key()));
+        assertEquals(4, toInt(cur.value()));
+        cur.setValue(toInt(7));
+        assertFalse(cur.advance());
+        assertEquals(7, toInt(vec.get(5)));
+    }
+
+    @Test
+    public void testEmptyAndExhausted() {
+        for (IntIntMap map : getMaps()) {
+            IntIntCursor cur = map.cursor();
+            try {
+                cur.key();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+            assertFalse(cur.advance());
+            assertFalse(cur.advance());
+            try {
+                cur.value();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultCursor() {
+        IntIntMap map = new IteratorOnlyMap();
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 3), toInt(i));
+        }
+        int n = 0;
+        IntIntCursor cur = map.cursor();
+        while (cur.advance()) {
+            assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+            cur.setValue(toInt(toInt(cur.value()) + 1));
+            assertEquals(toInt(cur.key()) / 3 + 1, toInt(cur.value()));
+            n++;
+        }
+        assertEquals(100, n);
+        assertFalse(cur.advance());
+        try {
+            cur.key();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // pass
+        }
+        for (int i=0; i<100; i++) {
+            assertEquals(i + 1, toInt(map.get(toInt(i * 3))));
+        }
+    }
+
+    /** A map which only implements the abstract methods, as a map outside of this library would. */
+    private static class IteratorOnlyMap implements IntIntMap {
+        private static final long serialVersionUID = 1L;
+        private final IntIntHashMap map = new IntIntHashMap();
+        public int get(int idx) { return map.get(idx); }
+        public int getWithDefault(int idx, int defaultVal) { return map.getWithDefault(idx, defaultVal); }
+        public boolean contains(int idx) { return map.contains(idx); }
+        public int put(int idx, int val) { return map.put(idx, val); }
+        public void remove(int idx) { map.remove(idx); }
+        public void clear() { map.clear(); }
+        public void add(int idx, int incr) { map.add(idx, incr); }
+        public void apply(FnIntIntToInt lambda) { map.apply(lambda); }
+        public void iterate(FnIntIntToVoid function) { map.iterate(function); }
+        public Iterator<IntIntEntry> iterator() { return map.iterator(); }
+        public int size() { return map.size(); }
+        public int[] getIndices() { return map.getIndices(); }
+        public int[] getValues() { return map.getValues(); }
+    }
+
+    @Test
+    public void testFailFast() {
+        for (IntIntMap map : getMaps()) {
+            if (map instanceof IntIntConcurrentHashMap) {
+                // Weakly consistent instead.
+                continue;
+            }
+            map.put(toInt(1), toInt(1));
+            map.put(toInt(2), toInt(2));
+            IntIntCursor cur = map.cursor();
+            assertTrue(cur.advance());
+            map.put(toInt(3), toInt(3));
+            try {
+                cur.advance();
+                fail("Expected ConcurrentModificationException: " + map.getClass().getName());
+            } catch (ConcurrentModificationException e) {
+                // pass
+            }
+        }
+    }
+
+}
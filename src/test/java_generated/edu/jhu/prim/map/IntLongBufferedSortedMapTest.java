@@ -0,0 +1,156 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toLong;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntLongToVoid;
+
+public class IntLongBufferedSortedMapTest {
+
+    @Test
+    public void testNormalUsage() {
+        IntLongBufferedSortedMap map = new IntLongBufferedSortedMap();
+        map.put(2, toLong(22));
+        map.put(1, toLong(11));
+        map.put(3, toLong(33));
+        map.put(-1, toLong(-11));
+        map.add(8, toLong(88));
+        map.add(3, toLong(1));
+
+        assertEquals(5, map.size());
+        assertEquals(34, toInt(map.get(3)));
+        assertEquals(11, toInt(map.get(1)));
+        assertEquals(-11, toInt(map.get(-1)));
+        assertEquals(22, toInt(map.get(2)));
+        assertEquals(88, toInt(map.get(8)));
+        assertEquals(7, toInt(map.getWithDefault(6, toLong(7))));
+        assertFalse(map.contains(6));
+
+        map.remove(2);
+        assertFalse(map.contains(2));
+        assertEquals(4, map.size());
+        assertArrayEquals(new int[]{-1, 1, 3, 8}, map.getIndices());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.contains(3));
+    }
+
+    @Test
+    public void testGetMissing() {
+        IntLongBufferedSortedMap map = new IntLongBufferedSortedMap();
+        map.put(3, toLong(33));
+        try {
+            map.get(2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testBufferIsMerged() {
+        IntLongBufferedSortedMap map = new IntLongBufferedSortedMap();
+        int n = 1000;
+        for (int i = n - 1; i >= 0; i--) {
+            map.put(i, toLong(i));
+            assertTrue(map.getNumBuffered() <= Math.max(64, (map.size() - map.getNumBuffered()) / 8) + 1);
+        }
+        assertEquals(n, map.size());
+        assertTrue(map.getNumBuffered() > 0);
+
+        // Visiting the entries in order merges the buffer.
+        final int[] prev = new int[]{ -1 };
+        map.iterate(new FnIntLongToVoid() {
+            @Override
+            public void call(int idx, long val) {
+                assertEquals(prev[0] + 1, idx);
+                assertEquals(idx, toInt(val));
+                prev[0] = idx;
+            }
+        });
+        assertEquals(0, map.getNumBuffered());
+        assertEquals(n - 1, prev[0]);
+    }
+
+    @Test
+    public void testRandomUsageMatchesSortedMap() {
+        Random rand = new Random(9001);
+        IntLongBufferedSortedMap map = new IntLongBufferedSortedMap();
+        IntLongSortedMap expected = new IntLongSortedMap();
+        for (int t = 0; t < 20000; t++) {
+            int idx = rand.nextInt(5000) - 100;
+            int op = rand.nextInt(10);
+            if (op < 5) {
+                assertEquals(toInt(expected.put(idx, toLong(t % 100))), toInt(map.put(idx, toLong(t % 100))));
+            } else if (op < 8) {
+                expected.add(idx, toLong(1));
+                map.add(idx, toLong(1));
+            } else if (op < 9) {
+                if (expected.contains(idx)) {
+                    expected.remove(idx);
+                    map.remove(idx);
+                }
+            } else {
+                assertEquals(expected.contains(idx), map.contains(idx));
+                assertEquals(toInt(expected.getWithDefault(idx, toLong(-1))), toInt(map.getWithDefault(idx, toLong(-1))));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertArrayEquals(expected.getIndices(), map.getIndices());
+        long[] expectedVals = expected.getValues();
+        long[] vals = map.getValues();
+        assertEquals(expectedVals.length, vals.length);
+        for (int i = 0; i < vals.length; i++) {
+            assertEquals(toInt(expectedVals[i]), toInt(vals[i]));
+        }
+    }
+
+    @Test
+    public void testIteratorAndCursorInOrder() {
+        IntLongBufferedSortedMap map = new IntLongBufferedSortedMap();
+        map.put(5, toLong(55));
+        map.put(2, toLong(22));
+        map.put(9, toLong(99));
+
+        Iterator<IntLongEntry> iter = map.iterator();
+        assertTrue(iter.hasNext());
+        assertEquals(2, iter.next().index());
+        assertEquals(5, iter.next().index());
+        assertEquals(9, iter.next().index());
+        assertFalse(iter.hasNext());
+
+        IntLongCursor cur = map.cursor();
+        assertTrue(cur.advance());
+        assertEquals(2, cur.key());
+        cur.setValue(toLong(20));
+        assertTrue(cur.advance());
+        assertEquals(5, cur.key());
+        assertTrue(cur.advance());
+        assertEquals(9, cur.key());
+        assertFalse(cur.advance());
+        assertEquals(20, toInt(map.get(2)));
+    }
+
+    @Test
+    public void testCopyIncludesBuffer() {
+        IntLongBufferedSortedMap map = new IntLongBufferedSortedMap();
+        map.put(3, toLong(33));
+        map.put(1, toLong(11));
+        IntLongSortedMap copy = new IntLongSortedMap(map);
+        assertEquals(2, copy.size());
+        assertEquals(11, toInt(copy.get(1)));
+        assertEquals(33, toInt(copy.get(3)));
+    }
+
+}
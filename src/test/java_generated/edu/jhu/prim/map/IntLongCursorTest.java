@@ -0,0 +1,159 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toLong;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntLongToLong;
+import edu.jhu.prim.util.Lambda.FnIntLongToVoid;
+import edu.jhu.prim.vector.IntLongHashVector;
+import edu.jhu.prim.vector.IntLongSortedVector;
+import edu.jhu.prim.vector.IntLongUnsortedVector;
+
+public class IntLongCursorTest {
+
+    static IntLongMap[] getMaps() {
+        return new IntLongMap[]{ new IntLongSortedMap(), new IntLongHashMap(), 
+                new IntLongLinearHashMap(), new IntLongConcurrentHashMap(),
+                new IntLongOffHeapHashMap(), new IntLongSortedVector(), new IntLongHashVector() };
+    }
+
+    @Test
+    public void testVisitsEachEntryAndSetsValues() {
+        for (IntLongMap map : getMaps()) {
+            // Include the zero key, which some maps store outside of their table.
+            for (int i=0; i<100; i++) {
+                map.put(toInt(i * 3), toLong(i));
+            }
+            int n = 0;
+            IntLongCursor cur = map.cursor();
+            while (cur.advance()) {
+                assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+                cur.setValue(toLong(toInt(cur.value()) + 1));
+                n++;
+            }
+            assertEquals(map.getClass().getName(), 100, n);
+            assertFalse(cur.advance());
+            for (int i=0; i<100; i++) {
+                assertEquals(i + 1, toInt(map.get(toInt(i * 3))));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsortedVector() {
+        IntLongUnsortedVector vec = new IntLongUnsortedVector();
+        vec.add(5, toLong(1));
+        vec.add(2, toLong(2));
+        vec.add(5, toLong(3));
+        IntLongCursor cur = vec.cursor();
+        assertTrue(cur.advance());
+        assertEquals(2, toInt(cur.key()));
+        assertEquals(2, toInt(cur.value()));
+        assertTrue(cur.advance());
+        assertEquals(5, toInt(cur.key()));
+        assertEquals(4, toInt(cur.value()));
+        cur.setValue(toLong(7));
+        assertFalse(cur.advance());
+        assertEquals(7, toInt(vec.get(5)));
+    }
+
+    @Test
+    public void testEmptyAndExhausted() {
+        for (IntLongMap map : getMaps()) {
+            IntLongCursor cur = map.cursor();
+            try {
+                cur.key();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+            assertFalse(cur.advance());
+            assertFalse(cur.advance());
+            try {
+                cur.value();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultCursor() {
+        IntLongMap map = new IteratorOnlyMap();
+        for (int i=0; i<100; i++) {
+            map.put(toInt(i * 3), toLong(i));
+        }
+        int n = 0;
+        IntLongCursor cur = map.cursor();
+        while (cur.advance()) {
+            assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+            cur.setValue(toLong(toInt(cur.value()) + 1));
+            assertEquals(toInt(cur.key()) / 3 + 1, toInt(cur.value()));
+            n++;
+        }
+        assertEquals(100, n);
+        assertFalse(cur.advance());
+        try {
+            cur.key();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // pass
+        }
+        for (int i=0; i<100; i++) {
+            assertEquals(i + 1, toInt(map.get(toInt(i * 3))));
+        }
+    }
+
+    /** A map which only implements the abstract methods, as a map outside of this library would. */
+    private static class IteratorOnlyMap implements IntLongMap {
+        private static final long serialVersionUID = 1L;
+        private final IntLongHashMap map = new IntLongHashMap();
+        public long get(int idx) { return map.get(idx); }
+        public long getWithDefault(int idx, long defaultVal) { return map.getWithDefault(idx, defaultVal); }
+        public boolean contains(int idx) { return map.contains(idx); }
+        public long put(int idx, long val) { return map.put(idx, val); }
+        public void remove(int idx) { map.remove(idx); }
+        public void clear() { map.clear(); }
+        public void add(int idx, long incr) { map.add(idx, incr); }
+        public void apply(FnIntLongToLong lambda) { map.apply(lambda); }
+        public void iterate(FnIntLongToVoid function) { map.iterate(function); }
+        public Iterator<IntLongEntry> iterator() { return map.iterator(); }
+        public int size() { return map.size(); }
+        public int[] getIndices() { return map.getIndices(); }
+        public long[] getValues() { return map.getValues(); }
+    }
+
+    @Test
+    public void testFailFast() {
+        for (IntLongMap map : getMaps()) {
+            if (map instanceof IntLongConcurrentHashMap) {
+                // Weakly consistent instead.
+                continue;
+            }
+            map.put(toInt(1), toLong(1));
+            map.put(toInt(2), toLong(2));
+            IntLongCursor cur = map.cursor();
+            assertTrue(cur.advance());
+            map.put(toInt(3), toLong(3));
+            try {
+                cur.advance();
+                fail("Expected ConcurrentModificationException: " + map.getClass().getName());
+            } catch (ConcurrentModificationException e) {
+                // pass
+            }
+        }
+    }
+
+}
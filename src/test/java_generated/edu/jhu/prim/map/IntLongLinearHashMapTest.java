@@ -0,0 +1,287 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toLong;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.jhu.prim.Primitives;
+
+public class IntLongLinearHashMapTest {
+
+    @Test
+    public void testPowersOf2() {
+        IntLongLinearHashMap map = new IntLongLinearHashMap();
+        int start = 0;
+        int end = Primitives.INT_NUM_BITS;
+        for (int i=start; i<end; i++) {
+            int key = toInt(2) << i;
+            map.put(key, i);
+        }
+        assertEquals(end - start, map.size());
+        for (int i=start; i<end; i++) {
+            int key = toInt(2) << i;
+            assertEquals(i, map.get(key));
+        }
+    }
+
+    @Test
+    public void testNormalUsage() {
+        IntLongMap map = new IntLongLinearHashMap();
+        map.put(2, toLong(22));
+        map.put(1, toLong(11));
+        map.put(3, toLong(33));
+        map.put(-1, toLong(-11));
+        map.put(8, toLong(88));
+        map.put(6, toLong(66));
+
+        assertEquals(33, toInt(map.get(3)));
+        assertEquals(11, toInt(map.get(1)));
+        assertEquals(-11, toInt(map.get(-1)));
+        assertEquals(22, toInt(map.get(2)));
+        assertEquals(88, toInt(map.get(8)));
+        assertEquals(66, toInt(map.get(6)));
+        assertEquals(6, map.size());
+
+        // Clear the map.
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.contains(3));
+
+        map.put(3, toLong(33));
+        map.put(2, toLong(22));
+        map.put(1, toLong(11));
+
+        assertEquals(22, toInt(map.get(2)));
+        assertEquals(11, toInt(map.get(1)));
+        assertEquals(33, toInt(map.get(3)));
+    }
+
+    @Test
+    public void testZeroKey() {
+        IntLongLinearHashMap map = new IntLongLinearHashMap(4, toLong(-1));
+        assertFalse(map.contains(0));
+        assertEquals(-1, toInt(map.get(0)));
+
+        assertEquals(-1, toInt(map.putAndGet(0, toLong(7))));
+        assertTrue(map.contains(0));
+        assertEquals(7, toInt(map.get(0)));
+        assertEquals(1, map.size());
+
+        map.add(0, toLong(3));
+        assertEquals(10, toInt(map.get(0)));
+        map.put(5, toLong(55));
+        assertEquals(2, map.size());
+
+        int[] indices = map.getIndices();
+        assertEquals(2, indices.length);
+        assertEquals(0, indices[0]);
+        assertEquals(5, indices[1]);
+
+        assertEquals(10, toInt(map.removeAndGet(0)));
+        assertFalse(map.contains(0));
+        assertEquals(1, map.size());
+        assertEquals(55, toInt(map.get(5)));
+    }
+
+    @Test
+    public void testAdd() {
+        IntLongLinearHashMap map = new IntLongLinearHashMap(0, toLong(0));
+        for (int i=0; i<100; i++) {
+            map.add(i % 10, toLong(i));
+        }
+        assertEquals(10, map.size());
+        for (int i=0; i<10; i++) {
+            // Sum of i, i+10, ..., i+90.
+            assertEquals(10 * i + 450, toInt(map.get(i)));
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        IntLongMap map = new IntLongLinearHashMap();
+        map.put(2, toLong(22));
+        map.put(3, toLong(33));
+        map.put(1, toLong(11));
+
+        map.remove(2);
+        assertEquals(false, map.contains(2));
+        assertEquals(11, toInt(map.get(1)));
+        assertEquals(33, toInt(map.get(3)));
+        assertEquals(2, map.size());
+
+        // Removing a missing key is a no-op.
+        map.remove(2);
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testRemoveWithCollisions() {
+        // Keys which all share the same home slot must stay reachable after
+        // removing any one of them, since deletion shifts the run backwards.
+        IntLongLinearHashMap map = new IntLongLinearHashMap(64, toLong(0));
+        int capacity = map.keys.length;
+        int[] keys = new int[10];
+        int n = 0;
+        int home = Primitives.hashOfInt(1) & (capacity - 1);
+        for (int k=1; n < keys.length; k++) {
+            if ((Primitives.hashOfInt(k) & (capacity - 1)) == home) {
+                keys[n++] = k;
+            }
+        }
+        for (int r=0; r<keys.length; r++) {
+            map.clear();
+            for (int i=0; i<keys.length; i++) {
+                map.put(keys[i], toLong(i));
+            }
+            map.remove(keys[r]);
+            assertEquals(keys.length - 1, map.size());
+            for (int i=0; i<keys.length; i++) {
+                assertEquals(i != r, map.contains(keys[i]));
+                if (i != r) {
+                    assertEquals(i, toInt(map.get(keys[i])));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRandomChurnMatchesHashMap() {
+        Random rand = new Random(9001);
+        IntLongLinearHashMap map = new IntLongLinearHashMap();
+        HashMap<Integer, Long> expected = new HashMap<Integer, Long>();
+        for (int t=0; t<100000; t++) {
+            int key = toInt(rand.nextInt(1000));
+            long val = toLong(rand.nextInt(100));
+            if (rand.nextBoolean()) {
+                map.put(key, val);
+                expected.put(key, val);
+            } else {
+                map.remove(key);
+                expected.remove(key);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int i=0; i<1000; i++) {
+            int key = toInt(i);
+            assertEquals(expected.containsKey(key), map.contains(key));
+            if (expected.containsKey(key)) {
+                assertEquals(toInt(expected.get(key)), toInt(map.get(key)));
+            }
+        }
+        // The table never holds more than the live entries.
+        int full = 0;
+        for (int i=0; i<map.keys.length; i++) {
+            if (map.keys[i] != 0) {
+                full++;
+            }
+        }
+        assertEquals(map.size() - (map.contains(0) ? 1 : 0), full);
+    }
+
+    @Test
+    public void testClearInvalidatesIterators() {
+        IntLongLinearHashMap map = new IntLongLinearHashMap();
+        map.put(1, toLong(11));
+        map.put(2, toLong(22));
+        Iterator<IntLongEntry> iter = map.iterator();
+        IntLongCursor cur = map.cursor();
+        map.clear();
+        try {
+            iter.next();
+            fail("Expected ConcurrentModificationException");
+        } catch (ConcurrentModificationException e) {
+            // pass
+        }
+        try {
+            cur.advance();
+            fail("Expected ConcurrentModificationException");
+        } catch (ConcurrentModificationException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testCopyConstructor() {
+        IntLongLinearHashMap map = new IntLongLinearHashMap();
+        map.put(0, toLong(1));
+        map.put(2, toLong(22));
+        IntLongLinearHashMap copy = new IntLongLinearHashMap(map);
+        map.put(2, toLong(33));
+        assertEquals(2, copy.size());
+        assertEquals(1, toInt(copy.get(0)));
+        assertEquals(22, toInt(copy.get(2)));
+    }
+
+    @Test
+    public void testIterator() {
+        IntLongLinearHashMap map = new IntLongLinearHashMap();
+        map.put(0, toLong(10));
+        map.put(2, toLong(22));
+        map.put(1, toLong(11));
+
+        int indexSum = 0;
+        int valueSum = 0;
+        int n = 0;
+        Iterator<IntLongEntry> iter = map.iterator();
+        // The entry for key 0 always comes first.
+        assertEquals(true, iter.hasNext());
+        IntLongEntry cur = iter.next();
+        assertEquals(0, cur.index());
+        assertEquals(10, toInt(cur.get()));
+        while (iter.hasNext()) {
+            cur = iter.next();
+            indexSum += cur.index();
+            valueSum += toInt(cur.get());
+            n++;
+        }
+        assertEquals(2, n);
+        assertEquals(3, indexSum);
+        assertEquals(33, valueSum);
+    }
+
+    @Test
+    public void testBatchMethods() {
+        // Spans more than one batch block and includes the zero key.
+        int n = 150;
+        int[] keys = new int[n];
+        long[] vals = new long[n];
+        for (int i=0; i<n; i++) {
+            keys[i] = toInt(i * 3);
+            vals[i] = toLong(i);
+        }
+        IntLongLinearHashMap map = new IntLongLinearHashMap(0, toLong(-1));
+        map.putAll(keys, vals);
+        map.addAll(keys, vals);
+        assertEquals(n, map.size());
+
+        int[] queries = new int[2 * n];
+        for (int i=0; i<queries.length; i++) {
+            queries[i] = toInt(i * 3 / 2);
+        }
+        long[] out = new long[queries.length];
+        boolean[] contained = new boolean[queries.length];
+        map.getAll(queries, out);
+        map.containsAll(queries, contained);
+        for (int i=0; i<queries.length; i++) {
+            assertEquals(map.contains(queries[i]), contained[i]);
+            assertEquals(toInt(map.get(queries[i])), toInt(out[i]));
+            if (contained[i]) {
+                assertEquals(2 * queries[i] / 3, toInt(out[i]));
+            } else {
+                assertEquals(-1, toInt(out[i]));
+            }
+        }
+    }
+
+}
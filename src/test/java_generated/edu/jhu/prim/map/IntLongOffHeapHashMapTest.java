@@ -0,0 +1,178 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toLong;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntLongOffHeapHashMapTest {
+
+    @Test
+    public void testNormalUsage() {
+        IntLongMap map = new IntLongOffHeapHashMap(0, toLong(-1));
+        map.put(2, toLong(22));
+        map.put(1, toLong(11));
+        map.put(3, toLong(33));
+        map.put(-1, toLong(-11));
+        map.put(0, toLong(10));
+        map.add(3, toLong(1));
+
+        assertEquals(34, toInt(map.get(3)));
+        assertEquals(11, toInt(map.get(1)));
+        assertEquals(-11, toInt(map.get(-1)));
+        assertEquals(22, toInt(map.get(2)));
+        assertEquals(10, toInt(map.get(0)));
+        assertEquals(-1, toInt(map.get(4)));
+        assertEquals(5, map.size());
+        assertEquals(5, map.getIndices().length);
+
+        map.remove(1);
+        map.remove(0);
+        assertFalse(map.contains(1));
+        assertFalse(map.contains(0));
+        assertEquals(3, map.size());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.contains(3));
+    }
+
+    @Test
+    public void testRandomChurnMatchesHashMap() {
+        Random rand = new Random(9001);
+        IntLongOffHeapHashMap map = new IntLongOffHeapHashMap(0, toLong(0));
+        HashMap<Integer, Long> expected = new HashMap<Integer, Long>();
+        for (int t=0; t<20000; t++) {
+            int key = toInt(rand.nextInt(1000));
+            long val = toLong(rand.nextInt(100));
+            if (rand.nextBoolean()) {
+                map.put(key, val);
+                expected.put(key, val);
+            } else {
+                map.remove(key);
+                expected.remove(key);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int i=0; i<1000; i++) {
+            int key = toInt(i);
+            assertEquals(expected.containsKey(key), map.contains(key));
+            if (expected.containsKey(key)) {
+                assertEquals(toInt(expected.get(key)), toInt(map.get(key)));
+            }
+        }
+    }
+
+    @Test
+    public void testSaveAndOpenReadOnly() throws IOException {
+        IntLongOffHeapHashMap map = new IntLongOffHeapHashMap(0, toLong(-1));
+        for (int i=0; i<1000; i++) {
+            map.put(toInt(i * 7), toLong(i));
+        }
+        File file = File.createTempFile("offheap", ".map");
+        file.deleteOnExit();
+        try {
+            map.save(file);
+            IntLongOffHeapHashMap mapped = IntLongOffHeapHashMap.openReadOnly(file);
+            assertTrue(mapped.isReadOnly());
+            assertEquals(1000, mapped.size());
+            for (int i=0; i<1000; i++) {
+                assertEquals(i, toInt(mapped.get(toInt(i * 7))));
+            }
+            assertFalse(mapped.contains(toInt(1)));
+            assertEquals(-1, toInt(mapped.get(toInt(1))));
+            assertEquals(toInt(map.getSum()), toInt(mapped.getSum()));
+            try {
+                mapped.put(toInt(1), toLong(1));
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+            try {
+                IntLongOffHeapHashMap.openReadOnly(file, IntHashStrategy.Standard.IDENTITY);
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // pass
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        IntLongOffHeapHashMap map = new IntLongOffHeapHashMap(0, toLong(-1));
+        // Grow the table several times, freeing the old buffers.
+        for (int i=0; i<1000; i++) {
+            map.put(toInt(i), toLong(i));
+        }
+        for (int i=0; i<1000; i++) {
+            assertEquals(i, toInt(map.get(toInt(i))));
+        }
+        File file = File.createTempFile("offheap", ".map");
+        file.deleteOnExit();
+        try {
+            map.save(file);
+            map.close();
+            // Closing twice has no effect.
+            map.close();
+            try {
+                map.get(toInt(1));
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+            try {
+                map.put(toInt(1), toLong(1));
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+            IntLongOffHeapHashMap mapped = IntLongOffHeapHashMap.openReadOnly(file);
+            assertEquals(999, toInt(mapped.get(toInt(999))));
+            mapped.close();
+            try {
+                mapped.contains(toInt(1));
+                fail("Expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // pass
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        IntLongOffHeapHashMap map = new IntLongOffHeapHashMap(0, toLong(-1));
+        map.put(0, toLong(10));
+        map.put(5, toLong(55));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(map);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        IntLongOffHeapHashMap copy = (IntLongOffHeapHashMap) in.readObject();
+        assertEquals(2, copy.size());
+        assertEquals(10, toInt(copy.get(0)));
+        assertEquals(55, toInt(copy.get(5)));
+        assertEquals(-1, toInt(copy.get(6)));
+        copy.put(6, toLong(66));
+        assertEquals(3, copy.size());
+    }
+
+}
@@ -0,0 +1,159 @@
+package edu.jhu.prim.map;
+
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toLong;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnLongIntToInt;
+import edu.jhu.prim.util.Lambda.FnLongIntToVoid;
+import edu.jhu.prim.vector.LongIntHashVector;
+import edu.jhu.prim.vector.LongIntSortedVector;
+import edu.jhu.prim.vector.LongIntUnsortedVector;
+
+public class LongIntCursorTest {
+
+    static LongIntMap[] getMaps() {
+        return new LongIntMap[]{ new LongIntSortedMap(), new LongIntHashMap(), 
+                new LongIntLinearHashMap(), new LongIntConcurrentHashMap(),
+                new LongIntOffHeapHashMap(), new LongIntSortedVector(), new LongIntHashVector() };
+    }
+
+    @Test
+    public void testVisitsEachEntryAndSetsValues() {
+        for (LongIntMap map : getMaps()) {
+            // Include the zero key, which some maps store outside of their table.
+            for (int i=0; i<100; i++) {
+                map.put(toLong(i * 3), toInt(i));
+            }
+            int n = 0;
+            LongIntCursor cur = map.cursor();
+            while (cur.advance()) {
+                assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+                cur.setValue(toInt(toInt(cur.value()) + 1));
+                n++;
+            }
+            assertEquals(map.getClass().getName(), 100, n);
+            assertFalse(cur.advance());
+            for (int i=0; i<100; i++) {
+                assertEquals(i + 1, toInt(map.get(toLong(i * 3))));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsortedVector() {
+        LongIntUnsortedVector vec = new LongIntUnsortedVector();
+        vec.add(5, toInt(1));
+        vec.add(2, toInt(2));
+        vec.add(5, toInt(3));
+        LongIntCursor cur = vec.cursor();
+        assertTrue(cur.advance());
+        assertEquals(2, toInt(cur.key()));
+        assertEquals(2, toInt(cur.value()));
+        assertTrue(cur.advance());
+        assertEquals(5, toInt(cur.key()));
+        assertEquals(4, toInt(cur.value()));
+        cur.setValue(toInt(7));
+        assertFalse(cur.advance());
+        assertEquals(7, toInt(vec.get(5)));
+    }
+
+    @Test
+    public void testEmptyAndExhausted() {
+        for (LongIntMap map : getMaps()) {
+            LongIntCursor cur = map.cursor();
+            try {
+                cur.key();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+            assertFalse(cur.advance());
+            assertFalse(cur.advance());
+            try {
+                cur.value();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultCursor() {
+        LongIntMap map = new IteratorOnlyMap();
+        for (int i=0; i<100; i++) {
+            map.put(toLong(i * 3), toInt(i));
+        }
+        int n = 0;
+        LongIntCursor cur = map.cursor();
+        while (cur.advance()) {
+            assertEquals(toInt(cur.key()) / 3, toInt(cur.value()));
+            cur.setValue(toInt(toInt(cur.value()) + 1));
+            assertEquals(toInt(cur.key()) / 3 + 1, toInt(cur.value()));
+            n++;
+        }
+        assertEquals(100, n);
+        assertFalse(cur.advance());
+        try {
+            cur.key();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // pass
+        }
+        for (int i=0; i<100; i++) {
+            assertEquals(i + 1, toInt(map.get(toLong(i * 3))));
+        }
+    }
+
+    /** A map which only implements the abstract methods, as a map outside of this library would. */
+    private static class IteratorOnlyMap implements LongIntMap {
+        private static final long serialVersionUID = 1L;
+        private final LongIntHashMap map = new LongIntHashMap();
+        public int get(long idx) { return map.get(idx); }
+        public int getWithDefault(long idx, int defaultVal) { return map.getWithDefault(idx, defaultVal); }
+        public boolean contains(long idx) { return map.contains(idx); }
+        public int put(long idx, int val) { return map.put(idx, val); }
+        public void remove(long idx) { map.remove(idx); }
+        public void clear() { map.clear(); }
+        public void add(long idx, int incr) { map.add(idx, incr); }
+        public void apply(FnLongIntToInt lambda) { map.apply(lambda); }
+        public void iterate(FnLongIntToVoid function) { map.iterate(function); }
+        public Iterator<LongIntEntry> iterator() { return map.iterator(); }
+        public int size() { return map.size(); }
+        public long[] getIndices() { return map.getIndices(); }
+        public int[] getValues() { return map.getValues(); }
+    }
+
+    @Test
+    public void testFailFast() {
+        for (LongIntMap map : getMaps()) {
+            if (map instanceof LongIntConcurrentHashMap) {
+                // Weakly consistent instead.
+                continue;
+            }
+            map.put(toLong(1), toInt(1));
+            map.put(toLong(2), toInt(2));
+            LongIntCursor cur = map.cursor();
+            assertTrue(cur.advance());
+            map.put(toLong(3), toInt(3));
+            try {
+                cur.advance();
+                fail("Expected ConcurrentModificationException: " + map.getClass().getName());
+            } catch (ConcurrentModificationException e) {
+                // pass
+            }
+        }
+    }
+
+}
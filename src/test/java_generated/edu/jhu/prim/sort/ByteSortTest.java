@@ -125,8 +125,9 @@ public class ByteSortTest {
         int size = Byte.MAX_VALUE;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                ByteSort.numSwaps = 0;
+                stats.reset();
                 byte[] index = new byte[size];
                 for (int j=0; j<size; j++) {
                     index[j] = (byte) -j;
@@ -137,18 +138,19 @@ public class ByteSortTest {
                 }
                 assertTrue(ByteSort.isSortedDesc(index));
                 timer.start();
-                ByteSort.sortDesc(index);
+                ByteSort.sortDesc(index, stats);
                 timer.stop();
                 assertTrue(ByteSort.isSortedDesc(index));
             }
-            System.out.println("Num swaps: " + ByteSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, ByteSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                ByteSort.numSwaps = 0;
+                stats.reset();
                 byte[] index = new byte[size];
                 for (int j=0; j<size; j++) {
                     index[j] = (byte) j;
@@ -159,13 +161,13 @@ public class ByteSortTest {
                 }
                 assertTrue(ByteSort.isSortedAsc(index));                
                 timer.start();
-                ByteSort.sortAsc(index);
+                ByteSort.sortAsc(index, stats);
                 timer.stop();
                 assertTrue(ByteSort.isSortedAsc(index));                
             }
-            System.out.println("Num swaps: " + ByteSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, ByteSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
 
@@ -184,4 +186,38 @@ public class ByteSortTest {
         System.out.println(Arrays.toString(values));
         ByteJUnitUtils.assertArrayEquals(new byte[]{ 1, 3, 2, -1, 5}, values);
     }
+
+    /** Gets sorted, reversed, organ pipe, many duplicates and random inputs. */
+    private static byte[][] getPatterns(int n) {
+        Random rand = new Random(9001);
+        byte[][] patterns = new byte[5][n];
+        for (int i=0; i<n; i++) {
+            patterns[0][i] = (byte) (i / 10);
+            patterns[1][i] = (byte) ((n - i) / 10);
+            patterns[2][i] = (byte) (Math.min(i, n - i) / 10);
+            patterns[3][i] = (byte) rand.nextInt(4);
+            patterns[4][i] = (byte) rand.nextInt(100);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testQuicksortPatterns() {
+        for (byte[] pattern : getPatterns(1000)) {
+            byte[] asc = Arrays.copyOf(pattern, pattern.length);
+            SortStats stats = new SortStats();
+            ByteSort.sortAsc(asc, stats);
+            assertTrue(ByteSort.isSortedAsc(asc));
+            assertEquals(0, stats.getNumHeapsorts());
+
+            byte[] desc = Arrays.copyOf(pattern, pattern.length);
+            ByteSort.sortDesc(desc, stats);
+            assertTrue(ByteSort.isSortedDesc(desc));
+
+            byte[] heap = Arrays.copyOf(pattern, pattern.length);
+            ByteSort.introsort(heap, 0, heap.length - 1, true, 0, stats);
+            assertTrue(ByteSort.isSortedAsc(heap));
+            assertEquals(1, stats.getNumHeapsorts());
+        }
+    }
 }
@@ -126,8 +126,9 @@ public class FloatSortTest {
         int size = 100;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                FloatSort.numSwaps = 0;
+                stats.reset();
                 float[] index = new float[size];
                 for (int j=0; j<size; j++) {
                     index[j] = - (float) j;
@@ -138,18 +139,19 @@ public class FloatSortTest {
                 }
                 assertTrue(FloatSort.isSortedDesc(index));
                 timer.start();
-                FloatSort.sortDesc(index);
+                FloatSort.sortDesc(index, stats);
                 timer.stop();
                 assertTrue(FloatSort.isSortedDesc(index));
             }
-            System.out.println("Num swaps: " + FloatSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, FloatSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                FloatSort.numSwaps = 0;
+                stats.reset();
                 float[] index = new float[size];
                 for (int j=0; j<size; j++) {
                     index[j] = (float) j;
@@ -160,13 +162,13 @@ public class FloatSortTest {
                 }
                 assertTrue(FloatSort.isSortedAsc(index));                
                 timer.start();
-                FloatSort.sortAsc(index);
+                FloatSort.sortAsc(index, stats);
                 timer.stop();
                 assertTrue(FloatSort.isSortedAsc(index));                
             }
-            System.out.println("Num swaps: " + FloatSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, FloatSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
     
@@ -4,7 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -15,6 +18,14 @@ import edu.jhu.prim.util.DoubleJUnitUtils;
 import edu.jhu.prim.util.Timer;
 
 public class IntDoubleSortTest {
+
+    /** An explicit pool, so the parallel paths run even on a single-core machine. */
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
         
     /* ---------- Ints and Doubles --------------*/
     
@@ -205,8 +216,9 @@ public class IntDoubleSortTest {
         int size = Byte.MAX_VALUE;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                IntDoubleSort.numSwaps = 0;
+                stats.reset();
                 double[] values = new double[size];
                 int[] index = new int[size];
                 for (int j=0; j<size; j++) {
@@ -219,26 +231,27 @@ public class IntDoubleSortTest {
                 }
                 assertTrue(IntSort.isSortedDesc(index));
                 timer.start();
-                IntDoubleSort.sortIndexDesc(index, values);
+                IntDoubleSort.sortIndexDesc(index, values, stats);
                 timer.stop();     
                 assertTrue(IntSort.isSortedDesc(index));
-                assertEquals(0, IntDoubleSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(DoubleSort.isSortedDesc(values));
                 timer.start();
-                IntDoubleSort.sortValuesDesc(values, index);
+                IntDoubleSort.sortValuesDesc(values, index, stats);
                 timer.stop();
                 assertTrue(DoubleSort.isSortedDesc(values));
-                assertEquals(0, IntDoubleSort.numSwaps);   
+                assertEquals(0, stats.getNumSwaps());   
             }
-            System.out.println("Num swaps: " + IntDoubleSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, IntDoubleSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                IntDoubleSort.numSwaps = 0;
+                stats.reset();
                 double[] values = new double[size];
                 int[] index = new int[size];
                 for (int j=0; j<size; j++) {
@@ -251,22 +264,212 @@ public class IntDoubleSortTest {
                 }
                 assertTrue(IntSort.isSortedAsc(index));
                 timer.start();
-                IntDoubleSort.sortIndexAsc(index, values);
+                IntDoubleSort.sortIndexAsc(index, values, stats);
                 timer.stop();     
                 assertTrue(IntSort.isSortedAsc(index));
-                assertEquals(0, IntDoubleSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(DoubleSort.isSortedAsc(values));
                 timer.start();
-                IntDoubleSort.sortValuesAsc(values, index);
+                IntDoubleSort.sortValuesAsc(values, index, stats);
                 timer.stop();
                 assertTrue(DoubleSort.isSortedAsc(values));
-                assertEquals(0, IntDoubleSort.numSwaps);                
+                assertEquals(0, stats.getNumSwaps());                
             }
-            System.out.println("Num swaps: " + IntDoubleSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, IntDoubleSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
-    
+
+    /** Gets inputs which made the old rightmost-pivot quicksort quadratic, plus a random one. */
+    static int[][] getPatterns(int n) {
+        Random rand = new Random(9001);
+        int[][] patterns = new int[5][n];
+        for (int i=0; i<n; i++) {
+            patterns[0][i] = (int) (i / 10);
+            patterns[1][i] = (int) ((n - i) / 10);
+            patterns[2][i] = (int) (Math.min(i, n - i) / 10);
+            patterns[3][i] = (int) rand.nextInt(4);
+            patterns[4][i] = (int) rand.nextInt(100);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testSortIndexPatterns() {
+        for (int[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                int[] index = Arrays.copyOf(pattern, pattern.length);
+                double[] values = new double[index.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (double) i;
+                }
+                SortStats stats = new SortStats();
+                if (asc) {
+                    IntDoubleSort.sortIndexAsc(index, values, stats);
+                    assertTrue(IntSort.isSortedAsc(index));
+                } else {
+                    IntDoubleSort.sortIndexDesc(index, values, stats);
+                    assertTrue(IntSort.isSortedDesc(index));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) values[i]], index[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSortValuesPatterns() {
+        for (int[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                double[] values = new double[pattern.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (double) pattern[i];
+                }
+                int[] index = IntArrays.range(values.length);
+                SortStats stats = new SortStats();
+                if (asc) {
+                    IntDoubleSort.sortValuesAsc(values, index, stats);
+                    assertTrue(DoubleSort.isSortedAsc(values));
+                } else {
+                    IntDoubleSort.sortValuesDesc(values, index, stats);
+                    assertTrue(DoubleSort.isSortedDesc(values));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) index[i]], (int) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHeapsortFallback() {
+        for (int[] pattern : getPatterns(1000)) {
+            int[] index = Arrays.copyOf(pattern, pattern.length);
+            double[] values = new double[index.length];
+            for (int i=0; i<values.length; i++) {
+                values[i] = (double) i;
+            }
+            SortStats stats = new SortStats();
+            // A depth limit of zero sends the whole range straight to heapsort.
+            IntDoubleSort.introsortIndex(index, values, 0, index.length - 1, true, 0, stats);
+            assertEquals(1, stats.getNumHeapsorts());
+            assertTrue(IntSort.isSortedAsc(index));
+            for (int i=0; i<index.length; i++) {
+                assertEquals(pattern[(int) values[i]], index[i]);
+            }
+
+            double[] copy = new double[pattern.length];
+            for (int i=0; i<copy.length; i++) {
+                copy[i] = (double) pattern[i];
+            }
+            int[] idx = IntArrays.range(copy.length);
+            IntDoubleSort.introsortValues(copy, idx, 0, copy.length - 1, false, 0, null);
+            assertTrue(DoubleSort.isSortedDesc(copy));
+        }
+    }
+
+    @Test
+    public void testRadixSortAboveThreshold() {
+        Random rand = new Random(9001);
+        int n = 2 * IntDoubleSort.RADIX_SORT_THRESHOLD;
+        RadixSort.Scratch scratch = new RadixSort.Scratch();
+        for (boolean asc : new boolean[]{ true, false }) {
+            int[] index = new int[n];
+            double[] values = new double[n];
+            for (int i=0; i<n; i++) {
+                index[i] = (int) (rand.nextInt(1000000) - 500000);
+                values[i] = (double) (index[i] % 100);
+            }
+            SortStats stats = new SortStats();
+            if (asc) {
+                IntDoubleSort.sortIndexAsc(index, values, stats);
+                assertTrue(IntSort.isSortedAsc(index));
+            } else {
+                IntDoubleSort.sortIndexDesc(index, values, n, scratch);
+                assertTrue(IntSort.isSortedDesc(index));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals(index[i] % 100, (int) values[i]);
+            }
+            if (asc) {
+                assertEquals(1, stats.getNumRadixSorts());
+            }
+
+            double[] vals = new double[n];
+            for (int i=0; i<n; i++) {
+                vals[i] = (double) (rand.nextInt(100) - 50);
+            }
+            double[] orig = Arrays.copyOf(vals, n);
+            int[] idx = IntArrays.range(n);
+            if (asc) {
+                IntDoubleSort.sortValuesAsc(vals, idx, scratch);
+                assertTrue(DoubleSort.isSortedAsc(vals));
+            } else {
+                IntDoubleSort.sortValuesDesc(vals, idx);
+                assertTrue(DoubleSort.isSortedDesc(vals));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals((int) orig[(int) idx[i]], (int) vals[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexMatchesSequential() {
+        Random rand = new Random(9001);
+        int n = 3 * IntDoubleSort.PARALLEL_SORT_THRESHOLD + 7;
+        for (boolean asc : new boolean[]{ true, false }) {
+            for (int maxKey : new int[]{ 10, 1000000 }) {
+                int[] index = new int[n];
+                double[] values = new double[n];
+                for (int i=0; i<n; i++) {
+                    index[i] = (int) (rand.nextInt(maxKey) - maxKey / 2);
+                    values[i] = (double) (index[i] % 100);
+                }
+                int[] expected = Arrays.copyOf(index, n);
+                double[] expectedValues = Arrays.copyOf(values, n);
+                if (asc) {
+                    IntDoubleSort.sortIndexAsc(expected, expectedValues);
+                    IntDoubleSort.parallelSortIndexAsc(index, values, n, pool);
+                } else {
+                    IntDoubleSort.sortIndexDesc(expected, expectedValues);
+                    IntDoubleSort.parallelSortIndexDesc(index, values, n, pool);
+                }
+                Assert.assertArrayEquals(expected, index);
+                for (int i=0; i<n; i++) {
+                    assertEquals(index[i] % 100, (int) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexTopAndPresorted() {
+        int n = 2 * IntDoubleSort.PARALLEL_SORT_THRESHOLD;
+        int[] index = new int[n + 5];
+        double[] values = new double[n + 5];
+        for (int i=0; i<index.length; i++) {
+            index[i] = index.length - i;
+            values[i] = (double) (i % 100);
+        }
+        // Reverse-sorted prefix, with a tail which must be left alone.
+        IntDoubleSort.parallelSortIndexAsc(index, values, n, pool);
+        for (int i=0; i<n; i++) {
+            assertEquals((int) (i + 6), index[i]);
+            assertEquals((int) ((n - 1 - i) % 100), (int) values[i]);
+        }
+        assertEquals(5, (int) index[n]);
+        // Already sorted.
+        IntDoubleSort.parallelSortIndexAsc(index, values, n, pool);
+        assertTrue(IntSort.isSortedAsc(Arrays.copyOf(index, n)));
+        // Common pool.
+        IntDoubleSort.parallelSortIndexDesc(index, values);
+        assertTrue(IntSort.isSortedDesc(index));
+    }
+
 }
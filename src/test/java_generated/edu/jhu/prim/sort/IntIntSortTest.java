@@ -4,7 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -15,6 +18,14 @@ import edu.jhu.prim.util.IntJUnitUtils;
 import edu.jhu.prim.util.Timer;
 
 public class IntIntSortTest {
+
+    /** An explicit pool, so the parallel paths run even on a single-core machine. */
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
         
     /* ---------- Ints and Ints --------------*/
     
@@ -205,8 +216,9 @@ public class IntIntSortTest {
         int size = Byte.MAX_VALUE;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                IntIntSort.numSwaps = 0;
+                stats.reset();
                 int[] values = new int[size];
                 int[] index = new int[size];
                 for (int j=0; j<size; j++) {
@@ -219,26 +231,27 @@ public class IntIntSortTest {
                 }
                 assertTrue(IntSort.isSortedDesc(index));
                 timer.start();
-                IntIntSort.sortIndexDesc(index, values);
+                IntIntSort.sortIndexDesc(index, values, stats);
                 timer.stop();     
                 assertTrue(IntSort.isSortedDesc(index));
-                assertEquals(0, IntIntSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(IntSort.isSortedDesc(values));
                 timer.start();
-                IntIntSort.sortValuesDesc(values, index);
+                IntIntSort.sortValuesDesc(values, index, stats);
                 timer.stop();
                 assertTrue(IntSort.isSortedDesc(values));
-                assertEquals(0, IntIntSort.numSwaps);   
+                assertEquals(0, stats.getNumSwaps());   
             }
-            System.out.println("Num swaps: " + IntIntSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, IntIntSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                IntIntSort.numSwaps = 0;
+                stats.reset();
                 int[] values = new int[size];
                 int[] index = new int[size];
                 for (int j=0; j<size; j++) {
@@ -251,22 +264,212 @@ public class IntIntSortTest {
                 }
                 assertTrue(IntSort.isSortedAsc(index));
                 timer.start();
-                IntIntSort.sortIndexAsc(index, values);
+                IntIntSort.sortIndexAsc(index, values, stats);
                 timer.stop();     
                 assertTrue(IntSort.isSortedAsc(index));
-                assertEquals(0, IntIntSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(IntSort.isSortedAsc(values));
                 timer.start();
-                IntIntSort.sortValuesAsc(values, index);
+                IntIntSort.sortValuesAsc(values, index, stats);
                 timer.stop();
                 assertTrue(IntSort.isSortedAsc(values));
-                assertEquals(0, IntIntSort.numSwaps);                
+                assertEquals(0, stats.getNumSwaps());                
             }
-            System.out.println("Num swaps: " + IntIntSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, IntIntSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
-    
+
+    /** Gets inputs which made the old rightmost-pivot quicksort quadratic, plus a random one. */
+    static int[][] getPatterns(int n) {
+        Random rand = new Random(9001);
+        int[][] patterns = new int[5][n];
+        for (int i=0; i<n; i++) {
+            patterns[0][i] = (int) (i / 10);
+            patterns[1][i] = (int) ((n - i) / 10);
+            patterns[2][i] = (int) (Math.min(i, n - i) / 10);
+            patterns[3][i] = (int) rand.nextInt(4);
+            patterns[4][i] = (int) rand.nextInt(100);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testSortIndexPatterns() {
+        for (int[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                int[] index = Arrays.copyOf(pattern, pattern.length);
+                int[] values = new int[index.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (int) i;
+                }
+                SortStats stats = new SortStats();
+                if (asc) {
+                    IntIntSort.sortIndexAsc(index, values, stats);
+                    assertTrue(IntSort.isSortedAsc(index));
+                } else {
+                    IntIntSort.sortIndexDesc(index, values, stats);
+                    assertTrue(IntSort.isSortedDesc(index));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) values[i]], index[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSortValuesPatterns() {
+        for (int[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                int[] values = new int[pattern.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (int) pattern[i];
+                }
+                int[] index = IntArrays.range(values.length);
+                SortStats stats = new SortStats();
+                if (asc) {
+                    IntIntSort.sortValuesAsc(values, index, stats);
+                    assertTrue(IntSort.isSortedAsc(values));
+                } else {
+                    IntIntSort.sortValuesDesc(values, index, stats);
+                    assertTrue(IntSort.isSortedDesc(values));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) index[i]], (int) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHeapsortFallback() {
+        for (int[] pattern : getPatterns(1000)) {
+            int[] index = Arrays.copyOf(pattern, pattern.length);
+            int[] values = new int[index.length];
+            for (int i=0; i<values.length; i++) {
+                values[i] = (int) i;
+            }
+            SortStats stats = new SortStats();
+            // A depth limit of zero sends the whole range straight to heapsort.
+            IntIntSort.introsortIndex(index, values, 0, index.length - 1, true, 0, stats);
+            assertEquals(1, stats.getNumHeapsorts());
+            assertTrue(IntSort.isSortedAsc(index));
+            for (int i=0; i<index.length; i++) {
+                assertEquals(pattern[(int) values[i]], index[i]);
+            }
+
+            int[] copy = new int[pattern.length];
+            for (int i=0; i<copy.length; i++) {
+                copy[i] = (int) pattern[i];
+            }
+            int[] idx = IntArrays.range(copy.length);
+            IntIntSort.introsortValues(copy, idx, 0, copy.length - 1, false, 0, null);
+            assertTrue(IntSort.isSortedDesc(copy));
+        }
+    }
+
+    @Test
+    public void testRadixSortAboveThreshold() {
+        Random rand = new Random(9001);
+        int n = 2 * IntIntSort.RADIX_SORT_THRESHOLD;
+        RadixSort.Scratch scratch = new RadixSort.Scratch();
+        for (boolean asc : new boolean[]{ true, false }) {
+            int[] index = new int[n];
+            int[] values = new int[n];
+            for (int i=0; i<n; i++) {
+                index[i] = (int) (rand.nextInt(1000000) - 500000);
+                values[i] = (int) (index[i] % 100);
+            }
+            SortStats stats = new SortStats();
+            if (asc) {
+                IntIntSort.sortIndexAsc(index, values, stats);
+                assertTrue(IntSort.isSortedAsc(index));
+            } else {
+                IntIntSort.sortIndexDesc(index, values, n, scratch);
+                assertTrue(IntSort.isSortedDesc(index));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals(index[i] % 100, (int) values[i]);
+            }
+            if (asc) {
+                assertEquals(1, stats.getNumRadixSorts());
+            }
+
+            int[] vals = new int[n];
+            for (int i=0; i<n; i++) {
+                vals[i] = (int) (rand.nextInt(100) - 50);
+            }
+            int[] orig = Arrays.copyOf(vals, n);
+            int[] idx = IntArrays.range(n);
+            if (asc) {
+                IntIntSort.sortValuesAsc(vals, idx, scratch);
+                assertTrue(IntSort.isSortedAsc(vals));
+            } else {
+                IntIntSort.sortValuesDesc(vals, idx);
+                assertTrue(IntSort.isSortedDesc(vals));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals((int) orig[(int) idx[i]], (int) vals[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexMatchesSequential() {
+        Random rand = new Random(9001);
+        int n = 3 * IntIntSort.PARALLEL_SORT_THRESHOLD + 7;
+        for (boolean asc : new boolean[]{ true, false }) {
+            for (int maxKey : new int[]{ 10, 1000000 }) {
+                int[] index = new int[n];
+                int[] values = new int[n];
+                for (int i=0; i<n; i++) {
+                    index[i] = (int) (rand.nextInt(maxKey) - maxKey / 2);
+                    values[i] = (int) (index[i] % 100);
+                }
+                int[] expected = Arrays.copyOf(index, n);
+                int[] expectedValues = Arrays.copyOf(values, n);
+                if (asc) {
+                    IntIntSort.sortIndexAsc(expected, expectedValues);
+                    IntIntSort.parallelSortIndexAsc(index, values, n, pool);
+                } else {
+                    IntIntSort.sortIndexDesc(expected, expectedValues);
+                    IntIntSort.parallelSortIndexDesc(index, values, n, pool);
+                }
+                Assert.assertArrayEquals(expected, index);
+                for (int i=0; i<n; i++) {
+                    assertEquals(index[i] % 100, (int) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexTopAndPresorted() {
+        int n = 2 * IntIntSort.PARALLEL_SORT_THRESHOLD;
+        int[] index = new int[n + 5];
+        int[] values = new int[n + 5];
+        for (int i=0; i<index.length; i++) {
+            index[i] = index.length - i;
+            values[i] = (int) (i % 100);
+        }
+        // Reverse-sorted prefix, with a tail which must be left alone.
+        IntIntSort.parallelSortIndexAsc(index, values, n, pool);
+        for (int i=0; i<n; i++) {
+            assertEquals((int) (i + 6), index[i]);
+            assertEquals((int) ((n - 1 - i) % 100), (int) values[i]);
+        }
+        assertEquals(5, (int) index[n]);
+        // Already sorted.
+        IntIntSort.parallelSortIndexAsc(index, values, n, pool);
+        assertTrue(IntSort.isSortedAsc(Arrays.copyOf(index, n)));
+        // Common pool.
+        IntIntSort.parallelSortIndexDesc(index, values);
+        assertTrue(IntSort.isSortedDesc(index));
+    }
+
 }
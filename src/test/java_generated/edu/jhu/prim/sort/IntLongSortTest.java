@@ -4,7 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -15,6 +18,14 @@ import edu.jhu.prim.util.LongJUnitUtils;
 import edu.jhu.prim.util.Timer;
 
 public class IntLongSortTest {
+
+    /** An explicit pool, so the parallel paths run even on a single-core machine. */
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
         
     /* ---------- Ints and Longs --------------*/
     
@@ -205,8 +216,9 @@ public class IntLongSortTest {
         int size = Byte.MAX_VALUE;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                IntLongSort.numSwaps = 0;
+                stats.reset();
                 long[] values = new long[size];
                 int[] index = new int[size];
                 for (int j=0; j<size; j++) {
@@ -219,26 +231,27 @@ public class IntLongSortTest {
                 }
                 assertTrue(IntSort.isSortedDesc(index));
                 timer.start();
-                IntLongSort.sortIndexDesc(index, values);
+                IntLongSort.sortIndexDesc(index, values, stats);
                 timer.stop();     
                 assertTrue(IntSort.isSortedDesc(index));
-                assertEquals(0, IntLongSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(LongSort.isSortedDesc(values));
                 timer.start();
-                IntLongSort.sortValuesDesc(values, index);
+                IntLongSort.sortValuesDesc(values, index, stats);
                 timer.stop();
                 assertTrue(LongSort.isSortedDesc(values));
-                assertEquals(0, IntLongSort.numSwaps);   
+                assertEquals(0, stats.getNumSwaps());   
             }
-            System.out.println("Num swaps: " + IntLongSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, IntLongSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                IntLongSort.numSwaps = 0;
+                stats.reset();
                 long[] values = new long[size];
                 int[] index = new int[size];
                 for (int j=0; j<size; j++) {
@@ -251,22 +264,212 @@ public class IntLongSortTest {
                 }
                 assertTrue(IntSort.isSortedAsc(index));
                 timer.start();
-                IntLongSort.sortIndexAsc(index, values);
+                IntLongSort.sortIndexAsc(index, values, stats);
                 timer.stop();     
                 assertTrue(IntSort.isSortedAsc(index));
-                assertEquals(0, IntLongSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(LongSort.isSortedAsc(values));
                 timer.start();
-                IntLongSort.sortValuesAsc(values, index);
+                IntLongSort.sortValuesAsc(values, index, stats);
                 timer.stop();
                 assertTrue(LongSort.isSortedAsc(values));
-                assertEquals(0, IntLongSort.numSwaps);                
+                assertEquals(0, stats.getNumSwaps());                
             }
-            System.out.println("Num swaps: " + IntLongSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, IntLongSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
-    
+
+    /** Gets inputs which made the old rightmost-pivot quicksort quadratic, plus a random one. */
+    static int[][] getPatterns(int n) {
+        Random rand = new Random(9001);
+        int[][] patterns = new int[5][n];
+        for (int i=0; i<n; i++) {
+            patterns[0][i] = (int) (i / 10);
+            patterns[1][i] = (int) ((n - i) / 10);
+            patterns[2][i] = (int) (Math.min(i, n - i) / 10);
+            patterns[3][i] = (int) rand.nextInt(4);
+            patterns[4][i] = (int) rand.nextInt(100);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testSortIndexPatterns() {
+        for (int[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                int[] index = Arrays.copyOf(pattern, pattern.length);
+                long[] values = new long[index.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (long) i;
+                }
+                SortStats stats = new SortStats();
+                if (asc) {
+                    IntLongSort.sortIndexAsc(index, values, stats);
+                    assertTrue(IntSort.isSortedAsc(index));
+                } else {
+                    IntLongSort.sortIndexDesc(index, values, stats);
+                    assertTrue(IntSort.isSortedDesc(index));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) values[i]], index[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSortValuesPatterns() {
+        for (int[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                long[] values = new long[pattern.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (long) pattern[i];
+                }
+                int[] index = IntArrays.range(values.length);
+                SortStats stats = new SortStats();
+                if (asc) {
+                    IntLongSort.sortValuesAsc(values, index, stats);
+                    assertTrue(LongSort.isSortedAsc(values));
+                } else {
+                    IntLongSort.sortValuesDesc(values, index, stats);
+                    assertTrue(LongSort.isSortedDesc(values));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) index[i]], (int) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHeapsortFallback() {
+        for (int[] pattern : getPatterns(1000)) {
+            int[] index = Arrays.copyOf(pattern, pattern.length);
+            long[] values = new long[index.length];
+            for (int i=0; i<values.length; i++) {
+                values[i] = (long) i;
+            }
+            SortStats stats = new SortStats();
+            // A depth limit of zero sends the whole range straight to heapsort.
+            IntLongSort.introsortIndex(index, values, 0, index.length - 1, true, 0, stats);
+            assertEquals(1, stats.getNumHeapsorts());
+            assertTrue(IntSort.isSortedAsc(index));
+            for (int i=0; i<index.length; i++) {
+                assertEquals(pattern[(int) values[i]], index[i]);
+            }
+
+            long[] copy = new long[pattern.length];
+            for (int i=0; i<copy.length; i++) {
+                copy[i] = (long) pattern[i];
+            }
+            int[] idx = IntArrays.range(copy.length);
+            IntLongSort.introsortValues(copy, idx, 0, copy.length - 1, false, 0, null);
+            assertTrue(LongSort.isSortedDesc(copy));
+        }
+    }
+
+    @Test
+    public void testRadixSortAboveThreshold() {
+        Random rand = new Random(9001);
+        int n = 2 * IntLongSort.RADIX_SORT_THRESHOLD;
+        RadixSort.Scratch scratch = new RadixSort.Scratch();
+        for (boolean asc : new boolean[]{ true, false }) {
+            int[] index = new int[n];
+            long[] values = new long[n];
+            for (int i=0; i<n; i++) {
+                index[i] = (int) (rand.nextInt(1000000) - 500000);
+                values[i] = (long) (index[i] % 100);
+            }
+            SortStats stats = new SortStats();
+            if (asc) {
+                IntLongSort.sortIndexAsc(index, values, stats);
+                assertTrue(IntSort.isSortedAsc(index));
+            } else {
+                IntLongSort.sortIndexDesc(index, values, n, scratch);
+                assertTrue(IntSort.isSortedDesc(index));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals(index[i] % 100, (int) values[i]);
+            }
+            if (asc) {
+                assertEquals(1, stats.getNumRadixSorts());
+            }
+
+            long[] vals = new long[n];
+            for (int i=0; i<n; i++) {
+                vals[i] = (long) (rand.nextInt(100) - 50);
+            }
+            long[] orig = Arrays.copyOf(vals, n);
+            int[] idx = IntArrays.range(n);
+            if (asc) {
+                IntLongSort.sortValuesAsc(vals, idx, scratch);
+                assertTrue(LongSort.isSortedAsc(vals));
+            } else {
+                IntLongSort.sortValuesDesc(vals, idx);
+                assertTrue(LongSort.isSortedDesc(vals));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals((int) orig[(int) idx[i]], (int) vals[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexMatchesSequential() {
+        Random rand = new Random(9001);
+        int n = 3 * IntLongSort.PARALLEL_SORT_THRESHOLD + 7;
+        for (boolean asc : new boolean[]{ true, false }) {
+            for (int maxKey : new int[]{ 10, 1000000 }) {
+                int[] index = new int[n];
+                long[] values = new long[n];
+                for (int i=0; i<n; i++) {
+                    index[i] = (int) (rand.nextInt(maxKey) - maxKey / 2);
+                    values[i] = (long) (index[i] % 100);
+                }
+                int[] expected = Arrays.copyOf(index, n);
+                long[] expectedValues = Arrays.copyOf(values, n);
+                if (asc) {
+                    IntLongSort.sortIndexAsc(expected, expectedValues);
+                    IntLongSort.parallelSortIndexAsc(index, values, n, pool);
+                } else {
+                    IntLongSort.sortIndexDesc(expected, expectedValues);
+                    IntLongSort.parallelSortIndexDesc(index, values, n, pool);
+                }
+                Assert.assertArrayEquals(expected, index);
+                for (int i=0; i<n; i++) {
+                    assertEquals(index[i] % 100, (int) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexTopAndPresorted() {
+        int n = 2 * IntLongSort.PARALLEL_SORT_THRESHOLD;
+        int[] index = new int[n + 5];
+        long[] values = new long[n + 5];
+        for (int i=0; i<index.length; i++) {
+            index[i] = index.length - i;
+            values[i] = (long) (i % 100);
+        }
+        // Reverse-sorted prefix, with a tail which must be left alone.
+        IntLongSort.parallelSortIndexAsc(index, values, n, pool);
+        for (int i=0; i<n; i++) {
+            assertEquals((int) (i + 6), index[i]);
+            assertEquals((int) ((n - 1 - i) % 100), (int) values[i]);
+        }
+        assertEquals(5, (int) index[n]);
+        // Already sorted.
+        IntLongSort.parallelSortIndexAsc(index, values, n, pool);
+        assertTrue(IntSort.isSortedAsc(Arrays.copyOf(index, n)));
+        // Common pool.
+        IntLongSort.parallelSortIndexDesc(index, values);
+        assertTrue(IntSort.isSortedDesc(index));
+    }
+
 }
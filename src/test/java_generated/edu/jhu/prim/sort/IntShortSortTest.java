@@ -4,7 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -15,6 +18,14 @@ import edu.jhu.prim.util.ShortJUnitUtils;
 import edu.jhu.prim.util.Timer;
 
 public class IntShortSortTest {
+
+    /** An explicit pool, so the parallel paths run even on a single-core machine. */
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
         
     /* ---------- Ints and Shorts --------------*/
     
@@ -205,8 +216,9 @@ public class IntShortSortTest {
         int size = Byte.MAX_VALUE;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                IntShortSort.numSwaps = 0;
+                stats.reset();
                 short[] values = new short[size];
                 int[] index = new int[size];
                 for (int j=0; j<size; j++) {
@@ -219,26 +231,27 @@ public class IntShortSortTest {
                 }
                 assertTrue(IntSort.isSortedDesc(index));
                 timer.start();
-                IntShortSort.sortIndexDesc(index, values);
+                IntShortSort.sortIndexDesc(index, values, stats);
                 timer.stop();     
                 assertTrue(IntSort.isSortedDesc(index));
-                assertEquals(0, IntShortSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(ShortSort.isSortedDesc(values));
                 timer.start();
-                IntShortSort.sortValuesDesc(values, index);
+                IntShortSort.sortValuesDesc(values, index, stats);
                 timer.stop();
                 assertTrue(ShortSort.isSortedDesc(values));
-                assertEquals(0, IntShortSort.numSwaps);   
+                assertEquals(0, stats.getNumSwaps());   
             }
-            System.out.println("Num swaps: " + IntShortSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, IntShortSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                IntShortSort.numSwaps = 0;
+                stats.reset();
                 short[] values = new short[size];
                 int[] index = new int[size];
                 for (int j=0; j<size; j++) {
@@ -251,22 +264,212 @@ public class IntShortSortTest {
                 }
                 assertTrue(IntSort.isSortedAsc(index));
                 timer.start();
-                IntShortSort.sortIndexAsc(index, values);
+                IntShortSort.sortIndexAsc(index, values, stats);
                 timer.stop();     
                 assertTrue(IntSort.isSortedAsc(index));
-                assertEquals(0, IntShortSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(ShortSort.isSortedAsc(values));
                 timer.start();
-                IntShortSort.sortValuesAsc(values, index);
+                IntShortSort.sortValuesAsc(values, index, stats);
                 timer.stop();
                 assertTrue(ShortSort.isSortedAsc(values));
-                assertEquals(0, IntShortSort.numSwaps);                
+                assertEquals(0, stats.getNumSwaps());                
             }
-            System.out.println("Num swaps: " + IntShortSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, IntShortSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
-    
+
+    /** Gets inputs which made the old rightmost-pivot quicksort quadratic, plus a random one. */
+    static int[][] getPatterns(int n) {
+        Random rand = new Random(9001);
+        int[][] patterns = new int[5][n];
+        for (int i=0; i<n; i++) {
+            patterns[0][i] = (int) (i / 10);
+            patterns[1][i] = (int) ((n - i) / 10);
+            patterns[2][i] = (int) (Math.min(i, n - i) / 10);
+            patterns[3][i] = (int) rand.nextInt(4);
+            patterns[4][i] = (int) rand.nextInt(100);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testSortIndexPatterns() {
+        for (int[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                int[] index = Arrays.copyOf(pattern, pattern.length);
+                short[] values = new short[index.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (short) i;
+                }
+                SortStats stats = new SortStats();
+                if (asc) {
+                    IntShortSort.sortIndexAsc(index, values, stats);
+                    assertTrue(IntSort.isSortedAsc(index));
+                } else {
+                    IntShortSort.sortIndexDesc(index, values, stats);
+                    assertTrue(IntSort.isSortedDesc(index));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) values[i]], index[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSortValuesPatterns() {
+        for (int[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                short[] values = new short[pattern.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (short) pattern[i];
+                }
+                int[] index = IntArrays.range(values.length);
+                SortStats stats = new SortStats();
+                if (asc) {
+                    IntShortSort.sortValuesAsc(values, index, stats);
+                    assertTrue(ShortSort.isSortedAsc(values));
+                } else {
+                    IntShortSort.sortValuesDesc(values, index, stats);
+                    assertTrue(ShortSort.isSortedDesc(values));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) index[i]], (int) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHeapsortFallback() {
+        for (int[] pattern : getPatterns(1000)) {
+            int[] index = Arrays.copyOf(pattern, pattern.length);
+            short[] values = new short[index.length];
+            for (int i=0; i<values.length; i++) {
+                values[i] = (short) i;
+            }
+            SortStats stats = new SortStats();
+            // A depth limit of zero sends the whole range straight to heapsort.
+            IntShortSort.introsortIndex(index, values, 0, index.length - 1, true, 0, stats);
+            assertEquals(1, stats.getNumHeapsorts());
+            assertTrue(IntSort.isSortedAsc(index));
+            for (int i=0; i<index.length; i++) {
+                assertEquals(pattern[(int) values[i]], index[i]);
+            }
+
+            short[] copy = new short[pattern.length];
+            for (int i=0; i<copy.length; i++) {
+                copy[i] = (short) pattern[i];
+            }
+            int[] idx = IntArrays.range(copy.length);
+            IntShortSort.introsortValues(copy, idx, 0, copy.length - 1, false, 0, null);
+            assertTrue(ShortSort.isSortedDesc(copy));
+        }
+    }
+
+    @Test
+    public void testRadixSortAboveThreshold() {
+        Random rand = new Random(9001);
+        int n = 2 * IntShortSort.RADIX_SORT_THRESHOLD;
+        RadixSort.Scratch scratch = new RadixSort.Scratch();
+        for (boolean asc : new boolean[]{ true, false }) {
+            int[] index = new int[n];
+            short[] values = new short[n];
+            for (int i=0; i<n; i++) {
+                index[i] = (int) (rand.nextInt(1000000) - 500000);
+                values[i] = (short) (index[i] % 100);
+            }
+            SortStats stats = new SortStats();
+            if (asc) {
+                IntShortSort.sortIndexAsc(index, values, stats);
+                assertTrue(IntSort.isSortedAsc(index));
+            } else {
+                IntShortSort.sortIndexDesc(index, values, n, scratch);
+                assertTrue(IntSort.isSortedDesc(index));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals(index[i] % 100, (int) values[i]);
+            }
+            if (asc) {
+                assertEquals(1, stats.getNumRadixSorts());
+            }
+
+            short[] vals = new short[n];
+            for (int i=0; i<n; i++) {
+                vals[i] = (short) (rand.nextInt(100) - 50);
+            }
+            short[] orig = Arrays.copyOf(vals, n);
+            int[] idx = IntArrays.range(n);
+            if (asc) {
+                IntShortSort.sortValuesAsc(vals, idx, scratch);
+                assertTrue(ShortSort.isSortedAsc(vals));
+            } else {
+                IntShortSort.sortValuesDesc(vals, idx);
+                assertTrue(ShortSort.isSortedDesc(vals));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals((int) orig[(int) idx[i]], (int) vals[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexMatchesSequential() {
+        Random rand = new Random(9001);
+        int n = 3 * IntShortSort.PARALLEL_SORT_THRESHOLD + 7;
+        for (boolean asc : new boolean[]{ true, false }) {
+            for (int maxKey : new int[]{ 10, 1000000 }) {
+                int[] index = new int[n];
+                short[] values = new short[n];
+                for (int i=0; i<n; i++) {
+                    index[i] = (int) (rand.nextInt(maxKey) - maxKey / 2);
+                    values[i] = (short) (index[i] % 100);
+                }
+                int[] expected = Arrays.copyOf(index, n);
+                short[] expectedValues = Arrays.copyOf(values, n);
+                if (asc) {
+                    IntShortSort.sortIndexAsc(expected, expectedValues);
+                    IntShortSort.parallelSortIndexAsc(index, values, n, pool);
+                } else {
+                    IntShortSort.sortIndexDesc(expected, expectedValues);
+                    IntShortSort.parallelSortIndexDesc(index, values, n, pool);
+                }
+                Assert.assertArrayEquals(expected, index);
+                for (int i=0; i<n; i++) {
+                    assertEquals(index[i] % 100, (int) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexTopAndPresorted() {
+        int n = 2 * IntShortSort.PARALLEL_SORT_THRESHOLD;
+        int[] index = new int[n + 5];
+        short[] values = new short[n + 5];
+        for (int i=0; i<index.length; i++) {
+            index[i] = index.length - i;
+            values[i] = (short) (i % 100);
+        }
+        // Reverse-sorted prefix, with a tail which must be left alone.
+        IntShortSort.parallelSortIndexAsc(index, values, n, pool);
+        for (int i=0; i<n; i++) {
+            assertEquals((int) (i + 6), index[i]);
+            assertEquals((int) ((n - 1 - i) % 100), (int) values[i]);
+        }
+        assertEquals(5, (int) index[n]);
+        // Already sorted.
+        IntShortSort.parallelSortIndexAsc(index, values, n, pool);
+        assertTrue(IntSort.isSortedAsc(Arrays.copyOf(index, n)));
+        // Common pool.
+        IntShortSort.parallelSortIndexDesc(index, values);
+        assertTrue(IntSort.isSortedDesc(index));
+    }
+
 }
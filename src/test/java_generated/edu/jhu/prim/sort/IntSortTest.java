@@ -125,8 +125,9 @@ public class IntSortTest {
         int size = Byte.MAX_VALUE;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                IntSort.numSwaps = 0;
+                stats.reset();
                 int[] index = new int[size];
                 for (int j=0; j<size; j++) {
                     index[j] = (int) -j;
@@ -137,18 +138,19 @@ public class IntSortTest {
                 }
                 assertTrue(IntSort.isSortedDesc(index));
                 timer.start();
-                IntSort.sortDesc(index);
+                IntSort.sortDesc(index, stats);
                 timer.stop();
                 assertTrue(IntSort.isSortedDesc(index));
             }
-            System.out.println("Num swaps: " + IntSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, IntSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                IntSort.numSwaps = 0;
+                stats.reset();
                 int[] index = new int[size];
                 for (int j=0; j<size; j++) {
                     index[j] = (int) j;
@@ -159,13 +161,13 @@ public class IntSortTest {
                 }
                 assertTrue(IntSort.isSortedAsc(index));                
                 timer.start();
-                IntSort.sortAsc(index);
+                IntSort.sortAsc(index, stats);
                 timer.stop();
                 assertTrue(IntSort.isSortedAsc(index));                
             }
-            System.out.println("Num swaps: " + IntSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, IntSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
 
@@ -184,4 +186,38 @@ public class IntSortTest {
         System.out.println(Arrays.toString(values));
         IntJUnitUtils.assertArrayEquals(new int[]{ 1, 3, 2, -1, 5}, values);
     }
+
+    /** Gets sorted, reversed, organ pipe, many duplicates and random inputs. */
+    private static int[][] getPatterns(int n) {
+        Random rand = new Random(9001);
+        int[][] patterns = new int[5][n];
+        for (int i=0; i<n; i++) {
+            patterns[0][i] = (int) (i / 10);
+            patterns[1][i] = (int) ((n - i) / 10);
+            patterns[2][i] = (int) (Math.min(i, n - i) / 10);
+            patterns[3][i] = (int) rand.nextInt(4);
+            patterns[4][i] = (int) rand.nextInt(100);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testQuicksortPatterns() {
+        for (int[] pattern : getPatterns(1000)) {
+            int[] asc = Arrays.copyOf(pattern, pattern.length);
+            SortStats stats = new SortStats();
+            IntSort.sortAsc(asc, stats);
+            assertTrue(IntSort.isSortedAsc(asc));
+            assertEquals(0, stats.getNumHeapsorts());
+
+            int[] desc = Arrays.copyOf(pattern, pattern.length);
+            IntSort.sortDesc(desc, stats);
+            assertTrue(IntSort.isSortedDesc(desc));
+
+            int[] heap = Arrays.copyOf(pattern, pattern.length);
+            IntSort.introsort(heap, 0, heap.length - 1, true, 0, stats);
+            assertTrue(IntSort.isSortedAsc(heap));
+            assertEquals(1, stats.getNumHeapsorts());
+        }
+    }
 }
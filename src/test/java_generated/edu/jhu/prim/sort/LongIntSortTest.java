@@ -4,7 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -15,6 +18,14 @@ import edu.jhu.prim.util.IntJUnitUtils;
 import edu.jhu.prim.util.Timer;
 
 public class LongIntSortTest {
+
+    /** An explicit pool, so the parallel paths run even on a single-core machine. */
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
         
     /* ---------- Longs and Ints --------------*/
     
@@ -205,8 +216,9 @@ public class LongIntSortTest {
         int size = Byte.MAX_VALUE;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                LongIntSort.numSwaps = 0;
+                stats.reset();
                 int[] values = new int[size];
                 long[] index = new long[size];
                 for (int j=0; j<size; j++) {
@@ -219,26 +231,27 @@ public class LongIntSortTest {
                 }
                 assertTrue(LongSort.isSortedDesc(index));
                 timer.start();
-                LongIntSort.sortIndexDesc(index, values);
+                LongIntSort.sortIndexDesc(index, values, stats);
                 timer.stop();     
                 assertTrue(LongSort.isSortedDesc(index));
-                assertEquals(0, LongIntSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(IntSort.isSortedDesc(values));
                 timer.start();
-                LongIntSort.sortValuesDesc(values, index);
+                LongIntSort.sortValuesDesc(values, index, stats);
                 timer.stop();
                 assertTrue(IntSort.isSortedDesc(values));
-                assertEquals(0, LongIntSort.numSwaps);   
+                assertEquals(0, stats.getNumSwaps());   
             }
-            System.out.println("Num swaps: " + LongIntSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, LongIntSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                LongIntSort.numSwaps = 0;
+                stats.reset();
                 int[] values = new int[size];
                 long[] index = new long[size];
                 for (int j=0; j<size; j++) {
@@ -251,22 +264,212 @@ public class LongIntSortTest {
                 }
                 assertTrue(LongSort.isSortedAsc(index));
                 timer.start();
-                LongIntSort.sortIndexAsc(index, values);
+                LongIntSort.sortIndexAsc(index, values, stats);
                 timer.stop();     
                 assertTrue(LongSort.isSortedAsc(index));
-                assertEquals(0, LongIntSort.numSwaps);
+                assertEquals(0, stats.getNumSwaps());
 
                 assertTrue(IntSort.isSortedAsc(values));
                 timer.start();
-                LongIntSort.sortValuesAsc(values, index);
+                LongIntSort.sortValuesAsc(values, index, stats);
                 timer.stop();
                 assertTrue(IntSort.isSortedAsc(values));
-                assertEquals(0, LongIntSort.numSwaps);                
+                assertEquals(0, stats.getNumSwaps());                
             }
-            System.out.println("Num swaps: " + LongIntSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, LongIntSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
-    
+
+    /** Gets inputs which made the old rightmost-pivot quicksort quadratic, plus a random one. */
+    static long[][] getPatterns(int n) {
+        Random rand = new Random(9001);
+        long[][] patterns = new long[5][n];
+        for (int i=0; i<n; i++) {
+            patterns[0][i] = (long) (i / 10);
+            patterns[1][i] = (long) ((n - i) / 10);
+            patterns[2][i] = (long) (Math.min(i, n - i) / 10);
+            patterns[3][i] = (long) rand.nextInt(4);
+            patterns[4][i] = (long) rand.nextInt(100);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testSortIndexPatterns() {
+        for (long[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                long[] index = Arrays.copyOf(pattern, pattern.length);
+                int[] values = new int[index.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (int) i;
+                }
+                SortStats stats = new SortStats();
+                if (asc) {
+                    LongIntSort.sortIndexAsc(index, values, stats);
+                    assertTrue(LongSort.isSortedAsc(index));
+                } else {
+                    LongIntSort.sortIndexDesc(index, values, stats);
+                    assertTrue(LongSort.isSortedDesc(index));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) values[i]], index[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSortValuesPatterns() {
+        for (long[] pattern : getPatterns(1000)) {
+            for (boolean asc : new boolean[]{ true, false }) {
+                int[] values = new int[pattern.length];
+                for (int i=0; i<values.length; i++) {
+                    values[i] = (int) pattern[i];
+                }
+                long[] index = LongArrays.range(values.length);
+                SortStats stats = new SortStats();
+                if (asc) {
+                    LongIntSort.sortValuesAsc(values, index, stats);
+                    assertTrue(IntSort.isSortedAsc(values));
+                } else {
+                    LongIntSort.sortValuesDesc(values, index, stats);
+                    assertTrue(IntSort.isSortedDesc(values));
+                }
+                assertEquals(0, stats.getNumHeapsorts());
+                for (int i=0; i<index.length; i++) {
+                    assertEquals(pattern[(int) index[i]], (long) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHeapsortFallback() {
+        for (long[] pattern : getPatterns(1000)) {
+            long[] index = Arrays.copyOf(pattern, pattern.length);
+            int[] values = new int[index.length];
+            for (int i=0; i<values.length; i++) {
+                values[i] = (int) i;
+            }
+            SortStats stats = new SortStats();
+            // A depth limit of zero sends the whole range straight to heapsort.
+            LongIntSort.introsortIndex(index, values, 0, index.length - 1, true, 0, stats);
+            assertEquals(1, stats.getNumHeapsorts());
+            assertTrue(LongSort.isSortedAsc(index));
+            for (int i=0; i<index.length; i++) {
+                assertEquals(pattern[(int) values[i]], index[i]);
+            }
+
+            int[] copy = new int[pattern.length];
+            for (int i=0; i<copy.length; i++) {
+                copy[i] = (int) pattern[i];
+            }
+            long[] idx = LongArrays.range(copy.length);
+            LongIntSort.introsortValues(copy, idx, 0, copy.length - 1, false, 0, null);
+            assertTrue(IntSort.isSortedDesc(copy));
+        }
+    }
+
+    @Test
+    public void testRadixSortAboveThreshold() {
+        Random rand = new Random(9001);
+        int n = 2 * LongIntSort.RADIX_SORT_THRESHOLD;
+        RadixSort.Scratch scratch = new RadixSort.Scratch();
+        for (boolean asc : new boolean[]{ true, false }) {
+            long[] index = new long[n];
+            int[] values = new int[n];
+            for (int i=0; i<n; i++) {
+                index[i] = (long) (rand.nextInt(1000000) - 500000);
+                values[i] = (int) (index[i] % 100);
+            }
+            SortStats stats = new SortStats();
+            if (asc) {
+                LongIntSort.sortIndexAsc(index, values, stats);
+                assertTrue(LongSort.isSortedAsc(index));
+            } else {
+                LongIntSort.sortIndexDesc(index, values, n, scratch);
+                assertTrue(LongSort.isSortedDesc(index));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals(index[i] % 100, (long) values[i]);
+            }
+            if (asc) {
+                assertEquals(1, stats.getNumRadixSorts());
+            }
+
+            int[] vals = new int[n];
+            for (int i=0; i<n; i++) {
+                vals[i] = (int) (rand.nextInt(100) - 50);
+            }
+            int[] orig = Arrays.copyOf(vals, n);
+            long[] idx = LongArrays.range(n);
+            if (asc) {
+                LongIntSort.sortValuesAsc(vals, idx, scratch);
+                assertTrue(IntSort.isSortedAsc(vals));
+            } else {
+                LongIntSort.sortValuesDesc(vals, idx);
+                assertTrue(IntSort.isSortedDesc(vals));
+            }
+            for (int i=0; i<n; i++) {
+                assertEquals((long) orig[(int) idx[i]], (long) vals[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexMatchesSequential() {
+        Random rand = new Random(9001);
+        int n = 3 * LongIntSort.PARALLEL_SORT_THRESHOLD + 7;
+        for (boolean asc : new boolean[]{ true, false }) {
+            for (int maxKey : new int[]{ 10, 1000000 }) {
+                long[] index = new long[n];
+                int[] values = new int[n];
+                for (int i=0; i<n; i++) {
+                    index[i] = (long) (rand.nextInt(maxKey) - maxKey / 2);
+                    values[i] = (int) (index[i] % 100);
+                }
+                long[] expected = Arrays.copyOf(index, n);
+                int[] expectedValues = Arrays.copyOf(values, n);
+                if (asc) {
+                    LongIntSort.sortIndexAsc(expected, expectedValues);
+                    LongIntSort.parallelSortIndexAsc(index, values, n, pool);
+                } else {
+                    LongIntSort.sortIndexDesc(expected, expectedValues);
+                    LongIntSort.parallelSortIndexDesc(index, values, n, pool);
+                }
+                Assert.assertArrayEquals(expected, index);
+                for (int i=0; i<n; i++) {
+                    assertEquals(index[i] % 100, (long) values[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSortIndexTopAndPresorted() {
+        int n = 2 * LongIntSort.PARALLEL_SORT_THRESHOLD;
+        long[] index = new long[n + 5];
+        int[] values = new int[n + 5];
+        for (int i=0; i<index.length; i++) {
+            index[i] = index.length - i;
+            values[i] = (int) (i % 100);
+        }
+        // Reverse-sorted prefix, with a tail which must be left alone.
+        LongIntSort.parallelSortIndexAsc(index, values, n, pool);
+        for (int i=0; i<n; i++) {
+            assertEquals((long) (i + 6), index[i]);
+            assertEquals((long) ((n - 1 - i) % 100), (long) values[i]);
+        }
+        assertEquals(5, (long) index[n]);
+        // Already sorted.
+        LongIntSort.parallelSortIndexAsc(index, values, n, pool);
+        assertTrue(LongSort.isSortedAsc(Arrays.copyOf(index, n)));
+        // Common pool.
+        LongIntSort.parallelSortIndexDesc(index, values);
+        assertTrue(LongSort.isSortedDesc(index));
+    }
+
 }
@@ -125,8 +125,9 @@ public class ShortSortTest {
         int size = Byte.MAX_VALUE;
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {           
-                ShortSort.numSwaps = 0;
+                stats.reset();
                 short[] index = new short[size];
                 for (int j=0; j<size; j++) {
                     index[j] = (short) -j;
@@ -137,18 +138,19 @@ public class ShortSortTest {
                 }
                 assertTrue(ShortSort.isSortedDesc(index));
                 timer.start();
-                ShortSort.sortDesc(index);
+                ShortSort.sortDesc(index, stats);
                 timer.stop();
                 assertTrue(ShortSort.isSortedDesc(index));
             }
-            System.out.println("Num swaps: " + ShortSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for descending: " + timer.totMs());
-            assertEquals(0, ShortSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
         {
             Timer timer = new Timer();
+            SortStats stats = new SortStats();
             for (int trial=0; trial<numTrials; trial++) {  
-                ShortSort.numSwaps = 0;
+                stats.reset();
                 short[] index = new short[size];
                 for (int j=0; j<size; j++) {
                     index[j] = (short) j;
@@ -159,13 +161,13 @@ public class ShortSortTest {
                 }
                 assertTrue(ShortSort.isSortedAsc(index));                
                 timer.start();
-                ShortSort.sortAsc(index);
+                ShortSort.sortAsc(index, stats);
                 timer.stop();
                 assertTrue(ShortSort.isSortedAsc(index));                
             }
-            System.out.println("Num swaps: " + ShortSort.numSwaps);
+            System.out.println("Num swaps: " + stats.getNumSwaps());
             System.out.println("Total (ms) for ascending: " + timer.totMs());
-            assertEquals(0, ShortSort.numSwaps);
+            assertEquals(0, stats.getNumSwaps());
         }
     }
 
@@ -184,4 +186,38 @@ public class ShortSortTest {
         System.out.println(Arrays.toString(values));
         ShortJUnitUtils.assertArrayEquals(new short[]{ 1, 3, 2, -1, 5}, values);
     }
+
+    /** Gets sorted, reversed, organ pipe, many duplicates and random inputs. */
+    private static short[][] getPatterns(int n) {
+        Random rand = new Random(9001);
+        short[][] patterns = new short[5][n];
+        for (int i=0; i<n; i++) {
+            patterns[0][i] = (short) (i / 10);
+            patterns[1][i] = (short) ((n - i) / 10);
+            patterns[2][i] = (short) (Math.min(i, n - i) / 10);
+            patterns[3][i] = (short) rand.nextInt(4);
+            patterns[4][i] = (short) rand.nextInt(100);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testQuicksortPatterns() {
+        for (short[] pattern : getPatterns(1000)) {
+            short[] asc = Arrays.copyOf(pattern, pattern.length);
+            SortStats stats = new SortStats();
+            ShortSort.sortAsc(asc, stats);
+            assertTrue(ShortSort.isSortedAsc(asc));
+            assertEquals(0, stats.getNumHeapsorts());
+
+            short[] desc = Arrays.copyOf(pattern, pattern.length);
+            ShortSort.sortDesc(desc, stats);
+            assertTrue(ShortSort.isSortedDesc(desc));
+
+            short[] heap = Arrays.copyOf(pattern, pattern.length);
+            ShortSort.introsort(heap, 0, heap.length - 1, true, 0, stats);
+            assertTrue(ShortSort.isSortedAsc(heap));
+            assertEquals(1, stats.getNumHeapsorts());
+        }
+    }
 }
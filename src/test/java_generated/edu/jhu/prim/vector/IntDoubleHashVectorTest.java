@@ -7,5 +7,10 @@ public class IntDoubleHashVectorTest extends AbstractIntDoubleVectorTest {
     protected IntDoubleVector getIntDoubleVector() {
         return new IntDoubleHashVector();
     }
+
+    @Override
+    protected boolean isIterationOrdered() {
+        return false;
+    }
     
 }    
@@ -0,0 +1,100 @@
+package edu.jhu.prim.vector;
+
+import static edu.jhu.prim.Primitives.toDouble;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntDoubleToDouble;
+import edu.jhu.prim.util.Lambda.FnIntDoubleToVoid;
+
+public class IntDoubleParallelTest {
+
+    /** An explicit pool, so that the parallel code runs even on a single processor. */
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    private static final int n = 3 * AbstractIntDoubleVector.PARALLEL_THRESHOLD;
+
+    @AfterClass
+    public static void shutdown() {
+        pool.shutdown();
+    }
+
+    private static AbstractIntDoubleVector[] getVectors() {
+        AbstractIntDoubleVector[] vecs = new AbstractIntDoubleVector[] { new IntDoubleDenseVector(),
+                new IntDoubleHashVector(), new IntDoubleSortedVector(), new IntDoubleUnsortedVector() };
+        for (AbstractIntDoubleVector vec : vecs) {
+            for (int i=0; i<n; i++) {
+                // Values in [-50, 50), each of which appears many times.
+                ((IntDoubleVector) vec).set(toInt(i), toDouble((i * 7919) % 100 - 50));
+            }
+        }
+        return vecs;
+    }
+
+    @Test
+    public void testReductionsMatchSequential() {
+        for (AbstractIntDoubleVector vec : getVectors()) {
+            String name = vec.getClass().getName();
+            assertEquals(name, toInt(vec.getSum()), toInt(vec.parallelGetSum(pool)));
+            assertEquals(name, toInt(vec.getMax()), toInt(vec.parallelGetMax(pool)));
+            // Ties must be broken as in the sequential version.
+            assertEquals(name, toInt(vec.getArgmax()), toInt(vec.parallelGetArgmax(pool)));
+            double l2 = vec.getL2Norm();
+            // Summing in a different order changes the rounding of float sums.
+            assertEquals(name, l2, vec.parallelGetL2Norm(pool), Math.abs(l2) * 1e-3);
+        }
+    }
+
+    @Test
+    public void testApplyAndIterate() {
+        for (AbstractIntDoubleVector vec : getVectors()) {
+            final int sum = toInt(vec.getSum());
+            // The unsorted vector does not store the zeros.
+            final int[] expectedCount = new int[1];
+            vec.iterate(new FnIntDoubleToVoid() {
+                public void call(int idx, double val) {
+                    expectedCount[0]++;
+                }
+            });
+            vec.parallelApply(new FnIntDoubleToDouble() {
+                public double call(int idx, double val) {
+                    return toDouble(toInt(val) * 2);
+                }
+            }, pool);
+            assertEquals(2 * sum, toInt(vec.getSum()));
+            final AtomicInteger count = new AtomicInteger();
+            vec.parallelIterate(new FnIntDoubleToVoid() {
+                public void call(int idx, double val) {
+                    assertEquals(2 * ((toInt(idx) * 7919) % 100 - 50), toInt(val));
+                    count.incrementAndGet();
+                }
+            }, pool);
+            assertEquals(expectedCount[0], count.get());
+        }
+    }
+
+    @Test
+    public void testVectorWithoutRangesIsSequential() {
+        IntDoubleVectorSlice vec = new IntDoubleVectorSlice(new double[n], 0, n);
+        for (int i=0; i<n; i++) {
+            vec.set(toInt(i), toDouble(i % 10));
+        }
+        assertEquals(toInt(vec.getSum()), toInt(vec.parallelGetSum(pool)));
+        assertEquals(9, toInt(vec.parallelGetArgmax(pool)));
+    }
+
+    @Test
+    public void testSmallVectorIsSequential() {
+        IntDoubleDenseVector vec = new IntDoubleDenseVector(new double[]{ toDouble(3), toDouble(1), toDouble(3) });
+        assertEquals(7, toInt(vec.parallelGetSum(pool)));
+        assertEquals(0, toInt(vec.parallelGetArgmax(pool)));
+    }
+
+}
@@ -136,6 +136,54 @@ public class IntDoubleVectorSliceTest {
         assertEquals(3, toInt(v1.get(4)));
     }
 
+    @Test
+    public void testAddOutOfBoundsLeavesSliceUnchanged() {
+        IntDoubleVectorSlice v = new IntDoubleVectorSlice(new double[5], 1, 3);
+        try {
+            v.add(new IntDoubleUnsortedVector(new int[]{ 0, 3, 1 },
+                    new double[]{ toDouble(1), toDouble(1), toDouble(1) }));
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+        for (int i=0; i<3; i++) {
+            assertEquals(0, toInt(v.get(i)));
+        }
+    }
+
+    @Test
+    public void testVectorOps() {
+        double[] elements = new double[]{ 1, 2, 3, 4, 5, 6 };
+        IntDoubleVectorSlice v1 = new IntDoubleVectorSlice(elements, 1, 4);
+        IntDoubleSortedVector v2 = new IntDoubleSortedVector();
+        v2.set(0, toDouble(10));
+        v2.set(3, toDouble(30));
+        IntDoubleUnsortedVector v3 = new IntDoubleUnsortedVector();
+        v3.add(3, toDouble(2));
+        v3.add(1, toDouble(3));
+
+        v1.add(v2);
+        assertEquals(12, toInt(v1.get(0)));
+        assertEquals(35, toInt(v1.get(3)));
+        v1.subtract(new IntDoubleDenseVector(new double[]{ 2, 3, 4 }));
+        v1.product(v3);
+        assertEquals(1, toInt(elements[0]));
+        assertEquals(0, toInt(v1.get(0)));
+        assertEquals(0, toInt(v1.get(1)));
+        assertEquals(0, toInt(v1.get(2)));
+        assertEquals(70, toInt(v1.get(3)));
+        assertEquals(6, toInt(elements[5]));
+
+        // Entries beyond the end of the slice can't be added.
+        v2.set(4, toDouble(1));
+        try {
+            v1.add(v2);
+            fail();
+        } catch(IllegalStateException e) {
+            // pass
+        }
+    }
+
     @Test
     public void testScale() {
         IntDoubleVector v1 = new IntDoubleDenseVector();
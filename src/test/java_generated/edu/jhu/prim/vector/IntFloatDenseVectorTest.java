@@ -1,6 +1,7 @@
 package edu.jhu.prim.vector;
 
 import static edu.jhu.prim.Primitives.toFloat;
+import static edu.jhu.prim.Primitives.toInt;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -81,5 +82,21 @@ public class IntFloatDenseVectorTest extends AbstractIntFloatVectorTest {
         // Did we iterate over the full expected set.
         assertEquals(i.v, idxs.size());
     }
-    
+
+    @Test
+    public void testAddHashGrows() {
+        // The largest index is within the capacity, but past the explicit entries.
+        IntFloatDenseVector v = new IntFloatDenseVector(10);
+        v.add(0, toFloat(1));
+        v.add(1, toFloat(2));
+        v.add(new IntFloatHashVector(new int[]{ 5, 1, 3 }, new float[]{ toFloat(5), toFloat(1), toFloat(3) }));
+        assertEquals(6, v.getNumExplicitEntries());
+        assertEquals(3, toInt(v.get(1)));
+        assertEquals(3, toInt(v.get(3)));
+        assertEquals(5, toInt(v.get(5)));
+        v.add(new IntFloatHashVector(new int[]{ 40 }, new float[]{ toFloat(4) }));
+        assertEquals(41, v.getNumExplicitEntries());
+        assertEquals(4, toInt(v.get(40)));
+    }
+
 }    
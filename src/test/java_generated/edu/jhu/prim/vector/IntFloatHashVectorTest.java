@@ -7,5 +7,10 @@ public class IntFloatHashVectorTest extends AbstractIntFloatVectorTest {
     protected IntFloatVector getIntFloatVector() {
         return new IntFloatHashVector();
     }
+
+    @Override
+    protected boolean isIterationOrdered() {
+        return false;
+    }
     
 }    
@@ -0,0 +1,100 @@
+package edu.jhu.prim.vector;
+
+import static edu.jhu.prim.Primitives.toFloat;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntFloatToFloat;
+import edu.jhu.prim.util.Lambda.FnIntFloatToVoid;
+
+public class IntFloatParallelTest {
+
+    /** An explicit pool, so that the parallel code runs even on a single processor. */
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    private static final int n = 3 * AbstractIntFloatVector.PARALLEL_THRESHOLD;
+
+    @AfterClass
+    public static void shutdown() {
+        pool.shutdown();
+    }
+
+    private static AbstractIntFloatVector[] getVectors() {
+        AbstractIntFloatVector[] vecs = new AbstractIntFloatVector[] { new IntFloatDenseVector(),
+                new IntFloatHashVector(), new IntFloatSortedVector(), new IntFloatUnsortedVector() };
+        for (AbstractIntFloatVector vec : vecs) {
+            for (int i=0; i<n; i++) {
+                // Values in [-50, 50), each of which appears many times.
+                ((IntFloatVector) vec).set(toInt(i), toFloat((i * 7919) % 100 - 50));
+            }
+        }
+        return vecs;
+    }
+
+    @Test
+    public void testReductionsMatchSequential() {
+        for (AbstractIntFloatVector vec : getVectors()) {
+            String name = vec.getClass().getName();
+            assertEquals(name, toInt(vec.getSum()), toInt(vec.parallelGetSum(pool)));
+            assertEquals(name, toInt(vec.getMax()), toInt(vec.parallelGetMax(pool)));
+            // Ties must be broken as in the sequential version.
+            assertEquals(name, toInt(vec.getArgmax()), toInt(vec.parallelGetArgmax(pool)));
+            float l2 = vec.getL2Norm();
+            // Summing in a different order changes the rounding of float sums.
+            assertEquals(name, l2, vec.parallelGetL2Norm(pool), Math.abs(l2) * 1e-3);
+        }
+    }
+
+    @Test
+    public void testApplyAndIterate() {
+        for (AbstractIntFloatVector vec : getVectors()) {
+            final int sum = toInt(vec.getSum());
+            // The unsorted vector does not store the zeros.
+            final int[] expectedCount = new int[1];
+            vec.iterate(new FnIntFloatToVoid() {
+                public void call(int idx, float val) {
+                    expectedCount[0]++;
+                }
+            });
+            vec.parallelApply(new FnIntFloatToFloat() {
+                public float call(int idx, float val) {
+                    return toFloat(toInt(val) * 2);
+                }
+            }, pool);
+            assertEquals(2 * sum, toInt(vec.getSum()));
+            final AtomicInteger count = new AtomicInteger();
+            vec.parallelIterate(new FnIntFloatToVoid() {
+                public void call(int idx, float val) {
+                    assertEquals(2 * ((toInt(idx) * 7919) % 100 - 50), toInt(val));
+                    count.incrementAndGet();
+                }
+            }, pool);
+            assertEquals(expectedCount[0], count.get());
+        }
+    }
+
+    @Test
+    public void testVectorWithoutRangesIsSequential() {
+        IntFloatVectorSlice vec = new IntFloatVectorSlice(new float[n], 0, n);
+        for (int i=0; i<n; i++) {
+            vec.set(toInt(i), toFloat(i % 10));
+        }
+        assertEquals(toInt(vec.getSum()), toInt(vec.parallelGetSum(pool)));
+        assertEquals(9, toInt(vec.parallelGetArgmax(pool)));
+    }
+
+    @Test
+    public void testSmallVectorIsSequential() {
+        IntFloatDenseVector vec = new IntFloatDenseVector(new float[]{ toFloat(3), toFloat(1), toFloat(3) });
+        assertEquals(7, toInt(vec.parallelGetSum(pool)));
+        assertEquals(0, toInt(vec.parallelGetArgmax(pool)));
+    }
+
+}
@@ -5,11 +5,13 @@ import static edu.jhu.prim.Primitives.toInt;
 import static org.junit.Assert.*;
 
 import java.util.Iterator;
+import java.util.Random;
 
 import org.junit.Test;
 
 import edu.jhu.prim.Primitives;
 import edu.jhu.prim.map.IntFloatEntry;
+import edu.jhu.prim.util.Lambda;
 
 public class IntFloatSortedVectorTest extends AbstractIntFloatVectorTest {
 
@@ -108,6 +110,221 @@ public class IntFloatSortedVectorTest extends AbstractIntFloatVectorTest {
         assertEquals(55, toInt(v3.get(5)));        
     }
     
+    @Test
+    public void testAddSubsetInPlace() {
+        IntFloatSortedVector v1 = new IntFloatSortedVector();
+        IntFloatSortedVector v2 = new IntFloatSortedVector();
+        
+        v1.set(1, toFloat(11));
+        v1.set(2, toFloat(22));
+        v1.set(4, toFloat(44));
+        
+        v2.set(2, toFloat(2));
+        v2.set(4, toFloat(4));
+        
+        int[] indices = v1.getInternalIndices();
+        float[] values = v1.getInternalValues();
+        v1.add(v2);
+        v1.subtract(v2);
+        v1.subtract(v2);
+        
+        // The indices of v2 are a subset, so the arrays are updated in place.
+        assertSame(indices, v1.getInternalIndices());
+        assertSame(values, v1.getInternalValues());
+        assertEquals(3, v1.getUsed());
+        assertEquals(11, toInt(v1.get(1)));
+        assertEquals(20, toInt(v1.get(2)));
+        assertEquals(40, toInt(v1.get(4)));
+    }
+    
+    @Test
+    public void testAddMergesInPlace() {
+        Random rand = new Random(9001);
+        for (int trial = 0; trial < 50; trial++) {
+            // Vary the sizes so that both the linear and galloping passes are used.
+            int n1 = rand.nextInt(200);
+            int n2 = (trial % 2 == 0) ? rand.nextInt(200) : rand.nextInt(5);
+            int[] expected = new int[400];
+            IntFloatSortedVector v1 = new IntFloatSortedVector();
+            IntFloatSortedVector v2 = new IntFloatSortedVector();
+            for (int k = 0; k < n1; k++) {
+                int i = rand.nextInt(expected.length);
+                int val = rand.nextInt(100);
+                v1.set(i, toFloat(val));
+                expected[i] = val;
+            }
+            int[] other = new int[expected.length];
+            for (int k = 0; k < n2; k++) {
+                int i = rand.nextInt(expected.length);
+                int val = rand.nextInt(100);
+                v2.set(i, toFloat(val));
+                other[i] = val;
+            }
+            boolean add = rand.nextBoolean();
+            if (add) {
+                v1.add(v2);
+            } else {
+                v1.subtract(v2);
+            }
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] += add ? other[i] : -other[i];
+                assertEquals(expected[i], toInt(v1.get(i)));
+            }
+            // The result has one explicit entry per distinct index, in order.
+            int[] indices = v1.getIndices();
+            for (int k = 1; k < indices.length; k++) {
+                assertTrue(indices[k-1] < indices[k]);
+            }
+            for (int k = 0; k < v2.getUsed(); k++) {
+                assertTrue(v1.contains(v2.getInternalIndices()[k]));
+            }
+        }
+    }
+    
+    @Test
+    public void testApplyMergesInPlace() {
+        IntFloatSortedVector v1 = new IntFloatSortedVector();
+        IntFloatSortedVector v2 = new IntFloatSortedVector();
+        
+        v1.set(1, toFloat(11));
+        v1.set(4, toFloat(44));
+        v1.set(6, toFloat(66));
+        
+        v2.set(0, toFloat(1));
+        v2.set(4, toFloat(4));
+        v2.set(5, toFloat(5));
+        v2.set(7, toFloat(7));
+        
+        v1.apply(v2, new Lambda.FloatAdd(), false);
+        
+        assertEquals(6, v1.getUsed());
+        assertArrayEquals(new int[]{0, 1, 4, 5, 6, 7}, v1.getIndices());
+        assertEquals(1, toInt(v1.get(0)));
+        assertEquals(11, toInt(v1.get(1)));
+        assertEquals(48, toInt(v1.get(4)));
+        assertEquals(5, toInt(v1.get(5)));
+        assertEquals(66, toInt(v1.get(6)));
+        assertEquals(7, toInt(v1.get(7)));
+    }
+
+    @Test
+    public void testAddHashVectorWithOverlap() {
+        Random rand = new Random(9001);
+        for (int trial = 0; trial < 50; trial++) {
+            // Vary the overlap so that the hash vector is sometimes a subset.
+            int[] expected = new int[100];
+            int[] other = new int[expected.length];
+            IntFloatSortedVector v1 = new IntFloatSortedVector();
+            IntFloatHashVector v2 = new IntFloatHashVector();
+            int numNew = rand.nextInt(3);
+            for (int k = 0; k < 40; k++) {
+                int i = rand.nextInt(expected.length);
+                expected[i] = 1 + rand.nextInt(100);
+                v1.set(i, toFloat(expected[i]));
+                if (rand.nextBoolean()) {
+                    other[i] = 1 + rand.nextInt(100);
+                    v2.set(i, toFloat(other[i]));
+                }
+            }
+            for (int k = 0; k < numNew; k++) {
+                int i = rand.nextInt(expected.length);
+                other[i] = 1 + rand.nextInt(100);
+                v2.set(i, toFloat(other[i]));
+            }
+            v1.add(v2);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i] + other[i], toInt(v1.get(i)));
+                assertEquals(expected[i] != 0 || other[i] != 0, v1.contains(i));
+            }
+        }
+    }
+
+    @Test
+    public void testApplyToEachVectorType() {
+        Random rand = new Random(9001);
+        for (int trial = 0; trial < 80; trial++) {
+            int[] expected = new int[60];
+            boolean[] explicit = new boolean[expected.length];
+            IntFloatSortedVector v1 = new IntFloatSortedVector();
+            for (int k = 0; k < 20; k++) {
+                int i = rand.nextInt(expected.length);
+                expected[i] = 1 + rand.nextInt(100);
+                explicit[i] = true;
+                v1.set(i, toFloat(expected[i]));
+            }
+            // Only the dense vector has explicit entries up to its size.
+            int[] other = new int[40];
+            boolean[] otherExplicit = new boolean[expected.length];
+            int type = trial % 4;
+            for (int i = 0; i < other.length; i++) {
+                if (type == 0 || rand.nextInt(3) == 0) {
+                    other[i] = 1 + rand.nextInt(100);
+                    otherExplicit[i] = true;
+                }
+            }
+            IntFloatVector v2;
+            if (type == 0) {
+                v2 = new IntFloatDenseVector();
+            } else if (type == 1) {
+                v2 = new IntFloatHashVector();
+            } else if (type == 2) {
+                v2 = new IntFloatUnsortedVector();
+            } else {
+                v2 = new IntFloatSortedVector();
+            }
+            for (int i = other.length - 1; i >= 0; i--) {
+                if (otherExplicit[i]) {
+                    v2.set(i, toFloat(other[i]));
+                }
+            }
+            boolean skipZeros = rand.nextBoolean();
+            v1.apply(v2, new Lambda.FloatAdd(), skipZeros);
+
+            int used = 0;
+            for (int i = 0; i < expected.length; i++) {
+                boolean inBoth = explicit[i] && otherExplicit[i];
+                boolean inEither = explicit[i] || otherExplicit[i];
+                if (skipZeros ? inBoth : inEither) {
+                    assertTrue(v1.contains(i));
+                    assertEquals(expected[i] + (i < other.length ? other[i] : 0), toInt(v1.get(i)));
+                    used++;
+                } else {
+                    assertFalse(v1.contains(i));
+                }
+            }
+            assertEquals(used, v1.getUsed());
+        }
+    }
+
+    @Test
+    public void testAddHashVector() {
+        IntFloatSortedVector v1 = new IntFloatSortedVector();
+        v1.set(1, toFloat(11));
+        v1.set(4, toFloat(44));
+        v1.set(6, toFloat(66));
+        int[] indices = v1.getInternalIndices();
+
+        // Entries which are all in the sorted vector are updated in place.
+        IntFloatHashVector v2 = new IntFloatHashVector();
+        v2.set(4, toFloat(4));
+        v2.set(1, toFloat(1));
+        v1.add(v2);
+        assertSame(indices, v1.getInternalIndices());
+        assertArrayEquals(new int[]{1, 4, 6}, v1.getIndices());
+        assertEquals(12, toInt(v1.get(1)));
+        assertEquals(48, toInt(v1.get(4)));
+
+        v2.set(7, toFloat(7));
+        v2.set(0, toFloat(1));
+        v1.add(v2);
+        assertArrayEquals(new int[]{0, 1, 4, 6, 7}, v1.getIndices());
+        assertEquals(1, toInt(v1.get(0)));
+        assertEquals(13, toInt(v1.get(1)));
+        assertEquals(52, toInt(v1.get(4)));
+        assertEquals(66, toInt(v1.get(6)));
+        assertEquals(7, toInt(v1.get(7)));
+    }
+
     @Test
     public void testIterator() {
         IntFloatSortedVector v2 = new IntFloatSortedVector();
@@ -7,6 +7,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Iterator;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -19,13 +20,6 @@ import edu.jhu.prim.util.Lambda.FnIntFloatToVoid;
 
 public class IntFloatUnsortedVectorTest extends AbstractIntFloatVectorTest {
 
-    @Override
-    @Test
-    public void testProductAll() {        
-        // The .product method isn't implemented. Just pass.
-        System.out.println("SKIPPING TEST: IntFloatUnsortedVectorTest.testProductAll()");
-    }
-    
     @Test
     public void testIterator() {
         IntFloatUnsortedVector v2 = new IntFloatUnsortedVector();
@@ -203,6 +197,109 @@ public class IntFloatUnsortedVectorTest extends AbstractIntFloatVectorTest {
         });
     }
 
+    @Test
+    public void testIncrementalCompaction() {
+        Random rand = new Random(9001);
+        IntFloatUnsortedVector v = new IntFloatUnsortedVector();
+        int[] expected = new int[300];
+        for (int t = 0; t < 5000; t++) {
+            int i = rand.nextInt(expected.length);
+            int op = rand.nextInt(10);
+            if (op < 6) {
+                int val = rand.nextInt(7) - 3;
+                v.add(i, toFloat(val));
+                expected[i] += val;
+            } else if (op < 7) {
+                // Cancel an entry out exactly.
+                v.add(i, toFloat(-expected[i]));
+                expected[i] = 0;
+            } else if (op < 9) {
+                assertEquals(expected[i], toInt(v.get(i)));
+            } else {
+                v.compact();
+                int nonZero = 0;
+                for (int k = 0; k < v.getUsed(); k++) {
+                    if (k > 0) {
+                        assertTrue(v.getInternalIndices()[k-1] < v.getInternalIndices()[k]);
+                    }
+                    int idx = v.getInternalIndices()[k];
+                    assertEquals(expected[toInt(idx)], toInt(v.getInternalValues()[k]));
+                }
+                for (int k = 0; k < expected.length; k++) {
+                    nonZero += (expected[k] != 0) ? 1 : 0;
+                }
+                assertEquals(nonZero, v.getUsed());
+            }
+        }
+    }
+
+    @Test
+    public void testCompactDropsLoneZero() {
+        IntFloatUnsortedVector v = new IntFloatUnsortedVector(new int[]{ 5, 3, 1 },
+                new float[]{ toFloat(55), toFloat(0), toFloat(11) });
+        v.compact();
+        assertEquals(2, v.getUsed());
+        assertEquals(1, v.getInternalIndices()[0]);
+        assertEquals(5, v.getInternalIndices()[1]);
+        assertEquals(0, toInt(v.get(3)));
+
+        // An explicit zero in the sorted prefix is kept until its index is added to.
+        v.set(5, toFloat(0));
+        v.add(2, toFloat(22));
+        v.compact();
+        assertEquals(3, v.getUsed());
+        assertEquals(0, toInt(v.get(5)));
+        v.add(5, toFloat(0));
+        v.add(5, toFloat(1));
+        v.add(5, toFloat(-1));
+        v.compact();
+        assertEquals(2, v.getUsed());
+        assertEquals(2, v.getInternalIndices()[1]);
+    }
+
+    @Test
+    public void testAddAppendsWithoutCompacting() {
+        IntFloatUnsortedVector v = new IntFloatUnsortedVector();
+        v.add(1, toFloat(11));
+        v.add(3, toFloat(33));
+        // Entries after the last index keep the vector compacted.
+        v.add(new IntFloatSortedVector(new int[]{ 4, 6 }, new float[]{ toFloat(44), toFloat(0) }));
+        assertTrue(v.compacted);
+        assertEquals(3, v.getUsed());
+        v.add(new IntFloatDenseVector(new float[]{ toFloat(0), toFloat(1) }));
+        assertFalse(v.compacted);
+        assertEquals(4, v.getUsed());
+        // Adding the vector to itself floats it.
+        v.add(v);
+        assertEquals(24, toInt(v.get(1)));
+        assertEquals(66, toInt(v.get(3)));
+        assertEquals(88, toInt(v.get(4)));
+        v.compact();
+        assertEquals(3, v.getUsed());
+    }
+
+    @Test
+    public void testGetScansShortTail() {
+        IntFloatUnsortedVector v = new IntFloatUnsortedVector();
+        v.add(5, toFloat(55));
+        v.add(1, toFloat(11));
+        v.add(3, toFloat(33));
+        v.compact();
+        v.add(2, toFloat(22));
+        v.add(3, toFloat(1));
+
+        // The few entries added since compacting are scanned, not sorted.
+        assertEquals(34, toInt(v.get(3)));
+        assertEquals(22, toInt(v.get(2)));
+        assertEquals(0, toInt(v.get(4)));
+        assertFalse(v.compacted);
+        assertEquals(5, v.getUsed());
+
+        v.compact();
+        assertEquals(4, v.getUsed());
+        assertEquals(34, toInt(v.get(3)));
+    }
+
     protected IntFloatVector getIntFloatVector() {
         return new IntFloatUnsortedVector();
     }
@@ -136,6 +136,54 @@ public class IntFloatVectorSliceTest {
         assertEquals(3, toInt(v1.get(4)));
     }
 
+    @Test
+    public void testAddOutOfBoundsLeavesSliceUnchanged() {
+        IntFloatVectorSlice v = new IntFloatVectorSlice(new float[5], 1, 3);
+        try {
+            v.add(new IntFloatUnsortedVector(new int[]{ 0, 3, 1 },
+                    new float[]{ toFloat(1), toFloat(1), toFloat(1) }));
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+        for (int i=0; i<3; i++) {
+            assertEquals(0, toInt(v.get(i)));
+        }
+    }
+
+    @Test
+    public void testVectorOps() {
+        float[] elements = new float[]{ 1, 2, 3, 4, 5, 6 };
+        IntFloatVectorSlice v1 = new IntFloatVectorSlice(elements, 1, 4);
+        IntFloatSortedVector v2 = new IntFloatSortedVector();
+        v2.set(0, toFloat(10));
+        v2.set(3, toFloat(30));
+        IntFloatUnsortedVector v3 = new IntFloatUnsortedVector();
+        v3.add(3, toFloat(2));
+        v3.add(1, toFloat(3));
+
+        v1.add(v2);
+        assertEquals(12, toInt(v1.get(0)));
+        assertEquals(35, toInt(v1.get(3)));
+        v1.subtract(new IntFloatDenseVector(new float[]{ 2, 3, 4 }));
+        v1.product(v3);
+        assertEquals(1, toInt(elements[0]));
+        assertEquals(0, toInt(v1.get(0)));
+        assertEquals(0, toInt(v1.get(1)));
+        assertEquals(0, toInt(v1.get(2)));
+        assertEquals(70, toInt(v1.get(3)));
+        assertEquals(6, toInt(elements[5]));
+
+        // Entries beyond the end of the slice can't be added.
+        v2.set(4, toFloat(1));
+        try {
+            v1.add(v2);
+            fail();
+        } catch(IllegalStateException e) {
+            // pass
+        }
+    }
+
     @Test
     public void testScale() {
         IntFloatVector v1 = new IntFloatDenseVector();
@@ -7,5 +7,10 @@ public class IntIntHashVectorTest extends AbstractIntIntVectorTest {
     protected IntIntVector getIntIntVector() {
         return new IntIntHashVector();
     }
+
+    @Override
+    protected boolean isIterationOrdered() {
+        return false;
+    }
     
 }    
@@ -0,0 +1,100 @@
+package edu.jhu.prim.vector;
+
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntIntToInt;
+import edu.jhu.prim.util.Lambda.FnIntIntToVoid;
+
+public class IntIntParallelTest {
+
+    /** An explicit pool, so that the parallel code runs even on a single processor. */
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    private static final int n = 3 * AbstractIntIntVector.PARALLEL_THRESHOLD;
+
+    @AfterClass
+    public static void shutdown() {
+        pool.shutdown();
+    }
+
+    private static AbstractIntIntVector[] getVectors() {
+        AbstractIntIntVector[] vecs = new AbstractIntIntVector[] { new IntIntDenseVector(),
+                new IntIntHashVector(), new IntIntSortedVector(), new IntIntUnsortedVector() };
+        for (AbstractIntIntVector vec : vecs) {
+            for (int i=0; i<n; i++) {
+                // Values in [-50, 50), each of which appears many times.
+                ((IntIntVector) vec).set(toInt(i), toInt((i * 7919) % 100 - 50));
+            }
+        }
+        return vecs;
+    }
+
+    @Test
+    public void testReductionsMatchSequential() {
+        for (AbstractIntIntVector vec : getVectors()) {
+            String name = vec.getClass().getName();
+            assertEquals(name, toInt(vec.getSum()), toInt(vec.parallelGetSum(pool)));
+            assertEquals(name, toInt(vec.getMax()), toInt(vec.parallelGetMax(pool)));
+            // Ties must be broken as in the sequential version.
+            assertEquals(name, toInt(vec.getArgmax()), toInt(vec.parallelGetArgmax(pool)));
+            int l2 = vec.getL2Norm();
+            // Summing in a different order changes the rounding of float sums.
+            assertEquals(name, l2, vec.parallelGetL2Norm(pool), Math.abs(l2) * 1e-3);
+        }
+    }
+
+    @Test
+    public void testApplyAndIterate() {
+        for (AbstractIntIntVector vec : getVectors()) {
+            final int sum = toInt(vec.getSum());
+            // The unsorted vector does not store the zeros.
+            final int[] expectedCount = new int[1];
+            vec.iterate(new FnIntIntToVoid() {
+                public void call(int idx, int val) {
+                    expectedCount[0]++;
+                }
+            });
+            vec.parallelApply(new FnIntIntToInt() {
+                public int call(int idx, int val) {
+                    return toInt(toInt(val) * 2);
+                }
+            }, pool);
+            assertEquals(2 * sum, toInt(vec.getSum()));
+            final AtomicInteger count = new AtomicInteger();
+            vec.parallelIterate(new FnIntIntToVoid() {
+                public void call(int idx, int val) {
+                    assertEquals(2 * ((toInt(idx) * 7919) % 100 - 50), toInt(val));
+                    count.incrementAndGet();
+                }
+            }, pool);
+            assertEquals(expectedCount[0], count.get());
+        }
+    }
+
+    @Test
+    public void testVectorWithoutRangesIsSequential() {
+        IntIntVectorSlice vec = new IntIntVectorSlice(new int[n], 0, n);
+        for (int i=0; i<n; i++) {
+            vec.set(toInt(i), toInt(i % 10));
+        }
+        assertEquals(toInt(vec.getSum()), toInt(vec.parallelGetSum(pool)));
+        assertEquals(9, toInt(vec.parallelGetArgmax(pool)));
+    }
+
+    @Test
+    public void testSmallVectorIsSequential() {
+        IntIntDenseVector vec = new IntIntDenseVector(new int[]{ toInt(3), toInt(1), toInt(3) });
+        assertEquals(7, toInt(vec.parallelGetSum(pool)));
+        assertEquals(0, toInt(vec.parallelGetArgmax(pool)));
+    }
+
+}
@@ -136,6 +136,54 @@ public class IntIntVectorSliceTest {
         assertEquals(3, toInt(v1.get(4)));
     }
 
+    @Test
+    public void testAddOutOfBoundsLeavesSliceUnchanged() {
+        IntIntVectorSlice v = new IntIntVectorSlice(new int[5], 1, 3);
+        try {
+            v.add(new IntIntUnsortedVector(new int[]{ 0, 3, 1 },
+                    new int[]{ toInt(1), toInt(1), toInt(1) }));
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+        for (int i=0; i<3; i++) {
+            assertEquals(0, toInt(v.get(i)));
+        }
+    }
+
+    @Test
+    public void testVectorOps() {
+        int[] elements = new int[]{ 1, 2, 3, 4, 5, 6 };
+        IntIntVectorSlice v1 = new IntIntVectorSlice(elements, 1, 4);
+        IntIntSortedVector v2 = new IntIntSortedVector();
+        v2.set(0, toInt(10));
+        v2.set(3, toInt(30));
+        IntIntUnsortedVector v3 = new IntIntUnsortedVector();
+        v3.add(3, toInt(2));
+        v3.add(1, toInt(3));
+
+        v1.add(v2);
+        assertEquals(12, toInt(v1.get(0)));
+        assertEquals(35, toInt(v1.get(3)));
+        v1.subtract(new IntIntDenseVector(new int[]{ 2, 3, 4 }));
+        v1.product(v3);
+        assertEquals(1, toInt(elements[0]));
+        assertEquals(0, toInt(v1.get(0)));
+        assertEquals(0, toInt(v1.get(1)));
+        assertEquals(0, toInt(v1.get(2)));
+        assertEquals(70, toInt(v1.get(3)));
+        assertEquals(6, toInt(elements[5]));
+
+        // Entries beyond the end of the slice can't be added.
+        v2.set(4, toInt(1));
+        try {
+            v1.add(v2);
+            fail();
+        } catch(IllegalStateException e) {
+            // pass
+        }
+    }
+
     @Test
     public void testScale() {
         IntIntVector v1 = new IntIntDenseVector();
@@ -1,6 +1,7 @@
 package edu.jhu.prim.vector;
 
 import static edu.jhu.prim.Primitives.toLong;
+import static edu.jhu.prim.Primitives.toInt;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -81,5 +82,21 @@ public class IntLongDenseVectorTest extends AbstractIntLongVectorTest {
         // Did we iterate over the full expected set.
         assertEquals(i.v, idxs.size());
     }
-    
+
+    @Test
+    public void testAddHashGrows() {
+        // The largest index is within the capacity, but past the explicit entries.
+        IntLongDenseVector v = new IntLongDenseVector(10);
+        v.add(0, toLong(1));
+        v.add(1, toLong(2));
+        v.add(new IntLongHashVector(new int[]{ 5, 1, 3 }, new long[]{ toLong(5), toLong(1), toLong(3) }));
+        assertEquals(6, v.getNumExplicitEntries());
+        assertEquals(3, toInt(v.get(1)));
+        assertEquals(3, toInt(v.get(3)));
+        assertEquals(5, toInt(v.get(5)));
+        v.add(new IntLongHashVector(new int[]{ 40 }, new long[]{ toLong(4) }));
+        assertEquals(41, v.getNumExplicitEntries());
+        assertEquals(4, toInt(v.get(40)));
+    }
+
 }    
@@ -7,5 +7,10 @@ public class IntLongHashVectorTest extends AbstractIntLongVectorTest {
     protected IntLongVector getIntLongVector() {
         return new IntLongHashVector();
     }
+
+    @Override
+    protected boolean isIterationOrdered() {
+        return false;
+    }
     
 }    
@@ -0,0 +1,100 @@
+package edu.jhu.prim.vector;
+
+import static edu.jhu.prim.Primitives.toLong;
+import static edu.jhu.prim.Primitives.toInt;
+import static edu.jhu.prim.Primitives.toInt;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import edu.jhu.prim.util.Lambda.FnIntLongToLong;
+import edu.jhu.prim.util.Lambda.FnIntLongToVoid;
+
+public class IntLongParallelTest {
+
+    /** An explicit pool, so that the parallel code runs even on a single processor. */
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    private static final int n = 3 * AbstractIntLongVector.PARALLEL_THRESHOLD;
+
+    @AfterClass
+    public static void shutdown() {
+        pool.shutdown();
+    }
+
+    private static AbstractIntLongVector[] getVectors() {
+        AbstractIntLongVector[] vecs = new AbstractIntLongVector[] { new IntLongDenseVector(),
+                new IntLongHashVector(), new IntLongSortedVector(), new IntLongUnsortedVector() };
+        for (AbstractIntLongVector vec : vecs) {
+            for (int i=0; i<n; i++) {
+                // Values in [-50, 50), each of which appears many times.
+                ((IntLongVector) vec).set(toInt(i), toLong((i * 7919) % 100 - 50));
+            }
+        }
+        return vecs;
+    }
+
+    @Test
+    public void testReductionsMatchSequential() {
+        for (AbstractIntLongVector vec : getVectors()) {
+            String name = vec.getClass().getName();
+            assertEquals(name, toInt(vec.getSum()), toInt(vec.parallelGetSum(pool)));
+            assertEquals(name, toInt(vec.getMax()), toInt(vec.parallelGetMax(pool)));
+            // Ties must be broken as in the sequential version.
+            assertEquals(name, toInt(vec.getArgmax()), toInt(vec.parallelGetArgmax(pool)));
+            long l2 = vec.getL2Norm();
+            // Summing in a different order changes the rounding of float sums.
+            assertEquals(name, l2, vec.parallelGetL2Norm(pool), Math.abs(l2) * 1e-3);
+        }
+    }
+
+    @Test
+    public void testApplyAndIterate() {
+        for (AbstractIntLongVector vec : getVectors()) {
+            final int sum = toInt(vec.getSum());
+            // The unsorted vector does not store the zeros.
+            final int[] expectedCount = new int[1];
+            vec.iterate(new FnIntLongToVoid() {
+                public void call(int idx, long val) {
+                    expectedCount[0]++;
+                }
+            });
+            vec.parallelApply(new FnIntLongToLong() {
+                public long call(int idx, long val) {
+                    return toLong(toInt(val) * 2);
+                }
+            }, pool);
+            assertEquals(2 * sum, toInt(vec.getSum()));
+            final AtomicInteger count = new AtomicInteger();
+            vec.parallelIterate(new FnIntLongToVoid() {
+                public void call(int idx, long val) {
+                    assertEquals(2 * ((toInt(idx) * 7919) % 100 - 50), toInt(val));
+                    count.incrementAndGet();
+                }
+            }, pool);
+            assertEquals(expectedCount[0], count.get());
+        }
+    }
+
+    @Test
+    public void testVectorWithoutRangesIsSequential() {
+        IntLongVectorSlice vec = new IntLongVectorSlice(new long[n], 0, n);
+        for (int i=0; i<n; i++) {
+            vec.set(toInt(i), toLong(i % 10));
+        }
+        assertEquals(toInt(vec.getSum()), toInt(vec.parallelGetSum(pool)));
+        assertEquals(9, toInt(vec.parallelGetArgmax(pool)));
+    }
+
+    @Test
+    public void testSmallVectorIsSequential() {
+        IntLongDenseVector vec = new IntLongDenseVector(new long[]{ toLong(3), toLong(1), toLong(3) });
+        assertEquals(7, toInt(vec.parallelGetSum(pool)));
+        assertEquals(0, toInt(vec.parallelGetArgmax(pool)));
+    }
+
+}
@@ -136,6 +136,54 @@ public class IntLongVectorSliceTest {
         assertEquals(3, toInt(v1.get(4)));
     }
 
+    @Test
+    public void testAddOutOfBoundsLeavesSliceUnchanged() {
+        IntLongVectorSlice v = new IntLongVectorSlice(new long[5], 1, 3);
+        try {
+            v.add(new IntLongUnsortedVector(new int[]{ 0, 3, 1 },
+                    new long[]{ toLong(1), toLong(1), toLong(1) }));
+            fail();
+        } catch (IllegalStateException e) {
+            // pass
+        }
+        for (int i=0; i<3; i++) {
+            assertEquals(0, toInt(v.get(i)));
+        }
+    }
+
+    @Test
+    public void testVectorOps() {
+        long[] elements = new long[]{ 1, 2, 3, 4, 5, 6 };
+        IntLongVectorSlice v1 = new IntLongVectorSlice(elements, 1, 4);
+        IntLongSortedVector v2 = new IntLongSortedVector();
+        v2.set(0, toLong(10));
+        v2.set(3, toLong(30));
+        IntLongUnsortedVector v3 = new IntLongUnsortedVector();
+        v3.add(3, toLong(2));
+        v3.add(1, toLong(3));
+
+        v1.add(v2);
+        assertEquals(12, toInt(v1.get(0)));
+        assertEquals(35, toInt(v1.get(3)));
+        v1.subtract(new IntLongDenseVector(new long[]{ 2, 3, 4 }));
+        v1.product(v3);
+        assertEquals(1, toInt(elements[0]));
+        assertEquals(0, toInt(v1.get(0)));
+        assertEquals(0, toInt(v1.get(1)));
+        assertEquals(0, toInt(v1.get(2)));
+        assertEquals(70, toInt(v1.get(3)));
+        assertEquals(6, toInt(elements[5]));
+
+        // Entries beyond the end of the slice can't be added.
+        v2.set(4, toLong(1));
+        try {
+            v1.add(v2);
+            fail();
+        } catch(IllegalStateException e) {
+            // pass
+        }
+    }
+
     @Test
     public void testScale() {
         IntLongVector v1 = new IntLongDenseVector();
@@ -1,5 +1,6 @@
 package edu.jhu.prim.vector;
 
+import static edu.jhu.prim.Primitives.toInt;
 import static edu.jhu.prim.Primitives.toInt;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -81,5 +82,21 @@ public class LongIntDenseVectorTest extends AbstractLongIntVectorTest {
         // Did we iterate over the full expected set.
         assertEquals(i.v, idxs.size());
     }
-    
+
+    @Test
+    public void testAddHashGrows() {
+        // The largest index is within the capacity, but past the explicit entries.
+        LongIntDenseVector v = new LongIntDenseVector(10);
+        v.add(0, toInt(1));
+        v.add(1, toInt(2));
+        v.add(new LongIntHashVector(new long[]{ 5, 1, 3 }, new int[]{ toInt(5), toInt(1), toInt(3) }));
+        assertEquals(6, v.getNumExplicitEntries());
+        assertEquals(3, toInt(v.get(1)));
+        assertEquals(3, toInt(v.get(3)));
+        assertEquals(5, toInt(v.get(5)));
+        v.add(new LongIntHashVector(new long[]{ 40 }, new int[]{ toInt(4) }));
+        assertEquals(41, v.getNumExplicitEntries());
+        assertEquals(4, toInt(v.get(40)));
+    }
+
 }    
@@ -7,5 +7,10 @@ public class LongIntHashVectorTest extends AbstractLongIntVectorTest {
     protected LongIntVector getLongIntVector() {
         return new LongIntHashVector();
     }
+
+    @Override
+    protected boolean isIterationOrdered() {
+        return false;
+    }
     
 }    